@@ -0,0 +1,180 @@
+package edu.eci.arsw.networking;
+
+import org.openjdk.jmh.annotations.AuxCounters;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.lang.management.ManagementFactory;
+import java.net.InetSocketAddress;
+import java.net.Socket;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * JMH benchmark of the {@link ConnectionExecutor} modes under idle connections.
+ * Each iteration starts a {@link SquareServer} with the mode under test, opens the given
+ * number of client connections and waits until the server is serving all of them (or,
+ * for the bounded pool, until every pool thread is busy). The footprint at that point is
+ * reported as auxiliary counters sampled after a GC: threads in the JVM, heap used and
+ * resident memory (MB, Linux only). JMH adds up event counters over the iterations, so
+ * a single iteration is measured; the time is mostly a sanity check, as the burst of
+ * connects overflows the listen backlog and waits for SYN retransmits.
+ *
+ * The client sockets live in the same JVM, so absolute memory numbers include them; the
+ * difference between modes at the same connection count is what matters. The virtual
+ * mode falls back to the pool below Java 21.
+ *
+ * @author GitHub Copilot Implementation
+ * @version 1.0
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 1)
+@Measurement(iterations = 1)
+@Fork(1)
+public class ConnectionExecutorBenchmark {
+
+    private static final String SERVER_HOST = "127.0.0.1";
+    private static final int SERVER_PORT = 36500;
+    private static final int POOL_THREADS = 64;
+
+    @Param({"thread", "pool", "virtual"})
+    public String mode;
+
+    @Param({"100", "1000", "2000"})
+    public int connections;
+
+    /**
+     * Process footprint once every connection is being served
+     */
+    @State(Scope.Thread)
+    @AuxCounters(AuxCounters.Type.EVENTS)
+    public static class Footprint {
+
+        public long threads;
+        public double heapMegabytes;
+        public double rssMegabytes;
+    }
+
+    private ConnectionExecutor executor;
+    private SquareServer server;
+    private Thread serverThread;
+    private final List<Socket> clients = new ArrayList<>();
+    private PrintStream console;
+    private PrintStream errors;
+
+    @Setup(Level.Iteration)
+    public void startServer() throws InterruptedException {
+        // Silence the per-connection server log while measuring
+        console = System.out;
+        errors = System.err;
+        System.setOut(new PrintStream(OutputStream.nullOutputStream()));
+        System.setErr(new PrintStream(OutputStream.nullOutputStream()));
+        executor = ConnectionExecutor.create(ConnectionExecutor.Mode.fromCommand(mode), "bench",
+                                             POOL_THREADS, connections);
+        server = new SquareServer(SERVER_PORT, executor);
+        serverThread = new Thread(server::startServer, "bench-acceptor");
+        serverThread.setDaemon(true);
+        serverThread.start();
+        waitForServer();
+    }
+
+    @TearDown(Level.Iteration)
+    public void stopServer() throws InterruptedException {
+        for (Socket client : clients) {
+            closeQuietly(client);
+        }
+        clients.clear();
+        server.stopServer();
+        // The accept loop only notices the stop flag after its next accept
+        try (Socket wakeUp = new Socket(SERVER_HOST, SERVER_PORT)) {
+            wakeUp.setSoLinger(true, 0);
+        } catch (IOException e) {
+            // Server already closed
+        }
+        serverThread.join(5000);
+        executor.awaitTermination(5000);
+        System.setOut(console);
+        System.setErr(errors);
+    }
+
+    @Benchmark
+    public int holdIdleConnections(Footprint footprint) throws IOException, InterruptedException {
+        for (int i = 0; i < connections; i++) {
+            Socket client = new Socket();
+            client.connect(new InetSocketAddress(SERVER_HOST, SERVER_PORT), 5000);
+            clients.add(client);
+        }
+        int expectedActive = executor.getMode() == ConnectionExecutor.Mode.POOL
+            ? Math.min(POOL_THREADS, connections) : connections;
+        long deadline = System.currentTimeMillis() + 5000;
+        while (executor.getActiveConnections() < expectedActive && System.currentTimeMillis() < deadline) {
+            Thread.sleep(1);
+        }
+        System.gc();
+        footprint.threads = ManagementFactory.getThreadMXBean().getThreadCount();
+        footprint.heapMegabytes = ManagementFactory.getMemoryMXBean().getHeapMemoryUsage().getUsed() / (1024.0 * 1024.0);
+        footprint.rssMegabytes = residentMemoryMegabytes();
+        return executor.getActiveConnections();
+    }
+
+    private static void waitForServer() throws InterruptedException {
+        for (int i = 0; i < 100; i++) {
+            try (Socket probe = new Socket()) {
+                probe.setSoLinger(true, 0);
+                probe.connect(new InetSocketAddress(SERVER_HOST, SERVER_PORT), 100);
+                return;
+            } catch (IOException e) {
+                Thread.sleep(50);
+            }
+        }
+        throw new IllegalStateException("El servidor no inició en el puerto " + SERVER_PORT);
+    }
+
+    /**
+     * Reads VmRSS from /proc on Linux
+     * @return Resident memory in MB, or 0 when not available
+     */
+    private static double residentMemoryMegabytes() {
+        Path status = Paths.get("/proc/self/status");
+        if (!Files.isReadable(status)) {
+            return 0;
+        }
+        try {
+            for (String line : Files.readAllLines(status)) {
+                if (line.startsWith("VmRSS:")) {
+                    return Long.parseLong(line.replaceAll("[^0-9]", "")) / 1024.0;
+                }
+            }
+        } catch (IOException | NumberFormatException e) {
+            return 0;
+        }
+        return 0;
+    }
+
+    private static void closeQuietly(Socket socket) {
+        try {
+            socket.close();
+        } catch (IOException e) {
+            // Ignore close errors during teardown
+        }
+    }
+}
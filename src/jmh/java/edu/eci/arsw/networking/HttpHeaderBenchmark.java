@@ -0,0 +1,77 @@
+package edu.eci.arsw.networking;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import java.io.ByteArrayOutputStream;
+import java.io.OutputStreamWriter;
+import java.io.PrintWriter;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.Date;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * JMH benchmark for building HTTP response headers. Compares the original approach
+ * (PrintWriter.println with string concatenation and {@code new Date()} per response,
+ * flushed twice) against {@link HttpHeaderEncoder} writing into a reused buffer; run with
+ * the GC profiler to see the bytes allocated per response.
+ *
+ * @author GitHub Copilot Implementation
+ * @version 1.0
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class HttpHeaderBenchmark {
+
+    private HttpResponse response;
+    private ByteArrayOutputStream legacyOut;
+    private PrintWriter legacyWriter;
+    private ByteBuffer buffer;
+
+    @Setup
+    public void setUp() {
+        response = new HttpResponse(200, "OK", "text/html", new byte[2713]);
+        response.setKeepAlive(5, 99);
+        legacyOut = new ByteArrayOutputStream(512);
+        legacyWriter = new PrintWriter(new OutputStreamWriter(legacyOut, StandardCharsets.ISO_8859_1), true);
+        buffer = ByteBuffer.allocate(512);
+    }
+
+    /**
+     * Header construction as the server originally did it
+     */
+    @Benchmark
+    public int printWriterAndDate() {
+        legacyOut.reset();
+        legacyWriter.println("HTTP/1.1 " + response.getStatusCode() + " " + response.getStatusText());
+        legacyWriter.println("Date: " + new Date());
+        legacyWriter.println("Server: SimpleWebServer/1.0");
+        legacyWriter.println("Content-Type: " + response.getContentType());
+        legacyWriter.println("Content-Length: " + response.getContentLength());
+        legacyWriter.println("Connection: keep-alive");
+        legacyWriter.println("Keep-Alive: timeout=" + response.getKeepAliveTimeoutSeconds() +
+                             ", max=" + response.getRemainingRequests());
+        legacyWriter.println();
+        legacyWriter.flush();
+        return legacyOut.size();
+    }
+
+    @Benchmark
+    public int headerEncoder() {
+        buffer.clear();
+        HttpHeaderEncoder.encode(response, buffer);
+        return buffer.position();
+    }
+}
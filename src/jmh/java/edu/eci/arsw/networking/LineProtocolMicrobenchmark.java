@@ -0,0 +1,73 @@
+package edu.eci.arsw.networking;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * JMH benchmarks of the line protocols: parsing, computing and formatting one answer of
+ * {@link SquareServer} and {@link MathFunctionServer}, and formatting the timestamp that
+ * {@link TimeServer} sends back in each datagram.
+ *
+ * @author GitHub Copilot Implementation
+ * @version 1.0
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class LineProtocolMicrobenchmark {
+
+    /**
+     * Client lines: a whole square, a fractional square and an invalid number
+     */
+    @State(Scope.Thread)
+    public static class Line {
+
+        @Param({"12", "3.5", "doce"})
+        public String input;
+    }
+
+    private SquareServer squareServer;
+    private MathFunctionServer mathServer;
+    private TimeServer timeServer;
+
+    @Setup
+    public void setUp() {
+        ConnectionExecutor executor = ConnectionExecutor.create(ConnectionExecutor.Mode.INLINE, "jmh");
+        squareServer = new SquareServer(0, executor);
+        mathServer = new MathFunctionServer(0, executor);
+        timeServer = new TimeServer();
+    }
+
+    @Benchmark
+    public String squareProcessInput(Line line) {
+        return squareServer.processInput(line.input);
+    }
+
+    @Benchmark
+    public Object mathProcessInput(Line line) {
+        return mathServer.processInput(line.input, MathFunctionServer.MathFunction.SIN);
+    }
+
+    @Benchmark
+    public Object mathFunctionCommand() {
+        return mathServer.processInput("fun:cos", MathFunctionServer.MathFunction.SIN);
+    }
+
+    @Benchmark
+    public String timeServerFormat() {
+        return timeServer.getCurrentTimeString();
+    }
+}
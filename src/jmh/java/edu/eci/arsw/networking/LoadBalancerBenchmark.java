@@ -0,0 +1,185 @@
+package edu.eci.arsw.networking;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.net.InetSocketAddress;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * JMH tail latency benchmark for {@link LoadBalancer} through a {@link TcpLoadBalancer}.
+ * It starts three {@link SquareServer} instances on their own ports, one of them slowed
+ * down on purpose, and every operation opens a connection through the balancer and sends
+ * one request, for each selection policy with outlier ejection off and on.
+ *
+ * Throughput and the latency distribution of connect plus one request (p99.9 included)
+ * come from JMH; at the end of each run the benchmark prints the share of requests the
+ * slow instance answered. The runs with ejection include the requests the slow instance
+ * served before it was ejected.
+ *
+ * @author GitHub Copilot Implementation
+ * @version 1.0
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode({Mode.Throughput, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 2, time = 2)
+@Measurement(iterations = 3, time = 3)
+@Threads(8)
+@Fork(1)
+public class LoadBalancerBenchmark {
+
+    private static final String SERVER_HOST = "127.0.0.1";
+    private static final int BALANCER_PORT = 36620;
+    private static final int[] BACKEND_PORTS = { 36621, 36622, 36623 };
+    private static final byte[] REQUEST = "12\n".getBytes(StandardCharsets.UTF_8);
+
+    @Param({"rr", "p2c", "lor"})
+    public String policy;
+
+    @Param({"false", "true"})
+    public boolean ejection;
+
+    @Param({"20"})
+    public long slowMillis;
+
+    private final List<SquareServer> servers = new ArrayList<>();
+    private final List<Thread> serverThreads = new ArrayList<>();
+    private final LongAdder slowAnswers = new LongAdder();
+    private final LongAdder completed = new LongAdder();
+    private TcpLoadBalancer front;
+    private Thread frontThread;
+    private PrintStream console;
+    private PrintStream errors;
+
+    @Setup
+    public void startServers() throws InterruptedException {
+        // Silence the per-connection server log while measuring
+        console = System.out;
+        errors = System.err;
+        System.setOut(new PrintStream(OutputStream.nullOutputStream()));
+        System.setErr(new PrintStream(OutputStream.nullOutputStream()));
+        List<LoadBalancer.Backend> backends = new ArrayList<>();
+        for (int i = 0; i < BACKEND_PORTS.length; i++) {
+            long delay = i == BACKEND_PORTS.length - 1 ? slowMillis : 0;
+            servers.add(startSquareServer(BACKEND_PORTS[i], delay, delay > 0 ? slowAnswers : null));
+            backends.add(LoadBalancer.Backend.parse(SERVER_HOST + ":" + BACKEND_PORTS[i]));
+        }
+        LoadBalancer.Policy selection = LoadBalancer.Policy.fromCommand(policy);
+        LoadBalancer<LoadBalancer.Backend> balancer =
+            new LoadBalancer<>("bench-" + policy + (ejection ? "-ejection" : ""), selection, backends);
+        balancer.setOutlierEjection(ejection);
+        front = new TcpLoadBalancer(BALANCER_PORT, balancer);
+        frontThread = new Thread(front::startServer, "bench-balancer");
+        frontThread.setDaemon(true);
+        frontThread.start();
+        waitForPort(BALANCER_PORT);
+    }
+
+    @TearDown
+    public void stopServers() throws InterruptedException {
+        front.stopServer();
+        frontThread.join(5000);
+        for (int i = 0; i < servers.size(); i++) {
+            servers.get(i).stopServer();
+            // The accept loop only notices the stop flag after its next accept
+            try (Socket wakeUp = new Socket(SERVER_HOST, BACKEND_PORTS[i])) {
+                wakeUp.setSoLinger(true, 0);
+            } catch (IOException e) {
+                // Server already closed
+            }
+            serverThreads.get(i).join(5000);
+        }
+        EventLog.shared().flush(5000);
+        System.setOut(console);
+        System.setErr(errors);
+
+        long total = completed.sum();
+        if (total > 0) {
+            System.out.println(String.format("Respuestas de la instancia lenta: %.1f%%",
+                                             100.0 * slowAnswers.sum() / total));
+        }
+    }
+
+    /**
+     * New connection per request, closed with a reset so no TIME_WAIT state piles up
+     * during the run
+     */
+    @Benchmark
+    public String connectAndSquare() throws IOException {
+        try (Socket socket = new Socket()) {
+            socket.setSoLinger(true, 0);
+            socket.setTcpNoDelay(true);
+            socket.connect(new InetSocketAddress(SERVER_HOST, BALANCER_PORT), 5000);
+            socket.setSoTimeout(5000);
+            socket.getOutputStream().write(REQUEST);
+            BufferedReader in = new BufferedReader(new InputStreamReader(socket.getInputStream(),
+                                                                         StandardCharsets.UTF_8));
+            String answer = in.readLine();
+            if (answer != null) {
+                completed.increment();
+            }
+            return answer;
+        }
+    }
+
+    private SquareServer startSquareServer(int port, long delayMillis, LongAdder answers)
+            throws InterruptedException {
+        ConnectionExecutor executor = ConnectionExecutor.create(ConnectionExecutor.Mode.THREAD, "bench-" + port);
+        SquareServer server = new SquareServer(port, executor) {
+            @Override
+            String processInput(String input) {
+                if (delayMillis > 0) {
+                    try {
+                        Thread.sleep(delayMillis);
+                    } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                    }
+                }
+                if (answers != null) {
+                    answers.increment();
+                }
+                return super.processInput(input);
+            }
+        };
+        Thread thread = new Thread(server::startServer, "bench-square-" + port);
+        thread.setDaemon(true);
+        thread.start();
+        serverThreads.add(thread);
+        waitForPort(port);
+        return server;
+    }
+
+    private static void waitForPort(int port) throws InterruptedException {
+        for (int i = 0; i < 100; i++) {
+            try (Socket probe = new Socket()) {
+                probe.setSoLinger(true, 0);
+                probe.connect(new InetSocketAddress(SERVER_HOST, port), 100);
+                return;
+            } catch (IOException e) {
+                Thread.sleep(50);
+            }
+        }
+        throw new IllegalStateException("El servidor no inició en el puerto " + port);
+    }
+}
@@ -0,0 +1,155 @@
+package edu.eci.arsw.networking;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.Comparator;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+
+/**
+ * JMH benchmark for the ways {@link SimpleWebServer} can hold hot static files. Each
+ * operation serves the next request of a skewed mix over a set of files, writing the body
+ * to /dev/null through a FileChannel (so heap arrays pay the same copy into a temporary
+ * direct buffer that a socket write costs them):
+ * - Files.readAllBytes on every request, the path of an uncached server
+ * - the heap {@link StaticFileCache}, one byte[] per file
+ * - the {@link MappedFileRegistry}, one MappedByteBuffer per file
+ *
+ * Run with the GC profiler to see the bytes allocated per request.
+ *
+ * @author GitHub Copilot Implementation
+ * @version 1.0
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class MappedFileBenchmark {
+
+    private static final int MIX_LENGTH = 4096;
+
+    @Param({"64"})
+    public int files;
+
+    @Param({"64"})
+    public int sizeKb;
+
+    private Path dir;
+    private Path[] paths;
+    private int[] mix;
+    private int next;
+    private FileChannel out;
+    private StaticFileCache heapCache;
+    private MappedFileRegistry registry;
+
+    @Setup
+    public void setUp() throws IOException {
+        long totalBytes = (long) files * sizeKb * 1024;
+        dir = Files.createTempDirectory("mmap-benchmark");
+        paths = createFiles(dir, files, sizeKb * 1024);
+        mix = requestMix(files, MIX_LENGTH);
+        out = FileChannel.open(Paths.get("/dev/null"), StandardOpenOption.WRITE);
+        heapCache = new StaticFileCache(totalBytes * 2, totalBytes, 1000);
+        registry = new MappedFileRegistry(totalBytes * 2, totalBytes, 1000);
+    }
+
+    @TearDown
+    public void tearDown() throws IOException {
+        heapCache.clear();
+        registry.clear();
+        out.close();
+        try (Stream<Path> walk = Files.walk(dir)) {
+            walk.sorted(Comparator.reverseOrder()).forEach(path -> path.toFile().delete());
+        }
+    }
+
+    @Benchmark
+    public long readAllBytes() throws IOException {
+        return write(ByteBuffer.wrap(Files.readAllBytes(paths[nextFile()])));
+    }
+
+    @Benchmark
+    public long heapCache() throws IOException {
+        Path path = paths[nextFile()];
+        StaticFileCache.Entry entry = heapCache.get(path);
+        if (entry == null) {
+            long modified = Files.getLastModifiedTime(path).toMillis();
+            entry = new StaticFileCache.Entry(path, path.toString(), Files.readAllBytes(path), modified);
+            heapCache.put(path, entry);
+        }
+        return write(ByteBuffer.wrap(entry.getContent()));
+    }
+
+    @Benchmark
+    public long mapped() throws IOException {
+        Path path = paths[nextFile()];
+        MappedFileRegistry.MappedFile mapped = registry.get(path);
+        if (mapped == null) {
+            long modified = Files.getLastModifiedTime(path).toMillis();
+            mapped = registry.map(path, path, path.toString(), modified, null);
+        }
+        try {
+            return write(mapped.view(false));
+        } finally {
+            mapped.release();
+        }
+    }
+
+    private int nextFile() {
+        int index = mix[next];
+        next = (next + 1) % mix.length;
+        return index;
+    }
+
+    private long write(ByteBuffer body) throws IOException {
+        long written = 0;
+        while (body.hasRemaining()) {
+            written += out.write(body);
+        }
+        return written;
+    }
+
+    private static Path[] createFiles(Path dir, int files, int size) throws IOException {
+        Random random = new Random(42);
+        byte[] content = new byte[size];
+        Path[] paths = new Path[files];
+        for (int i = 0; i < files; i++) {
+            random.nextBytes(content);
+            paths[i] = Files.write(dir.resolve("asset-" + i + ".bin"), content);
+        }
+        return paths;
+    }
+
+    /**
+     * Skewed request mix: a few files get most of the requests, as on a real site
+     */
+    private static int[] requestMix(int files, int requests) {
+        Random random = new Random(7);
+        int[] mix = new int[requests];
+        for (int i = 0; i < requests; i++) {
+            double u = random.nextDouble();
+            mix[i] = (int) (files * u * u);
+        }
+        return mix;
+    }
+}
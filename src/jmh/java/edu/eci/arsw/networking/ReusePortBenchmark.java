@@ -0,0 +1,216 @@
+package edu.eci.arsw.networking;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.net.InetSocketAddress;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Comparator;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+
+/**
+ * JMH scaling benchmark for the reactor engines of {@link SimpleWebServer}: the nio
+ * engine (one acceptor thread handing connections to the reactors) against the reuseport
+ * engine (one SO_REUSEPORT listener per reactor), for several reactor counts, under a
+ * connection-heavy load. Every operation opens a new connection, sends one GET, reads
+ * the response and resets the connection, so accepting is on the hot path.
+ *
+ * Throughput and the latency distribution of connect plus request come from JMH; at the
+ * end of each run the benchmark prints how evenly the connections were spread across
+ * the reactors (the smallest and largest share, from the http_reactor_connections_total
+ * metric). The client threads (-t) run in the same JVM and compete with the reactors for
+ * CPU, so results are most telling on machines with more cores than reactors under test.
+ *
+ * @author GitHub Copilot Implementation
+ * @version 1.0
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode({Mode.Throughput, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 2, time = 2)
+@Measurement(iterations = 3, time = 3)
+@Threads(8)
+@Fork(1)
+public class ReusePortBenchmark {
+
+    private static final String SERVER_HOST = "127.0.0.1";
+    private static final int SERVER_PORT = 36600;
+    private static final String FILE_NAME = "bench.txt";
+    private static final byte[] REQUEST =
+        ("GET /" + FILE_NAME + " HTTP/1.1\r\nHost: localhost\r\n\r\n").getBytes(StandardCharsets.ISO_8859_1);
+
+    @Param({"nio", "reuseport"})
+    public String engine;
+
+    @Param({"1", "2", "4"})
+    public int reactors;
+
+    /**
+     * Read buffer of one client thread
+     */
+    @State(Scope.Thread)
+    public static class Client {
+
+        final byte[] buffer = new byte[4096];
+    }
+
+    private Path webRoot;
+    private SimpleWebServer server;
+    private Thread serverThread;
+    private MetricsRegistry.Family<MetricsRegistry.Counter> perReactor;
+    private long[] acceptedBefore;
+    private PrintStream console;
+    private PrintStream errors;
+
+    @Setup
+    public void startServer() throws IOException, InterruptedException {
+        webRoot = Files.createTempDirectory("reuseport-benchmark");
+        Files.write(webRoot.resolve(FILE_NAME), "x".repeat(512).getBytes(StandardCharsets.US_ASCII));
+        WebServerConfig config = new WebServerConfig();
+        config.setPort(SERVER_PORT);
+        config.setWebRoot(webRoot.toString());
+        config.setEngine(WebServerConfig.Engine.fromCommand(engine));
+        config.setReactorThreads(reactors);
+        server = new SimpleWebServer(config);
+
+        perReactor = MetricsRegistry.shared()
+            .counter("http_reactor_connections_total", "Conexiones HTTP asignadas a cada reactor NIO", "reactor");
+        acceptedBefore = new long[reactors];
+        for (int i = 0; i < reactors; i++) {
+            acceptedBefore[i] = perReactor.labels(String.valueOf(i)).get();
+        }
+
+        // Silence the per-connection server log while measuring
+        console = System.out;
+        errors = System.err;
+        System.setOut(new PrintStream(OutputStream.nullOutputStream()));
+        System.setErr(new PrintStream(OutputStream.nullOutputStream()));
+        serverThread = new Thread(server::startServer, "bench-server");
+        serverThread.setDaemon(true);
+        serverThread.start();
+        waitForServer();
+    }
+
+    @TearDown
+    public void stopServer() throws IOException, InterruptedException {
+        server.stopServer();
+        serverThread.join(5000);
+        EventLog.shared().flush(5000);
+        System.setOut(console);
+        System.setErr(errors);
+
+        long min = Long.MAX_VALUE;
+        long max = 0;
+        long total = 0;
+        for (int i = 0; i < reactors; i++) {
+            long accepted = perReactor.labels(String.valueOf(i)).get() - acceptedBefore[i];
+            min = Math.min(min, accepted);
+            max = Math.max(max, accepted);
+            total += accepted;
+        }
+        if (total > 0) {
+            System.out.println(String.format("Reparto de conexiones por reactor (min/max): %.0f%% / %.0f%%",
+                                             100.0 * min / total, 100.0 * max / total));
+        }
+        try (Stream<Path> walk = Files.walk(webRoot)) {
+            walk.sorted(Comparator.reverseOrder()).forEach(path -> path.toFile().delete());
+        }
+    }
+
+    /**
+     * New connection per request, closed with a reset so no TIME_WAIT state piles up on
+     * either side during the run
+     */
+    @Benchmark
+    public boolean connectAndGet(Client client) throws IOException {
+        try (Socket socket = new Socket()) {
+            socket.setSoLinger(true, 0);
+            socket.setTcpNoDelay(true);
+            socket.connect(new InetSocketAddress(SERVER_HOST, SERVER_PORT), 5000);
+            socket.setSoTimeout(5000);
+            OutputStream out = socket.getOutputStream();
+            out.write(REQUEST);
+            out.flush();
+            return readResponse(socket.getInputStream(), client.buffer);
+        }
+    }
+
+    /**
+     * Reads one response up to the end of its Content-Length body
+     * @return true if a complete response arrived
+     */
+    static boolean readResponse(InputStream in, byte[] buffer) throws IOException {
+        int filled = 0;
+        int headerEnd = -1;
+        long contentLength = -1;
+        while (true) {
+            int read = in.read(buffer, filled, buffer.length - filled);
+            if (read < 0) {
+                return false;
+            }
+            filled += read;
+            if (headerEnd < 0) {
+                headerEnd = indexOfHeaderEnd(buffer, filled);
+                if (headerEnd >= 0) {
+                    contentLength = parseContentLength(new String(buffer, 0, headerEnd, StandardCharsets.ISO_8859_1));
+                }
+            }
+            if (headerEnd >= 0 && filled - headerEnd >= contentLength) {
+                return true;
+            }
+            if (filled == buffer.length) {
+                return false;
+            }
+        }
+    }
+
+    private static int indexOfHeaderEnd(byte[] buffer, int length) {
+        for (int i = 3; i < length; i++) {
+            if (buffer[i] == '\n' && buffer[i - 1] == '\r' && buffer[i - 2] == '\n' && buffer[i - 3] == '\r') {
+                return i + 1;
+            }
+        }
+        return -1;
+    }
+
+    private static long parseContentLength(String head) {
+        for (String line : head.split("\r\n")) {
+            int colon = line.indexOf(':');
+            if (colon > 0 && line.substring(0, colon).trim().equalsIgnoreCase("Content-Length")) {
+                return Long.parseLong(line.substring(colon + 1).trim());
+            }
+        }
+        return 0;
+    }
+
+    private static void waitForServer() throws InterruptedException {
+        for (int i = 0; i < 100; i++) {
+            try (Socket probe = new Socket()) {
+                probe.setSoLinger(true, 0);
+                probe.connect(new InetSocketAddress(SERVER_HOST, SERVER_PORT), 100);
+                return;
+            } catch (IOException e) {
+                Thread.sleep(50);
+            }
+        }
+        throw new IllegalStateException("El servidor no inició en el puerto " + SERVER_PORT);
+    }
+}
@@ -0,0 +1,73 @@
+package edu.eci.arsw.networking;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.rmi.RemoteException;
+import java.rmi.server.RemoteObject;
+import java.rmi.server.UnicastRemoteObject;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * JMH benchmarks of {@link ChatService} calls through an RMI stub over loopback TCP:
+ * an empty round trip (ping), a call returning a String and the chat message itself,
+ * which marshals two Strings and formats the console line on the receiving side.
+ * The receiver's console output is discarded while measuring.
+ *
+ * @author GitHub Copilot Implementation
+ * @version 1.0
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class RmiRoundTripMicrobenchmark {
+
+    private static final String MESSAGE = "Hola, ¿cómo va la entrega del laboratorio de redes de esta semana?";
+
+    private RMIChatApplication receiver;
+    private ChatService stub;
+    private PrintStream console;
+
+    @Setup
+    public void setUp() throws RemoteException {
+        console = System.out;
+        System.setOut(new PrintStream(OutputStream.nullOutputStream()));
+        receiver = new RMIChatApplication("jmh");
+        // Calls through the stub go through the RMI transport, as from a remote peer
+        stub = (ChatService) RemoteObject.toStub(receiver);
+    }
+
+    @TearDown
+    public void tearDown() throws RemoteException {
+        UnicastRemoteObject.unexportObject(receiver, true);
+        System.setOut(console);
+    }
+
+    @Benchmark
+    public boolean ping() throws RemoteException {
+        return stub.ping();
+    }
+
+    @Benchmark
+    public String getParticipantName() throws RemoteException {
+        return stub.getParticipantName();
+    }
+
+    @Benchmark
+    public void receiveMessage() throws RemoteException {
+        stub.receiveMessage("jmh", MESSAGE);
+    }
+}
@@ -0,0 +1,203 @@
+package edu.eci.arsw.networking;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.net.InetSocketAddress;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.stream.Stream;
+import javax.net.ssl.SSLContext;
+import javax.net.ssl.SSLSession;
+import javax.net.ssl.SSLSocket;
+
+/**
+ * JMH benchmark of the handshake cost of the HTTPS support of {@link SimpleWebServer}.
+ * It generates a self-signed certificate, starts the server with TLS and makes every
+ * operation open a new connection, so the handshake dominates each request. The client
+ * behaves in one of two ways:
+ * - resume=false: it forgets its session after each connection, as a first visit does,
+ *   so every handshake is a full one.
+ * - resume=true: it keeps its session cache, as a returning browser does, so connections
+ *   resume the session the server handed out before.
+ * Both run for TLS 1.3 and TLS 1.2, with session tickets on and off on the server.
+ *
+ * Throughput and the latency distribution of connect plus handshake plus one GET come
+ * from JMH; at the end of each run the benchmark prints the share of connections the
+ * clients saw resume (TLS 1.2 reuses the session id; TLS 1.3 keeps the session of the
+ * pre-shared key).
+ *
+ * @author GitHub Copilot Implementation
+ * @version 1.0
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode({Mode.Throughput, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 2, time = 2)
+@Measurement(iterations = 3, time = 3)
+@Threads(4)
+@Fork(1)
+public class TlsHandshakeBenchmark {
+
+    private static final String SERVER_HOST = "127.0.0.1";
+    private static final int SERVER_PORT = 36602;
+    private static final String FILE_NAME = "bench.txt";
+    private static final String PASSWORD = "benchmark";
+    private static final byte[] REQUEST =
+        ("GET /" + FILE_NAME + " HTTP/1.1\r\nHost: localhost\r\n\r\n").getBytes(StandardCharsets.ISO_8859_1);
+
+    @Param({"TLSv1.3", "TLSv1.2"})
+    public String protocol;
+
+    @Param({"true", "false"})
+    public boolean tickets;
+
+    @Param({"false", "true"})
+    public boolean resume;
+
+    /**
+     * One client thread: its own context, so its session cache is that of one browser
+     */
+    @State(Scope.Thread)
+    public static class Client {
+
+        final byte[] buffer = new byte[4096];
+        SSLContext context;
+        SSLSession previous;
+
+        @Setup
+        public void setUp(TlsHandshakeBenchmark benchmark) throws Exception {
+            context = TlsContext.trustingClientContext(benchmark.keyStore, PASSWORD);
+        }
+    }
+
+    private Path webRoot;
+    private Path keyStore;
+    private SimpleWebServer server;
+    private Thread serverThread;
+    private final LongAdder completed = new LongAdder();
+    private final LongAdder resumed = new LongAdder();
+    private PrintStream console;
+    private PrintStream errors;
+
+    @Setup
+    public void startServer() throws Exception {
+        webRoot = Files.createTempDirectory("tls-benchmark");
+        Files.write(webRoot.resolve(FILE_NAME), "x".repeat(512).getBytes(StandardCharsets.US_ASCII));
+        keyStore = webRoot.resolve("servidor.p12");
+        TlsContext.generateSelfSigned(keyStore, PASSWORD, "localhost");
+
+        WebServerConfig config = new WebServerConfig();
+        config.setPort(SERVER_PORT);
+        config.setWebRoot(webRoot.toString());
+        config.setEngine(WebServerConfig.Engine.NIO);
+        config.setTlsKeyStore(keyStore.toString());
+        config.setTlsPassword(PASSWORD);
+        config.setTlsSessionTickets(tickets);
+        server = new SimpleWebServer(config);
+
+        // Silence the per-connection server log while measuring
+        console = System.out;
+        errors = System.err;
+        System.setOut(new PrintStream(OutputStream.nullOutputStream()));
+        System.setErr(new PrintStream(OutputStream.nullOutputStream()));
+        serverThread = new Thread(server::startServer, "bench-server");
+        serverThread.setDaemon(true);
+        serverThread.start();
+        waitForServer();
+    }
+
+    @TearDown
+    public void stopServer() throws IOException, InterruptedException {
+        server.stopServer();
+        serverThread.join(5000);
+        EventLog.shared().flush(5000);
+        System.setOut(console);
+        System.setErr(errors);
+
+        long total = completed.sum();
+        if (total > 0) {
+            System.out.println(String.format("Conexiones reanudadas: %.0f%%", 100.0 * resumed.sum() / total));
+        }
+        try (Stream<Path> walk = Files.walk(webRoot)) {
+            walk.sorted(Comparator.reverseOrder()).forEach(path -> path.toFile().delete());
+        }
+    }
+
+    /**
+     * New connection per request, closed with a reset so no TIME_WAIT state piles up on
+     * either side during the run
+     */
+    @Benchmark
+    public boolean handshakeAndGet(Client client) throws IOException {
+        try (Socket plain = new Socket()) {
+            plain.setSoLinger(true, 0);
+            plain.setTcpNoDelay(true);
+            plain.connect(new InetSocketAddress(SERVER_HOST, SERVER_PORT), 5000);
+            plain.setSoTimeout(5000);
+            try (SSLSocket socket = (SSLSocket) client.context.getSocketFactory()
+                     .createSocket(plain, "localhost", SERVER_PORT, false)) {
+                socket.setEnabledProtocols(new String[] { protocol });
+                OutputStream out = socket.getOutputStream();
+                out.write(REQUEST);
+                out.flush();
+                if (!ReusePortBenchmark.readResponse(socket.getInputStream(), client.buffer)) {
+                    return false;
+                }
+                completed.increment();
+                SSLSession session = socket.getSession();
+                if (client.previous != null && isResumption(client.previous, session)) {
+                    resumed.increment();
+                }
+                client.previous = session;
+                if (!resume) {
+                    session.invalidate();
+                }
+                return true;
+            }
+        }
+    }
+
+    /**
+     * Checks whether a connection resumed the session of the previous one: TLS 1.2 reuses
+     * its session id, and a TLS 1.3 client keeps the session the pre-shared key came from
+     */
+    private static boolean isResumption(SSLSession previous, SSLSession current) {
+        if ("TLSv1.3".equals(current.getProtocol())) {
+            return current.getCreationTime() == previous.getCreationTime();
+        }
+        return current.getId().length > 0 && Arrays.equals(previous.getId(), current.getId());
+    }
+
+    private static void waitForServer() throws InterruptedException {
+        for (int i = 0; i < 100; i++) {
+            try (Socket probe = new Socket()) {
+                probe.setSoLinger(true, 0);
+                probe.connect(new InetSocketAddress(SERVER_HOST, SERVER_PORT), 100);
+                return;
+            } catch (IOException e) {
+                Thread.sleep(50);
+            }
+        }
+        throw new IllegalStateException("El servidor no inició en el puerto " + SERVER_PORT);
+    }
+}
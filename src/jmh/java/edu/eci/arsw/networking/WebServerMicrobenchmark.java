@@ -0,0 +1,94 @@
+package edu.eci.arsw.networking;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import java.nio.ByteBuffer;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * JMH benchmarks of the per-request work of {@link SimpleWebServer} that does not touch
+ * the network: turning the request path into a web root path, choosing the MIME type,
+ * and encoding the response head into the per-connection buffer.
+ *
+ * @author GitHub Copilot Implementation
+ * @version 1.0
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class WebServerMicrobenchmark {
+
+    private HttpResponse plainResponse;
+    private HttpResponse fileResponse;
+    private ByteBuffer headBuffer;
+
+    /**
+     * Request paths: the default document, a query string and a traversal attempt
+     */
+    @State(Scope.Thread)
+    public static class RequestPath {
+
+        @Param({"/", "/css/style.css?v=3", "/images/../../etc/passwd"})
+        public String path;
+
+        SimpleWebServer server;
+        String resolvedPath;
+
+        @Setup
+        public void setUp() {
+            WebServerConfig config = new WebServerConfig();
+            config.setIndexEnabled(false);
+            server = new SimpleWebServer(config);
+            resolvedPath = server.resolveFilePath(path);
+        }
+    }
+
+    @Setup
+    public void setUp() {
+        plainResponse = new HttpResponse(200, "OK", "text/html", new byte[2713]);
+        plainResponse.setKeepAlive(5, 99);
+        // A typical static file answer: validators, ranges and a compressed variant
+        fileResponse = new HttpResponse(200, "OK", "text/css", new byte[18_342]);
+        fileResponse.setKeepAlive(5, 42);
+        fileResponse.setValidators(FileValidators.of(18_342, 1_700_000_000_000L));
+        fileResponse.setAcceptRanges(true);
+        fileResponse.setVaryAcceptEncoding(true);
+        headBuffer = ByteBuffer.allocate(1024);
+    }
+
+    @Benchmark
+    public String resolveFilePath(RequestPath request) {
+        return request.server.resolveFilePath(request.path);
+    }
+
+    @Benchmark
+    public String getMimeType(RequestPath request) {
+        return request.server.getMimeType(request.resolvedPath);
+    }
+
+    @Benchmark
+    public int encodeHead() {
+        headBuffer.clear();
+        HttpHeaderEncoder.encode(plainResponse, headBuffer);
+        return headBuffer.position();
+    }
+
+    @Benchmark
+    public int encodeFileHead() {
+        headBuffer.clear();
+        HttpHeaderEncoder.encode(fileResponse, headBuffer);
+        return headBuffer.position();
+    }
+}
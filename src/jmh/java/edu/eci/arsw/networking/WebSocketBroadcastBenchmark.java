@@ -0,0 +1,206 @@
+package edu.eci.arsw.networking;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.net.InetSocketAddress;
+import java.net.Socket;
+import java.nio.ByteBuffer;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.nio.channels.SocketChannel;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * JMH fan-out benchmark for {@link WebSocketEndpoint#broadcast(String)}. It starts a
+ * {@link SimpleWebServer} with one WebSocket endpoint and connects many subscribers; every
+ * operation pushes one text message to all of them and waits until the last byte reached
+ * the last subscriber, in two ways:
+ * - shared: one broadcast, encoded once and queued for every session
+ * - perSession: one {@link WebSocketSession#sendText(String)} per session, which encodes
+ *   the frame again for every subscriber
+ *
+ * Frames delivered per second are the subscribers divided by the time per operation. The
+ * subscribers are read by a single selector on the benchmark thread, so the client side
+ * stays cheap; run with the GC profiler to compare what each way allocates per message.
+ *
+ * @author GitHub Copilot Implementation
+ * @version 1.0
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class WebSocketBroadcastBenchmark {
+
+    private static final String SERVER_HOST = "127.0.0.1";
+    private static final int SERVER_PORT = 36640;
+    private static final String PATH = "/bench";
+    private static final String HANDSHAKE = "GET " + PATH + " HTTP/1.1\r\nHost: localhost\r\nUpgrade: websocket\r\n" +
+                                            "Connection: Upgrade\r\nSec-WebSocket-Key: dGhlIHNhbXBsZSBub25jZQ==\r\n" +
+                                            "Sec-WebSocket-Version: 13\r\n\r\n";
+
+    @Param({"1000"})
+    public int subscribers;
+
+    @Param({"256"})
+    public int payloadBytes;
+
+    private SimpleWebServer server;
+    private WebSocketEndpoint endpoint;
+    private Thread serverThread;
+    private final List<SocketChannel> channels = new ArrayList<>();
+    private Selector selector;
+    private final ByteBuffer buffer = ByteBuffer.allocateDirect(64 * 1024);
+    private String message;
+    private long bytesPerMessage;
+    private PrintStream console;
+    private PrintStream errors;
+
+    @Setup
+    public void startServer() throws IOException, InterruptedException {
+        WebServerConfig config = new WebServerConfig();
+        config.setPort(SERVER_PORT);
+        config.setExecutorMode(ConnectionExecutor.Mode.THREAD);
+        config.setWebSocketEnabled(false);
+        config.setIndexEnabled(false);
+        config.setWebSocketSessions(subscribers);
+
+        // Silence the per-connection server log while measuring
+        console = System.out;
+        errors = System.err;
+        System.setOut(new PrintStream(OutputStream.nullOutputStream()));
+        System.setErr(new PrintStream(OutputStream.nullOutputStream()));
+        server = new SimpleWebServer(config);
+        endpoint = server.addWebSocketEndpoint(PATH, new WebSocketHandler() { });
+        serverThread = new Thread(server::startServer, "bench-server");
+        serverThread.setDaemon(true);
+        serverThread.start();
+        waitForPort();
+        for (int i = 0; i < subscribers; i++) {
+            channels.add(subscribe());
+        }
+        while (endpoint.getSessionCount() < subscribers) {
+            Thread.sleep(10);
+        }
+
+        message = "x".repeat(payloadBytes);
+        bytesPerMessage = (long) subscribers * WebSocketCodec.encodeText(message).remaining();
+        selector = Selector.open();
+        for (SocketChannel channel : channels) {
+            channel.configureBlocking(false);
+            channel.register(selector, SelectionKey.OP_READ);
+        }
+    }
+
+    @TearDown
+    public void stopServer() throws IOException, InterruptedException {
+        selector.close();
+        for (SocketChannel channel : channels) {
+            try {
+                channel.close();
+            } catch (IOException e) {
+                // Already closed
+            }
+        }
+        server.stopServer();
+        // The accept loop only notices the stop flag after its next accept
+        try (Socket wakeUp = new Socket(SERVER_HOST, SERVER_PORT)) {
+            wakeUp.setSoLinger(true, 0);
+        } catch (IOException e) {
+            // Server already closed
+        }
+        serverThread.join(5000);
+        EventLog.shared().flush(5000);
+        System.setOut(console);
+        System.setErr(errors);
+    }
+
+    @Benchmark
+    public long shared() throws IOException {
+        endpoint.broadcast(message);
+        return awaitDelivered();
+    }
+
+    @Benchmark
+    public long perSession() throws IOException {
+        for (WebSocketSession session : endpoint.getSessions()) {
+            session.sendText(message);
+        }
+        return awaitDelivered();
+    }
+
+    /**
+     * Reads from the subscribers until every one of them got the message
+     * @return Bytes read
+     */
+    private long awaitDelivered() throws IOException {
+        long received = 0;
+        while (received < bytesPerMessage) {
+            if (selector.select(1000) == 0) {
+                continue;
+            }
+            for (SelectionKey key : selector.selectedKeys()) {
+                SocketChannel channel = (SocketChannel) key.channel();
+                int read;
+                while ((read = channel.read(buffer.clear())) > 0) {
+                    received += read;
+                }
+                if (read < 0) {
+                    throw new IOException("Un suscriptor fue desconectado");
+                }
+            }
+            selector.selectedKeys().clear();
+        }
+        return received;
+    }
+
+    /**
+     * Opens a subscriber and completes its handshake
+     */
+    private static SocketChannel subscribe() throws IOException {
+        SocketChannel channel = SocketChannel.open(new InetSocketAddress(SERVER_HOST, SERVER_PORT));
+        channel.write(ByteBuffer.wrap(HANDSHAKE.getBytes(StandardCharsets.ISO_8859_1)));
+        // Nothing is broadcast before every subscriber is connected, so the head is all there is
+        ByteBuffer head = ByteBuffer.allocate(1024);
+        while (!new String(head.array(), 0, head.position(), StandardCharsets.ISO_8859_1).endsWith("\r\n\r\n")) {
+            if (channel.read(head) < 0) {
+                throw new IOException("El servidor cerró la conexión durante el handshake");
+            }
+        }
+        if (!new String(head.array(), 0, head.position(), StandardCharsets.ISO_8859_1).startsWith("HTTP/1.1 101 ")) {
+            throw new IOException("Handshake rechazado");
+        }
+        return channel;
+    }
+
+    private static void waitForPort() throws InterruptedException {
+        for (int i = 0; i < 100; i++) {
+            try (Socket probe = new Socket()) {
+                probe.setSoLinger(true, 0);
+                probe.connect(new InetSocketAddress(SERVER_HOST, SERVER_PORT), 100);
+                return;
+            } catch (IOException e) {
+                Thread.sleep(50);
+            }
+        }
+        throw new IllegalStateException("El servidor no inició en el puerto " + SERVER_PORT);
+    }
+}
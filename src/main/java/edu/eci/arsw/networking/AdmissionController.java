@@ -0,0 +1,233 @@
+package edu.eci.arsw.networking;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Admission control and load shedding shared by {@link SimpleWebServer} and
+ * {@link SquareServer}. Under overload it is cheaper to refuse work early with a short
+ * "try again later" answer than to queue it: queued work only adds latency for everyone,
+ * and clients that time out have wasted the server's effort anyway.
+ *
+ * Three independent checks, each disabled when its limit is 0:
+ * - Open connections  - Connections beyond the limit are answered and closed right after accept
+ * - In-flight requests - Requests beyond the limit being processed or written at once are
+ *                        answered without being processed
+ * - Queue delay        - CoDel-style shedding on the time work waited before a thread picked
+ *                        it up (the executor queue of the blocking servers, the event loop
+ *                        backlog of the NIO reactors)
+ *
+ * The queue-delay check follows the adaptation of CoDel used by request-serving proxies:
+ * the smallest delay seen in each interval tells a standing queue (every request waited)
+ * from a burst (some requests did not). Only while the previous interval's minimum was
+ * above the target is the server overloaded, and then work that waited more than twice
+ * the target is shed. Bursts are absorbed, a standing queue is drained quickly, and the
+ * delay of admitted work stays bounded near the target.
+ *
+ * Configured with system properties, e.g.:
+ * <pre>
+ * -Dnetworking.admission.connections=1000 -Dnetworking.admission.inflight=256
+ * -Dnetworking.admission.target=5 -Dnetworking.admission.interval=100 -Dnetworking.admission.retryafter=1
+ * </pre>
+ *
+ * Rejections are counted in admission_rejected_total{server,reason} and queue delays in
+ * admission_queue_delay_seconds{server}.
+ *
+ * @author GitHub Copilot Implementation
+ * @version 1.0
+ */
+public final class AdmissionController {
+
+    /**
+     * Why a connection or request was refused, used as the metric label
+     */
+    public enum Reason {
+        CONNECTIONS("connections"),
+        IN_FLIGHT("inflight"),
+        QUEUE_DELAY("queue");
+
+        private final String label;
+
+        Reason(String label) {
+            this.label = label;
+        }
+
+        public String getLabel() { return label; }
+    }
+
+    public static final long DEFAULT_INTERVAL_MILLIS = 100;
+    public static final int DEFAULT_RETRY_AFTER_SECONDS = 1;
+
+    private final int maxConnections;
+    private final int maxInFlight;
+    private final long targetNanos;
+    private final long intervalNanos;
+    private final int retryAfterSeconds;
+    private final AtomicInteger openConnections = new AtomicInteger();
+    private final AtomicInteger inFlight = new AtomicInteger();
+    private final AtomicLong intervalEnd = new AtomicLong(System.nanoTime());
+    private final AtomicLong intervalMinDelay = new AtomicLong(Long.MAX_VALUE);
+    private volatile boolean overloaded;
+    private final MetricsRegistry.Counter[] rejected = new MetricsRegistry.Counter[Reason.values().length];
+    private final MetricsRegistry.Histogram queueDelays;
+
+    private AdmissionController(String name, int maxConnections, int maxInFlight, long targetMillis,
+                                long intervalMillis, int retryAfterSeconds) {
+        this.maxConnections = maxConnections;
+        this.maxInFlight = maxInFlight;
+        this.targetNanos = TimeUnit.MILLISECONDS.toNanos(targetMillis);
+        this.intervalNanos = TimeUnit.MILLISECONDS.toNanos(intervalMillis);
+        this.retryAfterSeconds = retryAfterSeconds;
+        MetricsRegistry.Family<MetricsRegistry.Counter> rejections = MetricsRegistry.shared()
+            .counter("admission_rejected_total", "Conexiones y solicitudes rechazadas por sobrecarga", "server", "reason");
+        for (Reason reason : Reason.values()) {
+            rejected[reason.ordinal()] = rejections.labels(name, reason.getLabel());
+        }
+        this.queueDelays = MetricsRegistry.shared()
+            .histogram("admission_queue_delay_seconds", "Tiempo de espera antes de que un hilo atienda el trabajo", "server")
+            .labels(name);
+    }
+
+    /**
+     * Creates a controller
+     * @param name Server name used as the metric label
+     * @param maxConnections Maximum open connections (0 for no limit)
+     * @param maxInFlight Maximum requests processed at once (0 for no limit)
+     * @param targetMillis Acceptable standing queue delay (0 disables queue-delay shedding)
+     * @param intervalMillis Window over which the minimum queue delay is observed
+     * @param retryAfterSeconds Value of the Retry-After hint sent with rejections
+     * @return A new admission controller
+     */
+    public static AdmissionController create(String name, int maxConnections, int maxInFlight, long targetMillis,
+                                             long intervalMillis, int retryAfterSeconds) {
+        if (maxConnections < 0 || maxInFlight < 0) {
+            throw new IllegalArgumentException("Límite de admisión inválido: " + maxConnections + "/" + maxInFlight);
+        }
+        if (targetMillis < 0 || intervalMillis < 1) {
+            throw new IllegalArgumentException("Parámetros de descarte inválidos: " + targetMillis + "/" + intervalMillis);
+        }
+        if (retryAfterSeconds < 0) {
+            throw new IllegalArgumentException("Retry-After inválido: " + retryAfterSeconds);
+        }
+        return new AdmissionController(name, maxConnections, maxInFlight, targetMillis, intervalMillis,
+                                       retryAfterSeconds);
+    }
+
+    /**
+     * Creates a controller configured through the networking.admission.* system
+     * properties; every check is disabled unless its property is set
+     * @param name Server name used as the metric label
+     * @return A new admission controller
+     */
+    public static AdmissionController fromSystemProperties(String name) {
+        return create(name,
+                      Integer.getInteger("networking.admission.connections", 0),
+                      Integer.getInteger("networking.admission.inflight", 0),
+                      Long.getLong("networking.admission.target", 0),
+                      Long.getLong("networking.admission.interval", DEFAULT_INTERVAL_MILLIS),
+                      Integer.getInteger("networking.admission.retryafter", DEFAULT_RETRY_AFTER_SECONDS));
+    }
+
+    /**
+     * Claims a connection slot; every successful call must be paired with
+     * {@link #releaseConnection()}
+     * @return false if the server already holds the maximum number of connections
+     */
+    public boolean tryAcquireConnection() {
+        if (!tryAcquire(openConnections, maxConnections)) {
+            reject(Reason.CONNECTIONS);
+            return false;
+        }
+        return true;
+    }
+
+    public void releaseConnection() {
+        openConnections.decrementAndGet();
+    }
+
+    /**
+     * Claims an in-flight request slot; every successful call must be paired with
+     * {@link #releaseRequest()}
+     * @return false if the maximum number of requests is already being processed
+     */
+    public boolean tryAcquireRequest() {
+        if (!tryAcquire(inFlight, maxInFlight)) {
+            reject(Reason.IN_FLIGHT);
+            return false;
+        }
+        return true;
+    }
+
+    public void releaseRequest() {
+        inFlight.decrementAndGet();
+    }
+
+    private static boolean tryAcquire(AtomicInteger counter, int limit) {
+        if (limit == 0) {
+            counter.incrementAndGet();
+            return true;
+        }
+        while (true) {
+            int current = counter.get();
+            if (current >= limit) {
+                return false;
+            }
+            if (counter.compareAndSet(current, current + 1)) {
+                return true;
+            }
+        }
+    }
+
+    /**
+     * Reports how long a unit of work waited before a thread picked it up and decides
+     * whether to shed it
+     * @param queueDelayNanos Time between arrival and the start of processing
+     * @return true if the work should be answered with a rejection instead of processed
+     */
+    public boolean shouldShed(long queueDelayNanos) {
+        if (targetNanos == 0) {
+            return false;
+        }
+        queueDelays.record(queueDelayNanos);
+        long now = System.nanoTime();
+        long end = intervalEnd.get();
+        if (now - end >= 0 && intervalEnd.compareAndSet(end, now + intervalNanos)) {
+            // Only the thread that closes the interval judges it
+            long minimum = intervalMinDelay.getAndSet(queueDelayNanos);
+            overloaded = minimum != Long.MAX_VALUE && minimum > targetNanos;
+        } else {
+            intervalMinDelay.accumulateAndGet(queueDelayNanos, Math::min);
+        }
+        if (overloaded && queueDelayNanos > 2 * targetNanos) {
+            reject(Reason.QUEUE_DELAY);
+            return true;
+        }
+        return false;
+    }
+
+    private void reject(Reason reason) {
+        rejected[reason.ordinal()].increment();
+    }
+
+    public int getRetryAfterSeconds() { return retryAfterSeconds; }
+
+    public int getOpenConnections() { return openConnections.get(); }
+
+    public int getInFlightRequests() { return inFlight.get(); }
+
+    /**
+     * Checks whether the last queue-delay interval showed a standing queue
+     */
+    public boolean isOverloaded() { return overloaded; }
+
+    /**
+     * Gets how many connections or requests were refused for one reason; the count is
+     * the shared metric series, so it includes earlier servers with the same name
+     * @param reason Rejection reason
+     * @return Rejections counted in this JVM
+     */
+    public long getRejectedCount(Reason reason) {
+        return rejected[reason.ordinal()].get();
+    }
+}
@@ -0,0 +1,169 @@
+package edu.eci.arsw.networking;
+
+import java.nio.charset.StandardCharsets;
+
+/**
+ * A window over ASCII bytes owned by someone else, typically the request head buffered by
+ * {@link HttpRequestParser}. A view is only valid until its owner reuses the bytes (for the
+ * parser, until the next request), so it is compared in place and converted to a String
+ * only when a caller really needs one.
+ *
+ * @author GitHub Copilot Implementation
+ * @version 1.0
+ */
+final class AsciiView implements CharSequence {
+
+    private static final byte[] EMPTY_BYTES = new byte[0];
+    private static final AsciiView EMPTY = new AsciiView(EMPTY_BYTES, 0, 0);
+
+    private byte[] bytes;
+    private int offset;
+    private int length;
+
+    AsciiView() {
+        this(EMPTY_BYTES, 0, 0);
+    }
+
+    private AsciiView(byte[] bytes, int offset, int length) {
+        this.bytes = bytes;
+        this.offset = offset;
+        this.length = length;
+    }
+
+    /**
+     * Points this view at a new range; used by the owner of the bytes
+     */
+    void set(byte[] bytes, int offset, int length) {
+        this.bytes = bytes;
+        this.offset = offset;
+        this.length = length;
+    }
+
+    /**
+     * Empties the view
+     */
+    void clear() {
+        set(EMPTY_BYTES, 0, 0);
+    }
+
+    @Override
+    public int length() {
+        return length;
+    }
+
+    @Override
+    public char charAt(int index) {
+        if (index < 0 || index >= length) {
+            throw new IndexOutOfBoundsException("Índice fuera de rango: " + index);
+        }
+        return (char) (bytes[offset + index] & 0xFF);
+    }
+
+    @Override
+    public CharSequence subSequence(int start, int end) {
+        if (start < 0 || end > length || start > end) {
+            throw new IndexOutOfBoundsException("Rango inválido: " + start + ".." + end);
+        }
+        return start == end ? EMPTY : new AsciiView(bytes, offset + start, end - start);
+    }
+
+    @Override
+    public boolean isEmpty() {
+        return length == 0;
+    }
+
+    /**
+     * Compares with a String, byte for byte
+     * @param value Expected content
+     * @return true if both hold the same characters
+     */
+    boolean contentEquals(String value) {
+        if (value.length() != length) {
+            return false;
+        }
+        for (int i = 0; i < length; i++) {
+            if ((bytes[offset + i] & 0xFF) != value.charAt(i)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Compares with a String ignoring ASCII case, as HTTP does for header names and tokens
+     * @param value Expected content
+     * @return true if both hold the same characters apart from case
+     */
+    boolean equalsIgnoreCase(String value) {
+        return value.length() == length && regionEqualsIgnoreCase(0, value);
+    }
+
+    /**
+     * Checks a comma-separated header value (e.g. Connection) for a token, ignoring case
+     * and optional whitespace around each element
+     * @param token Token to look for, e.g. "close"
+     * @return true if one of the list elements is the token
+     */
+    boolean containsToken(String token) {
+        int i = 0;
+        while (i < length) {
+            int start = i;
+            while (i < length && bytes[offset + i] != ',') {
+                i++;
+            }
+            int end = i;
+            while (start < end && isWhitespace(bytes[offset + start])) {
+                start++;
+            }
+            while (end > start && isWhitespace(bytes[offset + end - 1])) {
+                end--;
+            }
+            if (end - start == token.length() && regionEqualsIgnoreCase(start, token)) {
+                return true;
+            }
+            i++;
+        }
+        return false;
+    }
+
+    /**
+     * Parses the view as a non-negative decimal number
+     * @return The value, or -1 if the view is empty, not a number or too large
+     */
+    long parseLong() {
+        if (length == 0 || length > 18) {
+            return -1;
+        }
+        long value = 0;
+        for (int i = 0; i < length; i++) {
+            int digit = bytes[offset + i] - '0';
+            if (digit < 0 || digit > 9) {
+                return -1;
+            }
+            value = value * 10 + digit;
+        }
+        return value;
+    }
+
+    private boolean regionEqualsIgnoreCase(int start, String value) {
+        for (int i = 0; i < value.length(); i++) {
+            if (toLowerCase(bytes[offset + start + i] & 0xFF) != toLowerCase(value.charAt(i))) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static int toLowerCase(int c) {
+        return c >= 'A' && c <= 'Z' ? c + ('a' - 'A') : c;
+    }
+
+    private static boolean isWhitespace(byte b) {
+        return b == ' ' || b == '\t';
+    }
+
+    @Override
+    public String toString() {
+        return new String(bytes, offset, length, StandardCharsets.ISO_8859_1);
+    }
+}
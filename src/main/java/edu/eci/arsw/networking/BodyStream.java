@@ -0,0 +1,149 @@
+package edu.eci.arsw.networking;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.CharsetEncoder;
+import java.nio.charset.CoderResult;
+import java.nio.charset.CodingErrorAction;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Iterator;
+
+/**
+ * Source of a response body whose length is not known when the headers are sent, such as
+ * generated pages or a file that is still growing. {@link ResponseWriter} pulls the body
+ * into one buffer of bounded size, reused for every chunk of every response on the
+ * connection, and frames each fill as one chunk of "Transfer-Encoding: chunked" (or sends
+ * it unframed to HTTP/1.0 clients, ending the body by closing the connection). Nothing
+ * ever holds the whole body in memory.
+ *
+ * Pulling instead of pushing lets the same source serve both engines: the blocking engine
+ * drains it in one call, the NIO reactors take the next chunk only when the socket is
+ * writable. Sources run on the connection's thread and should produce bytes promptly.
+ *
+ * @author GitHub Copilot Implementation
+ * @version 1.0
+ */
+interface BodyStream extends Closeable {
+
+    /**
+     * Copies the next bytes of the body into the buffer, waiting for them if needed
+     * @param target Buffer with room for at least one byte
+     * @return Number of bytes copied (0 only when too little room is left for the next
+     *         character), or -1 once the body has ended
+     * @throws IOException If the body cannot be produced; the response is then cut short
+     */
+    int read(ByteBuffer target) throws IOException;
+
+    /**
+     * Releases what the source holds; called once the response is sent or abandoned
+     */
+    @Override
+    default void close() throws IOException {
+    }
+
+    /**
+     * Streams a file up to its end as found while sending, so bytes appended after the
+     * request arrived are included and a file that shrinks simply ends the body early
+     * @param file File to send; it is opened on the first read
+     * @return A stream over the file
+     */
+    static BodyStream ofFile(Path file) {
+        return new FileStream(file);
+    }
+
+    /**
+     * Streams text encoded as UTF-8, taking the next part from the iterator only when the
+     * previous one has been encoded, so a part may be a reused buffer
+     * @param parts Text of the body, produced lazily
+     * @param resource Released with the stream (e.g. an open directory), or null
+     * @return A stream over the text
+     */
+    static BodyStream ofText(Iterator<? extends CharSequence> parts, Closeable resource) {
+        return new TextStream(parts, resource);
+    }
+
+    /**
+     * Reads a file through its channel into the writer's buffer
+     */
+    final class FileStream implements BodyStream {
+
+        private final Path file;
+        private FileChannel channel;
+
+        private FileStream(Path file) {
+            this.file = file;
+        }
+
+        @Override
+        public int read(ByteBuffer target) throws IOException {
+            if (channel == null) {
+                channel = FileChannel.open(file, StandardOpenOption.READ);
+            }
+            return channel.read(target);
+        }
+
+        @Override
+        public void close() throws IOException {
+            if (channel != null) {
+                channel.close();
+            }
+        }
+    }
+
+    /**
+     * Encodes text parts one after the other, resuming mid-part when the buffer fills
+     */
+    final class TextStream implements BodyStream {
+
+        private final Iterator<? extends CharSequence> parts;
+        private final Closeable resource;
+        private final CharsetEncoder encoder = StandardCharsets.UTF_8.newEncoder()
+            .onMalformedInput(CodingErrorAction.REPLACE)
+            .onUnmappableCharacter(CodingErrorAction.REPLACE);
+        private CharBuffer current;
+
+        private TextStream(Iterator<? extends CharSequence> parts, Closeable resource) {
+            this.parts = parts;
+            this.resource = resource;
+        }
+
+        @Override
+        public int read(ByteBuffer target) throws IOException {
+            int start = target.position();
+            try {
+                while (target.hasRemaining()) {
+                    if (current == null || !current.hasRemaining()) {
+                        if (!parts.hasNext()) {
+                            break;
+                        }
+                        current = CharBuffer.wrap(parts.next());
+                        encoder.reset();
+                    }
+                    // Each part is encoded as a whole input, so no state carries between parts
+                    CoderResult result = encoder.encode(current, target, true);
+                    if (result.isOverflow()) {
+                        break;
+                    }
+                }
+            } catch (UncheckedIOException e) {
+                // Lazily produced parts (e.g. directory entries) report I/O errors unchecked
+                throw e.getCause();
+            }
+            int written = target.position() - start;
+            return written == 0 && (current == null || !current.hasRemaining()) ? -1 : written;
+        }
+
+        @Override
+        public void close() throws IOException {
+            if (resource != null) {
+                resource.close();
+            }
+        }
+    }
+}
@@ -0,0 +1,287 @@
+package edu.eci.arsw.networking;
+
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * The byte ranges of a {@code Range: bytes=...} request header, resolved against the size
+ * of the file being served (RFC 9110 section 14).
+ *
+ * All three forms are understood: {@code first-last}, the open-ended {@code first-} and
+ * the suffix {@code -length}. A header that is not valid syntax, uses another unit or
+ * lists more than {@link #MAX_RANGES} ranges is ignored, so the whole file is sent with
+ * 200; a valid header none of whose ranges overlaps the file is unsatisfiable (416).
+ * Overlapping or adjacent ranges are coalesced, so a request cannot make the server send
+ * the same bytes several times over.
+ *
+ * {@link #toResponse} turns the ranges into a 206 response: a single range is sent as is
+ * with a Content-Range header, several ranges as a multipart/byteranges body. Either way
+ * the response only describes file regions; the bytes are streamed by
+ * {@link ResponseWriter} from the file itself.
+ *
+ * @author GitHub Copilot Implementation
+ * @version 1.0
+ */
+final class ByteRanges {
+
+    /** Most ranges honored in one request; longer lists are ignored and the full file is sent */
+    static final int MAX_RANGES = 16;
+
+    /** Multipart boundary, chosen once per process so its Content-Type value can be cached */
+    static final String BOUNDARY = "SimpleWebServer-" + Long.toHexString(ThreadLocalRandom.current().nextLong());
+
+    private static final String BYTES_UNIT = "bytes=";
+
+    private final long[] firsts;
+    private final long[] lasts;
+    private final int count;
+    private final long size;
+
+    private ByteRanges(long[] firsts, long[] lasts, int count, long size) {
+        this.firsts = firsts;
+        this.lasts = lasts;
+        this.count = count;
+        this.size = size;
+    }
+
+    /**
+     * Parses a Range header
+     * @param header Value of the Range header
+     * @param size Size of the selected file
+     * @return The satisfiable ranges, possibly none, or null if the header must be ignored
+     */
+    static ByteRanges parse(CharSequence header, long size) {
+        int length = header.length();
+        if (length < BYTES_UNIT.length() || !regionMatchesIgnoreCase(header, BYTES_UNIT)) {
+            return null;
+        }
+
+        long[] firsts = new long[4];
+        long[] lasts = new long[4];
+        int count = 0;
+        int specs = 0;
+        int i = BYTES_UNIT.length();
+        while (i < length) {
+            int end = i;
+            while (end < length && header.charAt(end) != ',') {
+                end++;
+            }
+            int start = skipSpaces(header, i, end);
+            int stop = trimSpaces(header, start, end);
+            i = end + 1;
+            if (start == stop) {
+                // Empty list elements are allowed by the list syntax
+                continue;
+            }
+            if (++specs > MAX_RANGES) {
+                return null;
+            }
+
+            int dash = indexOf(header, '-', start, stop);
+            if (dash < 0) {
+                return null;
+            }
+            long first;
+            long last;
+            if (dash == start) {
+                long suffix = parseDigits(header, dash + 1, stop);
+                if (suffix < 0) {
+                    return null;
+                }
+                first = Math.max(0, size - suffix);
+                last = size - 1;
+                if (suffix == 0) {
+                    continue;
+                }
+            } else {
+                first = parseDigits(header, start, dash);
+                last = dash + 1 == stop ? Long.MAX_VALUE : parseDigits(header, dash + 1, stop);
+                if (first < 0 || last < 0 || last < first) {
+                    return null;
+                }
+                last = Math.min(last, size - 1);
+            }
+            if (first >= size) {
+                // Valid but outside the file; only unsatisfiable if every range is
+                continue;
+            }
+            if (count == firsts.length) {
+                firsts = Arrays.copyOf(firsts, count * 2);
+                lasts = Arrays.copyOf(lasts, count * 2);
+            }
+            firsts[count] = first;
+            lasts[count] = last;
+            count++;
+        }
+        if (specs == 0) {
+            return null;
+        }
+        return coalesce(firsts, lasts, count, size);
+    }
+
+    /**
+     * Evaluates If-Range: the ranges apply only if the client's validator still identifies
+     * the current file, otherwise the whole file is sent
+     * @param ifRange Value of If-Range, or null if absent
+     * @param validators Validators of the current file
+     * @return true if the Range header should be honored
+     */
+    static boolean ifRangeAllows(AsciiView ifRange, FileValidators validators) {
+        if (ifRange == null) {
+            return true;
+        }
+        if (ifRange.length() > 0 && (ifRange.charAt(0) == '"' || ifRange.charAt(0) == 'W')) {
+            // Strong comparison: a weak tag never matches
+            return ifRange.contentEquals(validators.getEtag());
+        }
+        long date = FileValidators.parseHttpDate(ifRange.toString());
+        return date != Long.MIN_VALUE && date == validators.getLastModifiedSeconds();
+    }
+
+    /**
+     * Checks whether at least one range overlaps the file; if not, the answer is 416
+     */
+    boolean isSatisfiable() {
+        return count > 0;
+    }
+
+    int count() { return count; }
+
+    long first(int index) { return firsts[index]; }
+
+    long last(int index) { return lasts[index]; }
+
+    /**
+     * Builds the 206 response sending these ranges of the file
+     * @param file File the ranges refer to
+     * @param contentType Media type of the file
+     * @return A response whose body regions point into the file
+     */
+    HttpResponse toResponse(Path file, String contentType) {
+        if (count == 1) {
+            HttpResponse response = new HttpResponse(206, "Partial Content", contentType, file,
+                new HttpResponse.FileRegion[] { new HttpResponse.FileRegion(null, firsts[0], lasts[0] - firsts[0] + 1) },
+                null, lasts[0] - firsts[0] + 1);
+            response.addHeader("Content-Range", contentRange(0));
+            return response;
+        }
+
+        HttpResponse.FileRegion[] regions = new HttpResponse.FileRegion[count];
+        long contentLength = 0;
+        for (int i = 0; i < count; i++) {
+            // The CRLF before each boundary after the first belongs to the delimiter
+            String partHeader = (i == 0 ? "" : "\r\n") + "--" + BOUNDARY + "\r\n"
+                                + "Content-Type: " + contentType + "\r\n"
+                                + "Content-Range: " + contentRange(i) + "\r\n\r\n";
+            byte[] prefix = partHeader.getBytes(StandardCharsets.ISO_8859_1);
+            long length = lasts[i] - firsts[i] + 1;
+            regions[i] = new HttpResponse.FileRegion(prefix, firsts[i], length);
+            contentLength += prefix.length + length;
+        }
+        byte[] trailer = ("\r\n--" + BOUNDARY + "--\r\n").getBytes(StandardCharsets.ISO_8859_1);
+        contentLength += trailer.length;
+        return new HttpResponse(206, "Partial Content", "multipart/byteranges; boundary=" + BOUNDARY,
+                                file, regions, trailer, contentLength);
+    }
+
+    /**
+     * Value of the Content-Range header of a 416 response, which gives the file size
+     */
+    String unsatisfiedRange() {
+        return "bytes */" + size;
+    }
+
+    private String contentRange(int index) {
+        return "bytes " + firsts[index] + "-" + lasts[index] + "/" + size;
+    }
+
+    /**
+     * Merges overlapping and adjacent ranges; ranges already in ascending order without
+     * overlap are kept as requested
+     */
+    private static ByteRanges coalesce(long[] firsts, long[] lasts, int count, long size) {
+        boolean ordered = true;
+        for (int i = 1; i < count && ordered; i++) {
+            ordered = firsts[i] > lasts[i - 1] + 1;
+        }
+        if (ordered) {
+            return new ByteRanges(firsts, lasts, count, size);
+        }
+
+        Integer[] order = new Integer[count];
+        for (int i = 0; i < count; i++) {
+            order[i] = i;
+        }
+        Arrays.sort(order, (a, b) -> Long.compare(firsts[a], firsts[b]));
+        long[] mergedFirsts = new long[count];
+        long[] mergedLasts = new long[count];
+        int merged = 0;
+        for (int index : order) {
+            if (merged > 0 && firsts[index] <= mergedLasts[merged - 1] + 1) {
+                mergedLasts[merged - 1] = Math.max(mergedLasts[merged - 1], lasts[index]);
+            } else {
+                mergedFirsts[merged] = firsts[index];
+                mergedLasts[merged] = lasts[index];
+                merged++;
+            }
+        }
+        return new ByteRanges(mergedFirsts, mergedLasts, merged, size);
+    }
+
+    /**
+     * Parses a run of decimal digits
+     * @return The value, or -1 if the run is empty or has other characters
+     */
+    private static long parseDigits(CharSequence text, int start, int end) {
+        if (start == end) {
+            return -1;
+        }
+        long value = 0;
+        for (int i = start; i < end; i++) {
+            char c = text.charAt(i);
+            if (c < '0' || c > '9') {
+                return -1;
+            }
+            if (value > (Long.MAX_VALUE - (c - '0')) / 10) {
+                // Larger than any file: treat as "up to the end"
+                return Long.MAX_VALUE;
+            }
+            value = value * 10 + (c - '0');
+        }
+        return value;
+    }
+
+    private static boolean regionMatchesIgnoreCase(CharSequence text, String prefix) {
+        for (int i = 0; i < prefix.length(); i++) {
+            if (Character.toLowerCase(text.charAt(i)) != prefix.charAt(i)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static int indexOf(CharSequence text, char c, int start, int end) {
+        for (int i = start; i < end; i++) {
+            if (text.charAt(i) == c) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    private static int skipSpaces(CharSequence text, int start, int end) {
+        while (start < end && (text.charAt(start) == ' ' || text.charAt(start) == '\t')) {
+            start++;
+        }
+        return start;
+    }
+
+    private static int trimSpaces(CharSequence text, int start, int end) {
+        while (end > start && (text.charAt(end - 1) == ' ' || text.charAt(end - 1) == '\t')) {
+            end--;
+        }
+        return end;
+    }
+}
@@ -0,0 +1,231 @@
+package edu.eci.arsw.networking;
+
+import java.lang.reflect.Method;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.SynchronousQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Shared strategy that decides which thread runs each accepted connection.
+ * Used by {@link SquareServer}, {@link MathFunctionServer} and the blocking engine of
+ * {@link SimpleWebServer} so the threading model can be changed without touching the
+ * protocol code.
+ *
+ * Modes:
+ * - inline  - Runs the connection on the accept thread (sequential server)
+ * - thread  - Starts a new platform thread per connection (original behavior)
+ * - pool    - Bounded pool of platform threads with a bounded wait queue
+ * - virtual - One virtual thread per connection (Java 21+, falls back to pool)
+ *
+ * The mode is selected with system properties, e.g.:
+ * <pre>
+ * -Dnetworking.executor=virtual
+ * -Dnetworking.executor=pool -Dnetworking.executor.threads=64 -Dnetworking.executor.queue=256
+ * </pre>
+ *
+ * @author GitHub Copilot Implementation
+ * @version 1.0
+ */
+public final class ConnectionExecutor {
+
+    /**
+     * Threading models available for connection handling
+     */
+    public enum Mode {
+        INLINE("inline"),
+        THREAD("thread"),
+        POOL("pool"),
+        VIRTUAL("virtual");
+
+        private final String command;
+
+        Mode(String command) {
+            this.command = command;
+        }
+
+        public String getCommand() { return command; }
+
+        public static Mode fromCommand(String command) {
+            for (Mode mode : values()) {
+                if (mode.command.equalsIgnoreCase(command)) {
+                    return mode;
+                }
+            }
+            return null;
+        }
+    }
+
+    public static final int DEFAULT_POOL_THREADS = 200;
+    public static final int DEFAULT_QUEUE_CAPACITY = 1000;
+
+    private final Mode mode;
+    private final String name;
+    private final ExecutorService executorService;
+    private final AtomicInteger threadCounter = new AtomicInteger();
+    private final AtomicInteger activeConnections = new AtomicInteger();
+
+    private ConnectionExecutor(Mode mode, String name, int poolThreads, int queueCapacity) {
+        if (mode == Mode.VIRTUAL && !isVirtualThreadSupported()) {
+            System.out.println("Hilos virtuales no disponibles en Java " + Runtime.version().feature() +
+                               ", usando pool acotado para " + name);
+            mode = Mode.POOL;
+        }
+        this.mode = mode;
+        this.name = name;
+        this.executorService = createExecutorService(mode, poolThreads, queueCapacity);
+    }
+
+    /**
+     * Creates an executor for the given mode using the default pool sizes
+     * @param mode Threading model
+     * @param name Name used for worker threads and log messages
+     * @return A new connection executor
+     */
+    public static ConnectionExecutor create(Mode mode, String name) {
+        return create(mode, name, DEFAULT_POOL_THREADS, DEFAULT_QUEUE_CAPACITY);
+    }
+
+    /**
+     * Creates an executor for the given mode
+     * @param mode Threading model
+     * @param name Name used for worker threads and log messages
+     * @param poolThreads Maximum number of threads in pool mode
+     * @param queueCapacity Connections allowed to wait for a pool thread
+     * @return A new connection executor
+     */
+    public static ConnectionExecutor create(Mode mode, String name, int poolThreads, int queueCapacity) {
+        if (poolThreads < 1 || queueCapacity < 0) {
+            throw new IllegalArgumentException("Tamaño de pool inválido: " + poolThreads + "/" + queueCapacity);
+        }
+        return new ConnectionExecutor(mode, name, poolThreads, queueCapacity);
+    }
+
+    /**
+     * Creates an executor configured through the networking.executor.* system properties.
+     * Defaults to virtual threads when the runtime supports them.
+     * @param name Name used for worker threads and log messages
+     * @return A new connection executor
+     */
+    public static ConnectionExecutor fromSystemProperties(String name) {
+        String modeName = System.getProperty("networking.executor", Mode.VIRTUAL.getCommand());
+        Mode mode = Mode.fromCommand(modeName.trim());
+        if (mode == null) {
+            throw new IllegalArgumentException("Modo de ejecución no reconocido: " + modeName +
+                                               ". Modos disponibles: inline, thread, pool, virtual");
+        }
+        return create(mode,
+                      name,
+                      Integer.getInteger("networking.executor.threads", DEFAULT_POOL_THREADS),
+                      Integer.getInteger("networking.executor.queue", DEFAULT_QUEUE_CAPACITY));
+    }
+
+    /**
+     * Checks whether the running JVM can create virtual threads
+     * @return true on Java 21 or later
+     */
+    public static boolean isVirtualThreadSupported() {
+        try {
+            Thread.class.getMethod("ofVirtual");
+            return true;
+        } catch (NoSuchMethodException e) {
+            return false;
+        }
+    }
+
+    /**
+     * Runs a connection handler according to the configured mode
+     * @param connectionTask Handler for one accepted connection
+     * @throws RejectedExecutionException If the pool and its queue are full or the executor is shut down;
+     *                                    the caller is expected to close the connection
+     */
+    public void execute(Runnable connectionTask) {
+        Runnable trackedTask = () -> {
+            activeConnections.incrementAndGet();
+            try {
+                connectionTask.run();
+            } finally {
+                activeConnections.decrementAndGet();
+            }
+        };
+
+        if (executorService == null) {
+            trackedTask.run();
+        } else {
+            executorService.execute(trackedTask);
+        }
+    }
+
+    /**
+     * Stops accepting new connections; connections already running are allowed to finish
+     */
+    public void shutdown() {
+        if (executorService != null) {
+            executorService.shutdown();
+        }
+    }
+
+    /**
+     * Waits for running connections to finish after {@link #shutdown()}
+     * @param timeoutMillis Maximum time to wait
+     * @return true if every connection finished in time
+     * @throws InterruptedException If interrupted while waiting
+     */
+    public boolean awaitTermination(long timeoutMillis) throws InterruptedException {
+        return executorService == null || executorService.awaitTermination(timeoutMillis, TimeUnit.MILLISECONDS);
+    }
+
+    public Mode getMode() { return mode; }
+
+    /**
+     * Gets the number of connection handlers currently running
+     * @return Active connection count
+     */
+    public int getActiveConnections() {
+        return activeConnections.get();
+    }
+
+    private ExecutorService createExecutorService(Mode mode, int poolThreads, int queueCapacity) {
+        switch (mode) {
+            case INLINE:
+                return null;
+            case THREAD:
+                return new ThreadPoolExecutor(0, Integer.MAX_VALUE, 0L, TimeUnit.MILLISECONDS,
+                                              new SynchronousQueue<>(),
+                                              this::newPlatformThread);
+            case POOL:
+                return new ThreadPoolExecutor(poolThreads, poolThreads, 60L, TimeUnit.SECONDS,
+                                              queueCapacity == 0
+                                                  ? new SynchronousQueue<>()
+                                                  : new ArrayBlockingQueue<>(queueCapacity),
+                                              this::newPlatformThread);
+            case VIRTUAL:
+                return newVirtualThreadPerTaskExecutor();
+            default:
+                throw new IllegalArgumentException("Modo no soportado: " + mode);
+        }
+    }
+
+    private Thread newPlatformThread(Runnable task) {
+        Thread thread = new Thread(task, name + "-" + threadCounter.incrementAndGet());
+        thread.setDaemon(true);
+        return thread;
+    }
+
+    /**
+     * Looks up Executors.newVirtualThreadPerTaskExecutor reflectively so the project
+     * still compiles and runs on Java 17
+     */
+    private static ExecutorService newVirtualThreadPerTaskExecutor() {
+        try {
+            Method factory = Executors.class.getMethod("newVirtualThreadPerTaskExecutor");
+            return (ExecutorService) factory.invoke(null);
+        } catch (ReflectiveOperationException e) {
+            throw new IllegalStateException("No se pudo crear el ejecutor de hilos virtuales", e);
+        }
+    }
+}
@@ -0,0 +1,514 @@
+package edu.eci.arsw.networking;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.PrintStream;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Asynchronous access and event log shared by {@link SimpleWebServer}, {@link SquareServer}
+ * and {@link MathFunctionServer}, so request threads never block on console or file I/O.
+ *
+ * Request threads copy each entry into a preallocated fixed-size record of a bounded
+ * multi-producer ring buffer: claiming a record is a single compare-and-set on the tail
+ * and publishing it a store to the record's sequence number, with no lock and no
+ * allocation. One background thread drains the ring in batches, formats the records and
+ * writes each batch with a single call. When the ring is full the entry is dropped rather
+ * than making the request wait; dropped entries are counted and the count is reported in
+ * the log itself. Text longer than a record holds is truncated.
+ *
+ * Entries go to the console, as the servers always printed them, or to a file that is
+ * rotated by size (app.log, app.log.1, ... app.log.N) with a timestamp and level per line.
+ *
+ * The shared log is configured with system properties, e.g.:
+ * <pre>
+ * -Dnetworking.log.file=logs/networking.log
+ * -Dnetworking.log.capacity=16384 -Dnetworking.log.maxBytes=10485760 -Dnetworking.log.files=5
+ * </pre>
+ *
+ * @author GitHub Copilot Implementation
+ * @version 1.0
+ */
+public final class EventLog implements Closeable {
+
+    public static final int DEFAULT_CAPACITY = 16384;
+    public static final long DEFAULT_MAX_FILE_BYTES = 10L * 1024 * 1024;
+    public static final int DEFAULT_MAX_FILES = 5;
+
+    static final int SOURCE_CHARS = 48;
+    static final int TEXT_CHARS = 256;
+
+    private static final int KIND_INFO = 0;
+    private static final int KIND_ERROR = 1;
+    private static final int KIND_ACCESS = 2;
+    private static final int MAX_BATCH = 512;
+    private static final long IDLE_PARK_NANOS = TimeUnit.MILLISECONDS.toNanos(5);
+
+    /**
+     * One fixed-size entry; its fields are written by the producer that claimed it and read
+     * by the writer after the sequence number publishes it
+     */
+    private static final class Record {
+        long timeMillis;
+        int kind;
+        int status;
+        long bytes;
+        long durationNanos;
+        final char[] source = new char[SOURCE_CHARS];
+        int sourceLength;
+        final char[] text = new char[TEXT_CHARS];
+        int textLength;
+    }
+
+    private static volatile EventLog shared;
+
+    private final Record[] records;
+    private final AtomicLongArray sequences;
+    private final int mask;
+    private final AtomicLong tail = new AtomicLong();
+    private final LongAdder dropped = new LongAdder();
+    private final Path file;
+    private final long maxFileBytes;
+    private final int maxFiles;
+    private final Thread writer;
+
+    // Writer thread state
+    private long head;
+    private long reportedDrops;
+    private FileChannel channel;
+    private long fileBytes;
+    private long cachedSecond = Long.MIN_VALUE;
+    private final StringBuilder cachedTimestamp = new StringBuilder(20);
+    private final StringBuilder batch = new StringBuilder(MAX_BATCH * 80);
+    private final StringBuilder errorBatch = new StringBuilder();
+
+    private volatile long written;
+    private volatile boolean closed;
+
+    /**
+     * Creates a log whose writer thread has not been started yet
+     * @param file Log file, or null to write to the console
+     * @param capacity Records in the ring, rounded up to a power of two
+     * @param maxFileBytes Size at which the file is rotated
+     * @param maxFiles Rotated files kept besides the current one
+     */
+    EventLog(Path file, int capacity, long maxFileBytes, int maxFiles) {
+        if (capacity < 2 || maxFileBytes < 1 || maxFiles < 0) {
+            throw new IllegalArgumentException("Configuración de registro inválida: " + capacity + "/" +
+                                               maxFileBytes + "/" + maxFiles);
+        }
+        int size = Integer.highestOneBit(capacity - 1) << 1;
+        this.records = new Record[size];
+        this.sequences = new AtomicLongArray(size);
+        for (int i = 0; i < size; i++) {
+            records[i] = new Record();
+            sequences.set(i, i);
+        }
+        this.mask = size - 1;
+        this.file = file;
+        this.maxFileBytes = maxFileBytes;
+        this.maxFiles = maxFiles;
+        this.writer = new Thread(this::writeLoop, "event-log-writer");
+        this.writer.setDaemon(true);
+    }
+
+    /**
+     * Creates and starts a log
+     * @param file Log file, or null to write to the console
+     * @param capacity Records in the ring, rounded up to a power of two
+     * @param maxFileBytes Size at which the file is rotated
+     * @param maxFiles Rotated files kept besides the current one
+     * @return A running log
+     * @throws IOException If the log file cannot be opened
+     */
+    public static EventLog create(Path file, int capacity, long maxFileBytes, int maxFiles) throws IOException {
+        EventLog log = new EventLog(file, capacity, maxFileBytes, maxFiles);
+        log.start();
+        return log;
+    }
+
+    /**
+     * Gets the process-wide log configured through the networking.log.* system properties,
+     * created on first use and flushed when the JVM exits. Falls back to the console if the
+     * configured file cannot be opened.
+     * @return The shared log
+     */
+    public static EventLog shared() {
+        EventLog log = shared;
+        if (log == null) {
+            synchronized (EventLog.class) {
+                log = shared;
+                if (log == null) {
+                    log = fromSystemProperties();
+                    Runtime.getRuntime().addShutdownHook(new Thread(log::close, "event-log-shutdown"));
+                    shared = log;
+                }
+            }
+        }
+        return log;
+    }
+
+    private static EventLog fromSystemProperties() {
+        String fileName = System.getProperty("networking.log.file");
+        int capacity = Integer.getInteger("networking.log.capacity", DEFAULT_CAPACITY);
+        long maxFileBytes = Long.getLong("networking.log.maxBytes", DEFAULT_MAX_FILE_BYTES);
+        int maxFiles = Integer.getInteger("networking.log.files", DEFAULT_MAX_FILES);
+        Path file = fileName == null || fileName.isBlank() ? null : Paths.get(fileName.trim());
+        try {
+            return create(file, capacity, maxFileBytes, maxFiles);
+        } catch (IOException e) {
+            System.err.println("No se pudo abrir el archivo de registro " + file + ", usando consola: " + e.getMessage());
+            try {
+                return create(null, capacity, maxFileBytes, maxFiles);
+            } catch (IOException unreachable) {
+                throw new IllegalStateException(unreachable);
+            }
+        }
+    }
+
+    /**
+     * Opens the log file and starts the writer thread
+     * @throws IOException If the log file cannot be opened
+     */
+    void start() throws IOException {
+        if (file != null) {
+            openFile();
+        }
+        writer.start();
+    }
+
+    /**
+     * Logs an informational event
+     * @param message Event text
+     * @return false if the entry was dropped because the ring was full
+     */
+    public boolean info(CharSequence message) {
+        return append(KIND_INFO, null, message, null, null, 0, 0, 0);
+    }
+
+    /**
+     * Logs an error event
+     * @param message Event text
+     * @return false if the entry was dropped because the ring was full
+     */
+    public boolean error(CharSequence message) {
+        return append(KIND_ERROR, null, message, null, null, 0, 0, 0);
+    }
+
+    /**
+     * Logs one answered request; the parts of the request line are copied into the record,
+     * so views over a reusable request buffer can be passed without allocating
+     * @param client Client address
+     * @param method Request method
+     * @param target Request target
+     * @param version Protocol version, empty for HTTP/0.9 style requests
+     * @param status Response status code
+     * @param bytes Response body bytes
+     * @param durationNanos Time from the complete request to the last byte written
+     * @return false if the entry was dropped because the ring was full
+     */
+    public boolean access(CharSequence client, CharSequence method, CharSequence target, CharSequence version,
+                          int status, long bytes, long durationNanos) {
+        return append(KIND_ACCESS, client, method, target, version, status, bytes, durationNanos);
+    }
+
+    private boolean append(int kind, CharSequence source, CharSequence text1, CharSequence text2,
+                           CharSequence text3, int status, long bytes, long durationNanos) {
+        if (closed) {
+            dropped.increment();
+            return false;
+        }
+        long position;
+        while (true) {
+            position = tail.get();
+            long available = sequences.get((int) position & mask) - position;
+            if (available == 0) {
+                if (tail.compareAndSet(position, position + 1)) {
+                    break;
+                }
+            } else if (available < 0) {
+                // The writer has not freed this record yet: drop instead of waiting
+                dropped.increment();
+                return false;
+            }
+        }
+
+        Record record = records[(int) position & mask];
+        record.timeMillis = System.currentTimeMillis();
+        record.kind = kind;
+        record.status = status;
+        record.bytes = bytes;
+        record.durationNanos = durationNanos;
+        record.sourceLength = source == null ? 0 : copy(source, record.source, 0);
+        int length = copy(text1, record.text, 0);
+        if (text2 != null) {
+            length = copy(" ", record.text, length);
+            length = copy(text2, record.text, length);
+        }
+        if (text3 != null && text3.length() > 0) {
+            length = copy(" ", record.text, length);
+            length = copy(text3, record.text, length);
+        }
+        record.textLength = length;
+        sequences.set((int) position & mask, position + 1);
+        return true;
+    }
+
+    private static int copy(CharSequence value, char[] target, int offset) {
+        if (value == null) {
+            return offset;
+        }
+        int length = Math.min(value.length(), target.length - offset);
+        for (int i = 0; i < length; i++) {
+            target[offset + i] = value.charAt(i);
+        }
+        return offset + length;
+    }
+
+    /**
+     * Waits until every entry logged before the call has been written
+     * @param timeoutMillis Maximum time to wait
+     * @return true if everything was written in time
+     */
+    public boolean flush(long timeoutMillis) {
+        long target = tail.get();
+        long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(timeoutMillis);
+        while (written < target) {
+            if (!writer.isAlive() || System.nanoTime() - deadline >= 0) {
+                return false;
+            }
+            LockSupport.unpark(writer);
+            LockSupport.parkNanos(TimeUnit.MILLISECONDS.toNanos(1));
+        }
+        return true;
+    }
+
+    /**
+     * Writes the remaining entries and stops the writer; later entries are dropped
+     */
+    @Override
+    public void close() {
+        if (closed) {
+            return;
+        }
+        closed = true;
+        LockSupport.unpark(writer);
+        try {
+            writer.join(TimeUnit.SECONDS.toMillis(5));
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * Gets the number of entries dropped because the ring was full
+     * @return Dropped entry count
+     */
+    public long getDroppedCount() {
+        return dropped.sum();
+    }
+
+    /**
+     * Gets the number of entries written so far
+     * @return Written entry count
+     */
+    public long getWrittenCount() {
+        return written;
+    }
+
+    /** Number of records in the ring */
+    int getCapacity() {
+        return records.length;
+    }
+
+    private void writeLoop() {
+        try {
+            while (true) {
+                boolean stopping = closed;
+                int drained = drainBatch();
+                if (drained == 0) {
+                    if (stopping) {
+                        break;
+                    }
+                    LockSupport.parkNanos(IDLE_PARK_NANOS);
+                }
+            }
+        } catch (IOException e) {
+            System.err.println("Error escribiendo registro de eventos: " + e.getMessage());
+        } finally {
+            closeFile();
+        }
+    }
+
+    /**
+     * Formats and writes up to one batch of published records
+     * @return The number of records written
+     */
+    private int drainBatch() throws IOException {
+        batch.setLength(0);
+        errorBatch.setLength(0);
+        int count = 0;
+        while (count < MAX_BATCH) {
+            int index = (int) head & mask;
+            if (sequences.get(index) != head + 1) {
+                break;
+            }
+            Record record = records[index];
+            format(record, record.kind == KIND_ERROR && file == null ? errorBatch : batch);
+            // Hand the record back to the producers, one lap ahead
+            sequences.set(index, head + records.length);
+            head++;
+            count++;
+        }
+        long drops = dropped.sum();
+        if (drops != reportedDrops) {
+            formatDrops(drops - reportedDrops);
+            reportedDrops = drops;
+        }
+        if (batch.length() > 0 || errorBatch.length() > 0) {
+            writeBatch();
+        }
+        written = head;
+        return count;
+    }
+
+    private void format(Record record, StringBuilder out) {
+        if (file != null) {
+            appendTimestamp(record.timeMillis, out);
+            out.append(record.kind == KIND_ACCESS ? " ACCESS " : record.kind == KIND_ERROR ? " ERROR " : " INFO ");
+        }
+        if (record.kind == KIND_ACCESS) {
+            out.append(record.source, 0, record.sourceLength).append(" \"")
+               .append(record.text, 0, record.textLength).append("\" ")
+               .append(record.status).append(' ').append(record.bytes).append(' ');
+            long micros = record.durationNanos / 1000;
+            out.append(micros / 1000).append('.');
+            long fraction = micros % 1000;
+            if (fraction < 100) {
+                out.append(fraction < 10 ? "00" : "0");
+            }
+            out.append(fraction).append(" ms");
+        } else {
+            out.append(record.text, 0, record.textLength);
+        }
+        out.append('\n');
+    }
+
+    private void formatDrops(long drops) {
+        StringBuilder out = file == null ? errorBatch : batch;
+        if (file != null) {
+            appendTimestamp(System.currentTimeMillis(), out);
+            out.append(" ERROR ");
+        }
+        out.append("Registros descartados por desbordamiento: ").append(drops).append('\n');
+    }
+
+    /**
+     * Appends an ISO-8601 UTC timestamp, reformatting the date and time only once a second
+     */
+    private void appendTimestamp(long timeMillis, StringBuilder out) {
+        long second = Math.floorDiv(timeMillis, 1000);
+        if (second != cachedSecond) {
+            LocalDateTime time = LocalDateTime.ofEpochSecond(second, 0, ZoneOffset.UTC);
+            cachedTimestamp.setLength(0);
+            cachedTimestamp.append(time.toLocalDate()).append('T');
+            appendTwoDigits(time.getHour(), cachedTimestamp).append(':');
+            appendTwoDigits(time.getMinute(), cachedTimestamp).append(':');
+            appendTwoDigits(time.getSecond(), cachedTimestamp).append('.');
+            cachedSecond = second;
+        }
+        int millis = Math.floorMod(timeMillis, 1000);
+        out.append(cachedTimestamp);
+        if (millis < 100) {
+            out.append(millis < 10 ? "00" : "0");
+        }
+        out.append(millis).append('Z');
+    }
+
+    private static StringBuilder appendTwoDigits(int value, StringBuilder out) {
+        return out.append(value < 10 ? "0" : "").append(value);
+    }
+
+    private void writeBatch() throws IOException {
+        if (file == null) {
+            writeConsole(System.out, batch);
+            writeConsole(System.err, errorBatch);
+            return;
+        }
+        ByteBuffer bytes = StandardCharsets.UTF_8.encode(CharBuffer.wrap(batch));
+        if (fileBytes > 0 && fileBytes + bytes.remaining() > maxFileBytes) {
+            rotate();
+        }
+        while (bytes.hasRemaining()) {
+            fileBytes += channel.write(bytes);
+        }
+    }
+
+    private static void writeConsole(PrintStream stream, StringBuilder text) {
+        if (text.length() > 0) {
+            stream.print(text);
+            stream.flush();
+        }
+    }
+
+    /**
+     * Shifts app.log.i to app.log.(i+1), dropping the oldest, and starts a new app.log
+     */
+    private void rotate() throws IOException {
+        closeFile();
+        if (maxFiles == 0) {
+            Files.deleteIfExists(file);
+        } else {
+            Files.deleteIfExists(rotated(maxFiles));
+            for (int i = maxFiles - 1; i >= 1; i--) {
+                Path source = rotated(i);
+                if (Files.exists(source)) {
+                    Files.move(source, rotated(i + 1), StandardCopyOption.REPLACE_EXISTING);
+                }
+            }
+            Files.move(file, rotated(1), StandardCopyOption.REPLACE_EXISTING);
+        }
+        openFile();
+    }
+
+    private Path rotated(int index) {
+        return file.resolveSibling(file.getFileName() + "." + index);
+    }
+
+    private void openFile() throws IOException {
+        Path parent = file.toAbsolutePath().getParent();
+        if (parent != null) {
+            Files.createDirectories(parent);
+        }
+        channel = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                                   StandardOpenOption.APPEND);
+        fileBytes = channel.size();
+    }
+
+    private void closeFile() {
+        if (channel == null) {
+            return;
+        }
+        try {
+            channel.close();
+        } catch (IOException e) {
+            System.err.println("Error cerrando archivo de registro: " + e.getMessage());
+        }
+        channel = null;
+    }
+}
@@ -0,0 +1,170 @@
+package edu.eci.arsw.networking;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Instant;
+import java.time.ZoneOffset;
+import java.time.ZonedDateTime;
+import java.time.format.DateTimeFormatter;
+import java.time.format.DateTimeParseException;
+
+/**
+ * HTTP validators of one version of a static file: a strong ETag and the Last-Modified
+ * date, both encoded once so every response for that version reuses the same bytes.
+ *
+ * The ETag is derived from the file size and modification time (in the style of nginx),
+ * which changes whenever the file is rewritten without having to hash its content; the
+ * {@link StaticFileCache} keeps the validators next to the cached bytes. The gzip-encoded
+ * representation of a file is a different entity and gets its own tag, see {@link #gzipVariant()}.
+ *
+ * @author GitHub Copilot Implementation
+ * @version 1.0
+ */
+final class FileValidators {
+
+    private static final DateTimeFormatter HTTP_DATE_FORMAT =
+        DateTimeFormatter.RFC_1123_DATE_TIME.withZone(ZoneOffset.UTC);
+
+    private final String etag;
+    private final byte[] etagBytes;
+    private final long lastModifiedSeconds;
+    private final byte[] lastModifiedBytes;
+    private volatile FileValidators gzipVariant;
+
+    private FileValidators(long size, long lastModifiedMillis) {
+        this.etag = "\"" + Long.toHexString(size) + "-" + Long.toHexString(lastModifiedMillis) + "\"";
+        this.etagBytes = etag.getBytes(StandardCharsets.ISO_8859_1);
+        // HTTP dates have one-second resolution
+        this.lastModifiedSeconds = Math.floorDiv(lastModifiedMillis, 1000);
+        this.lastModifiedBytes = HTTP_DATE_FORMAT.format(Instant.ofEpochSecond(lastModifiedSeconds))
+                                                 .getBytes(StandardCharsets.ISO_8859_1);
+    }
+
+    private FileValidators(FileValidators identity, String suffix) {
+        this.etag = identity.etag.substring(0, identity.etag.length() - 1) + suffix + "\"";
+        this.etagBytes = etag.getBytes(StandardCharsets.ISO_8859_1);
+        this.lastModifiedSeconds = identity.lastModifiedSeconds;
+        this.lastModifiedBytes = identity.lastModifiedBytes;
+        this.gzipVariant = this;
+    }
+
+    /**
+     * Computes the validators of a file version
+     * @param size File size in bytes
+     * @param lastModifiedMillis File modification time
+     * @return The validators
+     */
+    static FileValidators of(long size, long lastModifiedMillis) {
+        return new FileValidators(size, lastModifiedMillis);
+    }
+
+    /** The quoted entity tag, e.g. "1f4-18b2c3d4e5f" */
+    String getEtag() { return etag; }
+
+    /** The entity tag as header bytes */
+    byte[] getEtagBytes() { return etagBytes; }
+
+    /** The Last-Modified header value as IMF-fixdate bytes */
+    byte[] getLastModifiedBytes() { return lastModifiedBytes; }
+
+    long getLastModifiedSeconds() { return lastModifiedSeconds; }
+
+    /**
+     * Gets the validators of the gzip-encoded representation of the same file version:
+     * same Last-Modified, ETag with a "-gz" suffix, created once and then reused
+     * @return The validators of the compressed variant
+     */
+    FileValidators gzipVariant() {
+        FileValidators variant = gzipVariant;
+        if (variant == null) {
+            // Racing threads build equal objects; either may win
+            variant = new FileValidators(this, "-gz");
+            gzipVariant = variant;
+        }
+        return variant;
+    }
+
+    /**
+     * Evaluates the conditional headers of a GET request (RFC 9110 section 13.2.2):
+     * If-None-Match decides when present, otherwise If-Modified-Since is used
+     * @param request The parsed request head
+     * @return true if the client's copy is current and a 304 can be sent
+     */
+    boolean isNotModified(HttpRequestParser request) {
+        AsciiView ifNoneMatch = request.header("If-None-Match");
+        if (ifNoneMatch != null) {
+            return matchesAny(ifNoneMatch);
+        }
+        AsciiView ifModifiedSince = request.header("If-Modified-Since");
+        if (ifModifiedSince != null) {
+            long since = parseHttpDate(ifModifiedSince.toString());
+            return since != Long.MIN_VALUE && lastModifiedSeconds <= since;
+        }
+        return false;
+    }
+
+    /**
+     * Checks an If-None-Match list against the ETag using the weak comparison the header
+     * calls for: "*" matches, and a W/ prefix on the client's tag is ignored
+     * @param header Value of If-None-Match
+     * @return true if one of the listed tags matches
+     */
+    boolean matchesAny(CharSequence header) {
+        int i = 0;
+        int length = header.length();
+        while (i < length) {
+            while (i < length && (header.charAt(i) == ' ' || header.charAt(i) == '\t' || header.charAt(i) == ',')) {
+                i++;
+            }
+            if (i == length) {
+                break;
+            }
+            if (header.charAt(i) == '*') {
+                return true;
+            }
+            if (header.charAt(i) == 'W' && i + 1 < length && header.charAt(i + 1) == '/') {
+                i += 2;
+            }
+            int start = i;
+            if (i < length && header.charAt(i) == '"') {
+                // Quoted tag: commas inside the quotes belong to the tag
+                i++;
+                while (i < length && header.charAt(i) != '"') {
+                    i++;
+                }
+                i = Math.min(i + 1, length);
+            } else {
+                while (i < length && header.charAt(i) != ',') {
+                    i++;
+                }
+            }
+            if (regionEquals(header, start, i)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private boolean regionEquals(CharSequence header, int start, int end) {
+        if (end - start != etag.length()) {
+            return false;
+        }
+        for (int i = 0; i < etag.length(); i++) {
+            if (header.charAt(start + i) != etag.charAt(i)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Parses an IMF-fixdate as sent in If-Modified-Since
+     * @return Epoch seconds, or Long.MIN_VALUE if the date is not valid (the header is then ignored)
+     */
+    static long parseHttpDate(String value) {
+        try {
+            return ZonedDateTime.parse(value.trim(), DateTimeFormatter.RFC_1123_DATE_TIME).toEpochSecond();
+        } catch (DateTimeParseException e) {
+            return Long.MIN_VALUE;
+        }
+    }
+}
@@ -0,0 +1,140 @@
+package edu.eci.arsw.networking;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.Set;
+import java.util.zip.Deflater;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * gzip content coding for {@link SimpleWebServer}: Accept-Encoding negotiation, the list
+ * of media types worth compressing, one-shot compression and precompressed sidecar files.
+ *
+ * Compression is never done per response. A compressible file is encoded once when it is
+ * read into the {@link StaticFileCache}, and the cache entry keeps both variants; a
+ * {@code file.gz} sidecar next to the file in the web root, when at least as recent as the
+ * file itself, is used instead of compressing at all, and is the only compressed variant
+ * offered for files too large for the cache.
+ *
+ * @author GitHub Copilot Implementation
+ * @version 1.0
+ */
+final class GzipEncoding {
+
+    /** Suffix of precompressed sidecar files, e.g. style.css.gz */
+    static final String SIDECAR_SUFFIX = ".gz";
+
+    /** Media types of MIME_TYPES that compress well; images and archives are already compressed */
+    private static final Set<String> COMPRESSIBLE_TYPES = Set.of(
+        "text/html", "text/css", "text/plain", "application/javascript", "application/json", "image/svg+xml");
+
+    private GzipEncoding() {
+    }
+
+    /**
+     * Checks whether a media type is worth compressing
+     * @param mimeType Content type of the file, without parameters
+     */
+    static boolean isCompressible(String mimeType) {
+        return COMPRESSIBLE_TYPES.contains(mimeType);
+    }
+
+    /**
+     * Evaluates Accept-Encoding: gzip is acceptable when listed (or x-gzip) with a quality
+     * value other than zero. Every entry is read, so an explicit gzip entry wins over "*"
+     * wherever it appears ("*, gzip;q=0" refuses gzip); "*" only decides when gzip is not
+     * listed.
+     * @param acceptEncoding Value of the Accept-Encoding header, or null if absent
+     * @return true if a gzip-encoded response may be sent
+     */
+    static boolean accepts(CharSequence acceptEncoding) {
+        if (acceptEncoding == null) {
+            return false;
+        }
+        boolean gzipListed = false;
+        boolean gzipAccepted = false;
+        boolean wildcardAccepted = false;
+        int length = acceptEncoding.length();
+        int i = 0;
+        while (i < length) {
+            int end = i;
+            while (end < length && acceptEncoding.charAt(end) != ',') {
+                end++;
+            }
+            int nameEnd = i;
+            while (nameEnd < end && acceptEncoding.charAt(nameEnd) != ';') {
+                nameEnd++;
+            }
+            String coding = acceptEncoding.subSequence(i, nameEnd).toString().trim();
+            if (coding.equalsIgnoreCase("gzip") || coding.equalsIgnoreCase("x-gzip")) {
+                boolean accepted = !isZeroQuality(acceptEncoding.subSequence(nameEnd, end).toString());
+                // gzip and x-gzip name the same coding; any non-zero quality allows it
+                gzipAccepted = gzipListed ? gzipAccepted || accepted : accepted;
+                gzipListed = true;
+            } else if (coding.equals("*")) {
+                wildcardAccepted = !isZeroQuality(acceptEncoding.subSequence(nameEnd, end).toString());
+            }
+            i = end + 1;
+        }
+        return gzipListed ? gzipAccepted : wildcardAccepted;
+    }
+
+    /**
+     * Compresses a whole file content in one pass at the best compression level, which is
+     * affordable because the result is reused for every response
+     * @param content Identity content
+     * @return The gzip member, or null if it would not be smaller than the content
+     */
+    static byte[] compress(byte[] content) {
+        ByteArrayOutputStream out = new ByteArrayOutputStream(content.length / 3 + 64);
+        try (GZIPOutputStream gzip = new GZIPOutputStream(out, 8192) {
+            {
+                def.setLevel(Deflater.BEST_COMPRESSION);
+            }
+        }) {
+            gzip.write(content);
+        } catch (IOException e) {
+            // Writing to memory does not fail
+            throw new IllegalStateException(e);
+        }
+        return out.size() < content.length ? out.toByteArray() : null;
+    }
+
+    /**
+     * Finds the precompressed sidecar of a file
+     * @param file File in the web root
+     * @param lastModifiedMillis Modification time of the file
+     * @return The readable file.gz, or null if there is none or it is older than the file
+     */
+    static Path freshSidecar(Path file, long lastModifiedMillis) {
+        Path sidecar = file.resolveSibling(file.getFileName() + SIDECAR_SUFFIX);
+        try {
+            BasicFileAttributes attributes = Files.readAttributes(sidecar, BasicFileAttributes.class);
+            if (attributes.isRegularFile() && attributes.lastModifiedTime().toMillis() >= lastModifiedMillis
+                && Files.isReadable(sidecar)) {
+                return sidecar;
+            }
+        } catch (IOException e) {
+            // No sidecar
+        }
+        return null;
+    }
+
+    private static boolean isZeroQuality(String parameters) {
+        int q = parameters.indexOf("q=");
+        if (q < 0) {
+            q = parameters.indexOf("Q=");
+        }
+        if (q < 0) {
+            return false;
+        }
+        try {
+            return Double.parseDouble(parameters.substring(q + 2).trim()) == 0;
+        } catch (NumberFormatException e) {
+            return false;
+        }
+    }
+}
@@ -0,0 +1,402 @@
+package edu.eci.arsw.networking;
+
+import java.io.Closeable;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Hashed timing wheel for the connection deadlines of every TCP server in the project:
+ * idle time between requests, time to receive a complete request head and time without
+ * progress while writing a response.
+ *
+ * Deadlines are hashed into a ring of buckets by their expiry tick; one worker thread
+ * advances one bucket per tick and expires what is due. Scheduling and cancelling are O(1)
+ * (a lock-free queue hand-off to the worker, which links or unlinks the entry in its bucket),
+ * and a tick only visits its own bucket, so thousands of connections cost no more per
+ * tick than a few. Precision is one tick (100 ms by default), which is plenty for timeouts
+ * measured in seconds.
+ *
+ * Connections do not schedule a timeout per read or write. Each one owns a
+ * {@link Watchdog} whose deadline is a volatile field: pushing it later is a single write,
+ * and when the wheel entry fires before the moved deadline, the watchdog schedules itself
+ * again for the remaining time.
+ *
+ * Expiry tasks run on the wheel thread and must be short, e.g. closing a socket or
+ * handing the connection back to its reactor. The shared instance is sized with:
+ * <pre>
+ * -Dnetworking.timer.tick=100 -Dnetworking.timer.wheel=512
+ * </pre>
+ *
+ * @author GitHub Copilot Implementation
+ * @version 1.0
+ */
+public final class HashedWheelTimer implements Closeable {
+
+    public static final long DEFAULT_TICK_MILLIS = 100;
+    public static final int DEFAULT_WHEEL_SIZE = 512;
+
+    /** Entries moved from the hand-off queue per tick, so a burst cannot stall expiry */
+    private static final int MAX_TRANSFERS_PER_TICK = 100_000;
+
+    private static volatile HashedWheelTimer shared;
+
+    private final long tickNanos;
+    private final Bucket[] wheel;
+    private final int mask;
+    private final Queue<Timeout> pendingTimeouts = new ConcurrentLinkedQueue<>();
+    private final Queue<Timeout> cancelledTimeouts = new ConcurrentLinkedQueue<>();
+    private final AtomicInteger scheduledCount = new AtomicInteger();
+    private final long startNanos;
+    private final Thread worker;
+    private volatile boolean running = true;
+    private long tick;
+
+    /**
+     * Creates a timer and starts its worker thread
+     * @param tickMillis Duration of one tick, the precision of every deadline
+     * @param wheelSize Number of buckets, rounded up to a power of two
+     */
+    public HashedWheelTimer(long tickMillis, int wheelSize) {
+        if (tickMillis < 1 || wheelSize < 1 || wheelSize > (1 << 20)) {
+            throw new IllegalArgumentException("Parámetros de temporizador inválidos: " + tickMillis + "/" + wheelSize);
+        }
+        this.tickNanos = TimeUnit.MILLISECONDS.toNanos(tickMillis);
+        int size = Integer.highestOneBit(wheelSize);
+        if (size < wheelSize) {
+            size <<= 1;
+        }
+        this.wheel = new Bucket[size];
+        for (int i = 0; i < size; i++) {
+            wheel[i] = new Bucket();
+        }
+        this.mask = size - 1;
+        this.startNanos = System.nanoTime();
+        this.worker = new Thread(this::run, "wheel-timer");
+        this.worker.setDaemon(true);
+        this.worker.start();
+    }
+
+    /**
+     * Gets the timer shared by every server in this JVM, creating it on first use
+     * @return The shared timer
+     */
+    public static HashedWheelTimer shared() {
+        HashedWheelTimer timer = shared;
+        if (timer == null) {
+            synchronized (HashedWheelTimer.class) {
+                timer = shared;
+                if (timer == null) {
+                    timer = new HashedWheelTimer(Long.getLong("networking.timer.tick", DEFAULT_TICK_MILLIS),
+                                                 Integer.getInteger("networking.timer.wheel", DEFAULT_WHEEL_SIZE));
+                    shared = timer;
+                }
+            }
+        }
+        return timer;
+    }
+
+    /**
+     * Runs a task once the delay has elapsed, within one tick
+     * @param task Short task run on the timer thread
+     * @param delay Delay before the task runs
+     * @param unit Unit of the delay
+     * @return Handle that can cancel the task
+     */
+    public Timeout schedule(Runnable task, long delay, TimeUnit unit) {
+        if (!running) {
+            throw new IllegalStateException("El temporizador está detenido");
+        }
+        long deadline = System.nanoTime() + unit.toNanos(Math.max(0, delay)) - startNanos;
+        Timeout timeout = new Timeout(task, deadline);
+        scheduledCount.incrementAndGet();
+        pendingTimeouts.add(timeout);
+        return timeout;
+    }
+
+    /**
+     * Creates a disarmed watchdog for one connection
+     * @param onExpire Task run once, on the timer thread, when an armed deadline passes
+     * @return A new watchdog
+     */
+    public Watchdog watchdog(Runnable onExpire) {
+        return new Watchdog(onExpire);
+    }
+
+    /**
+     * Gets the number of timeouts scheduled and neither expired nor cancelled yet
+     */
+    public int getScheduledCount() {
+        return scheduledCount.get();
+    }
+
+    /**
+     * Stops the worker thread; timeouts still scheduled never run
+     */
+    @Override
+    public void close() {
+        running = false;
+        LockSupport.unpark(worker);
+    }
+
+    private void run() {
+        while (running) {
+            long tickDeadline = tickNanos * (tick + 1);
+            long sleep = tickDeadline - (System.nanoTime() - startNanos);
+            if (sleep > 0) {
+                LockSupport.parkNanos(this, sleep);
+                continue;
+            }
+            removeCancelled();
+            transferPending();
+            Bucket bucket = wheel[(int) (tick & mask)];
+            bucket.expire(tickDeadline);
+            tick++;
+        }
+    }
+
+    private void transferPending() {
+        for (int i = 0; i < MAX_TRANSFERS_PER_TICK; i++) {
+            Timeout timeout = pendingTimeouts.poll();
+            if (timeout == null) {
+                return;
+            }
+            if (timeout.state.get() != Timeout.SCHEDULED) {
+                continue;
+            }
+            long expiryTick = timeout.deadline / tickNanos;
+            timeout.remainingRounds = (expiryTick - tick) / wheel.length;
+            // Deadlines already past go in the current bucket and expire this tick
+            long bucketTick = Math.max(expiryTick, tick);
+            wheel[(int) (bucketTick & mask)].add(timeout);
+        }
+    }
+
+    private void removeCancelled() {
+        Timeout timeout;
+        while ((timeout = cancelledTimeouts.poll()) != null) {
+            if (timeout.bucket != null) {
+                timeout.bucket.remove(timeout);
+            }
+        }
+    }
+
+    /**
+     * A scheduled task; linked into one bucket by the worker thread only
+     */
+    public final class Timeout {
+
+        private static final int SCHEDULED = 0;
+        private static final int CANCELLED = 1;
+        private static final int EXPIRED = 2;
+
+        private final Runnable task;
+        private final long deadline;
+        private final AtomicInteger state = new AtomicInteger(SCHEDULED);
+        private long remainingRounds;
+        private Bucket bucket;
+        private Timeout previous;
+        private Timeout next;
+
+        private Timeout(Runnable task, long deadline) {
+            this.task = task;
+            this.deadline = deadline;
+        }
+
+        /**
+         * Prevents the task from running, if it has not run yet
+         * @return true if this call cancelled it
+         */
+        public boolean cancel() {
+            if (!state.compareAndSet(SCHEDULED, CANCELLED)) {
+                return false;
+            }
+            scheduledCount.decrementAndGet();
+            cancelledTimeouts.add(this);
+            return true;
+        }
+
+        public boolean isCancelled() { return state.get() == CANCELLED; }
+
+        public boolean isExpired() { return state.get() == EXPIRED; }
+
+        private void expire() {
+            if (!state.compareAndSet(SCHEDULED, EXPIRED)) {
+                return;
+            }
+            scheduledCount.decrementAndGet();
+            try {
+                task.run();
+            } catch (RuntimeException e) {
+                EventLog.shared().error("Error en tarea del temporizador: " + e.getMessage());
+            }
+        }
+    }
+
+    /**
+     * Doubly linked list of the timeouts hashed to one slot of the wheel
+     */
+    private final class Bucket {
+
+        private Timeout head;
+        private Timeout tail;
+
+        void add(Timeout timeout) {
+            timeout.bucket = this;
+            if (head == null) {
+                head = tail = timeout;
+            } else {
+                tail.next = timeout;
+                timeout.previous = tail;
+                tail = timeout;
+            }
+        }
+
+        void remove(Timeout timeout) {
+            if (timeout.previous != null) {
+                timeout.previous.next = timeout.next;
+            }
+            if (timeout.next != null) {
+                timeout.next.previous = timeout.previous;
+            }
+            if (timeout == head) {
+                head = timeout.next;
+            }
+            if (timeout == tail) {
+                tail = timeout.previous;
+            }
+            timeout.previous = null;
+            timeout.next = null;
+            timeout.bucket = null;
+        }
+
+        /**
+         * Runs the timeouts of this slot that are due in the current round
+         * @param tickDeadline End of the current tick, relative to the timer start
+         */
+        void expire(long tickDeadline) {
+            Timeout timeout = head;
+            while (timeout != null) {
+                Timeout following = timeout.next;
+                if (timeout.isCancelled()) {
+                    remove(timeout);
+                } else if (timeout.remainingRounds <= 0) {
+                    remove(timeout);
+                    if (timeout.deadline < tickDeadline) {
+                        timeout.expire();
+                    } else {
+                        // Not due yet: hashed again on the next tick
+                        pendingTimeouts.add(timeout);
+                    }
+                } else {
+                    timeout.remainingRounds--;
+                }
+                timeout = following;
+            }
+        }
+    }
+
+    /**
+     * Deadline holder for one connection. The owner arms it with the timeout of the phase
+     * the connection is in (waiting for a request, reading a head, writing a response) and
+     * re-arms it on progress. Moving the deadline later, the common case, only writes it;
+     * moving it earlier than the pending wheel entry replaces that entry. The expiry task
+     * runs at most once, and not at all after {@link #disarm()} or {@link #close()}.
+     */
+    public final class Watchdog {
+
+        private final Runnable onExpire;
+        private volatile long deadlineNanos;
+        private volatile long checkAtNanos;
+        private volatile Timeout timeout;
+        private volatile boolean armed;
+        private volatile boolean expired;
+        private volatile boolean closed;
+
+        private Watchdog(Runnable onExpire) {
+            this.onExpire = onExpire;
+        }
+
+        /**
+         * Sets the deadline to the given time from now
+         * @param timeoutMillis Time allowed before the expiry task runs
+         */
+        public void arm(long timeoutMillis) {
+            long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(timeoutMillis);
+            deadlineNanos = deadline;
+            armed = true;
+            if (timeout == null || deadline - checkAtNanos < 0) {
+                scheduleCheck(deadline);
+            }
+        }
+
+        /**
+         * Suspends the deadline, e.g. while the server itself is busy with a request
+         */
+        public void disarm() {
+            armed = false;
+        }
+
+        /**
+         * Checks whether the expiry task has run
+         */
+        public boolean isExpired() {
+            return expired;
+        }
+
+        /**
+         * Disarms the watchdog for good and releases its wheel entry
+         */
+        public synchronized void close() {
+            closed = true;
+            armed = false;
+            if (timeout != null) {
+                timeout.cancel();
+                timeout = null;
+            }
+        }
+
+        private synchronized void scheduleCheck(long deadline) {
+            Timeout pending = timeout;
+            if (closed || (pending != null && deadline - checkAtNanos >= 0)) {
+                return;
+            }
+            if (pending != null) {
+                pending.cancel();
+            }
+            checkAtNanos = deadline;
+            try {
+                timeout = schedule(this::check, deadline - System.nanoTime(), TimeUnit.NANOSECONDS);
+            } catch (IllegalStateException e) {
+                timeout = null;
+            }
+        }
+
+        /**
+         * Runs on the timer thread when a wheel entry fires; the deadline may have moved
+         * since it was scheduled
+         */
+        private void check() {
+            synchronized (this) {
+                Timeout pending = timeout;
+                // A replaced entry that could not be cancelled in time
+                if (pending == null || !pending.isExpired()) {
+                    return;
+                }
+                timeout = null;
+                if (closed || !armed || expired) {
+                    return;
+                }
+                long deadline = deadlineNanos;
+                if (deadline - System.nanoTime() > 0) {
+                    scheduleCheck(deadline);
+                    return;
+                }
+                expired = true;
+            }
+            onExpire.run();
+        }
+    }
+}
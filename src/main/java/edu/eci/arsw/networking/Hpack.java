@@ -0,0 +1,622 @@
+package edu.eci.arsw.networking;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * HPACK header compression for HTTP/2 (RFC 7541), as used by {@link Http2Connection}.
+ *
+ * Both directions keep a dynamic table of recently sent fields, bounded in bytes and
+ * evicted oldest first, that indexes continue after the 61 entries of the static table.
+ * The {@link Decoder} reads every representation a client may send: indexed fields,
+ * literals with and without indexing, table size updates and Huffman-coded strings. The
+ * {@link Encoder} Huffman-codes a string whenever that makes it shorter, and adds the
+ * fields that repeat across responses, such as Server, Date and Content-Type, to its
+ * table, so from the second response on they cost one byte each.
+ *
+ * Field names and values are handled as ISO-8859-1 strings, one char per octet.
+ *
+ * @author GitHub Copilot Implementation
+ * @version 1.0
+ */
+final class Hpack {
+
+    /** Dynamic table size both sides start with, and the largest this server accepts */
+    static final int DEFAULT_TABLE_SIZE = 4096;
+    /** Per-entry overhead added to the name and value lengths (RFC 7541, section 4.1) */
+    private static final int ENTRY_OVERHEAD = 32;
+
+    private static final HeaderField[] STATIC_TABLE = {
+        new HeaderField(":authority", ""),
+        new HeaderField(":method", "GET"),
+        new HeaderField(":method", "POST"),
+        new HeaderField(":path", "/"),
+        new HeaderField(":path", "/index.html"),
+        new HeaderField(":scheme", "http"),
+        new HeaderField(":scheme", "https"),
+        new HeaderField(":status", "200"),
+        new HeaderField(":status", "204"),
+        new HeaderField(":status", "206"),
+        new HeaderField(":status", "304"),
+        new HeaderField(":status", "400"),
+        new HeaderField(":status", "404"),
+        new HeaderField(":status", "500"),
+        new HeaderField("accept-charset", ""),
+        new HeaderField("accept-encoding", "gzip, deflate"),
+        new HeaderField("accept-language", ""),
+        new HeaderField("accept-ranges", ""),
+        new HeaderField("accept", ""),
+        new HeaderField("access-control-allow-origin", ""),
+        new HeaderField("age", ""),
+        new HeaderField("allow", ""),
+        new HeaderField("authorization", ""),
+        new HeaderField("cache-control", ""),
+        new HeaderField("content-disposition", ""),
+        new HeaderField("content-encoding", ""),
+        new HeaderField("content-language", ""),
+        new HeaderField("content-length", ""),
+        new HeaderField("content-location", ""),
+        new HeaderField("content-range", ""),
+        new HeaderField("content-type", ""),
+        new HeaderField("cookie", ""),
+        new HeaderField("date", ""),
+        new HeaderField("etag", ""),
+        new HeaderField("expect", ""),
+        new HeaderField("expires", ""),
+        new HeaderField("from", ""),
+        new HeaderField("host", ""),
+        new HeaderField("if-match", ""),
+        new HeaderField("if-modified-since", ""),
+        new HeaderField("if-none-match", ""),
+        new HeaderField("if-range", ""),
+        new HeaderField("if-unmodified-since", ""),
+        new HeaderField("last-modified", ""),
+        new HeaderField("link", ""),
+        new HeaderField("location", ""),
+        new HeaderField("max-forwards", ""),
+        new HeaderField("proxy-authenticate", ""),
+        new HeaderField("proxy-authorization", ""),
+        new HeaderField("range", ""),
+        new HeaderField("referer", ""),
+        new HeaderField("refresh", ""),
+        new HeaderField("retry-after", ""),
+        new HeaderField("server", ""),
+        new HeaderField("set-cookie", ""),
+        new HeaderField("strict-transport-security", ""),
+        new HeaderField("transfer-encoding", ""),
+        new HeaderField("user-agent", ""),
+        new HeaderField("vary", ""),
+        new HeaderField("via", ""),
+        new HeaderField("www-authenticate", "")
+    };
+
+    /** Lowest static index of each name, for literals with an indexed name */
+    private static final Map<String, Integer> STATIC_NAMES = new HashMap<>();
+    /** Static index of each entry that has a value, keyed by name and value */
+    private static final Map<String, Integer> STATIC_FIELDS = new HashMap<>();
+    static {
+        for (int i = STATIC_TABLE.length; i >= 1; i--) {
+            HeaderField field = STATIC_TABLE[i - 1];
+            STATIC_NAMES.put(field.name, i);
+            if (!field.value.isEmpty()) {
+                STATIC_FIELDS.put(field.name + '\0' + field.value, i);
+            }
+        }
+    }
+
+    /** Huffman code of each octet and of EOS (256), right-aligned (RFC 7541, appendix B) */
+    private static final int[] HUFFMAN_CODES = {
+        0x1ff8, 0x7fffd8, 0xfffffe2, 0xfffffe3, 0xfffffe4, 0xfffffe5, 0xfffffe6, 0xfffffe7,
+        0xfffffe8, 0xffffea, 0x3ffffffc, 0xfffffe9, 0xfffffea, 0x3ffffffd, 0xfffffeb, 0xfffffec,
+        0xfffffed, 0xfffffee, 0xfffffef, 0xffffff0, 0xffffff1, 0xffffff2, 0x3ffffffe, 0xffffff3,
+        0xffffff4, 0xffffff5, 0xffffff6, 0xffffff7, 0xffffff8, 0xffffff9, 0xffffffa, 0xffffffb,
+        0x14, 0x3f8, 0x3f9, 0xffa, 0x1ff9, 0x15, 0xf8, 0x7fa,
+        0x3fa, 0x3fb, 0xf9, 0x7fb, 0xfa, 0x16, 0x17, 0x18,
+        0x0, 0x1, 0x2, 0x19, 0x1a, 0x1b, 0x1c, 0x1d,
+        0x1e, 0x1f, 0x5c, 0xfb, 0x7ffc, 0x20, 0xffb, 0x3fc,
+        0x1ffa, 0x21, 0x5d, 0x5e, 0x5f, 0x60, 0x61, 0x62,
+        0x63, 0x64, 0x65, 0x66, 0x67, 0x68, 0x69, 0x6a,
+        0x6b, 0x6c, 0x6d, 0x6e, 0x6f, 0x70, 0x71, 0x72,
+        0xfc, 0x73, 0xfd, 0x1ffb, 0x7fff0, 0x1ffc, 0x3ffc, 0x22,
+        0x7ffd, 0x3, 0x23, 0x4, 0x24, 0x5, 0x25, 0x26,
+        0x27, 0x6, 0x74, 0x75, 0x28, 0x29, 0x2a, 0x7,
+        0x2b, 0x76, 0x2c, 0x8, 0x9, 0x2d, 0x77, 0x78,
+        0x79, 0x7a, 0x7b, 0x7ffe, 0x7fc, 0x3ffd, 0x1ffd, 0xffffffc,
+        0xfffe6, 0x3fffd2, 0xfffe7, 0xfffe8, 0x3fffd3, 0x3fffd4, 0x3fffd5, 0x7fffd9,
+        0x3fffd6, 0x7fffda, 0x7fffdb, 0x7fffdc, 0x7fffdd, 0x7fffde, 0xffffeb, 0x7fffdf,
+        0xffffec, 0xffffed, 0x3fffd7, 0x7fffe0, 0xffffee, 0x7fffe1, 0x7fffe2, 0x7fffe3,
+        0x7fffe4, 0x1fffdc, 0x3fffd8, 0x7fffe5, 0x3fffd9, 0x7fffe6, 0x7fffe7, 0xffffef,
+        0x3fffda, 0x1fffdd, 0xfffe9, 0x3fffdb, 0x3fffdc, 0x7fffe8, 0x7fffe9, 0x1fffde,
+        0x7fffea, 0x3fffdd, 0x3fffde, 0xfffff0, 0x1fffdf, 0x3fffdf, 0x7fffeb, 0x7fffec,
+        0x1fffe0, 0x1fffe1, 0x3fffe0, 0x1fffe2, 0x7fffed, 0x3fffe1, 0x7fffee, 0x7fffef,
+        0xfffea, 0x3fffe2, 0x3fffe3, 0x3fffe4, 0x7ffff0, 0x3fffe5, 0x3fffe6, 0x7ffff1,
+        0x3ffffe0, 0x3ffffe1, 0xfffeb, 0x7fff1, 0x3fffe7, 0x7ffff2, 0x3fffe8, 0x1ffffec,
+        0x3ffffe2, 0x3ffffe3, 0x3ffffe4, 0x7ffffde, 0x7ffffdf, 0x3ffffe5, 0xfffff1, 0x1ffffed,
+        0x7fff2, 0x1fffe3, 0x3ffffe6, 0x7ffffe0, 0x7ffffe1, 0x3ffffe7, 0x7ffffe2, 0xfffff2,
+        0x1fffe4, 0x1fffe5, 0x3ffffe8, 0x3ffffe9, 0xffffffd, 0x7ffffe3, 0x7ffffe4, 0x7ffffe5,
+        0xfffec, 0xfffff3, 0xfffed, 0x1fffe6, 0x3fffe9, 0x1fffe7, 0x1fffe8, 0x7ffff3,
+        0x3fffea, 0x3fffeb, 0x1ffffee, 0x1ffffef, 0xfffff4, 0xfffff5, 0x3ffffea, 0x7ffff4,
+        0x3ffffeb, 0x7ffffe6, 0x3ffffec, 0x3ffffed, 0x7ffffe7, 0x7ffffe8, 0x7ffffe9, 0x7ffffea,
+        0x7ffffeb, 0xffffffe, 0x7ffffec, 0x7ffffed, 0x7ffffee, 0x7ffffef, 0x7fffff0, 0x3ffffee,
+        0x3fffffff
+    };
+
+    private static final byte[] HUFFMAN_LENGTHS = {
+        13, 23, 28, 28, 28, 28, 28, 28, 28, 24, 30, 28, 28, 30, 28, 28,
+        28, 28, 28, 28, 28, 28, 30, 28, 28, 28, 28, 28, 28, 28, 28, 28,
+        6, 10, 10, 12, 13, 6, 8, 11, 10, 10, 8, 11, 8, 6, 6, 6,
+        5, 5, 5, 6, 6, 6, 6, 6, 6, 6, 7, 8, 15, 6, 12, 10,
+        13, 6, 7, 7, 7, 7, 7, 7, 7, 7, 7, 7, 7, 7, 7, 7,
+        7, 7, 7, 7, 7, 7, 7, 7, 8, 7, 8, 13, 19, 13, 14, 6,
+        15, 5, 6, 5, 6, 5, 6, 6, 6, 5, 7, 7, 6, 6, 6, 5,
+        6, 7, 6, 5, 5, 6, 7, 7, 7, 7, 7, 15, 11, 14, 13, 28,
+        20, 22, 20, 20, 22, 22, 22, 23, 22, 23, 23, 23, 23, 23, 24, 23,
+        24, 24, 22, 23, 24, 23, 23, 23, 23, 21, 22, 23, 22, 23, 23, 24,
+        22, 21, 20, 22, 22, 23, 23, 21, 23, 22, 22, 24, 21, 22, 23, 23,
+        21, 21, 22, 21, 23, 22, 23, 23, 20, 22, 22, 22, 23, 22, 22, 23,
+        26, 26, 20, 19, 22, 23, 22, 25, 26, 26, 26, 27, 27, 26, 24, 25,
+        19, 21, 26, 27, 27, 26, 27, 24, 21, 21, 26, 26, 28, 27, 27, 27,
+        20, 24, 20, 21, 22, 21, 21, 23, 22, 22, 25, 25, 24, 24, 26, 23,
+        26, 27, 26, 26, 27, 27, 27, 27, 27, 28, 27, 27, 27, 27, 27, 26,
+        30
+    };
+
+    private static final int EOS = 256;
+    private static final HuffmanNode HUFFMAN_TREE = buildHuffmanTree();
+
+    private Hpack() {
+    }
+
+    /**
+     * A header field: a lower-case name and its value
+     */
+    static final class HeaderField {
+        final String name;
+        final String value;
+
+        HeaderField(String name, String value) {
+            this.name = name;
+            this.value = value;
+        }
+
+        /** Size counted against the dynamic table: octets of name and value plus 32 */
+        int size() {
+            return name.length() + value.length() + ENTRY_OVERHEAD;
+        }
+    }
+
+    /**
+     * Table of recently added fields, newest first, bounded in bytes. A ring buffer, so
+     * adding and evicting move no entries.
+     */
+    static final class DynamicTable {
+
+        private HeaderField[] entries = new HeaderField[16];
+        private int newest;
+        private int count;
+        private int size;
+        private int maxSize;
+
+        DynamicTable(int maxSize) {
+            this.maxSize = maxSize;
+        }
+
+        int length() { return count; }
+
+        int size() { return size; }
+
+        int maxSize() { return maxSize; }
+
+        /**
+         * @param index Position from the newest entry, starting at 1
+         */
+        HeaderField get(int index) {
+            return entries[(newest + index - 1) % entries.length];
+        }
+
+        /**
+         * Adds a field, evicting the oldest entries until it fits; a field larger than the
+         * whole table empties it and is not added
+         */
+        void add(HeaderField field) {
+            int fieldSize = field.size();
+            evictTo(maxSize - fieldSize);
+            if (fieldSize > maxSize) {
+                return;
+            }
+            if (count == entries.length) {
+                HeaderField[] grown = new HeaderField[entries.length * 2];
+                for (int i = 0; i < count; i++) {
+                    grown[i] = get(i + 1);
+                }
+                entries = grown;
+                newest = 0;
+            }
+            newest = (newest - 1 + entries.length) % entries.length;
+            entries[newest] = field;
+            count++;
+            size += fieldSize;
+        }
+
+        void setMaxSize(int maxSize) {
+            this.maxSize = maxSize;
+            evictTo(maxSize);
+        }
+
+        private void evictTo(int targetSize) {
+            while (count > 0 && size > Math.max(targetSize, 0)) {
+                int oldest = (newest + count - 1) % entries.length;
+                size -= entries[oldest].size();
+                entries[oldest] = null;
+                count--;
+            }
+        }
+    }
+
+    /**
+     * Decodes the header blocks of one connection; blocks must be decoded in the order
+     * they arrive, since each one may change the table the next one refers to
+     */
+    static final class Decoder {
+
+        private final DynamicTable table;
+        private final int maxTableSize;
+        private byte[] block;
+        private int position;
+        private int end;
+        private byte[] scratch = new byte[256];
+
+        /**
+         * @param maxTableSize Largest table size the client may switch to, as advertised
+         *        in SETTINGS_HEADER_TABLE_SIZE
+         */
+        Decoder(int maxTableSize) {
+            this.maxTableSize = maxTableSize;
+            this.table = new DynamicTable(maxTableSize);
+        }
+
+        /**
+         * Decodes one complete header block
+         * @param block Buffer holding the block
+         * @param offset Position of the first octet
+         * @param length Number of octets
+         * @param fields Receives the fields in order
+         * @throws Http2Connection.ProtocolException COMPRESSION_ERROR if the block is not valid HPACK
+         */
+        void decode(byte[] block, int offset, int length, List<HeaderField> fields)
+                throws Http2Connection.ProtocolException {
+            this.block = block;
+            this.position = offset;
+            this.end = offset + length;
+            boolean fieldSeen = false;
+            while (position < end) {
+                int b = block[position] & 0xFF;
+                if ((b & 0x80) != 0) {
+                    fields.add(field(readInteger(7)));
+                    fieldSeen = true;
+                } else if ((b & 0xC0) == 0x40) {
+                    HeaderField field = literal(6);
+                    table.add(field);
+                    fields.add(field);
+                    fieldSeen = true;
+                } else if ((b & 0xE0) == 0x20) {
+                    // Size updates are only allowed before the first field of a block
+                    int size = readInteger(5);
+                    if (fieldSeen || size > maxTableSize) {
+                        throw error("Actualización de tamaño de tabla inválida: " + size);
+                    }
+                    table.setMaxSize(size);
+                } else {
+                    // Without indexing (0000) and never indexed (0001) share the 4-bit prefix
+                    fields.add(literal(4));
+                    fieldSeen = true;
+                }
+            }
+        }
+
+        DynamicTable table() { return table; }
+
+        private HeaderField literal(int prefixBits) throws Http2Connection.ProtocolException {
+            int nameIndex = readInteger(prefixBits);
+            String name = nameIndex == 0 ? readString() : field(nameIndex).name;
+            return new HeaderField(name, readString());
+        }
+
+        private HeaderField field(int index) throws Http2Connection.ProtocolException {
+            if (index >= 1 && index <= STATIC_TABLE.length) {
+                return STATIC_TABLE[index - 1];
+            }
+            int dynamicIndex = index - STATIC_TABLE.length;
+            if (index < 1 || dynamicIndex > table.length()) {
+                throw error("Índice de encabezado inválido: " + index);
+            }
+            return table.get(dynamicIndex);
+        }
+
+        private int readInteger(int prefixBits) throws Http2Connection.ProtocolException {
+            int mask = (1 << prefixBits) - 1;
+            int value = block[position++] & mask;
+            if (value < mask) {
+                return value;
+            }
+            for (int shift = 0; ; shift += 7) {
+                if (position == end || shift > 21) {
+                    throw error("Entero HPACK inválido");
+                }
+                int b = block[position++] & 0xFF;
+                value += (b & 0x7F) << shift;
+                if ((b & 0x80) == 0) {
+                    if (value < 0) {
+                        throw error("Entero HPACK inválido");
+                    }
+                    return value;
+                }
+            }
+        }
+
+        private String readString() throws Http2Connection.ProtocolException {
+            if (position == end) {
+                throw error("Bloque de encabezados truncado");
+            }
+            boolean huffman = (block[position] & 0x80) != 0;
+            int length = readInteger(7);
+            if (length > end - position) {
+                throw error("Bloque de encabezados truncado");
+            }
+            int start = position;
+            position += length;
+            if (!huffman) {
+                return new String(block, start, length, StandardCharsets.ISO_8859_1);
+            }
+            return huffmanDecode(start, length);
+        }
+
+        private String huffmanDecode(int start, int length) throws Http2Connection.ProtocolException {
+            // Codes are at least 5 bits long, so the text has at most 8/5 octets per input octet
+            int maxLength = length * 8 / 5;
+            if (scratch.length < maxLength) {
+                scratch = new byte[Math.max(maxLength, scratch.length * 2)];
+            }
+            int decoded = 0;
+            HuffmanNode node = HUFFMAN_TREE;
+            int bitsSinceSymbol = 0;
+            boolean allOnes = true;
+            for (int i = start; i < start + length; i++) {
+                int b = block[i] & 0xFF;
+                for (int bit = 7; bit >= 0; bit--) {
+                    int value = (b >>> bit) & 1;
+                    node = value == 0 ? node.zero : node.one;
+                    bitsSinceSymbol++;
+                    allOnes &= value == 1;
+                    if (node == null) {
+                        throw error("Código Huffman inválido");
+                    }
+                    if (node.symbol >= 0) {
+                        if (node.symbol == EOS) {
+                            throw error("EOS dentro de una cadena Huffman");
+                        }
+                        scratch[decoded++] = (byte) node.symbol;
+                        node = HUFFMAN_TREE;
+                        bitsSinceSymbol = 0;
+                        allOnes = true;
+                    }
+                }
+            }
+            // Padding is the most significant bits of EOS: up to 7 one bits
+            if (bitsSinceSymbol > 7 || !allOnes) {
+                throw error("Relleno Huffman inválido");
+            }
+            return new String(scratch, 0, decoded, StandardCharsets.ISO_8859_1);
+        }
+
+        private static Http2Connection.ProtocolException error(String message) {
+            return new Http2Connection.ProtocolException(Http2Connection.COMPRESSION_ERROR, message);
+        }
+    }
+
+    /**
+     * Encodes the header blocks of one connection into a buffer it owns and reuses
+     */
+    static final class Encoder {
+
+        private final DynamicTable table = new DynamicTable(DEFAULT_TABLE_SIZE);
+        private byte[] block = new byte[512];
+        private int length;
+        private int smallestPendingSize = -1;
+
+        /**
+         * Follows the client's SETTINGS_HEADER_TABLE_SIZE; the change is announced at the
+         * start of the next block, as the smallest size reached and then the final one
+         * @param clientTableSize Table size the client's decoder allows
+         */
+        void setMaxTableSize(int clientTableSize) {
+            int size = Math.min(clientTableSize, DEFAULT_TABLE_SIZE);
+            if (size == table.maxSize()) {
+                return;
+            }
+            smallestPendingSize = smallestPendingSize < 0 ? size : Math.min(smallestPendingSize, size);
+            table.setMaxSize(size);
+        }
+
+        /**
+         * Starts a new header block, discarding the previous one
+         */
+        void beginBlock() {
+            length = 0;
+            if (smallestPendingSize >= 0) {
+                writeInteger(0x20, 5, smallestPendingSize);
+                if (smallestPendingSize != table.maxSize()) {
+                    writeInteger(0x20, 5, table.maxSize());
+                }
+                smallestPendingSize = -1;
+            }
+        }
+
+        /**
+         * Adds the :status pseudo-header, indexed when the static table has the code
+         */
+        void status(int code) {
+            String value = String.valueOf(code);
+            Integer index = STATIC_FIELDS.get(":status\0" + value);
+            if (index != null) {
+                writeInteger(0x80, 7, index);
+            } else {
+                writeInteger(0x00, 4, STATIC_NAMES.get(":status"));
+                writeString(value);
+            }
+        }
+
+        /**
+         * Adds a header field
+         * @param name Lower-case name
+         * @param value Value
+         * @param indexed Whether to add it to the dynamic table; worth it only for values
+         *        that repeat across responses
+         */
+        void header(String name, String value, boolean indexed) {
+            Integer staticIndex = STATIC_FIELDS.get(name + '\0' + value);
+            if (staticIndex != null) {
+                writeInteger(0x80, 7, staticIndex);
+                return;
+            }
+            for (int i = 1; i <= table.length(); i++) {
+                HeaderField entry = table.get(i);
+                if (entry.name.equals(name) && entry.value.equals(value)) {
+                    writeInteger(0x80, 7, STATIC_TABLE.length + i);
+                    return;
+                }
+            }
+            Integer nameIndex = STATIC_NAMES.get(name);
+            if (indexed) {
+                writeInteger(0x40, 6, nameIndex != null ? nameIndex : 0);
+                table.add(new HeaderField(name, value));
+            } else {
+                writeInteger(0x00, 4, nameIndex != null ? nameIndex : 0);
+            }
+            if (nameIndex == null) {
+                writeString(name);
+            }
+            writeString(value);
+        }
+
+        /** The encoded block, valid until the next {@link #beginBlock()} */
+        byte[] block() { return block; }
+
+        int length() { return length; }
+
+        DynamicTable table() { return table; }
+
+        private void writeInteger(int pattern, int prefixBits, int value) {
+            int mask = (1 << prefixBits) - 1;
+            if (value < mask) {
+                put(pattern | value);
+                return;
+            }
+            put(pattern | mask);
+            value -= mask;
+            while (value >= 0x80) {
+                put((value & 0x7F) | 0x80);
+                value >>>= 7;
+            }
+            put(value);
+        }
+
+        private void writeString(String value) {
+            int huffmanLength = huffmanLength(value);
+            if (huffmanLength < value.length()) {
+                writeInteger(0x80, 7, huffmanLength);
+                ensureCapacity(huffmanLength);
+                huffmanEncode(value, block, length);
+                length += huffmanLength;
+                return;
+            }
+            writeInteger(0x00, 7, value.length());
+            for (int i = 0; i < value.length(); i++) {
+                put(value.charAt(i));
+            }
+        }
+
+        private void ensureCapacity(int extra) {
+            if (length + extra > block.length) {
+                block = Arrays.copyOf(block, Math.max(block.length * 2, length + extra));
+            }
+        }
+
+        private void put(int b) {
+            ensureCapacity(1);
+            block[length++] = (byte) b;
+        }
+    }
+
+    /**
+     * Node of the Huffman decoding tree; leaves carry the symbol, inner nodes -1
+     */
+    private static final class HuffmanNode {
+        HuffmanNode zero;
+        HuffmanNode one;
+        int symbol = -1;
+    }
+
+    private static HuffmanNode buildHuffmanTree() {
+        HuffmanNode root = new HuffmanNode();
+        for (int symbol = 0; symbol <= EOS; symbol++) {
+            HuffmanNode node = root;
+            int code = HUFFMAN_CODES[symbol];
+            for (int bit = HUFFMAN_LENGTHS[symbol] - 1; bit >= 0; bit--) {
+                if (((code >>> bit) & 1) == 0) {
+                    if (node.zero == null) {
+                        node.zero = new HuffmanNode();
+                    }
+                    node = node.zero;
+                } else {
+                    if (node.one == null) {
+                        node.one = new HuffmanNode();
+                    }
+                    node = node.one;
+                }
+            }
+            node.symbol = symbol;
+        }
+        return root;
+    }
+
+    /**
+     * Gets the length of a string once Huffman-coded
+     * @param value ISO-8859-1 text
+     * @return Number of octets, padding included
+     */
+    static int huffmanLength(String value) {
+        long bits = 0;
+        for (int i = 0; i < value.length(); i++) {
+            bits += HUFFMAN_LENGTHS[value.charAt(i) & 0xFF];
+        }
+        return (int) ((bits + 7) / 8);
+    }
+
+    /**
+     * Huffman-codes a string, padding the last octet with the leading one bits of EOS
+     * @param value ISO-8859-1 text
+     * @param out Destination, with room for {@link #huffmanLength} octets
+     * @param offset Position of the first octet
+     */
+    static void huffmanEncode(String value, byte[] out, int offset) {
+        long buffer = 0;
+        int buffered = 0;
+        int index = offset;
+        for (int i = 0; i < value.length(); i++) {
+            int symbol = value.charAt(i) & 0xFF;
+            buffer = (buffer << HUFFMAN_LENGTHS[symbol]) | HUFFMAN_CODES[symbol];
+            buffered += HUFFMAN_LENGTHS[symbol];
+            while (buffered >= 8) {
+                buffered -= 8;
+                out[index++] = (byte) (buffer >>> buffered);
+            }
+        }
+        if (buffered > 0) {
+            out[index] = (byte) ((buffer << (8 - buffered)) | (0xFF >>> buffered));
+        }
+    }
+}
@@ -0,0 +1,1148 @@
+package edu.eci.arsw.networking;
+
+import java.io.BufferedOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.Socket;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * One HTTP/2 cleartext (h2c) connection of {@link SimpleWebServer} (RFC 9113), entered
+ * from the blocking engine either with prior knowledge (the client starts with the
+ * connection preface instead of a request) or through "Upgrade: h2c" on an HTTP/1.1
+ * request, which is then answered as stream 1.
+ *
+ * Every request is a stream of its own, so a browser fetches a page and all its CSS,
+ * images and scripts over one connection instead of queuing them behind each other on
+ * several. The connection runs on the thread that owned the HTTP/1.1 connection, and that
+ * single thread both reads and writes: after each incoming frame it sends as much response
+ * data as the flow-control windows allow, taking one DATA frame from each ready stream in
+ * turn so that a large file does not hold back the small ones requested after it. When
+ * every window is exhausted it blocks reading, which is where the client's WINDOW_UPDATE
+ * frames arrive.
+ *
+ * Header blocks are compressed with {@link Hpack}. Each request is rebuilt as an HTTP/1.1
+ * head and parsed by an {@link HttpRequestParser}, so it goes through
+ * {@link SimpleWebServer#processRequest} and {@link SimpleWebServer#recordAccess} exactly
+ * like a request on the other protocols: same file resolution, cache, validators, ranges,
+ * compression, metrics and access log. Request bodies are read and discarded (the server
+ * only answers GET).
+ *
+ * @author GitHub Copilot Implementation
+ * @version 1.0
+ */
+final class Http2Connection {
+
+    /** What every HTTP/2 client sends first (RFC 9113, section 3.4) */
+    static final byte[] PREFACE = "PRI * HTTP/2.0\r\n\r\nSM\r\n\r\n".getBytes(StandardCharsets.ISO_8859_1);
+    /** The part of the preface left once an HTTP/1.1 parser has read it as a request head */
+    private static final int PREFACE_HEAD_LENGTH = "PRI * HTTP/2.0\r\n\r\n".length();
+
+    private static final byte[] SWITCHING_PROTOCOLS =
+        "HTTP/1.1 101 Switching Protocols\r\nConnection: Upgrade\r\nUpgrade: h2c\r\n\r\n"
+            .getBytes(StandardCharsets.ISO_8859_1);
+    private static final String SERVER_NAME = "SimpleWebServer/1.0";
+
+    private static final int DATA = 0x0;
+    private static final int HEADERS = 0x1;
+    private static final int PRIORITY = 0x2;
+    private static final int RST_STREAM = 0x3;
+    private static final int SETTINGS = 0x4;
+    private static final int PUSH_PROMISE = 0x5;
+    private static final int PING = 0x6;
+    private static final int GOAWAY = 0x7;
+    private static final int WINDOW_UPDATE = 0x8;
+    private static final int CONTINUATION = 0x9;
+
+    private static final int FLAG_END_STREAM = 0x1;
+    private static final int FLAG_ACK = 0x1;
+    private static final int FLAG_END_HEADERS = 0x4;
+    private static final int FLAG_PADDED = 0x8;
+    private static final int FLAG_PRIORITY = 0x20;
+
+    static final int NO_ERROR = 0x0;
+    static final int PROTOCOL_ERROR = 0x1;
+    static final int INTERNAL_ERROR = 0x2;
+    static final int FLOW_CONTROL_ERROR = 0x3;
+    static final int STREAM_CLOSED = 0x5;
+    static final int FRAME_SIZE_ERROR = 0x6;
+    static final int REFUSED_STREAM = 0x7;
+    static final int COMPRESSION_ERROR = 0x9;
+    static final int ENHANCE_YOUR_CALM = 0xb;
+
+    private static final int SETTINGS_HEADER_TABLE_SIZE = 0x1;
+    private static final int SETTINGS_ENABLE_PUSH = 0x2;
+    private static final int SETTINGS_MAX_CONCURRENT_STREAMS = 0x3;
+    private static final int SETTINGS_INITIAL_WINDOW_SIZE = 0x4;
+    private static final int SETTINGS_MAX_FRAME_SIZE = 0x5;
+    private static final int SETTINGS_MAX_HEADER_LIST_SIZE = 0x6;
+
+    private static final int FRAME_HEADER_SIZE = 9;
+    static final int DEFAULT_MAX_FRAME_SIZE = 16384;
+    private static final int MAX_ALLOWED_FRAME_SIZE = 16777215;
+    static final int DEFAULT_WINDOW_SIZE = 65535;
+    private static final long MAX_WINDOW_SIZE = Integer.MAX_VALUE;
+    private static final int MAX_HEADER_BLOCK_SIZE = 64 * 1024;
+
+    /**
+     * An error that ends the connection with GOAWAY, or with RST_STREAM when it only
+     * concerns one stream
+     */
+    static final class ProtocolException extends IOException {
+
+        private static final long serialVersionUID = 1L;
+
+        private final int errorCode;
+
+        ProtocolException(int errorCode, String message) {
+            super(message);
+            this.errorCode = errorCode;
+        }
+
+        int getErrorCode() { return errorCode; }
+    }
+
+    /**
+     * A request and its response. Streams leave the connection's map once their response
+     * has been sent or they are reset; the parser then serves a later stream.
+     */
+    private static final class Stream {
+        final int id;
+        final HttpRequestParser request;
+        HttpRequestParser.Result parseResult;
+        boolean endStreamReceived;
+        long receiveWindow;
+        long sendWindow;
+        long startNanos;
+        boolean admitted;
+        HttpResponse response;
+        ByteBuffer memoryBody;
+        BodyStream bodyStream;
+        boolean queued;
+
+        Stream(int id, HttpRequestParser request, long sendWindow) {
+            this.id = id;
+            this.request = request;
+            this.receiveWindow = DEFAULT_WINDOW_SIZE;
+            this.sendWindow = sendWindow;
+        }
+
+        boolean hasPendingData() {
+            return memoryBody != null || bodyStream != null;
+        }
+    }
+
+    private final SimpleWebServer server;
+    private final WebServerConfig config;
+    private final Socket socket;
+    private final InputStream in;
+    private final OutputStream out;
+    private final ByteBuffer pendingInput;
+    private final HashedWheelTimer.Watchdog watchdog;
+    private final String clientAddress;
+    private final EventLog eventLog;
+
+    private final Hpack.Decoder decoder = new Hpack.Decoder(Hpack.DEFAULT_TABLE_SIZE);
+    private final Hpack.Encoder encoder = new Hpack.Encoder();
+    private final List<Hpack.HeaderField> fields = new ArrayList<>();
+    private final StringBuilder requestHead = new StringBuilder(512);
+    private final byte[] frameHeader = new byte[FRAME_HEADER_SIZE];
+    private final byte[] payload = new byte[DEFAULT_MAX_FRAME_SIZE];
+    private final byte[] dataFrame = new byte[FRAME_HEADER_SIZE + DEFAULT_MAX_FRAME_SIZE];
+    private byte[] headerBlock = new byte[1024];
+    private int headerBlockLength;
+    private int headerBlockStreamId;
+    private boolean headerBlockEndStream;
+
+    private final Map<Integer, Stream> streams = new HashMap<>();
+    private final ArrayDeque<Stream> ready = new ArrayDeque<>();
+    private final ArrayDeque<HttpRequestParser> parsers = new ArrayDeque<>();
+    private int lastStreamId;
+    private long connectionSendWindow = DEFAULT_WINDOW_SIZE;
+    private long connectionReceiveWindow = DEFAULT_WINDOW_SIZE;
+    private long initialStreamWindow = DEFAULT_WINDOW_SIZE;
+    private int peerMaxFrameSize = DEFAULT_MAX_FRAME_SIZE;
+    private boolean settingsReceived;
+    private boolean goAwayReceived;
+
+    private int frameLength;
+    private int frameType;
+    private int frameFlags;
+    private int frameStreamId;
+
+    /**
+     * @param server Server whose request handling the streams go through
+     * @param socket The client connection
+     * @param in Input stream of the socket
+     * @param out Output stream of the socket
+     * @param pendingInput Bytes already read from the socket but not consumed, in read mode
+     * @param watchdog Deadline of the connection, closing the socket when it passes
+     */
+    Http2Connection(SimpleWebServer server, Socket socket, InputStream in, OutputStream out,
+                    ByteBuffer pendingInput, HashedWheelTimer.Watchdog watchdog) {
+        this.server = server;
+        this.config = server.getConfig();
+        this.socket = socket;
+        this.in = in;
+        this.out = new BufferedOutputStream(out, FRAME_HEADER_SIZE + DEFAULT_MAX_FRAME_SIZE);
+        this.pendingInput = pendingInput;
+        this.watchdog = watchdog;
+        this.clientAddress = socket.getInetAddress().getHostAddress();
+        this.eventLog = server.getEventLog();
+    }
+
+    /**
+     * Checks whether an HTTP/1.1 parser just read the start of the HTTP/2 preface, which
+     * looks like a request head "PRI * HTTP/2.0"
+     * @param request A complete request head
+     * @return true if the client speaks HTTP/2 with prior knowledge
+     */
+    static boolean isPriorKnowledge(HttpRequestParser request) {
+        return request.method().contentEquals("PRI") && request.target().contentEquals("*")
+               && request.version().contentEquals("HTTP/2.0") && request.headerCount() == 0;
+    }
+
+    /**
+     * Gets the settings of an HTTP/1.1 request asking to upgrade to h2c: "Upgrade: h2c",
+     * exactly one HTTP2-Settings header, both named in Connection, and no request body
+     * @param request A complete request head
+     * @return The decoded SETTINGS payload, or null if the request is not a valid upgrade
+     */
+    static byte[] upgradeSettings(HttpRequestParser request) {
+        AsciiView upgrade = request.header("Upgrade");
+        AsciiView connection = request.header("Connection");
+        if (upgrade == null || connection == null || !upgrade.containsToken("h2c")
+            || !connection.containsToken("Upgrade") || !connection.containsToken("HTTP2-Settings")
+            || !request.version().contentEquals("HTTP/1.1") || request.hasBody()) {
+            return null;
+        }
+        AsciiView settings = null;
+        for (int i = 0; i < request.headerCount(); i++) {
+            if (request.headerName(i).equalsIgnoreCase("HTTP2-Settings")) {
+                if (settings != null) {
+                    return null;
+                }
+                settings = request.headerValue(i);
+            }
+        }
+        if (settings == null) {
+            return null;
+        }
+        try {
+            byte[] decoded = Base64.getUrlDecoder().decode(settings.toString());
+            return decoded.length % 6 == 0 ? decoded : null;
+        } catch (IllegalArgumentException e) {
+            return null;
+        }
+    }
+
+    /**
+     * Runs a connection whose client sent the preface; the HTTP/1.1 parser has consumed
+     * its first line and the blank line after it
+     * @throws IOException If the connection fails
+     */
+    void servePriorKnowledge() throws IOException {
+        eventLog.info("Conexión HTTP/2 (h2c) con conocimiento previo: " + clientAddress);
+        serve(null, null, PREFACE_HEAD_LENGTH);
+    }
+
+    /**
+     * Switches an HTTP/1.1 connection to HTTP/2 and answers the request that asked for it
+     * on stream 1
+     * @param request The upgrade request, which becomes stream 1
+     * @param settings The client's settings from its HTTP2-Settings header
+     * @throws IOException If the connection fails
+     */
+    void serveUpgrade(HttpRequestParser request, byte[] settings) throws IOException {
+        eventLog.info("Conexión actualizada a HTTP/2 (h2c): " + clientAddress);
+        out.write(SWITCHING_PROTOCOLS);
+        serve(request, settings, 0);
+    }
+
+    private void serve(HttpRequestParser upgraded, byte[] upgradeSettings, int prefaceRead) throws IOException {
+        try {
+            watchdog.arm(config.getWriteTimeoutMillis());
+            if (upgradeSettings != null) {
+                applySettings(upgradeSettings, 0, upgradeSettings.length);
+            }
+            writeSettings();
+            if (upgraded != null) {
+                // The upgrade request is stream 1, already closed on the client's side
+                lastStreamId = 1;
+                Stream stream = new Stream(1, upgraded, initialStreamWindow);
+                stream.parseResult = HttpRequestParser.Result.COMPLETE;
+                stream.endStreamReceived = true;
+                streams.put(1, stream);
+                startResponse(stream);
+            }
+            writeReadyStreams();
+            out.flush();
+            readPreface(prefaceRead);
+
+            while (!goAwayReceived || !streams.isEmpty()) {
+                watchdog.arm(config.getWriteTimeoutMillis());
+                writeReadyStreams();
+                out.flush();
+                if (!readFrame()) {
+                    break;
+                }
+                handleFrame();
+            }
+            out.flush();
+        } catch (ProtocolException e) {
+            eventLog.info("Error de protocolo HTTP/2 desde " + clientAddress + ": " + e.getMessage());
+            try {
+                writeGoAway(e.getErrorCode(), e.getMessage());
+                out.flush();
+            } catch (IOException closed) {
+                // The client may already be gone
+            }
+        } finally {
+            for (Stream stream : streams.values()) {
+                release(stream);
+            }
+            streams.clear();
+            ready.clear();
+        }
+    }
+
+    private void readPreface(int alreadyRead) throws IOException {
+        byte[] rest = new byte[PREFACE.length - alreadyRead];
+        if (!readFully(rest, rest.length, true)) {
+            throw new EOFException("Conexión cerrada antes del prefacio HTTP/2");
+        }
+        for (int i = 0; i < rest.length; i++) {
+            if (rest[i] != PREFACE[alreadyRead + i]) {
+                throw new ProtocolException(PROTOCOL_ERROR, "Prefacio de conexión HTTP/2 inválido");
+            }
+        }
+    }
+
+    /**
+     * Reads the next frame header and payload, waiting with the idle timeout when no
+     * stream is open and with the write timeout otherwise
+     * @return false if the client closed the connection between frames
+     */
+    private boolean readFrame() throws IOException {
+        boolean idle = streams.isEmpty();
+        if (idle) {
+            if (!server.isRunning()) {
+                writeGoAway(NO_ERROR, "");
+                out.flush();
+                return false;
+            }
+            watchdog.arm(config.getKeepAliveTimeoutMillis());
+        } else {
+            watchdog.arm(config.getWriteTimeoutMillis());
+        }
+        boolean complete;
+        if (idle && !server.enterIdle(socket)) {
+            return false;
+        }
+        try {
+            complete = readFully(frameHeader, FRAME_HEADER_SIZE, true);
+        } finally {
+            if (idle) {
+                server.leaveIdle(socket);
+            }
+        }
+        if (!complete) {
+            return false;
+        }
+        watchdog.arm(config.getHeaderTimeoutMillis());
+        frameLength = ((frameHeader[0] & 0xFF) << 16) | ((frameHeader[1] & 0xFF) << 8) | (frameHeader[2] & 0xFF);
+        frameType = frameHeader[3] & 0xFF;
+        frameFlags = frameHeader[4] & 0xFF;
+        frameStreamId = readInt(frameHeader, 5) & 0x7FFFFFFF;
+        if (frameLength > DEFAULT_MAX_FRAME_SIZE) {
+            throw new ProtocolException(FRAME_SIZE_ERROR, "Trama demasiado grande: " + frameLength);
+        }
+        if (!readFully(payload, frameLength, false)) {
+            throw new EOFException("Trama HTTP/2 incompleta");
+        }
+        return true;
+    }
+
+    /**
+     * Fills the start of a buffer, first from the bytes read before the switch to HTTP/2
+     * @param atBoundary Whether the end of the stream is allowed before the first byte
+     * @return false if the stream ended before the first byte and that was allowed
+     */
+    private boolean readFully(byte[] target, int length, boolean atBoundary) throws IOException {
+        int filled = 0;
+        if (pendingInput.hasRemaining()) {
+            filled = Math.min(length, pendingInput.remaining());
+            pendingInput.get(target, 0, filled);
+        }
+        while (filled < length) {
+            int read = in.read(target, filled, length - filled);
+            if (read < 0) {
+                if (filled == 0 && atBoundary) {
+                    return false;
+                }
+                throw new EOFException("Conexión HTTP/2 cerrada a mitad de trama");
+            }
+            filled += read;
+        }
+        return true;
+    }
+
+    private void handleFrame() throws IOException {
+        if (!settingsReceived && frameType != SETTINGS) {
+            throw new ProtocolException(PROTOCOL_ERROR, "El prefacio del cliente debe terminar con SETTINGS");
+        }
+        if (headerBlockStreamId != 0 && (frameType != CONTINUATION || frameStreamId != headerBlockStreamId)) {
+            throw new ProtocolException(PROTOCOL_ERROR, "Se esperaba CONTINUATION en el stream " + headerBlockStreamId);
+        }
+        switch (frameType) {
+            case DATA:
+                onData();
+                break;
+            case HEADERS:
+                onHeaders();
+                break;
+            case PRIORITY:
+                onPriority();
+                break;
+            case RST_STREAM:
+                onResetStream();
+                break;
+            case SETTINGS:
+                onSettings();
+                break;
+            case PUSH_PROMISE:
+                throw new ProtocolException(PROTOCOL_ERROR, "Los clientes no pueden enviar PUSH_PROMISE");
+            case PING:
+                onPing();
+                break;
+            case GOAWAY:
+                requireConnectionStream();
+                goAwayReceived = true;
+                break;
+            case WINDOW_UPDATE:
+                onWindowUpdate();
+                break;
+            case CONTINUATION:
+                onContinuation();
+                break;
+            default:
+                // Unknown frame types are ignored (RFC 9113, section 4.1)
+                break;
+        }
+    }
+
+    private void onData() throws IOException {
+        requireStream();
+        if ((frameFlags & FLAG_PADDED) != 0) {
+            int padding = frameLength > 0 ? payload[0] & 0xFF : -1;
+            if (padding < 0 || padding >= frameLength) {
+                throw new ProtocolException(PROTOCOL_ERROR, "Relleno de DATA inválido");
+            }
+        }
+
+        // The whole frame counts against the windows, padding included
+        connectionReceiveWindow -= frameLength;
+        if (connectionReceiveWindow < 0) {
+            throw new ProtocolException(FLOW_CONTROL_ERROR, "Ventana de conexión excedida");
+        }
+        if (frameLength > 0) {
+            writeWindowUpdate(0, frameLength);
+            connectionReceiveWindow += frameLength;
+        }
+
+        Stream stream = streams.get(frameStreamId);
+        if (stream == null || stream.endStreamReceived) {
+            if (frameStreamId > lastStreamId) {
+                throw new ProtocolException(PROTOCOL_ERROR, "DATA en un stream inactivo: " + frameStreamId);
+            }
+            resetStream(frameStreamId, STREAM_CLOSED);
+            return;
+        }
+        stream.receiveWindow -= frameLength;
+        if (stream.receiveWindow < 0) {
+            resetStream(stream.id, FLOW_CONTROL_ERROR);
+            return;
+        }
+        // The body itself is discarded: only GET is answered
+        if ((frameFlags & FLAG_END_STREAM) != 0) {
+            stream.endStreamReceived = true;
+            startResponse(stream);
+        } else if (frameLength > 0) {
+            writeWindowUpdate(stream.id, frameLength);
+            stream.receiveWindow += frameLength;
+        }
+    }
+
+    private void onHeaders() throws IOException {
+        requireStream();
+        int start = 0;
+        int padding = 0;
+        if ((frameFlags & FLAG_PADDED) != 0) {
+            if (frameLength < 1) {
+                throw new ProtocolException(FRAME_SIZE_ERROR, "Trama HEADERS demasiado corta");
+            }
+            padding = payload[0] & 0xFF;
+            start = 1;
+        }
+        if ((frameFlags & FLAG_PRIORITY) != 0) {
+            if (frameLength < start + 5) {
+                throw new ProtocolException(FRAME_SIZE_ERROR, "Trama HEADERS demasiado corta");
+            }
+            if ((readInt(payload, start) & 0x7FFFFFFF) == frameStreamId) {
+                throw new ProtocolException(PROTOCOL_ERROR, "Un stream no puede depender de sí mismo");
+            }
+            start += 5;
+        }
+        if (padding > frameLength - start) {
+            throw new ProtocolException(PROTOCOL_ERROR, "Relleno de HEADERS inválido");
+        }
+        headerBlockLength = 0;
+        headerBlockStreamId = frameStreamId;
+        headerBlockEndStream = (frameFlags & FLAG_END_STREAM) != 0;
+        appendHeaderBlock(start, frameLength - padding - start);
+    }
+
+    private void onContinuation() throws IOException {
+        if (headerBlockStreamId == 0) {
+            throw new ProtocolException(PROTOCOL_ERROR, "CONTINUATION sin HEADERS previo");
+        }
+        appendHeaderBlock(0, frameLength);
+    }
+
+    private void appendHeaderBlock(int offset, int length) throws IOException {
+        if (headerBlockLength + length > MAX_HEADER_BLOCK_SIZE) {
+            throw new ProtocolException(ENHANCE_YOUR_CALM, "Bloque de encabezados demasiado grande");
+        }
+        if (headerBlockLength + length > headerBlock.length) {
+            byte[] grown = new byte[Math.max(headerBlock.length * 2, headerBlockLength + length)];
+            System.arraycopy(headerBlock, 0, grown, 0, headerBlockLength);
+            headerBlock = grown;
+        }
+        System.arraycopy(payload, offset, headerBlock, headerBlockLength, length);
+        headerBlockLength += length;
+        if ((frameFlags & FLAG_END_HEADERS) != 0) {
+            int streamId = headerBlockStreamId;
+            headerBlockStreamId = 0;
+            onHeaderBlock(streamId, headerBlockEndStream);
+        }
+    }
+
+    /**
+     * Handles a complete header block: a new request, or the trailers of one whose body
+     * is still arriving
+     */
+    private void onHeaderBlock(int streamId, boolean endStream) throws IOException {
+        // Decoded even when the stream is refused, since it updates the shared table
+        fields.clear();
+        decoder.decode(headerBlock, 0, headerBlockLength, fields);
+        if ((streamId & 1) == 0) {
+            throw new ProtocolException(PROTOCOL_ERROR, "Identificador de stream de cliente par: " + streamId);
+        }
+
+        Stream existing = streams.get(streamId);
+        if (existing != null) {
+            if (existing.endStreamReceived) {
+                throw new ProtocolException(STREAM_CLOSED, "HEADERS en un stream cerrado: " + streamId);
+            }
+            if (!endStream) {
+                resetStream(streamId, PROTOCOL_ERROR);
+                return;
+            }
+            existing.endStreamReceived = true;
+            startResponse(existing);
+            return;
+        }
+        if (streamId <= lastStreamId) {
+            throw new ProtocolException(STREAM_CLOSED, "HEADERS en un stream cerrado: " + streamId);
+        }
+        lastStreamId = streamId;
+        if (streams.size() >= config.getHttp2MaxConcurrentStreams()) {
+            writeResetStream(streamId, REFUSED_STREAM);
+            return;
+        }
+
+        HttpRequestParser request = parsers.isEmpty() ? new HttpRequestParser() : parsers.poll();
+        HttpRequestParser.Result result = toHttp1Head(fields, request);
+        if (result == null) {
+            recycle(request);
+            writeResetStream(streamId, PROTOCOL_ERROR);
+            return;
+        }
+        Stream stream = new Stream(streamId, request, initialStreamWindow);
+        stream.parseResult = result;
+        stream.endStreamReceived = endStream;
+        streams.put(streamId, stream);
+        if (endStream) {
+            startResponse(stream);
+        }
+    }
+
+    /**
+     * Rebuilds a decoded request as an HTTP/1.1 head and parses it, after the checks of
+     * RFC 9113, section 8.3: the pseudo-headers come first, each once, and :method,
+     * :scheme and :path are present; names are lower case; connection-specific headers
+     * are not allowed
+     * @return How parsing ended, or null if the request is malformed
+     */
+    private HttpRequestParser.Result toHttp1Head(List<Hpack.HeaderField> fields, HttpRequestParser request) {
+        String method = null;
+        String scheme = null;
+        String path = null;
+        String authority = null;
+        boolean regularSeen = false;
+        int headersStart = -1;
+        requestHead.setLength(0);
+        for (int i = 0; i < fields.size(); i++) {
+            Hpack.HeaderField field = fields.get(i);
+            String name = field.name;
+            String value = field.value;
+            if (!isValidValue(value)) {
+                return null;
+            }
+            if (name.startsWith(":")) {
+                if (regularSeen) {
+                    return null;
+                }
+                if (name.equals(":method") && method == null) {
+                    method = value;
+                } else if (name.equals(":scheme") && scheme == null) {
+                    scheme = value;
+                } else if (name.equals(":path") && path == null) {
+                    path = value;
+                } else if (name.equals(":authority") && authority == null) {
+                    authority = value;
+                } else {
+                    return null;
+                }
+                continue;
+            }
+            regularSeen = true;
+            if (!isValidName(name) || name.equals("connection") || name.equals("keep-alive")
+                || name.equals("proxy-connection") || name.equals("transfer-encoding") || name.equals("upgrade")
+                || (name.equals("te") && !value.equals("trailers"))) {
+                return null;
+            }
+            if (headersStart < 0) {
+                headersStart = requestHead.length();
+            }
+            requestHead.append(name).append(": ").append(value).append("\r\n");
+        }
+        if (method == null || scheme == null || path == null || path.isEmpty()
+            || method.indexOf(' ') >= 0 || path.indexOf(' ') >= 0) {
+            return null;
+        }
+
+        String headers = headersStart < 0 ? "" : requestHead.substring(headersStart);
+        requestHead.setLength(0);
+        requestHead.append(method).append(' ').append(path).append(" HTTP/2.0\r\n");
+        if (authority != null) {
+            requestHead.append("host: ").append(authority).append("\r\n");
+        }
+        requestHead.append(headers).append("\r\n");
+        ByteBuffer head = ByteBuffer.wrap(requestHead.toString().getBytes(StandardCharsets.ISO_8859_1));
+        HttpRequestParser.Result result = request.parse(head);
+        return result == HttpRequestParser.Result.INCOMPLETE ? HttpRequestParser.Result.MALFORMED : result;
+    }
+
+    private static boolean isValidName(String name) {
+        if (name.isEmpty()) {
+            return false;
+        }
+        for (int i = 0; i < name.length(); i++) {
+            char c = name.charAt(i);
+            if (c <= ' ' || c >= 0x7F || c == ':' || (c >= 'A' && c <= 'Z')) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static boolean isValidValue(String value) {
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            if (c == '\r' || c == '\n' || c == 0) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private void onPriority() throws IOException {
+        requireStream();
+        if (frameLength != 5) {
+            resetStream(frameStreamId, FRAME_SIZE_ERROR);
+        }
+        // Priorities are advisory; streams are served in turn
+    }
+
+    private void onResetStream() throws IOException {
+        requireStream();
+        if (frameLength != 4) {
+            throw new ProtocolException(FRAME_SIZE_ERROR, "Trama RST_STREAM de tamaño inválido");
+        }
+        if (frameStreamId > lastStreamId) {
+            throw new ProtocolException(PROTOCOL_ERROR, "RST_STREAM en un stream inactivo: " + frameStreamId);
+        }
+        Stream stream = streams.remove(frameStreamId);
+        if (stream != null) {
+            ready.remove(stream);
+            release(stream);
+        }
+    }
+
+    private void onSettings() throws IOException {
+        requireConnectionStream();
+        if ((frameFlags & FLAG_ACK) != 0) {
+            if (frameLength != 0) {
+                throw new ProtocolException(FRAME_SIZE_ERROR, "SETTINGS con ACK no lleva contenido");
+            }
+            return;
+        }
+        if (frameLength % 6 != 0) {
+            throw new ProtocolException(FRAME_SIZE_ERROR, "Trama SETTINGS de tamaño inválido");
+        }
+        applySettings(payload, 0, frameLength);
+        settingsReceived = true;
+        writeFrameHeader(0, SETTINGS, FLAG_ACK, 0);
+    }
+
+    private void applySettings(byte[] settings, int offset, int length) throws IOException {
+        for (int i = offset; i < offset + length; i += 6) {
+            int id = ((settings[i] & 0xFF) << 8) | (settings[i + 1] & 0xFF);
+            long value = readInt(settings, i + 2) & 0xFFFFFFFFL;
+            switch (id) {
+                case SETTINGS_HEADER_TABLE_SIZE:
+                    encoder.setMaxTableSize((int) Math.min(value, Integer.MAX_VALUE));
+                    break;
+                case SETTINGS_ENABLE_PUSH:
+                    if (value > 1) {
+                        throw new ProtocolException(PROTOCOL_ERROR, "SETTINGS_ENABLE_PUSH inválido: " + value);
+                    }
+                    break;
+                case SETTINGS_INITIAL_WINDOW_SIZE:
+                    if (value > MAX_WINDOW_SIZE) {
+                        throw new ProtocolException(FLOW_CONTROL_ERROR, "Ventana inicial inválida: " + value);
+                    }
+                    // Changes the window of every open stream by the difference
+                    long delta = value - initialStreamWindow;
+                    initialStreamWindow = value;
+                    for (Stream stream : streams.values()) {
+                        stream.sendWindow += delta;
+                        if (stream.sendWindow > MAX_WINDOW_SIZE) {
+                            throw new ProtocolException(FLOW_CONTROL_ERROR, "Ventana de stream excedida");
+                        }
+                        schedule(stream);
+                    }
+                    break;
+                case SETTINGS_MAX_FRAME_SIZE:
+                    if (value < DEFAULT_MAX_FRAME_SIZE || value > MAX_ALLOWED_FRAME_SIZE) {
+                        throw new ProtocolException(PROTOCOL_ERROR, "SETTINGS_MAX_FRAME_SIZE inválido: " + value);
+                    }
+                    peerMaxFrameSize = (int) value;
+                    break;
+                default:
+                    // Unknown settings are ignored (RFC 9113, section 6.5.2)
+                    break;
+            }
+        }
+    }
+
+    private void onPing() throws IOException {
+        requireConnectionStream();
+        if (frameLength != 8) {
+            throw new ProtocolException(FRAME_SIZE_ERROR, "Trama PING de tamaño inválido");
+        }
+        if ((frameFlags & FLAG_ACK) == 0) {
+            writeFrameHeader(8, PING, FLAG_ACK, 0);
+            out.write(payload, 0, 8);
+        }
+    }
+
+    private void onWindowUpdate() throws IOException {
+        if (frameLength != 4) {
+            throw new ProtocolException(FRAME_SIZE_ERROR, "Trama WINDOW_UPDATE de tamaño inválido");
+        }
+        int increment = readInt(payload, 0) & 0x7FFFFFFF;
+        if (frameStreamId == 0) {
+            if (increment == 0) {
+                throw new ProtocolException(PROTOCOL_ERROR, "Incremento de ventana nulo");
+            }
+            connectionSendWindow += increment;
+            if (connectionSendWindow > MAX_WINDOW_SIZE) {
+                throw new ProtocolException(FLOW_CONTROL_ERROR, "Ventana de conexión excedida");
+            }
+            return;
+        }
+        Stream stream = streams.get(frameStreamId);
+        if (stream == null) {
+            if (frameStreamId > lastStreamId) {
+                throw new ProtocolException(PROTOCOL_ERROR, "WINDOW_UPDATE en un stream inactivo: " + frameStreamId);
+            }
+            return;
+        }
+        if (increment == 0) {
+            resetStream(stream.id, PROTOCOL_ERROR);
+            return;
+        }
+        stream.sendWindow += increment;
+        if (stream.sendWindow > MAX_WINDOW_SIZE) {
+            resetStream(stream.id, FLOW_CONTROL_ERROR);
+            return;
+        }
+        schedule(stream);
+    }
+
+    private void requireStream() throws ProtocolException {
+        if (frameStreamId == 0) {
+            throw new ProtocolException(PROTOCOL_ERROR, "Trama de tipo " + frameType + " en el stream 0");
+        }
+    }
+
+    private void requireConnectionStream() throws ProtocolException {
+        if (frameStreamId != 0) {
+            throw new ProtocolException(PROTOCOL_ERROR, "Trama de tipo " + frameType + " fuera del stream 0");
+        }
+    }
+
+    /**
+     * Answers a request whose head (and body, if any) has fully arrived: sends the
+     * response headers and queues the body for the DATA frames
+     */
+    private void startResponse(Stream stream) throws IOException {
+        stream.startNanos = System.nanoTime();
+        AdmissionController admission = server.getAdmissionController();
+        HttpResponse response;
+        if (admission.tryAcquireRequest()) {
+            stream.admitted = true;
+            response = server.processRequest(stream.request, stream.parseResult, clientAddress);
+        } else {
+            response = server.errorResponse(503, "Service Unavailable",
+                                            "Servidor saturado, intente de nuevo más tarde");
+            response.addHeader("Retry-After", String.valueOf(admission.getRetryAfterSeconds()));
+        }
+        stream.response = response;
+
+        if (response.hasContent()) {
+            if (response.getBodyStream() != null) {
+                stream.bodyStream = response.getBodyStream();
+            } else if (response.getBodyFile() != null) {
+                stream.bodyStream = new RegionStream(response);
+            } else {
+                ByteBuffer body = response.newBodyBuffer();
+                stream.memoryBody = body != null && body.hasRemaining() ? body : null;
+            }
+        }
+        writeHeaders(stream, !stream.hasPendingData());
+        if (stream.hasPendingData()) {
+            schedule(stream);
+        } else {
+            complete(stream);
+        }
+    }
+
+    /**
+     * Encodes the response head with HPACK: the same fields {@link HttpHeaderEncoder}
+     * writes for HTTP/1.1, minus the connection-specific ones
+     */
+    private void writeHeaders(Stream stream, boolean endStream) throws IOException {
+        HttpResponse response = stream.response;
+        encoder.beginBlock();
+        encoder.status(response.getStatusCode());
+        encoder.header("date", new String(HttpHeaderEncoder.currentDate(), StandardCharsets.ISO_8859_1), true);
+        encoder.header("server", SERVER_NAME, true);
+        if (response.hasContent()) {
+            encoder.header("content-type", response.getContentType(), true);
+            if (response.getContentLength() >= 0) {
+                encoder.header("content-length", String.valueOf(response.getContentLength()), false);
+            }
+            if (response.isGzipEncoded()) {
+                encoder.header("content-encoding", "gzip", true);
+            }
+        }
+        if (response.isVaryAcceptEncoding()) {
+            encoder.header("vary", "Accept-Encoding", true);
+        }
+        FileValidators validators = response.getValidators();
+        if (validators != null) {
+            encoder.header("etag", new String(validators.getEtagBytes(), StandardCharsets.ISO_8859_1), false);
+            encoder.header("last-modified",
+                           new String(validators.getLastModifiedBytes(), StandardCharsets.ISO_8859_1), false);
+        }
+        if (response.isAcceptRanges()) {
+            encoder.header("accept-ranges", "bytes", true);
+        }
+        for (byte[] line : response.getExtraHeaders()) {
+            // Stored as "Name: value\r\n"
+            String header = new String(line, 0, line.length - 2, StandardCharsets.ISO_8859_1);
+            int colon = header.indexOf(':');
+            encoder.header(header.substring(0, colon).toLowerCase(), header.substring(colon + 1).trim(), false);
+        }
+
+        // Split into HEADERS and CONTINUATION frames; header frames are not flow-controlled
+        byte[] block = encoder.block();
+        int length = encoder.length();
+        int offset = 0;
+        int type = HEADERS;
+        do {
+            int fragment = Math.min(length - offset, peerMaxFrameSize);
+            int flags = offset + fragment == length ? FLAG_END_HEADERS : 0;
+            if (type == HEADERS && endStream) {
+                flags |= FLAG_END_STREAM;
+            }
+            writeFrameHeader(fragment, type, flags, stream.id);
+            out.write(block, offset, fragment);
+            offset += fragment;
+            type = CONTINUATION;
+        } while (offset < length);
+    }
+
+    /**
+     * Sends DATA frames while the connection window lasts, one frame per ready stream in
+     * turn; a stream whose own window is exhausted waits for its WINDOW_UPDATE
+     */
+    private void writeReadyStreams() throws IOException {
+        int maxFrame = Math.min(peerMaxFrameSize, DEFAULT_MAX_FRAME_SIZE);
+        while (connectionSendWindow > 0 && !ready.isEmpty()) {
+            Stream stream = ready.poll();
+            stream.queued = false;
+            if (stream.sendWindow <= 0) {
+                continue;
+            }
+            watchdog.arm(config.getWriteTimeoutMillis());
+            int allowed = (int) Math.min(Math.min(connectionSendWindow, stream.sendWindow), maxFrame);
+            int length;
+            boolean end;
+            if (stream.memoryBody != null) {
+                ByteBuffer body = stream.memoryBody;
+                length = Math.min(allowed, body.remaining());
+                body.get(dataFrame, FRAME_HEADER_SIZE, length);
+                end = !body.hasRemaining();
+            } else {
+                ByteBuffer target = ByteBuffer.wrap(dataFrame, FRAME_HEADER_SIZE, allowed);
+                int read = 0;
+                try {
+                    while (target.hasRemaining() && (read = stream.bodyStream.read(target)) > 0) {
+                        // Fill the frame
+                    }
+                } catch (IOException e) {
+                    // Only this response is cut short; the other streams go on
+                    eventLog.error("Error leyendo el cuerpo del stream " + stream.id + ": " + e.getMessage());
+                    resetStream(stream.id, INTERNAL_ERROR);
+                    continue;
+                }
+                length = target.position() - FRAME_HEADER_SIZE;
+                end = read < 0;
+                if (length == 0 && !end) {
+                    // Too little window for the next character; wait for WINDOW_UPDATE
+                    continue;
+                }
+                if (stream.response.getBodyStream() != null) {
+                    stream.response.addStreamedLength(length);
+                }
+            }
+            putFrameHeader(dataFrame, length, DATA, end ? FLAG_END_STREAM : 0, stream.id);
+            out.write(dataFrame, 0, FRAME_HEADER_SIZE + length);
+            connectionSendWindow -= length;
+            stream.sendWindow -= length;
+            if (end) {
+                stream.memoryBody = null;
+                stream.bodyStream = null;
+                complete(stream);
+            } else {
+                schedule(stream);
+            }
+        }
+    }
+
+    private void schedule(Stream stream) {
+        if (!stream.queued && stream.hasPendingData() && stream.sendWindow > 0 && streams.containsKey(stream.id)) {
+            stream.queued = true;
+            ready.add(stream);
+        }
+    }
+
+    private void complete(Stream stream) {
+        streams.remove(stream.id);
+        server.recordAccess(stream.request, clientAddress, stream.response, stream.startNanos);
+        release(stream);
+    }
+
+    /**
+     * Ends a stream from the server side
+     */
+    private void resetStream(int streamId, int errorCode) throws IOException {
+        writeResetStream(streamId, errorCode);
+        Stream stream = streams.remove(streamId);
+        if (stream != null) {
+            ready.remove(stream);
+            release(stream);
+        }
+    }
+
+    private void release(Stream stream) {
+        if (stream.bodyStream instanceof RegionStream) {
+            try {
+                stream.bodyStream.close();
+            } catch (IOException e) {
+                eventLog.error("Error cerrando archivo de respuesta: " + e.getMessage());
+            }
+        }
+        stream.bodyStream = null;
+        stream.memoryBody = null;
+        if (stream.response != null) {
+            stream.response.releaseBody();
+        }
+        if (stream.admitted) {
+            stream.admitted = false;
+            server.getAdmissionController().releaseRequest();
+        }
+        recycle(stream.request);
+    }
+
+    private void recycle(HttpRequestParser request) {
+        if (request != null && parsers.size() < config.getHttp2MaxConcurrentStreams()) {
+            request.reset();
+            parsers.add(request);
+        }
+    }
+
+    private void writeSettings() throws IOException {
+        writeFrameHeader(18, SETTINGS, 0, 0);
+        writeSetting(SETTINGS_MAX_CONCURRENT_STREAMS, config.getHttp2MaxConcurrentStreams());
+        writeSetting(SETTINGS_ENABLE_PUSH, 0);
+        writeSetting(SETTINGS_MAX_HEADER_LIST_SIZE, HttpRequestParser.DEFAULT_MAX_HEADER_SIZE);
+    }
+
+    private void writeSetting(int id, int value) throws IOException {
+        out.write(id >>> 8);
+        out.write(id);
+        writeInt(value);
+    }
+
+    private void writeWindowUpdate(int streamId, int increment) throws IOException {
+        writeFrameHeader(4, WINDOW_UPDATE, 0, streamId);
+        writeInt(increment);
+    }
+
+    private void writeResetStream(int streamId, int errorCode) throws IOException {
+        writeFrameHeader(4, RST_STREAM, 0, streamId);
+        writeInt(errorCode);
+    }
+
+    private void writeGoAway(int errorCode, String debug) throws IOException {
+        byte[] debugData = debug.getBytes(StandardCharsets.UTF_8);
+        writeFrameHeader(8 + debugData.length, GOAWAY, 0, 0);
+        writeInt(lastStreamId);
+        writeInt(errorCode);
+        out.write(debugData);
+    }
+
+    private void writeFrameHeader(int length, int type, int flags, int streamId) throws IOException {
+        putFrameHeader(frameHeader, length, type, flags, streamId);
+        out.write(frameHeader, 0, FRAME_HEADER_SIZE);
+    }
+
+    private void writeInt(int value) throws IOException {
+        out.write(value >>> 24);
+        out.write(value >>> 16);
+        out.write(value >>> 8);
+        out.write(value);
+    }
+
+    private static void putFrameHeader(byte[] target, int length, int type, int flags, int streamId) {
+        target[0] = (byte) (length >>> 16);
+        target[1] = (byte) (length >>> 8);
+        target[2] = (byte) length;
+        target[3] = (byte) type;
+        target[4] = (byte) flags;
+        target[5] = (byte) (streamId >>> 24);
+        target[6] = (byte) (streamId >>> 16);
+        target[7] = (byte) (streamId >>> 8);
+        target[8] = (byte) streamId;
+    }
+
+    private static int readInt(byte[] source, int offset) {
+        return ((source[offset] & 0xFF) << 24) | ((source[offset + 1] & 0xFF) << 16)
+               | ((source[offset + 2] & 0xFF) << 8) | (source[offset + 3] & 0xFF);
+    }
+
+    /**
+     * Reads the regions of a file body (a whole file, or the parts of a Range response
+     * with their multipart headers) into DATA frames
+     */
+    private static final class RegionStream implements BodyStream {
+
+        private final HttpResponse response;
+        private FileChannel file;
+        private int regionIndex;
+        private ByteBuffer pendingBytes;
+        private long position;
+        private long remaining = -1;
+
+        RegionStream(HttpResponse response) {
+            this.response = response;
+        }
+
+        @Override
+        public int read(ByteBuffer target) throws IOException {
+            if (file == null) {
+                file = FileChannel.open(response.getBodyFile(), StandardOpenOption.READ);
+            }
+            int start = target.position();
+            HttpResponse.FileRegion[] regions = response.getRegions();
+            while (target.hasRemaining()) {
+                if (pendingBytes != null && pendingBytes.hasRemaining()) {
+                    int count = Math.min(target.remaining(), pendingBytes.remaining());
+                    target.put(pendingBytes.array(), pendingBytes.position(), count);
+                    pendingBytes.position(pendingBytes.position() + count);
+                    continue;
+                }
+                if (remaining > 0) {
+                    int limit = target.limit();
+                    target.limit(target.position() + (int) Math.min(target.remaining(), remaining));
+                    int read = file.read(target, position);
+                    target.limit(limit);
+                    if (read < 0) {
+                        throw new IOException("El archivo se truncó durante el envío: " + response.getBodyFile());
+                    }
+                    position += read;
+                    remaining -= read;
+                    continue;
+                }
+                if (regionIndex < regions.length) {
+                    HttpResponse.FileRegion region = regions[regionIndex++];
+                    pendingBytes = region.prefix != null ? ByteBuffer.wrap(region.prefix) : null;
+                    position = region.position;
+                    remaining = region.length;
+                    continue;
+                }
+                if (response.getTrailer() != null && regionIndex == regions.length) {
+                    pendingBytes = ByteBuffer.wrap(response.getTrailer());
+                    regionIndex++;
+                    continue;
+                }
+                break;
+            }
+            int written = target.position() - start;
+            return written == 0 ? -1 : written;
+        }
+
+        @Override
+        public void close() throws IOException {
+            if (file != null) {
+                file.close();
+            }
+        }
+    }
+}
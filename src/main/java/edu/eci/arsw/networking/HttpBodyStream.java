@@ -0,0 +1,215 @@
+package edu.eci.arsw.networking;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+
+/**
+ * A message body read off an HTTP/1.1 connection, framed by Content-Length, by
+ * "Transfer-Encoding: chunked" or, for responses without either, by the connection
+ * closing. Reads return the body bytes only; chunk sizes, extensions and trailers are
+ * consumed and dropped.
+ *
+ * The stream starts with the bytes already read past the head, held in the caller's
+ * buffer, and then reads from the connection. Body bytes are read straight into the
+ * reader's buffer whenever the connection buffer is empty; that buffer is only refilled
+ * to parse the chunk size lines, so a body of any length costs no more memory than the
+ * two buffers. {@link ReverseProxy} uses it for both directions: the request body a
+ * client sends and the response body an upstream returns.
+ *
+ * @author GitHub Copilot Implementation
+ * @version 1.0
+ */
+final class HttpBodyStream implements BodyStream {
+
+    private static final int MAX_CHUNK_LINE = 4096;
+
+    private enum State { DATA, CHUNK_SIZE, CHUNK_END, TRAILERS, DONE }
+
+    private final ByteBuffer buffered;
+    private final InputStream in;
+    private final boolean chunked;
+    private final boolean untilClose;
+    private final StringBuilder line = new StringBuilder();
+    private State state;
+    private long remaining;
+
+    private HttpBodyStream(ByteBuffer buffered, InputStream in, boolean chunked, long length) {
+        this.buffered = buffered;
+        this.in = in;
+        this.chunked = chunked;
+        this.untilClose = !chunked && length < 0;
+        this.remaining = length;
+        this.state = chunked ? State.CHUNK_SIZE : length == 0 ? State.DONE : State.DATA;
+    }
+
+    /**
+     * A body of a known number of bytes
+     * @param buffered Bytes received past the head, in read mode; refilled from the connection
+     * @param in The connection
+     * @param length Content-Length of the body
+     */
+    static HttpBodyStream ofLength(ByteBuffer buffered, InputStream in, long length) {
+        return new HttpBodyStream(buffered, in, false, length);
+    }
+
+    /**
+     * A body in "Transfer-Encoding: chunked"
+     * @param buffered Bytes received past the head, in read mode; refilled from the connection
+     * @param in The connection
+     */
+    static HttpBodyStream ofChunked(ByteBuffer buffered, InputStream in) {
+        return new HttpBodyStream(buffered, in, true, 0);
+    }
+
+    /**
+     * A response body that ends when the server closes the connection
+     * @param buffered Bytes received past the head, in read mode
+     * @param in The connection
+     */
+    static HttpBodyStream untilClose(ByteBuffer buffered, InputStream in) {
+        return new HttpBodyStream(buffered, in, false, -1);
+    }
+
+    /**
+     * The body of a parsed request, framed as its head announces
+     * @param request Complete request head that announces a body
+     * @param buffered Bytes received past the head, in read mode
+     * @param in The client connection
+     * @return The body, or null when its framing is not supported (a transfer coding other
+     *         than chunked) or the Content-Length is invalid
+     */
+    static HttpBodyStream ofRequest(HttpRequestParser request, ByteBuffer buffered, InputStream in) {
+        AsciiView transferEncoding = request.header("Transfer-Encoding");
+        if (transferEncoding != null) {
+            return transferEncoding.equalsIgnoreCase("chunked") ? ofChunked(buffered, in) : null;
+        }
+        AsciiView contentLength = request.header("Content-Length");
+        long length = contentLength != null ? contentLength.parseLong() : 0;
+        return length >= 0 ? ofLength(buffered, in, length) : null;
+    }
+
+    /** Whether the body is chunked, so its length is not known up front */
+    boolean isChunked() {
+        return chunked;
+    }
+
+    /**
+     * The announced body length
+     * @return The Content-Length, or -1 for a chunked body or one that ends with the connection
+     */
+    long getLength() {
+        return chunked || untilClose ? -1 : remaining;
+    }
+
+    /**
+     * Checks whether the whole body has been read, so the next message on the connection
+     * starts right after it
+     */
+    boolean isComplete() {
+        return state == State.DONE && !untilClose;
+    }
+
+    @Override
+    public int read(ByteBuffer target) throws IOException {
+        while (true) {
+            if (state == State.DONE) {
+                return -1;
+            }
+            if (state == State.DATA) {
+                return readData(target);
+            }
+            String next = readLine();
+            if (next == null) {
+                throw new IOException("Cuerpo HTTP fragmentado incompleto");
+            }
+            if (state == State.CHUNK_SIZE) {
+                remaining = parseChunkSize(next);
+                state = remaining == 0 ? State.TRAILERS : State.DATA;
+            } else if (state == State.CHUNK_END) {
+                if (!next.isEmpty()) {
+                    throw new IOException("Fragmento HTTP sin CRLF final");
+                }
+                state = State.CHUNK_SIZE;
+            } else if (next.isEmpty()) {
+                // Trailer fields are not forwarded
+                state = State.DONE;
+            }
+        }
+    }
+
+    private int readData(ByteBuffer target) throws IOException {
+        int wanted = untilClose ? target.remaining() : (int) Math.min(target.remaining(), remaining);
+        int read;
+        if (buffered.hasRemaining()) {
+            read = Math.min(wanted, buffered.remaining());
+            int limit = buffered.limit();
+            buffered.limit(buffered.position() + read);
+            target.put(buffered);
+            buffered.limit(limit);
+        } else {
+            read = in.read(target.array(), target.arrayOffset() + target.position(), wanted);
+            if (read < 0) {
+                if (untilClose) {
+                    state = State.DONE;
+                    return -1;
+                }
+                throw new IOException("Cuerpo HTTP incompleto: faltan " + remaining + " bytes");
+            }
+            target.position(target.position() + read);
+        }
+        if (!untilClose) {
+            remaining -= read;
+            if (remaining == 0) {
+                state = chunked ? State.CHUNK_END : State.DONE;
+            }
+        }
+        return read;
+    }
+
+    /**
+     * Reads one CRLF- or LF-terminated line of chunk framing
+     * @return The line without its terminator, or null if the connection ended first
+     */
+    private String readLine() throws IOException {
+        line.setLength(0);
+        while (true) {
+            if (!buffered.hasRemaining() && !refill()) {
+                return null;
+            }
+            char c = (char) (buffered.get() & 0xFF);
+            if (c == '\n') {
+                int length = line.length();
+                if (length > 0 && line.charAt(length - 1) == '\r') {
+                    line.setLength(length - 1);
+                }
+                return line.toString();
+            }
+            if (line.length() == MAX_CHUNK_LINE) {
+                throw new IOException("Línea de fragmento HTTP demasiado larga");
+            }
+            line.append(c);
+        }
+    }
+
+    private boolean refill() throws IOException {
+        buffered.clear();
+        int read = in.read(buffered.array(), buffered.arrayOffset(), buffered.capacity());
+        buffered.limit(Math.max(read, 0));
+        return read > 0;
+    }
+
+    private static long parseChunkSize(String line) throws IOException {
+        int end = line.indexOf(';');
+        String size = (end < 0 ? line : line.substring(0, end)).trim();
+        try {
+            long value = size.isEmpty() || size.length() > 15 ? -1 : Long.parseLong(size, 16);
+            if (value >= 0) {
+                return value;
+            }
+        } catch (NumberFormatException e) {
+            // Reported below
+        }
+        throw new IOException("Tamaño de fragmento HTTP inválido: " + line);
+    }
+}
@@ -0,0 +1,214 @@
+package edu.eci.arsw.networking;
+
+import java.nio.BufferOverflowException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.time.Instant;
+import java.time.ZoneOffset;
+import java.time.format.DateTimeFormatter;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Writes the status line and headers of an {@link HttpResponse} straight into a byte buffer.
+ *
+ * Everything that does not change between responses is encoded once: the static header
+ * lines are byte constants, status lines and Content-Type values are cached per value, and
+ * the Date header is formatted at most once per second and shared by every connection.
+ * Numbers are written digit by digit, so encoding a response allocates nothing in the
+ * steady state, unlike building the block with string concatenation and {@code new Date()}.
+ *
+ * @author GitHub Copilot Implementation
+ * @version 1.0
+ */
+final class HttpHeaderEncoder {
+
+    private static final byte[] HTTP_VERSION = ascii("HTTP/1.1 ");
+    private static final byte[] CRLF = ascii("\r\n");
+    private static final byte[] DATE = ascii("Date: ");
+    private static final byte[] SERVER = ascii("Server: SimpleWebServer/1.0\r\n");
+    private static final byte[] CONTENT_TYPE = ascii("Content-Type: ");
+    private static final byte[] CONTENT_LENGTH = ascii("Content-Length: ");
+    private static final byte[] TRANSFER_ENCODING_CHUNKED = ascii("Transfer-Encoding: chunked\r\n");
+    private static final byte[] ETAG = ascii("ETag: ");
+    private static final byte[] LAST_MODIFIED = ascii("Last-Modified: ");
+    private static final byte[] ACCEPT_RANGES = ascii("Accept-Ranges: bytes\r\n");
+    private static final byte[] CONTENT_ENCODING_GZIP = ascii("Content-Encoding: gzip\r\n");
+    private static final byte[] VARY_ACCEPT_ENCODING = ascii("Vary: Accept-Encoding\r\n");
+    private static final byte[] CONNECTION_KEEP_ALIVE = ascii("Connection: keep-alive\r\nKeep-Alive: timeout=");
+    private static final byte[] KEEP_ALIVE_MAX = ascii(", max=");
+    private static final byte[] CONNECTION_CLOSE = ascii("Connection: close\r\n");
+
+    /** Content types cached as bytes; bounded so odd per-response values cannot grow it */
+    private static final int MAX_CACHED_CONTENT_TYPES = 64;
+    private static final Map<String, byte[]> CONTENT_TYPES = new ConcurrentHashMap<>();
+
+    private static final StatusLine[] STATUS_LINES = new StatusLine[600];
+
+    private static final DateTimeFormatter HTTP_DATE_FORMAT =
+        DateTimeFormatter.RFC_1123_DATE_TIME.withZone(ZoneOffset.UTC);
+    private static volatile CachedDate cachedDate = new CachedDate(System.currentTimeMillis() / 1000);
+
+    /**
+     * Encoded "HTTP/1.1 code text\r\n" for one status code and text
+     */
+    private static final class StatusLine {
+        final String text;
+        final byte[] bytes;
+
+        StatusLine(int code, String text) {
+            this.text = text;
+            this.bytes = ascii("HTTP/1.1 " + code + " " + text + "\r\n");
+        }
+    }
+
+    /**
+     * Value of the Date header for one second, in IMF-fixdate format
+     */
+    private static final class CachedDate {
+        final long epochSecond;
+        final byte[] bytes;
+
+        CachedDate(long epochSecond) {
+            this.epochSecond = epochSecond;
+            this.bytes = ascii(HTTP_DATE_FORMAT.format(Instant.ofEpochSecond(epochSecond)));
+        }
+    }
+
+    private HttpHeaderEncoder() {
+    }
+
+    /**
+     * Encodes the status line and headers, including the blank line that ends them
+     * @param response Response to describe
+     * @param target Buffer receiving the bytes at its current position
+     * @throws BufferOverflowException If the buffer is too small; nothing useful
+     *         is left in it and the caller retries with a larger one
+     */
+    static void encode(HttpResponse response, ByteBuffer target) {
+        writeStatusLine(response.getStatusCode(), response.getStatusText(), target);
+        target.put(DATE).put(currentDate()).put(CRLF);
+        target.put(SERVER);
+        if (response.hasContent()) {
+            target.put(CONTENT_TYPE);
+            writeContentType(response.getContentType(), target);
+            target.put(CRLF);
+            if (response.getContentLength() >= 0) {
+                target.put(CONTENT_LENGTH);
+                writeDecimal(response.getContentLength(), target);
+                target.put(CRLF);
+            } else if (response.isChunked()) {
+                target.put(TRANSFER_ENCODING_CHUNKED);
+            }
+            // An unframed stream has no length header: closing the connection ends the body
+            if (response.isGzipEncoded()) {
+                target.put(CONTENT_ENCODING_GZIP);
+            }
+        }
+        if (response.isVaryAcceptEncoding()) {
+            target.put(VARY_ACCEPT_ENCODING);
+        }
+        FileValidators validators = response.getValidators();
+        if (validators != null) {
+            target.put(ETAG).put(validators.getEtagBytes()).put(CRLF);
+            target.put(LAST_MODIFIED).put(validators.getLastModifiedBytes()).put(CRLF);
+        }
+        if (response.isAcceptRanges()) {
+            target.put(ACCEPT_RANGES);
+        }
+        List<byte[]> extraHeaders = response.getExtraHeaders();
+        for (int i = 0; i < extraHeaders.size(); i++) {
+            target.put(extraHeaders.get(i));
+        }
+        if (response.isKeepAlive()) {
+            target.put(CONNECTION_KEEP_ALIVE);
+            writeDecimal(response.getKeepAliveTimeoutSeconds(), target);
+            target.put(KEEP_ALIVE_MAX);
+            writeDecimal(response.getRemainingRequests(), target);
+            target.put(CRLF);
+        } else {
+            target.put(CONNECTION_CLOSE);
+        }
+        target.put(CRLF);
+    }
+
+    /**
+     * Gets the Date header value for the current second, re-formatting it only when the
+     * second changes
+     * @return IMF-fixdate bytes, e.g. "Sat, 17 Oct 2026 10:00:00 GMT"
+     */
+    static byte[] currentDate() {
+        long epochSecond = System.currentTimeMillis() / 1000;
+        CachedDate date = cachedDate;
+        if (date.epochSecond != epochSecond) {
+            // Racing threads may both format the same second; either result is correct
+            date = new CachedDate(epochSecond);
+            cachedDate = date;
+        }
+        return date.bytes;
+    }
+
+    private static void writeStatusLine(int code, String text, ByteBuffer target) {
+        if (code < 0 || code >= STATUS_LINES.length) {
+            target.put(HTTP_VERSION);
+            writeDecimal(code, target);
+            target.put((byte) ' ');
+            writeAscii(text, target);
+            target.put(CRLF);
+            return;
+        }
+        StatusLine line = STATUS_LINES[code];
+        if (line == null || !line.text.equals(text)) {
+            // Immutable holder with final fields, so the unsynchronized publication is safe
+            line = new StatusLine(code, text);
+            STATUS_LINES[code] = line;
+        }
+        target.put(line.bytes);
+    }
+
+    private static void writeContentType(String contentType, ByteBuffer target) {
+        byte[] cached = CONTENT_TYPES.get(contentType);
+        if (cached == null && CONTENT_TYPES.size() < MAX_CACHED_CONTENT_TYPES) {
+            cached = CONTENT_TYPES.computeIfAbsent(contentType, HttpHeaderEncoder::ascii);
+        }
+        if (cached != null) {
+            target.put(cached);
+        } else {
+            writeAscii(contentType, target);
+        }
+    }
+
+    /**
+     * Writes a number in decimal without creating a String
+     */
+    static void writeDecimal(long value, ByteBuffer target) {
+        if (value < 0) {
+            target.put((byte) '-');
+            value = -value;
+        }
+        int digits = 1;
+        for (long rest = value / 10; rest > 0; rest /= 10) {
+            digits++;
+        }
+        int end = target.position() + digits;
+        if (end > target.limit()) {
+            throw new BufferOverflowException();
+        }
+        for (int i = end - 1; i >= end - digits; i--) {
+            target.put(i, (byte) ('0' + value % 10));
+            value /= 10;
+        }
+        target.position(end);
+    }
+
+    private static void writeAscii(String value, ByteBuffer target) {
+        for (int i = 0; i < value.length(); i++) {
+            target.put((byte) value.charAt(i));
+        }
+    }
+
+    private static byte[] ascii(String value) {
+        return value.getBytes(StandardCharsets.ISO_8859_1);
+    }
+}
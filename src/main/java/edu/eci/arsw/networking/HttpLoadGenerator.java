@@ -0,0 +1,981 @@
+package edu.eci.arsw.networking;
+
+import java.io.Closeable;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.net.InetSocketAddress;
+import java.net.Socket;
+import java.net.URI;
+import java.nio.charset.StandardCharsets;
+import java.util.Locale;
+import java.util.SplittableRandom;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * HTTP load generator for {@link SimpleWebServer} (or any HTTP/1.1 server answering with
+ * Content-Length or chunked bodies). Worker threads send GET requests over a pool of keep-alive
+ * connections in one of three modes:
+ * - closed   - Each worker sends its next request as soon as the previous one is answered,
+ *              so the server sets the pace
+ * - constant - Requests are due at a fixed rate, whatever the server does
+ * - open     - Requests are due at Poisson-distributed times with the given mean rate
+ *
+ * In the constant and open modes every request has an intended send time taken from the
+ * schedule, and its latency is measured from that time, not from when a worker got round
+ * to sending it. A server stall therefore shows up in every request that should have been
+ * sent during the stall, instead of in the single request that was waiting on the wire
+ * (the coordinated omission that makes closed-loop tools report flattering percentiles).
+ * The report shows both this corrected latency and the plain service time.
+ *
+ * Usage:
+ * <pre>
+ * java -cp target/classes edu.eci.arsw.networking.HttpLoadGenerator --url=http://127.0.0.1:8081/index.html
+ *      [--mode=closed|constant|open] [--rate=1000] [--connections=16] [--threads=16]
+ *      [--duration=10] [--warmup=1] [--timeout=5000] [--format=text|json]
+ *      [--server=blocking|nio|reuseport] [--webroot=webroot]
+ * </pre>
+ * Durations are in seconds and the timeout in milliseconds. With --server a SimpleWebServer
+ * using that engine is started in this JVM on the port of the URL; its log is silenced
+ * while the load runs.
+ *
+ * Percentiles come from the log-linear {@link MetricsRegistry.Histogram} and are reported
+ * as the upper bound of their bucket (about 6% above the true value); the maximum is exact.
+ *
+ * @author GitHub Copilot Implementation
+ * @version 1.0
+ */
+public class HttpLoadGenerator {
+
+    /**
+     * How requests are paced
+     */
+    public enum Mode {
+        CLOSED("closed"),
+        CONSTANT("constant"),
+        OPEN("open");
+
+        private final String command;
+
+        Mode(String command) {
+            this.command = command;
+        }
+
+        public String getCommand() { return command; }
+
+        public static Mode fromCommand(String command) {
+            for (Mode mode : values()) {
+                if (mode.command.equalsIgnoreCase(command)) {
+                    return mode;
+                }
+            }
+            return null;
+        }
+    }
+
+    private static final double[] PERCENTILES = {50, 90, 99, 99.9};
+    private static final String[] PERCENTILE_NAMES = {"p50", "p90", "p99", "p999"};
+
+    public static void main(String[] args) throws Exception {
+        Options options;
+        try {
+            options = Options.parse(args);
+        } catch (IllegalArgumentException e) {
+            System.err.println("Error: " + e.getMessage());
+            System.err.println("Uso: HttpLoadGenerator --url=http://127.0.0.1:8081/ [--mode=closed|constant|open] " +
+                               "[--rate=1000] [--connections=16] [--threads=16] [--duration=10] [--warmup=1] " +
+                               "[--timeout=5000] [--format=text|json] [--server=blocking|nio|reuseport] [--webroot=webroot]");
+            return;
+        }
+
+        SimpleWebServer server = null;
+        Thread serverThread = null;
+        PrintStream console = System.out;
+        PrintStream errors = System.err;
+        if (options.getServerEngine() != null) {
+            WebServerConfig config = WebServerConfig.fromSystemProperties();
+            config.setPort(options.getPort());
+            config.setWebRoot(options.getWebRoot());
+            config.setEngine(options.getServerEngine());
+            server = new SimpleWebServer(config);
+            System.setOut(new PrintStream(OutputStream.nullOutputStream()));
+            System.setErr(new PrintStream(OutputStream.nullOutputStream()));
+            serverThread = new Thread(server::startServer, "loadgen-server");
+            serverThread.setDaemon(true);
+            serverThread.start();
+        }
+
+        Report report;
+        try {
+            if (server != null) {
+                waitForServer(options);
+            }
+            report = run(options);
+        } finally {
+            if (server != null) {
+                server.stopServer();
+                // The blocking accept loop only notices the stop flag after its next accept
+                try (Socket wakeUp = new Socket(options.getHost(), options.getPort())) {
+                    wakeUp.setSoLinger(true, 0);
+                } catch (IOException e) {
+                    // Already closed
+                }
+                serverThread.join(5000);
+                EventLog.shared().flush(5000);
+                System.setOut(console);
+                System.setErr(errors);
+            }
+        }
+        System.out.println(options.isJson() ? report.toJson() : report.toText());
+    }
+
+    /**
+     * Runs one load test and waits for it to finish
+     * @param options Target, mode and sizing of the run
+     * @return Throughput, errors and latency percentiles of the measured window
+     */
+    public static Report run(Options options) throws InterruptedException {
+        BlockingQueue<Connection> pool = new ArrayBlockingQueue<>(options.getConnections());
+        for (int i = 0; i < options.getConnections(); i++) {
+            pool.add(new Connection(new InetSocketAddress(options.getHost(), options.getPort()),
+                                    options.getTimeoutMillis()));
+        }
+        byte[] request = ("GET " + options.getPath() + " HTTP/1.1\r\nHost: " + options.getHost() + ":" +
+                          options.getPort() + "\r\nUser-Agent: HttpLoadGenerator\r\n\r\n")
+            .getBytes(StandardCharsets.ISO_8859_1);
+
+        long startNanos = System.nanoTime();
+        Run state = new Run(options, pool, request, startNanos);
+        Thread[] workers = new Thread[options.getThreads()];
+        for (int i = 0; i < workers.length; i++) {
+            workers[i] = new Thread(options.getMode() == Mode.CLOSED ? state::runClosed : state::runScheduled,
+                                    "loadgen-" + i);
+            workers[i].setDaemon(true);
+            workers[i].start();
+        }
+        for (Thread worker : workers) {
+            worker.join();
+        }
+        if (state.schedule != null) {
+            state.recordUnsent();
+        }
+        for (Connection connection : pool) {
+            connection.close();
+        }
+        return new Report(options, state);
+    }
+
+    private static void waitForServer(Options options) throws InterruptedException {
+        for (int i = 0; i < 100; i++) {
+            try (Socket probe = new Socket()) {
+                probe.connect(new InetSocketAddress(options.getHost(), options.getPort()), 100);
+                return;
+            } catch (IOException e) {
+                Thread.sleep(50);
+            }
+        }
+        throw new IllegalStateException("El servidor no inició en el puerto " + options.getPort());
+    }
+
+    /**
+     * Shared state of one run: the schedule, the connection pool and the recorders
+     */
+    private static final class Run {
+
+        private final Options options;
+        private final BlockingQueue<Connection> pool;
+        private final byte[] request;
+        private final long measureStartNanos;
+        private final long endNanos;
+        /** Workers stop sending requests that are this late and count them as unsent */
+        private final long giveUpNanos;
+        private final Schedule schedule;
+        private final LatencyRecorder latency = new LatencyRecorder();
+        private final LatencyRecorder serviceTime = new LatencyRecorder();
+        private final LongAdder completed = new LongAdder();
+        private final LongAdder statusErrors = new LongAdder();
+        private final LongAdder ioErrors = new LongAdder();
+        private final LongAdder unsent = new LongAdder();
+        private final AtomicLong lastCompletionNanos;
+
+        Run(Options options, BlockingQueue<Connection> pool, byte[] request, long startNanos) {
+            this.options = options;
+            this.pool = pool;
+            this.request = request;
+            this.measureStartNanos = startNanos + TimeUnit.MILLISECONDS.toNanos(options.getWarmupMillis());
+            this.endNanos = measureStartNanos + TimeUnit.MILLISECONDS.toNanos(options.getDurationMillis());
+            this.giveUpNanos = endNanos + TimeUnit.MILLISECONDS.toNanos(options.getTimeoutMillis());
+            this.schedule = options.getMode() == Mode.CLOSED ? null : new Schedule(options, startNanos);
+            this.lastCompletionNanos = new AtomicLong(endNanos);
+        }
+
+        /**
+         * Closed loop: the next request leaves when the previous answer arrives
+         */
+        void runClosed() {
+            long now;
+            while ((now = System.nanoTime()) - endNanos < 0) {
+                send(now);
+            }
+        }
+
+        /**
+         * Constant or open loop: each request is due at its scheduled time, and a worker
+         * that falls behind sends late requests right away, charging them the delay
+         */
+        void runScheduled() {
+            while (true) {
+                long intended = schedule.next();
+                if (intended - endNanos >= 0) {
+                    return;
+                }
+                long wait;
+                while ((wait = intended - System.nanoTime()) > 0) {
+                    LockSupport.parkNanos(wait);
+                }
+                if (System.nanoTime() - giveUpNanos >= 0) {
+                    recordUnsent(intended);
+                    return;
+                }
+                send(intended);
+            }
+        }
+
+        private void send(long intendedNanos) {
+            Connection connection;
+            try {
+                connection = pool.take();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            }
+            long sentNanos = System.nanoTime();
+            int status;
+            try {
+                status = connection.exchange(request);
+            } catch (IOException e) {
+                connection.close();
+                status = -1;
+            } finally {
+                pool.add(connection);
+            }
+            long doneNanos = System.nanoTime();
+            if (intendedNanos - measureStartNanos < 0) {
+                return;
+            }
+            if (status < 0) {
+                ioErrors.increment();
+                return;
+            }
+            if (status >= 400) {
+                statusErrors.increment();
+            }
+            completed.increment();
+            latency.record(doneNanos - intendedNanos);
+            serviceTime.record(doneNanos - sentNanos);
+            lastCompletionNanos.accumulateAndGet(doneNanos, Math::max);
+        }
+
+        /**
+         * Charges requests that were due but never sent at least the time they have waited,
+         * so giving up on an overloaded server does not hide its latency
+         */
+        void recordUnsent() {
+            long intended;
+            while ((intended = schedule.next()) - endNanos < 0) {
+                recordUnsent(intended);
+            }
+        }
+
+        private void recordUnsent(long intendedNanos) {
+            if (intendedNanos - measureStartNanos >= 0) {
+                unsent.increment();
+                latency.record(System.nanoTime() - intendedNanos);
+            }
+        }
+
+        long getMeasuredNanos() {
+            return lastCompletionNanos.get() - measureStartNanos;
+        }
+    }
+
+    /**
+     * Intended send times of the constant and open modes, claimed by the workers in order
+     */
+    private static final class Schedule {
+
+        private final boolean poisson;
+        private final double intervalNanos;
+        private final long startNanos;
+        private final SplittableRandom random = new SplittableRandom();
+        private long issued;
+        private double next;
+
+        Schedule(Options options, long startNanos) {
+            this.poisson = options.getMode() == Mode.OPEN;
+            this.intervalNanos = TimeUnit.SECONDS.toNanos(1) / options.getRate();
+            this.startNanos = startNanos;
+        }
+
+        synchronized long next() {
+            long intended;
+            if (poisson) {
+                // Exponential gaps between arrivals make a Poisson process
+                next += -Math.log(1.0 - random.nextDouble()) * intervalNanos;
+                intended = startNanos + (long) next;
+            } else {
+                // Computed from the start, so rounding never accumulates into drift
+                intended = startNanos + (long) (issued * intervalNanos);
+            }
+            issued++;
+            return intended;
+        }
+    }
+
+    /**
+     * Histogram plus the exact maximum
+     */
+    private static final class LatencyRecorder {
+
+        private final MetricsRegistry.Histogram histogram = new MetricsRegistry.Histogram();
+        private final AtomicLong max = new AtomicLong();
+
+        void record(long nanos) {
+            histogram.record(nanos);
+            if (nanos > max.get()) {
+                max.accumulateAndGet(nanos, Math::max);
+            }
+        }
+    }
+
+    /**
+     * One keep-alive connection of the pool, opened on first use and again whenever the
+     * server closes it
+     */
+    private static final class Connection implements Closeable {
+
+        private static final byte[] CONTENT_LENGTH = "content-length".getBytes(StandardCharsets.US_ASCII);
+        private static final byte[] TRANSFER_ENCODING = "transfer-encoding".getBytes(StandardCharsets.US_ASCII);
+        private static final byte[] CHUNKED = "chunked".getBytes(StandardCharsets.US_ASCII);
+        private static final byte[] CONNECTION = "connection".getBytes(StandardCharsets.US_ASCII);
+        private static final byte[] CLOSE = "close".getBytes(StandardCharsets.US_ASCII);
+
+        private final InetSocketAddress address;
+        private final int timeoutMillis;
+        private final byte[] buffer = new byte[16 * 1024];
+        private int start;
+        private int limit;
+        private Socket socket;
+        private InputStream in;
+        private OutputStream out;
+
+        Connection(InetSocketAddress address, int timeoutMillis) {
+            this.address = address;
+            this.timeoutMillis = timeoutMillis;
+        }
+
+        /**
+         * Sends one request and reads its response
+         * @return The response status code
+         */
+        int exchange(byte[] request) throws IOException {
+            if (socket != null) {
+                int status = tryExchange(request, true);
+                if (status >= 0) {
+                    return status;
+                }
+                // The server closed the idle connection before our request arrived
+                close();
+            }
+            open();
+            int status = tryExchange(request, false);
+            if (status < 0) {
+                throw new EOFException("Conexión cerrada antes de la respuesta");
+            }
+            return status;
+        }
+
+        private void open() throws IOException {
+            socket = new Socket();
+            socket.setTcpNoDelay(true);
+            socket.connect(address, timeoutMillis);
+            socket.setSoTimeout(timeoutMillis);
+            in = socket.getInputStream();
+            out = socket.getOutputStream();
+            start = 0;
+            limit = 0;
+        }
+
+        /**
+         * @param reused Whether the connection already carried a request, in which case
+         *               a close before any response byte means it went stale
+         * @return The status code, or -1 if a reused connection turned out to be closed
+         */
+        private int tryExchange(byte[] request, boolean reused) throws IOException {
+            try {
+                out.write(request);
+                out.flush();
+            } catch (IOException e) {
+                if (reused) {
+                    return -1;
+                }
+                throw e;
+            }
+            return readResponse(reused);
+        }
+
+        private int readResponse(boolean reused) throws IOException {
+            int scanned = start;
+            int headEnd;
+            while ((headEnd = indexOfHeadEnd(scanned)) < 0) {
+                scanned = Math.max(start, limit - 3);
+                if (limit == buffer.length) {
+                    compact();
+                    scanned = Math.max(0, limit - 3);
+                    if (limit == buffer.length) {
+                        throw new IOException("Cabecera de respuesta demasiado grande");
+                    }
+                }
+                int read = in.read(buffer, limit, buffer.length - limit);
+                if (read < 0) {
+                    if (reused && limit == start) {
+                        return -1;
+                    }
+                    throw new EOFException("Respuesta incompleta");
+                }
+                limit += read;
+            }
+
+            // Status line: HTTP/1.x NNN
+            if (headEnd - start < 12 || buffer[start + 8] != ' ') {
+                throw new IOException("Línea de estado inválida");
+            }
+            int status = (buffer[start + 9] - '0') * 100 + (buffer[start + 10] - '0') * 10 + (buffer[start + 11] - '0');
+            boolean keepAlive = buffer[start + 7] == '1';
+            long contentLength = -1;
+            boolean chunked = false;
+            int line = nextLine(start, headEnd);
+            while (line < headEnd - 2) {
+                int lineEnd = nextLine(line, headEnd) - 2;
+                int colon = indexOf((byte) ':', line, lineEnd);
+                if (colon > 0) {
+                    int value = skipSpaces(colon + 1, lineEnd);
+                    if (nameEquals(line, colon, CONTENT_LENGTH)) {
+                        contentLength = parseLong(value, lineEnd);
+                    } else if (nameEquals(line, colon, TRANSFER_ENCODING)) {
+                        chunked = valueStartsWith(value, lineEnd, CHUNKED);
+                    } else if (nameEquals(line, colon, CONNECTION)) {
+                        keepAlive = !valueStartsWith(value, lineEnd, CLOSE);
+                    }
+                }
+                line = lineEnd + 2;
+            }
+            start = headEnd;
+
+            if (chunked) {
+                skipChunks();
+            } else if (contentLength >= 0) {
+                skip(contentLength);
+            } else if (status >= 200 && status != 204 && status != 304) {
+                // No length: the body ends when the server closes the connection
+                while (in.read(buffer) >= 0) {
+                    // Discarded
+                }
+                keepAlive = false;
+            }
+            if (!keepAlive) {
+                close();
+            }
+            return status;
+        }
+
+        private int indexOfHeadEnd(int from) {
+            for (int i = Math.max(from, start + 3); i < limit; i++) {
+                if (buffer[i] == '\n' && buffer[i - 1] == '\r' && buffer[i - 2] == '\n' && buffer[i - 3] == '\r') {
+                    return i + 1;
+                }
+            }
+            return -1;
+        }
+
+        private int nextLine(int from, int end) {
+            int newline = indexOf((byte) '\n', from, end);
+            return newline < 0 ? end : newline + 1;
+        }
+
+        private int indexOf(byte value, int from, int end) {
+            for (int i = from; i < end; i++) {
+                if (buffer[i] == value) {
+                    return i;
+                }
+            }
+            return -1;
+        }
+
+        private int skipSpaces(int from, int end) {
+            while (from < end && (buffer[from] == ' ' || buffer[from] == '\t')) {
+                from++;
+            }
+            return from;
+        }
+
+        private boolean nameEquals(int from, int colon, byte[] lowerName) {
+            if (colon - from != lowerName.length) {
+                return false;
+            }
+            for (int i = 0; i < lowerName.length; i++) {
+                if ((buffer[from + i] | 0x20) != lowerName[i]) {
+                    return false;
+                }
+            }
+            return true;
+        }
+
+        private boolean valueStartsWith(int from, int end, byte[] lowerValue) {
+            if (end - from < lowerValue.length) {
+                return false;
+            }
+            for (int i = 0; i < lowerValue.length; i++) {
+                if ((buffer[from + i] | 0x20) != lowerValue[i]) {
+                    return false;
+                }
+            }
+            return true;
+        }
+
+        private long parseLong(int from, int end) throws IOException {
+            long value = 0;
+            int i = from;
+            for (; i < end && buffer[i] >= '0' && buffer[i] <= '9'; i++) {
+                value = value * 10 + (buffer[i] - '0');
+            }
+            if (i == from) {
+                throw new IOException("Content-Length inválido");
+            }
+            return value;
+        }
+
+        private void skip(long length) throws IOException {
+            long remaining = length;
+            int buffered = (int) Math.min(remaining, limit - start);
+            start += buffered;
+            remaining -= buffered;
+            while (remaining > 0) {
+                int read = in.read(buffer, 0, (int) Math.min(buffer.length, remaining));
+                if (read < 0) {
+                    throw new EOFException("Cuerpo de respuesta incompleto");
+                }
+                remaining -= read;
+            }
+            if (start == limit) {
+                start = 0;
+                limit = 0;
+            }
+        }
+
+        /**
+         * Discards a chunked body: each chunk and its CRLF, then the trailer section
+         */
+        private void skipChunks() throws IOException {
+            long size;
+            do {
+                int lineEnd = fillLine();
+                size = parseHex(start, lineEnd);
+                start = lineEnd;
+                if (size > 0) {
+                    skip(size + 2);
+                }
+            } while (size > 0);
+            int lineEnd;
+            while ((lineEnd = fillLine()) - start > 2) {
+                start = lineEnd;
+            }
+            start = lineEnd;
+            if (start == limit) {
+                start = 0;
+                limit = 0;
+            }
+        }
+
+        /**
+         * Reads until the buffer holds a whole line
+         * @return Index just past the line's LF
+         */
+        private int fillLine() throws IOException {
+            int newline;
+            while ((newline = indexOf((byte) '\n', start, limit)) < 0) {
+                if (limit == buffer.length) {
+                    compact();
+                    if (limit == buffer.length) {
+                        throw new IOException("Línea de fragmento demasiado larga");
+                    }
+                }
+                int read = in.read(buffer, limit, buffer.length - limit);
+                if (read < 0) {
+                    throw new EOFException("Cuerpo de respuesta incompleto");
+                }
+                limit += read;
+            }
+            return newline + 1;
+        }
+
+        private long parseHex(int from, int end) throws IOException {
+            long value = 0;
+            int i = from;
+            for (; i < end; i++) {
+                int digit = Character.digit(buffer[i], 16);
+                if (digit < 0) {
+                    break;
+                }
+                value = value * 16 + digit;
+            }
+            if (i == from) {
+                throw new IOException("Tamaño de fragmento inválido");
+            }
+            return value;
+        }
+
+        private void compact() {
+            System.arraycopy(buffer, start, buffer, 0, limit - start);
+            limit -= start;
+            start = 0;
+        }
+
+        @Override
+        public void close() {
+            if (socket != null) {
+                try {
+                    socket.close();
+                } catch (IOException e) {
+                    // Nothing left to release
+                }
+                socket = null;
+                in = null;
+                out = null;
+            }
+        }
+    }
+
+    /**
+     * Target, pacing and sizing of one run
+     */
+    public static final class Options {
+
+        private String host = "127.0.0.1";
+        private int port = WebServerConfig.DEFAULT_PORT;
+        private String path = "/";
+        private Mode mode = Mode.CLOSED;
+        private double rate = 1000;
+        private int connections = 16;
+        private int threads = 16;
+        private long durationMillis = 10_000;
+        private long warmupMillis = 1_000;
+        private int timeoutMillis = 5_000;
+        private boolean json;
+        private WebServerConfig.Engine serverEngine;
+        private String webRoot = WebServerConfig.DEFAULT_WEB_ROOT;
+
+        /**
+         * Parses --name=value command line arguments; --threads defaults to --connections
+         * @param args Command line arguments
+         * @return The parsed options
+         */
+        public static Options parse(String[] args) {
+            Options options = new Options();
+            boolean threadsSet = false;
+            for (String arg : args) {
+                int equals = arg.indexOf('=');
+                if (!arg.startsWith("--") || equals < 0) {
+                    throw new IllegalArgumentException("Argumento inválido: " + arg);
+                }
+                String name = arg.substring(2, equals);
+                String value = arg.substring(equals + 1).trim();
+                try {
+                    switch (name) {
+                        case "url": options.setUrl(value); break;
+                        case "mode":
+                            Mode mode = Mode.fromCommand(value);
+                            if (mode == null) {
+                                throw new IllegalArgumentException("Modo no reconocido: " + value +
+                                                                   ". Modos disponibles: closed, constant, open");
+                            }
+                            options.setMode(mode);
+                            break;
+                        case "rate": options.setRate(Double.parseDouble(value)); break;
+                        case "connections": options.setConnections(Integer.parseInt(value)); break;
+                        case "threads":
+                            options.setThreads(Integer.parseInt(value));
+                            threadsSet = true;
+                            break;
+                        case "duration": options.setDurationMillis((long) (Double.parseDouble(value) * 1000)); break;
+                        case "warmup": options.setWarmupMillis((long) (Double.parseDouble(value) * 1000)); break;
+                        case "timeout": options.setTimeoutMillis(Integer.parseInt(value)); break;
+                        case "format":
+                            if (!value.equals("text") && !value.equals("json")) {
+                                throw new IllegalArgumentException("Formato no reconocido: " + value);
+                            }
+                            options.setJson(value.equals("json"));
+                            break;
+                        case "server":
+                            WebServerConfig.Engine engine = WebServerConfig.Engine.fromCommand(value);
+                            if (engine == null) {
+                                throw new IllegalArgumentException("Motor no reconocido: " + value +
+                                                                   ". Motores disponibles: blocking, nio, reuseport");
+                            }
+                            options.setServerEngine(engine);
+                            break;
+                        case "webroot": options.setWebRoot(value); break;
+                        default: throw new IllegalArgumentException("Opción desconocida: --" + name);
+                    }
+                } catch (NumberFormatException e) {
+                    throw new IllegalArgumentException("Valor numérico inválido para --" + name + ": " + value);
+                }
+            }
+            if (!threadsSet) {
+                options.setThreads(options.getConnections());
+            }
+            return options;
+        }
+
+        /**
+         * Sets host, port and path from an http:// URL
+         */
+        public void setUrl(String url) {
+            URI uri;
+            try {
+                uri = URI.create(url);
+            } catch (IllegalArgumentException e) {
+                throw new IllegalArgumentException("URL inválida: " + url);
+            }
+            if (!"http".equalsIgnoreCase(uri.getScheme()) || uri.getHost() == null) {
+                throw new IllegalArgumentException("Solo se admiten URLs http://host[:puerto]/ruta: " + url);
+            }
+            host = uri.getHost();
+            port = uri.getPort() < 0 ? 80 : uri.getPort();
+            String rawPath = uri.getRawPath() == null || uri.getRawPath().isEmpty() ? "/" : uri.getRawPath();
+            path = uri.getRawQuery() == null ? rawPath : rawPath + "?" + uri.getRawQuery();
+        }
+
+        public String getUrl() { return "http://" + host + ":" + port + path; }
+
+        public String getHost() { return host; }
+
+        public int getPort() { return port; }
+
+        public String getPath() { return path; }
+
+        public Mode getMode() { return mode; }
+
+        public void setMode(Mode mode) { this.mode = mode; }
+
+        public double getRate() { return rate; }
+
+        /**
+         * Sets the target rate of the constant and open modes
+         * @param rate Requests per second across all workers
+         */
+        public void setRate(double rate) {
+            if (!(rate > 0) || rate > 10_000_000) {
+                throw new IllegalArgumentException("Tasa inválida: " + rate);
+            }
+            this.rate = rate;
+        }
+
+        public int getConnections() { return connections; }
+
+        public void setConnections(int connections) {
+            if (connections < 1) {
+                throw new IllegalArgumentException("Número de conexiones inválido: " + connections);
+            }
+            this.connections = connections;
+        }
+
+        public int getThreads() { return threads; }
+
+        public void setThreads(int threads) {
+            if (threads < 1) {
+                throw new IllegalArgumentException("Número de hilos inválido: " + threads);
+            }
+            this.threads = threads;
+        }
+
+        public long getDurationMillis() { return durationMillis; }
+
+        public void setDurationMillis(long durationMillis) {
+            if (durationMillis < 1) {
+                throw new IllegalArgumentException("Duración inválida: " + durationMillis + " ms");
+            }
+            this.durationMillis = durationMillis;
+        }
+
+        public long getWarmupMillis() { return warmupMillis; }
+
+        public void setWarmupMillis(long warmupMillis) {
+            if (warmupMillis < 0) {
+                throw new IllegalArgumentException("Calentamiento inválido: " + warmupMillis + " ms");
+            }
+            this.warmupMillis = warmupMillis;
+        }
+
+        public int getTimeoutMillis() { return timeoutMillis; }
+
+        public void setTimeoutMillis(int timeoutMillis) {
+            if (timeoutMillis < 1) {
+                throw new IllegalArgumentException("Tiempo de espera inválido: " + timeoutMillis + " ms");
+            }
+            this.timeoutMillis = timeoutMillis;
+        }
+
+        public boolean isJson() { return json; }
+
+        public void setJson(boolean json) { this.json = json; }
+
+        public WebServerConfig.Engine getServerEngine() { return serverEngine; }
+
+        public void setServerEngine(WebServerConfig.Engine serverEngine) { this.serverEngine = serverEngine; }
+
+        public String getWebRoot() { return webRoot; }
+
+        public void setWebRoot(String webRoot) { this.webRoot = webRoot; }
+    }
+
+    /**
+     * Results of one run, over the measured window after the warm-up
+     */
+    public static final class Report {
+
+        private final Options options;
+        private final long completed;
+        private final long statusErrors;
+        private final long ioErrors;
+        private final long unsent;
+        private final double throughput;
+        private final MetricsRegistry.Histogram latency;
+        private final long maxLatencyNanos;
+        private final MetricsRegistry.Histogram serviceTime;
+        private final long maxServiceTimeNanos;
+
+        private Report(Options options, Run run) {
+            this.options = options;
+            this.completed = run.completed.sum();
+            this.statusErrors = run.statusErrors.sum();
+            this.ioErrors = run.ioErrors.sum();
+            this.unsent = run.unsent.sum();
+            this.throughput = completed / (run.getMeasuredNanos() / 1e9);
+            this.latency = run.latency.histogram;
+            this.maxLatencyNanos = run.latency.max.get();
+            this.serviceTime = run.serviceTime.histogram;
+            this.maxServiceTimeNanos = run.serviceTime.max.get();
+        }
+
+        /** Responses received, including those with error statuses */
+        public long getCompleted() { return completed; }
+
+        /** Responses with a 4xx or 5xx status */
+        public long getStatusErrors() { return statusErrors; }
+
+        /** Requests that failed to connect, send or read a response */
+        public long getIoErrors() { return ioErrors; }
+
+        /** Requests due in the window that were still unsent when the run gave up */
+        public long getUnsent() { return unsent; }
+
+        /** Responses per second over the window, stretched to the last response */
+        public double getThroughput() { return throughput; }
+
+        /**
+         * Gets a percentile of the latency from the intended send time; in the closed
+         * mode, where there is no schedule, this equals the service time
+         * @param percentile Value between 0 and 100
+         */
+        public long getLatencyNanos(double percentile) { return latency.getPercentile(percentile); }
+
+        public long getMaxLatencyNanos() { return maxLatencyNanos; }
+
+        /**
+         * Gets a percentile of the time from writing the request to reading the response
+         * @param percentile Value between 0 and 100
+         */
+        public long getServiceTimeNanos(double percentile) { return serviceTime.getPercentile(percentile); }
+
+        public long getMaxServiceTimeNanos() { return maxServiceTimeNanos; }
+
+        public String toText() {
+            StringBuilder text = new StringBuilder();
+            text.append("=== HTTP LOAD GENERATOR ===\n");
+            text.append("Destino: ").append(options.getUrl()).append('\n');
+            text.append("Modo: ").append(options.getMode().getCommand());
+            if (options.getMode() != Mode.CLOSED) {
+                text.append(String.format(Locale.ROOT, " (%.0f solic/s objetivo)", options.getRate()));
+            }
+            text.append(String.format(Locale.ROOT, ", %d conexiones, %d hilos, %.1f s (+%.1f s de calentamiento)%n",
+                                      options.getConnections(), options.getThreads(),
+                                      options.getDurationMillis() / 1000.0, options.getWarmupMillis() / 1000.0));
+            text.append(String.format(Locale.ROOT, "Respuestas: %d (%d con error HTTP), errores de E/S: %d, sin enviar: %d%n",
+                                      completed, statusErrors, ioErrors, unsent));
+            text.append(String.format(Locale.ROOT, "Rendimiento: %.1f solic/s%n", throughput));
+            text.append(String.format(Locale.ROOT, "%-22s %9s %9s %9s %9s %9s %9s%n",
+                                      "Latencia (ms)", "p50", "p90", "p99", "p99.9", "máx", "media"));
+            appendRow(text, options.getMode() == Mode.CLOSED ? "extremo a extremo" : "corregida (CO)",
+                      latency, maxLatencyNanos);
+            appendRow(text, "tiempo de servicio", serviceTime, maxServiceTimeNanos);
+            if (options.getMode() == Mode.CLOSED) {
+                text.append("Modo cerrado: el servidor fija el ritmo, sin corrección de omisión coordinada\n");
+            }
+            return text.toString();
+        }
+
+        private static void appendRow(StringBuilder text, String label, MetricsRegistry.Histogram histogram,
+                                      long maxNanos) {
+            text.append(String.format(Locale.ROOT, "%-22s", label));
+            for (double percentile : PERCENTILES) {
+                text.append(String.format(Locale.ROOT, " %9.3f", histogram.getPercentile(percentile) / 1e6));
+            }
+            text.append(String.format(Locale.ROOT, " %9.3f %9.3f%n", maxNanos / 1e6, mean(histogram) / 1e6));
+        }
+
+        public String toJson() {
+            StringBuilder json = new StringBuilder("{");
+            json.append("\"url\":\"").append(options.getUrl().replace("\\", "\\\\").replace("\"", "\\\"")).append("\",");
+            json.append("\"mode\":\"").append(options.getMode().getCommand()).append("\",");
+            json.append("\"targetRate\":")
+                .append(options.getMode() == Mode.CLOSED ? "null" : String.format(Locale.ROOT, "%.1f", options.getRate()))
+                .append(',');
+            json.append("\"connections\":").append(options.getConnections()).append(',');
+            json.append("\"threads\":").append(options.getThreads()).append(',');
+            json.append(String.format(Locale.ROOT, "\"durationSeconds\":%.3f,\"warmupSeconds\":%.3f,",
+                                      options.getDurationMillis() / 1000.0, options.getWarmupMillis() / 1000.0));
+            json.append("\"completed\":").append(completed).append(',');
+            json.append("\"statusErrors\":").append(statusErrors).append(',');
+            json.append("\"ioErrors\":").append(ioErrors).append(',');
+            json.append("\"unsent\":").append(unsent).append(',');
+            json.append(String.format(Locale.ROOT, "\"throughput\":%.1f,", throughput));
+            json.append("\"latencyMillis\":");
+            appendJson(json, latency, maxLatencyNanos);
+            json.append(",\"serviceTimeMillis\":");
+            appendJson(json, serviceTime, maxServiceTimeNanos);
+            return json.append('}').toString();
+        }
+
+        private static void appendJson(StringBuilder json, MetricsRegistry.Histogram histogram, long maxNanos) {
+            json.append('{');
+            for (int i = 0; i < PERCENTILES.length; i++) {
+                json.append(String.format(Locale.ROOT, "\"%s\":%.3f,", PERCENTILE_NAMES[i],
+                                          histogram.getPercentile(PERCENTILES[i]) / 1e6));
+            }
+            json.append(String.format(Locale.ROOT, "\"max\":%.3f,\"mean\":%.3f}", maxNanos / 1e6, mean(histogram) / 1e6));
+        }
+
+        private static double mean(MetricsRegistry.Histogram histogram) {
+            long count = histogram.getCount();
+            return count == 0 ? 0 : (double) histogram.getSum() / count;
+        }
+    }
+}
@@ -0,0 +1,284 @@
+package edu.eci.arsw.networking;
+
+import java.nio.ByteBuffer;
+
+/**
+ * Incremental, byte-oriented parser for HTTP/1.1 request heads (request line and headers).
+ *
+ * Bytes are fed with {@link #parse(ByteBuffer)} in whatever pieces the network delivers
+ * them; the parser keeps its position between calls, so a request split across reads in
+ * the NIO engine parses the same way as one read in full by the blocking engine. Parsing
+ * stops right after the blank line that ends the head, leaving any pipelined bytes in the
+ * caller's buffer for the next request.
+ *
+ * The head is copied into a buffer owned by the parser, whose size is the header size
+ * limit. Method, path, query, version and headers are exposed as {@link AsciiView}s over
+ * that buffer instead of Strings; they stay valid until {@link #reset()}. One parser serves
+ * every request of a connection.
+ *
+ * Line endings may be CRLF or a bare LF, and empty lines before the request line are
+ * ignored, as RFC 9112 recommends.
+ *
+ * @author GitHub Copilot Implementation
+ * @version 1.0
+ */
+final class HttpRequestParser {
+
+    /**
+     * Outcome of feeding bytes to the parser
+     */
+    enum Result {
+        /** The head is not complete yet; feed more bytes */
+        INCOMPLETE,
+        /** The head is complete and its views can be read */
+        COMPLETE,
+        /** The request line or a header line is not valid HTTP */
+        MALFORMED,
+        /** The head exceeds the size or header count limit */
+        TOO_LARGE
+    }
+
+    private enum State { REQUEST_LINE, HEADERS, DONE, FAILED }
+
+    public static final int DEFAULT_MAX_HEADER_SIZE = 8192;
+    public static final int DEFAULT_MAX_HEADERS = 100;
+
+    private final byte[] head;
+    private final AsciiView[] headerNames;
+    private final AsciiView[] headerValues;
+    private final AsciiView method = new AsciiView();
+    private final AsciiView target = new AsciiView();
+    private final AsciiView path = new AsciiView();
+    private final AsciiView query = new AsciiView();
+    private final AsciiView version = new AsciiView();
+
+    private State state = State.REQUEST_LINE;
+    private Result failure;
+    private int length;
+    private int lineStart;
+    private int headerCount;
+
+    /**
+     * Creates a parser with the default limits (8 KB head, 100 headers)
+     */
+    HttpRequestParser() {
+        this(DEFAULT_MAX_HEADER_SIZE, DEFAULT_MAX_HEADERS);
+    }
+
+    /**
+     * Creates a parser
+     * @param maxHeaderSize Largest accepted head, request line included, in bytes
+     * @param maxHeaders Largest accepted number of header lines
+     */
+    HttpRequestParser(int maxHeaderSize, int maxHeaders) {
+        this.head = new byte[maxHeaderSize];
+        this.headerNames = new AsciiView[maxHeaders];
+        this.headerValues = new AsciiView[maxHeaders];
+        for (int i = 0; i < maxHeaders; i++) {
+            headerNames[i] = new AsciiView();
+            headerValues[i] = new AsciiView();
+        }
+    }
+
+    /**
+     * Consumes bytes from the buffer until the head is complete or the buffer is exhausted
+     * @param in Buffer in read mode; its position advances past the consumed bytes
+     * @return The parse state after these bytes
+     */
+    Result parse(ByteBuffer in) {
+        if (state == State.DONE) {
+            return Result.COMPLETE;
+        }
+        if (state == State.FAILED) {
+            return failure;
+        }
+
+        while (in.hasRemaining()) {
+            byte b = in.get();
+            if (length == 0 && (b == '\r' || b == '\n')) {
+                // Empty lines before the request line
+                continue;
+            }
+            if (length == head.length) {
+                return fail(Result.TOO_LARGE);
+            }
+            head[length++] = b;
+            if (b != '\n') {
+                continue;
+            }
+
+            int lineEnd = length - 1;
+            if (lineEnd > lineStart && head[lineEnd - 1] == '\r') {
+                lineEnd--;
+            }
+            if (state == State.REQUEST_LINE) {
+                if (!parseRequestLine(lineStart, lineEnd)) {
+                    return fail(Result.MALFORMED);
+                }
+                state = State.HEADERS;
+            } else if (lineEnd == lineStart) {
+                state = State.DONE;
+                return Result.COMPLETE;
+            } else if (headerCount == headerNames.length) {
+                return fail(Result.TOO_LARGE);
+            } else if (!parseHeader(lineStart, lineEnd)) {
+                return fail(Result.MALFORMED);
+            }
+            lineStart = length;
+        }
+        return Result.INCOMPLETE;
+    }
+
+    /**
+     * Forgets the current request so the parser can read the next one on the connection
+     */
+    void reset() {
+        state = State.REQUEST_LINE;
+        failure = null;
+        length = 0;
+        lineStart = 0;
+        headerCount = 0;
+        method.clear();
+        target.clear();
+        path.clear();
+        query.clear();
+        version.clear();
+    }
+
+    /**
+     * Checks whether no byte of the current request has been received yet
+     */
+    boolean isEmpty() {
+        return length == 0;
+    }
+
+    boolean isComplete() {
+        return state == State.DONE;
+    }
+
+    /** The request method, e.g. GET */
+    AsciiView method() { return method; }
+
+    /** The request target as sent, path and query included */
+    AsciiView target() { return target; }
+
+    /** The request target without its query */
+    AsciiView path() { return path; }
+
+    /** The query after '?', or an empty view */
+    AsciiView query() { return query; }
+
+    /** The protocol version, e.g. HTTP/1.1, or an empty view for a version-less request line */
+    AsciiView version() { return version; }
+
+    int headerCount() { return headerCount; }
+
+    AsciiView headerName(int index) { return headerNames[checkIndex(index)]; }
+
+    AsciiView headerValue(int index) { return headerValues[checkIndex(index)]; }
+
+    /**
+     * Looks up a header by name, ignoring case
+     * @param name Header name, e.g. "Connection"
+     * @return The value of the first header with that name, or null if absent
+     */
+    AsciiView header(String name) {
+        for (int i = 0; i < headerCount; i++) {
+            if (headerNames[i].equalsIgnoreCase(name)) {
+                return headerValues[i];
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Checks whether the request announces a body (Content-Length above zero or any
+     * Transfer-Encoding), which this server does not read
+     */
+    boolean hasBody() {
+        AsciiView contentLength = header("Content-Length");
+        return header("Transfer-Encoding") != null
+               || (contentLength != null && contentLength.parseLong() != 0);
+    }
+
+    /**
+     * Rebuilds the request line for logging; allocates, so keep it off hot paths
+     * @return The request line, e.g. "GET /index.html HTTP/1.1"
+     */
+    String requestLine() {
+        return version.isEmpty() ? method + " " + target : method + " " + target + " " + version;
+    }
+
+    private boolean parseRequestLine(int start, int end) {
+        int methodEnd = indexOf(' ', start, end);
+        if (methodEnd <= start) {
+            return false;
+        }
+        int targetStart = methodEnd + 1;
+        int targetEnd = indexOf(' ', targetStart, end);
+        if (targetEnd < 0) {
+            targetEnd = end;
+        }
+        if (targetEnd == targetStart) {
+            return false;
+        }
+
+        method.set(head, start, methodEnd - start);
+        target.set(head, targetStart, targetEnd - targetStart);
+        int queryStart = indexOf('?', targetStart, targetEnd);
+        if (queryStart < 0) {
+            path.set(head, targetStart, targetEnd - targetStart);
+        } else {
+            path.set(head, targetStart, queryStart - targetStart);
+            query.set(head, queryStart + 1, targetEnd - queryStart - 1);
+        }
+        if (targetEnd < end) {
+            version.set(head, targetEnd + 1, end - targetEnd - 1);
+        }
+        return true;
+    }
+
+    private boolean parseHeader(int start, int end) {
+        int colon = indexOf(':', start, end);
+        // No empty names, and no whitespace between the name and the colon (RFC 9112 5.1);
+        // this also rejects obsolete line folding
+        if (colon <= start || head[colon - 1] == ' ' || head[colon - 1] == '\t'
+            || head[start] == ' ' || head[start] == '\t') {
+            return false;
+        }
+        int valueStart = colon + 1;
+        int valueEnd = end;
+        while (valueStart < valueEnd && (head[valueStart] == ' ' || head[valueStart] == '\t')) {
+            valueStart++;
+        }
+        while (valueEnd > valueStart && (head[valueEnd - 1] == ' ' || head[valueEnd - 1] == '\t')) {
+            valueEnd--;
+        }
+        headerNames[headerCount].set(head, start, colon - start);
+        headerValues[headerCount].set(head, valueStart, valueEnd - valueStart);
+        headerCount++;
+        return true;
+    }
+
+    private int indexOf(char c, int from, int to) {
+        for (int i = from; i < to; i++) {
+            if (head[i] == c) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    private int checkIndex(int index) {
+        if (index < 0 || index >= headerCount) {
+            throw new IndexOutOfBoundsException("Encabezado inexistente: " + index);
+        }
+        return index;
+    }
+
+    private Result fail(Result result) {
+        state = State.FAILED;
+        failure = result;
+        return result;
+    }
+}
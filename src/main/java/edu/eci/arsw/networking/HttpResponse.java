@@ -0,0 +1,391 @@
+package edu.eci.arsw.networking;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * A complete HTTP response produced by {@link SimpleWebServer}.
+ * The response is built once and then written by whichever engine owns the
+ * connection (through a {@link ResponseWriter}), so the blocking and NIO engines send
+ * byte-identical responses.
+ *
+ * The body is either held in memory (a heap array, or a view of a memory-mapped file
+ * owned by the {@link MappedFileRegistry}) or, for large files, described as a file whose
+ * bytes are streamed to the socket without passing through the Java heap. A file body is a
+ * list of {@link FileRegion}s, which lets a Range response send only the requested parts
+ * of the file, each optionally preceded by a multipart part header. A body whose length
+ * is unknown up front (generated output, a file still being written) is a
+ * {@link BodyStream}, sent with "Transfer-Encoding: chunked". The header block is
+ * encoded by {@link HttpHeaderEncoder}.
+ *
+ * @author GitHub Copilot Implementation
+ * @version 1.0
+ */
+final class HttpResponse {
+
+    private final int statusCode;
+    private final String statusText;
+    private final String contentType;
+    private final byte[] body;
+    private final ByteBuffer bodyBuffer;
+    private MappedFileRegistry.MappedFile bodyOwner;
+    private final Path bodyFile;
+    private final FileRegion[] regions;
+    private final byte[] trailer;
+    private final BodyStream bodyStream;
+    private boolean chunked = true;
+    private long streamedLength;
+    private final long contentLength;
+    private final byte[] encoded;
+    private List<byte[]> extraHeaders;
+    private boolean acceptRanges;
+    private boolean gzipEncoded;
+    private boolean varyAcceptEncoding;
+    private boolean keepAlive;
+    private int keepAliveTimeoutSeconds;
+    private int remainingRequests;
+    private FileValidators validators;
+    private RouteMetrics route;
+
+    /**
+     * Creates a response with a fully buffered body
+     * @param statusCode HTTP status code
+     * @param statusText HTTP status text
+     * @param contentType Value of the Content-Type header
+     * @param body Response body
+     */
+    HttpResponse(int statusCode, String statusText, String contentType, byte[] body) {
+        this.statusCode = statusCode;
+        this.statusText = statusText;
+        this.contentType = contentType;
+        this.body = body;
+        this.bodyBuffer = null;
+        this.bodyFile = null;
+        this.regions = null;
+        this.trailer = null;
+        this.bodyStream = null;
+        this.contentLength = body.length;
+        this.encoded = null;
+    }
+
+    /**
+     * Creates a response whose body is streamed from a file
+     * @param statusCode HTTP status code
+     * @param statusText HTTP status text
+     * @param contentType Value of the Content-Type header
+     * @param bodyFile File to send
+     * @param contentLength Number of bytes of the file to send
+     */
+    HttpResponse(int statusCode, String statusText, String contentType, Path bodyFile, long contentLength) {
+        this(statusCode, statusText, contentType, bodyFile,
+             new FileRegion[] { new FileRegion(null, 0, contentLength) }, null, contentLength);
+    }
+
+    /**
+     * Creates a response whose body is made of parts of a file, as sent for Range requests
+     * @param statusCode HTTP status code
+     * @param statusText HTTP status text
+     * @param contentType Value of the Content-Type header
+     * @param bodyFile File the regions are read from
+     * @param regions File regions to send, in order
+     * @param trailer Bytes sent after the last region (the closing multipart boundary), or null
+     * @param contentLength Total body length, prefixes and trailer included
+     */
+    HttpResponse(int statusCode, String statusText, String contentType, Path bodyFile,
+                 FileRegion[] regions, byte[] trailer, long contentLength) {
+        this.statusCode = statusCode;
+        this.statusText = statusText;
+        this.contentType = contentType;
+        this.body = null;
+        this.bodyBuffer = null;
+        this.bodyFile = bodyFile;
+        this.regions = regions;
+        this.trailer = trailer;
+        this.bodyStream = null;
+        this.contentLength = contentLength;
+        this.encoded = null;
+    }
+
+    /**
+     * Creates a response whose body is a view of a memory-mapped file; the response holds
+     * a reference on the mapping until {@link #releaseBody()}
+     * @param statusCode HTTP status code
+     * @param statusText HTTP status text
+     * @param contentType Value of the Content-Type header
+     * @param body View of the mapped content
+     * @param owner Mapping the view belongs to, already retained for this response
+     */
+    HttpResponse(int statusCode, String statusText, String contentType, ByteBuffer body,
+                 MappedFileRegistry.MappedFile owner) {
+        this.statusCode = statusCode;
+        this.statusText = statusText;
+        this.contentType = contentType;
+        this.body = null;
+        this.bodyBuffer = body;
+        this.bodyOwner = owner;
+        this.bodyFile = null;
+        this.regions = null;
+        this.trailer = null;
+        this.bodyStream = null;
+        this.contentLength = body.remaining();
+        this.encoded = null;
+    }
+
+    /**
+     * Creates a response whose body is produced while it is sent, in chunks
+     * @param statusCode HTTP status code
+     * @param statusText HTTP status text
+     * @param contentType Value of the Content-Type header
+     * @param bodyStream Source of the body; closed once the response is sent or abandoned
+     */
+    HttpResponse(int statusCode, String statusText, String contentType, BodyStream bodyStream) {
+        this.statusCode = statusCode;
+        this.statusText = statusText;
+        this.contentType = contentType;
+        this.body = null;
+        this.bodyBuffer = null;
+        this.bodyFile = null;
+        this.regions = null;
+        this.trailer = null;
+        this.bodyStream = bodyStream;
+        this.contentLength = -1;
+        this.encoded = null;
+    }
+
+    /**
+     * Creates a response whose body is produced while it is sent but whose length is known
+     * up front, such as a body relayed from an upstream server; it is sent unframed after
+     * a Content-Length instead of in chunks
+     * @param statusCode HTTP status code
+     * @param statusText HTTP status text
+     * @param contentType Value of the Content-Type header
+     * @param bodyStream Source of exactly contentLength bytes; closed once the response is
+     *        sent or abandoned
+     * @param contentLength Length of the body
+     */
+    HttpResponse(int statusCode, String statusText, String contentType, BodyStream bodyStream, long contentLength) {
+        this.statusCode = statusCode;
+        this.statusText = statusText;
+        this.contentType = contentType;
+        this.body = null;
+        this.bodyBuffer = null;
+        this.bodyFile = null;
+        this.regions = null;
+        this.trailer = null;
+        this.bodyStream = bodyStream;
+        this.chunked = false;
+        this.contentLength = contentLength;
+        this.encoded = null;
+    }
+
+    /**
+     * Creates a response whose status line, headers and body were encoded ahead of time.
+     * It is written as is, without a Date header, and never carries keep-alive headers, so
+     * one instance can be shared by every connection (see {@link AdmissionController}).
+     * @param statusCode HTTP status code
+     * @param statusText HTTP status text
+     * @param encoded The complete response bytes
+     * @param contentLength Length of the body at the end of the encoded bytes
+     */
+    HttpResponse(int statusCode, String statusText, byte[] encoded, long contentLength) {
+        this.statusCode = statusCode;
+        this.statusText = statusText;
+        this.contentType = null;
+        this.body = null;
+        this.bodyBuffer = null;
+        this.bodyFile = null;
+        this.regions = null;
+        this.trailer = null;
+        this.bodyStream = null;
+        this.contentLength = contentLength;
+        this.encoded = encoded;
+    }
+
+    /**
+     * A run of bytes of the body file, optionally preceded by bytes held in memory
+     */
+    static final class FileRegion {
+        final byte[] prefix;
+        final long position;
+        final long length;
+
+        /**
+         * @param prefix Bytes written before the region (a multipart part header), or null
+         * @param position Offset of the first byte in the file
+         * @param length Number of bytes to send
+         */
+        FileRegion(byte[] prefix, long position, long length) {
+            this.prefix = prefix;
+            this.position = position;
+            this.length = length;
+        }
+    }
+
+    int getStatusCode() { return statusCode; }
+
+    String getStatusText() { return statusText; }
+
+    String getContentType() { return contentType; }
+
+    /** The heap body, or null when the body is mapped or streamed from {@link #getBodyFile()} */
+    byte[] getBody() { return body; }
+
+    /**
+     * Creates a buffer over the in-memory body, positioned at its start
+     * @return The buffer, or null when the body is streamed from {@link #getBodyFile()}
+     */
+    ByteBuffer newBodyBuffer() {
+        if (body != null) {
+            return ByteBuffer.wrap(body);
+        }
+        return bodyBuffer != null ? bodyBuffer.duplicate() : null;
+    }
+
+    /**
+     * Gives back the reference this response holds on a mapped body, or closes its body
+     * stream, once it has been sent or abandoned; safe to call more than once
+     */
+    void releaseBody() {
+        if (bodyOwner != null) {
+            MappedFileRegistry.MappedFile owner = bodyOwner;
+            bodyOwner = null;
+            owner.release();
+        }
+        if (bodyStream != null) {
+            try {
+                bodyStream.close();
+            } catch (IOException e) {
+                EventLog.shared().error("Error cerrando el cuerpo de la respuesta: " + e.getMessage());
+            }
+        }
+    }
+
+    /** The file to stream, or null when the body is in memory */
+    Path getBodyFile() { return bodyFile; }
+
+    /** The parts of {@link #getBodyFile()} to send, or null when the body is in memory */
+    FileRegion[] getRegions() { return regions; }
+
+    /** Bytes written after the last file region, or null */
+    byte[] getTrailer() { return trailer; }
+
+    /** The source of a streamed body, or null when the length is known up front */
+    BodyStream getBodyStream() { return bodyStream; }
+
+    boolean isChunked() { return chunked; }
+
+    /**
+     * Chooses how a streamed body is framed: in chunks (the default), or unframed and
+     * ended by closing the connection, for clients older than HTTP/1.1
+     */
+    void setChunked(boolean chunked) {
+        if (encoded == null) {
+            this.chunked = chunked;
+        }
+    }
+
+    /** The body length, or -1 for a streamed body of unknown length */
+    long getContentLength() { return contentLength; }
+
+    /**
+     * Gets the number of body bytes, counting what has been sent so far of a streamed body
+     * (chunk framing excluded)
+     */
+    long getBodyLength() { return bodyStream != null ? streamedLength : contentLength; }
+
+    void addStreamedLength(long bytes) { streamedLength += bytes; }
+
+    /** The complete response bytes when it was encoded ahead of time, or null */
+    byte[] getEncoded() { return encoded; }
+
+    /**
+     * Adds a header that has no dedicated field, such as Content-Range
+     * @param name Header name
+     * @param value Header value
+     */
+    void addHeader(String name, String value) {
+        if (extraHeaders == null) {
+            extraHeaders = new ArrayList<>(2);
+        }
+        extraHeaders.add((name + ": " + value + "\r\n").getBytes(StandardCharsets.ISO_8859_1));
+    }
+
+    /** The encoded lines added with {@link #addHeader}, CRLF included */
+    List<byte[]> getExtraHeaders() {
+        return extraHeaders != null ? extraHeaders : Collections.emptyList();
+    }
+
+    boolean isAcceptRanges() { return acceptRanges; }
+
+    /**
+     * Advertises "Accept-Ranges: bytes", telling clients they may resume or split downloads
+     */
+    void setAcceptRanges(boolean acceptRanges) { this.acceptRanges = acceptRanges; }
+
+    boolean isGzipEncoded() { return gzipEncoded; }
+
+    /**
+     * Marks the body as gzip-encoded ("Content-Encoding: gzip")
+     */
+    void setGzipEncoded(boolean gzipEncoded) { this.gzipEncoded = gzipEncoded; }
+
+    boolean isVaryAcceptEncoding() { return varyAcceptEncoding; }
+
+    /**
+     * Adds "Vary: Accept-Encoding", telling caches that the body depends on that header
+     */
+    void setVaryAcceptEncoding(boolean varyAcceptEncoding) { this.varyAcceptEncoding = varyAcceptEncoding; }
+
+    /**
+     * Checks whether the status allows a body; 304 Not Modified carries none, so its
+     * headers omit Content-Type and Content-Length
+     */
+    boolean hasContent() { return statusCode != 304; }
+
+    /** The ETag and Last-Modified of the file served, or null */
+    FileValidators getValidators() { return validators; }
+
+    /**
+     * Adds the ETag and Last-Modified headers of a served file
+     * @param validators Validators of the file version
+     */
+    void setValidators(FileValidators validators) { this.validators = validators; }
+
+    /** The route this response is counted under in the access metrics, or null */
+    RouteMetrics getRoute() { return route; }
+
+    /**
+     * Sets the route the request resolved to; error responses are counted as unresolved
+     * whatever their route
+     * @param route Route of the file, proxy prefix or endpoint that answered
+     */
+    void setRoute(RouteMetrics route) { this.route = route; }
+
+    boolean isKeepAlive() { return keepAlive; }
+
+    int getKeepAliveTimeoutSeconds() { return keepAliveTimeoutSeconds; }
+
+    int getRemainingRequests() { return remainingRequests; }
+
+    /**
+     * Marks the connection as persistent; the headers then advertise the idle timeout and
+     * how many more requests the client may send on it. Responses are "Connection: close"
+     * unless this is called.
+     * @param timeoutSeconds Idle time after which the server closes the connection
+     * @param remainingRequests Requests still allowed on the connection
+     */
+    void setKeepAlive(int timeoutSeconds, int remainingRequests) {
+        if (encoded != null) {
+            // Shared by every connection and written as encoded, always "Connection: close"
+            return;
+        }
+        this.keepAlive = true;
+        this.keepAliveTimeoutSeconds = timeoutSeconds;
+        this.remainingRequests = remainingRequests;
+    }
+}
@@ -0,0 +1,601 @@
+package edu.eci.arsw.networking;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Chooses which of several equivalent backends serves each request or connection. It is
+ * shared by the reverse proxy of {@link SimpleWebServer}, where a route may list several
+ * upstreams, and by {@link TcpLoadBalancer}, which spreads the connections of line
+ * protocols such as those of {@link SquareServer} and {@link MathFunctionServer}.
+ *
+ * Selection policies:
+ * - rr   - Round robin: each backend in turn
+ * - p2c  - Power of two choices: the less loaded of two backends picked at random, which
+ *          keeps the spread of least-outstanding without every caller converging on the
+ *          same backend
+ * - lor  - Least outstanding requests: the backend with the fewest requests in progress,
+ *          scanning from a rotating start so ties are spread evenly
+ *
+ * Selection is lock-free: the backend list never changes, and each backend keeps its
+ * requests in progress, latency and error rate in atomics the callers update after
+ * every request. Backends that are unhealthy or ejected are skipped; if none is left the
+ * balancer spreads the load over all of them rather than failing every request.
+ *
+ * Two mechanisms take a backend out of rotation:
+ * - Active health checks probe every backend from a background thread, by connecting to
+ *   it or with an HTTP GET; two failed probes in a row mark it unhealthy and two good ones
+ *   bring it back.
+ * - Passive outlier ejection watches real traffic: five failures in a row, an error rate
+ *   (EWMA) of 50% or a latency (EWMA) three times that of the other backends ejects the
+ *   backend for 10 s, twice as long each further time (at most 5 min). Once the time is up
+ *   it is back with its statistics reset. At most half the backends are ejected at once,
+ *   so a fault shared by all of them cannot empty the pool.
+ *
+ * Selections, ejections and health changes are counted in balancer_selected_total,
+ * balancer_ejections_total and balancer_health_changes_total.
+ *
+ * @param <B> Type of the backends
+ * @author GitHub Copilot Implementation
+ * @version 1.0
+ */
+public final class LoadBalancer<B extends LoadBalancer.Backend> implements Closeable {
+
+    /**
+     * Enumeration of the selection policies
+     */
+    public enum Policy {
+        ROUND_ROBIN("rr"),
+        POWER_OF_TWO("p2c"),
+        LEAST_OUTSTANDING("lor");
+
+        private final String command;
+
+        Policy(String command) {
+            this.command = command;
+        }
+
+        public String getCommand() { return command; }
+
+        public static Policy fromCommand(String command) {
+            for (Policy policy : values()) {
+                if (policy.command.equalsIgnoreCase(command)) {
+                    return policy;
+                }
+            }
+            return null;
+        }
+    }
+
+    /**
+     * Active health check run against each backend from the balancer's background thread
+     */
+    @FunctionalInterface
+    public interface HealthCheck {
+        /**
+         * Probes a backend
+         * @param backend Backend to probe
+         * @return true if it can take traffic
+         */
+        boolean isHealthy(Backend backend);
+    }
+
+    public static final long DEFAULT_HEALTH_INTERVAL_MILLIS = 5000;
+    static final int UNHEALTHY_THRESHOLD = 2;
+    static final int HEALTHY_THRESHOLD = 2;
+    static final int CONSECUTIVE_FAILURES_TO_EJECT = 5;
+    static final int MIN_SAMPLES = 10;
+    static final double ERROR_RATE_TO_EJECT = 0.5;
+    static final double LATENCY_OUTLIER_FACTOR = 3.0;
+    static final long MIN_OUTLIER_LATENCY_NANOS = TimeUnit.MILLISECONDS.toNanos(5);
+    static final long BASE_EJECTION_MILLIS = 10_000;
+    static final long MAX_EJECTION_MILLIS = 300_000;
+    private static final double LATENCY_ALPHA = 0.2;
+    private static final double ERROR_ALPHA = 0.1;
+
+    private final String name;
+    private final Policy policy;
+    private final List<B> backends;
+    private final AtomicInteger next = new AtomicInteger();
+    private final EventLog eventLog;
+    private final MetricsRegistry.Family<MetricsRegistry.Counter> ejections;
+    private final MetricsRegistry.Family<MetricsRegistry.Counter> healthChanges;
+    private HealthCheck healthCheck;
+    private long healthIntervalMillis;
+    private boolean outlierEjection = true;
+    private Thread healthThread;
+    private volatile boolean closed;
+
+    /**
+     * Creates a balancer; health checks only run once configured and started
+     * @param name Name used in the log and as the metric label
+     * @param policy Selection policy
+     * @param backends Backends to choose from, at least one
+     */
+    public LoadBalancer(String name, Policy policy, List<B> backends) {
+        if (backends.isEmpty()) {
+            throw new IllegalArgumentException("Se requiere al menos un backend para " + name);
+        }
+        this.name = name;
+        this.policy = policy;
+        this.backends = List.copyOf(backends);
+        this.eventLog = EventLog.shared();
+        MetricsRegistry metrics = MetricsRegistry.shared();
+        MetricsRegistry.Family<MetricsRegistry.Counter> selected =
+            metrics.counter("balancer_selected_total", "Solicitudes o conexiones asignadas a cada backend",
+                            "balancer", "backend");
+        this.ejections = metrics.counter("balancer_ejections_total",
+                                         "Expulsiones de backends por errores o latencia",
+                                         "balancer", "backend", "reason");
+        this.healthChanges = metrics.counter("balancer_health_changes_total",
+                                             "Cambios de estado de los chequeos de salud",
+                                             "balancer", "backend", "state");
+        for (B backend : this.backends) {
+            backend.selected = selected.labels(name, backend.getName());
+        }
+    }
+
+    /**
+     * Sets the active health check; call before {@link #start()}
+     * @param healthCheck Probe run against every backend, or null for none
+     * @param intervalMillis Milliseconds between rounds of probes (0 disables them)
+     */
+    public void setHealthCheck(HealthCheck healthCheck, long intervalMillis) {
+        if (intervalMillis < 0) {
+            throw new IllegalArgumentException("Intervalo de chequeo de salud inválido: " + intervalMillis);
+        }
+        this.healthCheck = healthCheck;
+        this.healthIntervalMillis = intervalMillis;
+    }
+
+    /**
+     * Turns passive outlier ejection on or off (on by default)
+     */
+    public void setOutlierEjection(boolean outlierEjection) {
+        this.outlierEjection = outlierEjection;
+    }
+
+    /**
+     * Starts the health check thread, if a check is configured and there is more than one
+     * backend to choose from
+     */
+    public synchronized void start() {
+        if (healthThread != null || healthCheck == null || healthIntervalMillis == 0 || backends.size() < 2) {
+            return;
+        }
+        healthThread = new Thread(this::runHealthChecks, "balancer-health-" + name);
+        healthThread.setDaemon(true);
+        healthThread.start();
+    }
+
+    public String getName() { return name; }
+
+    public Policy getPolicy() { return policy; }
+
+    /** The backends in the order they were configured */
+    public List<B> getBackends() { return backends; }
+
+    /**
+     * Chooses the backend for a request. The caller acquires it, and reports the outcome
+     * with {@link #recordSuccess} or {@link #recordFailure}.
+     * @return A backend that is healthy and not ejected, or any backend if none is
+     */
+    public B select() {
+        B chosen;
+        if (backends.size() == 1) {
+            chosen = backends.get(0);
+        } else {
+            long now = System.nanoTime();
+            if (policy == Policy.ROUND_ROBIN) {
+                chosen = selectRoundRobin(now);
+            } else if (policy == Policy.POWER_OF_TWO) {
+                chosen = selectPowerOfTwo(now);
+            } else {
+                chosen = selectLeastOutstanding(now);
+            }
+            if (chosen == null) {
+                // Every backend is out: spread the load instead of failing all requests
+                chosen = backends.get(ThreadLocalRandom.current().nextInt(backends.size()));
+            }
+        }
+        chosen.selected.increment();
+        return chosen;
+    }
+
+    private B selectRoundRobin(long now) {
+        int size = backends.size();
+        int start = Math.floorMod(next.getAndIncrement(), size);
+        for (int i = 0; i < size; i++) {
+            B backend = backends.get((start + i) % size);
+            if (backend.isAvailable(now)) {
+                return backend;
+            }
+        }
+        return null;
+    }
+
+    private B selectPowerOfTwo(long now) {
+        int size = backends.size();
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        int first = random.nextInt(size);
+        int second = random.nextInt(size - 1);
+        if (second >= first) {
+            second++;
+        }
+        B a = backends.get(first);
+        B b = backends.get(second);
+        boolean aAvailable = a.isAvailable(now);
+        boolean bAvailable = b.isAvailable(now);
+        if (aAvailable && bAvailable) {
+            int difference = a.getOutstanding() - b.getOutstanding();
+            if (difference != 0) {
+                return difference < 0 ? a : b;
+            }
+            return a.getLatencyNanos() <= b.getLatencyNanos() ? a : b;
+        }
+        if (aAvailable) {
+            return a;
+        }
+        if (bAvailable) {
+            return b;
+        }
+        return selectRoundRobin(now);
+    }
+
+    private B selectLeastOutstanding(long now) {
+        int size = backends.size();
+        int start = Math.floorMod(next.getAndIncrement(), size);
+        B best = null;
+        int bestOutstanding = Integer.MAX_VALUE;
+        for (int i = 0; i < size; i++) {
+            B backend = backends.get((start + i) % size);
+            int outstanding = backend.getOutstanding();
+            if (outstanding < bestOutstanding && backend.isAvailable(now)) {
+                best = backend;
+                bestOutstanding = outstanding;
+            }
+        }
+        return best;
+    }
+
+    /**
+     * Reports a request the backend answered
+     * @param backend Backend that served it
+     * @param latencyNanos Time until its response started
+     */
+    public void recordSuccess(B backend, long latencyNanos) {
+        backend.consecutiveFailures.set(0);
+        backend.record(latencyNanos, false);
+        if (outlierEjection && backend.getLatencyNanos() > MIN_OUTLIER_LATENCY_NANOS
+            && backend.samples.get() >= MIN_SAMPLES && isLatencyOutlier(backend)) {
+            eject(backend, "latency");
+        }
+    }
+
+    /**
+     * Reports a request the backend failed: it could not be reached, broke the connection
+     * or answered with a server error
+     * @param backend Backend that failed
+     */
+    public void recordFailure(B backend) {
+        int failures = backend.consecutiveFailures.incrementAndGet();
+        backend.record(-1, true);
+        if (!outlierEjection) {
+            return;
+        }
+        if (failures >= CONSECUTIVE_FAILURES_TO_EJECT) {
+            eject(backend, "consecutive");
+        } else if (backend.samples.get() >= MIN_SAMPLES && backend.getErrorRate() >= ERROR_RATE_TO_EJECT) {
+            eject(backend, "errors");
+        }
+    }
+
+    /**
+     * Checks whether a backend is much slower than the mean of the other backends in rotation
+     */
+    private boolean isLatencyOutlier(B backend) {
+        long now = System.nanoTime();
+        double total = 0;
+        int peers = 0;
+        for (B other : backends) {
+            if (other != backend && other.isAvailable(now) && other.samples.get() >= MIN_SAMPLES) {
+                total += other.getLatencyNanos();
+                peers++;
+            }
+        }
+        return peers > 0 && backend.getLatencyNanos() > LATENCY_OUTLIER_FACTOR * (total / peers);
+    }
+
+    /**
+     * Takes a backend out of rotation; rare, so it may lock to keep the ejected count exact
+     */
+    private synchronized void eject(B backend, String reason) {
+        long now = System.nanoTime();
+        if (!backend.isAvailable(now)) {
+            return;
+        }
+        int ejected = 0;
+        for (B other : backends) {
+            if (other.isEjected(now)) {
+                ejected++;
+            }
+        }
+        if (ejected + 1 > backends.size() / 2) {
+            return;
+        }
+        int times = ++backend.ejectionCount;
+        long millis = Math.min(BASE_EJECTION_MILLIS << Math.min(times - 1, 16), MAX_EJECTION_MILLIS);
+        // Never 0, which stands for not ejected
+        backend.ejectedUntilNanos = (now + TimeUnit.MILLISECONDS.toNanos(millis)) | 1;
+        ejections.labels(name, backend.getName(), reason).increment();
+        eventLog.info("Backend " + backend.getName() + " expulsado de " + name + " por " + millis + " ms (" + reason + ")");
+    }
+
+    private void runHealthChecks() {
+        while (!closed) {
+            for (B backend : backends) {
+                if (closed) {
+                    return;
+                }
+                boolean healthy;
+                try {
+                    healthy = healthCheck.isHealthy(backend);
+                } catch (RuntimeException e) {
+                    healthy = false;
+                }
+                if (backend.recordProbe(healthy)) {
+                    String state = healthy ? "healthy" : "unhealthy";
+                    healthChanges.labels(name, backend.getName(), state).increment();
+                    eventLog.info("Backend " + backend.getName() + " de " + name + ": " +
+                                  (healthy ? "disponible" : "no disponible"));
+                }
+            }
+            try {
+                Thread.sleep(healthIntervalMillis);
+            } catch (InterruptedException e) {
+                return;
+            }
+        }
+    }
+
+    /**
+     * Stops the health checks
+     */
+    @Override
+    public synchronized void close() {
+        closed = true;
+        if (healthThread != null) {
+            healthThread.interrupt();
+        }
+    }
+
+    /**
+     * A health check that only opens a TCP connection to the backend
+     * @param timeoutMillis Connect timeout
+     * @return The health check
+     */
+    public static HealthCheck tcpHealthCheck(int timeoutMillis) {
+        return backend -> {
+            try (Socket socket = new Socket()) {
+                // Reset instead of FIN so probes leave no TIME_WAIT behind
+                socket.setSoLinger(true, 0);
+                socket.connect(new InetSocketAddress(backend.getHost(), backend.getPort()), timeoutMillis);
+                return true;
+            } catch (IOException e) {
+                return false;
+            }
+        };
+    }
+
+    /**
+     * A health check that sends an HTTP/1.1 GET and expects a 2xx or 3xx answer
+     * @param path Path requested, e.g. "/health"
+     * @param timeoutMillis Connect and read timeout
+     * @return The health check
+     */
+    public static HealthCheck httpHealthCheck(String path, int timeoutMillis) {
+        return backend -> {
+            try (Socket socket = new Socket()) {
+                socket.setSoLinger(true, 0);
+                socket.connect(new InetSocketAddress(backend.getHost(), backend.getPort()), timeoutMillis);
+                socket.setSoTimeout(timeoutMillis);
+                OutputStream out = socket.getOutputStream();
+                out.write(("GET " + path + " HTTP/1.1\r\nHost: " + backend.getHost() + ":" + backend.getPort() +
+                           "\r\nConnection: close\r\n\r\n").getBytes(StandardCharsets.ISO_8859_1));
+                out.flush();
+                // "HTTP/1.1 200" is all that is needed
+                byte[] status = new byte[12];
+                InputStream in = socket.getInputStream();
+                int read = 0;
+                int n;
+                while (read < status.length && (n = in.read(status, read, status.length - read)) > 0) {
+                    read += n;
+                }
+                if (read < status.length || status[0] != 'H' || status[8] != ' ') {
+                    return false;
+                }
+                return status[9] == '2' || status[9] == '3';
+            } catch (IOException e) {
+                return false;
+            }
+        };
+    }
+
+    /**
+     * A backend and the statistics the balancer chooses by. Subclasses add what their
+     * users need per backend, such as the connection pool of a proxy upstream.
+     */
+    public static class Backend {
+        private final String name;
+        private final String host;
+        private final int port;
+        private final AtomicInteger outstanding = new AtomicInteger();
+        final AtomicInteger consecutiveFailures = new AtomicInteger();
+        final AtomicInteger samples = new AtomicInteger();
+        // EWMAs stored as the bits of a double so they can be updated with compare-and-set
+        private final AtomicLong latencyBits = new AtomicLong();
+        private final AtomicLong errorBits = new AtomicLong();
+        private volatile boolean healthy = true;
+        volatile long ejectedUntilNanos;
+        private int probeStreak;
+        volatile int ejectionCount;
+        MetricsRegistry.Counter selected;
+
+        /**
+         * Creates a backend
+         * @param name Name used in the log and as the metric label
+         * @param host Host name or address
+         * @param port Port
+         */
+        public Backend(String name, String host, int port) {
+            this.name = name;
+            this.host = host;
+            this.port = port;
+        }
+
+        /**
+         * Parses a "host:port" backend
+         * @param address Address such as "127.0.0.1:35000"
+         * @return The backend, named after the address
+         */
+        public static Backend parse(String address) {
+            int colon = address.lastIndexOf(':');
+            try {
+                if (colon > 0) {
+                    int port = Integer.parseInt(address.substring(colon + 1));
+                    if (port > 0 && port <= 65535) {
+                        return new Backend(address, address.substring(0, colon), port);
+                    }
+                }
+            } catch (NumberFormatException e) {
+                // Reported below
+            }
+            throw new IllegalArgumentException("Backend inválido, se espera host:puerto: " + address);
+        }
+
+        public String getName() { return name; }
+
+        public String getHost() { return host; }
+
+        public int getPort() { return port; }
+
+        /** Requests or connections in progress */
+        public int getOutstanding() { return outstanding.get(); }
+
+        /** Latency EWMA in nanoseconds, 0 until the first sample */
+        public long getLatencyNanos() { return (long) Double.longBitsToDouble(latencyBits.get()); }
+
+        /** Share of failed requests, as an EWMA between 0 and 1 */
+        public double getErrorRate() { return Double.longBitsToDouble(errorBits.get()); }
+
+        /** Whether the last health checks passed */
+        public boolean isHealthy() { return healthy; }
+
+        /** Whether outlier ejection keeps it out of rotation right now */
+        public boolean isEjected() { return isEjected(System.nanoTime()); }
+
+        /** Times it has been ejected */
+        public int getEjectionCount() { return ejectionCount; }
+
+        /** Counts a request or connection that starts */
+        public void acquire() {
+            outstanding.incrementAndGet();
+        }
+
+        /**
+         * Counts a request that starts unless the backend already has too many in progress
+         * @param max Maximum requests in progress
+         * @return false if the limit was reached
+         */
+        public boolean tryAcquire(int max) {
+            if (outstanding.incrementAndGet() > max) {
+                outstanding.decrementAndGet();
+                return false;
+            }
+            return true;
+        }
+
+        /** Counts a request or connection that ended */
+        public void release() {
+            outstanding.decrementAndGet();
+        }
+
+        boolean isAvailable(long now) {
+            return healthy && !isEjected(now);
+        }
+
+        boolean isEjected(long now) {
+            long until = ejectedUntilNanos;
+            if (until == 0) {
+                return false;
+            }
+            if (now - until < 0) {
+                return true;
+            }
+            // Back in rotation: judge it on new traffic only
+            synchronized (this) {
+                if (ejectedUntilNanos == until) {
+                    samples.set(0);
+                    consecutiveFailures.set(0);
+                    latencyBits.set(0);
+                    errorBits.set(0);
+                    ejectedUntilNanos = 0;
+                }
+            }
+            return false;
+        }
+
+        void record(long latencyNanos, boolean failed) {
+            int count = samples.incrementAndGet();
+            if (latencyNanos >= 0) {
+                // A latency of 0 means no sample yet, so the first one is taken as is
+                update(latencyBits, latencyNanos, LATENCY_ALPHA, true);
+            }
+            update(errorBits, failed ? 1.0 : 0.0, ERROR_ALPHA, count == 1);
+        }
+
+        private static void update(AtomicLong bits, double sample, double alpha, boolean seed) {
+            long current;
+            long updated;
+            do {
+                current = bits.get();
+                double value = Double.longBitsToDouble(current);
+                double next = seed && value == 0 ? sample : value + alpha * (sample - value);
+                updated = Double.doubleToRawLongBits(next);
+            } while (!bits.compareAndSet(current, updated));
+        }
+
+        /**
+         * Applies a health check result; only called from the health check thread
+         * @return true if the backend changed state
+         */
+        boolean recordProbe(boolean passed) {
+            if (passed == healthy) {
+                probeStreak = 0;
+                return false;
+            }
+            probeStreak++;
+            if (probeStreak < (healthy ? UNHEALTHY_THRESHOLD : HEALTHY_THRESHOLD)) {
+                return false;
+            }
+            probeStreak = 0;
+            healthy = passed;
+            return true;
+        }
+
+        @Override
+        public String toString() {
+            return name;
+        }
+    }
+}
@@ -0,0 +1,340 @@
+package edu.eci.arsw.networking;
+
+import java.io.IOException;
+import java.lang.reflect.Field;
+import java.lang.reflect.Method;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Consumer;
+
+/**
+ * Registry of memory-mapped static files, the off-heap alternative to {@link StaticFileCache}.
+ *
+ * Each hot file is mapped read-only once and its {@link MappedByteBuffer} is shared by
+ * every response that sends it, so the content lives in the operating system's page cache
+ * instead of in a {@code byte[]} on the Java heap: it costs the collector nothing to keep
+ * and is not copied when the file is read again.
+ *
+ * Mappings are reference counted. The registry holds one reference while a file is
+ * registered and every response holds one from {@link #get} or {@link #map} until its
+ * {@link ResponseWriter} releases it. When a file changes (detected from its modification
+ * time and size, at most once per revalidation interval, like the heap cache) or is evicted
+ * to stay within the byte budget, the registry drops its reference and maps the new
+ * version for later requests; the old mapping is unmapped only when the last response
+ * still sending it is done, so no response ever reads from an unmapped buffer.
+ *
+ * Unmapping uses the JDK's buffer cleaner when available and otherwise leaves it to the
+ * garbage collector. A file must be replaced (written elsewhere and renamed over) rather
+ * than truncated in place while it is mapped, as with any memory-mapped file.
+ *
+ * Hits, misses, remaps and evictions are counted per registry and added to the
+ * mmap_cache_*_total counters of the shared {@link MetricsRegistry}.
+ *
+ * @author GitHub Copilot Implementation
+ * @version 1.0
+ */
+final class MappedFileRegistry {
+
+    /**
+     * One mapped version of a file, with its optional mapped .gz sidecar
+     */
+    static final class MappedFile {
+        private final Path file;
+        private final String fileName;
+        private final MappedByteBuffer content;
+        private final MappedByteBuffer gzipContent;
+        private final long lastModifiedMillis;
+        private final FileValidators validators;
+        private final AtomicInteger references = new AtomicInteger(1);
+        private volatile long validatedAtNanos;
+
+        MappedFile(Path file, String fileName, MappedByteBuffer content, MappedByteBuffer gzipContent,
+                   long lastModifiedMillis) {
+            this.file = file;
+            this.fileName = fileName;
+            this.content = content;
+            this.gzipContent = gzipContent;
+            this.lastModifiedMillis = lastModifiedMillis;
+            this.validators = FileValidators.of(content.capacity(), lastModifiedMillis);
+            this.validatedAtNanos = System.nanoTime();
+        }
+
+        /** The file actually mapped (e.g. dir/index.html for a directory request) */
+        Path getFile() { return file; }
+
+        /** Path relative to the web root, used for MIME detection and logging */
+        String getFileName() { return fileName; }
+
+        long getSize() { return content.capacity(); }
+
+        /** ETag and Last-Modified of this file version */
+        FileValidators getValidators() { return validators; }
+
+        boolean hasGzipContent() { return gzipContent != null; }
+
+        /**
+         * Creates an independent read-only view of the content for one response
+         * @param gzip true for the mapped sidecar, false for the file itself
+         */
+        ByteBuffer view(boolean gzip) {
+            return (gzip ? gzipContent : content).asReadOnlyBuffer();
+        }
+
+        /** Bytes mapped for this entry, both variants included */
+        long weight() {
+            return content.capacity() + (gzipContent != null ? gzipContent.capacity() : 0);
+        }
+
+        int referenceCount() { return references.get(); }
+
+        /**
+         * Takes a reference for a response; only called while the file is registered
+         */
+        void retain() {
+            references.incrementAndGet();
+        }
+
+        /**
+         * Gives back a reference; the last one unmaps the file
+         */
+        void release() {
+            int remaining = references.decrementAndGet();
+            if (remaining == 0) {
+                unmap(content);
+                if (gzipContent != null) {
+                    unmap(gzipContent);
+                }
+            } else if (remaining < 0) {
+                throw new IllegalStateException("Referencia liberada dos veces: " + file);
+            }
+        }
+    }
+
+    private static final Method INVOKE_CLEANER;
+    private static final Object UNSAFE;
+
+    static {
+        Method invokeCleaner = null;
+        Object unsafe = null;
+        try {
+            Class<?> unsafeClass = Class.forName("sun.misc.Unsafe");
+            Field theUnsafe = unsafeClass.getDeclaredField("theUnsafe");
+            theUnsafe.setAccessible(true);
+            unsafe = theUnsafe.get(null);
+            invokeCleaner = unsafeClass.getMethod("invokeCleaner", ByteBuffer.class);
+        } catch (ReflectiveOperationException | RuntimeException e) {
+            // Without the cleaner, mappings are released when collected
+            invokeCleaner = null;
+            unsafe = null;
+        }
+        INVOKE_CLEANER = invokeCleaner;
+        UNSAFE = unsafe;
+    }
+
+    private final long maxBytes;
+    private final long maxFileBytes;
+    private final long revalidateIntervalNanos;
+    private final LinkedHashMap<Path, MappedFile> entries = new LinkedHashMap<>(64, 0.75f, true);
+    private long currentBytes;
+    private volatile Consumer<Path> changeListener;
+
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+    private final LongAdder remaps = new LongAdder();
+    private final LongAdder evictions = new LongAdder();
+    private final MetricsRegistry.Counter exportedHits;
+    private final MetricsRegistry.Counter exportedMisses;
+    private final MetricsRegistry.Counter exportedRemaps;
+    private final MetricsRegistry.Counter exportedEvictions;
+
+    /**
+     * Creates a registry
+     * @param maxBytes Total bytes that may be mapped at once (0 disables the registry)
+     * @param maxFileBytes Largest file that is mapped
+     * @param revalidateIntervalMillis Minimum time between modification checks of a file
+     */
+    MappedFileRegistry(long maxBytes, long maxFileBytes, long revalidateIntervalMillis) {
+        this.maxBytes = maxBytes;
+        this.maxFileBytes = Math.min(maxFileBytes, maxBytes);
+        this.revalidateIntervalNanos = TimeUnit.MILLISECONDS.toNanos(revalidateIntervalMillis);
+        MetricsRegistry metrics = MetricsRegistry.shared();
+        this.exportedHits = metrics.counter("mmap_cache_hits_total",
+                                            "Archivos servidos desde un mapeo en memoria existente").labels();
+        this.exportedMisses = metrics.counter("mmap_cache_misses_total",
+                                              "Búsquedas en el registro de archivos mapeados sin mapeo vigente").labels();
+        this.exportedRemaps = metrics.counter("mmap_cache_remaps_total",
+                                              "Mapeos descartados porque el archivo cambió").labels();
+        this.exportedEvictions = metrics.counter("mmap_cache_evictions_total",
+                                                 "Mapeos desalojados para respetar el límite de bytes").labels();
+    }
+
+    /**
+     * Looks up a resolved request path and takes a reference on its mapping
+     * @param key Path resolved from the request
+     * @return The mapped file, to be released by the caller, or null on a miss or when the
+     *         file changed since it was mapped
+     */
+    MappedFile get(Path key) {
+        MappedFile mapped;
+        synchronized (this) {
+            mapped = entries.get(key);
+            if (mapped != null) {
+                mapped.retain();
+            }
+        }
+        if (mapped == null) {
+            misses.increment();
+            exportedMisses.increment();
+            return null;
+        }
+
+        long now = System.nanoTime();
+        if (now - mapped.validatedAtNanos >= revalidateIntervalNanos) {
+            if (!isUnchanged(mapped)) {
+                retire(key, mapped);
+                notifyChanged(mapped.file);
+                remaps.increment();
+                exportedRemaps.increment();
+                mapped.release();
+                return null;
+            }
+            mapped.validatedAtNanos = now;
+        }
+        hits.increment();
+        exportedHits.increment();
+        return mapped;
+    }
+
+    /**
+     * Maps a file and registers it, replacing any older mapping of the same key
+     * @param key Path resolved from the request
+     * @param file File to map
+     * @param fileName Path relative to the web root
+     * @param lastModifiedMillis Modification time read before mapping
+     * @param gzipSidecar Fresh .gz sidecar to map along with the file, or null
+     * @return The mapped file with a reference taken for the caller, or null if the file is
+     *         too large to be mapped within the budget
+     * @throws IOException If the file cannot be mapped
+     */
+    MappedFile map(Path key, Path file, String fileName, long lastModifiedMillis, Path gzipSidecar) throws IOException {
+        MappedByteBuffer content = mapReadOnly(file);
+        MappedByteBuffer gzipContent = gzipSidecar != null ? mapReadOnly(gzipSidecar) : null;
+        MappedFile mapped = new MappedFile(file, fileName, content, gzipContent, lastModifiedMillis);
+        if (mapped.weight() > maxFileBytes) {
+            // Not registered: the caller's reference is the only one
+            return mapped;
+        }
+
+        mapped.retain();
+        synchronized (this) {
+            MappedFile previous = entries.put(key, mapped);
+            if (previous != null) {
+                currentBytes -= previous.weight();
+                previous.release();
+            }
+            currentBytes += mapped.weight();
+
+            Iterator<Map.Entry<Path, MappedFile>> eldest = entries.entrySet().iterator();
+            while (currentBytes > maxBytes && eldest.hasNext()) {
+                Map.Entry<Path, MappedFile> victim = eldest.next();
+                if (victim.getKey().equals(key)) {
+                    continue;
+                }
+                currentBytes -= victim.getValue().weight();
+                eldest.remove();
+                victim.getValue().release();
+                evictions.increment();
+                exportedEvictions.increment();
+            }
+        }
+        return mapped;
+    }
+
+    /**
+     * Unregisters every file; mappings still being sent are unmapped when released
+     */
+    synchronized void clear() {
+        for (MappedFile mapped : entries.values()) {
+            mapped.release();
+        }
+        entries.clear();
+        currentBytes = 0;
+    }
+
+    private synchronized void retire(Path key, MappedFile mapped) {
+        if (entries.remove(key, mapped)) {
+            currentBytes -= mapped.weight();
+            mapped.release();
+        }
+    }
+
+    private static boolean isUnchanged(MappedFile mapped) {
+        try {
+            BasicFileAttributes attributes = Files.readAttributes(mapped.file, BasicFileAttributes.class);
+            return attributes.lastModifiedTime().toMillis() == mapped.lastModifiedMillis
+                   && attributes.size() == mapped.getSize();
+        } catch (IOException e) {
+            // Deleted or unreadable: drop the mapping and let the request path report it
+            return false;
+        }
+    }
+
+    private static MappedByteBuffer mapReadOnly(Path file) throws IOException {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            // The mapping stays valid after the channel is closed
+            return channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+        }
+    }
+
+    private static void unmap(MappedByteBuffer buffer) {
+        if (INVOKE_CLEANER == null || buffer.capacity() == 0) {
+            return;
+        }
+        try {
+            INVOKE_CLEANER.invoke(UNSAFE, buffer);
+        } catch (ReflectiveOperationException | RuntimeException e) {
+            // Left to the garbage collector
+        }
+    }
+
+    /**
+     * Registers a callback told about every file found changed on revalidation, so other
+     * views of the web root (the {@link WebRootIndex}) catch up at the same moment
+     * @param listener Receives the path of the changed file
+     */
+    void setChangeListener(Consumer<Path> listener) {
+        this.changeListener = listener;
+    }
+
+    private void notifyChanged(Path file) {
+        Consumer<Path> listener = changeListener;
+        if (listener != null) {
+            listener.accept(file);
+        }
+    }
+
+    boolean isEnabled() { return maxBytes > 0; }
+
+    long getHits() { return hits.sum(); }
+
+    long getMisses() { return misses.sum(); }
+
+    long getRemaps() { return remaps.sum(); }
+
+    long getEvictions() { return evictions.sum(); }
+
+    synchronized long getCurrentBytes() { return currentBytes; }
+
+    synchronized int size() { return entries.size(); }
+}
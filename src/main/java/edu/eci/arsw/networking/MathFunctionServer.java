@@ -3,6 +3,7 @@ package edu.eci.arsw.networking;
 import java.net.ServerSocket;
 import java.net.Socket;
 import java.io.*;
+import java.util.concurrent.RejectedExecutionException;
 
 /**
  * Exercise 4.3.2: Mathematical Function Server
@@ -14,6 +15,8 @@ import java.io.*;
  * - Server responds: "Respuesta: [result of function applied to number]"
  * - Supported functions: sin, cos, tan
  * - Default function: cos (cosine)
+ * - A connection silent for longer than the idle timeout (networking.idle.timeout, default
+ *   120 s) is closed by the shared {@link HashedWheelTimer}
  * 
  * Function switching commands:
  * - "fun:sin" - Switch to sine function
@@ -34,6 +37,7 @@ import java.io.*;
 public class MathFunctionServer {
     
     private static final int SERVER_PORT = 35001;
+    private static final long DEFAULT_IDLE_TIMEOUT_MILLIS = 120_000;
     private static final String RESPONSE_PREFIX = "Respuesta: ";
     private static final String FUNCTION_COMMAND_PREFIX = "fun:";
     
@@ -65,15 +69,64 @@ public class MathFunctionServer {
             return null;
         }
     }
-      private volatile boolean isRunning = false;
+    
+    private final int port;
+    private final ConnectionExecutor connectionExecutor;
+    private final EventLog eventLog;
+    private volatile long idleTimeoutMillis = Long.getLong("networking.idle.timeout", DEFAULT_IDLE_TIMEOUT_MILLIS);
+    private final MetricsRegistry.Family<MetricsRegistry.Counter> evaluations;
+    private final MetricsRegistry.Family<MetricsRegistry.Histogram> evaluationDurations;
+    private final MetricsRegistry.Family<MetricsRegistry.Counter> functionChanges;
+    private volatile boolean isRunning = false;
     private ServerSocket serverSocket;
     
+    /**
+     * Creates a server on the default port whose threading model comes from the
+     * networking.executor system properties (see {@link ConnectionExecutor})
+     */
+    public MathFunctionServer() {
+        this(SERVER_PORT, ConnectionExecutor.fromSystemProperties("math"));
+    }
+    
+    /**
+     * Creates a server with an explicit port and threading model
+     * @param port Port to listen on
+     * @param connectionExecutor Executor that runs each client connection
+     */
+    public MathFunctionServer(int port, ConnectionExecutor connectionExecutor) {
+        this(port, connectionExecutor, EventLog.shared());
+    }
+    
+    /**
+     * Creates a server with an explicit port, threading model and log
+     * @param port Port to listen on
+     * @param connectionExecutor Executor that runs each client connection
+     * @param eventLog Asynchronous log for per-connection and per-message events
+     */
+    public MathFunctionServer(int port, ConnectionExecutor connectionExecutor, EventLog eventLog) {
+        this.port = port;
+        this.connectionExecutor = connectionExecutor;
+        this.eventLog = eventLog;
+        MetricsRegistry metrics = MetricsRegistry.shared();
+        this.evaluations = metrics.counter("math_evaluations_total",
+                                           "Números evaluados por función y resultado (ok, nan, infinite, invalid)",
+                                           "function", "outcome");
+        this.evaluationDurations = metrics.histogram("math_evaluation_duration_seconds",
+                                                     "Tiempo de análisis, cálculo y formato de un número",
+                                                     "function");
+        this.functionChanges = metrics.counter("math_function_changes_total",
+                                               "Cambios de función solicitados con fun:, por función elegida",
+                                               "function");
+    }
+    
     /**
      * Main method to start the server
-     * @param args Command line arguments (not used)
+     * @param args Optional port, so several instances can run side by side behind a
+     *        {@link TcpLoadBalancer} (default 35001)
      */
     public static void main(String[] args) {
-        MathFunctionServer server = new MathFunctionServer();
+        int port = args.length > 0 ? Integer.parseInt(args[0]) : SERVER_PORT;
+        MathFunctionServer server = new MathFunctionServer(port, ConnectionExecutor.fromSystemProperties("math"));
         server.startServer();
     }
     
@@ -87,7 +140,8 @@ public class MathFunctionServer {
         }
         
         System.out.println("=== MATHEMATICAL FUNCTION SERVER ===");
-        System.out.println("Servidor iniciado en puerto: " + SERVER_PORT);
+        System.out.println("Servidor iniciado en puerto: " + port);
+        System.out.println("Modo de ejecución: " + connectionExecutor.getMode().getCommand());
         System.out.println("Función por defecto: coseno (cos)");
         System.out.println("Funciones disponibles: sin, cos, tan");
         System.out.println("Comando para cambiar función: fun:[función]");
@@ -96,23 +150,21 @@ public class MathFunctionServer {
         System.out.println();
         
         try {
-            serverSocket = new ServerSocket(SERVER_PORT);
+            serverSocket = new ServerSocket(port);
             isRunning = true;
             
             while (isRunning) {
                 try {
                     // Wait for client connection
                     Socket clientSocket = serverSocket.accept();
-                    System.out.println("Nueva conexión desde: " + clientSocket.getInetAddress().getHostAddress());
+                    eventLog.info("Nueva conexión desde: " + clientSocket.getInetAddress().getHostAddress());
                     
-                    // Handle client in a separate thread for concurrent connections
-                    Thread clientThread = new Thread(() -> handleClient(clientSocket));
-                    clientThread.setDaemon(true);
-                    clientThread.start();
+                    // Handle client concurrently according to the configured executor
+                    dispatchClient(clientSocket);
                     
                 } catch (IOException e) {
                     if (isRunning) {
-                        System.err.println("Error aceptando conexión del cliente: " + e.getMessage());
+                        eventLog.error("Error aceptando conexión del cliente: " + e.getMessage());
                     }
                 }
             }
@@ -122,6 +174,24 @@ public class MathFunctionServer {
             e.printStackTrace();
         } finally {
             cleanup();
+            connectionExecutor.shutdown();
+        }
+    }
+    
+    /**
+     * Hands an accepted connection to the executor, closing it if the server is saturated
+     * @param clientSocket The socket connection to the client
+     */
+    private void dispatchClient(Socket clientSocket) {
+        try {
+            connectionExecutor.execute(() -> handleClient(clientSocket));
+        } catch (RejectedExecutionException e) {
+            eventLog.error("Servidor saturado, conexión rechazada: " + clientSocket.getInetAddress().getHostAddress());
+            try {
+                clientSocket.close();
+            } catch (IOException closeError) {
+                eventLog.error("Error cerrando socket del cliente: " + closeError.getMessage());
+            }
         }
     }
     
@@ -134,16 +204,21 @@ public class MathFunctionServer {
         // Each client starts with cosine as the default function
         MathFunction currentFunction = MathFunction.COS;
         
+        String clientAddress = clientSocket.getInetAddress().getHostAddress();
+        // Closing the socket unblocks the read or write the handler is stuck in
+        HashedWheelTimer.Watchdog watchdog = HashedWheelTimer.shared().watchdog(() -> closeExpired(clientSocket));
         try (BufferedReader in = new BufferedReader(new InputStreamReader(clientSocket.getInputStream()));
              PrintWriter out = new PrintWriter(clientSocket.getOutputStream(), true)) {
             
-            String clientAddress = clientSocket.getInetAddress().getHostAddress();
-            System.out.println("Cliente conectado desde: " + clientAddress);
-            System.out.println("Función inicial para " + clientAddress + ": " + currentFunction.getDisplayName());
+            eventLog.info("Cliente conectado desde: " + clientAddress);
+            eventLog.info("Función inicial para " + clientAddress + ": " + currentFunction.getDisplayName());
             
             String inputLine;
+            watchdog.arm(idleTimeoutMillis);
             while ((inputLine = in.readLine()) != null) {
-                System.out.println("Mensaje recibido de " + clientAddress + ": " + inputLine);
+                // The deadline covers sending the answer and waiting for the next message
+                watchdog.arm(idleTimeoutMillis);
+                eventLog.info("Mensaje recibido de " + clientAddress + ": " + inputLine);
                 
                 // Process the input
                 ProcessResult result = processInput(inputLine, currentFunction);
@@ -151,28 +226,33 @@ public class MathFunctionServer {
                 // Update current function if it was changed
                 if (result.newFunction != null) {
                     currentFunction = result.newFunction;
-                    System.out.println("Función cambiada para " + clientAddress + ": " + currentFunction.getDisplayName());
+                    eventLog.info("Función cambiada para " + clientAddress + ": " + currentFunction.getDisplayName());
                 }
                 
                 // Send response to client
                 out.println(result.response);
-                System.out.println("Respuesta enviada a " + clientAddress + ": " + result.response);
+                eventLog.info("Respuesta enviada a " + clientAddress + ": " + result.response);
                 
                 // Break if client sends "exit" or "quit"
                 if ("exit".equalsIgnoreCase(inputLine.trim()) || "quit".equalsIgnoreCase(inputLine.trim())) {
-                    System.out.println("Cliente " + clientAddress + " solicitó desconexión");
+                    eventLog.info("Cliente " + clientAddress + " solicitó desconexión");
                     break;
                 }
             }
             
         } catch (IOException e) {
-            System.err.println("Error en comunicación con cliente: " + e.getMessage());
+            if (watchdog.isExpired()) {
+                eventLog.info("Tiempo de espera agotado para: " + clientAddress);
+            } else {
+                eventLog.error("Error en comunicación con cliente: " + e.getMessage());
+            }
         } finally {
+            watchdog.close();
             try {
                 clientSocket.close();
-                System.out.println("Conexión cerrada con cliente: " + clientSocket.getInetAddress().getHostAddress());
+                eventLog.info("Conexión cerrada con cliente: " + clientSocket.getInetAddress().getHostAddress());
             } catch (IOException e) {
-                System.err.println("Error cerrando socket del cliente: " + e.getMessage());
+                eventLog.error("Error cerrando socket del cliente: " + e.getMessage());
             }
         }
     }
@@ -180,7 +260,7 @@ public class MathFunctionServer {
     /**
      * Result class to hold the processing result and any function change
      */
-    private static class ProcessResult {
+    static class ProcessResult {
         final String response;
         final MathFunction newFunction;
         
@@ -196,7 +276,7 @@ public class MathFunctionServer {
      * @param currentFunction The current mathematical function being used
      * @return ProcessResult containing the response and any function change
      */
-    private ProcessResult processInput(String input, MathFunction currentFunction) {
+    ProcessResult processInput(String input, MathFunction currentFunction) {
         if (input == null || input.trim().isEmpty()) {
             return new ProcessResult(RESPONSE_PREFIX + "Error - Entrada vacía", null);
         }
@@ -223,6 +303,7 @@ public class MathFunctionServer {
         MathFunction newFunction = MathFunction.fromCommand(functionName);
         
         if (newFunction != null) {
+            functionChanges.labels(newFunction.getCommand()).increment();
             String response = RESPONSE_PREFIX + "Función cambiada a: " + newFunction.getDisplayName();
             return new ProcessResult(response, newFunction);
         } else {
@@ -239,6 +320,8 @@ public class MathFunctionServer {
      * @return ProcessResult with the calculation result
      */
     private ProcessResult processNumberInput(String input, MathFunction function) {
+        long startNanos = System.nanoTime();
+        String outcome = "ok";
         try {
             // Parse the input as a number
             double number = Double.parseDouble(input);
@@ -249,8 +332,10 @@ public class MathFunctionServer {
             // Format the response
             String response;
             if (Double.isNaN(result)) {
+                outcome = "nan";
                 response = RESPONSE_PREFIX + "Error - Resultado indefinido (NaN)";
             } else if (Double.isInfinite(result)) {
+                outcome = "infinite";
                 response = RESPONSE_PREFIX + "Error - Resultado infinito";
             } else {
                 // Format with 6 decimal places for precision
@@ -260,8 +345,12 @@ public class MathFunctionServer {
             return new ProcessResult(response, null);
             
         } catch (NumberFormatException e) {
+            outcome = "invalid";
             String response = RESPONSE_PREFIX + "Error - '" + input + "' no es un número válido";
             return new ProcessResult(response, null);
+        } finally {
+            evaluations.labels(function.getCommand(), outcome).increment();
+            evaluationDurations.labels(function.getCommand()).record(System.nanoTime() - startNanos);
         }
     }
     
@@ -284,6 +373,29 @@ public class MathFunctionServer {
         }
     }
       /**
+     * Closes a connection that stayed silent past the idle timeout; runs on the timer thread
+     * @param clientSocket The socket connection to the client
+     */
+    private void closeExpired(Socket clientSocket) {
+        try {
+            clientSocket.close();
+        } catch (IOException e) {
+            eventLog.error("Error cerrando socket del cliente: " + e.getMessage());
+        }
+    }
+    
+    /**
+     * Sets how long a connection may stay silent before it is closed
+     * @param idleTimeoutMillis Idle timeout in milliseconds
+     */
+    public void setIdleTimeoutMillis(long idleTimeoutMillis) {
+        if (idleTimeoutMillis < 1) {
+            throw new IllegalArgumentException("Tiempo de inactividad inválido: " + idleTimeoutMillis);
+        }
+        this.idleTimeoutMillis = idleTimeoutMillis;
+    }
+    
+    /**
      * Stops the server gracefully
      */
     public void stopServer() {
@@ -0,0 +1,400 @@
+package edu.eci.arsw.networking;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Supplier;
+
+/**
+ * Lightweight metrics registry shared by the servers of this project and exported in the
+ * Prometheus text format by {@link SimpleWebServer} on its /metrics path.
+ *
+ * Two metric types are supported:
+ * - {@link Counter}   - a striped {@link LongAdder}, so concurrent increments do not contend
+ * - {@link Histogram} - a log-linear latency histogram: 16 linear sub-buckets per power of
+ *                       two of nanoseconds (about 6% relative error) recorded with one
+ *                       atomic increment, no lock and no allocation
+ *
+ * Metrics are grouped in families that share a name, help text and label names; each
+ * combination of label values is one series, created on first use. A family holds at most
+ * {@link #MAX_SERIES_PER_FAMILY} series, after which new label values are folded into a
+ * single series labelled "other", so unbounded values (such as request paths) cannot grow
+ * the registry without limit.
+ *
+ * Histograms are exported with a fixed set of bucket boundaries, from 100 µs to 10 s; each
+ * internal bucket is counted under the first boundary at or above its upper bound.
+ *
+ * @author GitHub Copilot Implementation
+ * @version 1.0
+ */
+public final class MetricsRegistry {
+
+    public static final int MAX_SERIES_PER_FAMILY = 500;
+    static final String OVERFLOW_LABEL = "other";
+
+    /** Bucket boundaries, in seconds, of the exported histograms */
+    private static final double[] EXPORT_BOUNDARIES_SECONDS = {
+        0.0001, 0.00025, 0.0005, 0.001, 0.0025, 0.005, 0.01, 0.025, 0.05, 0.1, 0.25, 0.5, 1, 2.5, 5, 10
+    };
+    private static final String[] EXPORT_BOUNDARY_LABELS = new String[EXPORT_BOUNDARIES_SECONDS.length];
+    static {
+        for (int i = 0; i < EXPORT_BOUNDARIES_SECONDS.length; i++) {
+            EXPORT_BOUNDARY_LABELS[i] =
+                BigDecimal.valueOf(EXPORT_BOUNDARIES_SECONDS[i]).stripTrailingZeros().toPlainString();
+        }
+    }
+
+    private static final MetricsRegistry SHARED = new MetricsRegistry();
+
+    /**
+     * Monotonic counter
+     */
+    public static final class Counter {
+        private final LongAdder value = new LongAdder();
+
+        public void increment() {
+            value.increment();
+        }
+
+        public void add(long amount) {
+            value.add(amount);
+        }
+
+        public long get() {
+            return value.sum();
+        }
+    }
+
+    /**
+     * Log-linear histogram of durations in nanoseconds
+     */
+    public static final class Histogram {
+        static final int SUB_BUCKET_BITS = 4;
+        static final int SUB_BUCKETS = 1 << SUB_BUCKET_BITS;
+        /** Values from 2^MAX_EXPONENT ns (about 4.9 hours) up land in the last bucket */
+        static final int MAX_EXPONENT = 44;
+        static final int BUCKETS = SUB_BUCKETS * (MAX_EXPONENT - SUB_BUCKET_BITS + 1);
+
+        private final AtomicLongArray counts = new AtomicLongArray(BUCKETS);
+        private final LongAdder count = new LongAdder();
+        private final LongAdder sum = new LongAdder();
+
+        /**
+         * Records one duration
+         * @param nanos Duration in nanoseconds; negative values count as zero
+         */
+        public void record(long nanos) {
+            long value = Math.max(0, nanos);
+            counts.incrementAndGet(bucketIndex(value));
+            count.increment();
+            sum.add(value);
+        }
+
+        public long getCount() {
+            return count.sum();
+        }
+
+        /** Sum of the recorded durations in nanoseconds */
+        public long getSum() {
+            return sum.sum();
+        }
+
+        /**
+         * Estimates a percentile from the buckets
+         * @param percentile Value between 0 and 100
+         * @return Upper bound, in nanoseconds, of the bucket holding the percentile, or 0 if
+         *         nothing was recorded
+         */
+        public long getPercentile(double percentile) {
+            long total = 0;
+            long[] snapshot = new long[BUCKETS];
+            for (int i = 0; i < BUCKETS; i++) {
+                snapshot[i] = counts.get(i);
+                total += snapshot[i];
+            }
+            if (total == 0) {
+                return 0;
+            }
+            long rank = Math.max(1, (long) Math.ceil(percentile / 100.0 * total));
+            long seen = 0;
+            for (int i = 0; i < BUCKETS; i++) {
+                seen += snapshot[i];
+                if (seen >= rank) {
+                    return bucketUpperBound(i);
+                }
+            }
+            return bucketUpperBound(BUCKETS - 1);
+        }
+
+        static int bucketIndex(long value) {
+            if (value < SUB_BUCKETS) {
+                return (int) value;
+            }
+            int exponent = 63 - Long.numberOfLeadingZeros(value);
+            if (exponent >= MAX_EXPONENT) {
+                return BUCKETS - 1;
+            }
+            int shift = exponent - SUB_BUCKET_BITS;
+            int subBucket = (int) (value >>> shift) & (SUB_BUCKETS - 1);
+            return SUB_BUCKETS * (shift + 1) + subBucket;
+        }
+
+        /** Largest value that falls into a bucket */
+        static long bucketUpperBound(int index) {
+            if (index < SUB_BUCKETS) {
+                return index;
+            }
+            int shift = index / SUB_BUCKETS - 1;
+            long lowest = (long) (SUB_BUCKETS + index % SUB_BUCKETS) << shift;
+            return lowest + (1L << shift) - 1;
+        }
+
+        long bucketCount(int index) {
+            return counts.get(index);
+        }
+    }
+
+    /**
+     * Metrics sharing a name and label names, one per combination of label values
+     * @param <M> Counter or Histogram
+     */
+    public static final class Family<M> {
+        private final String name;
+        private final String help;
+        private final String type;
+        private final String[] labelNames;
+        private final Supplier<M> factory;
+        private final ConcurrentHashMap<String, Series<M>> series = new ConcurrentHashMap<>();
+
+        private Family(String name, String help, String type, String[] labelNames, Supplier<M> factory) {
+            this.name = name;
+            this.help = help;
+            this.type = type;
+            this.labelNames = labelNames.clone();
+            this.factory = factory;
+        }
+
+        /**
+         * Gets the series for a combination of label values, creating it on first use
+         * @param labelValues One value per label name, in order
+         * @return The metric of that series
+         */
+        public M labels(CharSequence... labelValues) {
+            if (labelValues.length != labelNames.length) {
+                throw new IllegalArgumentException("Se esperaban " + labelNames.length + " etiquetas para " + name +
+                                                   ", se recibieron " + labelValues.length);
+            }
+            String key = seriesKey(labelValues);
+            Series<M> existing = series.get(key);
+            if (existing != null) {
+                return existing.metric;
+            }
+            if (series.size() >= MAX_SERIES_PER_FAMILY) {
+                CharSequence[] overflow = new CharSequence[labelNames.length];
+                Arrays.fill(overflow, OVERFLOW_LABEL);
+                return series.computeIfAbsent(seriesKey(overflow),
+                                              k -> new Series<>(overflow, factory.get())).metric;
+            }
+            return series.computeIfAbsent(key, k -> new Series<>(labelValues, factory.get())).metric;
+        }
+
+        int size() {
+            return series.size();
+        }
+
+        private static String seriesKey(CharSequence[] labelValues) {
+            StringBuilder key = new StringBuilder();
+            for (CharSequence value : labelValues) {
+                key.append(value).append('\u0000');
+            }
+            return key.toString();
+        }
+    }
+
+    private static final class Series<M> {
+        private final String[] labelValues;
+        private final M metric;
+
+        Series(CharSequence[] labelValues, M metric) {
+            this.labelValues = new String[labelValues.length];
+            for (int i = 0; i < labelValues.length; i++) {
+                this.labelValues[i] = labelValues[i].toString();
+            }
+            this.metric = metric;
+        }
+    }
+
+    private final Map<String, Family<?>> families = new LinkedHashMap<>();
+
+    /**
+     * Creates an empty registry; the servers all use {@link #shared()}
+     */
+    MetricsRegistry() {
+    }
+
+    /**
+     * Gets the process-wide registry every server records into
+     * @return The shared registry
+     */
+    public static MetricsRegistry shared() {
+        return SHARED;
+    }
+
+    /**
+     * Registers a counter family, or returns the one already registered under the name
+     * @param name Metric name, e.g. "http_requests_total"
+     * @param help Description shown in the export
+     * @param labelNames Names of the labels that tell its series apart
+     * @return The counter family
+     */
+    public Family<Counter> counter(String name, String help, String... labelNames) {
+        return register(name, help, "counter", labelNames, Counter::new);
+    }
+
+    /**
+     * Registers a histogram family, or returns the one already registered under the name
+     * @param name Metric name, e.g. "http_request_duration_seconds"
+     * @param help Description shown in the export
+     * @param labelNames Names of the labels that tell its series apart
+     * @return The histogram family
+     */
+    public Family<Histogram> histogram(String name, String help, String... labelNames) {
+        return register(name, help, "histogram", labelNames, Histogram::new);
+    }
+
+    @SuppressWarnings("unchecked")
+    private synchronized <M> Family<M> register(String name, String help, String type, String[] labelNames,
+                                                Supplier<M> factory) {
+        Family<?> existing = families.get(name);
+        if (existing != null) {
+            if (!existing.type.equals(type) || !Arrays.equals(existing.labelNames, labelNames)) {
+                throw new IllegalArgumentException("Métrica registrada con otro tipo o etiquetas: " + name);
+            }
+            return (Family<M>) existing;
+        }
+        Family<M> family = new Family<>(name, help, type, labelNames, factory);
+        families.put(name, family);
+        return family;
+    }
+
+    /**
+     * Writes every family in the Prometheus text exposition format (version 0.0.4)
+     * @param out Destination
+     */
+    public void writePrometheus(StringBuilder out) {
+        for (Family<?> family : snapshot()) {
+            writeFamily(family, out);
+        }
+    }
+
+    /**
+     * Exports the families one at a time, for a response streamed in chunks: each call to
+     * next() renders one family into the same builder, so only the largest family is ever
+     * held in memory rather than the whole export
+     * @return The text of each family, valid until the next call to next()
+     */
+    Iterator<CharSequence> prometheusFamilies() {
+        Iterator<Family<?>> remaining = snapshot().iterator();
+        StringBuilder text = new StringBuilder(1024);
+        return new Iterator<>() {
+            @Override
+            public boolean hasNext() {
+                return remaining.hasNext();
+            }
+
+            @Override
+            public CharSequence next() {
+                text.setLength(0);
+                writeFamily(remaining.next(), text);
+                return text;
+            }
+        };
+    }
+
+    private synchronized List<Family<?>> snapshot() {
+        return new ArrayList<>(families.values());
+    }
+
+    private static void writeFamily(Family<?> family, StringBuilder out) {
+        out.append("# HELP ").append(family.name).append(' ');
+        appendEscaped(family.help, out, false);
+        out.append('\n');
+        out.append("# TYPE ").append(family.name).append(' ').append(family.type).append('\n');
+        for (Series<?> series : family.series.values()) {
+            if (series.metric instanceof Counter) {
+                out.append(family.name);
+                appendLabels(family.labelNames, series.labelValues, null, out);
+                out.append(' ').append(((Counter) series.metric).get()).append('\n');
+            } else {
+                writeHistogram(family, series, (Histogram) series.metric, out);
+            }
+        }
+    }
+
+    private static void writeHistogram(Family<?> family, Series<?> series, Histogram histogram, StringBuilder out) {
+        long cumulative = 0;
+        int bucket = 0;
+        for (int i = 0; i < EXPORT_BOUNDARIES_SECONDS.length; i++) {
+            long boundaryNanos = Math.round(EXPORT_BOUNDARIES_SECONDS[i] * TimeUnit.SECONDS.toNanos(1));
+            while (bucket < Histogram.BUCKETS && Histogram.bucketUpperBound(bucket) <= boundaryNanos) {
+                cumulative += histogram.bucketCount(bucket);
+                bucket++;
+            }
+            out.append(family.name).append("_bucket");
+            appendLabels(family.labelNames, series.labelValues, EXPORT_BOUNDARY_LABELS[i], out);
+            out.append(' ').append(cumulative).append('\n');
+        }
+        long count = histogram.getCount();
+        out.append(family.name).append("_bucket");
+        appendLabels(family.labelNames, series.labelValues, "+Inf", out);
+        out.append(' ').append(count).append('\n');
+        out.append(family.name).append("_sum");
+        appendLabels(family.labelNames, series.labelValues, null, out);
+        out.append(' ').append(histogram.getSum() / 1e9).append('\n');
+        out.append(family.name).append("_count");
+        appendLabels(family.labelNames, series.labelValues, null, out);
+        out.append(' ').append(count).append('\n');
+    }
+
+    private static void appendLabels(String[] names, String[] values, String le, StringBuilder out) {
+        if (names.length == 0 && le == null) {
+            return;
+        }
+        out.append('{');
+        for (int i = 0; i < names.length; i++) {
+            if (i > 0) {
+                out.append(',');
+            }
+            out.append(names[i]).append("=\"");
+            appendEscaped(values[i], out, true);
+            out.append('"');
+        }
+        if (le != null) {
+            out.append(names.length > 0 ? "," : "").append("le=\"").append(le).append('"');
+        }
+        out.append('}');
+    }
+
+    private static void appendEscaped(String value, StringBuilder out, boolean quote) {
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            if (c == '\\') {
+                out.append("\\\\");
+            } else if (c == '\n') {
+                out.append("\\n");
+            } else if (c == '"' && quote) {
+                out.append("\\\"");
+            } else {
+                out.append(c);
+            }
+        }
+    }
+}
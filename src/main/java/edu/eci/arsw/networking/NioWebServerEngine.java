@@ -0,0 +1,795 @@
+package edu.eci.arsw.networking;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.InetSocketAddress;
+import java.net.SocketTimeoutException;
+import java.net.StandardSocketOptions;
+import java.nio.ByteBuffer;
+import java.nio.channels.ByteChannel;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+import java.util.Iterator;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.RejectedExecutionException;
+
+/**
+ * Non-blocking engine for {@link SimpleWebServer} built on {@link ServerSocketChannel}
+ * and {@link Selector}.
+ *
+ * A fixed set of reactor threads each multiplexes its connections on its own selector, so
+ * a client that sends its request slowly only delays itself instead of stalling every
+ * other visitor as the sequential accept loop does. Connections reach the reactors in one
+ * of two ways:
+ * - nio       - One acceptor loop on the calling thread hands every new connection to the
+ *               next reactor (round-robin).
+ * - reuseport - Every reactor binds its own listening channel to the same port with
+ *               SO_REUSEPORT and accepts on its own selector. The kernel spreads incoming
+ *               connections across the listeners, so there is no shared accept loop, no
+ *               hand-off between threads and no lock contended by the reactors; each
+ *               connection, with its buffers and parser, lives and dies on the reactor
+ *               that accepted it. Platforms without SO_REUSEPORT fall back to nio.
+ *
+ * Each connection feeds the bytes it reads to its own {@link HttpRequestParser}, which
+ * copes with requests split across any number of reads, and answers complete heads
+ * through {@link SimpleWebServer#processRequest}, which keeps the served
+ * files, status codes and keep-alive rules identical to the blocking engine. Every
+ * connection carries a watchdog on the shared {@link HashedWheelTimer} armed with the
+ * deadline of its current phase (idle, reading a head, writing a response); when one
+ * passes, the timer hands the connection back to its reactor, which closes it. No reactor
+ * ever walks all of its connections looking for stale ones.
+ *
+ * Admission control happens on the reactors too: a connection beyond the server's limit is
+ * answered with the shared 503 as soon as the reactor sees it, and a request is shed when
+ * the reactor's own backlog (the time since its selector woke up) shows a standing queue
+ * or the in-flight limit is reached (see {@link AdmissionController}).
+ *
+ * A request whose handling throws is answered with a 500 and its connection closed; any
+ * other unexpected failure closes only the connection it happened on, so the reactor and
+ * the rest of its connections keep running.
+ *
+ * Requests for a proxied path (see {@link ReverseProxy}) never wait on a reactor: the
+ * connection stops waiting for events and a worker thread of the proxy executor forwards
+ * the request, streams its body from the client, and writes the upstream's answer back.
+ * Whenever the client is not ready, the worker waits on a selector of its own. Once the
+ * response is out, the connection goes back to its reactor for the next request.
+ *
+ * Responses are drained by a {@link ResponseWriter}; large files go out with
+ * {@link java.nio.channels.FileChannel#transferTo} in as many writable events as the
+ * socket needs, so a slow download never holds the file in memory.
+ *
+ * With TLS configured, each connection reads and writes through a {@link TlsChannel} on
+ * top of its socket channel. The handshake is driven by the same readable and writable
+ * events as the requests: whenever the engine has handshake or response records that did
+ * not fit in the socket buffer, the connection also waits for the socket to become
+ * writable. Decrypted bytes that did not fit in the request buffer never wake the
+ * selector, so they are read again before the connection goes back to waiting.
+ *
+ * @author GitHub Copilot Implementation
+ * @version 1.0
+ */
+class NioWebServerEngine {
+
+    private static final int REQUEST_BUFFER_SIZE = 4096;
+
+    private final SimpleWebServer server;
+    private final WebServerConfig config;
+    private final Selector acceptSelector;
+    private final Reactor[] reactors;
+    private final ConnectionExecutor proxyWorkers;
+    private volatile boolean isRunning = true;
+
+    /**
+     * Creates the engine and its reactors; nothing is bound until {@link #start()}
+     * @param server Server that builds the responses
+     * @param config Server configuration (port and number of reactors)
+     * @throws IOException If a selector cannot be opened
+     */
+    NioWebServerEngine(SimpleWebServer server, WebServerConfig config) throws IOException {
+        this.server = server;
+        this.config = config;
+        this.acceptSelector = Selector.open();
+        this.reactors = new Reactor[config.getReactorThreads()];
+        for (int i = 0; i < reactors.length; i++) {
+            reactors[i] = new Reactor(i);
+        }
+        this.proxyWorkers = config.getProxyRoutes().isEmpty() ? null : config.createProxyExecutor();
+    }
+
+    /**
+     * Binds the listening channel(s) and runs until {@link #stop()} is invoked: the
+     * accept loop runs on the calling thread, or, with SO_REUSEPORT, the calling thread
+     * just waits while the reactors accept
+     * @throws IOException If a listening channel cannot be bound
+     */
+    void start() throws IOException {
+        if (config.getEngine() == WebServerConfig.Engine.REUSEPORT) {
+            if (isReusePortSupported()) {
+                startSharded();
+                return;
+            }
+            System.out.println("SO_REUSEPORT no disponible en esta plataforma, usando un único aceptador");
+        }
+        startWithAcceptor();
+    }
+
+    /**
+     * Checks whether listening channels can share a port with SO_REUSEPORT
+     * @return true if the platform supports the option
+     */
+    static boolean isReusePortSupported() {
+        try (ServerSocketChannel probe = ServerSocketChannel.open()) {
+            return probe.supportedOptions().contains(StandardSocketOptions.SO_REUSEPORT);
+        } catch (IOException e) {
+            return false;
+        }
+    }
+
+    private void startWithAcceptor() throws IOException {
+        try (ServerSocketChannel serverChannel = ServerSocketChannel.open()) {
+            serverChannel.bind(new InetSocketAddress(config.getPort()));
+            serverChannel.configureBlocking(false);
+            serverChannel.register(acceptSelector, SelectionKey.OP_ACCEPT);
+
+            for (Reactor reactor : reactors) {
+                reactor.start();
+            }
+            System.out.println("Motor NIO activo con " + reactors.length + " reactor(es)");
+
+            int nextReactor = 0;
+            while (isRunning) {
+                acceptSelector.select();
+                acceptSelector.selectedKeys().clear();
+
+                SocketChannel channel;
+                while ((channel = acceptConnection(serverChannel)) != null) {
+                    reactors[nextReactor].register(channel);
+                    nextReactor = (nextReactor + 1) % reactors.length;
+                }
+            }
+        } finally {
+            shutdownReactors();
+        }
+    }
+
+    private void startSharded() throws IOException {
+        try {
+            for (Reactor reactor : reactors) {
+                reactor.listen(config.getPort());
+            }
+            for (Reactor reactor : reactors) {
+                reactor.start();
+            }
+            System.out.println("Motor NIO activo con " + reactors.length + " reactor(es) y SO_REUSEPORT");
+
+            // Nothing is registered here: select() only returns when stop() wakes it up
+            while (isRunning) {
+                acceptSelector.select();
+            }
+        } finally {
+            shutdownReactors();
+        }
+    }
+
+    private void shutdownReactors() throws IOException {
+        isRunning = false;
+        for (Reactor reactor : reactors) {
+            reactor.shutdown();
+        }
+        if (proxyWorkers != null) {
+            proxyWorkers.shutdown();
+        }
+        acceptSelector.close();
+    }
+
+    /**
+     * Stops accepting connections and closes every open connection
+     */
+    void stop() {
+        isRunning = false;
+        acceptSelector.wakeup();
+    }
+
+    /**
+     * Accepts one pending connection, if any, and prepares it for non-blocking use
+     * @param serverChannel The listening channel
+     * @return The accepted channel, or null when no connection is pending
+     */
+    private SocketChannel acceptConnection(ServerSocketChannel serverChannel) {
+        try {
+            SocketChannel channel = serverChannel.accept();
+            if (channel != null) {
+                channel.configureBlocking(false);
+                channel.setOption(StandardSocketOptions.TCP_NODELAY, true);
+                server.getEventLog().info("Nueva conexión HTTP desde: " + clientAddressOf(channel));
+            }
+            return channel;
+        } catch (IOException e) {
+            if (isRunning) {
+                server.getEventLog().error("Error aceptando conexión del cliente: " + e.getMessage());
+            }
+            return null;
+        }
+    }
+
+    private static String clientAddressOf(SocketChannel channel) {
+        return channel.socket().getInetAddress().getHostAddress();
+    }
+
+    /**
+     * A selector thread that owns a subset of the connections
+     */
+    private final class Reactor implements Runnable {
+
+        private final Selector selector;
+        private final Thread thread;
+        private final Queue<SocketChannel> pendingChannels = new ConcurrentLinkedQueue<>();
+        private final Queue<Connection> expiredConnections = new ConcurrentLinkedQueue<>();
+        private final Queue<Connection> proxiedConnections = new ConcurrentLinkedQueue<>();
+        private final MetricsRegistry.Counter acceptedConnections;
+        private ServerSocketChannel listener;
+        private long wakeUpNanos;
+        private volatile boolean running = true;
+
+        Reactor(int index) throws IOException {
+            this.selector = Selector.open();
+            this.thread = new Thread(this, "nio-reactor-" + index);
+            this.thread.setDaemon(true);
+            this.acceptedConnections = MetricsRegistry.shared()
+                .counter("http_reactor_connections_total", "Conexiones HTTP asignadas a cada reactor NIO", "reactor")
+                .labels(String.valueOf(index));
+        }
+
+        /**
+         * Opens this reactor's own listening channel on a port shared through SO_REUSEPORT
+         */
+        void listen(int port) throws IOException {
+            listener = ServerSocketChannel.open();
+            listener.setOption(StandardSocketOptions.SO_REUSEPORT, true);
+            listener.bind(new InetSocketAddress(port));
+            listener.configureBlocking(false);
+            listener.register(selector, SelectionKey.OP_ACCEPT);
+        }
+
+        void start() {
+            thread.start();
+        }
+
+        /**
+         * Hands a freshly accepted channel to this reactor (called from the acceptor)
+         */
+        void register(SocketChannel channel) {
+            pendingChannels.add(channel);
+            selector.wakeup();
+        }
+
+        /**
+         * Hands a connection whose deadline passed back to this reactor (called from the timer)
+         */
+        void expire(Connection connection) {
+            if (running) {
+                expiredConnections.add(connection);
+                selector.wakeup();
+            }
+        }
+
+        /**
+         * Hands a connection whose proxied request has been answered back to this reactor
+         * (called from the proxy worker)
+         */
+        void resume(Connection connection) {
+            proxiedConnections.add(connection);
+            selector.wakeup();
+            if (!running) {
+                // The reactor may have finished before seeing it
+                resumeProxiedConnections();
+            }
+        }
+
+        void shutdown() {
+            running = false;
+            selector.wakeup();
+            if (!thread.isAlive()) {
+                closeAll();
+            }
+        }
+
+        @Override
+        public void run() {
+            try {
+                while (running) {
+                    selector.select();
+                    wakeUpNanos = System.nanoTime();
+                    registerPendingChannels();
+                    closeExpiredConnections();
+                    resumeProxiedConnections();
+
+                    Iterator<SelectionKey> keys = selector.selectedKeys().iterator();
+                    while (keys.hasNext()) {
+                        SelectionKey key = keys.next();
+                        keys.remove();
+                        if (key.isValid() && key.isAcceptable()) {
+                            acceptAll();
+                            continue;
+                        }
+                        Connection connection = (Connection) key.attachment();
+                        try {
+                            if (key.isValid() && key.isReadable()) {
+                                connection.onReadable();
+                            }
+                            if (key.isValid() && key.isWritable()) {
+                                connection.onWritable();
+                            }
+                        } catch (IOException e) {
+                            server.getEventLog().error("Error procesando solicitud HTTP: " + e.getMessage());
+                            connection.close();
+                        } catch (RuntimeException e) {
+                            // A bug behind one connection must not take down every other one on this reactor
+                            server.getEventLog().error("Error inesperado en conexión de " + connection.clientAddress +
+                                                       ": " + e);
+                            connection.close();
+                        }
+                    }
+                }
+            } catch (IOException e) {
+                System.err.println("Error en reactor NIO: " + e.getMessage());
+            } finally {
+                closeAll();
+            }
+        }
+
+        /**
+         * Closes the connections whose idle, header or write deadline passed
+         */
+        private void closeExpiredConnections() {
+            Connection connection;
+            while ((connection = expiredConnections.poll()) != null) {
+                if (!connection.closed) {
+                    server.getEventLog().info("Tiempo de espera agotado para: " + connection.clientAddress);
+                    connection.close();
+                }
+            }
+        }
+
+        /**
+         * Takes back the connections whose proxied request has been answered: each one
+         * closes or waits for its next request
+         */
+        private void resumeProxiedConnections() {
+            Connection connection;
+            while ((connection = proxiedConnections.poll()) != null) {
+                try {
+                    connection.onProxied();
+                } catch (IOException e) {
+                    server.getEventLog().error("Error procesando solicitud HTTP: " + e.getMessage());
+                    connection.close();
+                } catch (RuntimeException e) {
+                    server.getEventLog().error("Error inesperado en conexión de " + connection.clientAddress +
+                                               ": " + e);
+                    connection.close();
+                }
+            }
+        }
+
+        /**
+         * Accepts every pending connection of this reactor's own listener
+         */
+        private void acceptAll() {
+            SocketChannel channel;
+            while ((channel = acceptConnection(listener)) != null) {
+                registerConnection(channel);
+            }
+        }
+
+        private void registerPendingChannels() {
+            SocketChannel channel;
+            while ((channel = pendingChannels.poll()) != null) {
+                registerConnection(channel);
+            }
+        }
+
+        private void registerConnection(SocketChannel channel) {
+            if (!server.getAdmissionController().tryAcquireConnection()) {
+                rejectConnection(channel);
+                return;
+            }
+            try {
+                SelectionKey key = channel.register(selector, SelectionKey.OP_READ);
+                key.attach(new Connection(this, channel, key));
+                acceptedConnections.increment();
+            } catch (IOException e) {
+                server.getEventLog().error("Error registrando conexión: " + e.getMessage());
+                server.getAdmissionController().releaseConnection();
+                closeQuietly(channel);
+            }
+        }
+
+        /**
+         * Answers a connection beyond the limit with the shared 503 in a single write; the
+         * response is small enough for an empty socket buffer, so nothing is left pending
+         */
+        private void rejectConnection(SocketChannel channel) {
+            if (server.getTlsContext() != null) {
+                // A 503 would cost a full handshake first
+                server.getEventLog().info("Servidor saturado, conexión TLS cerrada: " + clientAddressOf(channel));
+                closeQuietly(channel);
+                return;
+            }
+            server.getEventLog().info("Servidor saturado, 503 enviado a: " + clientAddressOf(channel));
+            try {
+                channel.write(ByteBuffer.wrap(server.getOverloadedResponse().getEncoded()));
+                channel.shutdownOutput();
+            } catch (IOException e) {
+                server.getEventLog().error("Error rechazando conexión HTTP: " + e.getMessage());
+            }
+            closeQuietly(channel);
+        }
+
+        private void closeAll() {
+            if (listener != null) {
+                try {
+                    listener.close();
+                } catch (IOException e) {
+                    System.err.println("Error cerrando canal de escucha: " + e.getMessage());
+                }
+            }
+            SocketChannel channel;
+            while ((channel = pendingChannels.poll()) != null) {
+                closeQuietly(channel);
+            }
+            if (selector.isOpen()) {
+                for (SelectionKey key : selector.keys()) {
+                    if (key.channel() instanceof SocketChannel) {
+                        closeQuietly((SocketChannel) key.channel());
+                        ((Connection) key.attachment()).watchdog.close();
+                    }
+                }
+                try {
+                    selector.close();
+                } catch (IOException e) {
+                    System.err.println("Error cerrando selector: " + e.getMessage());
+                }
+            }
+        }
+    }
+
+    /**
+     * Per-connection state: the request bytes read so far and the response being drained.
+     * With keep-alive a connection alternates between reading a request and writing its
+     * response; bytes of a pipelined request that arrive early stay in the buffer.
+     */
+    private final class Connection {
+
+        private final Reactor reactor;
+        private final SocketChannel channel;
+        private final TlsChannel tls;
+        private final ByteChannel transport;
+        private final SelectionKey key;
+        private final String clientAddress;
+        private final ByteBuffer requestBuffer = ByteBuffer.allocate(REQUEST_BUFFER_SIZE);
+        private final HttpRequestParser request = new HttpRequestParser();
+        private final ResponseWriter responseWriter = new ResponseWriter();
+        private boolean keepAlive;
+        private int requestCount;
+        private HttpResponse response;
+        private long requestStartNanos;
+        private boolean requestAdmitted;
+        private boolean headStarted;
+        private boolean proxying;
+        private boolean proxyFailed;
+        private Selector proxySelector;
+        private volatile boolean closed;
+        private final HashedWheelTimer.Watchdog watchdog;
+
+        Connection(Reactor reactor, SocketChannel channel, SelectionKey key) {
+            this.reactor = reactor;
+            this.channel = channel;
+            TlsContext tlsContext = server.getTlsContext();
+            this.tls = tlsContext != null ? new TlsChannel(channel, tlsContext.newEngine()) : null;
+            this.transport = tls != null ? tls : channel;
+            this.key = key;
+            this.clientAddress = clientAddressOf(channel);
+            this.watchdog = HashedWheelTimer.shared().watchdog(() -> reactor.expire(this));
+            watchdog.arm(config.getKeepAliveTimeoutMillis());
+        }
+
+        void onReadable() throws IOException {
+            if (proxying) {
+                // A proxy worker owns the connection until it resumes
+                return;
+            }
+            int read = transport.read(requestBuffer);
+            if (read < 0) {
+                if (requestCount == 0 && request.isEmpty()) {
+                    server.getEventLog().info("Solicitud vacía desde: " + clientAddress);
+                }
+                close();
+                return;
+            }
+            processBufferedRequest();
+            if (tls != null && !closed && response == null && tls.hasPendingOutput()) {
+                // Handshake records are waiting for room in the socket buffer
+                key.interestOps(SelectionKey.OP_READ | SelectionKey.OP_WRITE);
+            }
+        }
+
+        void onWritable() throws IOException {
+            if (proxying) {
+                return;
+            }
+            if (response == null) {
+                // Only handshake records were waiting
+                if (tls.flush()) {
+                    key.interestOps(SelectionKey.OP_READ);
+                }
+                return;
+            }
+            // Every writable event is progress: the deadline only passes if the client stops reading
+            watchdog.arm(config.getWriteTimeoutMillis());
+            if (responseWriter.isPending() && !responseWriter.writeTo(transport)) {
+                return;
+            }
+            if (tls != null && !tls.flush()) {
+                return;
+            }
+            server.recordAccess(request, clientAddress, response, requestStartNanos);
+            response = null;
+            releaseRequest();
+
+            if (!keepAlive) {
+                close();
+                return;
+            }
+            request.reset();
+            headStarted = false;
+            watchdog.arm(config.getKeepAliveTimeoutMillis());
+            key.interestOps(SelectionKey.OP_READ);
+            processBufferedRequest();
+        }
+
+        /**
+         * Feeds the buffered bytes to the parser and answers the request once its head is
+         * complete; bytes of a pipelined request stay in the buffer
+         */
+        private void processBufferedRequest() throws IOException {
+            HttpRequestParser.Result result;
+            while (true) {
+                requestBuffer.flip();
+                result = request.parse(requestBuffer);
+                requestBuffer.compact();
+                if (result != HttpRequestParser.Result.INCOMPLETE || tls == null || !tls.hasBufferedInput()
+                    || transport.read(requestBuffer) <= 0) {
+                    break;
+                }
+            }
+            if (result == HttpRequestParser.Result.INCOMPLETE) {
+                if (!headStarted && !request.isEmpty()) {
+                    // The whole head must arrive in time, however slowly it trickles in
+                    watchdog.arm(config.getHeaderTimeoutMillis());
+                    headStarted = true;
+                }
+                return;
+            }
+
+            watchdog.disarm();
+            requestCount++;
+            requestStartNanos = System.nanoTime();
+            AdmissionController admission = server.getAdmissionController();
+            if (admission.shouldShed(requestStartNanos - reactor.wakeUpNanos) || !admission.tryAcquireRequest()) {
+                respond(server.getOverloadedResponse(), false);
+                return;
+            }
+            requestAdmitted = true;
+            if (proxyWorkers != null && result == HttpRequestParser.Result.COMPLETE && server.isProxied(request)) {
+                forwardOnWorker();
+                return;
+            }
+            HttpResponse response;
+            try {
+                response = server.processRequest(request, result, clientAddress);
+            } catch (RuntimeException e) {
+                server.getEventLog().error("Error inesperado procesando " + request.path() + ": " + e);
+                respond(server.errorResponse(500, "Internal Server Error", "Error interno del servidor"), false);
+                return;
+            }
+            respond(response, server.applyConnectionPolicy(response, request, requestCount));
+        }
+
+        private void respond(HttpResponse response, boolean keepAlive) throws IOException {
+            this.response = response;
+            this.keepAlive = keepAlive;
+            responseWriter.start(response);
+            key.interestOps(SelectionKey.OP_WRITE);
+            onWritable();
+        }
+
+        /**
+         * Hands a proxied request to a worker; the connection ignores its events until the
+         * worker has written the response and resumes it
+         */
+        private void forwardOnWorker() throws IOException {
+            proxying = true;
+            proxyFailed = false;
+            key.interestOps(0);
+            // The worker reads the body from the bytes already buffered, then from the socket
+            requestBuffer.flip();
+            try {
+                proxyWorkers.execute(this::proxy);
+            } catch (RejectedExecutionException e) {
+                proxying = false;
+                requestBuffer.compact();
+                respond(server.getOverloadedResponse(), false);
+            }
+        }
+
+        /**
+         * Runs on a proxy worker: forwards the request and writes the upstream's response,
+         * blocking this worker, never the reactor, while the client or the upstream is slow
+         */
+        private void proxy() {
+            try {
+                HttpBodyStream requestBody = request.hasBody()
+                    ? HttpBodyStream.ofRequest(request, requestBuffer, new ClientInput()) : null;
+                HttpResponse response;
+                try {
+                    response = server.processRequest(request, HttpRequestParser.Result.COMPLETE, clientAddress,
+                                                     requestBody);
+                } catch (RuntimeException e) {
+                    server.getEventLog().error("Error inesperado procesando " + request.path() + ": " + e);
+                    response = server.errorResponse(500, "Internal Server Error", "Error interno del servidor");
+                }
+                this.response = response;
+                this.keepAlive = server.applyConnectionPolicy(response, request, requestCount);
+                responseWriter.start(response);
+                while (!responseWriter.writeTo(transport)) {
+                    awaitReady(SelectionKey.OP_WRITE, config.getWriteTimeoutMillis());
+                }
+                while (tls != null && !tls.flush()) {
+                    awaitReady(SelectionKey.OP_WRITE, config.getWriteTimeoutMillis());
+                }
+                server.recordAccess(request, clientAddress, response, requestStartNanos);
+            } catch (IOException e) {
+                if (!closed) {
+                    server.getEventLog().error("Error procesando solicitud HTTP: " + e.getMessage());
+                }
+                proxyFailed = true;
+            } catch (RuntimeException e) {
+                server.getEventLog().error("Error inesperado en conexión de " + clientAddress + ": " + e);
+                proxyFailed = true;
+            } finally {
+                requestBuffer.compact();
+                closeProxySelector();
+                reactor.resume(this);
+            }
+        }
+
+        /**
+         * Back on the reactor after a proxied request: closes the connection or waits for
+         * the next request, which may already be buffered
+         */
+        void onProxied() throws IOException {
+            proxying = false;
+            if (closed) {
+                return;
+            }
+            if (!reactor.running) {
+                // The reactor has stopped and will not serve another request
+                close();
+                return;
+            }
+            response = null;
+            releaseRequest();
+            if (proxyFailed || !keepAlive) {
+                close();
+                return;
+            }
+            request.reset();
+            headStarted = false;
+            watchdog.arm(config.getKeepAliveTimeoutMillis());
+            key.interestOps(SelectionKey.OP_READ);
+            processBufferedRequest();
+        }
+
+        /**
+         * Waits on the worker's own selector until the client connection is ready
+         * @param ops SelectionKey.OP_READ or SelectionKey.OP_WRITE
+         * @param timeoutMillis Longest wait
+         * @throws SocketTimeoutException If the client stays not ready for that long
+         */
+        private void awaitReady(int ops, long timeoutMillis) throws IOException {
+            if (proxySelector == null) {
+                // Most requests and responses fit in the socket buffers and never get here
+                proxySelector = Selector.open();
+                channel.register(proxySelector, ops);
+            } else {
+                channel.keyFor(proxySelector).interestOps(ops);
+            }
+            if (proxySelector.select(timeoutMillis) == 0) {
+                throw new SocketTimeoutException("El cliente no estuvo listo en " + timeoutMillis + " ms");
+            }
+            proxySelector.selectedKeys().clear();
+        }
+
+        private void closeProxySelector() {
+            if (proxySelector != null) {
+                try {
+                    proxySelector.close();
+                } catch (IOException e) {
+                    server.getEventLog().error("Error cerrando selector del proxy: " + e.getMessage());
+                }
+                proxySelector = null;
+            }
+        }
+
+        /**
+         * The client connection as a blocking stream, for the request body a proxy worker
+         * forwards; a client that sends nothing for webserver.proxy.timeout is given up on
+         */
+        private final class ClientInput extends InputStream {
+
+            @Override
+            public int read() throws IOException {
+                byte[] one = new byte[1];
+                return read(one, 0, 1) < 0 ? -1 : one[0] & 0xFF;
+            }
+
+            @Override
+            public int read(byte[] target, int offset, int length) throws IOException {
+                if (length == 0) {
+                    return 0;
+                }
+                ByteBuffer buffer = ByteBuffer.wrap(target, offset, length);
+                while (true) {
+                    int read = transport.read(buffer);
+                    if (read != 0) {
+                        return read;
+                    }
+                    awaitReady(SelectionKey.OP_READ, config.getProxyTimeoutMillis());
+                }
+            }
+        }
+
+        private void releaseRequest() {
+            if (requestAdmitted) {
+                requestAdmitted = false;
+                server.getAdmissionController().releaseRequest();
+            }
+        }
+
+        void close() {
+            if (closed) {
+                return;
+            }
+            closed = true;
+            watchdog.close();
+            releaseRequest();
+            server.getAdmissionController().releaseConnection();
+            key.cancel();
+            if (tls != null) {
+                try {
+                    tls.close();
+                } catch (IOException e) {
+                    server.getEventLog().error("Error cerrando sesión TLS: " + e.getMessage());
+                }
+            }
+            closeQuietly(channel);
+            try {
+                responseWriter.close();
+            } catch (IOException e) {
+                server.getEventLog().error("Error cerrando archivo de respuesta: " + e.getMessage());
+            }
+            server.getEventLog().info("Conexión HTTP cerrada");
+        }
+    }
+
+    private static void closeQuietly(SocketChannel channel) {
+        try {
+            channel.close();
+        } catch (IOException e) {
+            System.err.println("Error cerrando socket HTTP: " + e.getMessage());
+        }
+    }
+}
@@ -0,0 +1,310 @@
+package edu.eci.arsw.networking;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.BufferOverflowException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.GatheringByteChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * Drains {@link HttpResponse}s into a channel, in as many calls as the channel needs.
+ * One writer belongs to one connection and is reused for every response sent on it.
+ *
+ * Headers are encoded by {@link HttpHeaderEncoder} into a buffer owned by the writer, so
+ * a keep-alive connection encodes every response into the same memory. Headers and an
+ * in-memory body go out together in one gathering write when the channel supports it; a
+ * memory-mapped body is written straight from the page cache, and its mapping is released
+ * once the response is sent or the connection closes.
+ *
+ * File bodies are sent with {@link FileChannel#transferTo}, which the JDK maps to sendfile
+ * on Linux when the target is a socket channel: the bytes travel from the page cache to the
+ * socket without being copied into the Java heap. For any other channel (e.g. the stream of
+ * a plain blocking socket) the JDK copies through a small temporary buffer instead, so heap
+ * use still does not depend on the file size. A Range response is sent the same way, one
+ * transfer per requested region starting at its file position, with the multipart part
+ * headers written from memory in between.
+ *
+ * A streamed body ({@link BodyStream}) is pulled into one chunk buffer owned by the
+ * writer, allocated on the first streamed response and reused for every later one, so a
+ * body of any length costs the same bounded memory. The chunk size line is written
+ * backwards into room reserved in front of the data, and the chunk's CRLF (plus the last
+ * chunk once the stream ends) right after it, so each chunk leaves in a single write with
+ * no copying; the first chunk goes out together with the headers.
+ *
+ * A response encoded ahead of time (such as the shared 503 of load shedding) is written
+ * from its own bytes without touching the header buffer.
+ *
+ * With a blocking channel one call writes the whole response; with a non-blocking channel
+ * a call writes what fits and {@link #writeTo} is called again when the socket is writable.
+ *
+ * @author GitHub Copilot Implementation
+ * @version 1.0
+ */
+final class ResponseWriter implements Closeable {
+
+    private static final int INITIAL_HEADER_BUFFER_SIZE = 512;
+    private static final int MAX_HEADER_BUFFER_SIZE = 64 * 1024;
+    static final int CHUNK_DATA_SIZE = 16 * 1024;
+    /** Room for the hexadecimal chunk size and its CRLF, written in front of the data */
+    private static final int CHUNK_HEADER_ROOM = 8;
+    private static final byte[] CRLF = {'\r', '\n'};
+    private static final byte[] LAST_CHUNK = {'0', '\r', '\n', '\r', '\n'};
+    private static final byte[] HEX_DIGITS = {
+        '0', '1', '2', '3', '4', '5', '6', '7', '8', '9', 'a', 'b', 'c', 'd', 'e', 'f'
+    };
+
+    private ByteBuffer headerBuffer = ByteBuffer.allocate(INITIAL_HEADER_BUFFER_SIZE);
+    private final ByteBuffer[] gather = new ByteBuffer[2];
+    private HttpResponse response;
+    private FileChannel fileChannel;
+    private int regionIndex;
+    private boolean regionStarted;
+    private ByteBuffer pendingBytes;
+    private long filePosition;
+    private ByteBuffer chunkBuffer;
+    private boolean streamEnded;
+
+    /**
+     * Encodes the headers of the next response; the body file, if any, is opened on first write
+     * @param response Response to send
+     * @throws IOException If the headers do not fit or a previous body file cannot be released
+     */
+    void start(HttpResponse response) throws IOException {
+        close();
+        this.response = response;
+        this.regionIndex = 0;
+        this.regionStarted = false;
+        this.pendingBytes = null;
+        this.filePosition = 0;
+        this.streamEnded = false;
+
+        if (response.getEncoded() != null) {
+            gather[0] = ByteBuffer.wrap(response.getEncoded());
+            gather[1] = null;
+            return;
+        }
+        while (true) {
+            headerBuffer.clear();
+            try {
+                HttpHeaderEncoder.encode(response, headerBuffer);
+                break;
+            } catch (BufferOverflowException e) {
+                if (headerBuffer.capacity() >= MAX_HEADER_BUFFER_SIZE) {
+                    throw new IOException("Encabezados de respuesta demasiado grandes");
+                }
+                headerBuffer = ByteBuffer.allocate(headerBuffer.capacity() * 2);
+            }
+        }
+        headerBuffer.flip();
+
+        gather[0] = headerBuffer;
+        gather[1] = response.getBodyStream() != null && response.hasContent()
+            ? nextChunk() : response.newBodyBuffer();
+    }
+
+    /**
+     * Checks whether a response has been started and not yet fully written
+     */
+    boolean isPending() {
+        return response != null;
+    }
+
+    /**
+     * Writes as much of the current response as the channel accepts
+     * @param channel Channel connected to the client
+     * @return true once the whole response has been written
+     * @throws IOException If the client connection fails or the body file shrinks while being sent
+     */
+    boolean writeTo(WritableByteChannel channel) throws IOException {
+        if (!writeBuffers(channel)) {
+            return false;
+        }
+        if (response.getBodyStream() != null && response.hasContent()) {
+            return writeChunks(channel);
+        }
+        if (response.getBodyFile() == null) {
+            finish();
+            return true;
+        }
+
+        if (fileChannel == null) {
+            fileChannel = FileChannel.open(response.getBodyFile(), StandardOpenOption.READ);
+        }
+        HttpResponse.FileRegion[] regions = response.getRegions();
+        while (regionIndex < regions.length) {
+            HttpResponse.FileRegion region = regions[regionIndex];
+            if (!regionStarted) {
+                pendingBytes = region.prefix != null ? ByteBuffer.wrap(region.prefix) : null;
+                filePosition = region.position;
+                regionStarted = true;
+            }
+            if (!drain(pendingBytes, channel) || !transferRegion(region, channel)) {
+                return false;
+            }
+            regionIndex++;
+            regionStarted = false;
+            pendingBytes = null;
+        }
+        if (response.getTrailer() != null) {
+            if (pendingBytes == null) {
+                pendingBytes = ByteBuffer.wrap(response.getTrailer());
+            }
+            if (!drain(pendingBytes, channel)) {
+                return false;
+            }
+        }
+        finish();
+        return true;
+    }
+
+    /**
+     * Sends the rest of one file region from the current file position
+     * @return true once the region has been fully written
+     */
+    private boolean transferRegion(HttpResponse.FileRegion region, WritableByteChannel channel) throws IOException {
+        long end = region.position + region.length;
+        while (filePosition < end) {
+            long sent = fileChannel.transferTo(filePosition, end - filePosition, channel);
+            if (sent == 0) {
+                if (filePosition >= fileChannel.size()) {
+                    throw new IOException("El archivo se truncó durante el envío: " + response.getBodyFile());
+                }
+                // Socket buffer full (non-blocking channel): resume when writable
+                return false;
+            }
+            filePosition += sent;
+        }
+        return true;
+    }
+
+    /**
+     * Sends the rest of a streamed body, one chunk buffer at a time
+     * @return true once the stream has ended and its last chunk has been written
+     */
+    private boolean writeChunks(WritableByteChannel channel) throws IOException {
+        while (drain(pendingBytes, channel)) {
+            pendingBytes = nextChunk();
+            if (pendingBytes == null) {
+                finish();
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Fills the chunk buffer from the body stream and frames it
+     * @return The chunk ready to be written, or null once the stream has been fully sent
+     */
+    private ByteBuffer nextChunk() throws IOException {
+        if (streamEnded) {
+            return null;
+        }
+        if (chunkBuffer == null) {
+            chunkBuffer = ByteBuffer.allocate(CHUNK_HEADER_ROOM + CHUNK_DATA_SIZE + CRLF.length + LAST_CHUNK.length);
+        }
+        BodyStream stream = response.getBodyStream();
+        chunkBuffer.clear().position(CHUNK_HEADER_ROOM).limit(CHUNK_HEADER_ROOM + CHUNK_DATA_SIZE);
+        int read = 0;
+        while (chunkBuffer.hasRemaining() && (read = stream.read(chunkBuffer)) > 0) {
+            // Fill the chunk: fewer, larger chunks mean fewer writes and less framing
+        }
+        int length = chunkBuffer.position() - CHUNK_HEADER_ROOM;
+        streamEnded = read < 0;
+        response.addStreamedLength(length);
+
+        int start = CHUNK_HEADER_ROOM;
+        chunkBuffer.limit(chunkBuffer.capacity());
+        if (response.isChunked()) {
+            if (length > 0) {
+                start = putChunkSize(length);
+                chunkBuffer.put(CRLF);
+            }
+            if (streamEnded) {
+                chunkBuffer.put(LAST_CHUNK);
+            }
+        }
+        chunkBuffer.limit(chunkBuffer.position()).position(start);
+        return chunkBuffer;
+    }
+
+    /**
+     * Writes "size CRLF" so that it ends right where the chunk data starts
+     * @return Position of the first byte of the chunk
+     */
+    private int putChunkSize(int length) {
+        int position = CHUNK_HEADER_ROOM;
+        chunkBuffer.put(--position, CRLF[1]);
+        chunkBuffer.put(--position, CRLF[0]);
+        do {
+            chunkBuffer.put(--position, HEX_DIGITS[length & 0xF]);
+            length >>>= 4;
+        } while (length != 0);
+        return position;
+    }
+
+    private static boolean drain(ByteBuffer buffer, WritableByteChannel channel) throws IOException {
+        while (buffer != null && buffer.hasRemaining()) {
+            if (channel.write(buffer) == 0) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Writes the header buffer and the in-memory body, if any
+     * @return true once both are fully written
+     */
+    private boolean writeBuffers(WritableByteChannel channel) throws IOException {
+        ByteBuffer head = gather[0];
+        ByteBuffer body = gather[1];
+        if (body != null && channel instanceof GatheringByteChannel) {
+            GatheringByteChannel gathering = (GatheringByteChannel) channel;
+            while (head.hasRemaining() || body.hasRemaining()) {
+                if (gathering.write(gather) == 0) {
+                    return false;
+                }
+            }
+            return true;
+        }
+
+        while (head.hasRemaining()) {
+            if (channel.write(head) == 0) {
+                return false;
+            }
+        }
+        while (body != null && body.hasRemaining()) {
+            if (channel.write(body) == 0) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private void finish() throws IOException {
+        close();
+        response = null;
+        pendingBytes = null;
+        gather[0] = null;
+        gather[1] = null;
+    }
+
+    /**
+     * Releases the body file or mapping of the current response; safe to call more than once
+     */
+    @Override
+    public void close() throws IOException {
+        if (response != null) {
+            response.releaseBody();
+        }
+        if (fileChannel != null) {
+            FileChannel file = fileChannel;
+            fileChannel = null;
+            file.close();
+        }
+    }
+}
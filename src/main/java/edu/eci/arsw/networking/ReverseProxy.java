@@ -0,0 +1,716 @@
+package edu.eci.arsw.networking;
+
+import java.io.BufferedOutputStream;
+import java.io.Closeable;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.net.Socket;
+import java.net.SocketTimeoutException;
+import java.net.URI;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentLinkedDeque;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Reverse-proxy handler of {@link SimpleWebServer}: requests whose path starts with a
+ * configured prefix are forwarded to an upstream HTTP/1.1 server instead of being served
+ * from the web root, so one server can front several local services
+ * (webserver.proxy.routes).
+ *
+ * Each upstream keeps a pool of idle keep-alive connections. A request takes the most
+ * recently used one, which is the least likely to have been closed by the upstream, and
+ * the connection goes back to the pool once its response body has been read in full;
+ * connections idle for longer than webserver.proxy.idle are discarded instead of reused.
+ * If a reused connection turns out to be closed before any response byte arrives, a
+ * request without a body is retried once on a new connection. The pool holds at most
+ * webserver.proxy.pool connections per upstream; beyond that they are closed after use.
+ *
+ * Bodies are streamed both ways through buffers of bounded size and never held whole:
+ * - The request body is copied from the client connection to the upstream through the
+ *   connection's 16 KB buffer, re-chunked if the client sent it chunked. It is sent in
+ *   full before the response is read, as HTTP/1.1 upstreams expect; one that streams its
+ *   answer while still reading a large body relies on its socket buffers until the
+ *   upload ends.
+ * - The response body is a {@link BodyStream} the engine pulls while sending: with a
+ *   Content-Length it is relayed unframed with the same length, and a chunked or
+ *   close-delimited body is re-chunked by {@link ResponseWriter}.
+ *
+ * A route may list several equivalent upstreams. A {@link LoadBalancer} picks one for each
+ * request (webserver.proxy.balancer), probes them with health checks and ejects the ones
+ * that fail or slow down: every forwarded request reports its time to the response head,
+ * and a connection failure or a 5xx answer counts as an error.
+ *
+ * Every upstream admits at most webserver.proxy.outstanding requests at a time, from the
+ * moment the request is forwarded until its response body has been relayed; further
+ * requests are answered right away with a 503 and Retry-After instead of queuing behind a
+ * slow upstream. Connection failures answer 502 and read timeouts 504.
+ *
+ * Upstream I/O is blocking. The blocking engine waits on the connection's own thread; the
+ * nio engines hand proxied requests to worker threads (see {@link NioWebServerEngine}), so
+ * a slow or unreachable upstream never stalls a reactor. HTTP/2 streams are not given
+ * their body and are answered with 501 when they carry one.
+ *
+ * @author GitHub Copilot Implementation
+ * @version 1.0
+ */
+final class ReverseProxy implements Closeable {
+
+    static final int BUFFER_SIZE = 16 * 1024;
+    private static final int HEALTH_TIMEOUT_MILLIS = 2000;
+    private static final int RETRY_AFTER_SECONDS = 1;
+    private static final String DEFAULT_CONTENT_TYPE = "application/octet-stream";
+    private static final String[] HOP_BY_HOP = {
+        "Connection", "Keep-Alive", "Proxy-Connection", "TE", "Trailer", "Transfer-Encoding", "Upgrade",
+        "Proxy-Authenticate", "Proxy-Authorization"
+    };
+    private static final byte[] CRLF = {'\r', '\n'};
+    private static final byte[] LAST_CHUNK = {'0', '\r', '\n', '\r', '\n'};
+    private static final byte[] EMPTY_BODY = new byte[0];
+
+    private final SimpleWebServer server;
+    private final Route[] routes;
+    private final MetricsRegistry.Family<MetricsRegistry.Counter> requestsByStatus;
+    private final MetricsRegistry.Family<MetricsRegistry.Counter> connectionsOpened;
+
+    /**
+     * Creates the upstreams of every configured route; no connection is opened yet
+     * @param server Server whose error pages and log the proxy uses
+     * @param config Configuration with the routes, pool size, limits and timeouts
+     */
+    ReverseProxy(SimpleWebServer server, WebServerConfig config) {
+        this.server = server;
+        MetricsRegistry metrics = MetricsRegistry.shared();
+        this.requestsByStatus = metrics.counter("http_proxy_requests_total",
+                                                "Solicitudes reenviadas por upstream y código de estado",
+                                                "upstream", "status");
+        this.connectionsOpened = metrics.counter("http_proxy_connections_total",
+                                                 "Conexiones abiertas hacia cada upstream", "upstream");
+        int healthTimeout = Math.min(config.getProxyTimeoutMillis(), HEALTH_TIMEOUT_MILLIS);
+        LoadBalancer.HealthCheck healthCheck = config.getProxyHealthPath() != null
+            ? LoadBalancer.httpHealthCheck(config.getProxyHealthPath(), healthTimeout)
+            : LoadBalancer.tcpHealthCheck(healthTimeout);
+        List<Route> list = new ArrayList<>();
+        for (Map.Entry<String, List<String>> route : config.getProxyRoutes().entrySet()) {
+            List<Upstream> upstreams = new ArrayList<>();
+            for (String url : route.getValue()) {
+                upstreams.add(new Upstream(url, config, connectionsOpened.labels(url)));
+            }
+            LoadBalancer<Upstream> balancer = new LoadBalancer<>("proxy" + route.getKey(), config.getProxyBalancer(),
+                                                                 upstreams);
+            balancer.setHealthCheck(healthCheck, config.getProxyHealthIntervalMillis());
+            balancer.start();
+            list.add(new Route(route.getKey(), balancer));
+        }
+        // The longest prefix wins
+        list.sort(Comparator.comparingInt((Route route) -> route.prefix.length()).reversed());
+        this.routes = list.toArray(new Route[0]);
+    }
+
+    /**
+     * Forwards a request if its path belongs to a proxied prefix
+     * @param request Complete request head
+     * @param requestBody The request body, or null when the request has none or the engine
+     *        cannot stream it
+     * @param clientAddress Client IP address, sent upstream in X-Forwarded-For
+     * @return The upstream response, an error page if the upstream failed or is saturated,
+     *         or null when the path is not proxied
+     */
+    HttpResponse forward(HttpRequestParser request, HttpBodyStream requestBody, String clientAddress) {
+        Route route = match(request.path());
+        if (route == null) {
+            return null;
+        }
+        if (request.hasBody() && requestBody == null) {
+            return server.errorResponse(501, "Not Implemented", "Cuerpo de solicitud no soportado por el proxy");
+        }
+        LoadBalancer<Upstream> balancer = route.balancer;
+        Upstream upstream = balancer.select();
+        if (!upstream.tryAcquire()) {
+            requestsByStatus.labels(upstream.url, "503").increment();
+            // The upstream address is internal, so it goes to the log and not to the client
+            server.getEventLog().info("Upstream saturado, 503 enviado: " + upstream.url);
+            HttpResponse response = server.errorResponse(503, "Service Unavailable", "Servicio no disponible");
+            response.addHeader("Retry-After", String.valueOf(RETRY_AFTER_SECONDS));
+            return response;
+        }
+
+        byte[] head = encodeHead(request, route, upstream, requestBody, clientAddress);
+        boolean headRequest = request.method().contentEquals("HEAD");
+        boolean idempotent = headRequest || request.method().contentEquals("GET");
+        UpstreamConnection connection = null;
+        long startNanos = System.nanoTime();
+        try {
+            connection = upstream.acquireConnection();
+            ResponseHead response;
+            try {
+                response = exchange(connection, head, requestBody);
+            } catch (IOException e) {
+                if (!connection.reused || !idempotent || requestBody != null || e instanceof SocketTimeoutException) {
+                    throw e;
+                }
+                // The upstream closed the pooled connection while it was idle
+                connection.close();
+                connection = upstream.open();
+                response = exchange(connection, head, null);
+            }
+            requestsByStatus.labels(upstream.url, String.valueOf(response.statusCode)).increment();
+            if (response.statusCode >= 500) {
+                balancer.recordFailure(upstream);
+            } else {
+                balancer.recordSuccess(upstream, System.nanoTime() - startNanos);
+            }
+            HttpResponse relayed = relay(upstream, connection, response, headRequest);
+            connection = null;
+            relayed.setRoute(route.metrics);
+            return relayed;
+        } catch (IOException e) {
+            if (connection != null) {
+                connection.close();
+            }
+            upstream.release();
+            balancer.recordFailure(upstream);
+            int status = e instanceof SocketTimeoutException ? 504 : 502;
+            requestsByStatus.labels(upstream.url, String.valueOf(status)).increment();
+            server.getEventLog().error("Error en upstream " + upstream.url + ": " + e.getMessage());
+            return status == 504
+                ? server.errorResponse(504, "Gateway Timeout", "El upstream no respondió a tiempo")
+                : server.errorResponse(502, "Bad Gateway", "No se pudo contactar el upstream");
+        }
+    }
+
+    /**
+     * Checks whether a path belongs to a proxied prefix
+     * @param path Path of a complete request
+     * @return true if {@link #forward} would forward the request
+     */
+    boolean handles(AsciiView path) {
+        return match(path) != null;
+    }
+
+    /**
+     * Gets the first upstream of a route, for monitoring
+     * @param prefix Prefix as configured
+     * @return The upstream, or null if no route has that prefix
+     */
+    Upstream getUpstream(String prefix) {
+        LoadBalancer<Upstream> balancer = getBalancer(prefix);
+        return balancer != null ? balancer.getBackends().get(0) : null;
+    }
+
+    /**
+     * Gets the balancer over the upstreams of a route, for monitoring
+     * @param prefix Prefix as configured
+     * @return The balancer, or null if no route has that prefix
+     */
+    LoadBalancer<Upstream> getBalancer(String prefix) {
+        String normalized = normalizePrefix(prefix);
+        for (Route route : routes) {
+            if (route.prefix.equals(normalized)) {
+                return route.balancer;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Stops the health checks and closes the idle pooled connections; connections in use
+     * close once their response ends
+     */
+    @Override
+    public void close() {
+        for (Route route : routes) {
+            route.balancer.close();
+            for (Upstream upstream : route.balancer.getBackends()) {
+                upstream.close();
+            }
+        }
+    }
+
+    private Route match(AsciiView path) {
+        for (Route route : routes) {
+            String prefix = route.prefix;
+            if (path.length() < prefix.length()
+                || (path.length() > prefix.length() && path.charAt(prefix.length()) != '/')) {
+                continue;
+            }
+            boolean matches = true;
+            for (int i = 0; i < prefix.length() && matches; i++) {
+                matches = path.charAt(i) == prefix.charAt(i);
+            }
+            if (matches) {
+                return route;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Rewrites the request head for the upstream: the prefix becomes the upstream path,
+     * hop-by-hop headers are dropped and the X-Forwarded-* headers are added
+     */
+    private byte[] encodeHead(HttpRequestParser request, Route route, Upstream upstream, HttpBodyStream body,
+                              String clientAddress) {
+        StringBuilder head = new StringBuilder(256 + request.headerCount() * 32);
+        head.append(request.method()).append(' ').append(upstream.basePath);
+        AsciiView path = request.path();
+        head.append(path, route.prefix.length(), path.length());
+        if (upstream.basePath.isEmpty() && path.length() == route.prefix.length()) {
+            head.append('/');
+        }
+        if (!request.query().isEmpty()) {
+            head.append('?').append(request.query());
+        }
+        head.append(" HTTP/1.1\r\nHost: ").append(upstream.authority).append("\r\n");
+
+        AsciiView connection = request.header("Connection");
+        AsciiView forwardedFor = null;
+        for (int i = 0; i < request.headerCount(); i++) {
+            AsciiView name = request.headerName(i);
+            if (name.equalsIgnoreCase("X-Forwarded-For")) {
+                forwardedFor = request.headerValue(i);
+                continue;
+            }
+            if (isHopByHop(name) || name.equalsIgnoreCase("Host") || name.equalsIgnoreCase("Content-Length")
+                || name.equalsIgnoreCase("Expect") || name.equalsIgnoreCase("X-Forwarded-Host")
+                || name.equalsIgnoreCase("X-Forwarded-Proto")
+                || (connection != null && connection.containsToken(name.toString()))) {
+                continue;
+            }
+            head.append(name).append(": ").append(request.headerValue(i)).append("\r\n");
+        }
+        head.append("X-Forwarded-For: ");
+        if (forwardedFor != null) {
+            head.append(forwardedFor).append(", ");
+        }
+        head.append(clientAddress).append("\r\n");
+        AsciiView host = request.header("Host");
+        if (host != null) {
+            head.append("X-Forwarded-Host: ").append(host).append("\r\n");
+        }
+        head.append("X-Forwarded-Proto: ").append(server.getTlsContext() != null ? "https" : "http").append("\r\n");
+        if (body != null && body.isChunked()) {
+            head.append("Transfer-Encoding: chunked\r\n");
+        } else if (body != null) {
+            head.append("Content-Length: ").append(body.getLength()).append("\r\n");
+        }
+        head.append("\r\n");
+        return head.toString().getBytes(StandardCharsets.ISO_8859_1);
+    }
+
+    /**
+     * Sends the request and reads the final response head, skipping interim 1xx responses
+     */
+    private ResponseHead exchange(UpstreamConnection connection, byte[] head, HttpBodyStream body)
+            throws IOException {
+        connection.out.write(head);
+        if (body != null) {
+            sendBody(connection, body);
+        }
+        connection.out.flush();
+        ResponseHead response;
+        do {
+            response = readHead(connection);
+        } while (response.statusCode >= 100 && response.statusCode < 200 && response.statusCode != 101);
+        if (response.statusCode == 101) {
+            throw new IOException("El upstream cambió de protocolo");
+        }
+        return response;
+    }
+
+    /**
+     * Copies the client's request body to the upstream through the connection buffer
+     */
+    private static void sendBody(UpstreamConnection connection, HttpBodyStream body) throws IOException {
+        ByteBuffer copy = connection.buffer;
+        OutputStream out = connection.out;
+        boolean chunked = body.isChunked();
+        try {
+            copy.clear();
+            int read;
+            while ((read = body.read(copy)) >= 0) {
+                if (read > 0) {
+                    if (chunked) {
+                        out.write(Integer.toHexString(read).getBytes(StandardCharsets.ISO_8859_1));
+                        out.write(CRLF);
+                    }
+                    out.write(copy.array(), copy.arrayOffset(), read);
+                    if (chunked) {
+                        out.write(CRLF);
+                    }
+                }
+                copy.clear();
+            }
+            if (chunked) {
+                out.write(LAST_CHUNK);
+            }
+        } finally {
+            copy.clear().limit(0);
+        }
+    }
+
+    /**
+     * Reads a response head into the connection buffer, leaving the body bytes after it
+     */
+    private static ResponseHead readHead(UpstreamConnection connection) throws IOException {
+        ByteBuffer buffer = connection.buffer;
+        int end;
+        while ((end = indexOfHeadEnd(buffer)) < 0) {
+            if (buffer.remaining() == buffer.capacity()) {
+                throw new IOException("Encabezados del upstream demasiado grandes");
+            }
+            buffer.compact();
+            int read = connection.in.read(buffer.array(), buffer.arrayOffset() + buffer.position(), buffer.remaining());
+            if (read < 0) {
+                buffer.flip();
+                throw new EOFException("El upstream cerró la conexión sin responder");
+            }
+            buffer.position(buffer.position() + read);
+            buffer.flip();
+        }
+        String text = new String(buffer.array(), buffer.arrayOffset() + buffer.position(),
+                                 end - buffer.position(), StandardCharsets.ISO_8859_1);
+        buffer.position(end);
+        return ResponseHead.parse(text);
+    }
+
+    /**
+     * Finds the blank line that ends a head, with CRLF or bare LF line endings
+     * @return Position right after it, or -1 if it has not fully arrived yet
+     */
+    private static int indexOfHeadEnd(ByteBuffer buffer) {
+        byte[] bytes = buffer.array();
+        int base = buffer.arrayOffset();
+        int start = buffer.position();
+        for (int i = start + 1; i < buffer.limit(); i++) {
+            if (bytes[base + i] != '\n') {
+                continue;
+            }
+            if (bytes[base + i - 1] == '\n'
+                || (i - 2 >= start && bytes[base + i - 1] == '\r' && bytes[base + i - 2] == '\n')) {
+                return i + 1;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * Builds the response relayed to the client. The permit and the connection are handed
+     * over: released right away for a bodiless response, or by the body stream once the
+     * engine has sent or abandoned the body.
+     */
+    private static HttpResponse relay(Upstream upstream, UpstreamConnection connection, ResponseHead head,
+                                      boolean headRequest) {
+        String contentType = head.contentType != null ? head.contentType : DEFAULT_CONTENT_TYPE;
+        boolean reusable = head.keepAlive;
+        HttpResponse response;
+        if (headRequest || head.statusCode == 204 || head.statusCode == 304) {
+            upstream.finish(connection, reusable);
+            response = new HttpResponse(head.statusCode, head.statusText, contentType, EMPTY_BODY);
+        } else {
+            HttpBodyStream body;
+            if (head.chunked) {
+                body = HttpBodyStream.ofChunked(connection.buffer, connection.in);
+            } else if (head.contentLength >= 0) {
+                body = HttpBodyStream.ofLength(connection.buffer, connection.in, head.contentLength);
+            } else {
+                body = HttpBodyStream.untilClose(connection.buffer, connection.in);
+                reusable = false;
+            }
+            UpstreamBody stream = new UpstreamBody(upstream, connection, body, reusable);
+            response = head.contentLength >= 0 && !head.chunked
+                ? new HttpResponse(head.statusCode, head.statusText, contentType, stream, head.contentLength)
+                : new HttpResponse(head.statusCode, head.statusText, contentType, stream);
+        }
+        for (int i = 0; i < head.names.size(); i++) {
+            response.addHeader(head.names.get(i), head.values.get(i));
+        }
+        return response;
+    }
+
+    private static boolean isHopByHop(CharSequence name) {
+        for (String hopByHop : HOP_BY_HOP) {
+            if (hopByHop.length() == name.length() && hopByHop.regionMatches(true, 0, name.toString(), 0, name.length())) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Drops the trailing '/' of a prefix, so "/api/" and "/api" match the same paths
+     */
+    private static String normalizePrefix(String prefix) {
+        return prefix.endsWith("/") ? prefix.substring(0, prefix.length() - 1) : prefix;
+    }
+
+    /**
+     * A proxied path prefix and the upstreams it is forwarded to
+     */
+    private static final class Route {
+        final String prefix;
+        final LoadBalancer<Upstream> balancer;
+        final RouteMetrics metrics;
+
+        Route(String prefix, LoadBalancer<Upstream> balancer) {
+            this.prefix = normalizePrefix(prefix);
+            this.balancer = balancer;
+            this.metrics = new RouteMetrics(this.prefix.isEmpty() ? "/" : this.prefix);
+        }
+    }
+
+    /**
+     * An upstream server: its address, its pool of idle connections and its limit on
+     * requests in progress, which it counts as the balancer's outstanding requests
+     */
+    static final class Upstream extends LoadBalancer.Backend {
+        final String url;
+        final String authority;
+        final String basePath;
+        private final int maxOutstanding;
+        private final int poolSize;
+        private final int timeoutMillis;
+        private final long idleNanos;
+        private final ConcurrentLinkedDeque<UpstreamConnection> idle = new ConcurrentLinkedDeque<>();
+        private final AtomicInteger idleCount = new AtomicInteger();
+        private final MetricsRegistry.Counter opened;
+        private volatile boolean closed;
+
+        Upstream(String url, WebServerConfig config, MetricsRegistry.Counter opened) {
+            this(url, URI.create(url), config, opened);
+        }
+
+        private Upstream(String url, URI uri, WebServerConfig config, MetricsRegistry.Counter opened) {
+            super(url, uri.getHost(), uri.getPort() >= 0 ? uri.getPort() : 80);
+            String path = uri.getRawPath() == null ? "" : uri.getRawPath();
+            this.url = url;
+            this.authority = uri.getHost() + (uri.getPort() >= 0 ? ":" + uri.getPort() : "");
+            this.basePath = path.endsWith("/") ? path.substring(0, path.length() - 1) : path;
+            this.maxOutstanding = config.getProxyMaxOutstanding();
+            this.poolSize = config.getProxyPoolSize();
+            this.timeoutMillis = config.getProxyTimeoutMillis();
+            this.idleNanos = TimeUnit.MILLISECONDS.toNanos(config.getProxyIdleMillis());
+            this.opened = opened;
+        }
+
+        /** Connections waiting in the pool */
+        int getIdleConnections() {
+            return idleCount.get();
+        }
+
+        /** Connections opened to this upstream since the JVM started */
+        long getConnectionsOpened() {
+            return opened.get();
+        }
+
+        /**
+         * Counts a request forwarded whose response has not been fully relayed yet
+         * @return false if the upstream already has webserver.proxy.outstanding of them
+         */
+        private boolean tryAcquire() {
+            return tryAcquire(maxOutstanding);
+        }
+
+        /**
+         * Takes the most recently used pooled connection, or opens a new one
+         */
+        private UpstreamConnection acquireConnection() throws IOException {
+            UpstreamConnection connection;
+            while ((connection = idle.pollFirst()) != null) {
+                idleCount.decrementAndGet();
+                if (System.nanoTime() - connection.idleSinceNanos < idleNanos) {
+                    connection.reused = true;
+                    return connection;
+                }
+                connection.close();
+            }
+            return open();
+        }
+
+        private UpstreamConnection open() throws IOException {
+            Socket socket = new Socket();
+            try {
+                socket.setTcpNoDelay(true);
+                socket.connect(new InetSocketAddress(getHost(), getPort()), timeoutMillis);
+                socket.setSoTimeout(timeoutMillis);
+                opened.increment();
+                return new UpstreamConnection(socket);
+            } catch (IOException e) {
+                socket.close();
+                throw e;
+            }
+        }
+
+        /**
+         * Ends one request: pools the connection if it is clean and reusable, and frees the permit
+         */
+        private void finish(UpstreamConnection connection, boolean reusable) {
+            boolean pooled = false;
+            // Bytes past the response would be read as the start of the next one
+            if (reusable && !closed && !connection.buffer.hasRemaining()) {
+                if (idleCount.incrementAndGet() <= poolSize) {
+                    connection.idleSinceNanos = System.nanoTime();
+                    connection.reused = false;
+                    idle.offerFirst(connection);
+                    pooled = true;
+                } else {
+                    idleCount.decrementAndGet();
+                }
+            }
+            if (!pooled) {
+                connection.close();
+            }
+            release();
+        }
+
+        private void close() {
+            closed = true;
+            UpstreamConnection connection;
+            while ((connection = idle.pollFirst()) != null) {
+                idleCount.decrementAndGet();
+                connection.close();
+            }
+        }
+    }
+
+    /**
+     * One connection to an upstream, with the buffer its response heads are read into
+     */
+    private static final class UpstreamConnection {
+        final Socket socket;
+        final InputStream in;
+        final OutputStream out;
+        final ByteBuffer buffer = ByteBuffer.allocate(BUFFER_SIZE);
+        boolean reused;
+        long idleSinceNanos;
+
+        UpstreamConnection(Socket socket) throws IOException {
+            this.socket = socket;
+            this.in = socket.getInputStream();
+            this.out = new BufferedOutputStream(socket.getOutputStream(), BUFFER_SIZE);
+            buffer.limit(0);
+        }
+
+        void close() {
+            try {
+                socket.close();
+            } catch (IOException e) {
+                // Nothing left to release
+            }
+        }
+    }
+
+    /**
+     * The response body relayed from an upstream; gives back the connection and the
+     * permit when the engine closes it
+     */
+    private static final class UpstreamBody implements BodyStream {
+        private final Upstream upstream;
+        private final UpstreamConnection connection;
+        private final HttpBodyStream body;
+        private final boolean reusable;
+        private boolean closed;
+
+        UpstreamBody(Upstream upstream, UpstreamConnection connection, HttpBodyStream body, boolean reusable) {
+            this.upstream = upstream;
+            this.connection = connection;
+            this.body = body;
+            this.reusable = reusable;
+        }
+
+        @Override
+        public int read(ByteBuffer target) throws IOException {
+            return body.read(target);
+        }
+
+        @Override
+        public void close() {
+            if (closed) {
+                return;
+            }
+            closed = true;
+            // A body abandoned halfway leaves the rest on the wire, so the connection cannot be reused
+            upstream.finish(connection, reusable && body.isComplete());
+        }
+    }
+
+    /**
+     * The status line and the end-to-end headers of an upstream response
+     */
+    private static final class ResponseHead {
+        int statusCode;
+        String statusText = "";
+        String contentType;
+        long contentLength = -1;
+        boolean chunked;
+        boolean keepAlive;
+        final List<String> names = new ArrayList<>();
+        final List<String> values = new ArrayList<>();
+
+        static ResponseHead parse(String text) throws IOException {
+            String[] lines = text.split("\r?\n");
+            String[] status = lines[0].split(" ", 3);
+            if (status.length < 2 || !status[0].startsWith("HTTP/1.")) {
+                throw new IOException("Línea de estado inválida del upstream: " + lines[0]);
+            }
+            ResponseHead head = new ResponseHead();
+            try {
+                head.statusCode = Integer.parseInt(status[1]);
+            } catch (NumberFormatException e) {
+                throw new IOException("Código de estado inválido del upstream: " + lines[0]);
+            }
+            if (status.length > 2) {
+                head.statusText = status[2];
+            }
+            boolean http11 = status[0].equals("HTTP/1.1");
+            String connection = "";
+            List<String> rawNames = new ArrayList<>();
+            List<String> rawValues = new ArrayList<>();
+            for (int i = 1; i < lines.length; i++) {
+                int colon = lines[i].indexOf(':');
+                if (colon <= 0) {
+                    throw new IOException("Encabezado inválido del upstream: " + lines[i]);
+                }
+                String name = lines[i].substring(0, colon).trim();
+                String value = lines[i].substring(colon + 1).trim();
+                if (name.equalsIgnoreCase("Content-Length")) {
+                    try {
+                        head.contentLength = Long.parseLong(value);
+                    } catch (NumberFormatException e) {
+                        throw new IOException("Content-Length inválido del upstream: " + value);
+                    }
+                } else if (name.equalsIgnoreCase("Transfer-Encoding")) {
+                    head.chunked = value.toLowerCase().endsWith("chunked");
+                } else if (name.equalsIgnoreCase("Content-Type")) {
+                    head.contentType = value;
+                } else if (name.equalsIgnoreCase("Connection")) {
+                    connection = connection.isEmpty() ? value : connection + "," + value;
+                } else if (!name.equalsIgnoreCase("Date") && !name.equalsIgnoreCase("Server") && !isHopByHop(name)) {
+                    rawNames.add(name);
+                    rawValues.add(value);
+                }
+            }
+            List<String> tokens = new ArrayList<>();
+            for (String token : connection.split(",")) {
+                tokens.add(token.trim().toLowerCase());
+            }
+            head.keepAlive = http11 ? !tokens.contains("close") : tokens.contains("keep-alive");
+            for (int i = 0; i < rawNames.size(); i++) {
+                // Headers named in Connection apply to that hop only
+                if (!tokens.contains(rawNames.get(i).toLowerCase())) {
+                    head.names.add(rawNames.get(i));
+                    head.values.add(rawValues.get(i));
+                }
+            }
+            return head;
+        }
+    }
+}
@@ -0,0 +1,81 @@
+package edu.eci.arsw.networking;
+
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * The access metrics of one route of {@link SimpleWebServer}: its series of
+ * http_requests_total, one per status code, and its series of http_request_duration_seconds.
+ *
+ * A route is what a request resolved to - a file of the web root, a proxied prefix, a
+ * WebSocket endpoint or /metrics - never the path the client typed, so requests for
+ * made-up URLs cannot use up the series of the families. 404s, other error responses and
+ * requests that never resolved to anything share the {@link #UNRESOLVED} route.
+ *
+ * The series are looked up once, when the route is created or a status code is first seen
+ * on it; recording a request afterwards builds no label key and takes no lock.
+ *
+ * @author GitHub Copilot Implementation
+ * @version 1.0
+ */
+final class RouteMetrics {
+
+    /** Label of the route shared by error responses and unresolved requests */
+    static final String UNRESOLVED = "-";
+
+    private static final String[] STATUS_LABELS = new String[600];
+    static {
+        for (int status = 100; status < STATUS_LABELS.length; status++) {
+            STATUS_LABELS[status] = String.valueOf(status);
+        }
+    }
+
+    private final String label;
+    private final MetricsRegistry.Family<MetricsRegistry.Counter> requests;
+    private final MetricsRegistry.Histogram durations;
+    private final AtomicReferenceArray<MetricsRegistry.Counter> requestsByStatus =
+        new AtomicReferenceArray<>(STATUS_LABELS.length);
+
+    /**
+     * Looks up the series of a route in the shared registry
+     * @param label Value of the path label, e.g. "/index.html" or "/api"
+     */
+    RouteMetrics(String label) {
+        this.label = label;
+        MetricsRegistry metrics = MetricsRegistry.shared();
+        this.requests = metrics.counter("http_requests_total",
+                                        "Solicitudes HTTP respondidas por ruta y código de estado",
+                                        "path", "status");
+        this.durations = metrics.histogram("http_request_duration_seconds",
+                                           "Tiempo desde la solicitud completa hasta el último byte enviado",
+                                           "path").labels(label);
+    }
+
+    /**
+     * Gets the value of the path label of this route
+     * @return The label
+     */
+    String getLabel() { return label; }
+
+    /**
+     * Counts one answered request
+     * @param status Status code of the response
+     * @param durationNanos Time from the complete request to the last byte sent
+     */
+    void record(int status, long durationNanos) {
+        requestsFor(status).increment();
+        durations.record(durationNanos);
+    }
+
+    private MetricsRegistry.Counter requestsFor(int status) {
+        if (status < 100 || status >= STATUS_LABELS.length) {
+            return requests.labels(label, UNRESOLVED);
+        }
+        MetricsRegistry.Counter counter = requestsByStatus.get(status);
+        if (counter == null) {
+            // The family returns the same series to every thread that races here
+            counter = requests.labels(label, STATUS_LABELS[status]);
+            requestsByStatus.set(status, counter);
+        }
+        return counter;
+    }
+}
@@ -1,27 +1,85 @@
 package edu.eci.arsw.networking;
 
+import java.net.InetSocketAddress;
 import java.net.ServerSocket;
 import java.net.Socket;
 import java.io.*;
+import java.net.URLEncoder;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.charset.StandardCharsets;
 import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
 import java.nio.file.Path;
 import java.nio.file.Paths;
-import java.util.Date;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.security.GeneralSecurityException;
+import java.util.Arrays;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
+import java.util.Set;
+import java.util.stream.Stream;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
 
 /**
  * Exercise 4.5.1: Simple Web Server
- * This web server supports multiple sequential requests (non-concurrent) and serves
- * all requested files including HTML pages and images.
+ * This web server serves all requested files including HTML pages and images to many
+ * clients at once, with one of two engines (webserver.engine):
+ * - blocking  - The accept loop hands every connection to a {@link ConnectionExecutor}, which
+ *               serves it on its own thread from the first request to the last: a virtual
+ *               thread per connection by default, falling back to a bounded pool where virtual
+ *               threads are unavailable; the "inline" mode keeps the original one-at-a-time
+ *               behavior. h2c and WebSocket connections keep the thread they were upgraded on.
+ * - nio / reuseport - A fixed set of reactor threads multiplexes every connection on its
+ *               selector (see {@link NioWebServerEngine}), so an idle or slow client costs a
+ *               buffer instead of a thread. Proxied requests, whose upstream I/O blocks,
+ *               run on worker threads from the same executor settings instead.
+ * Either way the responses themselves are built by the same code, so files, status codes
+ * and headers do not depend on the engine.
  * 
  * Features:
  * - HTTP/1.1 protocol support
  * - Static file serving (HTML, images, CSS, JS, etc.)
  * - Proper MIME type detection
- * - HTTP status codes (200, 404, 500)
+ * - HTTP status codes (200, 206, 304, 404, 416, 500, 503)
+ * - Conditional GET with strong ETags and Last-Modified (If-None-Match / If-Modified-Since)
+ * - Range requests, single and multipart/byteranges, streamed from the file
+ * - gzip negotiation with Accept-Encoding, from cached compressed variants or .gz sidecars
+ * - Optional memory-mapped serving of hot files (webserver.cache.mode=mmap)
+ * - In-memory index of the web root kept current with a WatchService (webserver.index)
  * - Basic HTTP headers
- * - Sequential request handling
+ * - HTTP/1.1 persistent connections (keep-alive) with idle timeout and request limit
+ * - Idle, header-read and write deadlines on every connection, tracked by the shared
+ *   {@link HashedWheelTimer}, so slow or stalled clients cannot hold a connection forever
+ * - Size-bounded LRU cache of file contents with modification-time invalidation
+ * - Zero-copy transfer of large files (FileChannel.transferTo), independent of heap size
+ * - Concurrent request handling through a pluggable {@link ConnectionExecutor}
+ * - Optional non-blocking NIO engine, fed by one acceptor or by one SO_REUSEPORT listener
+ *   per reactor (see {@link WebServerConfig})
+ * - Access log of every answered request through the asynchronous {@link EventLog}
+ * - Prometheus metrics of every server in the JVM on /metrics (see {@link MetricsRegistry})
+ * - Streamed responses in "Transfer-Encoding: chunked" for bodies of unknown length: the
+ *   metrics export, optional directory listings and files still being written (see {@link BodyStream})
+ * - Admission control: connection and in-flight request limits plus CoDel-style shedding on
+ *   queue delay, answered with a precomputed 503 and Retry-After (see {@link AdmissionController})
+ * - HTTP/2 over cleartext (h2c) on the blocking engine, with prior knowledge or "Upgrade: h2c":
+ *   multiplexed streams, HPACK and flow control (see {@link Http2Connection})
+ * - Reverse proxy: path prefixes forwarded to upstream servers over pooled keep-alive
+ *   connections, with bodies streamed both ways (see {@link ReverseProxy}), and balanced
+ *   over several upstreams with health checks and outlier ejection (see {@link LoadBalancer})
+ * - WebSocket endpoints on the blocking engine (RFC 6455), with built-in chat, time and
+ *   metrics feeds and broadcasts encoded once for every subscriber (see {@link WebSocketEndpoint})
+ * - HTTPS on every engine when a keystore is configured, with a tunable session cache and
+ *   session tickets for resumed handshakes (see {@link TlsContext} and {@link TlsChannel})
  * 
  * Based on the networking tutorial by Andersson David Sánchez Méndez
  * Escuela Colombiana de Ingeniería - Arquitectura Empresarial
@@ -31,10 +89,12 @@ import java.util.Map;
  */
 public class SimpleWebServer {
     
-    private static final int SERVER_PORT = 8081;
-    private static final String WEB_ROOT = "webroot";
     private static final String DEFAULT_FILE = "index.html";
-    private static final String HTTP_VERSION = "HTTP/1.1";
+    private static final String HTML_CONTENT_TYPE = "text/html; charset=UTF-8";
+    private static final int INPUT_BUFFER_SIZE = 4096;
+    private static final byte[] NO_CONTENT = new byte[0];
+    private static final String METRICS_PATH = "/metrics";
+    private static final String METRICS_CONTENT_TYPE = "text/plain; version=0.0.4; charset=utf-8";
     
     // MIME type mappings
     private static final Map<String, String> MIME_TYPES = new HashMap<>();
@@ -55,14 +115,103 @@ public class SimpleWebServer {
         MIME_TYPES.put("zip", "application/zip");
     }
     
-    private boolean isRunning = true;
+    private final WebServerConfig config;
+    private final StaticFileCache fileCache;
+    private final MappedFileRegistry mappedFiles;
+    private final EventLog eventLog;
+    private final MetricsRegistry metrics;
+    private final MetricsRegistry.Counter responseBytes;
+    private final RouteMetrics unresolvedRoute = new RouteMetrics(RouteMetrics.UNRESOLVED);
+    private final RouteMetrics overflowRoute = new RouteMetrics(MetricsRegistry.OVERFLOW_LABEL);
+    private final RouteMetrics metricsRoute = new RouteMetrics(METRICS_PATH);
+    private final Map<String, RouteMetrics> fileRoutes = new ConcurrentHashMap<>();
+    private final AdmissionController admission;
+    private final HttpResponse overloadedResponse;
+    private final TlsContext tlsContext;
+    private final ReverseProxy proxy;
+    private final ThreadPoolExecutor webSocketWriters;
+    private final Semaphore webSocketSessions;
+    private volatile WebSocketEndpoint[] webSocketEndpoints = new WebSocketEndpoint[0];
+    private final WebSocketFeeds webSocketFeeds;
+    private volatile boolean isRunning = true;
+    private NioWebServerEngine nioEngine;
+    private volatile WebRootIndex webRootIndex;
+    private final Set<Socket> idleConnections = ConcurrentHashMap.newKeySet();
+    
+    /**
+     * Creates a web server with the default configuration (port 8081, blocking engine)
+     */
+    public SimpleWebServer() {
+        this(new WebServerConfig());
+    }
+    
+    /**
+     * Creates a web server with the given configuration
+     * @param config Server configuration
+     */
+    public SimpleWebServer(WebServerConfig config) {
+        this(config, EventLog.shared());
+    }
+    
+    /**
+     * Creates a web server that writes its per-request log to the given event log
+     * @param config Server configuration
+     * @param eventLog Asynchronous access and event log
+     */
+    SimpleWebServer(WebServerConfig config, EventLog eventLog) {
+        this.config = config;
+        this.eventLog = eventLog;
+        this.metrics = MetricsRegistry.shared();
+        this.responseBytes = metrics.counter("http_response_body_bytes_total",
+                                             "Bytes de cuerpo enviados en respuestas HTTP").labels();
+        this.admission = config.createAdmissionController();
+        this.overloadedResponse = buildOverloadedResponse(config.getRetryAfterSeconds());
+        // Only one of the two stores is enabled, as chosen by the cache mode
+        boolean mapped = config.getCacheMode() == WebServerConfig.CacheMode.MMAP;
+        this.fileCache = new StaticFileCache(mapped ? 0 : config.getCacheBytes(),
+                                             config.getCacheMaxEntryBytes(),
+                                             config.getCacheRevalidateMillis());
+        this.mappedFiles = new MappedFileRegistry(mapped ? config.getCacheBytes() : 0,
+                                                  config.getCacheMaxEntryBytes(),
+                                                  config.getCacheRevalidateMillis());
+        try {
+            this.tlsContext = config.isTlsEnabled() ? TlsContext.create(config) : null;
+        } catch (IOException | GeneralSecurityException e) {
+            throw new IllegalArgumentException("No se pudo cargar el almacén de claves TLS " +
+                                               config.getTlsKeyStore() + ": " + e.getMessage(), e);
+        }
+        this.proxy = config.getProxyRoutes().isEmpty() ? null : new ReverseProxy(this, config);
+        this.webSocketWriters = createWebSocketWriters();
+        this.webSocketSessions = new Semaphore(config.getWebSocketSessions());
+        this.webSocketFeeds = config.isWebSocketEnabled() ? new WebSocketFeeds(this, config) : null;
+    }
+    
+    /**
+     * Creates the threads that write the outbound queues of the WebSocket sessions. Their
+     * writes never block, so a few threads serve every session. A session has at most one
+     * write task queued, so the queue is bounded by the number of sessions; the threads are
+     * only started once there is something to write.
+     * @return The writer pool
+     */
+    private static ThreadPoolExecutor createWebSocketWriters() {
+        int threads = Math.max(2, Runtime.getRuntime().availableProcessors());
+        AtomicInteger threadCounter = new AtomicInteger();
+        ThreadPoolExecutor writers = new ThreadPoolExecutor(threads, threads, 60L, TimeUnit.SECONDS,
+                                                            new LinkedBlockingQueue<>(), task -> {
+            Thread thread = new Thread(task, "websocket-writer-" + threadCounter.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+        writers.allowCoreThreadTimeOut(true);
+        return writers;
+    }
     
     /**
      * Main method to start the web server
-     * @param args Command line arguments (not used)
+     * @param args Command line arguments (not used, see {@link WebServerConfig} for system properties)
      */
     public static void main(String[] args) {
-        SimpleWebServer server = new SimpleWebServer();
+        SimpleWebServer server = new SimpleWebServer(WebServerConfig.fromSystemProperties());
         server.startServer();
     }
     
@@ -71,30 +220,69 @@ public class SimpleWebServer {
      */
     public void startServer() {
         System.out.println("=== SIMPLE WEB SERVER ===");
-        System.out.println("Servidor web iniciado en puerto: " + SERVER_PORT);
-        System.out.println("Directorio web: " + WEB_ROOT);
-        System.out.println("URL: http://localhost:" + SERVER_PORT);
+        System.out.println("Servidor web iniciado en puerto: " + config.getPort());
+        System.out.println("Directorio web: " + config.getWebRoot());
+        System.out.println("Motor de conexiones: " + config.getEngine().getCommand());
+        System.out.println("URL: " + (tlsContext != null ? "https" : "http") + "://localhost:" + config.getPort());
+        for (Map.Entry<String, List<String>> route : config.getProxyRoutes().entrySet()) {
+            System.out.println("Proxy: " + route.getKey() + " -> " + String.join(", ", route.getValue()));
+        }
+        if (config.getEngine() == WebServerConfig.Engine.BLOCKING && tlsContext == null) {
+            for (WebSocketEndpoint endpoint : webSocketEndpoints) {
+                System.out.println("WebSocket: ws://localhost:" + config.getPort() + endpoint.getPath());
+            }
+        }
         System.out.println("Presione Ctrl+C para detener el servidor");
         System.out.println();
         
         // Create web root directory if it doesn't exist
         createWebRoot();
+        if (config.isIndexEnabled()) {
+            startWebRootIndex();
+        }
+        if (webSocketFeeds != null) {
+            webSocketFeeds.start();
+        }
         
-        try (ServerSocket serverSocket = new ServerSocket(SERVER_PORT)) {
+        if (config.getEngine() != WebServerConfig.Engine.BLOCKING) {
+            startNioEngine();
+        } else {
+            startBlockingEngine();
+        }
+    }
+    
+    /**
+     * Runs the blocking accept loop, handing each connection to the configured executor
+     */
+    private void startBlockingEngine() {
+        ConnectionExecutor connectionExecutor = config.createConnectionExecutor();
+        System.out.println("Modo de ejecución: " + connectionExecutor.getMode().getCommand());
+        
+        try (ServerSocketChannel serverChannel = ServerSocketChannel.open()) {
+            // Accepted through a channel, so that a WebSocket session can switch its socket
+            // to non-blocking writes
+            ServerSocket serverSocket = serverChannel.socket();
+            serverSocket.setReuseAddress(true);
+            serverSocket.bind(new InetSocketAddress(config.getPort()));
             
             while (isRunning) {
                 try {
-                    // Wait for client connection (sequential, not concurrent)
+                    // Wait for client connection
                     Socket clientSocket = serverSocket.accept();
+                    long acceptedNanos = System.nanoTime();
+                    if (!admission.tryAcquireConnection()) {
+                        rejectConnection(clientSocket);
+                        continue;
+                    }
                     String clientAddress = clientSocket.getInetAddress().getHostAddress();
-                    System.out.println("Nueva conexión HTTP desde: " + clientAddress);
+                    eventLog.info("Nueva conexión HTTP desde: " + clientAddress);
                     
-                    // Handle the HTTP request
-                    handleHttpRequest(clientSocket);
+                    // Handle the HTTP request (inline or on a worker, depending on the executor)
+                    dispatchConnection(connectionExecutor, clientSocket, acceptedNanos);
                     
                 } catch (IOException e) {
                     if (isRunning) {
-                        System.err.println("Error aceptando conexión del cliente: " + e.getMessage());
+                        eventLog.error("Error aceptando conexión del cliente: " + e.getMessage());
                     }
                 }
             }
@@ -102,165 +290,1042 @@ public class SimpleWebServer {
         } catch (IOException e) {
             System.err.println("Error iniciando el servidor web: " + e.getMessage());
             e.printStackTrace();
+        } finally {
+            connectionExecutor.shutdown();
         }
     }
     
     /**
-     * Handles a single HTTP request
+     * Hands an accepted connection to the executor, answering 503 if the server is saturated
+     * @param connectionExecutor Executor that runs the connection
      * @param clientSocket The socket connection to the client
+     * @param acceptedNanos When the connection was accepted
      */
-    private void handleHttpRequest(Socket clientSocket) {
-        try (BufferedReader in = new BufferedReader(new InputStreamReader(clientSocket.getInputStream()));
-             OutputStream out = clientSocket.getOutputStream();
-             PrintWriter headerOut = new PrintWriter(out, true)) {
-            
-            String clientAddress = clientSocket.getInetAddress().getHostAddress();
-            
-            // Read the HTTP request line
-            String requestLine = in.readLine();
-            if (requestLine == null || requestLine.isEmpty()) {
-                System.out.println("Solicitud vacía desde: " + clientAddress);
+    private void dispatchConnection(ConnectionExecutor connectionExecutor, Socket clientSocket, long acceptedNanos) {
+        try {
+            connectionExecutor.execute(() -> handleConnection(clientSocket, acceptedNanos));
+        } catch (RejectedExecutionException e) {
+            admission.releaseConnection();
+            rejectConnection(clientSocket);
+        }
+    }
+    
+    /**
+     * Sends the precomputed 503 on a connection that was not admitted and closes it. The
+     * request is not read: bytes the client already sent are discarded so the close does
+     * not reset the connection before the response arrives.
+     * @param clientSocket The socket connection to the client
+     */
+    private void rejectConnection(Socket clientSocket) {
+        if (tlsContext != null) {
+            closeRejected(clientSocket);
+            return;
+        }
+        eventLog.info("Servidor saturado, 503 enviado a: " + clientSocket.getInetAddress().getHostAddress());
+        try (Socket socket = clientSocket) {
+            socket.getOutputStream().write(overloadedResponse.getEncoded());
+            socket.shutdownOutput();
+            InputStream in = socket.getInputStream();
+            in.skip(in.available());
+        } catch (IOException e) {
+            eventLog.error("Error rechazando conexión HTTP: " + e.getMessage());
+        }
+    }
+    
+    /**
+     * Closes a TLS connection that was not admitted: a 503 could only be sent after a full
+     * handshake, the very work an overloaded server must avoid, so the client just sees
+     * the connection close
+     * @param clientSocket The socket connection to the client
+     */
+    private void closeRejected(Socket clientSocket) {
+        eventLog.info("Servidor saturado, conexión TLS cerrada: " + clientSocket.getInetAddress().getHostAddress());
+        try {
+            clientSocket.close();
+        } catch (IOException e) {
+            eventLog.error("Error rechazando conexión HTTP: " + e.getMessage());
+        }
+    }
+    
+    /**
+     * Runs an admitted connection on its worker thread, unless it waited so long in the
+     * executor queue that it is shed; the connection slot is given back when it closes
+     * @param clientSocket The socket connection to the client
+     * @param acceptedNanos When the connection was accepted
+     */
+    private void handleConnection(Socket clientSocket, long acceptedNanos) {
+        try {
+            if (admission.shouldShed(System.nanoTime() - acceptedNanos)) {
+                rejectConnection(clientSocket);
                 return;
             }
-            
-            System.out.println("Solicitud HTTP: " + requestLine);
-            
-            // Parse the request line (e.g., "GET /index.html HTTP/1.1")
-            String[] requestParts = requestLine.split(" ");
-            if (requestParts.length < 2) {
-                sendErrorResponse(headerOut, out, 400, "Bad Request", "Solicitud HTTP malformada");
-                return;
+            handleHttpRequest(clientSocket);
+        } finally {
+            admission.releaseConnection();
+        }
+    }
+    
+    /**
+     * Runs the selector-based engine on the calling thread until the server is stopped
+     */
+    private void startNioEngine() {
+        try {
+            synchronized (this) {
+                if (!isRunning) {
+                    return;
+                }
+                nioEngine = new NioWebServerEngine(this, config);
             }
-            
-            String method = requestParts[0];
-            String requestedPath = requestParts[1];
-            
-            // Only support GET method for this simple server
-            if (!"GET".equals(method)) {
-                sendErrorResponse(headerOut, out, 405, "Method Not Allowed", "Método no soportado: " + method);
-                return;
+            nioEngine.start();
+        } catch (IOException e) {
+            System.err.println("Error iniciando el servidor web: " + e.getMessage());
+            e.printStackTrace();
+        }
+    }
+    
+    /**
+     * Handles the HTTP requests sent over one connection. With keep-alive the connection
+     * stays open for further requests until the client asks to close it, the idle timeout
+     * expires or the per-connection request limit is reached. A watchdog on the shared
+     * timer closes the socket, which unblocks the read or write in progress, when the
+     * client stays silent past the idle timeout, takes longer than the header timeout to
+     * send a request head or stops accepting response bytes for the write timeout.
+     * @param clientSocket The socket connection to the client
+     */
+    private void handleHttpRequest(Socket clientSocket) {
+        String clientAddress = clientSocket.getInetAddress().getHostAddress();
+        HashedWheelTimer.Watchdog watchdog = HashedWheelTimer.shared().watchdog(() -> closeExpired(clientSocket));
+        TlsChannel tls = null;
+        try (InputStream socketIn = clientSocket.getInputStream();
+             OutputStream out = clientSocket.getOutputStream();
+             ResponseWriter responseWriter = new ResponseWriter()) {
+
+            // Head and body may leave in separate writes; with Nagle the body would wait for
+            // the client's delayed ACK of the head on every keep-alive response
+            clientSocket.setTcpNoDelay(true);
+
+            // File bodies stream through a small bounded buffer, so heap use stays constant,
+            // and the write deadline moves forward with every chunk
+            WritableByteChannel responseChannel = new DeadlineChannel(clientSocket.getChannel(), watchdog,
+                                                                      config.getWriteTimeoutMillis());
+            InputStream in = socketIn;
+            if (tlsContext != null) {
+                // The handshake runs within the first read; responses are encrypted record by record
+                tls = new TlsChannel(Channels.newChannel(socketIn), Channels.newChannel(out), tlsContext.newEngine());
+                in = Channels.newInputStream(tls);
+                responseChannel = new DeadlineChannel(tls, watchdog, config.getWriteTimeoutMillis());
             }
             
-            // Read and skip remaining headers (not processing them in this simple server)
-            String headerLine;
-            while ((headerLine = in.readLine()) != null && !headerLine.isEmpty()) {
-                // Skip headers for this simple implementation
-            }
+            // Bytes read but not parsed yet (pipelined requests) stay in the input buffer
+            HttpRequestParser request = new HttpRequestParser();
+            ByteBuffer input = ByteBuffer.allocate(INPUT_BUFFER_SIZE);
+            input.flip();
             
-            // Serve the requested file
-            serveFile(requestedPath, headerOut, out, clientAddress);
+            int requestCount = 0;
+            boolean keepAlive = true;
+            while (keepAlive) {
+                request.reset();
+                watchdog.arm(config.getKeepAliveTimeoutMillis());
+                boolean headStarted = false;
+                HttpRequestParser.Result result = request.parse(input);
+                while (result == HttpRequestParser.Result.INCOMPLETE) {
+                    if (!headStarted && !request.isEmpty()) {
+                        // The whole head must arrive in time, however slowly it trickles in
+                        watchdog.arm(config.getHeaderTimeoutMillis());
+                        headStarted = true;
+                    }
+                    // Before the first byte of a further request the connection is idle and may
+                    // be closed by stopServer()
+                    boolean idle = requestCount > 0 && request.isEmpty();
+                    int read;
+                    try {
+                        if (idle && !enterIdle(clientSocket)) {
+                            return;
+                        }
+                        read = in.read(input.array(), 0, input.capacity());
+                    } finally {
+                        leaveIdle(clientSocket);
+                    }
+                    if (read < 0) {
+                        if (requestCount == 0 && request.isEmpty()) {
+                            eventLog.info("Solicitud vacía desde: " + clientAddress);
+                        }
+                        return;
+                    }
+                    // The parser has consumed everything before asking for more
+                    input.clear().limit(read);
+                    result = request.parse(input);
+                }
+                
+                watchdog.disarm();
+                requestCount++;
+                if (config.isH2cEnabled() && tls == null && result == HttpRequestParser.Result.COMPLETE) {
+                    // The rest of the connection speaks HTTP/2
+                    if (requestCount == 1 && Http2Connection.isPriorKnowledge(request)) {
+                        new Http2Connection(this, clientSocket, in, out, input, watchdog).servePriorKnowledge();
+                        return;
+                    }
+                    byte[] settings = Http2Connection.upgradeSettings(request);
+                    if (settings != null) {
+                        new Http2Connection(this, clientSocket, in, out, input, watchdog).serveUpgrade(request, settings);
+                        return;
+                    }
+                }
+                if (tls == null && result == HttpRequestParser.Result.COMPLETE) {
+                    // The rest of the connection carries WebSocket frames
+                    WebSocketEndpoint endpoint = findWebSocketEndpoint(request);
+                    if (endpoint != null && WebSocketSession.isUpgradeRequest(request)
+                        && WebSocketSession.isValidHandshake(request)) {
+                        long startNanos = System.nanoTime();
+                        // A session keeps this thread until it closes, so their number is capped
+                        boolean admittedSession = webSocketSessions.tryAcquire();
+                        HttpResponse switching = overloadedResponse;
+                        if (admittedSession) {
+                            switching = WebSocketSession.switchingProtocols(request);
+                            switching.setRoute(endpoint.getRoute());
+                        }
+                        try {
+                            watchdog.arm(config.getWriteTimeoutMillis());
+                            out.write(switching.getEncoded());
+                            watchdog.disarm();
+                            recordAccess(request, clientAddress, switching, startNanos);
+                            if (admittedSession) {
+                                new WebSocketSession(endpoint, clientSocket, input).serve();
+                            } else {
+                                eventLog.info("Límite de sesiones WebSocket alcanzado, 503 enviado a: " + clientAddress);
+                            }
+                        } finally {
+                            if (admittedSession) {
+                                webSocketSessions.release();
+                            }
+                        }
+                        return;
+                    }
+                }
+                long startNanos = System.nanoTime();
+                boolean admitted = admission.tryAcquireRequest();
+                try {
+                    HttpResponse response;
+                    if (admitted) {
+                        // A request body is read straight from the connection, only if proxied
+                        HttpBodyStream requestBody = result == HttpRequestParser.Result.COMPLETE && request.hasBody()
+                            ? HttpBodyStream.ofRequest(request, input, in) : null;
+                        response = processRequest(request, result, clientAddress, requestBody);
+                        keepAlive = applyConnectionPolicy(response, request, requestCount);
+                    } else {
+                        response = overloadedResponse;
+                        keepAlive = false;
+                    }
+                    responseWriter.start(response);
+                    watchdog.arm(config.getWriteTimeoutMillis());
+                    responseWriter.writeTo(responseChannel);
+                    recordAccess(request, clientAddress, response, startNanos);
+                } finally {
+                    if (admitted) {
+                        admission.releaseRequest();
+                    }
+                }
+            }
             
         } catch (IOException e) {
-            System.err.println("Error procesando solicitud HTTP: " + e.getMessage());
+            if (watchdog.isExpired()) {
+                eventLog.info("Tiempo de espera agotado para: " + clientAddress);
+            } else if (isRunning) {
+                eventLog.error("Error procesando solicitud HTTP: " + e.getMessage());
+            }
         } finally {
+            if (tls != null) {
+                closeTls(tls);
+            }
+            watchdog.close();
             try {
                 clientSocket.close();
-                System.out.println("Conexión HTTP cerrada");
+                eventLog.info("Conexión HTTP cerrada");
             } catch (IOException e) {
-                System.err.println("Error cerrando socket HTTP: " + e.getMessage());
+                eventLog.error("Error cerrando socket HTTP: " + e.getMessage());
+            }
+        }
+    }
+    
+    /**
+     * Registers a connection that waits for its next request, so that stopServer() can
+     * close it right away
+     * @param clientSocket The socket connection to the client
+     * @return false if the server is stopping, in which case the connection should close
+     */
+    boolean enterIdle(Socket clientSocket) {
+        idleConnections.add(clientSocket);
+        // Re-check after registering: a stopServer() that ran just before would not have
+        // seen this socket in the idle set
+        if (!isRunning) {
+            idleConnections.remove(clientSocket);
+            return false;
+        }
+        return true;
+    }
+    
+    /**
+     * Unregisters a connection once its next request starts arriving
+     * @param clientSocket The socket connection to the client
+     */
+    void leaveIdle(Socket clientSocket) {
+        idleConnections.remove(clientSocket);
+    }
+    
+    /**
+     * Sends close_notify on a TLS connection that is about to close
+     * @param tls The TLS layer of the connection
+     */
+    private void closeTls(TlsChannel tls) {
+        try {
+            tls.close();
+        } catch (IOException e) {
+            eventLog.error("Error cerrando sesión TLS: " + e.getMessage());
+        }
+    }
+    
+    /**
+     * Gets the TLS setup of this server
+     * @return The TLS context, or null when the server speaks plain HTTP
+     */
+    TlsContext getTlsContext() {
+        return tlsContext;
+    }
+    
+    /**
+     * Gets the reverse proxy of this server
+     * @return The proxy, or null when no route is configured
+     */
+    ReverseProxy getReverseProxy() {
+        return proxy;
+    }
+    
+    /**
+     * Closes a connection whose deadline passed; runs on the timer thread
+     * @param clientSocket The socket connection to the client
+     */
+    private void closeExpired(Socket clientSocket) {
+        try {
+            clientSocket.close();
+        } catch (IOException e) {
+            eventLog.error("Error cerrando socket HTTP: " + e.getMessage());
+        }
+    }
+    
+    /**
+     * Response channel that moves the connection's deadline forward before every write, so
+     * a response may take as long as it needs while the client keeps accepting bytes
+     */
+    private static final class DeadlineChannel implements WritableByteChannel {
+        
+        private final WritableByteChannel channel;
+        private final HashedWheelTimer.Watchdog watchdog;
+        private final int writeTimeoutMillis;
+        
+        DeadlineChannel(WritableByteChannel channel, HashedWheelTimer.Watchdog watchdog, int writeTimeoutMillis) {
+            this.channel = channel;
+            this.watchdog = watchdog;
+            this.writeTimeoutMillis = writeTimeoutMillis;
+        }
+        
+        @Override
+        public int write(ByteBuffer source) throws IOException {
+            watchdog.arm(writeTimeoutMillis);
+            return channel.write(source);
+        }
+        
+        @Override
+        public boolean isOpen() {
+            return channel.isOpen();
+        }
+        
+        @Override
+        public void close() throws IOException {
+            channel.close();
+        }
+    }
+    
+    /**
+     * Records an answered request in the access log and the request metrics, without
+     * building its request line
+     * @param request The parsed request head
+     * @param clientAddress Client IP address
+     * @param response The response that was sent
+     * @param startNanos When the request head was complete
+     */
+    void recordAccess(HttpRequestParser request, String clientAddress, HttpResponse response, long startNanos) {
+        long durationNanos = System.nanoTime() - startNanos;
+        int status = response.getStatusCode();
+        eventLog.access(clientAddress, request.method(), request.target(), request.version(),
+                        status, response.getBodyLength(), durationNanos);
+        
+        RouteMetrics route = response.getRoute();
+        if (route == null || status >= 400) {
+            route = unresolvedRoute;
+        }
+        route.record(status, durationNanos);
+        responseBytes.add(response.getBodyLength());
+    }
+    
+    /**
+     * Gets the access metrics of a file of the web root, created the first time the file
+     * is served. Only resolved files get here, so the web root bounds the number of
+     * routes, like it bounds the number of series; past the family limit every new file is
+     * counted under the overflow route.
+     * @param filePath Path of the file relative to the web root
+     * @return The route of the file
+     */
+    private RouteMetrics fileRoute(String filePath) {
+        RouteMetrics route = fileRoutes.get(filePath);
+        if (route != null) {
+            return route;
+        }
+        if (fileRoutes.size() >= MetricsRegistry.MAX_SERIES_PER_FAMILY) {
+            return overflowRoute;
+        }
+        return fileRoutes.computeIfAbsent(filePath, path -> new RouteMetrics("/" + path));
+    }
+    
+    /**
+     * Counts a response under the route of the file that answered it
+     * @param response Response built from a file or directory of the web root
+     * @param filePath Path of that file relative to the web root
+     * @return The same response
+     */
+    private HttpResponse routed(HttpResponse response, String filePath) {
+        response.setRoute(fileRoute(filePath));
+        return response;
+    }
+    
+    /**
+     * Gets the controller that limits connections and requests and sheds queued work
+     * @return The admission controller of this server
+     */
+    AdmissionController getAdmissionController() {
+        return admission;
+    }
+    
+    /**
+     * Gets the 503 sent to connections and requests that are not admitted; it is encoded
+     * once and shared, so sending it costs no allocation
+     * @return The shared overload response
+     */
+    HttpResponse getOverloadedResponse() {
+        return overloadedResponse;
+    }
+    
+    /**
+     * Encodes the overload response once: a short 503 that asks the client to come back
+     * after the Retry-After delay and closes the connection
+     * @param retryAfterSeconds Value of the Retry-After header
+     * @return The pre-encoded response
+     */
+    private static HttpResponse buildOverloadedResponse(int retryAfterSeconds) {
+        byte[] body = "Servidor saturado, intente de nuevo más tarde\n".getBytes(StandardCharsets.UTF_8);
+        String head = "HTTP/1.1 503 Service Unavailable\r\n" +
+                      "Server: SimpleWebServer/1.0\r\n" +
+                      "Retry-After: " + retryAfterSeconds + "\r\n" +
+                      "Content-Type: text/plain; charset=UTF-8\r\n" +
+                      "Content-Length: " + body.length + "\r\n" +
+                      "Connection: close\r\n\r\n";
+        byte[] headBytes = head.getBytes(StandardCharsets.ISO_8859_1);
+        byte[] encoded = new byte[headBytes.length + body.length];
+        System.arraycopy(headBytes, 0, encoded, 0, headBytes.length);
+        System.arraycopy(body, 0, encoded, headBytes.length, body.length);
+        return new HttpResponse(503, "Service Unavailable", encoded, body.length);
+    }
+    
+    /**
+     * Gets the configuration this server was started with
+     * @return The server configuration
+     */
+    WebServerConfig getConfig() {
+        return config;
+    }
+    
+    /**
+     * Checks whether the server is still accepting work
+     * @return false once stopServer() has been called
+     */
+    boolean isRunning() {
+        return isRunning;
+    }
+    
+    /**
+     * Gets the log this server writes its connections and requests to
+     * @return The event log of this server
+     */
+    EventLog getEventLog() {
+        return eventLog;
+    }
+    
+    /**
+     * Decides whether the connection stays open after this response and sets the
+     * Connection/Keep-Alive headers accordingly. HTTP/1.1 connections are persistent unless
+     * the client sends "Connection: close"; HTTP/1.0 clients must ask for "keep-alive".
+     * Malformed and non-GET requests, and requests announcing a body, always close the
+     * connection. A streamed body of unknown length is sent in chunks to HTTP/1.1 clients
+     * only; older clients get it unframed and the connection closes to end it. A response
+     * encoded ahead of time is shared between connections and already says
+     * "Connection: close", so it is left untouched and always closes.
+     * @param response The response about to be sent
+     * @param request The parsed request head
+     * @param requestCount Requests served on this connection, including this one
+     * @return true if the connection should be kept open
+     */
+    boolean applyConnectionPolicy(HttpResponse response, HttpRequestParser request, int requestCount) {
+        if (response.getEncoded() != null) {
+            return false;
+        }
+        if (response.getContentLength() < 0
+            && (!request.isComplete() || !request.version().contentEquals("HTTP/1.1"))) {
+            response.setChunked(false);
+            return false;
+        }
+        if (!config.isKeepAliveEnabled() || !isRunning || requestCount >= config.getMaxRequestsPerConnection()) {
+            return false;
+        }
+        
+        if (!request.isComplete() || request.version().isEmpty()
+            || !request.method().contentEquals("GET") || request.hasBody()) {
+            return false;
+        }
+        
+        boolean keepAlive = request.version().contentEquals("HTTP/1.1");
+        AsciiView connectionHeader = request.header("Connection");
+        if (connectionHeader != null) {
+            if (connectionHeader.containsToken("close")) {
+                return false;
+            }
+            if (connectionHeader.containsToken("keep-alive")) {
+                keepAlive = true;
             }
         }
+        
+        if (keepAlive) {
+            response.setKeepAlive(Math.max(1, config.getKeepAliveTimeoutMillis() / 1000),
+                                  config.getMaxRequestsPerConnection() - requestCount);
+        }
+        return keepAlive;
+    }
+    
+    /**
+     * Builds the response for a parsed request head. Shared by every engine so that all of
+     * them answer with the same files and status codes. Engines that cannot read request
+     * bodies call this one; a proxied request that carries a body is then answered with 501.
+     * @param request The request head, parsed by {@link HttpRequestParser}
+     * @param result How parsing ended; heads that were rejected get an error page
+     * @param clientAddress Client IP address for logging
+     * @return The response to send to the client
+     */
+    HttpResponse processRequest(HttpRequestParser request, HttpRequestParser.Result result, String clientAddress) {
+        return processRequest(request, result, clientAddress, null);
+    }
+
+    /**
+     * Checks whether a request is forwarded to an upstream by the reverse proxy
+     * @param request A complete request head
+     * @return true if the path belongs to a proxied prefix
+     */
+    boolean isProxied(HttpRequestParser request) {
+        return proxy != null && proxy.handles(request.path());
     }
     
     /**
-     * Serves a file to the client
-     * @param requestedPath The path requested by the client
-     * @param headerOut PrintWriter for sending HTTP headers
-     * @param out OutputStream for sending file content
+     * Builds the response for a parsed request head whose body, if any, can be read
+     * @param request The request head, parsed by {@link HttpRequestParser}
+     * @param result How parsing ended; heads that were rejected get an error page
      * @param clientAddress Client IP address for logging
+     * @param requestBody Body of the request, forwarded when the path is proxied, or null
+     * @return The response to send to the client
      */
-    private void serveFile(String requestedPath, PrintWriter headerOut, OutputStream out, String clientAddress) {
+    HttpResponse processRequest(HttpRequestParser request, HttpRequestParser.Result result, String clientAddress,
+                                HttpBodyStream requestBody) {
+        if (result == HttpRequestParser.Result.TOO_LARGE) {
+            return errorResponse(431, "Request Header Fields Too Large", "Encabezados HTTP demasiado grandes");
+        }
+        if (result != HttpRequestParser.Result.COMPLETE) {
+            return errorResponse(400, "Bad Request", "Solicitud HTTP malformada");
+        }
+        
+        if (proxy != null) {
+            HttpResponse proxied = proxy.forward(request, requestBody, clientAddress);
+            if (proxied != null) {
+                return proxied;
+            }
+        }
+        
+        // Only support GET method for this simple server
+        if (!request.method().contentEquals("GET")) {
+            return errorResponse(405, "Method Not Allowed", "Método no soportado: " + request.method());
+        }
+        
+        if (config.isMetricsEnabled() && request.path().contentEquals(METRICS_PATH)) {
+            return metricsResponse();
+        }
+        
+        if (findWebSocketEndpoint(request) != null) {
+            return webSocketRefusal(request);
+        }
+        
+        // Serve the requested file
+        return serveFile(request, clientAddress);
+    }
+    
+    /**
+     * Answers a request for a WebSocket endpoint that was not upgraded: 426 for a plain
+     * request or an unsupported protocol version, 400 for a malformed handshake, and 501
+     * for a valid handshake that reached an engine or protocol that cannot hand the
+     * connection over (the nio engines, TLS and HTTP/2)
+     * @param request A complete request for the path of an endpoint
+     * @return The error response
+     */
+    private HttpResponse webSocketRefusal(HttpRequestParser request) {
+        AsciiView version = request.header("Sec-WebSocket-Version");
+        if (!WebSocketSession.isUpgradeRequest(request)
+            || (version != null && !version.toString().trim().equals("13"))) {
+            HttpResponse response = errorResponse(426, "Upgrade Required",
+                                                  "Esta ruta solo acepta conexiones WebSocket");
+            response.addHeader("Upgrade", "websocket");
+            response.addHeader("Sec-WebSocket-Version", "13");
+            return response;
+        }
+        if (!WebSocketSession.isValidHandshake(request)) {
+            return errorResponse(400, "Bad Request", "Solicitud de WebSocket malformada");
+        }
+        return errorResponse(501, "Not Implemented",
+                             "WebSocket solo está disponible en el motor blocking sin TLS");
+    }
+    
+    /**
+     * Finds the WebSocket endpoint registered on the path of a request
+     * @param request A complete request head
+     * @return The endpoint, or null if the path has none
+     */
+    private WebSocketEndpoint findWebSocketEndpoint(HttpRequestParser request) {
+        for (WebSocketEndpoint endpoint : webSocketEndpoints) {
+            if (request.path().contentEquals(endpoint.getPath())) {
+                return endpoint;
+            }
+        }
+        return null;
+    }
+    
+    /**
+     * Registers a WebSocket endpoint. Clients upgrade on it with an HTTP/1.1 GET carrying
+     * "Upgrade: websocket"; only the blocking engine without TLS accepts the upgrade, the
+     * others answer it with 501.
+     * @param path Request path, e.g. "/ws/chat"
+     * @param handler Receives the messages of the endpoint's sessions
+     * @return The endpoint, which broadcasts to all its sessions
+     * @throws IllegalArgumentException If the path does not start with '/' or is taken
+     */
+    public synchronized WebSocketEndpoint addWebSocketEndpoint(String path, WebSocketHandler handler) {
+        if (path == null || !path.startsWith("/")) {
+            throw new IllegalArgumentException("La ruta WebSocket debe empezar por '/': " + path);
+        }
+        if (getWebSocketEndpoint(path) != null) {
+            throw new IllegalArgumentException("Ruta WebSocket ya registrada: " + path);
+        }
+        WebSocketEndpoint endpoint = new WebSocketEndpoint(path, handler, webSocketWriters, config);
+        WebSocketEndpoint[] endpoints = Arrays.copyOf(webSocketEndpoints, webSocketEndpoints.length + 1);
+        endpoints[endpoints.length - 1] = endpoint;
+        webSocketEndpoints = endpoints;
+        return endpoint;
+    }
+    
+    /**
+     * Gets a registered WebSocket endpoint
+     * @param path Request path of the endpoint
+     * @return The endpoint, or null if none is registered on the path
+     */
+    public WebSocketEndpoint getWebSocketEndpoint(String path) {
+        for (WebSocketEndpoint endpoint : webSocketEndpoints) {
+            if (endpoint.getPath().equals(path)) {
+                return endpoint;
+            }
+        }
+        return null;
+    }
+    
+    /**
+     * Builds the Prometheus text export of every metric recorded in this JVM, including
+     * those of the other servers running in it. The export is streamed one metric family
+     * at a time, so its size does not depend on how many series have been recorded.
+     * @return A 200 response with the current values
+     */
+    private HttpResponse metricsResponse() {
+        HttpResponse response = new HttpResponse(200, "OK", METRICS_CONTENT_TYPE,
+                                                 BodyStream.ofText(metrics.prometheusFamilies(), null));
+        response.setRoute(metricsRoute);
+        return response;
+    }
+    
+    /**
+     * Serves a file to the client, or 304 Not Modified when the client's conditional
+     * headers show that its copy is current, or only the parts named by a Range header
+     * @param request The parsed GET request
+     * @param clientAddress Client IP address for logging
+     * @return The response carrying the file or the error page
+     */
+    private HttpResponse serveFile(HttpRequestParser request, String clientAddress) {
         try {
             // Clean and resolve the requested path
-            String filePath = resolveFilePath(requestedPath);
-            Path fullPath = Paths.get(WEB_ROOT, filePath);
+            String filePath = resolveFilePath(request.path().toString());
+            Path fullPath = Paths.get(config.getWebRoot(), filePath);
             
-            System.out.println("Solicitando archivo: " + filePath);
-            System.out.println("Ruta completa: " + fullPath.toAbsolutePath());
+            // Hot files are answered from memory without touching the file system; Range
+            // requests always read the current file, whose size the ranges are resolved against
+            AsciiView range = request.header("Range");
+            boolean acceptsGzip = config.isCompressionEnabled() && GzipEncoding.accepts(request.header("Accept-Encoding"));
+            StaticFileCache.Entry cached = fileCache.isEnabled() && range == null ? fileCache.get(fullPath) : null;
+            if (cached != null) {
+                boolean gzip = acceptsGzip && cached.getGzipContent() != null;
+                FileValidators validators = gzip ? cached.getValidators().gzipVariant() : cached.getValidators();
+                if (validators.isNotModified(request)) {
+                    return routed(notModifiedResponse(cached.getFileName(), validators,
+                                                      cached.getGzipContent() != null), cached.getFileName());
+                }
+                String mimeType = getMimeType(cached.getFileName());
+                byte[] content = gzip ? cached.getGzipContent() : cached.getContent();
+                eventLog.info("Archivo servido desde caché: " + cached.getFileName() + 
+                                 " (" + content.length + " bytes, " + mimeType + (gzip ? ", gzip" : "") + ")");
+                HttpResponse response = new HttpResponse(200, "OK", mimeType, content);
+                response.setValidators(validators);
+                response.setAcceptRanges(true);
+                response.setGzipEncoded(gzip);
+                response.setVaryAcceptEncoding(cached.getGzipContent() != null);
+                return routed(response, cached.getFileName());
+            }
+            MappedFileRegistry.MappedFile mapped =
+                mappedFiles.isEnabled() && range == null ? mappedFiles.get(fullPath) : null;
+            if (mapped != null) {
+                return routed(mappedResponse(mapped, request, acceptsGzip), mapped.getFileName());
+            }
             
-            // Check if file exists and is readable
-            if (!Files.exists(fullPath) || !Files.isReadable(fullPath)) {
-                System.out.println("Archivo no encontrado: " + fullPath);
-                sendErrorResponse(headerOut, out, 404, "Not Found", 
-                                "El archivo solicitado no fue encontrado: " + filePath);
-                return;
+            eventLog.info("Solicitando archivo: " + filePath);
+            eventLog.info("Ruta completa: " + fullPath.toAbsolutePath());
+            
+            // Indexed paths are resolved from memory; anything else is checked on disk
+            Path requestKey = fullPath;
+            WebRootIndex index = webRootIndex;
+            WebRootIndex.Entry indexed = index != null ? index.lookup(filePath) : null;
+            long size;
+            long lastModified;
+            String mimeType;
+            FileValidators validators;
+            Path sidecar;
+            if (indexed != null) {
+                if (indexed.isDirectory()) {
+                    return routed(directoryResponse(fullPath, filePath), filePath);
+                }
+                fullPath = indexed.getFile();
+                filePath = indexed.getFileName();
+                size = indexed.getSize();
+                lastModified = indexed.getLastModifiedMillis();
+                mimeType = indexed.getMimeType();
+                validators = indexed.getValidators();
+                sidecar = indexed.getGzipSidecar();
+            } else {
+                // Check if file exists and is readable
+                if (!Files.exists(fullPath) || !Files.isReadable(fullPath)) {
+                    eventLog.info("Archivo no encontrado: " + fullPath);
+                    return errorResponse(404, "Not Found", 
+                                       "El archivo solicitado no fue encontrado: " + filePath);
+                }
+                
+                // Check if it's a directory
+                if (Files.isDirectory(fullPath)) {
+                    // Try to serve index.html from the directory
+                    Path indexPath = fullPath.resolve(DEFAULT_FILE);
+                    if (Files.exists(indexPath) && Files.isReadable(indexPath)) {
+                        fullPath = indexPath;
+                        filePath = filePath + (filePath.endsWith("/") ? "" : "/") + DEFAULT_FILE;
+                    } else {
+                        return routed(directoryResponse(fullPath, filePath), filePath);
+                    }
+                }
+                
+                BasicFileAttributes attributes = Files.readAttributes(fullPath, BasicFileAttributes.class);
+                size = attributes.size();
+                lastModified = attributes.lastModifiedTime().toMillis();
+                mimeType = getMimeType(filePath);
+                validators = FileValidators.of(size, lastModified);
+                sidecar = GzipEncoding.isCompressible(mimeType) ? GzipEncoding.freshSidecar(fullPath, lastModified) : null;
             }
             
-            // Check if it's a directory
-            if (Files.isDirectory(fullPath)) {
-                // Try to serve index.html from the directory
-                Path indexPath = fullPath.resolve(DEFAULT_FILE);
-                if (Files.exists(indexPath) && Files.isReadable(indexPath)) {
-                    fullPath = indexPath;
-                    filePath = filePath + (filePath.endsWith("/") ? "" : "/") + DEFAULT_FILE;
-                } else {
-                    sendErrorResponse(headerOut, out, 403, "Forbidden", 
-                                    "Acceso a directorio no permitido: " + filePath);
-                    return;
+            // Choose the representation: a fresh .gz sidecar is preferred, and small files
+            // are compressed once into the cache; large files without a sidecar stay identity
+            boolean streamed = size >= config.getTransferThresholdBytes();
+            boolean compressible = config.isCompressionEnabled() && GzipEncoding.isCompressible(mimeType);
+            if (!compressible) {
+                sidecar = null;
+            }
+            boolean hasGzipVariant = sidecar != null
+                || (compressible && !streamed && fileCache.isEnabled()
+                    && size >= config.getCompressionMinBytes());
+            boolean gzip = acceptsGzip && hasGzipVariant && range == null;
+            
+            // A current client copy needs neither the content nor a cache entry
+            FileValidators selected = gzip ? validators.gzipVariant() : validators;
+            if (selected.isNotModified(request)) {
+                return routed(notModifiedResponse(filePath, selected, hasGzipVariant), filePath);
+            }
+            
+            // Partial requests stream only the selected regions of the identity file
+            if (range != null && ByteRanges.ifRangeAllows(request.header("If-Range"), validators)) {
+                ByteRanges ranges = ByteRanges.parse(range, size);
+                if (ranges != null) {
+                    HttpResponse response = rangeResponse(ranges, fullPath, filePath, mimeType, validators);
+                    response.setVaryAcceptEncoding(hasGzipVariant);
+                    return routed(response, filePath);
                 }
             }
             
-            // Read file content
-            byte[] fileContent = Files.readAllBytes(fullPath);
-            String mimeType = getMimeType(filePath);
+            // A file still being written is sent up to wherever it ends while sending; its
+            // length and validators are not known yet, and it must not be cached
+            long window = config.getGrowingFileWindowMillis();
+            if (window > 0 && !gzip && System.currentTimeMillis() - lastModified < window) {
+                eventLog.info("Archivo en crecimiento enviado por fragmentos: " + filePath +
+                                 " (" + size + " bytes al solicitarlo, " + mimeType + ")");
+                HttpResponse response = new HttpResponse(200, "OK", mimeType, BodyStream.ofFile(fullPath));
+                response.setVaryAcceptEncoding(hasGzipVariant);
+                return routed(response, filePath);
+            }
             
-            // Send HTTP response headers
-            headerOut.println(HTTP_VERSION + " 200 OK");
-            headerOut.println("Date: " + new Date());
-            headerOut.println("Server: SimpleWebServer/1.0");
-            headerOut.println("Content-Type: " + mimeType);
-            headerOut.println("Content-Length: " + fileContent.length);
-            headerOut.println("Connection: close");
-            headerOut.println(); // Empty line to end headers
-            headerOut.flush();
+            // Large files are streamed straight from disk and never held in memory
+            if (streamed) {
+                Path source = gzip ? sidecar : fullPath;
+                long length = gzip ? Files.size(sidecar) : size;
+                eventLog.info("Archivo enviado sin copia: " + filePath + 
+                                 " (" + length + " bytes, " + mimeType + (gzip ? ", gzip" : "") + ")");
+                HttpResponse response = new HttpResponse(200, "OK", mimeType, source, length);
+                response.setValidators(selected);
+                response.setAcceptRanges(true);
+                response.setGzipEncoded(gzip);
+                response.setVaryAcceptEncoding(hasGzipVariant);
+                return routed(response, filePath);
+            }
             
-            // Send file content
-            out.write(fileContent);
-            out.flush();
+            // Hot files in mmap mode are served from the page cache instead of a heap copy
+            if (mappedFiles.isEnabled()) {
+                return routed(mappedResponse(mappedFiles.map(requestKey, fullPath, filePath, lastModified, sidecar),
+                                             request, gzip), filePath);
+            }
             
-            System.out.println("Archivo servido exitosamente: " + filePath + 
-                             " (" + fileContent.length + " bytes, " + mimeType + ")");
+            // Read file content (modification time first, so a concurrent change invalidates the entry)
+            byte[] fileContent = Files.readAllBytes(fullPath);
+            byte[] gzipContent = null;
+            if (sidecar != null) {
+                gzipContent = Files.readAllBytes(sidecar);
+            } else if (hasGzipVariant) {
+                gzipContent = GzipEncoding.compress(fileContent);
+            }
+            StaticFileCache.Entry entry =
+                new StaticFileCache.Entry(fullPath, filePath, fileContent, gzipContent, lastModified);
+            if (fileCache.isEnabled()) {
+                fileCache.put(requestKey, entry);
+            }
+            
+            // The content may not compress (or may have changed size since the check above)
+            gzip = gzip && gzipContent != null;
+            byte[] content = gzip ? gzipContent : fileContent;
+            eventLog.info("Archivo servido exitosamente: " + filePath + 
+                             " (" + content.length + " bytes, " + mimeType + (gzip ? ", gzip" : "") + ")");
+            HttpResponse response = new HttpResponse(200, "OK", mimeType, content);
+            response.setValidators(gzip ? entry.getValidators().gzipVariant() : entry.getValidators());
+            response.setAcceptRanges(true);
+            response.setGzipEncoded(gzip);
+            response.setVaryAcceptEncoding(gzipContent != null);
+            return routed(response, filePath);
             
+        } catch (NoSuchFileException e) {
+            // Deleted after it was indexed, before its watch event arrived
+            WebRootIndex index = webRootIndex;
+            if (index != null) {
+                index.refresh(Paths.get(e.getFile()));
+            }
+            eventLog.info("Archivo no encontrado: " + e.getFile());
+            return errorResponse(404, "Not Found", 
+                               "El archivo solicitado no fue encontrado: " + request.path());
         } catch (IOException e) {
-            System.err.println("Error sirviendo archivo: " + e.getMessage());
-            sendErrorResponse(headerOut, out, 500, "Internal Server Error", 
-                            "Error interno del servidor: " + e.getMessage());
+            eventLog.error("Error sirviendo archivo: " + e.getMessage());
+            return errorResponse(500, "Internal Server Error", 
+                               "Error interno del servidor: " + e.getMessage());
+        }
+    }
+    
+    /**
+     * Answers a directory without an index.html: a generated listing when listings are
+     * enabled, 403 otherwise. The listing is streamed while the directory is read, so a
+     * directory of any size costs one chunk buffer; entries appear in directory order.
+     * @param directory Directory on disk
+     * @param filePath Directory path relative to the web root, for links and logging
+     * @return The listing or the error page
+     * @throws IOException If the directory cannot be opened
+     */
+    private HttpResponse directoryResponse(Path directory, String filePath) throws IOException {
+        if (!config.isListingEnabled()) {
+            return errorResponse(403, "Forbidden", 
+                               "Acceso a directorio no permitido: " + filePath);
+        }
+        String base = "/" + filePath + (filePath.endsWith("/") ? "" : "/");
+        String title = "Índice de " + escapeHtml(base);
+        String head = "<!DOCTYPE html>\n" +
+                      "<html lang=\"es\">\n" +
+                      "<head>\n" +
+                      "    <meta charset=\"UTF-8\">\n" +
+                      "    <title>" + title + "</title>\n" +
+                      "</head>\n" +
+                      "<body>\n" +
+                      "    <h1>" + title + "</h1>\n" +
+                      "    <ul>\n";
+        String tail = "    </ul>\n" +
+                      "</body>\n" +
+                      "</html>\n";
+        Stream<Path> entries = Files.list(directory);
+        Stream<String> page = Stream.of(Stream.of(head), entries.map(entry -> listingRow(base, entry)), Stream.of(tail))
+            .flatMap(part -> part)
+            .onClose(entries::close);
+        eventLog.info("Listado de directorio enviado: " + base);
+        return new HttpResponse(200, "OK", HTML_CONTENT_TYPE, BodyStream.ofText(page.iterator(), page::close));
+    }
+    
+    /**
+     * Renders one entry of a directory listing, with a link relative to the web root
+     */
+    private static String listingRow(String base, Path entry) {
+        String name = entry.getFileName().toString();
+        String suffix = Files.isDirectory(entry) ? "/" : "";
+        String href = base + URLEncoder.encode(name, StandardCharsets.UTF_8).replace("+", "%20") + suffix;
+        return "        <li><a href=\"" + href + "\">" + escapeHtml(name) + suffix + "</a></li>\n";
+    }
+    
+    private static String escapeHtml(String text) {
+        StringBuilder escaped = new StringBuilder(text.length() + 16);
+        for (int i = 0; i < text.length(); i++) {
+            char c = text.charAt(i);
+            if (c == '<') {
+                escaped.append("&lt;");
+            } else if (c == '>') {
+                escaped.append("&gt;");
+            } else if (c == '&') {
+                escaped.append("&amp;");
+            } else if (c == '"') {
+                escaped.append("&quot;");
+            } else if (c == '\'') {
+                escaped.append("&#39;");
+            } else {
+                escaped.append(c);
+            }
+        }
+        return escaped.toString();
+    }
+    
+    /**
+     * Builds the response for a memory-mapped file, which then owns the caller's reference
+     * on the mapping, or a 304 after releasing it
+     * @param mapped Mapped file, retained for this request
+     * @param request The parsed GET request
+     * @param gzipAllowed Whether the client accepts the gzip variant (when the file has one)
+     * @return A 200 response whose body is a view of the mapping, or a 304
+     */
+    private HttpResponse mappedResponse(MappedFileRegistry.MappedFile mapped, HttpRequestParser request,
+                                        boolean gzipAllowed) {
+        boolean gzip = gzipAllowed && mapped.hasGzipContent();
+        FileValidators validators = gzip ? mapped.getValidators().gzipVariant() : mapped.getValidators();
+        if (validators.isNotModified(request)) {
+            mapped.release();
+            return notModifiedResponse(mapped.getFileName(), validators, mapped.hasGzipContent());
+        }
+        String mimeType = getMimeType(mapped.getFileName());
+        HttpResponse response = new HttpResponse(200, "OK", mimeType, mapped.view(gzip), mapped);
+        eventLog.info("Archivo servido desde memoria mapeada: " + mapped.getFileName() + 
+                         " (" + response.getContentLength() + " bytes, " + mimeType + (gzip ? ", gzip" : "") + ")");
+        response.setValidators(validators);
+        response.setAcceptRanges(true);
+        response.setGzipEncoded(gzip);
+        response.setVaryAcceptEncoding(mapped.hasGzipContent());
+        return response;
+    }
+    
+    /**
+     * Builds the answer to a Range request: 206 with the selected parts of the file, or
+     * 416 when none of the ranges lies inside it
+     * @param ranges Parsed ranges
+     * @param fullPath File on disk
+     * @param filePath File path for logging
+     * @param mimeType Media type of the file
+     * @param validators Validators of the current file version
+     * @return The partial or unsatisfiable response
+     */
+    private HttpResponse rangeResponse(ByteRanges ranges, Path fullPath, String filePath,
+                                       String mimeType, FileValidators validators) {
+        if (!ranges.isSatisfiable()) {
+            eventLog.info("Rango no satisfacible: " + filePath);
+            HttpResponse response = errorResponse(416, "Range Not Satisfiable",
+                                                  "Rango solicitado fuera del archivo: " + filePath);
+            response.addHeader("Content-Range", ranges.unsatisfiedRange());
+            return response;
         }
+        eventLog.info("Rango servido (206): " + filePath + " (" + ranges.count() + " rango(s))");
+        HttpResponse response = ranges.toResponse(fullPath, mimeType);
+        response.setValidators(validators);
+        response.setAcceptRanges(true);
+        return response;
     }
     
     /**
-     * Sends an HTTP error response
-     * @param headerOut PrintWriter for headers
-     * @param out OutputStream for content
+     * Builds a 304 Not Modified response, which repeats the validators but has no body
+     * @param filePath File path for logging
+     * @param validators Validators of the representation the client holds
+     * @param varyAcceptEncoding Whether the file also has a gzip-encoded representation
+     * @return The 304 response
+     */
+    private HttpResponse notModifiedResponse(String filePath, FileValidators validators, boolean varyAcceptEncoding) {
+        eventLog.info("Archivo sin cambios (304): " + filePath);
+        HttpResponse response = new HttpResponse(304, "Not Modified", null, NO_CONTENT);
+        response.setValidators(validators);
+        response.setVaryAcceptEncoding(varyAcceptEncoding);
+        return response;
+    }
+    
+    /**
+     * Gets the static file cache, mainly to read its hit/miss/eviction counters
+     * @return The file cache of this server
+     */
+    StaticFileCache getFileCache() {
+        return fileCache;
+    }
+    
+    /**
+     * Gets the registry of memory-mapped files used in mmap cache mode
+     * @return The mapped-file registry of this server
+     */
+    MappedFileRegistry getMappedFiles() {
+        return mappedFiles;
+    }
+    
+    /**
+     * Gets the index of the web root while the server runs
+     * @return The index, or null when indexing is disabled or the server is stopped
+     */
+    WebRootIndex getWebRootIndex() {
+        return webRootIndex;
+    }
+    
+    /**
+     * Builds an HTTP error response
      * @param statusCode HTTP status code
      * @param statusText HTTP status text
      * @param message Error message to display
+     * @return The error response with its HTML page
      */
-    private void sendErrorResponse(PrintWriter headerOut, OutputStream out, 
-                                 int statusCode, String statusText, String message) {
-        try {
-            String htmlContent = generateErrorPage(statusCode, statusText, message);
-            byte[] contentBytes = htmlContent.getBytes("UTF-8");
-            
-            // Send HTTP headers
-            headerOut.println(HTTP_VERSION + " " + statusCode + " " + statusText);
-            headerOut.println("Date: " + new Date());
-            headerOut.println("Server: SimpleWebServer/1.0");
-            headerOut.println("Content-Type: text/html; charset=UTF-8");
-            headerOut.println("Content-Length: " + contentBytes.length);
-            headerOut.println("Connection: close");
-            headerOut.println(); // Empty line to end headers
-            headerOut.flush();
-            
-            // Send HTML content
-            out.write(contentBytes);
-            out.flush();
-            
-            System.out.println("Error HTTP " + statusCode + " enviado: " + message);
-            
-        } catch (IOException e) {
-            System.err.println("Error enviando respuesta de error: " + e.getMessage());
-        }
+    HttpResponse errorResponse(int statusCode, String statusText, String message) {
+        String htmlContent = generateErrorPage(statusCode, statusText, message);
+        eventLog.info("Error HTTP " + statusCode + " enviado: " + message);
+        return new HttpResponse(statusCode, statusText, HTML_CONTENT_TYPE,
+                                htmlContent.getBytes(StandardCharsets.UTF_8));
     }
     
     /**
@@ -291,7 +1356,7 @@ public class SimpleWebServer {
                "        <h1>" + statusText + "</h1>\n" +
                "        <p>" + message + "</p>\n" +
                "        <hr>\n" +
-               "        <p><small>SimpleWebServer/1.0 - Puerto " + SERVER_PORT + "</small></p>\n" +
+               "        <p><small>SimpleWebServer/1.0 - Puerto " + config.getPort() + "</small></p>\n" +
                "    </div>\n" +
                "</body>\n" +
                "</html>";
@@ -302,7 +1367,7 @@ public class SimpleWebServer {
      * @param requestedPath The raw path from the HTTP request
      * @return Cleaned and resolved file path
      */
-    private String resolveFilePath(String requestedPath) {
+    String resolveFilePath(String requestedPath) {
         // Remove query parameters
         int queryIndex = requestedPath.indexOf('?');
         if (queryIndex != -1) {
@@ -330,7 +1395,7 @@ public class SimpleWebServer {
      * @param filePath The file path
      * @return MIME type string
      */
-    private String getMimeType(String filePath) {
+    String getMimeType(String filePath) {
         int lastDot = filePath.lastIndexOf('.');
         if (lastDot != -1 && lastDot < filePath.length() - 1) {
             String extension = filePath.substring(lastDot + 1).toLowerCase();
@@ -344,7 +1409,7 @@ public class SimpleWebServer {
      */
     private void createWebRoot() {
         try {
-            Path webRootPath = Paths.get(WEB_ROOT);
+            Path webRootPath = Paths.get(config.getWebRoot());
             if (!Files.exists(webRootPath)) {
                 Files.createDirectories(webRootPath);
                 System.out.println("Directorio web creado: " + webRootPath.toAbsolutePath());
@@ -364,17 +1429,17 @@ public class SimpleWebServer {
         try {
             // Create index.html
             String indexContent = generateSampleIndexPage();
-            Files.write(Paths.get(WEB_ROOT, "index.html"), indexContent.getBytes("UTF-8"));
+            Files.write(Paths.get(config.getWebRoot(), "index.html"), indexContent.getBytes("UTF-8"));
             
             // Create a sample CSS file
             String cssContent = generateSampleCSS();
-            Files.write(Paths.get(WEB_ROOT, "style.css"), cssContent.getBytes("UTF-8"));
+            Files.write(Paths.get(config.getWebRoot(), "style.css"), cssContent.getBytes("UTF-8"));
             
             // Create a sample about page
             String aboutContent = generateSampleAboutPage();
-            Files.write(Paths.get(WEB_ROOT, "about.html"), aboutContent.getBytes("UTF-8"));
+            Files.write(Paths.get(config.getWebRoot(), "about.html"), aboutContent.getBytes("UTF-8"));
             
-            System.out.println("Archivos de ejemplo creados en " + WEB_ROOT);
+            System.out.println("Archivos de ejemplo creados en " + config.getWebRoot());
             
         } catch (IOException e) {
             System.err.println("Error creando archivos de ejemplo: " + e.getMessage());
@@ -437,9 +1502,9 @@ public class SimpleWebServer {
                "            <section class=\"info\">\n" +
                "                <h2>Información del Servidor</h2>\n" +
                "                <table>\n" +
-               "                    <tr><td><strong>Puerto:</strong></td><td>" + SERVER_PORT + "</td></tr>\n" +
+               "                    <tr><td><strong>Puerto:</strong></td><td>" + config.getPort() + "</td></tr>\n" +
                "                    <tr><td><strong>Protocolo:</strong></td><td>HTTP/1.1</td></tr>\n" +
-               "                    <tr><td><strong>Directorio web:</strong></td><td>" + WEB_ROOT + "/</td></tr>\n" +
+               "                    <tr><td><strong>Directorio web:</strong></td><td>" + config.getWebRoot() + "/</td></tr>\n" +
                "                    <tr><td><strong>Fecha:</strong></td><td><script>document.write(new Date().toLocaleString());</script></td></tr>\n" +
                "                </table>\n" +
                "            </section>\n" +
@@ -664,11 +1729,63 @@ public class SimpleWebServer {
                "</html>";
     }
     
+    /**
+     * Indexes the web root and keeps the index current while the server runs; without
+     * an index every request is resolved on disk as before
+     */
+    private void startWebRootIndex() {
+        WebRootIndex index = new WebRootIndex(Paths.get(config.getWebRoot()), DEFAULT_FILE, this::getMimeType);
+        try {
+            index.start();
+        } catch (IOException e) {
+            System.err.println("Error indexando directorio web, se resolverá en disco: " + e.getMessage());
+            return;
+        }
+        // A change seen by a cache revalidation reaches the index before the next lookup
+        fileCache.setChangeListener(index::refresh);
+        mappedFiles.setChangeListener(index::refresh);
+        webRootIndex = index;
+        System.out.println("Directorio web indexado: " + index.size() + " rutas");
+    }
+    
     /**
      * Stops the server gracefully
      */
     public void stopServer() {
-        isRunning = false;
+        synchronized (this) {
+            isRunning = false;
+            if (nioEngine != null) {
+                nioEngine.stop();
+            }
+            if (proxy != null) {
+                proxy.close();
+            }
+            if (webSocketFeeds != null) {
+                webSocketFeeds.close();
+            }
+            // WebSocket clients get a close frame; the writers finish what is queued and stop
+            for (WebSocketEndpoint endpoint : webSocketEndpoints) {
+                endpoint.shutdown(WebSocketCodec.CLOSE_GOING_AWAY, "Servidor detenido");
+            }
+            webSocketWriters.shutdown();
+            if (webRootIndex != null) {
+                try {
+                    webRootIndex.close();
+                } catch (IOException e) {
+                    System.err.println("Error cerrando índice del directorio web: " + e.getMessage());
+                }
+                webRootIndex = null;
+            }
+        }
+        // Persistent connections waiting for their next request are closed right away;
+        // connections in the middle of a request finish it with "Connection: close"
+        for (Socket idleConnection : idleConnections) {
+            try {
+                idleConnection.close();
+            } catch (IOException e) {
+                System.err.println("Error cerrando socket HTTP: " + e.getMessage());
+            }
+        }
         System.out.println("Deteniendo servidor web...");
     }
 }
@@ -3,6 +3,8 @@ package edu.eci.arsw.networking;
 import java.net.ServerSocket;
 import java.net.Socket;
 import java.io.*;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.RejectedExecutionException;
 
 /**
  * Exercise 4.3.1: Square Calculator Server
@@ -12,6 +14,10 @@ import java.io.*;
  * Protocol:
  * - Client sends: a number (as string)
  * - Server responds: "Respuesta: [square of the number]"
+ * - Overloaded server: "Respuesta: Error - Servidor saturado, reintente en N s", sent instead of
+ *   processing a connection or message that is not admitted (see {@link AdmissionController})
+ * - A connection silent for longer than the idle timeout (networking.idle.timeout, default
+ *   120 s) is closed by the shared {@link HashedWheelTimer}
  * 
  * Based on the networking tutorial by Luis Daniel Benavides Navarro
  * Escuela Colombiana de Ingeniería - Arquitectura Empresarial
@@ -22,15 +28,71 @@ import java.io.*;
 public class SquareServer {
     
     private static final int SERVER_PORT = 35000;
+    private static final long DEFAULT_IDLE_TIMEOUT_MILLIS = 120_000;
     private static final String RESPONSE_PREFIX = "Respuesta: ";
+    private final int port;
+    private final ConnectionExecutor connectionExecutor;
+    private final EventLog eventLog;
+    private volatile long idleTimeoutMillis = Long.getLong("networking.idle.timeout", DEFAULT_IDLE_TIMEOUT_MILLIS);
+    private final AdmissionController admission;
+    private final String busyResponse;
+    private final byte[] busyResponseBytes;
     private boolean isRunning = true;
     
+    /**
+     * Creates a server on the default port whose threading model comes from the
+     * networking.executor system properties (see {@link ConnectionExecutor})
+     */
+    public SquareServer() {
+        this(SERVER_PORT, ConnectionExecutor.fromSystemProperties("square"));
+    }
+    
+    /**
+     * Creates a server with an explicit port and threading model
+     * @param port Port to listen on
+     * @param connectionExecutor Executor that runs each client connection
+     */
+    public SquareServer(int port, ConnectionExecutor connectionExecutor) {
+        this(port, connectionExecutor, EventLog.shared());
+    }
+    
+    /**
+     * Creates a server with an explicit port, threading model and log
+     * @param port Port to listen on
+     * @param connectionExecutor Executor that runs each client connection
+     * @param eventLog Asynchronous log for per-connection and per-message events
+     */
+    public SquareServer(int port, ConnectionExecutor connectionExecutor, EventLog eventLog) {
+        this(port, connectionExecutor, eventLog, AdmissionController.fromSystemProperties("square"));
+    }
+    
+    /**
+     * Creates a server with an explicit port, threading model, log and admission control
+     * @param port Port to listen on
+     * @param connectionExecutor Executor that runs each client connection
+     * @param eventLog Asynchronous log for per-connection and per-message events
+     * @param admission Limits on connections and messages in progress, and queue-delay shedding
+     */
+    public SquareServer(int port, ConnectionExecutor connectionExecutor, EventLog eventLog,
+                        AdmissionController admission) {
+        this.port = port;
+        this.connectionExecutor = connectionExecutor;
+        this.eventLog = eventLog;
+        this.admission = admission;
+        // Built once: rejecting must stay cheap while the server is overloaded
+        this.busyResponse = RESPONSE_PREFIX + "Error - Servidor saturado, reintente en " +
+                            admission.getRetryAfterSeconds() + " s";
+        this.busyResponseBytes = (busyResponse + System.lineSeparator()).getBytes(StandardCharsets.UTF_8);
+    }
+    
     /**
      * Main method to start the server
-     * @param args Command line arguments (not used)
+     * @param args Optional port, so several instances can run side by side behind a
+     *        {@link TcpLoadBalancer} (default 35000)
      */
     public static void main(String[] args) {
-        SquareServer server = new SquareServer();
+        int port = args.length > 0 ? Integer.parseInt(args[0]) : SERVER_PORT;
+        SquareServer server = new SquareServer(port, ConnectionExecutor.fromSystemProperties("square"));
         server.startServer();
     }
     
@@ -39,26 +101,31 @@ public class SquareServer {
      */
     public void startServer() {
         System.out.println("=== SQUARE CALCULATOR SERVER ===");
-        System.out.println("Servidor iniciado en puerto: " + SERVER_PORT);
+        System.out.println("Servidor iniciado en puerto: " + port);
+        System.out.println("Modo de ejecución: " + connectionExecutor.getMode().getCommand());
         System.out.println("Esperando conexiones de clientes...");
         System.out.println("Presione Ctrl+C para detener el servidor");
         System.out.println();
         
-        try (ServerSocket serverSocket = new ServerSocket(SERVER_PORT)) {
+        try (ServerSocket serverSocket = new ServerSocket(port)) {
             
             while (isRunning) {
                 try {
                     // Wait for client connection
                     Socket clientSocket = serverSocket.accept();
-                    System.out.println("Nueva conexión desde: " + clientSocket.getInetAddress().getHostAddress());
+                    long acceptedNanos = System.nanoTime();
+                    if (!admission.tryAcquireConnection()) {
+                        rejectClient(clientSocket);
+                        continue;
+                    }
+                    eventLog.info("Nueva conexión desde: " + clientSocket.getInetAddress().getHostAddress());
                     
-                    // Handle client in a separate thread for concurrent connections
-                    Thread clientThread = new Thread(() -> handleClient(clientSocket));
-                    clientThread.start();
+                    // Handle client concurrently according to the configured executor
+                    dispatchClient(clientSocket, acceptedNanos);
                     
                 } catch (IOException e) {
                     if (isRunning) {
-                        System.err.println("Error aceptando conexión del cliente: " + e.getMessage());
+                        eventLog.error("Error aceptando conexión del cliente: " + e.getMessage());
                     }
                 }
             }
@@ -66,6 +133,57 @@ public class SquareServer {
         } catch (IOException e) {
             System.err.println("Error iniciando el servidor: " + e.getMessage());
             e.printStackTrace();
+        } finally {
+            connectionExecutor.shutdown();
+        }
+    }
+    
+    /**
+     * Hands an accepted connection to the executor, answering with the busy response if the
+     * server is saturated
+     * @param clientSocket The socket connection to the client
+     * @param acceptedNanos When the connection was accepted
+     */
+    private void dispatchClient(Socket clientSocket, long acceptedNanos) {
+        try {
+            connectionExecutor.execute(() -> admitClient(clientSocket, acceptedNanos));
+        } catch (RejectedExecutionException e) {
+            admission.releaseConnection();
+            rejectClient(clientSocket);
+        }
+    }
+    
+    /**
+     * Sends the busy response on a connection that was not admitted and closes it
+     * @param clientSocket The socket connection to the client
+     */
+    private void rejectClient(Socket clientSocket) {
+        eventLog.info("Servidor saturado, conexión rechazada: " + clientSocket.getInetAddress().getHostAddress());
+        try (Socket socket = clientSocket) {
+            socket.getOutputStream().write(busyResponseBytes);
+            socket.shutdownOutput();
+            InputStream in = socket.getInputStream();
+            in.skip(in.available());
+        } catch (IOException e) {
+            eventLog.error("Error cerrando socket del cliente: " + e.getMessage());
+        }
+    }
+    
+    /**
+     * Runs an admitted connection, unless it waited so long in the executor queue that it
+     * is shed; the connection slot is given back when it closes
+     * @param clientSocket The socket connection to the client
+     * @param acceptedNanos When the connection was accepted
+     */
+    private void admitClient(Socket clientSocket, long acceptedNanos) {
+        try {
+            if (admission.shouldShed(System.nanoTime() - acceptedNanos)) {
+                rejectClient(clientSocket);
+                return;
+            }
+            handleClient(clientSocket);
+        } finally {
+            admission.releaseConnection();
         }
     }
     
@@ -74,38 +192,57 @@ public class SquareServer {
      * @param clientSocket The socket connection to the client
      */
     private void handleClient(Socket clientSocket) {
+        String clientAddress = clientSocket.getInetAddress().getHostAddress();
+        // Closing the socket unblocks the read or write the handler is stuck in
+        HashedWheelTimer.Watchdog watchdog = HashedWheelTimer.shared().watchdog(() -> closeExpired(clientSocket));
         try (BufferedReader in = new BufferedReader(new InputStreamReader(clientSocket.getInputStream()));
              PrintWriter out = new PrintWriter(clientSocket.getOutputStream(), true)) {
             
-            String clientAddress = clientSocket.getInetAddress().getHostAddress();
-            System.out.println("Cliente conectado desde: " + clientAddress);
+            eventLog.info("Cliente conectado desde: " + clientAddress);
             
             String inputLine;
+            watchdog.arm(idleTimeoutMillis);
             while ((inputLine = in.readLine()) != null) {
-                System.out.println("Mensaje recibido de " + clientAddress + ": " + inputLine);
+                // The deadline covers sending the answer and waiting for the next message
+                watchdog.arm(idleTimeoutMillis);
+                eventLog.info("Mensaje recibido de " + clientAddress + ": " + inputLine);
                 
-                // Process the input and calculate square
-                String response = processInput(inputLine);
+                // Process the input and calculate square, unless too many messages are in progress
+                String response;
+                if (admission.tryAcquireRequest()) {
+                    try {
+                        response = processInput(inputLine);
+                    } finally {
+                        admission.releaseRequest();
+                    }
+                } else {
+                    response = busyResponse;
+                }
                 
                 // Send response to client
                 out.println(response);
-                System.out.println("Respuesta enviada a " + clientAddress + ": " + response);
+                eventLog.info("Respuesta enviada a " + clientAddress + ": " + response);
                 
                 // Break if client sends "exit" or "quit"
                 if ("exit".equalsIgnoreCase(inputLine.trim()) || "quit".equalsIgnoreCase(inputLine.trim())) {
-                    System.out.println("Cliente " + clientAddress + " solicitó desconexión");
+                    eventLog.info("Cliente " + clientAddress + " solicitó desconexión");
                     break;
                 }
             }
             
         } catch (IOException e) {
-            System.err.println("Error en comunicación con cliente: " + e.getMessage());
+            if (watchdog.isExpired()) {
+                eventLog.info("Tiempo de espera agotado para: " + clientAddress);
+            } else {
+                eventLog.error("Error en comunicación con cliente: " + e.getMessage());
+            }
         } finally {
+            watchdog.close();
             try {
                 clientSocket.close();
-                System.out.println("Conexión cerrada con cliente: " + clientSocket.getInetAddress().getHostAddress());
+                eventLog.info("Conexión cerrada con cliente: " + clientSocket.getInetAddress().getHostAddress());
             } catch (IOException e) {
-                System.err.println("Error cerrando socket del cliente: " + e.getMessage());
+                eventLog.error("Error cerrando socket del cliente: " + e.getMessage());
             }
         }
     }
@@ -115,7 +252,7 @@ public class SquareServer {
      * @param input The input string from the client
      * @return The response string with the square calculation or error message
      */
-    private String processInput(String input) {
+    String processInput(String input) {
         if (input == null || input.trim().isEmpty()) {
             return RESPONSE_PREFIX + "Error - Entrada vacía";
         }
@@ -139,6 +276,29 @@ public class SquareServer {
         }
     }
     
+    /**
+     * Closes a connection that stayed silent past the idle timeout; runs on the timer thread
+     * @param clientSocket The socket connection to the client
+     */
+    private void closeExpired(Socket clientSocket) {
+        try {
+            clientSocket.close();
+        } catch (IOException e) {
+            eventLog.error("Error cerrando socket del cliente: " + e.getMessage());
+        }
+    }
+    
+    /**
+     * Sets how long a connection may stay silent before it is closed
+     * @param idleTimeoutMillis Idle timeout in milliseconds
+     */
+    public void setIdleTimeoutMillis(long idleTimeoutMillis) {
+        if (idleTimeoutMillis < 1) {
+            throw new IllegalArgumentException("Tiempo de inactividad inválido: " + idleTimeoutMillis);
+        }
+        this.idleTimeoutMillis = idleTimeoutMillis;
+    }
+    
     /**
      * Stops the server gracefully
      */
@@ -0,0 +1,249 @@
+package edu.eci.arsw.networking;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Consumer;
+
+/**
+ * Size-bounded, in-memory cache of static file contents for {@link SimpleWebServer}.
+ *
+ * Entries are keyed by the path resolved from the request (before directory-to-index
+ * resolution), so a hit skips every existence, permission and directory check as well as
+ * the disk read. The cache keeps the total content size under a byte budget and evicts the
+ * least recently used entries first.
+ *
+ * Each entry also carries the {@link FileValidators} of its file version, so conditional
+ * requests for hot files are answered without recomputing the ETag or date, and, for
+ * compressible files, its gzip-encoded content, which counts against the byte budget too.
+ *
+ * Invalidation is based on modification time and size: an entry is re-checked against the
+ * file system at most once per revalidation interval, so hot assets are served without any
+ * system call between checks and a modified file is picked up within that interval.
+ *
+ * Hits, misses, evictions and invalidations are counted per cache and added to the
+ * static_cache_*_total counters of the shared {@link MetricsRegistry}.
+ *
+ * @author GitHub Copilot Implementation
+ * @version 1.0
+ */
+final class StaticFileCache {
+
+    /**
+     * Cached content of one file
+     */
+    static final class Entry {
+        private final Path file;
+        private final String fileName;
+        private final byte[] content;
+        private final byte[] gzipContent;
+        private final long lastModifiedMillis;
+        private final FileValidators validators;
+        private volatile long validatedAtNanos;
+
+        Entry(Path file, String fileName, byte[] content, long lastModifiedMillis) {
+            this(file, fileName, content, null, lastModifiedMillis);
+        }
+
+        /**
+         * @param gzipContent The content gzip-encoded, or null when no compressed variant is kept
+         */
+        Entry(Path file, String fileName, byte[] content, byte[] gzipContent, long lastModifiedMillis) {
+            this.file = file;
+            this.fileName = fileName;
+            this.content = content;
+            this.gzipContent = gzipContent;
+            this.lastModifiedMillis = lastModifiedMillis;
+            this.validators = FileValidators.of(content.length, lastModifiedMillis);
+            this.validatedAtNanos = System.nanoTime();
+        }
+
+        /** The file actually read (e.g. dir/index.html for a directory request) */
+        Path getFile() { return file; }
+
+        /** Path relative to the web root, used for MIME detection and logging */
+        String getFileName() { return fileName; }
+
+        byte[] getContent() { return content; }
+
+        /** The gzip-encoded content, or null if the file has no compressed variant */
+        byte[] getGzipContent() { return gzipContent; }
+
+        /** Bytes this entry holds, both variants included */
+        long weight() {
+            return content.length + (gzipContent != null ? gzipContent.length : 0);
+        }
+
+        long getLastModifiedMillis() { return lastModifiedMillis; }
+
+        /** ETag and Last-Modified of this file version, computed once when it was cached */
+        FileValidators getValidators() { return validators; }
+    }
+
+    private final long maxBytes;
+    private final long maxEntryBytes;
+    private final long revalidateIntervalNanos;
+    private final LinkedHashMap<Path, Entry> entries = new LinkedHashMap<>(64, 0.75f, true);
+    private long currentBytes;
+    private volatile Consumer<Path> changeListener;
+
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+    private final LongAdder evictions = new LongAdder();
+    private final LongAdder invalidations = new LongAdder();
+    private final MetricsRegistry.Counter exportedHits;
+    private final MetricsRegistry.Counter exportedMisses;
+    private final MetricsRegistry.Counter exportedEvictions;
+    private final MetricsRegistry.Counter exportedInvalidations;
+
+    /**
+     * Creates a cache
+     * @param maxBytes Total content bytes the cache may hold (0 disables caching)
+     * @param maxEntryBytes Largest file that is cached
+     * @param revalidateIntervalMillis Minimum time between modification checks of an entry
+     */
+    StaticFileCache(long maxBytes, long maxEntryBytes, long revalidateIntervalMillis) {
+        this.maxBytes = maxBytes;
+        this.maxEntryBytes = Math.min(maxEntryBytes, maxBytes);
+        this.revalidateIntervalNanos = TimeUnit.MILLISECONDS.toNanos(revalidateIntervalMillis);
+        MetricsRegistry metrics = MetricsRegistry.shared();
+        this.exportedHits = metrics.counter("static_cache_hits_total",
+                                            "Archivos servidos desde la caché en memoria").labels();
+        this.exportedMisses = metrics.counter("static_cache_misses_total",
+                                              "Búsquedas en la caché en memoria sin entrada vigente").labels();
+        this.exportedEvictions = metrics.counter("static_cache_evictions_total",
+                                                 "Entradas desalojadas para respetar el límite de bytes").labels();
+        this.exportedInvalidations = metrics.counter("static_cache_invalidations_total",
+                                                     "Entradas descartadas porque el archivo cambió").labels();
+    }
+
+    /**
+     * Looks up a resolved request path
+     * @param key Path resolved from the request
+     * @return The cached entry, or null on a miss or when the file changed since it was cached
+     */
+    Entry get(Path key) {
+        Entry entry;
+        synchronized (this) {
+            entry = entries.get(key);
+        }
+        if (entry == null) {
+            misses.increment();
+            exportedMisses.increment();
+            return null;
+        }
+
+        long now = System.nanoTime();
+        if (now - entry.validatedAtNanos >= revalidateIntervalNanos) {
+            if (!isUnchanged(entry)) {
+                invalidate(key, entry);
+                notifyChanged(entry.file);
+                misses.increment();
+                exportedMisses.increment();
+                return null;
+            }
+            entry.validatedAtNanos = now;
+        }
+        hits.increment();
+        exportedHits.increment();
+        return entry;
+    }
+
+    /**
+     * Adds file content to the cache, evicting least recently used entries to stay in budget
+     * @param key Path resolved from the request
+     * @param entry Content read from disk
+     * @return true if the entry was stored (files above the entry limit are not)
+     */
+    boolean put(Path key, Entry entry) {
+        long size = entry.weight();
+        if (size > maxEntryBytes) {
+            return false;
+        }
+        synchronized (this) {
+            Entry previous = entries.put(key, entry);
+            if (previous != null) {
+                currentBytes -= previous.weight();
+            }
+            currentBytes += size;
+
+            Iterator<Map.Entry<Path, Entry>> eldest = entries.entrySet().iterator();
+            while (currentBytes > maxBytes && eldest.hasNext()) {
+                Map.Entry<Path, Entry> victim = eldest.next();
+                if (victim.getKey().equals(key)) {
+                    continue;
+                }
+                currentBytes -= victim.getValue().weight();
+                eldest.remove();
+                evictions.increment();
+                exportedEvictions.increment();
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Removes every entry
+     */
+    synchronized void clear() {
+        entries.clear();
+        currentBytes = 0;
+    }
+
+    private synchronized void invalidate(Path key, Entry entry) {
+        if (entries.remove(key, entry)) {
+            currentBytes -= entry.weight();
+            invalidations.increment();
+            exportedInvalidations.increment();
+        }
+    }
+
+    private static boolean isUnchanged(Entry entry) {
+        try {
+            BasicFileAttributes attributes = Files.readAttributes(entry.file, BasicFileAttributes.class);
+            return attributes.lastModifiedTime().toMillis() == entry.lastModifiedMillis
+                   && attributes.size() == entry.content.length;
+        } catch (IOException e) {
+            // Deleted or unreadable: drop the entry and let the request path report it
+            return false;
+        }
+    }
+
+    /**
+     * Registers a callback told about every file found changed on revalidation, so other
+     * views of the web root (the {@link WebRootIndex}) catch up at the same moment
+     * @param listener Receives the path of the changed file
+     */
+    void setChangeListener(Consumer<Path> listener) {
+        this.changeListener = listener;
+    }
+
+    private void notifyChanged(Path file) {
+        Consumer<Path> listener = changeListener;
+        if (listener != null) {
+            listener.accept(file);
+        }
+    }
+
+    boolean isEnabled() { return maxBytes > 0; }
+
+    long getHits() { return hits.sum(); }
+
+    long getMisses() { return misses.sum(); }
+
+    long getEvictions() { return evictions.sum(); }
+
+    long getInvalidations() { return invalidations.sum(); }
+
+    synchronized long getCurrentBytes() { return currentBytes; }
+
+    synchronized int size() { return entries.size(); }
+
+    long getMaxBytes() { return maxBytes; }
+}
@@ -0,0 +1,364 @@
+package edu.eci.arsw.networking;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Standalone TCP load balancer in front of several instances of a server, such as
+ * {@link SquareServer} or {@link MathFunctionServer} started on different ports. Each
+ * client connection is assigned a backend by a {@link LoadBalancer} and its bytes are
+ * relayed both ways unchanged, so it works for any protocol the backends speak.
+ *
+ * Balancing happens per connection: a connection's outstanding count is one from connect
+ * to close, so least-outstanding-requests means least connections here. If the chosen
+ * backend refuses the connection, another one is tried, up to one attempt per backend.
+ * For the passive outlier ejection each exchange is timed from the moment client bytes
+ * are forwarded until the first bytes of the answer come back, which is the latency of
+ * one request in a request/response protocol; a backend that cannot be reached or resets
+ * the connection counts as a failure.
+ *
+ * Each direction of a connection is relayed by its own task on a {@link ConnectionExecutor}
+ * (networking.executor.*, as for the servers behind it), so a connection holds two of its
+ * threads; the inline mode cannot relay both ways and is refused, and a bounded pool caps
+ * the open connections at half its threads. A connection on which neither side has sent
+ * anything for the idle timeout (networking.idle.timeout, default 120 s) is closed by the
+ * shared {@link HashedWheelTimer}, which also frees a connection whose second task is
+ * still queued behind a saturated pool. Health checks connect to each backend every
+ * balancer.health.interval milliseconds (default 5000, 0 disables them).
+ *
+ * Usage:
+ * <pre>
+ * java -cp target/classes edu.eci.arsw.networking.SquareServer 35010
+ * java -cp target/classes edu.eci.arsw.networking.SquareServer 35011
+ * java -cp target/classes edu.eci.arsw.networking.TcpLoadBalancer 35000 lor 127.0.0.1:35010 127.0.0.1:35011
+ * </pre>
+ *
+ * @author GitHub Copilot Implementation
+ * @version 1.0
+ */
+public class TcpLoadBalancer {
+
+    private static final int CONNECT_TIMEOUT_MILLIS = 2000;
+    private static final int HEALTH_TIMEOUT_MILLIS = 1000;
+    private static final int BUFFER_SIZE = 16 * 1024;
+    private static final long DEFAULT_IDLE_TIMEOUT_MILLIS = 120_000;
+
+    private final int port;
+    private final LoadBalancer<LoadBalancer.Backend> balancer;
+    private final ConnectionExecutor connectionExecutor;
+    private final EventLog eventLog;
+    private volatile long idleTimeoutMillis = Long.getLong("networking.idle.timeout", DEFAULT_IDLE_TIMEOUT_MILLIS);
+    private volatile ServerSocket serverSocket;
+    private volatile boolean isRunning = true;
+
+    /**
+     * Creates a balancer front end whose threading model comes from the
+     * networking.executor system properties (see {@link ConnectionExecutor})
+     * @param port Port to listen on
+     * @param balancer Balancer that chooses the backend of each connection
+     */
+    public TcpLoadBalancer(int port, LoadBalancer<LoadBalancer.Backend> balancer) {
+        this(port, balancer, ConnectionExecutor.fromSystemProperties("balancer"));
+    }
+
+    /**
+     * Creates a balancer front end with an explicit threading model
+     * @param port Port to listen on
+     * @param balancer Balancer that chooses the backend of each connection
+     * @param connectionExecutor Executor that runs both relay directions of each connection
+     * @throws IllegalArgumentException If the executor runs tasks inline
+     */
+    public TcpLoadBalancer(int port, LoadBalancer<LoadBalancer.Backend> balancer,
+                           ConnectionExecutor connectionExecutor) {
+        if (connectionExecutor.getMode() == ConnectionExecutor.Mode.INLINE) {
+            throw new IllegalArgumentException("El balanceador necesita un hilo por sentido de cada conexión");
+        }
+        this.port = port;
+        this.balancer = balancer;
+        this.connectionExecutor = connectionExecutor;
+        this.eventLog = EventLog.shared();
+    }
+
+    /**
+     * Main method to start the balancer
+     * @param args Port, policy (rr, p2c or lor) and one host:port per backend
+     */
+    public static void main(String[] args) {
+        if (args.length < 3) {
+            System.err.println("Uso: TcpLoadBalancer <puerto> <rr|p2c|lor> <host:puerto> [host:puerto...]");
+            System.exit(1);
+        }
+        LoadBalancer.Policy policy = LoadBalancer.Policy.fromCommand(args[1]);
+        if (policy == null) {
+            System.err.println("Política de balanceo desconocida: " + args[1]);
+            System.exit(1);
+        }
+        List<LoadBalancer.Backend> backends = new ArrayList<>();
+        for (int i = 2; i < args.length; i++) {
+            backends.add(LoadBalancer.Backend.parse(args[i]));
+        }
+        int port = Integer.parseInt(args[0]);
+        LoadBalancer<LoadBalancer.Backend> balancer = new LoadBalancer<>("tcp-" + port, policy, backends);
+        balancer.setHealthCheck(LoadBalancer.tcpHealthCheck(HEALTH_TIMEOUT_MILLIS),
+                                Long.getLong("balancer.health.interval", LoadBalancer.DEFAULT_HEALTH_INTERVAL_MILLIS));
+        new TcpLoadBalancer(port, balancer).startServer();
+    }
+
+    /**
+     * Starts the health checks and relays client connections until stopped
+     */
+    public void startServer() {
+        System.out.println("=== TCP LOAD BALANCER ===");
+        System.out.println("Balanceador iniciado en puerto: " + port);
+        System.out.println("Política: " + balancer.getPolicy().getCommand());
+        System.out.println("Modo de ejecución: " + connectionExecutor.getMode().getCommand());
+        for (LoadBalancer.Backend backend : balancer.getBackends()) {
+            System.out.println("Backend: " + backend.getName());
+        }
+        System.out.println("Presione Ctrl+C para detener el balanceador");
+        System.out.println();
+
+        balancer.start();
+        try (ServerSocket socket = new ServerSocket(port)) {
+            serverSocket = socket;
+            while (isRunning) {
+                try {
+                    Socket client = socket.accept();
+                    dispatchClient(client);
+                } catch (IOException e) {
+                    if (isRunning) {
+                        eventLog.error("Error aceptando conexión del cliente: " + e.getMessage());
+                    }
+                }
+            }
+        } catch (IOException e) {
+            System.err.println("Error iniciando el balanceador: " + e.getMessage());
+        } finally {
+            balancer.close();
+            connectionExecutor.shutdown();
+        }
+    }
+
+    /**
+     * Hands an accepted connection to the executor, closing it if the executor is saturated
+     * @param client The socket connection to the client
+     */
+    private void dispatchClient(Socket client) {
+        try {
+            connectionExecutor.execute(() -> handleClient(client));
+        } catch (RejectedExecutionException e) {
+            eventLog.info("Balanceador saturado, conexión cerrada: " + client.getInetAddress().getHostAddress());
+            closeQuietly(client);
+        }
+    }
+
+    /**
+     * Connects a client to a backend and relays the connection until either side closes it
+     * @param client The socket connection to the client
+     */
+    private void handleClient(Socket client) {
+        // The policy chooses the first backend; if it refuses the connection the others are
+        // tried in list order, since a fresh selection could return the same one again while
+        // other connections move the policy along
+        List<LoadBalancer.Backend> backends = balancer.getBackends();
+        LoadBalancer.Backend backend = null;
+        int firstIndex = 0;
+        Socket upstream = null;
+        for (int attempt = 0; attempt < backends.size() && upstream == null; attempt++) {
+            if (attempt == 0) {
+                backend = balancer.select();
+                firstIndex = backends.indexOf(backend);
+            } else {
+                backend = backends.get((firstIndex + attempt) % backends.size());
+            }
+            backend.acquire();
+            upstream = connect(backend);
+            if (upstream == null) {
+                backend.release();
+                balancer.recordFailure(backend);
+            }
+        }
+        if (upstream == null) {
+            eventLog.error("Ningún backend aceptó la conexión de " + client.getInetAddress().getHostAddress());
+            closeQuietly(client);
+            return;
+        }
+
+        Session session = new Session(client, upstream, backend);
+        try {
+            connectionExecutor.execute(session::relayResponses);
+        } catch (RejectedExecutionException e) {
+            eventLog.info("Balanceador saturado, conexión cerrada: " + client.getInetAddress().getHostAddress());
+            session.close();
+            return;
+        }
+        session.relayRequests();
+    }
+
+    private Socket connect(LoadBalancer.Backend backend) {
+        Socket socket = new Socket();
+        try {
+            socket.setTcpNoDelay(true);
+            socket.connect(new InetSocketAddress(backend.getHost(), backend.getPort()), CONNECT_TIMEOUT_MILLIS);
+            return socket;
+        } catch (IOException e) {
+            eventLog.error("No se pudo conectar con el backend " + backend.getName() + ": " + e.getMessage());
+            closeQuietly(socket);
+            return null;
+        }
+    }
+
+    private static void closeQuietly(Socket socket) {
+        try {
+            socket.close();
+        } catch (IOException e) {
+            // Nothing left to release
+        }
+    }
+
+    /**
+     * Sets how long a connection may stay silent in both directions before it is closed
+     * @param idleTimeoutMillis Idle timeout in milliseconds
+     */
+    public void setIdleTimeoutMillis(long idleTimeoutMillis) {
+        if (idleTimeoutMillis < 1) {
+            throw new IllegalArgumentException("Tiempo de inactividad inválido: " + idleTimeoutMillis);
+        }
+        this.idleTimeoutMillis = idleTimeoutMillis;
+    }
+
+    /**
+     * Stops accepting connections and the health checks; open connections run until closed
+     */
+    public void stopServer() {
+        isRunning = false;
+        System.out.println("Deteniendo balanceador...");
+        ServerSocket socket = serverSocket;
+        if (socket != null) {
+            try {
+                socket.close();
+            } catch (IOException e) {
+                // Already closed
+            }
+        }
+    }
+
+    /**
+     * Gets the balancer, for monitoring
+     * @return The balancer that chooses the backends
+     */
+    public LoadBalancer<LoadBalancer.Backend> getBalancer() {
+        return balancer;
+    }
+
+    /**
+     * One relayed connection. The time the oldest unanswered client bytes were forwarded
+     * is shared by both directions, so the first answer bytes can be timed against it.
+     * Both directions re-arm one idle watchdog on every read, and whichever finishes last
+     * closes the sockets and gives the backend slot back.
+     */
+    private final class Session {
+        private final Socket client;
+        private final Socket upstream;
+        private final LoadBalancer.Backend backend;
+        private final AtomicLong pendingSinceNanos = new AtomicLong();
+        private final AtomicInteger openDirections = new AtomicInteger(2);
+        private final HashedWheelTimer.Watchdog watchdog;
+        private volatile boolean clientClosed;
+
+        Session(Socket client, Socket upstream, LoadBalancer.Backend backend) {
+            this.client = client;
+            this.upstream = upstream;
+            this.backend = backend;
+            // Closing the sockets unblocks the reads and writes of both directions
+            this.watchdog = HashedWheelTimer.shared().watchdog(this::closeSockets);
+            watchdog.arm(idleTimeoutMillis);
+        }
+
+        void relayRequests() {
+            byte[] buffer = new byte[BUFFER_SIZE];
+            try {
+                InputStream in = client.getInputStream();
+                OutputStream out = upstream.getOutputStream();
+                int read;
+                while ((read = in.read(buffer)) >= 0) {
+                    watchdog.arm(idleTimeoutMillis);
+                    pendingSinceNanos.compareAndSet(0, System.nanoTime());
+                    out.write(buffer, 0, read);
+                }
+                clientClosed = true;
+                upstream.shutdownOutput();
+            } catch (IOException e) {
+                // The client went away; closing both sockets ends the other direction
+                clientClosed = true;
+                closeQuietly(upstream);
+            } finally {
+                finishDirection();
+            }
+        }
+
+        void relayResponses() {
+            byte[] buffer = new byte[BUFFER_SIZE];
+            boolean reading = true;
+            try {
+                InputStream in = upstream.getInputStream();
+                OutputStream out = client.getOutputStream();
+                int read;
+                while ((read = in.read(buffer)) >= 0) {
+                    watchdog.arm(idleTimeoutMillis);
+                    reading = false;
+                    long since = pendingSinceNanos.getAndSet(0);
+                    if (since != 0) {
+                        balancer.recordSuccess(backend, System.nanoTime() - since);
+                    }
+                    out.write(buffer, 0, read);
+                    reading = true;
+                }
+                client.shutdownOutput();
+            } catch (IOException e) {
+                if (reading && !clientClosed && !watchdog.isExpired()) {
+                    // The backend broke the connection while the client was still using it
+                    balancer.recordFailure(backend);
+                }
+                closeQuietly(client);
+            } finally {
+                finishDirection();
+            }
+        }
+
+        /**
+         * Ends the connection at once, e.g. when the relay of the second direction could
+         * not be started
+         */
+        void close() {
+            closeSockets();
+            finishDirection();
+            finishDirection();
+        }
+
+        private void finishDirection() {
+            if (openDirections.decrementAndGet() == 0) {
+                watchdog.close();
+                closeSockets();
+                backend.release();
+                if (watchdog.isExpired()) {
+                    eventLog.info("Tiempo de espera agotado para: " + client.getInetAddress().getHostAddress());
+                }
+            }
+        }
+
+        private void closeSockets() {
+            closeQuietly(client);
+            closeQuietly(upstream);
+        }
+    }
+}
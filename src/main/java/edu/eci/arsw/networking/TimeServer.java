@@ -33,12 +33,26 @@ public class TimeServer {
     private DatagramSocket socket;
     private boolean isRunning = false;
     private SimpleDateFormat dateFormatter;
+    private final MetricsRegistry.Counter datagramsReceived;
+    private final MetricsRegistry.Counter bytesReceived;
+    private final MetricsRegistry.Counter datagramErrors;
+    private final MetricsRegistry.Histogram datagramDurations;
     
     /**
-     * Constructor initializes the date formatter
+     * Constructor initializes the date formatter and the per-datagram metrics
      */
     public TimeServer() {
         this.dateFormatter = new SimpleDateFormat(TIME_FORMAT);
+        MetricsRegistry metrics = MetricsRegistry.shared();
+        this.datagramsReceived = metrics.counter("time_datagrams_received_total",
+                                                 "Datagramas de solicitud de hora recibidos").labels();
+        this.bytesReceived = metrics.counter("time_datagram_bytes_received_total",
+                                             "Bytes recibidos en datagramas de solicitud").labels();
+        this.datagramErrors = metrics.counter("time_datagram_errors_total",
+                                              "Solicitudes que no pudieron responderse").labels();
+        this.datagramDurations = metrics.histogram("time_datagram_duration_seconds",
+                                                   "Tiempo desde la recepción de un datagrama hasta el envío de la respuesta")
+                                        .labels();
     }
     
     /**
@@ -75,6 +89,9 @@ public class TimeServer {
                     
                     // Wait for client request
                     socket.receive(requestPacket);
+                    long receivedNanos = System.nanoTime();
+                    datagramsReceived.increment();
+                    bytesReceived.add(requestPacket.getLength());
                     
                     // Get client information
                     InetAddress clientAddress = requestPacket.getAddress();
@@ -99,11 +116,13 @@ public class TimeServer {
                     
                     // Send response to client
                     socket.send(responsePacket);
+                    datagramDurations.record(System.nanoTime() - receivedNanos);
                     System.out.println("Respuesta enviada exitosamente");
                     System.out.println("---");
                     
                 } catch (IOException e) {
                     if (isRunning) {
+                        datagramErrors.increment();
                         System.err.println("Error procesando solicitud del cliente: " + e.getMessage());
                     }
                 }
@@ -131,7 +150,7 @@ public class TimeServer {
      * Gets the current server time as a formatted string
      * @return Current time formatted as string
      */
-    private String getCurrentTimeString() {
+    String getCurrentTimeString() {
         return dateFormatter.format(new Date());
     }
     
@@ -0,0 +1,316 @@
+package edu.eci.arsw.networking;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.ByteChannel;
+import java.nio.channels.ClosedChannelException;
+import java.nio.channels.GatheringByteChannel;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.channels.WritableByteChannel;
+import javax.net.ssl.SSLEngine;
+import javax.net.ssl.SSLEngineResult;
+import javax.net.ssl.SSLException;
+import javax.net.ssl.SSLSession;
+
+/**
+ * TLS over a pair of byte channels, driven by an {@link SSLEngine}. Reads return
+ * decrypted application bytes and writes take plaintext, so the rest of the server (the
+ * request parser and {@link ResponseWriter}) does not know whether a connection is
+ * encrypted.
+ *
+ * The handshake runs inside the first reads and writes; its delegated tasks (the key
+ * exchange and certificate signature) run on the calling thread. With a non-blocking
+ * {@link java.nio.channels.SocketChannel}, a read returns 0 and {@link #hasPendingOutput()}
+ * tells the reactor to wait for a writable socket when a handshake record or an encrypted
+ * response could not be sent in full; {@link #flush()} sends it once the socket is
+ * writable. With blocking channels every call completes before returning.
+ *
+ * Each connection owns three buffers: encrypted bytes received (one TLS record at most),
+ * decrypted bytes not yet consumed and encrypted bytes waiting to be sent. Gathering writes
+ * encrypt the response headers and body into the same record instead of one record each.
+ * File bodies cannot use sendfile through TLS: {@link java.nio.channels.FileChannel#transferTo}
+ * copies them through a small buffer into {@link #write} instead.
+ *
+ * @author GitHub Copilot Implementation
+ * @version 1.0
+ */
+final class TlsChannel implements ByteChannel, GatheringByteChannel {
+
+    private static final ByteBuffer[] EMPTY = { ByteBuffer.allocate(0) };
+
+    private final ReadableByteChannel in;
+    private final WritableByteChannel out;
+    private final SSLEngine engine;
+    private ByteBuffer netIn;
+    private ByteBuffer netOut;
+    private ByteBuffer appIn;
+    private boolean inboundClosed;
+    private boolean closed;
+
+    /**
+     * @param channel Connected socket channel, blocking or not
+     * @param engine Server-side engine of this connection, not yet used
+     */
+    TlsChannel(ByteChannel channel, SSLEngine engine) {
+        this(channel, channel, engine);
+    }
+
+    /**
+     * @param in Channel the encrypted bytes are read from
+     * @param out Channel the encrypted bytes are written to
+     * @param engine Server-side engine of this connection, not yet used
+     */
+    TlsChannel(ReadableByteChannel in, WritableByteChannel out, SSLEngine engine) {
+        this.in = in;
+        this.out = out;
+        this.engine = engine;
+        SSLSession session = engine.getSession();
+        this.netIn = ByteBuffer.allocate(session.getPacketBufferSize());
+        this.netOut = ByteBuffer.allocate(session.getPacketBufferSize());
+        this.appIn = ByteBuffer.allocate(session.getApplicationBufferSize());
+        this.netOut.flip();
+    }
+
+    /**
+     * Reads decrypted bytes, advancing the handshake first if it is in progress
+     * @return Bytes read, 0 if a non-blocking channel has no complete record yet, or -1
+     *         once the client closed the connection
+     */
+    @Override
+    public int read(ByteBuffer target) throws IOException {
+        if (closed) {
+            throw new ClosedChannelException();
+        }
+        while (true) {
+            if (appIn.position() > 0) {
+                return drainApplicationBytes(target);
+            }
+            if (inboundClosed) {
+                return -1;
+            }
+            if (!flush()) {
+                // Handshake records must leave before the client can answer them
+                return 0;
+            }
+            netIn.flip();
+            SSLEngineResult result;
+            try {
+                result = engine.unwrap(netIn, appIn);
+            } finally {
+                netIn.compact();
+            }
+            runDelegatedTasks(result);
+            SSLEngineResult.Status status = result.getStatus();
+            if (status == SSLEngineResult.Status.CLOSED) {
+                // close_notify from the client; answered by close()
+                inboundClosed = true;
+                continue;
+            }
+            if (status == SSLEngineResult.Status.BUFFER_OVERFLOW) {
+                appIn = enlarge(appIn, engine.getSession().getApplicationBufferSize());
+                continue;
+            }
+            SSLEngineResult.HandshakeStatus handshake = engine.getHandshakeStatus();
+            if (status == SSLEngineResult.Status.OK
+                && (result.bytesConsumed() > 0 || result.bytesProduced() > 0
+                    || handshake == SSLEngineResult.HandshakeStatus.NEED_WRAP
+                    || handshake == SSLEngineResult.HandshakeStatus.NEED_TASK)) {
+                continue;
+            }
+
+            // Buffer underflow: the next record has not fully arrived
+            if (!netIn.hasRemaining()) {
+                netIn = enlarge(netIn, engine.getSession().getPacketBufferSize());
+            }
+            int read = in.read(netIn);
+            if (read < 0) {
+                inboundClosed = true;
+                try {
+                    engine.closeInbound();
+                } catch (SSLException e) {
+                    // Closed without close_notify; common for HTTP clients and harmless here,
+                    // since responses are framed by HTTP
+                }
+                return -1;
+            }
+            if (read == 0) {
+                return 0;
+            }
+        }
+    }
+
+    @Override
+    public int write(ByteBuffer source) throws IOException {
+        return (int) write(new ByteBuffer[] { source }, 0, 1);
+    }
+
+    @Override
+    public long write(ByteBuffer[] sources) throws IOException {
+        return write(sources, 0, sources.length);
+    }
+
+    /**
+     * Encrypts as much of the buffers as fits into the pending output and sends it. Bytes
+     * are counted as written once encrypted; with a non-blocking channel part of the
+     * records may still be pending afterwards (see {@link #hasPendingOutput()}).
+     * @return Plaintext bytes consumed, 0 when earlier output has not left yet
+     */
+    @Override
+    public long write(ByteBuffer[] sources, int offset, int length) throws IOException {
+        if (closed) {
+            throw new ClosedChannelException();
+        }
+        long consumed = 0;
+        while (true) {
+            if (!flush()) {
+                return consumed;
+            }
+            if (!hasRemaining(sources, offset, length)) {
+                return consumed;
+            }
+            netOut.compact();
+            SSLEngineResult result;
+            try {
+                result = engine.wrap(sources, offset, length, netOut);
+            } finally {
+                netOut.flip();
+            }
+            runDelegatedTasks(result);
+            consumed += result.bytesConsumed();
+            SSLEngineResult.Status status = result.getStatus();
+            if (status == SSLEngineResult.Status.CLOSED) {
+                throw new SSLException("Conexión TLS cerrada durante la escritura");
+            }
+            if (status == SSLEngineResult.Status.BUFFER_OVERFLOW && netOut.remaining() == 0) {
+                netOut = enlargeOutput(engine.getSession().getPacketBufferSize());
+            }
+            if (result.bytesConsumed() == 0 && result.bytesProduced() == 0
+                && status == SSLEngineResult.Status.OK) {
+                // The engine waits for handshake data from the client first
+                return consumed;
+            }
+        }
+    }
+
+    /**
+     * Sends pending encrypted bytes and any handshake records the engine has to produce
+     * @return true once nothing is left to send
+     */
+    boolean flush() throws IOException {
+        while (true) {
+            while (netOut.hasRemaining()) {
+                if (out.write(netOut) == 0) {
+                    return false;
+                }
+            }
+            if (engine.getHandshakeStatus() != SSLEngineResult.HandshakeStatus.NEED_WRAP) {
+                return true;
+            }
+            netOut.clear();
+            SSLEngineResult result;
+            try {
+                result = engine.wrap(EMPTY, netOut);
+            } finally {
+                netOut.flip();
+            }
+            runDelegatedTasks(result);
+            if (result.getStatus() == SSLEngineResult.Status.CLOSED && result.bytesProduced() == 0) {
+                return true;
+            }
+        }
+    }
+
+    /**
+     * Checks whether encrypted bytes are waiting for the socket to become writable
+     */
+    boolean hasPendingOutput() {
+        return netOut.hasRemaining()
+               || engine.getHandshakeStatus() == SSLEngineResult.HandshakeStatus.NEED_WRAP;
+    }
+
+    /**
+     * Checks whether bytes already read from the socket are waiting to be returned by
+     * {@link #read}; a selector does not report them as readable
+     */
+    boolean hasBufferedInput() {
+        return appIn.position() > 0 || netIn.position() > 0;
+    }
+
+    /**
+     * Gets the TLS session, for the protocol and cipher suite of the connection
+     */
+    SSLSession getSession() {
+        return engine.getSession();
+    }
+
+    @Override
+    public boolean isOpen() {
+        return !closed;
+    }
+
+    /**
+     * Sends close_notify when the socket accepts it right away; the underlying channels
+     * are closed by their owner
+     */
+    @Override
+    public void close() throws IOException {
+        if (closed) {
+            return;
+        }
+        engine.closeOutbound();
+        try {
+            flush();
+        } catch (IOException e) {
+            // The client may already be gone
+        } finally {
+            closed = true;
+        }
+    }
+
+    private int drainApplicationBytes(ByteBuffer target) {
+        appIn.flip();
+        int count = Math.min(appIn.remaining(), target.remaining());
+        int limit = appIn.limit();
+        appIn.limit(appIn.position() + count);
+        target.put(appIn);
+        appIn.limit(limit);
+        appIn.compact();
+        return count;
+    }
+
+    private void runDelegatedTasks(SSLEngineResult result) {
+        if (result.getHandshakeStatus() == SSLEngineResult.HandshakeStatus.NEED_TASK
+            || engine.getHandshakeStatus() == SSLEngineResult.HandshakeStatus.NEED_TASK) {
+            Runnable task;
+            while ((task = engine.getDelegatedTask()) != null) {
+                task.run();
+            }
+        }
+    }
+
+    private ByteBuffer enlargeOutput(int size) {
+        ByteBuffer larger = ByteBuffer.allocate(Math.max(size, netOut.capacity() * 2));
+        larger.put(netOut);
+        larger.flip();
+        return larger;
+    }
+
+    /**
+     * Grows a buffer in write mode, keeping its content
+     */
+    private static ByteBuffer enlarge(ByteBuffer buffer, int size) {
+        ByteBuffer larger = ByteBuffer.allocate(Math.max(size, buffer.capacity() * 2));
+        buffer.flip();
+        larger.put(buffer);
+        return larger;
+    }
+
+    private static boolean hasRemaining(ByteBuffer[] buffers, int offset, int length) {
+        for (int i = offset; i < offset + length; i++) {
+            if (buffers[i].hasRemaining()) {
+                return true;
+            }
+        }
+        return false;
+    }
+}
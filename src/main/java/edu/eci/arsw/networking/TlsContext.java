@@ -0,0 +1,179 @@
+package edu.eci.arsw.networking;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.security.GeneralSecurityException;
+import java.security.KeyStore;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import javax.net.ssl.KeyManagerFactory;
+import javax.net.ssl.SSLContext;
+import javax.net.ssl.SSLEngine;
+import javax.net.ssl.SSLParameters;
+import javax.net.ssl.SSLSessionContext;
+import javax.net.ssl.TrustManagerFactory;
+
+/**
+ * Server-side TLS setup of {@link SimpleWebServer}: the key and certificate loaded from
+ * the configured keystore, the enabled protocol versions and the session resumption
+ * settings, shared by every connection of the server.
+ *
+ * A full handshake costs an asymmetric signature and key exchange, several times the CPU
+ * of serving a small file; a resumed one only derives keys from a secret both sides kept.
+ * Returning clients resume in one of two ways:
+ * - Session cache: the server keeps recent sessions in memory, bounded in number and age
+ *   (webserver.tls.session.cache, webserver.tls.session.timeout), and the client presents
+ *   the session id or a ticket that refers to it.
+ * - Session tickets: with webserver.tls.tickets (the default) the server keeps no state;
+ *   it hands the client its session encrypted under a key only the server knows (RFC 5077,
+ *   and the pre-shared keys of TLS 1.3), so resumption does not depend on the cache size
+ *   and survives cache evictions.
+ * The JDK reads the ticket switch when a context is created, so it is applied around the
+ * creation of this context only and does not leak into other TLS users of the JVM.
+ *
+ * Each connection gets its own {@link SSLEngine} from {@link #newEngine()}, driven by a
+ * {@link TlsChannel}.
+ *
+ * @author GitHub Copilot Implementation
+ * @version 1.0
+ */
+final class TlsContext {
+
+    private static final String TICKETS_PROPERTY = "jdk.tls.server.enableSessionTicketExtension";
+    private static final int KEYTOOL_TIMEOUT_SECONDS = 60;
+
+    private final SSLContext context;
+    private final String[] protocols;
+
+    private TlsContext(SSLContext context, String[] protocols) {
+        this.context = context;
+        this.protocols = protocols;
+    }
+
+    /**
+     * Loads the keystore named in the configuration and tunes the server session cache
+     * @param config Configuration with the keystore and the session settings
+     * @return The server context
+     * @throws IOException If the keystore cannot be read
+     * @throws GeneralSecurityException If it holds no usable key or a protocol is not supported
+     */
+    static TlsContext create(WebServerConfig config) throws IOException, GeneralSecurityException {
+        char[] password = config.getTlsPassword().toCharArray();
+        KeyStore keyStore = KeyStore.getInstance(config.getTlsKeyStoreType());
+        try (InputStream in = Files.newInputStream(Paths.get(config.getTlsKeyStore()))) {
+            keyStore.load(in, password);
+        }
+        KeyManagerFactory keyManagers = KeyManagerFactory.getInstance(KeyManagerFactory.getDefaultAlgorithm());
+        keyManagers.init(keyStore, password);
+
+        SSLContext context = newContext(config.isTlsSessionTickets());
+        context.init(keyManagers.getKeyManagers(), null, null);
+        SSLSessionContext sessions = context.getServerSessionContext();
+        sessions.setSessionCacheSize(config.getTlsSessionCacheSize());
+        sessions.setSessionTimeout(config.getTlsSessionTimeoutSeconds());
+
+        String[] protocols = config.getTlsProtocols();
+        List<String> supported = Arrays.asList(context.getSupportedSSLParameters().getProtocols());
+        for (String protocol : protocols) {
+            if (!supported.contains(protocol)) {
+                throw new GeneralSecurityException("Protocolo TLS no soportado: " + protocol);
+            }
+        }
+        return new TlsContext(context, protocols);
+    }
+
+    private static SSLContext newContext(boolean tickets) throws GeneralSecurityException {
+        synchronized (TlsContext.class) {
+            String previous = System.getProperty(TICKETS_PROPERTY);
+            System.setProperty(TICKETS_PROPERTY, String.valueOf(tickets));
+            try {
+                return SSLContext.getInstance("TLS");
+            } finally {
+                if (previous != null) {
+                    System.setProperty(TICKETS_PROPERTY, previous);
+                } else {
+                    System.clearProperty(TICKETS_PROPERTY);
+                }
+            }
+        }
+    }
+
+    /**
+     * Creates the engine of one new connection
+     * @return A server-mode engine with the configured protocols
+     */
+    SSLEngine newEngine() {
+        SSLEngine engine = context.createSSLEngine();
+        engine.setUseClientMode(false);
+        SSLParameters parameters = engine.getSSLParameters();
+        parameters.setProtocols(protocols);
+        // The server's preference picks the cipher suite, not the client's list order
+        parameters.setUseCipherSuitesOrder(true);
+        engine.setSSLParameters(parameters);
+        return engine;
+    }
+
+    /**
+     * Gets the server session cache, whose size and timeout can be tuned at runtime
+     */
+    SSLSessionContext getSessionContext() {
+        return context.getServerSessionContext();
+    }
+
+    /**
+     * Generates a keystore holding a self-signed EC (P-256) certificate, for tests,
+     * benchmarks and local development, by running the JDK's keytool
+     * @param keyStore PKCS12 file to create; must not exist yet
+     * @param password Password of the keystore and the key
+     * @param commonName Host name the certificate is issued to, e.g. "localhost"
+     * @throws IOException If keytool is missing or fails
+     */
+    static void generateSelfSigned(Path keyStore, String password, String commonName) throws IOException {
+        Path keytool = Paths.get(System.getProperty("java.home"), "bin", "keytool");
+        List<String> command = new ArrayList<>(List.of(
+            keytool.toString(), "-genkeypair", "-alias", "server", "-keyalg", "EC", "-groupname", "secp256r1",
+            "-sigalg", "SHA256withECDSA", "-validity", "365", "-dname", "CN=" + commonName,
+            "-ext", "SAN=dns:" + commonName + ",ip:127.0.0.1", "-storetype", "PKCS12",
+            "-keystore", keyStore.toString(), "-storepass", password, "-keypass", password));
+        Process process = new ProcessBuilder(command).redirectErrorStream(true).start();
+        try {
+            String output = new String(process.getInputStream().readAllBytes(), StandardCharsets.UTF_8);
+            if (!process.waitFor(KEYTOOL_TIMEOUT_SECONDS, TimeUnit.SECONDS) || process.exitValue() != 0) {
+                throw new IOException("keytool no pudo generar el certificado: " + output.trim());
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("Generación del certificado interrumpida", e);
+        } finally {
+            process.destroy();
+        }
+    }
+
+    /**
+     * Builds a client context that trusts exactly the certificates of a keystore, as
+     * clients of a self-signed server need
+     * @param keyStore Keystore with the server certificate
+     * @param password Password of the keystore
+     * @return A client context; its session cache makes later connections resume
+     * @throws IOException If the keystore cannot be read
+     * @throws GeneralSecurityException If the context cannot be initialized
+     */
+    static SSLContext trustingClientContext(Path keyStore, String password)
+            throws IOException, GeneralSecurityException {
+        KeyStore trusted = KeyStore.getInstance("PKCS12");
+        try (InputStream in = Files.newInputStream(keyStore)) {
+            trusted.load(in, password.toCharArray());
+        }
+        TrustManagerFactory trustManagers = TrustManagerFactory.getInstance(TrustManagerFactory.getDefaultAlgorithm());
+        trustManagers.init(trusted);
+        SSLContext context = SSLContext.getInstance("TLS");
+        context.init(null, trustManagers.getTrustManagers(), null);
+        return context;
+    }
+}
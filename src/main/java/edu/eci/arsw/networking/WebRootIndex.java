@@ -0,0 +1,315 @@
+package edu.eci.arsw.networking;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.file.ClosedWatchServiceException;
+import java.nio.file.FileSystems;
+import java.nio.file.FileVisitResult;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.SimpleFileVisitor;
+import java.nio.file.StandardWatchEventKinds;
+import java.nio.file.WatchEvent;
+import java.nio.file.WatchKey;
+import java.nio.file.WatchService;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Function;
+
+/**
+ * In-memory index of the web root tree for {@link SimpleWebServer}: maps every request
+ * path to the file it resolves to, with its size, modification time, MIME type, validators
+ * and fresh .gz sidecar, so resolving a request for an indexed file makes no system call.
+ *
+ * The index is built by walking the web root when the server starts and is then kept
+ * current by a {@link WatchService} registered on every directory: created, modified and
+ * deleted files are re-indexed by a background thread, new directories are walked and
+ * watched, and an event overflow triggers a full rebuild. Directory requests are resolved
+ * to their index.html once, at indexing time; directories without one are indexed as such
+ * and answered with 403.
+ *
+ * Watch events arrive asynchronously, so a path missing from the index is not proof that
+ * the file does not exist: the server falls back to the file system for it. Callers that
+ * observe a change themselves (the caches, when they revalidate a file) call
+ * {@link #refresh(Path)} so the index never lags behind them.
+ *
+ * @author GitHub Copilot Implementation
+ * @version 1.0
+ */
+final class WebRootIndex implements Closeable {
+
+    /**
+     * What a request path resolves to
+     */
+    static final class Entry {
+        private final Path file;
+        private final String fileName;
+        private final boolean directory;
+        private final long size;
+        private final long lastModifiedMillis;
+        private final String mimeType;
+        private final FileValidators validators;
+        private final Path gzipSidecar;
+
+        private Entry(Path file, String fileName, boolean directory, long size, long lastModifiedMillis,
+                      String mimeType, Path gzipSidecar) {
+            this.file = file;
+            this.fileName = fileName;
+            this.directory = directory;
+            this.size = size;
+            this.lastModifiedMillis = lastModifiedMillis;
+            this.mimeType = mimeType;
+            this.validators = directory ? null : FileValidators.of(size, lastModifiedMillis);
+            this.gzipSidecar = gzipSidecar;
+        }
+
+        /** The file to serve (index.html for a directory), or the directory itself */
+        Path getFile() { return file; }
+
+        /** Path relative to the web root, used for logging */
+        String getFileName() { return fileName; }
+
+        /** true for a directory without index.html, which is not served */
+        boolean isDirectory() { return directory; }
+
+        long getSize() { return size; }
+
+        long getLastModifiedMillis() { return lastModifiedMillis; }
+
+        String getMimeType() { return mimeType; }
+
+        FileValidators getValidators() { return validators; }
+
+        /** A .gz sidecar at least as recent as the file, or null */
+        Path getGzipSidecar() { return gzipSidecar; }
+    }
+
+    private final Path root;
+    private final String defaultFile;
+    private final Function<String, String> mimeTypes;
+    private final Map<String, Entry> entries = new ConcurrentHashMap<>();
+    private final Map<WatchKey, Path> watchedDirectories = new ConcurrentHashMap<>();
+    private WatchService watchService;
+    private Thread watcher;
+
+    /**
+     * Creates an empty index; {@link #start()} fills it
+     * @param root Web root directory
+     * @param defaultFile File served for a directory request, e.g. index.html
+     * @param mimeTypes Maps a file name to its MIME type
+     */
+    WebRootIndex(Path root, String defaultFile, Function<String, String> mimeTypes) {
+        this.root = root.toAbsolutePath().normalize();
+        this.defaultFile = defaultFile;
+        this.mimeTypes = mimeTypes;
+    }
+
+    /**
+     * Indexes the whole tree and starts watching it for changes
+     * @throws IOException If the tree cannot be walked or watched
+     */
+    void start() throws IOException {
+        watchService = FileSystems.getDefault().newWatchService();
+        indexTree(root);
+        watcher = new Thread(this::watchLoop, "webroot-watcher");
+        watcher.setDaemon(true);
+        watcher.start();
+    }
+
+    /**
+     * Looks up a request path as returned by the server's path resolution
+     * @param requestPath Path relative to the web root, e.g. "css/style.css" or "docs/"
+     * @return The entry, or null if the path is not indexed
+     */
+    Entry lookup(String requestPath) {
+        return entries.get(requestPath);
+    }
+
+    int size() {
+        return entries.size();
+    }
+
+    /**
+     * Re-reads one file (or its removal) right away instead of waiting for its watch event
+     * @param file File inside the web root
+     */
+    void refresh(Path file) {
+        Path absolute = file.toAbsolutePath().normalize();
+        if (!absolute.startsWith(root)) {
+            return;
+        }
+        if (Files.isDirectory(absolute)) {
+            indexTree(absolute);
+        } else {
+            indexFile(absolute);
+        }
+    }
+
+    /**
+     * Stops watching; the entries stay readable but are no longer updated
+     */
+    @Override
+    public void close() throws IOException {
+        if (watchService != null) {
+            watchService.close();
+        }
+    }
+
+    private void watchLoop() {
+        try {
+            while (true) {
+                WatchKey key = watchService.take();
+                Path directory = watchedDirectories.get(key);
+                for (WatchEvent<?> event : key.pollEvents()) {
+                    if (event.kind() == StandardWatchEventKinds.OVERFLOW) {
+                        System.out.println("Eventos del directorio web perdidos, reconstruyendo índice");
+                        entries.clear();
+                        indexTree(root);
+                    } else if (directory != null) {
+                        handleEvent(directory.resolve((Path) event.context()), event.kind());
+                    }
+                }
+                if (!key.reset()) {
+                    watchedDirectories.remove(key);
+                }
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (ClosedWatchServiceException e) {
+            // Index closed
+        }
+    }
+
+    private void handleEvent(Path path, WatchEvent.Kind<?> kind) {
+        if (kind == StandardWatchEventKinds.ENTRY_CREATE && Files.isDirectory(path)) {
+            indexTree(path);
+        } else if (kind == StandardWatchEventKinds.ENTRY_DELETE) {
+            removeTree(path);
+            if (path.getFileName().toString().equals(defaultFile)) {
+                indexDirectory(path.getParent());
+            }
+        } else {
+            indexFile(path);
+        }
+        // The sidecar's freshness is part of the file's entry
+        String name = path.getFileName().toString();
+        if (name.endsWith(GzipEncoding.SIDECAR_SUFFIX)) {
+            indexFile(path.resolveSibling(name.substring(0, name.length() - GzipEncoding.SIDECAR_SUFFIX.length())));
+        }
+    }
+
+    /**
+     * Indexes every file and directory below a directory and watches the directories
+     */
+    private void indexTree(Path directory) {
+        try {
+            Files.walkFileTree(directory, new SimpleFileVisitor<Path>() {
+                @Override
+                public FileVisitResult preVisitDirectory(Path dir, BasicFileAttributes attributes) throws IOException {
+                    WatchKey key = dir.register(watchService, StandardWatchEventKinds.ENTRY_CREATE,
+                                                StandardWatchEventKinds.ENTRY_DELETE,
+                                                StandardWatchEventKinds.ENTRY_MODIFY);
+                    watchedDirectories.put(key, dir);
+                    indexDirectory(dir);
+                    return FileVisitResult.CONTINUE;
+                }
+
+                @Override
+                public FileVisitResult visitFile(Path file, BasicFileAttributes attributes) {
+                    if (attributes.isRegularFile()) {
+                        putFile(file, attributes);
+                    }
+                    return FileVisitResult.CONTINUE;
+                }
+
+                @Override
+                public FileVisitResult visitFileFailed(Path file, IOException e) {
+                    // Unreadable entries stay out of the index and are checked on disk
+                    return FileVisitResult.CONTINUE;
+                }
+            });
+        } catch (IOException | ClosedWatchServiceException e) {
+            System.err.println("Error indexando directorio web " + directory + ": " + e.getMessage());
+        }
+    }
+
+    /**
+     * Indexes a file, or removes it if it no longer exists
+     */
+    private void indexFile(Path file) {
+        try {
+            BasicFileAttributes attributes = Files.readAttributes(file, BasicFileAttributes.class);
+            if (attributes.isRegularFile()) {
+                putFile(file, attributes);
+            }
+        } catch (IOException e) {
+            removeTree(file);
+            if (file.getFileName() != null && file.getFileName().toString().equals(defaultFile)) {
+                indexDirectory(file.getParent());
+            }
+        }
+    }
+
+    private void putFile(Path file, BasicFileAttributes attributes) {
+        if (!Files.isReadable(file)) {
+            removeTree(file);
+            return;
+        }
+        String fileName = relative(file);
+        long lastModified = attributes.lastModifiedTime().toMillis();
+        String mimeType = mimeTypes.apply(fileName);
+        Entry entry = new Entry(file, fileName, false, attributes.size(), lastModified, mimeType,
+                                GzipEncoding.isCompressible(mimeType) ? GzipEncoding.freshSidecar(file, lastModified) : null);
+        entries.put(fileName, entry);
+        if (file.getFileName().toString().equals(defaultFile)) {
+            Path directory = file.getParent();
+            if (!directory.equals(root)) {
+                String directoryName = relative(directory);
+                entries.put(directoryName, entry);
+                entries.put(directoryName + "/", entry);
+            }
+        }
+    }
+
+    /**
+     * Indexes what a request for a directory resolves to: its index file, or a directory
+     * entry that is refused
+     */
+    private void indexDirectory(Path directory) {
+        if (directory == null || directory.equals(root) || !directory.startsWith(root)) {
+            return;
+        }
+        Path indexFile = directory.resolve(defaultFile);
+        if (Files.isRegularFile(indexFile)) {
+            indexFile(indexFile);
+            return;
+        }
+        String directoryName = relative(directory);
+        Entry entry = new Entry(directory, directoryName, true, 0, 0, null, null);
+        entries.put(directoryName, entry);
+        entries.put(directoryName + "/", entry);
+    }
+
+    /**
+     * Removes the entries of a deleted file or directory and of everything below it
+     */
+    private void removeTree(Path path) {
+        String name = relative(path);
+        String prefix = name + "/";
+        entries.keySet().removeIf(key -> key.equals(name) || key.startsWith(prefix));
+        entries.values().removeIf(entry -> entry.getFile().startsWith(path));
+    }
+
+    private String relative(Path path) {
+        Path relative = root.relativize(path.toAbsolutePath().normalize());
+        StringBuilder name = new StringBuilder();
+        for (Path part : relative) {
+            if (name.length() > 0) {
+                name.append('/');
+            }
+            name.append(part);
+        }
+        return name.toString();
+    }
+}
@@ -0,0 +1,780 @@
+package edu.eci.arsw.networking;
+
+import java.net.URI;
+import java.net.URISyntaxException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Startup configuration for {@link SimpleWebServer}.
+ * Every value has a default that reproduces the original exercise behavior, and
+ * can be overridden programmatically or through system properties, e.g.:
+ *
+ * <pre>
+ * java -Dwebserver.engine=nio -Dwebserver.reactors=4 -cp target/classes edu.eci.arsw.networking.SimpleWebServer
+ * </pre>
+ *
+ * Supported properties:
+ * - webserver.port      - Listening port (default 8081)
+ * - webserver.root      - Web root directory (default "webroot")
+ * - webserver.engine    - Connection engine: blocking | nio | reuseport (nio with one
+ *   SO_REUSEPORT listener per reactor, see {@link NioWebServerEngine}) (default blocking)
+ * - webserver.reactors  - Number of selector threads for the nio and reuseport engines
+ * - webserver.keepalive - Enables HTTP/1.1 persistent connections (default true)
+ * - webserver.keepalive.timeout - Idle time in milliseconds before a persistent connection is closed
+ *   (also the time a new connection may take to send its first byte)
+ * - webserver.header.timeout - Milliseconds allowed to receive a complete request head once its
+ *   first byte arrived (default 10000)
+ * - webserver.write.timeout - Milliseconds a response may go without any write progress (default 30000)
+ * - webserver.keepalive.max - Maximum number of requests served on one connection
+ * - webserver.cache.mode - Where hot files are kept: heap (byte[] copies) | mmap (memory-mapped
+ *   files, see {@link MappedFileRegistry}) (default heap)
+ * - webserver.cache.bytes - Byte budget of the static file cache (0 disables it)
+ * - webserver.cache.maxentry - Largest file kept in the cache, in bytes
+ * - webserver.cache.revalidate - Milliseconds between modification checks of a cached file
+ * - webserver.transfer.threshold - Files of at least this many bytes are streamed with
+ *   FileChannel.transferTo instead of being read into memory (default 1 MB)
+ * - webserver.index - Indexes the web root in memory, kept current by a WatchService (default true)
+ * - webserver.compression - Enables gzip for clients that accept it (default true)
+ * - webserver.compression.min - Smallest file that is compressed, in bytes (default 256)
+ * - webserver.metrics - Serves the Prometheus metrics of the JVM on /metrics (default true)
+ * - webserver.listing - Answers directories without an index.html with a generated listing,
+ *   streamed in chunks, instead of 403 (default false)
+ * - webserver.growing.window - Files modified less than this many milliseconds ago are
+ *   treated as still being written and streamed in chunks up to their end at send time,
+ *   without a Content-Length (default 0, disabled)
+ * - webserver.h2c - Accepts HTTP/2 over cleartext on the blocking engine, with prior
+ *   knowledge or through "Upgrade: h2c" (default true, see {@link Http2Connection})
+ * - webserver.h2.streams - Concurrent streams allowed on one HTTP/2 connection (default 100)
+ * - webserver.websocket - Serves the built-in WebSocket feeds /ws/chat, /ws/time and
+ *   /ws/metrics on the blocking engine without TLS (default true, see {@link WebSocketSession})
+ * - webserver.websocket.queue - Messages waiting to be written to one WebSocket client before
+ *   it is disconnected as a slow consumer; pings and pongs do not count (default 256)
+ * - webserver.websocket.maxmessage - Largest WebSocket message accepted, in bytes, after
+ *   reassembling its fragments (default 1 MB)
+ * - webserver.websocket.idle - Milliseconds without frames from a WebSocket client before it
+ *   is pinged; it is disconnected if it stays silent as long again (default 30000, 0 disables it)
+ * - webserver.websocket.tick - Milliseconds between the pushes of /ws/time and /ws/metrics
+ *   (default 1000)
+ * - webserver.websocket.sessions - WebSocket sessions open at once. Each one keeps the
+ *   thread of its connection for as long as it lives, so this budget is what stops
+ *   subscribers from taking every thread plain HTTP needs; upgrades beyond it are answered
+ *   with 503 (default 100, half of the bounded pool the connection executors fall back to)
+ * - webserver.tls.keystore - Keystore with the server key and certificate; when set, every
+ *   engine speaks HTTPS instead of HTTP (see {@link TlsContext})
+ * - webserver.tls.password, webserver.tls.keystore.type - Password and type of the keystore
+ *   (type PKCS12 by default)
+ * - webserver.tls.protocols - Comma-separated TLS versions (default TLSv1.3,TLSv1.2)
+ * - webserver.tls.session.cache, webserver.tls.session.timeout - Sessions kept for
+ *   resumption and their lifetime in seconds (default 20000 and 3600)
+ * - webserver.tls.tickets - Resumes sessions from stateless tickets (default true)
+ * - webserver.proxy.routes - Path prefixes forwarded to upstream servers instead of being
+ *   served from the web root, e.g. "/api=http://127.0.0.1:9000,/docs=http://10.0.0.2/v2";
+ *   a prefix may list several equivalent upstreams separated by '|', e.g.
+ *   "/api=http://127.0.0.1:9000|http://127.0.0.1:9001" (see {@link ReverseProxy})
+ * - webserver.proxy.balancer - How a route with several upstreams picks one: rr, p2c or
+ *   lor (default lor, least outstanding requests; see {@link LoadBalancer})
+ * - webserver.proxy.health.interval - Milliseconds between health checks of the upstreams
+ *   of a route with several of them (default 5000, 0 disables them)
+ * - webserver.proxy.health.path - Path requested by the health checks, which expect a 2xx
+ *   or 3xx answer (default none: the check only connects)
+ * - webserver.proxy.pool - Idle keep-alive connections kept per upstream (default 16)
+ * - webserver.proxy.outstanding - Requests in progress allowed per upstream, answered
+ *   beyond it with a 503 (default 64)
+ * - webserver.proxy.timeout - Milliseconds to connect to an upstream and to wait for each
+ *   of its reads (default 30000)
+ * - webserver.proxy.idle - Milliseconds a pooled connection may stay unused before it is
+ *   discarded instead of reused (default 4000, below the usual upstream keep-alive timeout)
+ * - networking.executor, networking.executor.threads, networking.executor.queue -
+ *   Threading model of the blocking engine, and of the workers that run proxied requests
+ *   for the nio engines (see {@link ConnectionExecutor})
+ * - networking.admission.connections, networking.admission.inflight - Limits on open
+ *   connections and requests in progress, answered beyond them with a 503 (0, the
+ *   default, means no limit; see {@link AdmissionController})
+ * - networking.admission.target, networking.admission.interval - CoDel-style shedding on
+ *   queue delay, in milliseconds (target 0, the default, disables it)
+ * - networking.admission.retryafter - Seconds advertised in the Retry-After of a 503
+ *
+ * @author GitHub Copilot Implementation
+ * @version 1.0
+ */
+public class WebServerConfig {
+
+    /**
+     * Connection handling engines available to the web server
+     */
+    public enum Engine {
+        BLOCKING("blocking"),
+        NIO("nio"),
+        REUSEPORT("reuseport");
+
+        private final String command;
+
+        Engine(String command) {
+            this.command = command;
+        }
+
+        public String getCommand() { return command; }
+
+        public static Engine fromCommand(String command) {
+            for (Engine engine : values()) {
+                if (engine.command.equalsIgnoreCase(command)) {
+                    return engine;
+                }
+            }
+            return null;
+        }
+    }
+
+    /**
+     * Storage used for hot static files
+     */
+    public enum CacheMode {
+        HEAP("heap"),
+        MMAP("mmap");
+
+        private final String command;
+
+        CacheMode(String command) {
+            this.command = command;
+        }
+
+        public String getCommand() { return command; }
+
+        public static CacheMode fromCommand(String command) {
+            for (CacheMode mode : values()) {
+                if (mode.command.equalsIgnoreCase(command)) {
+                    return mode;
+                }
+            }
+            return null;
+        }
+    }
+
+    public static final int DEFAULT_PORT = 8081;
+    public static final String DEFAULT_WEB_ROOT = "webroot";
+    public static final int DEFAULT_KEEP_ALIVE_TIMEOUT_MILLIS = 5000;
+    public static final int DEFAULT_MAX_REQUESTS_PER_CONNECTION = 100;
+    public static final int DEFAULT_HEADER_TIMEOUT_MILLIS = 10000;
+    public static final int DEFAULT_WRITE_TIMEOUT_MILLIS = 30000;
+    public static final long DEFAULT_CACHE_BYTES = 16L * 1024 * 1024;
+    public static final long DEFAULT_CACHE_MAX_ENTRY_BYTES = 1024 * 1024;
+    public static final long DEFAULT_CACHE_REVALIDATE_MILLIS = 1000;
+    public static final long DEFAULT_TRANSFER_THRESHOLD_BYTES = 1024 * 1024;
+    public static final int DEFAULT_COMPRESSION_MIN_BYTES = 256;
+    public static final int DEFAULT_HTTP2_MAX_CONCURRENT_STREAMS = 100;
+    public static final int DEFAULT_WEBSOCKET_QUEUE_CAPACITY = 256;
+    public static final int DEFAULT_WEBSOCKET_MAX_MESSAGE_BYTES = 1024 * 1024;
+    public static final int DEFAULT_WEBSOCKET_IDLE_MILLIS = 30000;
+    public static final long DEFAULT_WEBSOCKET_TICK_MILLIS = 1000;
+    public static final int DEFAULT_WEBSOCKET_SESSIONS = ConnectionExecutor.DEFAULT_POOL_THREADS / 2;
+    public static final String DEFAULT_TLS_KEYSTORE_TYPE = "PKCS12";
+    public static final String DEFAULT_TLS_PROTOCOLS = "TLSv1.3,TLSv1.2";
+    public static final int DEFAULT_TLS_SESSION_CACHE_SIZE = 20000;
+    public static final int DEFAULT_TLS_SESSION_TIMEOUT_SECONDS = 3600;
+    public static final int DEFAULT_PROXY_POOL_SIZE = 16;
+    public static final int DEFAULT_PROXY_MAX_OUTSTANDING = 64;
+    public static final int DEFAULT_PROXY_TIMEOUT_MILLIS = 30000;
+    public static final int DEFAULT_PROXY_IDLE_MILLIS = 4000;
+
+    private int port = DEFAULT_PORT;
+    private String webRoot = DEFAULT_WEB_ROOT;
+    private Engine engine = Engine.BLOCKING;
+    private int reactorThreads = Math.max(1, Runtime.getRuntime().availableProcessors() / 2);
+    private ConnectionExecutor.Mode executorMode = ConnectionExecutor.Mode.VIRTUAL;
+    private int executorThreads = ConnectionExecutor.DEFAULT_POOL_THREADS;
+    private int executorQueueCapacity = ConnectionExecutor.DEFAULT_QUEUE_CAPACITY;
+    private boolean keepAliveEnabled = true;
+    private int keepAliveTimeoutMillis = DEFAULT_KEEP_ALIVE_TIMEOUT_MILLIS;
+    private int maxRequestsPerConnection = DEFAULT_MAX_REQUESTS_PER_CONNECTION;
+    private int headerTimeoutMillis = DEFAULT_HEADER_TIMEOUT_MILLIS;
+    private int writeTimeoutMillis = DEFAULT_WRITE_TIMEOUT_MILLIS;
+    private CacheMode cacheMode = CacheMode.HEAP;
+    private long cacheBytes = DEFAULT_CACHE_BYTES;
+    private long cacheMaxEntryBytes = DEFAULT_CACHE_MAX_ENTRY_BYTES;
+    private long cacheRevalidateMillis = DEFAULT_CACHE_REVALIDATE_MILLIS;
+    private long transferThresholdBytes = DEFAULT_TRANSFER_THRESHOLD_BYTES;
+    private boolean indexEnabled = true;
+    private boolean compressionEnabled = true;
+    private int compressionMinBytes = DEFAULT_COMPRESSION_MIN_BYTES;
+    private boolean metricsEnabled = true;
+    private boolean listingEnabled;
+    private long growingFileWindowMillis;
+    private boolean h2cEnabled = true;
+    private int http2MaxConcurrentStreams = DEFAULT_HTTP2_MAX_CONCURRENT_STREAMS;
+    private boolean webSocketEnabled = true;
+    private int webSocketQueueCapacity = DEFAULT_WEBSOCKET_QUEUE_CAPACITY;
+    private int webSocketMaxMessageBytes = DEFAULT_WEBSOCKET_MAX_MESSAGE_BYTES;
+    private int webSocketIdleMillis = DEFAULT_WEBSOCKET_IDLE_MILLIS;
+    private long webSocketTickMillis = DEFAULT_WEBSOCKET_TICK_MILLIS;
+    private int webSocketSessions = DEFAULT_WEBSOCKET_SESSIONS;
+    private String tlsKeyStore;
+    private String tlsPassword = "";
+    private String tlsKeyStoreType = DEFAULT_TLS_KEYSTORE_TYPE;
+    private String[] tlsProtocols = DEFAULT_TLS_PROTOCOLS.split(",");
+    private int tlsSessionCacheSize = DEFAULT_TLS_SESSION_CACHE_SIZE;
+    private int tlsSessionTimeoutSeconds = DEFAULT_TLS_SESSION_TIMEOUT_SECONDS;
+    private boolean tlsSessionTickets = true;
+    private final Map<String, List<String>> proxyRoutes = new LinkedHashMap<>();
+    private int proxyPoolSize = DEFAULT_PROXY_POOL_SIZE;
+    private int proxyMaxOutstanding = DEFAULT_PROXY_MAX_OUTSTANDING;
+    private int proxyTimeoutMillis = DEFAULT_PROXY_TIMEOUT_MILLIS;
+    private int proxyIdleMillis = DEFAULT_PROXY_IDLE_MILLIS;
+    private LoadBalancer.Policy proxyBalancer = LoadBalancer.Policy.LEAST_OUTSTANDING;
+    private long proxyHealthIntervalMillis = LoadBalancer.DEFAULT_HEALTH_INTERVAL_MILLIS;
+    private String proxyHealthPath;
+    private int maxConnections;
+    private int maxInFlightRequests;
+    private long shedTargetMillis;
+    private long shedIntervalMillis = AdmissionController.DEFAULT_INTERVAL_MILLIS;
+    private int retryAfterSeconds = AdmissionController.DEFAULT_RETRY_AFTER_SECONDS;
+
+    /**
+     * Builds a configuration from the webserver.* system properties, falling back to
+     * the defaults for anything not set
+     * @return Configuration read from the system properties
+     */
+    public static WebServerConfig fromSystemProperties() {
+        WebServerConfig config = new WebServerConfig();
+        config.setPort(Integer.getInteger("webserver.port", config.getPort()));
+        config.setWebRoot(System.getProperty("webserver.root", config.getWebRoot()));
+        config.setReactorThreads(Integer.getInteger("webserver.reactors", config.getReactorThreads()));
+
+        String engineName = System.getProperty("webserver.engine");
+        if (engineName != null) {
+            Engine engine = Engine.fromCommand(engineName.trim());
+            if (engine == null) {
+                throw new IllegalArgumentException("Motor no reconocido: " + engineName +
+                                                   ". Motores disponibles: blocking, nio, reuseport");
+            }
+            config.setEngine(engine);
+        }
+
+        String executorName = System.getProperty("networking.executor");
+        if (executorName != null) {
+            ConnectionExecutor.Mode mode = ConnectionExecutor.Mode.fromCommand(executorName.trim());
+            if (mode == null) {
+                throw new IllegalArgumentException("Modo de ejecución no reconocido: " + executorName +
+                                                   ". Modos disponibles: inline, thread, pool, virtual");
+            }
+            config.setExecutorMode(mode);
+        }
+        config.setExecutorThreads(Integer.getInteger("networking.executor.threads", config.getExecutorThreads()));
+        config.setExecutorQueueCapacity(Integer.getInteger("networking.executor.queue", config.getExecutorQueueCapacity()));
+        config.setMaxConnections(Integer.getInteger("networking.admission.connections", config.getMaxConnections()));
+        config.setMaxInFlightRequests(Integer.getInteger("networking.admission.inflight", config.getMaxInFlightRequests()));
+        config.setShedTargetMillis(Long.getLong("networking.admission.target", config.getShedTargetMillis()));
+        config.setShedIntervalMillis(Long.getLong("networking.admission.interval", config.getShedIntervalMillis()));
+        config.setRetryAfterSeconds(Integer.getInteger("networking.admission.retryafter", config.getRetryAfterSeconds()));
+        config.setKeepAliveEnabled(Boolean.parseBoolean(
+            System.getProperty("webserver.keepalive", String.valueOf(config.isKeepAliveEnabled()))));
+        config.setKeepAliveTimeoutMillis(Integer.getInteger("webserver.keepalive.timeout", config.getKeepAliveTimeoutMillis()));
+        config.setMaxRequestsPerConnection(Integer.getInteger("webserver.keepalive.max", config.getMaxRequestsPerConnection()));
+        config.setHeaderTimeoutMillis(Integer.getInteger("webserver.header.timeout", config.getHeaderTimeoutMillis()));
+        config.setWriteTimeoutMillis(Integer.getInteger("webserver.write.timeout", config.getWriteTimeoutMillis()));
+        String cacheModeName = System.getProperty("webserver.cache.mode");
+        if (cacheModeName != null) {
+            CacheMode cacheMode = CacheMode.fromCommand(cacheModeName.trim());
+            if (cacheMode == null) {
+                throw new IllegalArgumentException("Modo de caché no reconocido: " + cacheModeName +
+                                                   ". Modos disponibles: heap, mmap");
+            }
+            config.setCacheMode(cacheMode);
+        }
+        config.setCacheBytes(Long.getLong("webserver.cache.bytes", config.getCacheBytes()));
+        config.setCacheMaxEntryBytes(Long.getLong("webserver.cache.maxentry", config.getCacheMaxEntryBytes()));
+        config.setCacheRevalidateMillis(Long.getLong("webserver.cache.revalidate", config.getCacheRevalidateMillis()));
+        config.setTransferThresholdBytes(Long.getLong("webserver.transfer.threshold", config.getTransferThresholdBytes()));
+        config.setIndexEnabled(Boolean.parseBoolean(
+            System.getProperty("webserver.index", String.valueOf(config.isIndexEnabled()))));
+        config.setCompressionEnabled(Boolean.parseBoolean(
+            System.getProperty("webserver.compression", String.valueOf(config.isCompressionEnabled()))));
+        config.setCompressionMinBytes(Integer.getInteger("webserver.compression.min", config.getCompressionMinBytes()));
+        config.setMetricsEnabled(Boolean.parseBoolean(
+            System.getProperty("webserver.metrics", String.valueOf(config.isMetricsEnabled()))));
+        config.setListingEnabled(Boolean.parseBoolean(
+            System.getProperty("webserver.listing", String.valueOf(config.isListingEnabled()))));
+        config.setGrowingFileWindowMillis(Long.getLong("webserver.growing.window", config.getGrowingFileWindowMillis()));
+        config.setH2cEnabled(Boolean.parseBoolean(
+            System.getProperty("webserver.h2c", String.valueOf(config.isH2cEnabled()))));
+        config.setHttp2MaxConcurrentStreams(Integer.getInteger("webserver.h2.streams",
+                                                               config.getHttp2MaxConcurrentStreams()));
+        config.setWebSocketEnabled(Boolean.parseBoolean(
+            System.getProperty("webserver.websocket", String.valueOf(config.isWebSocketEnabled()))));
+        config.setWebSocketQueueCapacity(Integer.getInteger("webserver.websocket.queue",
+                                                            config.getWebSocketQueueCapacity()));
+        config.setWebSocketMaxMessageBytes(Integer.getInteger("webserver.websocket.maxmessage",
+                                                              config.getWebSocketMaxMessageBytes()));
+        config.setWebSocketIdleMillis(Integer.getInteger("webserver.websocket.idle", config.getWebSocketIdleMillis()));
+        config.setWebSocketTickMillis(Long.getLong("webserver.websocket.tick", config.getWebSocketTickMillis()));
+        config.setWebSocketSessions(Integer.getInteger("webserver.websocket.sessions", config.getWebSocketSessions()));
+        config.setTlsKeyStore(System.getProperty("webserver.tls.keystore", config.getTlsKeyStore()));
+        config.setTlsPassword(System.getProperty("webserver.tls.password", config.getTlsPassword()));
+        config.setTlsKeyStoreType(System.getProperty("webserver.tls.keystore.type", config.getTlsKeyStoreType()));
+        String protocols = System.getProperty("webserver.tls.protocols");
+        if (protocols != null) {
+            config.setTlsProtocols(protocols.trim().split("\\s*,\\s*"));
+        }
+        config.setTlsSessionCacheSize(Integer.getInteger("webserver.tls.session.cache", config.getTlsSessionCacheSize()));
+        config.setTlsSessionTimeoutSeconds(Integer.getInteger("webserver.tls.session.timeout",
+                                                              config.getTlsSessionTimeoutSeconds()));
+        config.setTlsSessionTickets(Boolean.parseBoolean(
+            System.getProperty("webserver.tls.tickets", String.valueOf(config.isTlsSessionTickets()))));
+        String routes = System.getProperty("webserver.proxy.routes");
+        if (routes != null && !routes.isBlank()) {
+            for (String route : routes.trim().split("\\s*,\\s*")) {
+                int equals = route.indexOf('=');
+                if (equals < 0) {
+                    throw new IllegalArgumentException("Ruta de proxy inválida, se espera prefijo=url: " + route);
+                }
+                config.addProxyRoute(route.substring(0, equals).trim(),
+                                     route.substring(equals + 1).trim().split("\\s*\\|\\s*"));
+            }
+        }
+        String balancer = System.getProperty("webserver.proxy.balancer");
+        if (balancer != null) {
+            LoadBalancer.Policy policy = LoadBalancer.Policy.fromCommand(balancer.trim());
+            if (policy == null) {
+                throw new IllegalArgumentException("Política de balanceo desconocida: " + balancer);
+            }
+            config.setProxyBalancer(policy);
+        }
+        config.setProxyHealthIntervalMillis(Long.getLong("webserver.proxy.health.interval",
+                                                         config.getProxyHealthIntervalMillis()));
+        config.setProxyHealthPath(System.getProperty("webserver.proxy.health.path", config.getProxyHealthPath()));
+        config.setProxyPoolSize(Integer.getInteger("webserver.proxy.pool", config.getProxyPoolSize()));
+        config.setProxyMaxOutstanding(Integer.getInteger("webserver.proxy.outstanding", config.getProxyMaxOutstanding()));
+        config.setProxyTimeoutMillis(Integer.getInteger("webserver.proxy.timeout", config.getProxyTimeoutMillis()));
+        config.setProxyIdleMillis(Integer.getInteger("webserver.proxy.idle", config.getProxyIdleMillis()));
+        return config;
+    }
+
+    public int getPort() { return port; }
+
+    public void setPort(int port) {
+        if (port < 0 || port > 65535) {
+            throw new IllegalArgumentException("Puerto inválido: " + port);
+        }
+        this.port = port;
+    }
+
+    public String getWebRoot() { return webRoot; }
+
+    public void setWebRoot(String webRoot) { this.webRoot = webRoot; }
+
+    public Engine getEngine() { return engine; }
+
+    public void setEngine(Engine engine) { this.engine = engine; }
+
+    public int getReactorThreads() { return reactorThreads; }
+
+    public void setReactorThreads(int reactorThreads) {
+        if (reactorThreads < 1) {
+            throw new IllegalArgumentException("Se requiere al menos un reactor: " + reactorThreads);
+        }
+        this.reactorThreads = reactorThreads;
+    }
+
+    public ConnectionExecutor.Mode getExecutorMode() { return executorMode; }
+
+    public void setExecutorMode(ConnectionExecutor.Mode executorMode) { this.executorMode = executorMode; }
+
+    public int getExecutorThreads() { return executorThreads; }
+
+    public void setExecutorThreads(int executorThreads) { this.executorThreads = executorThreads; }
+
+    public int getExecutorQueueCapacity() { return executorQueueCapacity; }
+
+    public void setExecutorQueueCapacity(int executorQueueCapacity) { this.executorQueueCapacity = executorQueueCapacity; }
+
+    public boolean isKeepAliveEnabled() { return keepAliveEnabled; }
+
+    public void setKeepAliveEnabled(boolean keepAliveEnabled) { this.keepAliveEnabled = keepAliveEnabled; }
+
+    public int getKeepAliveTimeoutMillis() { return keepAliveTimeoutMillis; }
+
+    public void setKeepAliveTimeoutMillis(int keepAliveTimeoutMillis) {
+        if (keepAliveTimeoutMillis < 1) {
+            throw new IllegalArgumentException("Tiempo de espera inválido: " + keepAliveTimeoutMillis);
+        }
+        this.keepAliveTimeoutMillis = keepAliveTimeoutMillis;
+    }
+
+    public int getMaxRequestsPerConnection() { return maxRequestsPerConnection; }
+
+    public void setMaxRequestsPerConnection(int maxRequestsPerConnection) {
+        if (maxRequestsPerConnection < 1) {
+            throw new IllegalArgumentException("Se requiere al menos una solicitud por conexión: " + maxRequestsPerConnection);
+        }
+        this.maxRequestsPerConnection = maxRequestsPerConnection;
+    }
+
+    public int getHeaderTimeoutMillis() { return headerTimeoutMillis; }
+
+    public void setHeaderTimeoutMillis(int headerTimeoutMillis) {
+        if (headerTimeoutMillis < 1) {
+            throw new IllegalArgumentException("Tiempo de lectura de encabezados inválido: " + headerTimeoutMillis);
+        }
+        this.headerTimeoutMillis = headerTimeoutMillis;
+    }
+
+    public int getWriteTimeoutMillis() { return writeTimeoutMillis; }
+
+    public void setWriteTimeoutMillis(int writeTimeoutMillis) {
+        if (writeTimeoutMillis < 1) {
+            throw new IllegalArgumentException("Tiempo de escritura inválido: " + writeTimeoutMillis);
+        }
+        this.writeTimeoutMillis = writeTimeoutMillis;
+    }
+
+    public CacheMode getCacheMode() { return cacheMode; }
+
+    public void setCacheMode(CacheMode cacheMode) { this.cacheMode = cacheMode; }
+
+    public long getCacheBytes() { return cacheBytes; }
+
+    public void setCacheBytes(long cacheBytes) {
+        if (cacheBytes < 0) {
+            throw new IllegalArgumentException("Tamaño de caché inválido: " + cacheBytes);
+        }
+        this.cacheBytes = cacheBytes;
+    }
+
+    public long getCacheMaxEntryBytes() { return cacheMaxEntryBytes; }
+
+    public void setCacheMaxEntryBytes(long cacheMaxEntryBytes) { this.cacheMaxEntryBytes = cacheMaxEntryBytes; }
+
+    public long getCacheRevalidateMillis() { return cacheRevalidateMillis; }
+
+    public void setCacheRevalidateMillis(long cacheRevalidateMillis) { this.cacheRevalidateMillis = cacheRevalidateMillis; }
+
+    public long getTransferThresholdBytes() { return transferThresholdBytes; }
+
+    public void setTransferThresholdBytes(long transferThresholdBytes) {
+        if (transferThresholdBytes < 0) {
+            throw new IllegalArgumentException("Umbral de transferencia inválido: " + transferThresholdBytes);
+        }
+        this.transferThresholdBytes = transferThresholdBytes;
+    }
+
+    public boolean isIndexEnabled() { return indexEnabled; }
+
+    public void setIndexEnabled(boolean indexEnabled) { this.indexEnabled = indexEnabled; }
+
+    public boolean isMetricsEnabled() { return metricsEnabled; }
+
+    public void setMetricsEnabled(boolean metricsEnabled) { this.metricsEnabled = metricsEnabled; }
+
+    public boolean isListingEnabled() { return listingEnabled; }
+
+    public void setListingEnabled(boolean listingEnabled) { this.listingEnabled = listingEnabled; }
+
+    public long getGrowingFileWindowMillis() { return growingFileWindowMillis; }
+
+    public void setGrowingFileWindowMillis(long growingFileWindowMillis) {
+        if (growingFileWindowMillis < 0) {
+            throw new IllegalArgumentException("Ventana de archivos en crecimiento inválida: " + growingFileWindowMillis);
+        }
+        this.growingFileWindowMillis = growingFileWindowMillis;
+    }
+
+    public boolean isH2cEnabled() { return h2cEnabled; }
+
+    public void setH2cEnabled(boolean h2cEnabled) { this.h2cEnabled = h2cEnabled; }
+
+    public int getHttp2MaxConcurrentStreams() { return http2MaxConcurrentStreams; }
+
+    public void setHttp2MaxConcurrentStreams(int http2MaxConcurrentStreams) {
+        if (http2MaxConcurrentStreams < 1) {
+            throw new IllegalArgumentException("Se requiere al menos un stream HTTP/2 concurrente: " +
+                                               http2MaxConcurrentStreams);
+        }
+        this.http2MaxConcurrentStreams = http2MaxConcurrentStreams;
+    }
+
+    public boolean isWebSocketEnabled() { return webSocketEnabled; }
+
+    public void setWebSocketEnabled(boolean webSocketEnabled) { this.webSocketEnabled = webSocketEnabled; }
+
+    public int getWebSocketQueueCapacity() { return webSocketQueueCapacity; }
+
+    public void setWebSocketQueueCapacity(int webSocketQueueCapacity) {
+        if (webSocketQueueCapacity < 1) {
+            throw new IllegalArgumentException("Se requiere al menos una trama en la cola WebSocket: " +
+                                               webSocketQueueCapacity);
+        }
+        this.webSocketQueueCapacity = webSocketQueueCapacity;
+    }
+
+    public int getWebSocketMaxMessageBytes() { return webSocketMaxMessageBytes; }
+
+    public void setWebSocketMaxMessageBytes(int webSocketMaxMessageBytes) {
+        if (webSocketMaxMessageBytes < 1) {
+            throw new IllegalArgumentException("Tamaño máximo de mensaje WebSocket inválido: " + webSocketMaxMessageBytes);
+        }
+        this.webSocketMaxMessageBytes = webSocketMaxMessageBytes;
+    }
+
+    public int getWebSocketIdleMillis() { return webSocketIdleMillis; }
+
+    public void setWebSocketIdleMillis(int webSocketIdleMillis) {
+        if (webSocketIdleMillis < 0) {
+            throw new IllegalArgumentException("Tiempo de inactividad WebSocket inválido: " + webSocketIdleMillis);
+        }
+        this.webSocketIdleMillis = webSocketIdleMillis;
+    }
+
+    public long getWebSocketTickMillis() { return webSocketTickMillis; }
+
+    public void setWebSocketTickMillis(long webSocketTickMillis) {
+        if (webSocketTickMillis < 1) {
+            throw new IllegalArgumentException("Intervalo de envío WebSocket inválido: " + webSocketTickMillis);
+        }
+        this.webSocketTickMillis = webSocketTickMillis;
+    }
+
+    public int getWebSocketSessions() { return webSocketSessions; }
+
+    public void setWebSocketSessions(int webSocketSessions) {
+        if (webSocketSessions < 1) {
+            throw new IllegalArgumentException("Se requiere al menos una sesión WebSocket: " + webSocketSessions);
+        }
+        this.webSocketSessions = webSocketSessions;
+    }
+
+    /** Whether connections are served over TLS, i.e. a keystore has been configured */
+    public boolean isTlsEnabled() { return tlsKeyStore != null; }
+
+    public String getTlsKeyStore() { return tlsKeyStore; }
+
+    public void setTlsKeyStore(String tlsKeyStore) {
+        this.tlsKeyStore = tlsKeyStore == null || tlsKeyStore.isBlank() ? null : tlsKeyStore;
+    }
+
+    public String getTlsPassword() { return tlsPassword; }
+
+    public void setTlsPassword(String tlsPassword) { this.tlsPassword = tlsPassword != null ? tlsPassword : ""; }
+
+    public String getTlsKeyStoreType() { return tlsKeyStoreType; }
+
+    public void setTlsKeyStoreType(String tlsKeyStoreType) { this.tlsKeyStoreType = tlsKeyStoreType; }
+
+    public String[] getTlsProtocols() { return tlsProtocols.clone(); }
+
+    public void setTlsProtocols(String... tlsProtocols) {
+        if (tlsProtocols.length == 0) {
+            throw new IllegalArgumentException("Se requiere al menos un protocolo TLS");
+        }
+        this.tlsProtocols = tlsProtocols.clone();
+    }
+
+    public int getTlsSessionCacheSize() { return tlsSessionCacheSize; }
+
+    public void setTlsSessionCacheSize(int tlsSessionCacheSize) {
+        if (tlsSessionCacheSize < 0) {
+            throw new IllegalArgumentException("Tamaño de caché de sesiones TLS inválido: " + tlsSessionCacheSize);
+        }
+        this.tlsSessionCacheSize = tlsSessionCacheSize;
+    }
+
+    public int getTlsSessionTimeoutSeconds() { return tlsSessionTimeoutSeconds; }
+
+    public void setTlsSessionTimeoutSeconds(int tlsSessionTimeoutSeconds) {
+        if (tlsSessionTimeoutSeconds < 0) {
+            throw new IllegalArgumentException("Duración de sesiones TLS inválida: " + tlsSessionTimeoutSeconds);
+        }
+        this.tlsSessionTimeoutSeconds = tlsSessionTimeoutSeconds;
+    }
+
+    public boolean isTlsSessionTickets() { return tlsSessionTickets; }
+
+    public void setTlsSessionTickets(boolean tlsSessionTickets) { this.tlsSessionTickets = tlsSessionTickets; }
+
+    /** The proxied path prefixes and their upstream URLs, in the order they were added */
+    public Map<String, List<String>> getProxyRoutes() { return Collections.unmodifiableMap(proxyRoutes); }
+
+    /**
+     * Forwards a path prefix to upstream servers. The prefix matches whole path segments
+     * ("/api" matches "/api" and "/api/users" but not "/apis") and is replaced by the path of
+     * the upstream URL. With several upstreams, each request goes to the one chosen by the
+     * proxy balancer.
+     * @param prefix Path prefix starting with "/"
+     * @param upstreamUrls Plain HTTP URLs of the equivalent upstreams, e.g. "http://127.0.0.1:9000/v1"
+     */
+    public void addProxyRoute(String prefix, String... upstreamUrls) {
+        if (prefix == null || !prefix.startsWith("/")) {
+            throw new IllegalArgumentException("El prefijo de proxy debe empezar por '/': " + prefix);
+        }
+        if (upstreamUrls.length == 0) {
+            throw new IllegalArgumentException("Se requiere al menos un upstream para " + prefix);
+        }
+        List<String> urls = new ArrayList<>();
+        for (String upstreamUrl : upstreamUrls) {
+            try {
+                URI uri = new URI(upstreamUrl);
+                if (!"http".equalsIgnoreCase(uri.getScheme()) || uri.getHost() == null
+                    || uri.getRawQuery() != null || uri.getRawFragment() != null) {
+                    throw new IllegalArgumentException("URL de upstream inválida, se espera http://host[:puerto][/ruta]: " +
+                                                       upstreamUrl);
+                }
+            } catch (URISyntaxException e) {
+                throw new IllegalArgumentException("URL de upstream inválida: " + upstreamUrl, e);
+            }
+            urls.add(upstreamUrl);
+        }
+        proxyRoutes.put(prefix, List.copyOf(urls));
+    }
+
+    public LoadBalancer.Policy getProxyBalancer() { return proxyBalancer; }
+
+    public void setProxyBalancer(LoadBalancer.Policy proxyBalancer) {
+        if (proxyBalancer == null) {
+            throw new IllegalArgumentException("Se requiere una política de balanceo");
+        }
+        this.proxyBalancer = proxyBalancer;
+    }
+
+    public long getProxyHealthIntervalMillis() { return proxyHealthIntervalMillis; }
+
+    public void setProxyHealthIntervalMillis(long proxyHealthIntervalMillis) {
+        if (proxyHealthIntervalMillis < 0) {
+            throw new IllegalArgumentException("Intervalo de chequeo de salud inválido: " + proxyHealthIntervalMillis);
+        }
+        this.proxyHealthIntervalMillis = proxyHealthIntervalMillis;
+    }
+
+    /** Path of the HTTP health checks, or null when they only connect */
+    public String getProxyHealthPath() { return proxyHealthPath; }
+
+    public void setProxyHealthPath(String proxyHealthPath) {
+        if (proxyHealthPath != null && !proxyHealthPath.startsWith("/")) {
+            throw new IllegalArgumentException("La ruta del chequeo de salud debe empezar por '/': " + proxyHealthPath);
+        }
+        this.proxyHealthPath = proxyHealthPath;
+    }
+
+    public int getProxyPoolSize() { return proxyPoolSize; }
+
+    public void setProxyPoolSize(int proxyPoolSize) {
+        if (proxyPoolSize < 0) {
+            throw new IllegalArgumentException("Tamaño de pool de proxy inválido: " + proxyPoolSize);
+        }
+        this.proxyPoolSize = proxyPoolSize;
+    }
+
+    public int getProxyMaxOutstanding() { return proxyMaxOutstanding; }
+
+    public void setProxyMaxOutstanding(int proxyMaxOutstanding) {
+        if (proxyMaxOutstanding < 1) {
+            throw new IllegalArgumentException("Se requiere al menos una solicitud por upstream: " + proxyMaxOutstanding);
+        }
+        this.proxyMaxOutstanding = proxyMaxOutstanding;
+    }
+
+    public int getProxyTimeoutMillis() { return proxyTimeoutMillis; }
+
+    public void setProxyTimeoutMillis(int proxyTimeoutMillis) {
+        if (proxyTimeoutMillis < 1) {
+            throw new IllegalArgumentException("Tiempo de espera de proxy inválido: " + proxyTimeoutMillis);
+        }
+        this.proxyTimeoutMillis = proxyTimeoutMillis;
+    }
+
+    public int getProxyIdleMillis() { return proxyIdleMillis; }
+
+    public void setProxyIdleMillis(int proxyIdleMillis) {
+        if (proxyIdleMillis < 0) {
+            throw new IllegalArgumentException("Tiempo de inactividad de proxy inválido: " + proxyIdleMillis);
+        }
+        this.proxyIdleMillis = proxyIdleMillis;
+    }
+
+    public boolean isCompressionEnabled() { return compressionEnabled; }
+
+    public void setCompressionEnabled(boolean compressionEnabled) { this.compressionEnabled = compressionEnabled; }
+
+    public int getCompressionMinBytes() { return compressionMinBytes; }
+
+    public void setCompressionMinBytes(int compressionMinBytes) {
+        if (compressionMinBytes < 0) {
+            throw new IllegalArgumentException("Tamaño mínimo de compresión inválido: " + compressionMinBytes);
+        }
+        this.compressionMinBytes = compressionMinBytes;
+    }
+
+    public int getMaxConnections() { return maxConnections; }
+
+    public void setMaxConnections(int maxConnections) {
+        if (maxConnections < 0) {
+            throw new IllegalArgumentException("Límite de conexiones inválido: " + maxConnections);
+        }
+        this.maxConnections = maxConnections;
+    }
+
+    public int getMaxInFlightRequests() { return maxInFlightRequests; }
+
+    public void setMaxInFlightRequests(int maxInFlightRequests) {
+        if (maxInFlightRequests < 0) {
+            throw new IllegalArgumentException("Límite de solicitudes en curso inválido: " + maxInFlightRequests);
+        }
+        this.maxInFlightRequests = maxInFlightRequests;
+    }
+
+    public long getShedTargetMillis() { return shedTargetMillis; }
+
+    public void setShedTargetMillis(long shedTargetMillis) {
+        if (shedTargetMillis < 0) {
+            throw new IllegalArgumentException("Objetivo de espera inválido: " + shedTargetMillis);
+        }
+        this.shedTargetMillis = shedTargetMillis;
+    }
+
+    public long getShedIntervalMillis() { return shedIntervalMillis; }
+
+    public void setShedIntervalMillis(long shedIntervalMillis) {
+        if (shedIntervalMillis < 1) {
+            throw new IllegalArgumentException("Intervalo de descarte inválido: " + shedIntervalMillis);
+        }
+        this.shedIntervalMillis = shedIntervalMillis;
+    }
+
+    public int getRetryAfterSeconds() { return retryAfterSeconds; }
+
+    public void setRetryAfterSeconds(int retryAfterSeconds) {
+        if (retryAfterSeconds < 0) {
+            throw new IllegalArgumentException("Retry-After inválido: " + retryAfterSeconds);
+        }
+        this.retryAfterSeconds = retryAfterSeconds;
+    }
+
+    /**
+     * Creates the admission controller that limits and sheds the server's load
+     * @return A new admission controller for this configuration
+     */
+    AdmissionController createAdmissionController() {
+        return AdmissionController.create("http", maxConnections, maxInFlightRequests, shedTargetMillis,
+                                          shedIntervalMillis, retryAfterSeconds);
+    }
+
+    /**
+     * Creates the executor that runs connections for the blocking engine
+     * @return A new connection executor for this configuration
+     */
+    ConnectionExecutor createConnectionExecutor() {
+        return ConnectionExecutor.create(executorMode, "http", executorThreads, executorQueueCapacity);
+    }
+
+    /**
+     * Creates the executor that runs proxied requests off the reactors of the nio engines;
+     * the inline mode would run them on the reactor, so it uses the bounded pool instead
+     * @return A new executor for proxied requests
+     */
+    ConnectionExecutor createProxyExecutor() {
+        ConnectionExecutor.Mode mode = executorMode == ConnectionExecutor.Mode.INLINE
+            ? ConnectionExecutor.Mode.POOL : executorMode;
+        return ConnectionExecutor.create(mode, "nio-proxy", executorThreads, executorQueueCapacity);
+    }
+}
@@ -0,0 +1,341 @@
+package edu.eci.arsw.networking;
+
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+import java.net.SocketTimeoutException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Base64;
+
+/**
+ * Framing of the WebSocket protocol (RFC 6455): the opening handshake key, the frames the
+ * server sends and a reader for the frames clients send.
+ *
+ * Server frames are never masked, so a frame is encoded once into a heap buffer and the
+ * same buffer can be written as is to every connection that should receive it (see
+ * {@link WebSocketEndpoint#broadcast(String)}). Client frames are always masked: the
+ * reader copies each payload straight into its destination array and removes the mask
+ * there, eight bytes per step, without a second buffer.
+ *
+ * Extensions are not negotiated, so the reserved bits must be clear.
+ *
+ * @author GitHub Copilot Implementation
+ * @version 1.0
+ */
+final class WebSocketCodec {
+
+    static final int CONTINUATION = 0x0;
+    static final int TEXT = 0x1;
+    static final int BINARY = 0x2;
+    static final int CLOSE = 0x8;
+    static final int PING = 0x9;
+    static final int PONG = 0xA;
+
+    static final int CLOSE_NORMAL = 1000;
+    static final int CLOSE_GOING_AWAY = 1001;
+    static final int CLOSE_PROTOCOL_ERROR = 1002;
+    static final int CLOSE_NO_STATUS = 1005;
+    static final int CLOSE_ABNORMAL = 1006;
+    static final int CLOSE_INVALID_DATA = 1007;
+    static final int CLOSE_TOO_BIG = 1009;
+    static final int CLOSE_INTERNAL_ERROR = 1011;
+
+    /** Largest payload of a control frame (ping, pong, close) */
+    static final int MAX_CONTROL_PAYLOAD = 125;
+
+    /** Appended to the client's key before hashing it into Sec-WebSocket-Accept */
+    private static final String HANDSHAKE_GUID = "258EAFA5-E914-47DA-95CA-C5AB0DC85B11";
+
+    private static final VarHandle LONGS = MethodHandles.byteArrayViewVarHandle(long[].class, ByteOrder.BIG_ENDIAN);
+
+    private WebSocketCodec() {
+    }
+
+    /**
+     * A violation of the protocol by the client, which ends the connection with a close
+     * frame carrying the given status code
+     */
+    static final class ProtocolException extends IOException {
+
+        private static final long serialVersionUID = 1L;
+
+        private final int closeCode;
+
+        ProtocolException(int closeCode, String message) {
+            super(message);
+            this.closeCode = closeCode;
+        }
+
+        int getCloseCode() { return closeCode; }
+    }
+
+    /**
+     * Computes the Sec-WebSocket-Accept value that proves the server read the handshake
+     * @param key Value of the client's Sec-WebSocket-Key header
+     * @return Base64 of the SHA-1 of the key followed by the protocol GUID
+     */
+    static String acceptKey(String key) {
+        try {
+            MessageDigest sha1 = MessageDigest.getInstance("SHA-1");
+            byte[] digest = sha1.digest((key + HANDSHAKE_GUID).getBytes(StandardCharsets.ISO_8859_1));
+            return Base64.getEncoder().encodeToString(digest);
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-1 no disponible", e);
+        }
+    }
+
+    /**
+     * Checks a Sec-WebSocket-Key: the Base64 encoding of 16 bytes
+     * @param key Value of the header
+     * @return true if the key is well formed
+     */
+    static boolean isValidKey(String key) {
+        try {
+            return Base64.getDecoder().decode(key).length == 16;
+        } catch (IllegalArgumentException e) {
+            return false;
+        }
+    }
+
+    /**
+     * Encodes a complete, unmasked frame
+     * @param opcode Frame type
+     * @param payload Payload bytes
+     * @param offset Start of the payload in the array
+     * @param length Payload length
+     * @return A buffer holding the whole frame; its position and limit are never changed
+     *         by the writers, so it may be shared between connections
+     */
+    static ByteBuffer encode(int opcode, byte[] payload, int offset, int length) {
+        int headerLength = length < 126 ? 2 : length <= 0xFFFF ? 4 : 10;
+        byte[] frame = new byte[headerLength + length];
+        frame[0] = (byte) (0x80 | opcode);
+        if (length < 126) {
+            frame[1] = (byte) length;
+        } else if (length <= 0xFFFF) {
+            frame[1] = 126;
+            frame[2] = (byte) (length >>> 8);
+            frame[3] = (byte) length;
+        } else {
+            frame[1] = 127;
+            for (int i = 0; i < 8; i++) {
+                frame[2 + i] = (byte) ((long) length >>> (56 - 8 * i));
+            }
+        }
+        System.arraycopy(payload, offset, frame, headerLength, length);
+        return ByteBuffer.wrap(frame);
+    }
+
+    /**
+     * Encodes a text message in one frame
+     * @param text Message text
+     * @return The encoded frame
+     */
+    static ByteBuffer encodeText(String text) {
+        byte[] payload = text.getBytes(StandardCharsets.UTF_8);
+        return encode(TEXT, payload, 0, payload.length);
+    }
+
+    /**
+     * Encodes a close frame
+     * @param code Status code, or {@link #CLOSE_NO_STATUS} for a close frame without one
+     * @param reason Reason text, cut to fit a control frame
+     * @return The encoded frame
+     */
+    static ByteBuffer encodeClose(int code, String reason) {
+        if (code == CLOSE_NO_STATUS) {
+            return encode(CLOSE, new byte[0], 0, 0);
+        }
+        byte[] text = reason == null ? new byte[0] : reason.getBytes(StandardCharsets.UTF_8);
+        int textLength = Math.min(text.length, MAX_CONTROL_PAYLOAD - 2);
+        // A cut must not split a UTF-8 sequence
+        while (textLength > 0 && textLength < text.length && (text[textLength] & 0xC0) == 0x80) {
+            textLength--;
+        }
+        byte[] payload = new byte[2 + textLength];
+        payload[0] = (byte) (code >>> 8);
+        payload[1] = (byte) code;
+        System.arraycopy(text, 0, payload, 2, textLength);
+        return encode(CLOSE, payload, 0, payload.length);
+    }
+
+    /**
+     * Checks whether a status code may appear in a close frame sent by a peer
+     * @param code Status code read from a close frame
+     * @return true for the codes defined by RFC 6455 and the registered and private ranges
+     */
+    static boolean isValidCloseCode(int code) {
+        if (code >= 3000 && code <= 4999) {
+            return true;
+        }
+        return code >= 1000 && code <= 1014 && code != 1004 && code != CLOSE_NO_STATUS && code != CLOSE_ABNORMAL;
+    }
+
+    /**
+     * Removes (or applies, it is the same XOR) a masking key in place. The key is widened
+     * to a long so most of the payload is processed eight bytes at a time.
+     * @param data Array holding the payload
+     * @param offset Start of the payload, where the key's first byte applies
+     * @param length Payload length
+     * @param mask Masking key, first key byte in the high-order bits
+     */
+    static void unmask(byte[] data, int offset, int length, int mask) {
+        long wideMask = (mask & 0xFFFFFFFFL) << 32 | (mask & 0xFFFFFFFFL);
+        int end = offset + length;
+        int i = offset;
+        for (; i + 8 <= end; i += 8) {
+            LONGS.set(data, i, (long) LONGS.get(data, i) ^ wideMask);
+        }
+        // What is left starts at a multiple of four from the payload start, so at key byte 0
+        for (int shift = 24; i < end; i++, shift = (shift + 24) & 31) {
+            data[i] ^= (byte) (mask >>> shift);
+        }
+    }
+
+    /**
+     * Reads client frames from a connection. Bytes already read past the handshake, kept in
+     * the connection's input buffer, are consumed first. Each frame is read in two steps:
+     * {@link #readHeader()} and then {@link #readPayload(byte[], int)}.
+     */
+    static final class FrameReader {
+
+        private final InputStream in;
+        private final ByteBuffer input;
+        private boolean fin;
+        private int opcode;
+        private long payloadLength;
+        private int mask;
+
+        /**
+         * Creates a reader
+         * @param in Stream of the connection
+         * @param input Buffer in read mode with bytes already received
+         */
+        FrameReader(InputStream in, ByteBuffer input) {
+            this.in = in;
+            this.input = input;
+        }
+
+        /**
+         * Reads and checks the next frame header
+         * @return false if the connection ended cleanly before a new frame
+         * @throws SocketTimeoutException If no frame started within the read timeout; the
+         *         reader may be used again
+         * @throws ProtocolException If the header breaks the protocol
+         * @throws IOException If the connection fails or ends within the header
+         */
+        boolean readHeader() throws IOException {
+            if (!fill(2, true)) {
+                return false;
+            }
+            int first = input.get() & 0xFF;
+            int second = input.get() & 0xFF;
+            fin = (first & 0x80) != 0;
+            opcode = first & 0x0F;
+            if ((first & 0x70) != 0) {
+                throw new ProtocolException(CLOSE_PROTOCOL_ERROR, "Bits reservados sin extensión negociada");
+            }
+            if ((second & 0x80) == 0) {
+                throw new ProtocolException(CLOSE_PROTOCOL_ERROR, "Trama del cliente sin enmascarar");
+            }
+            payloadLength = second & 0x7F;
+            if (payloadLength == 126) {
+                fill(2, false);
+                payloadLength = input.getShort() & 0xFFFF;
+            } else if (payloadLength == 127) {
+                fill(8, false);
+                payloadLength = input.getLong();
+                if (payloadLength < 0) {
+                    throw new ProtocolException(CLOSE_PROTOCOL_ERROR, "Longitud de trama inválida");
+                }
+            }
+            if (isControl()) {
+                if (!fin || payloadLength > MAX_CONTROL_PAYLOAD) {
+                    throw new ProtocolException(CLOSE_PROTOCOL_ERROR, "Trama de control fragmentada o demasiado larga");
+                }
+            } else if (opcode != CONTINUATION && opcode != TEXT && opcode != BINARY) {
+                throw new ProtocolException(CLOSE_PROTOCOL_ERROR, "Código de operación desconocido: " + opcode);
+            }
+            fill(4, false);
+            mask = input.getInt();
+            return true;
+        }
+
+        /**
+         * Reads the payload of the current frame into an array and unmasks it there
+         * @param target Destination array, with room for {@link #getPayloadLength()} bytes
+         * @param offset Where the payload starts in the array
+         * @throws IOException If the connection fails or ends within the payload
+         */
+        void readPayload(byte[] target, int offset) throws IOException {
+            int length = (int) payloadLength;
+            int buffered = Math.min(length, input.remaining());
+            input.get(target, offset, buffered);
+            int position = offset + buffered;
+            int end = offset + length;
+            while (position < end) {
+                // Large payloads bypass the input buffer
+                int read;
+                try {
+                    read = in.read(target, position, end - position);
+                } catch (SocketTimeoutException e) {
+                    throw new IOException("Tiempo de espera agotado dentro de una trama", e);
+                }
+                if (read < 0) {
+                    throw new EOFException("Conexión cerrada dentro de una trama");
+                }
+                position += read;
+            }
+            unmask(target, offset, length, mask);
+        }
+
+        boolean isFin() { return fin; }
+
+        int getOpcode() { return opcode; }
+
+        long getPayloadLength() { return payloadLength; }
+
+        boolean isControl() { return (opcode & 0x08) != 0; }
+
+        /**
+         * Makes sure the input buffer holds at least the given number of bytes
+         * @param needed Bytes required
+         * @param atFrameStart Whether the connection may end here without error
+         * @return false if the connection ended at a frame boundary
+         * @throws SocketTimeoutException If the read timeout passed before a new frame; the
+         *         reader is left as it was and may be used again
+         */
+        private boolean fill(int needed, boolean atFrameStart) throws IOException {
+            while (input.remaining() < needed) {
+                boolean empty = !input.hasRemaining();
+                input.compact();
+                int read;
+                try {
+                    read = in.read(input.array(), input.position(), input.remaining());
+                } catch (SocketTimeoutException e) {
+                    input.flip();
+                    if (atFrameStart && empty) {
+                        throw e;
+                    }
+                    throw new IOException("Tiempo de espera agotado dentro de una trama", e);
+                }
+                if (read < 0) {
+                    input.flip();
+                    if (atFrameStart && empty) {
+                        return false;
+                    }
+                    throw new EOFException("Conexión cerrada dentro de una trama");
+                }
+                input.position(input.position() + read);
+                input.flip();
+            }
+            return true;
+        }
+    }
+}
@@ -0,0 +1,167 @@
+package edu.eci.arsw.networking;
+
+import java.nio.ByteBuffer;
+import java.util.Collections;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executor;
+
+/**
+ * A path of {@link SimpleWebServer} that clients upgrade to WebSocket, with the sessions
+ * connected to it. Registered with {@link SimpleWebServer#addWebSocketEndpoint}.
+ *
+ * A broadcast encodes its message into one frame and hands that same buffer to the
+ * outbound queue of every session, so sending to all subscribers costs one encoding plus
+ * one queue entry per subscriber, and every socket write reads from the shared array.
+ * Writes happen on the server's WebSocket writer threads, never on the thread that
+ * broadcasts, and never block on a client that stops reading (see
+ * {@link WebSocketSession}). A subscriber whose queue already holds
+ * webserver.websocket.queue messages is not keeping up; it is disconnected instead of
+ * letting its backlog grow without bound.
+ *
+ * Each session keeps a thread of the blocking engine for reading, so an endpoint serves
+ * at most webserver.websocket.sessions subscribers at once, shared with the other
+ * endpoints of the server.
+ *
+ * @author GitHub Copilot Implementation
+ * @version 1.0
+ */
+public final class WebSocketEndpoint {
+
+    private final String path;
+    private final WebSocketHandler handler;
+    private final Executor writers;
+    private final WebServerConfig config;
+    private final Set<WebSocketSession> sessions = ConcurrentHashMap.newKeySet();
+    private final MetricsRegistry.Counter connections;
+    private final MetricsRegistry.Counter messagesReceived;
+    private final MetricsRegistry.Counter framesSent;
+    private final MetricsRegistry.Counter slowConsumers;
+    private final RouteMetrics route;
+    private volatile boolean shutDown;
+
+    /**
+     * Creates an endpoint
+     * @param path Request path clients upgrade on
+     * @param handler Receives the messages of every session
+     * @param writers Threads that write the outbound queues to the sockets
+     * @param config Server configuration: queue cap, message size limit and timeouts
+     */
+    WebSocketEndpoint(String path, WebSocketHandler handler, Executor writers, WebServerConfig config) {
+        this.path = path;
+        this.handler = handler;
+        this.writers = writers;
+        this.config = config;
+        MetricsRegistry metrics = MetricsRegistry.shared();
+        this.connections = metrics.counter("websocket_connections_total",
+                                           "Conexiones WebSocket aceptadas por ruta", "path").labels(path);
+        this.messagesReceived = metrics.counter("websocket_messages_received_total",
+                                                "Mensajes WebSocket recibidos por ruta", "path").labels(path);
+        this.framesSent = metrics.counter("websocket_frames_sent_total",
+                                          "Tramas WebSocket encoladas para envío por ruta", "path").labels(path);
+        this.slowConsumers = metrics.counter("websocket_slow_consumers_total",
+                                             "Sesiones WebSocket cerradas por llenar su cola de salida",
+                                             "path").labels(path);
+        this.route = new RouteMetrics(path);
+    }
+
+    /**
+     * Gets the path of this endpoint
+     * @return Request path, e.g. "/ws/chat"
+     */
+    public String getPath() { return path; }
+
+    /**
+     * Gets the handler of this endpoint
+     * @return The handler that receives the messages
+     */
+    public WebSocketHandler getHandler() { return handler; }
+
+    /**
+     * Gets the open sessions
+     * @return Live read-only view of the sessions
+     */
+    public Set<WebSocketSession> getSessions() { return Collections.unmodifiableSet(sessions); }
+
+    /**
+     * Gets the number of open sessions
+     * @return Sessions connected to this endpoint
+     */
+    public int getSessionCount() { return sessions.size(); }
+
+    /**
+     * Sends a text message to every open session
+     * @param text Message text
+     * @return Number of sessions the message was queued for
+     */
+    public int broadcast(String text) {
+        return broadcast(WebSocketCodec.encodeText(text));
+    }
+
+    /**
+     * Sends a binary message to every open session
+     * @param data Message bytes
+     * @return Number of sessions the message was queued for
+     */
+    public int broadcast(byte[] data) {
+        return broadcast(WebSocketCodec.encode(WebSocketCodec.BINARY, data, 0, data.length));
+    }
+
+    /**
+     * Queues one encoded frame for every open session
+     * @param frame Frame shared by all sessions, never modified
+     * @return Number of sessions the frame was queued for
+     */
+    int broadcast(ByteBuffer frame) {
+        int queued = 0;
+        for (WebSocketSession session : sessions) {
+            if (session.enqueue(frame)) {
+                queued++;
+            }
+        }
+        return queued;
+    }
+
+    /**
+     * Starts the close handshake of every open session when the server stops; sessions
+     * that open afterwards are closed right away
+     * @param code Status code sent in the close frames
+     * @param reason Reason sent in the close frames
+     */
+    void shutdown(int code, String reason) {
+        shutDown = true;
+        ByteBuffer closeFrame = WebSocketCodec.encodeClose(code, reason);
+        for (WebSocketSession session : sessions) {
+            session.close(closeFrame);
+        }
+    }
+
+    /**
+     * Registers a session whose handshake has been answered
+     * @param session The new session
+     * @return false if the endpoint has been shut down, in which case the session should close
+     */
+    boolean add(WebSocketSession session) {
+        sessions.add(session);
+        connections.increment();
+        // Re-check after registering: a shutdown() that ran just before would not have
+        // seen this session
+        return !shutDown;
+    }
+
+    void remove(WebSocketSession session) {
+        sessions.remove(session);
+    }
+
+    Executor getWriters() { return writers; }
+
+    WebServerConfig getConfig() { return config; }
+
+    MetricsRegistry.Counter getMessagesReceived() { return messagesReceived; }
+
+    MetricsRegistry.Counter getFramesSent() { return framesSent; }
+
+    MetricsRegistry.Counter getSlowConsumers() { return slowConsumers; }
+
+    RouteMetrics getRoute() { return route; }
+}
@@ -0,0 +1,100 @@
+package edu.eci.arsw.networking;
+
+import java.io.Closeable;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * The WebSocket endpoints {@link SimpleWebServer} serves on its own when
+ * webserver.websocket is enabled:
+ * - /ws/chat - every text message is relayed to all the clients of the room, sender included
+ * - /ws/time - the server time, pushed every webserver.websocket.tick milliseconds
+ * - /ws/metrics - the Prometheus export of the JVM, pushed at the same pace (only when
+ *   /metrics is enabled)
+ *
+ * The pushes run on the shared {@link HashedWheelTimer} and are skipped while nobody is
+ * subscribed, so the feeds cost nothing until a client connects. Each push is encoded
+ * once for all the subscribers of its feed.
+ *
+ * @author GitHub Copilot Implementation
+ * @version 1.0
+ */
+final class WebSocketFeeds implements Closeable {
+
+    static final String CHAT_PATH = "/ws/chat";
+    static final String TIME_PATH = "/ws/time";
+    static final String METRICS_PATH = "/ws/metrics";
+
+    private static final DateTimeFormatter TIME_FORMAT = DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm:ss");
+
+    private final WebSocketEndpoint time;
+    private final WebSocketEndpoint metrics;
+    private final long tickMillis;
+    private volatile HashedWheelTimer.Timeout nextTick;
+    private volatile boolean closed;
+
+    /**
+     * Registers the feeds on a server
+     * @param server Server that serves them
+     * @param config Server configuration: push interval and whether /metrics is enabled
+     */
+    WebSocketFeeds(SimpleWebServer server, WebServerConfig config) {
+        server.addWebSocketEndpoint(CHAT_PATH, new WebSocketHandler() {
+            @Override
+            public void onText(WebSocketSession session, String text) {
+                session.getEndpoint().broadcast(session.getRemoteAddress() + ": " + text);
+            }
+        });
+        this.time = server.addWebSocketEndpoint(TIME_PATH, new WebSocketHandler() { });
+        this.metrics = config.isMetricsEnabled()
+            ? server.addWebSocketEndpoint(METRICS_PATH, new WebSocketHandler() { }) : null;
+        this.tickMillis = config.getWebSocketTickMillis();
+    }
+
+    /**
+     * Starts the periodic pushes
+     */
+    void start() {
+        schedule();
+    }
+
+    private void schedule() {
+        if (closed) {
+            return;
+        }
+        try {
+            nextTick = HashedWheelTimer.shared().schedule(this::tick, tickMillis, TimeUnit.MILLISECONDS);
+        } catch (IllegalStateException e) {
+            // The timer is stopping with the JVM
+        }
+    }
+
+    /**
+     * Pushes the feeds that have subscribers; runs on the timer thread, and broadcasting
+     * only queues the frames
+     */
+    private void tick() {
+        if (time.getSessionCount() > 0) {
+            time.broadcast(LocalDateTime.now().format(TIME_FORMAT));
+        }
+        if (metrics != null && metrics.getSessionCount() > 0) {
+            StringBuilder export = new StringBuilder();
+            MetricsRegistry.shared().writePrometheus(export);
+            metrics.broadcast(export.toString());
+        }
+        schedule();
+    }
+
+    /**
+     * Stops the periodic pushes
+     */
+    @Override
+    public void close() {
+        closed = true;
+        HashedWheelTimer.Timeout tick = nextTick;
+        if (tick != null) {
+            tick.cancel();
+        }
+    }
+}
@@ -0,0 +1,49 @@
+package edu.eci.arsw.networking;
+
+/**
+ * Application side of a {@link WebSocketEndpoint}: receives the messages of each connected
+ * client and decides what to send back or to the other subscribers.
+ *
+ * Callbacks run on the thread that reads the connection, one at a time per connection,
+ * and fragmented messages arrive already reassembled. Sending never blocks the callback:
+ * {@link WebSocketSession#sendText(String)} and the broadcasts only queue the frame. An
+ * exception thrown by a callback closes the connection with status 1011.
+ *
+ * @author GitHub Copilot Implementation
+ * @version 1.0
+ */
+public interface WebSocketHandler {
+
+    /**
+     * Called once the handshake has been answered and the session can send
+     * @param session The new session
+     */
+    default void onOpen(WebSocketSession session) {
+    }
+
+    /**
+     * Called for every complete text message
+     * @param session Session the message arrived on
+     * @param text The message, already checked to be valid UTF-8
+     */
+    default void onText(WebSocketSession session, String text) {
+    }
+
+    /**
+     * Called for every complete binary message
+     * @param session Session the message arrived on
+     * @param data The message bytes, owned by the handler
+     */
+    default void onBinary(WebSocketSession session, byte[] data) {
+    }
+
+    /**
+     * Called once when the session ends, whoever closed it
+     * @param session The session that ended
+     * @param code Status code of the close frame received, 1005 if it had none, or 1006
+     *             if the connection ended without a close handshake
+     * @param reason Reason text of the close frame received, empty if none
+     */
+    default void onClose(WebSocketSession session, int code, String reason) {
+    }
+}
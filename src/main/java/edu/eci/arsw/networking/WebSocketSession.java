@@ -0,0 +1,643 @@
+package edu.eci.arsw.networking;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.Socket;
+import java.net.SocketTimeoutException;
+import java.nio.ByteBuffer;
+import java.nio.channels.CancelledKeyException;
+import java.nio.channels.ClosedSelectorException;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.nio.channels.SocketChannel;
+import java.nio.charset.CharacterCodingException;
+import java.nio.charset.CharsetDecoder;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * One WebSocket connection (RFC 6455) of a {@link WebSocketEndpoint}, entered from the
+ * blocking engine of {@link SimpleWebServer} once an HTTP/1.1 request asking for
+ * "Upgrade: websocket" has been answered with 101 Switching Protocols.
+ *
+ * The thread that owned the HTTP connection keeps reading it: it reassembles fragmented
+ * messages, answers pings with pongs and the client's close frame with its own, and hands
+ * every complete message to the endpoint's {@link WebSocketHandler}. It never writes.
+ * Everything sent, messages and control frames alike, goes through an outbound queue of
+ * encoded frames that one of the server's writer threads drains to the socket, so a
+ * broadcast or a slow client never blocks the reader or the broadcaster. A frame in the
+ * queue may be shared with other sessions: it is written through a view of its own and
+ * never modified.
+ *
+ * The socket is switched to non-blocking mode on upgrade, so a writer thread only writes
+ * what the socket buffer takes. When the client stops reading, the writer leaves the rest
+ * of the frame pending and moves on to other sessions; the session's own selector, which
+ * its reader thread waits on, reports when the socket is writable again and hands the
+ * session back to the writers. A session with a long backlog is also put back at the end
+ * of the writers' queue after every {@value #WRITE_SLICE_BYTES} bytes, so the few writer
+ * threads take turns among all sessions with something to send and a stalled or busy
+ * client never delays the others.
+ *
+ * Since every session holds a thread of the blocking engine for its whole life, the server
+ * opens at most webserver.websocket.sessions of them at once (100 by default) and answers
+ * further upgrades with 503, leaving the remaining threads to plain HTTP. Serving more
+ * subscribers takes a larger budget and the thread-per-connection executor.
+ *
+ * When no frame arrives for webserver.websocket.idle milliseconds the server sends a
+ * ping; a client that stays silent for another period is disconnected. A client that
+ * accepts no bytes of a pending write for the connection's write timeout is disconnected
+ * as well, like a stalled HTTP response.
+ *
+ * @author GitHub Copilot Implementation
+ * @version 1.0
+ */
+public final class WebSocketSession {
+
+    /** Time the client has to answer a close frame before the connection is dropped */
+    static final long CLOSE_TIMEOUT_MILLIS = 5000;
+
+    private static final int INITIAL_MESSAGE_SIZE = 4096;
+    /** Larger reassembly buffers are released after their message, not kept for the next one */
+    private static final int RETAINED_MESSAGE_SIZE = 64 * 1024;
+    private static final ByteBuffer PING_FRAME = WebSocketCodec.encode(WebSocketCodec.PING, new byte[0], 0, 0);
+    /** Bytes a writer thread sends to one session before giving the other sessions a turn */
+    static final int WRITE_SLICE_BYTES = 64 * 1024;
+
+    private final WebSocketEndpoint endpoint;
+    private final Socket clientSocket;
+    private final SocketChannel channel;
+    private final Selector selector;
+    private final SelectionKey key;
+    private final HashedWheelTimer.Watchdog watchdog;
+    private final EventLog eventLog;
+    private final String clientAddress;
+    private final WebSocketCodec.FrameReader reader;
+    private final int queueCapacity;
+    private final int maxMessageBytes;
+    private final int writeTimeoutMillis;
+    private final int idleMillis;
+
+    private final Queue<ByteBuffer> outbound = new ConcurrentLinkedQueue<>();
+    private final AtomicInteger queuedFrames = new AtomicInteger();
+    private final AtomicBoolean writing = new AtomicBoolean();
+    private final AtomicBoolean closeQueued = new AtomicBoolean();
+    private volatile boolean open = true;
+    private volatile boolean writeFailed;
+    private volatile boolean flushing;
+    private volatile HashedWheelTimer.Timeout closeTimeout;
+    /** Rest of a frame the socket did not take yet, owned by whichever writer drains the session */
+    private volatile ByteBuffer pending;
+
+    // Reader state, only used by the connection's thread
+    private final byte[] control = new byte[WebSocketCodec.MAX_CONTROL_PAYLOAD];
+    private final CharsetDecoder utf8 = StandardCharsets.UTF_8.newDecoder();
+    private byte[] message = new byte[INITIAL_MESSAGE_SIZE];
+    private int messageLength;
+    private int messageOpcode = -1;
+    private boolean pingOutstanding;
+    private int receivedCloseCode = WebSocketCodec.CLOSE_ABNORMAL;
+    private String receivedCloseReason = "";
+
+    /**
+     * Creates the session of an upgraded connection and switches its socket to non-blocking
+     * mode; the connection's streams cannot be used afterwards
+     * @param endpoint Endpoint the client upgraded on
+     * @param clientSocket The socket connection to the client, accepted through a channel
+     * @param input Bytes already read after the upgrade request, in read mode
+     * @throws IOException If the socket cannot be registered with a selector
+     */
+    WebSocketSession(WebSocketEndpoint endpoint, Socket clientSocket, ByteBuffer input) throws IOException {
+        this.endpoint = endpoint;
+        this.clientSocket = clientSocket;
+        this.channel = clientSocket.getChannel();
+        this.eventLog = EventLog.shared();
+        this.clientAddress = clientSocket.getInetAddress().getHostAddress();
+        this.reader = new WebSocketCodec.FrameReader(new ChannelInput(), input);
+        WebServerConfig config = endpoint.getConfig();
+        this.queueCapacity = config.getWebSocketQueueCapacity();
+        this.maxMessageBytes = config.getWebSocketMaxMessageBytes();
+        this.writeTimeoutMillis = config.getWriteTimeoutMillis();
+        this.idleMillis = config.getWebSocketIdleMillis();
+        this.selector = Selector.open();
+        try {
+            channel.configureBlocking(false);
+            this.key = channel.register(selector, SelectionKey.OP_READ);
+        } catch (IOException e) {
+            selector.close();
+            throw e;
+        }
+        this.watchdog = HashedWheelTimer.shared().watchdog(this::abort);
+    }
+
+    /**
+     * Checks whether a request asks to upgrade to WebSocket: a GET over HTTP/1.1 without a
+     * body, with "websocket" in Upgrade and "Upgrade" in Connection
+     * @param request A complete request head
+     * @return true if the request is an upgrade request, whatever its version and key
+     */
+    static boolean isUpgradeRequest(HttpRequestParser request) {
+        AsciiView upgrade = request.header("Upgrade");
+        AsciiView connection = request.header("Connection");
+        return request.method().contentEquals("GET") && request.version().contentEquals("HTTP/1.1")
+               && upgrade != null && upgrade.containsToken("websocket")
+               && connection != null && connection.containsToken("Upgrade") && !request.hasBody();
+    }
+
+    /**
+     * Checks whether an upgrade request can be accepted: protocol version 13 and a well
+     * formed key
+     * @param request An upgrade request
+     * @return true if the handshake can be answered with 101
+     */
+    static boolean isValidHandshake(HttpRequestParser request) {
+        AsciiView version = request.header("Sec-WebSocket-Version");
+        AsciiView key = request.header("Sec-WebSocket-Key");
+        return version != null && version.toString().trim().equals("13")
+               && key != null && WebSocketCodec.isValidKey(key.toString().trim());
+    }
+
+    /**
+     * Builds the 101 answer to a valid handshake
+     * @param request The upgrade request
+     * @return The pre-encoded response
+     */
+    static HttpResponse switchingProtocols(HttpRequestParser request) {
+        String accept = WebSocketCodec.acceptKey(request.header("Sec-WebSocket-Key").toString().trim());
+        byte[] head = ("HTTP/1.1 101 Switching Protocols\r\n" +
+                       "Server: SimpleWebServer/1.0\r\n" +
+                       "Upgrade: websocket\r\n" +
+                       "Connection: Upgrade\r\n" +
+                       "Sec-WebSocket-Accept: " + accept + "\r\n\r\n").getBytes(StandardCharsets.ISO_8859_1);
+        return new HttpResponse(101, "Switching Protocols", head, 0);
+    }
+
+    /**
+     * Reads the connection until the close handshake completes or the connection fails.
+     * The caller closes the socket afterwards.
+     */
+    void serve() {
+        if (!endpoint.add(this)) {
+            // The server is stopping: the session ends before its handler ever sees it
+            close(WebSocketCodec.CLOSE_GOING_AWAY, "Servidor detenido");
+            finish();
+            return;
+        }
+        eventLog.info("Sesión WebSocket abierta en " + endpoint.getPath() + " desde: " + clientAddress);
+        try {
+            endpoint.getHandler().onOpen(this);
+            while (readFrame()) {
+                // Messages are delivered as they complete
+            }
+        } catch (WebSocketCodec.ProtocolException e) {
+            eventLog.info("Error de protocolo WebSocket desde " + clientAddress + ": " + e.getMessage());
+            close(e.getCloseCode(), e.getMessage());
+        } catch (IOException e) {
+            if (open) {
+                eventLog.info("Conexión WebSocket interrumpida desde " + clientAddress + ": " + e.getMessage());
+            }
+        } catch (RuntimeException e) {
+            eventLog.error("Error en el manejador WebSocket de " + endpoint.getPath() + ": " + e);
+            close(WebSocketCodec.CLOSE_INTERNAL_ERROR, "Error interno del servidor");
+        } finally {
+            finish();
+            try {
+                endpoint.getHandler().onClose(this, receivedCloseCode, receivedCloseReason);
+            } catch (RuntimeException e) {
+                eventLog.error("Error en el manejador WebSocket de " + endpoint.getPath() + ": " + e);
+            }
+            eventLog.info("Sesión WebSocket cerrada desde: " + clientAddress);
+        }
+    }
+
+    /**
+     * Unregisters the session and gives the frames still queued, its close frame among
+     * them, time to reach the client
+     */
+    private void finish() {
+        open = false;
+        endpoint.remove(this);
+        awaitFlushed(CLOSE_TIMEOUT_MILLIS);
+        HashedWheelTimer.Timeout timeout = closeTimeout;
+        if (timeout != null) {
+            timeout.cancel();
+        }
+        watchdog.close();
+        try {
+            // Deregisters the socket, so that the caller's close takes effect right away
+            selector.close();
+        } catch (IOException e) {
+            eventLog.error("Error cerrando selector WebSocket: " + e.getMessage());
+        }
+    }
+
+    /**
+     * Reads one frame and acts on it
+     * @return false once the connection should stop being read
+     */
+    private boolean readFrame() throws IOException {
+        try {
+            if (!reader.readHeader()) {
+                return false;
+            }
+        } catch (SocketTimeoutException e) {
+            if (pingOutstanding) {
+                eventLog.info("Cliente WebSocket sin respuesta al ping: " + clientAddress);
+                return false;
+            }
+            pingOutstanding = true;
+            enqueueControl(PING_FRAME);
+            return true;
+        }
+        // Any frame shows the client is alive
+        pingOutstanding = false;
+        if (reader.isControl()) {
+            return readControl();
+        }
+
+        int opcode = reader.getOpcode();
+        if (opcode == WebSocketCodec.CONTINUATION) {
+            if (messageOpcode < 0) {
+                throw new WebSocketCodec.ProtocolException(WebSocketCodec.CLOSE_PROTOCOL_ERROR,
+                                                           "Continuación sin mensaje fragmentado");
+            }
+        } else {
+            if (messageOpcode >= 0) {
+                throw new WebSocketCodec.ProtocolException(WebSocketCodec.CLOSE_PROTOCOL_ERROR,
+                                                           "Mensaje nuevo antes de terminar el fragmentado");
+            }
+            messageOpcode = opcode;
+            messageLength = 0;
+        }
+        long total = messageLength + reader.getPayloadLength();
+        if (total > maxMessageBytes) {
+            throw new WebSocketCodec.ProtocolException(WebSocketCodec.CLOSE_TOO_BIG,
+                                                       "Mensaje de más de " + maxMessageBytes + " bytes");
+        }
+        if (total > message.length) {
+            message = Arrays.copyOf(message, (int) Math.min(maxMessageBytes, Math.max(total, 2L * message.length)));
+        }
+        reader.readPayload(message, messageLength);
+        messageLength = (int) total;
+        if (reader.isFin()) {
+            int completed = messageOpcode;
+            messageOpcode = -1;
+            deliver(completed);
+        }
+        return true;
+    }
+
+    /**
+     * Handles a ping, pong or close frame, which may arrive between fragments
+     * @return false after a close frame
+     */
+    private boolean readControl() throws IOException {
+        int length = (int) reader.getPayloadLength();
+        reader.readPayload(control, 0);
+        switch (reader.getOpcode()) {
+            case WebSocketCodec.PING:
+                enqueueControl(WebSocketCodec.encode(WebSocketCodec.PONG, control, 0, length));
+                return true;
+            case WebSocketCodec.PONG:
+                return true;
+            default:
+                readClose(length);
+                return false;
+        }
+    }
+
+    /**
+     * Records the client's close frame and answers it with the same status code, unless
+     * the server started the close handshake
+     */
+    private void readClose(int length) throws IOException {
+        if (length == 1) {
+            throw new WebSocketCodec.ProtocolException(WebSocketCodec.CLOSE_PROTOCOL_ERROR, "Trama de cierre inválida");
+        }
+        if (length == 0) {
+            receivedCloseCode = WebSocketCodec.CLOSE_NO_STATUS;
+        } else {
+            int code = (control[0] & 0xFF) << 8 | (control[1] & 0xFF);
+            if (!WebSocketCodec.isValidCloseCode(code)) {
+                throw new WebSocketCodec.ProtocolException(WebSocketCodec.CLOSE_PROTOCOL_ERROR,
+                                                           "Código de cierre inválido: " + code);
+            }
+            receivedCloseReason = decodeText(control, 2, length - 2);
+            receivedCloseCode = code;
+        }
+        close(receivedCloseCode, "");
+    }
+
+    /**
+     * Hands a reassembled message to the handler
+     */
+    private void deliver(int opcode) throws IOException {
+        endpoint.getMessagesReceived().increment();
+        if (opcode == WebSocketCodec.TEXT) {
+            String text = decodeText(message, 0, messageLength);
+            releaseMessageBuffer();
+            if (!closeQueued.get()) {
+                endpoint.getHandler().onText(this, text);
+            }
+        } else {
+            byte[] data = Arrays.copyOf(message, messageLength);
+            releaseMessageBuffer();
+            if (!closeQueued.get()) {
+                endpoint.getHandler().onBinary(this, data);
+            }
+        }
+    }
+
+    private void releaseMessageBuffer() {
+        if (message.length > RETAINED_MESSAGE_SIZE) {
+            message = new byte[INITIAL_MESSAGE_SIZE];
+        }
+    }
+
+    private String decodeText(byte[] data, int offset, int length) throws WebSocketCodec.ProtocolException {
+        try {
+            return utf8.decode(ByteBuffer.wrap(data, offset, length)).toString();
+        } catch (CharacterCodingException e) {
+            throw new WebSocketCodec.ProtocolException(WebSocketCodec.CLOSE_INVALID_DATA, "Texto que no es UTF-8 válido");
+        }
+    }
+
+    /**
+     * Sends a text message
+     * @param text Message text
+     * @return false if the session is closing, or was just disconnected for not keeping up
+     */
+    public boolean sendText(String text) {
+        return open && enqueue(WebSocketCodec.encodeText(text));
+    }
+
+    /**
+     * Sends a binary message
+     * @param data Message bytes
+     * @return false if the session is closing, or was just disconnected for not keeping up
+     */
+    public boolean sendBinary(byte[] data) {
+        return open && enqueue(WebSocketCodec.encode(WebSocketCodec.BINARY, data, 0, data.length));
+    }
+
+    /**
+     * Starts the close handshake; the connection closes once the client answers, or after
+     * a few seconds if it does not. Messages queued before are still sent.
+     * @param code Status code, e.g. 1000 for a normal close
+     * @param reason Short reason text
+     */
+    public void close(int code, String reason) {
+        close(WebSocketCodec.encodeClose(code, reason));
+    }
+
+    /**
+     * Queues a close frame, at most once per session
+     * @param closeFrame Encoded close frame, possibly shared with other sessions
+     */
+    void close(ByteBuffer closeFrame) {
+        if (!closeQueued.compareAndSet(false, true)) {
+            return;
+        }
+        open = false;
+        outbound.add(closeFrame);
+        scheduleWrite();
+        try {
+            closeTimeout = HashedWheelTimer.shared().schedule(this::abort, CLOSE_TIMEOUT_MILLIS, TimeUnit.MILLISECONDS);
+        } catch (IllegalStateException e) {
+            abort();
+        }
+    }
+
+    /**
+     * Checks whether messages can still be sent
+     * @return false once the close handshake started or the connection ended
+     */
+    public boolean isOpen() { return open; }
+
+    /**
+     * Gets the endpoint of this session
+     * @return The endpoint the client upgraded on
+     */
+    public WebSocketEndpoint getEndpoint() { return endpoint; }
+
+    /**
+     * Gets the client's address
+     * @return Client IP address
+     */
+    public String getRemoteAddress() { return clientAddress; }
+
+    /**
+     * Gets the number of messages waiting to be written, the figure capped by
+     * webserver.websocket.queue; pings, pongs and the close frame are not counted
+     * @return Data frames in the outbound queue
+     */
+    public int getQueuedFrames() { return queuedFrames.get(); }
+
+    /**
+     * Queues a data frame. A session whose queue is full is disconnected right away: its
+     * client is not reading, and a close frame would only wait behind the backlog.
+     * @param frame Encoded frame, possibly shared with other sessions
+     * @return false if the session is closing or was disconnected
+     */
+    boolean enqueue(ByteBuffer frame) {
+        if (!open) {
+            return false;
+        }
+        if (queuedFrames.incrementAndGet() > queueCapacity) {
+            queuedFrames.decrementAndGet();
+            endpoint.getSlowConsumers().increment();
+            eventLog.info("Cliente WebSocket lento desconectado (" + queueCapacity + " tramas en cola): " + clientAddress);
+            abort();
+            return false;
+        }
+        outbound.add(frame);
+        endpoint.getFramesSent().increment();
+        scheduleWrite();
+        return true;
+    }
+
+    /**
+     * Queues a ping or pong; they do not count against the cap and stop once a close
+     * frame has been queued
+     */
+    private void enqueueControl(ByteBuffer frame) {
+        if (closeQueued.get()) {
+            return;
+        }
+        outbound.add(frame);
+        scheduleWrite();
+    }
+
+    /**
+     * Makes sure a writer thread drains the queue, unless one already is or the session is
+     * waiting for the socket to become writable
+     */
+    private void scheduleWrite() {
+        if (writing.compareAndSet(false, true)) {
+            watchdog.arm(writeTimeoutMillis);
+            submitDrain();
+        }
+    }
+
+    private void submitDrain() {
+        try {
+            endpoint.getWriters().execute(this::drain);
+        } catch (RejectedExecutionException e) {
+            abort();
+        }
+    }
+
+    /**
+     * Writes queued frames until the queue is empty, the socket buffer is full or the
+     * session has had its slice; runs on a writer thread, and never on two at once for the
+     * same session. The write deadline moves forward with every write that makes progress.
+     */
+    private void drain() {
+        try {
+            int written = 0;
+            while (true) {
+                ByteBuffer frame = pending;
+                if (frame == null) {
+                    ByteBuffer queued = outbound.poll();
+                    if (queued == null) {
+                        watchdog.disarm();
+                        writing.set(false);
+                        // A frame queued after the last poll but before the flag was cleared
+                        if (outbound.isEmpty() || !writing.compareAndSet(false, true)) {
+                            break;
+                        }
+                        watchdog.arm(writeTimeoutMillis);
+                        continue;
+                    }
+                    if (!isControl(queued)) {
+                        queuedFrames.decrementAndGet();
+                    }
+                    // Shared frames are written through a view, so their position never moves
+                    frame = queued.duplicate();
+                }
+                int sent = channel.write(frame);
+                if (sent > 0) {
+                    watchdog.arm(writeTimeoutMillis);
+                    written += sent;
+                }
+                if (frame.hasRemaining()) {
+                    // The client is not reading: the reader thread hands the session back
+                    // to the writers once the socket is writable
+                    pending = frame;
+                    key.interestOps(SelectionKey.OP_READ | SelectionKey.OP_WRITE);
+                    selector.wakeup();
+                    return;
+                }
+                pending = null;
+                if (written >= WRITE_SLICE_BYTES && !outbound.isEmpty()) {
+                    submitDrain();
+                    return;
+                }
+            }
+        } catch (IOException | CancelledKeyException e) {
+            // The writing flag stays set: nothing more is written to this connection
+            writeFailed = true;
+            outbound.clear();
+            abort();
+        }
+        if (flushing) {
+            selector.wakeup();
+        }
+    }
+
+    private static boolean isControl(ByteBuffer frame) {
+        return (frame.get(frame.position()) & 0x08) != 0;
+    }
+
+    /**
+     * Waits on the session's selector, on the reader thread, and resumes the writes if the
+     * socket became writable meanwhile
+     * @param timeoutMillis Longest wait, 0 to wait until something happens
+     */
+    private void await(long timeoutMillis) throws IOException {
+        selector.select(selected -> {
+            if (selected.isWritable()) {
+                try {
+                    selected.interestOps(SelectionKey.OP_READ);
+                } catch (CancelledKeyException e) {
+                    return;
+                }
+                submitDrain();
+            }
+        }, timeoutMillis);
+    }
+
+    /**
+     * Waits until the queued frames, including a final close frame, have been written. Once
+     * the connection is no longer read, this is where stalled writes are resumed.
+     */
+    private void awaitFlushed(long timeoutMillis) {
+        flushing = true;
+        long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(timeoutMillis);
+        try {
+            while (!writeFailed && channel.isOpen() && (writing.get() || !outbound.isEmpty())) {
+                long remaining = TimeUnit.NANOSECONDS.toMillis(deadline - System.nanoTime());
+                if (remaining <= 0) {
+                    return;
+                }
+                await(remaining);
+            }
+        } catch (IOException | ClosedSelectorException e) {
+            // The connection is gone, nothing more can be flushed
+        }
+    }
+
+    /**
+     * Drops the connection without a close handshake, which also ends the reader's wait on
+     * it
+     */
+    private void abort() {
+        open = false;
+        try {
+            clientSocket.close();
+        } catch (IOException e) {
+            eventLog.error("Error cerrando socket WebSocket: " + e.getMessage());
+        }
+        // Closing a registered channel does not end a select by itself
+        selector.wakeup();
+    }
+
+    /**
+     * Stream of the non-blocking socket for the frame reader: waits on the session's
+     * selector for input, resuming stalled writes on the way, and times out after
+     * webserver.websocket.idle milliseconds without data
+     */
+    private final class ChannelInput extends InputStream {
+
+        @Override
+        public int read() throws IOException {
+            byte[] single = new byte[1];
+            return read(single, 0, 1) < 0 ? -1 : single[0] & 0xFF;
+        }
+
+        @Override
+        public int read(byte[] target, int offset, int length) throws IOException {
+            ByteBuffer buffer = ByteBuffer.wrap(target, offset, length);
+            long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(idleMillis);
+            while (true) {
+                int read = channel.read(buffer);
+                if (read != 0 || length == 0) {
+                    return read;
+                }
+                long remaining = 0;
+                if (idleMillis > 0) {
+                    remaining = TimeUnit.NANOSECONDS.toMillis(deadline - System.nanoTime());
+                    if (remaining <= 0) {
+                        throw new SocketTimeoutException("Sin datos del cliente en " + idleMillis + " ms");
+                    }
+                }
+                await(remaining);
+            }
+        }
+    }
+}
@@ -0,0 +1,180 @@
+package edu.eci.arsw.networking;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.EnumSource;
+import static org.junit.jupiter.api.Assertions.*;
+import static edu.eci.arsw.networking.WebServerTestSupport.*;
+import java.io.BufferedReader;
+import java.io.InputStreamReader;
+import java.io.PrintWriter;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Test class for AdmissionController
+ * Verifies the connection and in-flight limits, the CoDel-style shedding on queue delay and
+ * the precomputed rejections sent by SimpleWebServer and SquareServer
+ */
+class AdmissionControllerTest {
+
+    private static final int SERVER_PORT = 8103;
+    private static final int SQUARE_PORT = 35102;
+
+    @TempDir
+    Path webRoot;
+
+    private SimpleWebServer server;
+    private Thread serverThread;
+
+    @AfterEach
+    void tearDown() throws InterruptedException {
+        if (server != null) {
+            stopServer(server, serverThread, SERVER_PORT);
+        }
+    }
+
+    @Test
+    void testLimitsRefuseBeyondCapacity() {
+        AdmissionController admission = AdmissionController.create("test-limits", 2, 1, 0, 100, 1);
+        long refusedBefore = admission.getRejectedCount(AdmissionController.Reason.CONNECTIONS);
+
+        assertTrue(admission.tryAcquireConnection());
+        assertTrue(admission.tryAcquireConnection());
+        assertFalse(admission.tryAcquireConnection());
+        assertEquals(2, admission.getOpenConnections());
+        admission.releaseConnection();
+        assertTrue(admission.tryAcquireConnection());
+        assertEquals(refusedBefore + 1, admission.getRejectedCount(AdmissionController.Reason.CONNECTIONS));
+
+        assertTrue(admission.tryAcquireRequest());
+        assertFalse(admission.tryAcquireRequest());
+        admission.releaseRequest();
+        assertEquals(0, admission.getInFlightRequests());
+
+        AdmissionController unlimited = AdmissionController.create("test-limits", 0, 0, 0, 100, 1);
+        for (int i = 0; i < 1000; i++) {
+            assertTrue(unlimited.tryAcquireConnection());
+        }
+        assertFalse(unlimited.shouldShed(TimeUnit.SECONDS.toNanos(10)));
+        assertThrows(IllegalArgumentException.class, () -> AdmissionController.create("x", -1, 0, 0, 100, 1));
+        assertThrows(IllegalArgumentException.class, () -> AdmissionController.create("x", 0, 0, 5, 0, 1));
+    }
+
+    @Test
+    void testShedsOnlyWhileQueueStands() throws InterruptedException {
+        AdmissionController admission = AdmissionController.create("test-codel", 0, 0, 5, 20, 1);
+        long slow = TimeUnit.MILLISECONDS.toNanos(50);
+
+        // A first slow request is a burst, not yet a standing queue
+        assertFalse(admission.shouldShed(slow));
+        Thread.sleep(25);
+        // The whole previous interval stayed above the target
+        assertTrue(admission.shouldShed(slow));
+        assertTrue(admission.isOverloaded());
+        // Short waits are still served while overloaded
+        assertFalse(admission.shouldShed(TimeUnit.MILLISECONDS.toNanos(8)));
+
+        admission.shouldShed(TimeUnit.MILLISECONDS.toNanos(1));
+        Thread.sleep(25);
+        // One request with a short wait in the last interval shows the queue drained
+        assertFalse(admission.shouldShed(slow));
+        assertFalse(admission.isOverloaded());
+        assertTrue(admission.getRejectedCount(AdmissionController.Reason.QUEUE_DELAY) >= 1);
+    }
+
+    @ParameterizedTest
+    @EnumSource(WebServerConfig.Engine.class)
+    void testConnectionBeyondLimitGetsFast503(WebServerConfig.Engine engine) throws Exception {
+        Files.write(webRoot.resolve("index.html"), "hola".getBytes(StandardCharsets.UTF_8));
+        WebServerConfig config = new WebServerConfig();
+        config.setPort(SERVER_PORT);
+        config.setWebRoot(webRoot.toString());
+        config.setEngine(engine);
+        config.setReactorThreads(1);
+        config.setMaxConnections(1);
+        config.setRetryAfterSeconds(7);
+        server = new SimpleWebServer(config);
+        serverThread = startServer(server, SERVER_PORT);
+
+        try (Socket admitted = openAdmittedSocket()) {
+            try (Socket refused = openSocket(SERVER_PORT)) {
+                WebServerTestSupport.Response response = get(refused, "/index.html", "");
+                assertEquals(503, response.statusCode);
+                assertEquals("7", response.headers.get("retry-after"));
+                assertEquals("close", response.headers.get("connection"));
+                assertEquals(-1, refused.getInputStream().read());
+            }
+            // The admitted connection is unaffected
+            assertEquals(200, get(admitted, "/index.html", "").statusCode);
+        }
+
+        // The slot is given back once the admitted connection closes
+        try (Socket next = openAdmittedSocket()) {
+            assertEquals(200, get(next, "/index.html", "").statusCode);
+        }
+    }
+
+    @Test
+    void testSquareServerAnswersBusyBeyondLimit() throws Exception {
+        AdmissionController admission = AdmissionController.create("square-test", 1, 0, 0, 100, 3);
+        SquareServer square = new SquareServer(SQUARE_PORT,
+            ConnectionExecutor.create(ConnectionExecutor.Mode.THREAD, "square-test"), EventLog.shared(), admission);
+        Thread squareThread = new Thread(square::startServer);
+        squareThread.setDaemon(true);
+        squareThread.start();
+        try {
+            waitForPort(SQUARE_PORT);
+            try (Socket first = openAdmittedSquareSocket()) {
+                assertTrue(first.isConnected());
+                try (Socket second = openSocket(SQUARE_PORT)) {
+                    BufferedReader busy = new BufferedReader(new InputStreamReader(second.getInputStream()));
+                    assertEquals("Respuesta: Error - Servidor saturado, reintente en 3 s", busy.readLine());
+                    assertNull(busy.readLine());
+                }
+            }
+        } finally {
+            square.stopServer();
+            wakeUp(SQUARE_PORT);
+            squareThread.join(5000);
+        }
+    }
+
+    /**
+     * Opens a connection that the server admits; the slot may still be held for a moment
+     * by the previous connection (or the startup probe) until its handler sees it close
+     */
+    private static Socket openAdmittedSocket() throws Exception {
+        for (int i = 0; i < 100; i++) {
+            Socket socket = openSocket(SERVER_PORT);
+            if (get(socket, "/index.html", "").statusCode == 200) {
+                return socket;
+            }
+            socket.close();
+            Thread.sleep(20);
+        }
+        fail("El servidor no admitió la conexión");
+        return null;
+    }
+
+    private static Socket openAdmittedSquareSocket() throws Exception {
+        for (int i = 0; i < 100; i++) {
+            Socket socket = openSocket(SQUARE_PORT);
+            PrintWriter out = new PrintWriter(socket.getOutputStream(), true);
+            BufferedReader in = new BufferedReader(new InputStreamReader(socket.getInputStream()));
+            out.println("4");
+            if ("Respuesta: 16".equals(in.readLine())) {
+                return socket;
+            }
+            socket.close();
+            Thread.sleep(20);
+        }
+        fail("El servidor no admitió la conexión");
+        return null;
+    }
+}
@@ -0,0 +1,186 @@
+package edu.eci.arsw.networking;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.EnumSource;
+import static org.junit.jupiter.api.Assertions.*;
+import static edu.eci.arsw.networking.WebServerTestSupport.*;
+import java.io.*;
+import java.net.Socket;
+import java.nio.channels.Channels;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * Test class for streamed responses in "Transfer-Encoding: chunked"
+ * Verifies the chunk framing of ResponseWriter, and the directory listing, metrics export
+ * and growing files of SimpleWebServer on both engines, including HTTP/1.0 clients
+ */
+class ChunkedTransferTest {
+
+    private static final int SERVER_PORT = 8107;
+    private static final String ODD_NAME = "a <b> & c.txt";
+
+    @TempDir
+    Path webRoot;
+
+    private SimpleWebServer server;
+    private Thread serverThread;
+
+    @AfterEach
+    void tearDown() throws InterruptedException {
+        if (server != null) {
+            WebServerTestSupport.stopServer(server, serverThread, SERVER_PORT);
+        }
+    }
+
+    @Test
+    void testWriterFramesStreamInBoundedChunks() throws Exception {
+        // Many small parts: the writer fills whole chunks instead of one chunk per part
+        List<String> parts = new ArrayList<>();
+        StringBuilder expected = new StringBuilder();
+        for (int i = 0; i < 5000; i++) {
+            String part = "línea " + i + "\n";
+            parts.add(part);
+            expected.append(part);
+        }
+        byte[] expectedBytes = expected.toString().getBytes(StandardCharsets.UTF_8);
+
+        ByteArrayOutputStream sent = new ByteArrayOutputStream();
+        try (ResponseWriter writer = new ResponseWriter()) {
+            for (int round = 0; round < 2; round++) {
+                sent.reset();
+                HttpResponse response = new HttpResponse(200, "OK", "text/plain",
+                                                         BodyStream.ofText(parts.iterator(), null));
+                writer.start(response);
+                assertTrue(writer.writeTo(Channels.newChannel(sent)));
+                assertEquals(expectedBytes.length, response.getBodyLength());
+            }
+        }
+
+        InputStream in = new ByteArrayInputStream(sent.toByteArray());
+        Response response = readResponse(in);
+        assertEquals("chunked", response.headers.get("transfer-encoding"));
+        assertNull(response.headers.get("content-length"));
+        assertArrayEquals(expectedBytes, response.rawBody);
+        int expectedChunks = (expectedBytes.length + ResponseWriter.CHUNK_DATA_SIZE - 1) / ResponseWriter.CHUNK_DATA_SIZE;
+        assertEquals(expectedChunks, response.chunks);
+        assertEquals(-1, in.read());
+    }
+
+    @ParameterizedTest
+    @EnumSource(WebServerConfig.Engine.class)
+    void testDirectoryListingStreamedOnKeepAliveConnection(WebServerConfig.Engine engine) throws Exception {
+        Path docs = Files.createDirectory(webRoot.resolve("docs"));
+        for (int i = 0; i < 600; i++) {
+            Files.write(docs.resolve(String.format("informe-trimestral-%04d.txt", i)), new byte[1]);
+        }
+        Files.write(docs.resolve(ODD_NAME), new byte[1]);
+        Files.createDirectory(docs.resolve("anexos"));
+        startServer(engine, true, 0);
+
+        try (Socket socket = openSocket(SERVER_PORT)) {
+            Response listing =
+                exchange(socket, "GET /docs HTTP/1.1\r\nHost: localhost\r\n\r\n");
+            assertEquals(200, listing.statusCode);
+            assertEquals("chunked", listing.headers.get("transfer-encoding"));
+            assertNull(listing.headers.get("content-length"));
+            assertEquals("keep-alive", listing.headers.get("connection"));
+            assertTrue(listing.chunks > 1, "El listado debería ocupar varios fragmentos");
+            assertTrue(listing.body.contains("<a href=\"/docs/informe-trimestral-0599.txt\">"));
+            assertTrue(listing.body.contains("<a href=\"/docs/a%20%3Cb%3E%20%26%20c.txt\">a &lt;b&gt; &amp; c.txt</a>"));
+            assertTrue(listing.body.contains("<a href=\"/docs/anexos/\">anexos/</a>"));
+            assertTrue(listing.body.endsWith("</html>\n"));
+
+            // The framing ended exactly where the next response starts
+            Response metrics =
+                exchange(socket, "GET /metrics HTTP/1.1\r\nHost: localhost\r\n\r\n");
+            assertEquals(200, metrics.statusCode);
+            assertEquals("chunked", metrics.headers.get("transfer-encoding"));
+            assertTrue(metrics.body.contains("# TYPE http_requests_total counter"));
+            assertTrue(metrics.body.contains("path=\"/docs\",status=\"200\""));
+
+            Response file = exchange(socket,
+                "GET /docs/informe-trimestral-0000.txt HTTP/1.1\r\nHost: localhost\r\nConnection: close\r\n\r\n");
+            assertEquals(200, file.statusCode);
+            assertEquals("1", file.headers.get("content-length"));
+        }
+    }
+
+    @ParameterizedTest
+    @EnumSource(WebServerConfig.Engine.class)
+    void testHttp10ClientGetsUnframedStreamAndClose(WebServerConfig.Engine engine) throws Exception {
+        Path docs = Files.createDirectory(webRoot.resolve("docs"));
+        Files.write(docs.resolve("notas.txt"), new byte[1]);
+        startServer(engine, true, 0);
+
+        try (Socket socket = openSocket(SERVER_PORT)) {
+            socket.getOutputStream().write("GET /docs/ HTTP/1.0\r\nConnection: keep-alive\r\n\r\n"
+                                           .getBytes(StandardCharsets.ISO_8859_1));
+            InputStream in = socket.getInputStream();
+            String response = new String(in.readAllBytes(), StandardCharsets.UTF_8);
+            String head = response.substring(0, response.indexOf("\r\n\r\n")).toLowerCase();
+            String body = response.substring(response.indexOf("\r\n\r\n") + 4);
+
+            assertTrue(head.startsWith("http/1.1 200 ok"));
+            assertFalse(head.contains("transfer-encoding"));
+            assertFalse(head.contains("content-length"));
+            assertTrue(head.contains("connection: close"));
+            assertTrue(body.contains("<a href=\"/docs/notas.txt\">notas.txt</a>"));
+            assertTrue(body.endsWith("</html>\n"));
+        }
+    }
+
+    @ParameterizedTest
+    @EnumSource(WebServerConfig.Engine.class)
+    void testGrowingFileStreamedUpToItsEnd(WebServerConfig.Engine engine) throws Exception {
+        byte[] content = new byte[200 * 1024 + 3];
+        new Random(7).nextBytes(content);
+        Files.write(webRoot.resolve("app.log"), content);
+        startServer(engine, false, 60_000);
+
+        try (Socket socket = openSocket(SERVER_PORT)) {
+            Response response =
+                exchange(socket, "GET /app.log HTTP/1.1\r\nHost: localhost\r\n\r\n");
+            assertEquals(200, response.statusCode);
+            assertEquals("chunked", response.headers.get("transfer-encoding"));
+            assertNull(response.headers.get("content-length"));
+            assertNull(response.headers.get("etag"));
+            assertNull(response.headers.get("accept-ranges"));
+            assertArrayEquals(content, response.rawBody);
+            // A file still being written must not be cached
+            assertEquals(0, server.getFileCache().size());
+
+            // Directories stay forbidden while listings are disabled
+            Files.createDirectory(webRoot.resolve("privado"));
+            Response forbidden =
+                exchange(socket, "GET /privado HTTP/1.1\r\nHost: localhost\r\n\r\n");
+            assertEquals(403, forbidden.statusCode);
+        }
+    }
+
+    @Test
+    void testInvalidGrowingWindowRejected() {
+        WebServerConfig config = new WebServerConfig();
+        assertThrows(IllegalArgumentException.class, () -> config.setGrowingFileWindowMillis(-1));
+    }
+
+    private void startServer(WebServerConfig.Engine engine, boolean listing, long growingWindowMillis) throws Exception {
+        WebServerConfig config = new WebServerConfig();
+        config.setPort(SERVER_PORT);
+        config.setWebRoot(webRoot.toString());
+        config.setEngine(engine);
+        config.setReactorThreads(1);
+        config.setListingEnabled(listing);
+        config.setGrowingFileWindowMillis(growingWindowMillis);
+
+        server = new SimpleWebServer(config);
+        serverThread = WebServerTestSupport.startServer(server, SERVER_PORT);
+    }
+}
@@ -0,0 +1,133 @@
+package edu.eci.arsw.networking;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.EnumSource;
+import static org.junit.jupiter.api.Assertions.*;
+import static edu.eci.arsw.networking.WebServerTestSupport.*;
+import java.io.IOException;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+
+/**
+ * Test class for conditional GET in SimpleWebServer
+ * Verifies the ETag and Last-Modified validators and the 304 answers to If-None-Match
+ * and If-Modified-Since, on both engines
+ */
+class ConditionalGetTest {
+
+    private static final int SERVER_PORT = 8096;
+    private static final long MODIFIED_MILLIS = 1_700_000_000_000L;
+
+    @TempDir
+    Path webRoot;
+
+    private SimpleWebServer server;
+    private Thread serverThread;
+
+    @AfterEach
+    void tearDown() throws InterruptedException {
+        if (server != null) {
+            WebServerTestSupport.stopServer(server, serverThread, SERVER_PORT);
+        }
+    }
+
+    @ParameterizedTest
+    @EnumSource(WebServerConfig.Engine.class)
+    void testValidatorsSentAndNotModifiedAnswered(WebServerConfig.Engine engine) throws Exception {
+        startServer(engine);
+
+        try (Socket socket = openSocket(SERVER_PORT)) {
+            Response full = get(socket, "");
+            String etag = full.headers.get("etag");
+            assertEquals(200, full.statusCode);
+            assertNotNull(etag);
+            assertTrue(etag.startsWith("\"") && etag.endsWith("\""));
+            assertEquals("Tue, 14 Nov 2023 22:13:20 GMT", full.headers.get("last-modified"));
+
+            Response notModified = get(socket, "If-None-Match: " + etag + "\r\n");
+            assertEquals(304, notModified.statusCode);
+            assertEquals(etag, notModified.headers.get("etag"));
+            assertNull(notModified.headers.get("content-length"));
+            assertEquals("", notModified.body);
+            // The connection stays usable after a bodiless response
+            assertEquals("keep-alive", notModified.headers.get("connection"));
+
+            assertEquals(304, get(socket, "If-None-Match: \"otro\", W/" + etag + "\r\n").statusCode);
+            assertEquals(304, get(socket, "If-None-Match: *\r\n").statusCode);
+            assertEquals(200, get(socket, "If-None-Match: \"otro\"\r\n").statusCode);
+        }
+    }
+
+    @ParameterizedTest
+    @EnumSource(WebServerConfig.Engine.class)
+    void testIfModifiedSince(WebServerConfig.Engine engine) throws Exception {
+        startServer(engine);
+
+        try (Socket socket = openSocket(SERVER_PORT)) {
+            assertEquals(304, get(socket, "If-Modified-Since: Tue, 14 Nov 2023 22:13:20 GMT\r\n").statusCode);
+            assertEquals(304, get(socket, "If-Modified-Since: Wed, 15 Nov 2023 00:00:00 GMT\r\n").statusCode);
+            assertEquals(200, get(socket, "If-Modified-Since: Tue, 14 Nov 2023 22:13:19 GMT\r\n").statusCode);
+            assertEquals(200, get(socket, "If-Modified-Since: ayer\r\n").statusCode);
+            // If-None-Match takes precedence over If-Modified-Since
+            assertEquals(200, get(socket, "If-None-Match: \"otro\"\r\n" +
+                                          "If-Modified-Since: Wed, 15 Nov 2023 00:00:00 GMT\r\n").statusCode);
+        }
+    }
+
+    @Test
+    void testModifiedFileGetsNewEtag() throws Exception {
+        startServer(WebServerConfig.Engine.BLOCKING);
+
+        try (Socket socket = openSocket(SERVER_PORT)) {
+            String etag = get(socket, "").headers.get("etag");
+
+            Files.write(webRoot.resolve("style.css"), "body { color: red; }".getBytes(StandardCharsets.UTF_8));
+            Files.setLastModifiedTime(webRoot.resolve("style.css"), FileTime.fromMillis(MODIFIED_MILLIS + 60_000));
+
+            Response response = get(socket, "If-None-Match: " + etag + "\r\n");
+            assertEquals(200, response.statusCode);
+            assertNotEquals(etag, response.headers.get("etag"));
+            assertEquals("body { color: red; }", response.body);
+        }
+    }
+
+    @Test
+    void testEtagListMatching() {
+        FileValidators validators = FileValidators.of(500, MODIFIED_MILLIS);
+        String etag = validators.getEtag();
+
+        assertTrue(validators.matchesAny(etag));
+        assertTrue(validators.matchesAny("\"a,b\", " + etag));
+        assertTrue(validators.matchesAny("W/" + etag));
+        assertFalse(validators.matchesAny("\"a,b\""));
+        assertFalse(validators.matchesAny(etag.substring(1, etag.length() - 1)));
+        assertFalse(validators.matchesAny(""));
+        assertEquals(Long.MIN_VALUE, FileValidators.parseHttpDate("no es una fecha"));
+    }
+
+    private void startServer(WebServerConfig.Engine engine) throws Exception {
+        Path css = webRoot.resolve("style.css");
+        Files.write(css, "body { color: blue; }".getBytes(StandardCharsets.UTF_8));
+        Files.setLastModifiedTime(css, FileTime.fromMillis(MODIFIED_MILLIS));
+
+        WebServerConfig config = new WebServerConfig();
+        config.setPort(SERVER_PORT);
+        config.setWebRoot(webRoot.toString());
+        config.setEngine(engine);
+        config.setReactorThreads(1);
+        config.setCacheRevalidateMillis(0);
+
+        server = new SimpleWebServer(config);
+        serverThread = WebServerTestSupport.startServer(server, SERVER_PORT);
+    }
+
+    private static Response get(Socket socket, String extraHeaders) throws IOException {
+        return WebServerTestSupport.get(socket, "/style.css", extraHeaders);
+    }
+}
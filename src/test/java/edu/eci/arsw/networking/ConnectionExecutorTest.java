@@ -0,0 +1,95 @@
+package edu.eci.arsw.networking;
+
+import org.junit.jupiter.api.Test;
+import static org.junit.jupiter.api.Assertions.*;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Test class for ConnectionExecutor
+ * Verifies the threading modes shared by the TCP servers
+ */
+class ConnectionExecutorTest {
+
+    @Test
+    void testInlineModeRunsOnCallerThread() {
+        ConnectionExecutor executor = ConnectionExecutor.create(ConnectionExecutor.Mode.INLINE, "test");
+        AtomicReference<Thread> runner = new AtomicReference<>();
+
+        executor.execute(() -> runner.set(Thread.currentThread()));
+
+        assertSame(Thread.currentThread(), runner.get());
+        executor.shutdown();
+    }
+
+    @Test
+    void testThreadModeRunsOnNewThread() throws InterruptedException {
+        ConnectionExecutor executor = ConnectionExecutor.create(ConnectionExecutor.Mode.THREAD, "test");
+        AtomicReference<Thread> runner = new AtomicReference<>();
+        CountDownLatch done = new CountDownLatch(1);
+
+        executor.execute(() -> {
+            runner.set(Thread.currentThread());
+            done.countDown();
+        });
+
+        assertTrue(done.await(5, TimeUnit.SECONDS));
+        assertNotSame(Thread.currentThread(), runner.get());
+        assertTrue(runner.get().getName().startsWith("test-"));
+        executor.shutdown();
+    }
+
+    @Test
+    void testBoundedPoolRejectsWhenSaturated() throws InterruptedException {
+        ConnectionExecutor executor = ConnectionExecutor.create(ConnectionExecutor.Mode.POOL, "test", 1, 1);
+        CountDownLatch release = new CountDownLatch(1);
+        CountDownLatch started = new CountDownLatch(1);
+
+        try {
+            executor.execute(() -> {
+                started.countDown();
+                awaitQuietly(release);
+            });
+            assertTrue(started.await(5, TimeUnit.SECONDS));
+            executor.execute(() -> awaitQuietly(release));
+
+            // One thread busy and one connection queued: the next one must be refused
+            assertThrows(RejectedExecutionException.class, () -> executor.execute(() -> { }));
+            assertEquals(1, executor.getActiveConnections());
+        } finally {
+            release.countDown();
+            executor.shutdown();
+        }
+        assertTrue(executor.awaitTermination(5000));
+        assertEquals(0, executor.getActiveConnections());
+    }
+
+    @Test
+    void testVirtualModeFallsBackWhenUnsupported() {
+        ConnectionExecutor executor = ConnectionExecutor.create(ConnectionExecutor.Mode.VIRTUAL, "test");
+
+        if (ConnectionExecutor.isVirtualThreadSupported()) {
+            assertEquals(ConnectionExecutor.Mode.VIRTUAL, executor.getMode());
+        } else {
+            assertEquals(ConnectionExecutor.Mode.POOL, executor.getMode());
+        }
+        executor.shutdown();
+    }
+
+    @Test
+    void testModeFromCommand() {
+        assertEquals(ConnectionExecutor.Mode.POOL, ConnectionExecutor.Mode.fromCommand("POOL"));
+        assertEquals(ConnectionExecutor.Mode.VIRTUAL, ConnectionExecutor.Mode.fromCommand("virtual"));
+        assertNull(ConnectionExecutor.Mode.fromCommand("fibers"));
+    }
+
+    private static void awaitQuietly(CountDownLatch latch) {
+        try {
+            latch.await(5, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
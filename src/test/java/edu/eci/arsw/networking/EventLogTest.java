@@ -0,0 +1,141 @@
+package edu.eci.arsw.networking;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import static org.junit.jupiter.api.Assertions.*;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Test class for EventLog
+ * Verifies record formatting, the drop-on-overflow policy, concurrent producers and
+ * size-based file rotation
+ */
+class EventLogTest {
+
+    @TempDir
+    Path logDir;
+
+    @Test
+    void testRecordsFormattedWithTimestampAndLevel() throws Exception {
+        Path file = logDir.resolve("app.log");
+        try (EventLog log = EventLog.create(file, 16, 1024 * 1024, 2)) {
+            assertTrue(log.info("Servidor listo"));
+            assertTrue(log.error("Error de prueba"));
+            assertTrue(log.access("127.0.0.1", "GET", "/index.html", "HTTP/1.1", 200, 1234, 1_512_000));
+            assertTrue(log.access("10.0.0.1", "GET", "/", "", 404, 0, 7_000));
+            assertTrue(log.flush(5000));
+        }
+
+        List<String> lines = Files.readAllLines(file, StandardCharsets.UTF_8);
+        assertEquals(4, lines.size());
+        assertTrue(lines.get(0).matches("\\d{4}-\\d{2}-\\d{2}T\\d{2}:\\d{2}:\\d{2}\\.\\d{3}Z INFO Servidor listo"),
+                   lines.get(0));
+        assertTrue(lines.get(1).endsWith(" ERROR Error de prueba"));
+        assertTrue(lines.get(2).endsWith(" ACCESS 127.0.0.1 \"GET /index.html HTTP/1.1\" 200 1234 1.512 ms"),
+                   lines.get(2));
+        assertTrue(lines.get(3).endsWith(" ACCESS 10.0.0.1 \"GET /\" 404 0 0.007 ms"), lines.get(3));
+    }
+
+    @Test
+    void testFullRingDropsAndCounts() throws Exception {
+        Path file = logDir.resolve("app.log");
+        // Not started: nothing drains the ring
+        EventLog log = new EventLog(file, 8, 1024 * 1024, 2);
+        assertEquals(8, log.getCapacity());
+        for (int i = 0; i < 8; i++) {
+            assertTrue(log.info("evento " + i));
+        }
+        assertFalse(log.info("sin espacio"));
+        assertFalse(log.info("sin espacio"));
+        assertEquals(2, log.getDroppedCount());
+
+        log.start();
+        assertTrue(log.flush(5000));
+        assertEquals(8, log.getWrittenCount());
+        // The ring is usable again once drained
+        assertTrue(log.info("x".repeat(EventLog.TEXT_CHARS + 50)));
+        assertTrue(log.flush(5000));
+        log.close();
+
+        List<String> lines = Files.readAllLines(file, StandardCharsets.UTF_8);
+        assertTrue(lines.get(0).endsWith(" INFO evento 0"));
+        assertTrue(lines.get(8).endsWith(" ERROR Registros descartados por desbordamiento: 2"));
+        // Text longer than a record is truncated
+        assertTrue(lines.get(9).endsWith(" INFO " + "x".repeat(EventLog.TEXT_CHARS)));
+    }
+
+    @Test
+    void testConcurrentProducersNeverLoseAcceptedRecords() throws Exception {
+        Path file = logDir.resolve("app.log");
+        int threads = 8;
+        int perThread = 5000;
+        EventLog log = EventLog.create(file, 1024, 64 * 1024 * 1024, 1);
+        CountDownLatch start = new CountDownLatch(1);
+        Thread[] producers = new Thread[threads];
+        long[] accepted = new long[threads];
+        for (int t = 0; t < threads; t++) {
+            int id = t;
+            producers[t] = new Thread(() -> {
+                try {
+                    start.await();
+                } catch (InterruptedException e) {
+                    return;
+                }
+                for (int i = 0; i < perThread; i++) {
+                    if (log.info("p" + id + "-" + i)) {
+                        accepted[id]++;
+                    }
+                }
+            });
+            producers[t].start();
+        }
+        start.countDown();
+        for (Thread producer : producers) {
+            producer.join(TimeUnit.SECONDS.toMillis(30));
+        }
+        assertTrue(log.flush(10000));
+        log.close();
+
+        long totalAccepted = 0;
+        for (long count : accepted) {
+            totalAccepted += count;
+        }
+        assertEquals((long) threads * perThread, totalAccepted + log.getDroppedCount());
+
+        Set<String> seen = new HashSet<>();
+        for (String line : Files.readAllLines(file, StandardCharsets.UTF_8)) {
+            int level = line.indexOf(" INFO ");
+            if (level >= 0) {
+                String message = line.substring(level + 6);
+                assertTrue(seen.add(message), "Registro duplicado: " + message);
+            }
+        }
+        assertEquals(totalAccepted, seen.size());
+    }
+
+    @Test
+    void testFileRotatedBySize() throws Exception {
+        Path file = logDir.resolve("app.log");
+        try (EventLog log = EventLog.create(file, 64, 200, 2)) {
+            for (int i = 0; i < 20; i++) {
+                log.info("linea de registro numero " + i);
+                // One batch per line, so rotation happens at line granularity
+                assertTrue(log.flush(5000));
+            }
+        }
+
+        assertTrue(Files.size(file) <= 200);
+        assertTrue(Files.size(logDir.resolve("app.log.1")) <= 200);
+        assertTrue(Files.exists(logDir.resolve("app.log.2")));
+        assertFalse(Files.exists(logDir.resolve("app.log.3")));
+        List<String> current = Files.readAllLines(file, StandardCharsets.UTF_8);
+        assertTrue(current.get(current.size() - 1).endsWith("linea de registro numero 19"));
+    }
+}
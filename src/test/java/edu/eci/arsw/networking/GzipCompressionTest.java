@@ -0,0 +1,211 @@
+package edu.eci.arsw.networking;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.EnumSource;
+import static org.junit.jupiter.api.Assertions.*;
+import static edu.eci.arsw.networking.WebServerTestSupport.*;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Test class for gzip content coding in SimpleWebServer
+ * Verifies Accept-Encoding negotiation, the cached compressed variant, .gz sidecars and
+ * the per-variant validators, on both engines
+ */
+class GzipCompressionTest {
+
+    private static final int SERVER_PORT = 8098;
+    private static final long MODIFIED_MILLIS = 1_700_000_000_000L;
+    private static final String CSS = "body { color: blue; margin: 0; padding: 0; }\n".repeat(40);
+
+    @TempDir
+    Path webRoot;
+
+    private SimpleWebServer server;
+    private Thread serverThread;
+
+    @AfterEach
+    void tearDown() throws InterruptedException {
+        if (server != null) {
+            WebServerTestSupport.stopServer(server, serverThread, SERVER_PORT);
+        }
+    }
+
+    @ParameterizedTest
+    @EnumSource(WebServerConfig.Engine.class)
+    void testCompressedVariantNegotiated(WebServerConfig.Engine engine) throws Exception {
+        writeFile("style.css", CSS.getBytes(StandardCharsets.UTF_8), MODIFIED_MILLIS);
+        startServer(engine, WebServerConfig.DEFAULT_TRANSFER_THRESHOLD_BYTES);
+
+        try (Socket socket = openSocket(SERVER_PORT)) {
+            for (int i = 0; i < 2; i++) {
+                // The second request is a cache hit and must look the same
+                Response gzip = get(socket, "/style.css", "Accept-Encoding: gzip, deflate\r\n");
+                assertEquals(200, gzip.statusCode);
+                assertEquals("gzip", gzip.headers.get("content-encoding"));
+                assertEquals("Accept-Encoding", gzip.headers.get("vary"));
+                assertTrue(gzip.rawBody.length < CSS.length());
+                assertEquals(CSS, gunzip(gzip.rawBody));
+                assertTrue(gzip.headers.get("etag").endsWith("-gz\""));
+            }
+
+            Response identity = get(socket, "/style.css", "");
+            assertNull(identity.headers.get("content-encoding"));
+            assertEquals("Accept-Encoding", identity.headers.get("vary"));
+            assertEquals(CSS, identity.body);
+            assertFalse(identity.headers.get("etag").endsWith("-gz\""));
+
+            Response refused = get(socket, "/style.css", "Accept-Encoding: gzip;q=0\r\n");
+            assertNull(refused.headers.get("content-encoding"));
+        }
+    }
+
+    @ParameterizedTest
+    @EnumSource(WebServerConfig.Engine.class)
+    void testValidatorsPerVariant(WebServerConfig.Engine engine) throws Exception {
+        writeFile("style.css", CSS.getBytes(StandardCharsets.UTF_8), MODIFIED_MILLIS);
+        startServer(engine, WebServerConfig.DEFAULT_TRANSFER_THRESHOLD_BYTES);
+
+        try (Socket socket = openSocket(SERVER_PORT)) {
+            String gzipEtag = get(socket, "/style.css", "Accept-Encoding: gzip\r\n").headers.get("etag");
+
+            Response notModified =
+                get(socket, "/style.css", "Accept-Encoding: gzip\r\nIf-None-Match: " + gzipEtag + "\r\n");
+            assertEquals(304, notModified.statusCode);
+            assertEquals("Accept-Encoding", notModified.headers.get("vary"));
+            // The compressed tag does not validate the identity representation
+            assertEquals(200, get(socket, "/style.css", "If-None-Match: " + gzipEtag + "\r\n").statusCode);
+        }
+    }
+
+    @ParameterizedTest
+    @EnumSource(WebServerConfig.Engine.class)
+    void testSidecarPreferred(WebServerConfig.Engine engine) throws Exception {
+        writeFile("style.css", CSS.getBytes(StandardCharsets.UTF_8), MODIFIED_MILLIS);
+        writeFile("style.css.gz", gzip("precomprimido"), MODIFIED_MILLIS + 1000);
+        writeFile("old.css", CSS.getBytes(StandardCharsets.UTF_8), MODIFIED_MILLIS);
+        writeFile("old.css.gz", gzip("obsoleto"), MODIFIED_MILLIS - 1000);
+        startServer(engine, WebServerConfig.DEFAULT_TRANSFER_THRESHOLD_BYTES);
+
+        try (Socket socket = openSocket(SERVER_PORT)) {
+            Response fresh = get(socket, "/style.css", "Accept-Encoding: gzip\r\n");
+            assertEquals("gzip", fresh.headers.get("content-encoding"));
+            assertEquals("precomprimido", gunzip(fresh.rawBody));
+
+            // A sidecar older than its file is ignored and the file is compressed instead
+            Response stale = get(socket, "/old.css", "Accept-Encoding: gzip\r\n");
+            assertEquals(CSS, gunzip(stale.rawBody));
+        }
+    }
+
+    @ParameterizedTest
+    @EnumSource(WebServerConfig.Engine.class)
+    void testLargeFileStreamsSidecar(WebServerConfig.Engine engine) throws Exception {
+        writeFile("big.css", CSS.getBytes(StandardCharsets.UTF_8), MODIFIED_MILLIS);
+        writeFile("big.css.gz", gzip(CSS), MODIFIED_MILLIS);
+        writeFile("plain.css", CSS.getBytes(StandardCharsets.UTF_8), MODIFIED_MILLIS);
+        startServer(engine, 1024);
+
+        try (Socket socket = openSocket(SERVER_PORT)) {
+            Response sidecar = get(socket, "/big.css", "Accept-Encoding: gzip\r\n");
+            assertEquals("gzip", sidecar.headers.get("content-encoding"));
+            assertEquals(CSS, gunzip(sidecar.rawBody));
+
+            // Streamed files are never compressed on the fly
+            Response identity = get(socket, "/plain.css", "Accept-Encoding: gzip\r\n");
+            assertNull(identity.headers.get("content-encoding"));
+            assertNull(identity.headers.get("vary"));
+            assertEquals(CSS, identity.body);
+        }
+    }
+
+    @ParameterizedTest
+    @EnumSource(WebServerConfig.Engine.class)
+    void testUncompressedResponses(WebServerConfig.Engine engine) throws Exception {
+        writeFile("style.css", CSS.getBytes(StandardCharsets.UTF_8), MODIFIED_MILLIS);
+        writeFile("tiny.css", "p{}".getBytes(StandardCharsets.UTF_8), MODIFIED_MILLIS);
+        writeFile("image.png", new byte[4096], MODIFIED_MILLIS);
+        startServer(engine, WebServerConfig.DEFAULT_TRANSFER_THRESHOLD_BYTES);
+
+        try (Socket socket = openSocket(SERVER_PORT)) {
+            assertNull(get(socket, "/tiny.css", "Accept-Encoding: gzip\r\n").headers.get("content-encoding"));
+            Response image = get(socket, "/image.png", "Accept-Encoding: gzip\r\n");
+            assertNull(image.headers.get("content-encoding"));
+            assertEquals(4096, image.rawBody.length);
+
+            // Ranges refer to the identity representation
+            Response partial =
+                get(socket, "/style.css", "Accept-Encoding: gzip\r\nRange: bytes=0-3\r\n");
+            assertEquals(206, partial.statusCode);
+            assertNull(partial.headers.get("content-encoding"));
+            assertEquals("body", partial.body);
+        }
+    }
+
+    @Test
+    void testAcceptEncodingParsing() {
+        assertTrue(GzipEncoding.accepts("gzip"));
+        assertTrue(GzipEncoding.accepts("deflate, GZIP;q=0.5"));
+        assertTrue(GzipEncoding.accepts("br, *"));
+        assertTrue(GzipEncoding.accepts("x-gzip"));
+        assertFalse(GzipEncoding.accepts("gzip;q=0"));
+        assertFalse(GzipEncoding.accepts("gzip; q=0.000"));
+        assertFalse(GzipEncoding.accepts("deflate, br"));
+        assertFalse(GzipEncoding.accepts(null));
+        assertTrue(GzipEncoding.isCompressible("text/css"));
+        assertFalse(GzipEncoding.isCompressible("image/png"));
+    }
+
+    @Test
+    void testExplicitGzipOverridesWildcard() {
+        assertFalse(GzipEncoding.accepts("*, gzip;q=0"));
+        assertFalse(GzipEncoding.accepts("gzip;q=0, *"));
+        assertFalse(GzipEncoding.accepts("*, x-gzip;q=0"));
+        assertTrue(GzipEncoding.accepts("*;q=0, gzip"));
+        assertTrue(GzipEncoding.accepts("gzip;q=0, x-gzip"));
+        assertFalse(GzipEncoding.accepts("br, *;q=0"));
+    }
+
+    private void writeFile(String name, byte[] content, long modifiedMillis) throws IOException {
+        Path file = webRoot.resolve(name);
+        Files.write(file, content);
+        Files.setLastModifiedTime(file, FileTime.fromMillis(modifiedMillis));
+    }
+
+    private void startServer(WebServerConfig.Engine engine, long transferThreshold) throws Exception {
+        WebServerConfig config = new WebServerConfig();
+        config.setPort(SERVER_PORT);
+        config.setWebRoot(webRoot.toString());
+        config.setEngine(engine);
+        config.setReactorThreads(1);
+        config.setTransferThresholdBytes(transferThreshold);
+
+        server = new SimpleWebServer(config);
+        serverThread = WebServerTestSupport.startServer(server, SERVER_PORT);
+    }
+
+    static byte[] gzip(String text) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        try (GZIPOutputStream gzip = new GZIPOutputStream(out)) {
+            gzip.write(text.getBytes(StandardCharsets.UTF_8));
+        }
+        return out.toByteArray();
+    }
+
+    static String gunzip(byte[] data) throws IOException {
+        try (GZIPInputStream in = new GZIPInputStream(new ByteArrayInputStream(data))) {
+            return new String(in.readAllBytes(), StandardCharsets.UTF_8);
+        }
+    }
+}
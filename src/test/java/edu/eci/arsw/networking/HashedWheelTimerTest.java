@@ -0,0 +1,204 @@
+package edu.eci.arsw.networking;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.EnumSource;
+import static org.junit.jupiter.api.Assertions.*;
+import static edu.eci.arsw.networking.WebServerTestSupport.*;
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.net.Socket;
+import java.net.SocketException;
+import java.net.SocketTimeoutException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Test class for HashedWheelTimer
+ * Verifies scheduling across several rounds of the wheel, cancellation, the watchdog
+ * semantics and the deadlines it enforces on the web and square servers
+ */
+class HashedWheelTimerTest {
+
+    private static final int SERVER_PORT = 8104;
+    private static final int SQUARE_PORT = 35103;
+
+    @TempDir
+    Path webRoot;
+
+    private HashedWheelTimer timer;
+    private SimpleWebServer server;
+    private Thread serverThread;
+
+    @AfterEach
+    void tearDown() throws InterruptedException {
+        if (timer != null) {
+            timer.close();
+        }
+        if (server != null) {
+            stopServer(server, serverThread, SERVER_PORT);
+        }
+    }
+
+    @Test
+    void testTimeoutsFireAfterTheirDelayAcrossRounds() throws InterruptedException {
+        // 8 buckets of 10 ms: delays up to 400 ms wrap around the wheel several times
+        timer = new HashedWheelTimer(10, 8);
+        int count = 2000;
+        CountDownLatch fired = new CountDownLatch(count);
+        AtomicInteger early = new AtomicInteger();
+        for (int i = 0; i < count; i++) {
+            long delayMillis = i % 400;
+            long due = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(delayMillis);
+            timer.schedule(() -> {
+                if (System.nanoTime() < due) {
+                    early.incrementAndGet();
+                }
+                fired.countDown();
+            }, delayMillis, TimeUnit.MILLISECONDS);
+        }
+        assertTrue(fired.await(5, TimeUnit.SECONDS));
+        assertEquals(0, early.get());
+        assertEquals(0, timer.getScheduledCount());
+    }
+
+    @Test
+    void testCancelledTimeoutNeverRuns() throws InterruptedException {
+        timer = new HashedWheelTimer(10, 16);
+        AtomicInteger runs = new AtomicInteger();
+        HashedWheelTimer.Timeout cancelled = timer.schedule(runs::incrementAndGet, 50, TimeUnit.MILLISECONDS);
+        CountDownLatch later = new CountDownLatch(1);
+        HashedWheelTimer.Timeout kept = timer.schedule(later::countDown, 100, TimeUnit.MILLISECONDS);
+
+        assertTrue(cancelled.cancel());
+        assertFalse(cancelled.cancel());
+        assertTrue(later.await(2, TimeUnit.SECONDS));
+        assertEquals(0, runs.get());
+        assertTrue(cancelled.isCancelled());
+        assertTrue(kept.isExpired());
+        assertFalse(kept.cancel());
+    }
+
+    @Test
+    void testWatchdogExpiresOnlyAfterSilence() throws InterruptedException {
+        timer = new HashedWheelTimer(10, 64);
+        AtomicLong expiredAt = new AtomicLong();
+        HashedWheelTimer.Watchdog watchdog = timer.watchdog(() -> expiredAt.set(System.nanoTime()));
+
+        // Activity keeps pushing the deadline forward
+        long start = System.nanoTime();
+        for (int i = 0; i < 10; i++) {
+            watchdog.arm(100);
+            Thread.sleep(30);
+        }
+        assertFalse(watchdog.isExpired());
+        long lastArm = System.nanoTime();
+        watchdog.arm(100);
+        for (int i = 0; i < 100 && !watchdog.isExpired(); i++) {
+            Thread.sleep(10);
+        }
+        assertTrue(watchdog.isExpired());
+        assertTrue(expiredAt.get() - lastArm >= TimeUnit.MILLISECONDS.toNanos(100));
+        assertTrue(expiredAt.get() - start >= TimeUnit.MILLISECONDS.toNanos(300));
+
+        // A disarmed or closed watchdog stays quiet
+        AtomicInteger runs = new AtomicInteger();
+        HashedWheelTimer.Watchdog disarmed = timer.watchdog(runs::incrementAndGet);
+        disarmed.arm(30);
+        disarmed.disarm();
+        HashedWheelTimer.Watchdog closed = timer.watchdog(runs::incrementAndGet);
+        closed.arm(30);
+        closed.close();
+        Thread.sleep(150);
+        assertEquals(0, runs.get());
+    }
+
+    @ParameterizedTest
+    @EnumSource(WebServerConfig.Engine.class)
+    void testSlowHeadIsCutOffAndOthersAreServed(WebServerConfig.Engine engine) throws Exception {
+        Files.write(webRoot.resolve("index.html"), "hola".getBytes(StandardCharsets.UTF_8));
+        WebServerConfig config = new WebServerConfig();
+        config.setPort(SERVER_PORT);
+        config.setWebRoot(webRoot.toString());
+        config.setEngine(engine);
+        config.setReactorThreads(1);
+        // The sequential accept loop is the worst case for a slow client
+        config.setExecutorMode(ConnectionExecutor.Mode.INLINE);
+        config.setHeaderTimeoutMillis(300);
+        server = new SimpleWebServer(config);
+        serverThread = startServer(server, SERVER_PORT);
+
+        long start = System.nanoTime();
+        try (Socket slow = openSocket(SERVER_PORT)) {
+            OutputStream out = slow.getOutputStream();
+            out.write("GET /index.html HTTP/1.1\r\n".getBytes(StandardCharsets.ISO_8859_1));
+            boolean cutOff = false;
+            // One header byte every 50 ms never completes the head in time
+            byte[] header = "X-Relleno: abcdefghijklmnopqrstuvwxyz0123456789abcdefghijklmnopqrstuvwxyz\r\n"
+                .getBytes(StandardCharsets.ISO_8859_1);
+            for (int i = 0; i < header.length && !cutOff; i++) {
+                try {
+                    out.write(header[i]);
+                    out.flush();
+                    cutOff = isClosedByPeer(slow);
+                } catch (SocketException e) {
+                    cutOff = true;
+                }
+            }
+            assertTrue(cutOff, "La conexión lenta no se cerró");
+        }
+        assertTrue(System.nanoTime() - start < TimeUnit.SECONDS.toNanos(2));
+
+        try (Socket other = openSocket(SERVER_PORT)) {
+            assertEquals(200, get(other, "/index.html", "Connection: close\r\n").statusCode);
+        }
+    }
+
+    @Test
+    void testSquareServerClosesSilentConnection() throws Exception {
+        SquareServer square = new SquareServer(SQUARE_PORT,
+            ConnectionExecutor.create(ConnectionExecutor.Mode.THREAD, "square-idle"));
+        square.setIdleTimeoutMillis(200);
+        Thread squareThread = new Thread(square::startServer);
+        squareThread.setDaemon(true);
+        squareThread.start();
+        try {
+            waitForPort(SQUARE_PORT);
+            try (Socket silent = openSocket(SQUARE_PORT)) {
+                BufferedReader in = new BufferedReader(new InputStreamReader(silent.getInputStream()));
+                long start = System.nanoTime();
+                assertNull(in.readLine());
+                long elapsed = System.nanoTime() - start;
+                assertTrue(elapsed >= TimeUnit.MILLISECONDS.toNanos(150));
+                assertTrue(elapsed < TimeUnit.SECONDS.toNanos(3));
+            }
+        } finally {
+            square.stopServer();
+            wakeUp(SQUARE_PORT);
+            squareThread.join(5000);
+        }
+    }
+
+    /**
+     * Waits briefly for the server to close the connection; the server must not answer
+     */
+    private static boolean isClosedByPeer(Socket socket) throws IOException {
+        socket.setSoTimeout(50);
+        try {
+            int read = socket.getInputStream().read();
+            assertTrue(read < 0, "Respuesta inesperada a una cabecera incompleta");
+            return true;
+        } catch (SocketTimeoutException e) {
+            return false;
+        }
+    }
+}
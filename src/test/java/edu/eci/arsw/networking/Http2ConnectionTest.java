@@ -0,0 +1,428 @@
+package edu.eci.arsw.networking;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import static org.junit.jupiter.api.Assertions.*;
+import static edu.eci.arsw.networking.WebServerTestSupport.*;
+import java.io.*;
+import java.net.Socket;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HexFormat;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * Test class for HTTP/2 over cleartext (h2c) in SimpleWebServer
+ * Verifies HPACK against the examples of RFC 7541, the Upgrade path with the JDK HTTP
+ * client, and multiplexing, flow control and protocol errors with raw frames sent after
+ * the prior-knowledge preface
+ */
+class Http2ConnectionTest {
+
+    private static final int SERVER_PORT = 8108;
+
+    private static final int DATA = 0x0;
+    private static final int HEADERS = 0x1;
+    private static final int RST_STREAM = 0x3;
+    private static final int SETTINGS = 0x4;
+    private static final int PING = 0x6;
+    private static final int GOAWAY = 0x7;
+    private static final int WINDOW_UPDATE = 0x8;
+
+    @TempDir
+    Path webRoot;
+
+    private SimpleWebServer server;
+    private Thread serverThread;
+
+    @AfterEach
+    void tearDown() throws InterruptedException {
+        if (server != null) {
+            WebServerTestSupport.stopServer(server, serverThread, SERVER_PORT);
+        }
+    }
+
+    @Test
+    void testHpackDecodesRfc7541RequestExamples() throws Exception {
+        // RFC 7541, appendix C.4: three requests with Huffman-coded strings sharing one table
+        Hpack.Decoder decoder = new Hpack.Decoder(Hpack.DEFAULT_TABLE_SIZE);
+        List<Hpack.HeaderField> first = decode(decoder, "828684418cf1e3c2e5f23a6ba0ab90f4ff");
+        assertFields(first, ":method", "GET", ":scheme", "http", ":path", "/", ":authority", "www.example.com");
+        assertEquals(57, decoder.table().size());
+
+        List<Hpack.HeaderField> second = decode(decoder, "828684be5886a8eb10649cbf");
+        assertFields(second, ":method", "GET", ":scheme", "http", ":path", "/",
+                     ":authority", "www.example.com", "cache-control", "no-cache");
+        assertEquals(110, decoder.table().size());
+
+        List<Hpack.HeaderField> third =
+            decode(decoder, "828785bf408825a849e95ba97d7f8925a849e95bb8e8b4bf");
+        assertFields(third, ":method", "GET", ":scheme", "https", ":path", "/index.html",
+                     ":authority", "www.example.com", "custom-key", "custom-value");
+        assertEquals(164, decoder.table().size());
+        assertEquals(3, decoder.table().length());
+
+        // An index past both tables is a compression error
+        Http2Connection.ProtocolException error = assertThrows(Http2Connection.ProtocolException.class,
+            () -> decode(decoder, "ff7f"));
+        assertEquals(Http2Connection.COMPRESSION_ERROR, error.getErrorCode());
+    }
+
+    @Test
+    void testHpackEncoderReusesDynamicTable() throws Exception {
+        Hpack.Encoder encoder = new Hpack.Encoder();
+        Hpack.Decoder decoder = new Hpack.Decoder(Hpack.DEFAULT_TABLE_SIZE);
+
+        encoder.beginBlock();
+        encoder.status(200);
+        encoder.header("server", "SimpleWebServer/1.0", true);
+        encoder.header("content-type", "text/css", true);
+        encoder.header("etag", "\"1f-abc\"", false);
+        int firstLength = encoder.length();
+        List<Hpack.HeaderField> fields = new ArrayList<>();
+        decoder.decode(encoder.block(), 0, encoder.length(), fields);
+        assertFields(fields, ":status", "200", "server", "SimpleWebServer/1.0",
+                     "content-type", "text/css", "etag", "\"1f-abc\"");
+
+        // The indexed fields shrink to one octet each in the next block
+        encoder.beginBlock();
+        encoder.status(200);
+        encoder.header("server", "SimpleWebServer/1.0", true);
+        encoder.header("content-type", "text/css", true);
+        assertEquals(3, encoder.length());
+        assertTrue(firstLength > 20);
+        fields.clear();
+        decoder.decode(encoder.block(), 0, encoder.length(), fields);
+        assertFields(fields, ":status", "200", "server", "SimpleWebServer/1.0", "content-type", "text/css");
+
+        // A smaller table asked for by the client is announced at the start of the next block
+        encoder.setMaxTableSize(0);
+        encoder.beginBlock();
+        encoder.status(404);
+        fields.clear();
+        decoder.decode(encoder.block(), 0, encoder.length(), fields);
+        assertFields(fields, ":status", "404");
+        assertEquals(0, decoder.table().length());
+    }
+
+    @Test
+    void testUpgradeWithJdkClient() throws Exception {
+        Files.writeString(webRoot.resolve("index.html"), "<h1>inicio</h1>");
+        Files.writeString(webRoot.resolve("style.css"), "body { color: red; }");
+        startServer(100);
+
+        HttpClient client = HttpClient.newBuilder().version(HttpClient.Version.HTTP_2).build();
+        // The first request upgrades the connection, the next ones share it as streams
+        HttpResponse<String> upgraded = client.send(request("/index.html"), HttpResponse.BodyHandlers.ofString());
+        assertEquals(HttpClient.Version.HTTP_2, upgraded.version());
+        assertEquals(200, upgraded.statusCode());
+        assertEquals("<h1>inicio</h1>", upgraded.body());
+
+        List<CompletableFuture<HttpResponse<String>>> responses = new ArrayList<>();
+        for (int i = 0; i < 20; i++) {
+            String path = i % 2 == 0 ? "/style.css" : "/missing.html";
+            responses.add(client.sendAsync(request(path), HttpResponse.BodyHandlers.ofString()));
+        }
+        for (int i = 0; i < responses.size(); i++) {
+            HttpResponse<String> response = responses.get(i).get();
+            assertEquals(HttpClient.Version.HTTP_2, response.version());
+            if (i % 2 == 0) {
+                assertEquals(200, response.statusCode());
+                assertEquals("body { color: red; }", response.body());
+                assertEquals("text/css", response.headers().firstValue("content-type").orElse(null));
+                assertTrue(response.headers().firstValue("etag").isPresent());
+            } else {
+                assertEquals(404, response.statusCode());
+            }
+        }
+    }
+
+    @Test
+    void testMultiplexedStreamsWithFlowControl() throws Exception {
+        byte[] large = new byte[5000];
+        new Random(3).nextBytes(large);
+        Files.write(webRoot.resolve("large.bin"), large);
+        Files.writeString(webRoot.resolve("small.txt"), "pequeño");
+        startServer(100);
+
+        try (Http2Client client = new Http2Client()) {
+            // Each stream may receive only 1000 bytes until it is given more window
+            client.start(Map.of(0x4, 1000));
+            client.request(1, "/large.bin");
+            client.request(3, "/small.txt");
+
+            // The small file is not held back behind the stalled large one
+            Map<Integer, ByteArrayOutputStream> bodies = new HashMap<>();
+            Map<Integer, Map<String, String>> heads = new HashMap<>();
+            while (!client.ended.contains(3) || received(bodies, 1) < 1000) {
+                client.readInto(heads, bodies);
+            }
+            assertEquals("200", heads.get(1).get(":status"));
+            assertEquals("5000", heads.get(1).get("content-length"));
+            assertEquals("pequeño", bodies.get(3).toString(StandardCharsets.UTF_8));
+            assertEquals(1000, received(bodies, 1));
+            assertFalse(client.ended.contains(1));
+
+            client.ping();
+            Frame pong = client.readFrame();
+            assertEquals(PING, pong.type);
+            assertEquals(0x1, pong.flags);
+
+            client.windowUpdate(1, 4000);
+            while (!client.ended.contains(1)) {
+                client.readInto(heads, bodies);
+            }
+            assertArrayEquals(large, bodies.get(1).toByteArray());
+
+            // Compressed headers of a repeated request refer to the dynamic table
+            client.request(5, "/small.txt");
+            while (!client.ended.contains(5)) {
+                client.readInto(heads, bodies);
+            }
+            assertEquals("200", heads.get(5).get(":status"));
+            assertEquals("pequeño", bodies.get(5).toString(StandardCharsets.UTF_8));
+        }
+    }
+
+    @Test
+    void testConcurrentStreamLimit() throws Exception {
+        Files.write(webRoot.resolve("large.bin"), new byte[5000]);
+        startServer(1);
+
+        try (Http2Client client = new Http2Client()) {
+            client.start(Map.of(0x4, 100));
+            client.request(1, "/large.bin");
+            client.request(3, "/large.bin");
+
+            Frame reset;
+            do {
+                reset = client.readFrame();
+            } while (reset.type != RST_STREAM);
+            assertEquals(3, reset.streamId);
+            assertEquals(Http2Connection.REFUSED_STREAM, readInt(reset.payload, 0));
+        }
+    }
+
+    @Test
+    void testProtocolErrorsEndConnectionWithGoAway() throws Exception {
+        startServer(100);
+
+        // Client stream identifiers must be odd
+        try (Http2Client client = new Http2Client()) {
+            client.start(Map.of());
+            client.request(2, "/");
+            Frame goAway = client.readUntil(GOAWAY);
+            assertEquals(Http2Connection.PROTOCOL_ERROR, readInt(goAway.payload, 4));
+            assertEquals(-1, client.in.read());
+        }
+
+        // The preface must be followed by SETTINGS
+        try (Http2Client client = new Http2Client()) {
+            client.out.write(Http2Connection.PREFACE);
+            client.writeFrame(PING, 0, 0, new byte[8]);
+            Frame goAway = client.readUntil(GOAWAY);
+            assertEquals(Http2Connection.PROTOCOL_ERROR, readInt(goAway.payload, 4));
+        }
+
+        // Frames larger than the advertised maximum
+        try (Http2Client client = new Http2Client()) {
+            client.start(Map.of());
+            client.writeFrame(HEADERS, 0x4, 1, new byte[Http2Connection.DEFAULT_MAX_FRAME_SIZE + 1]);
+            Frame goAway = client.readUntil(GOAWAY);
+            assertEquals(Http2Connection.FRAME_SIZE_ERROR, readInt(goAway.payload, 4));
+        }
+    }
+
+    @Test
+    void testInvalidStreamLimitRejected() {
+        WebServerConfig config = new WebServerConfig();
+        assertThrows(IllegalArgumentException.class, () -> config.setHttp2MaxConcurrentStreams(0));
+    }
+
+    private void startServer(int maxStreams) throws Exception {
+        WebServerConfig config = new WebServerConfig();
+        config.setPort(SERVER_PORT);
+        config.setWebRoot(webRoot.toString());
+        config.setHttp2MaxConcurrentStreams(maxStreams);
+        // Compression would change the bodies the tests compare
+        config.setCompressionEnabled(false);
+
+        server = new SimpleWebServer(config);
+        serverThread = WebServerTestSupport.startServer(server, SERVER_PORT);
+    }
+
+    private static HttpRequest request(String path) {
+        return HttpRequest.newBuilder(URI.create("http://" + SERVER_HOST + ":" + SERVER_PORT + path)).build();
+    }
+
+    private static List<Hpack.HeaderField> decode(Hpack.Decoder decoder, String hex) throws IOException {
+        byte[] block = HexFormat.of().parseHex(hex);
+        List<Hpack.HeaderField> fields = new ArrayList<>();
+        decoder.decode(block, 0, block.length, fields);
+        return fields;
+    }
+
+    private static void assertFields(List<Hpack.HeaderField> fields, String... expected) {
+        assertEquals(expected.length / 2, fields.size());
+        for (int i = 0; i < fields.size(); i++) {
+            assertEquals(expected[2 * i], fields.get(i).name);
+            assertEquals(expected[2 * i + 1], fields.get(i).value);
+        }
+    }
+
+    private static int received(Map<Integer, ByteArrayOutputStream> bodies, int streamId) {
+        ByteArrayOutputStream body = bodies.get(streamId);
+        return body != null ? body.size() : 0;
+    }
+
+    private static int readInt(byte[] source, int offset) {
+        return ((source[offset] & 0xFF) << 24) | ((source[offset + 1] & 0xFF) << 16)
+               | ((source[offset + 2] & 0xFF) << 8) | (source[offset + 3] & 0xFF);
+    }
+
+    /**
+     * One frame as read from the server
+     */
+    private static final class Frame {
+        int type;
+        int flags;
+        int streamId;
+        byte[] payload;
+    }
+
+    /**
+     * Minimal HTTP/2 client speaking raw frames, with its own HPACK state
+     */
+    private static final class Http2Client implements Closeable {
+
+        final Socket socket;
+        final DataInputStream in;
+        final OutputStream out;
+        final List<Integer> ended = new ArrayList<>();
+        private final Hpack.Encoder encoder = new Hpack.Encoder();
+        private final Hpack.Decoder decoder = new Hpack.Decoder(Hpack.DEFAULT_TABLE_SIZE);
+
+        Http2Client() throws IOException {
+            socket = openSocket(SERVER_PORT);
+            in = new DataInputStream(socket.getInputStream());
+            out = socket.getOutputStream();
+        }
+
+        /**
+         * Sends the preface with the given settings and waits for the server's SETTINGS
+         */
+        void start(Map<Integer, Integer> settings) throws IOException {
+            out.write(Http2Connection.PREFACE);
+            ByteArrayOutputStream payload = new ByteArrayOutputStream();
+            for (Map.Entry<Integer, Integer> setting : settings.entrySet()) {
+                payload.write(setting.getKey() >>> 8);
+                payload.write(setting.getKey());
+                payload.write(intBytes(setting.getValue()));
+            }
+            writeFrame(SETTINGS, 0, 0, payload.toByteArray());
+            Frame serverSettings = readFrame();
+            assertEquals(SETTINGS, serverSettings.type);
+            assertEquals(0, serverSettings.flags);
+            writeFrame(SETTINGS, 0x1, 0, new byte[0]);
+        }
+
+        void request(int streamId, String path) throws IOException {
+            encoder.beginBlock();
+            encoder.header(":method", "GET", false);
+            encoder.header(":scheme", "http", false);
+            encoder.header(":path", path, true);
+            encoder.header(":authority", SERVER_HOST + ":" + SERVER_PORT, true);
+            encoder.header("user-agent", "Http2ConnectionTest", true);
+            byte[] block = new byte[encoder.length()];
+            System.arraycopy(encoder.block(), 0, block, 0, block.length);
+            // END_STREAM | END_HEADERS
+            writeFrame(HEADERS, 0x5, streamId, block);
+        }
+
+        void ping() throws IOException {
+            writeFrame(PING, 0, 0, "12345678".getBytes(StandardCharsets.ISO_8859_1));
+        }
+
+        void windowUpdate(int streamId, int increment) throws IOException {
+            writeFrame(WINDOW_UPDATE, 0, streamId, intBytes(increment));
+        }
+
+        /**
+         * Reads one frame, collecting response heads and bodies and skipping the rest
+         */
+        void readInto(Map<Integer, Map<String, String>> heads, Map<Integer, ByteArrayOutputStream> bodies)
+                throws IOException {
+            Frame frame = readFrame();
+            if (frame.type == HEADERS) {
+                List<Hpack.HeaderField> fields = new ArrayList<>();
+                decoder.decode(frame.payload, 0, frame.payload.length, fields);
+                Map<String, String> head = new HashMap<>();
+                for (Hpack.HeaderField field : fields) {
+                    head.put(field.name, field.value);
+                }
+                heads.put(frame.streamId, head);
+            } else if (frame.type == DATA) {
+                bodies.computeIfAbsent(frame.streamId, id -> new ByteArrayOutputStream()).write(frame.payload);
+            } else {
+                return;
+            }
+            if ((frame.flags & 0x1) != 0) {
+                ended.add(frame.streamId);
+            }
+        }
+
+        Frame readUntil(int type) throws IOException {
+            Frame frame;
+            do {
+                frame = readFrame();
+            } while (frame.type != type);
+            return frame;
+        }
+
+        Frame readFrame() throws IOException {
+            byte[] header = new byte[9];
+            in.readFully(header);
+            Frame frame = new Frame();
+            int length = ((header[0] & 0xFF) << 16) | ((header[1] & 0xFF) << 8) | (header[2] & 0xFF);
+            frame.type = header[3] & 0xFF;
+            frame.flags = header[4] & 0xFF;
+            frame.streamId = readInt(header, 5) & 0x7FFFFFFF;
+            frame.payload = new byte[length];
+            in.readFully(frame.payload);
+            return frame;
+        }
+
+        void writeFrame(int type, int flags, int streamId, byte[] payload) throws IOException {
+            byte[] header = new byte[9];
+            header[0] = (byte) (payload.length >>> 16);
+            header[1] = (byte) (payload.length >>> 8);
+            header[2] = (byte) payload.length;
+            header[3] = (byte) type;
+            header[4] = (byte) flags;
+            System.arraycopy(intBytes(streamId), 0, header, 5, 4);
+            out.write(header);
+            out.write(payload);
+            out.flush();
+        }
+
+        private static byte[] intBytes(int value) {
+            return new byte[] { (byte) (value >>> 24), (byte) (value >>> 16), (byte) (value >>> 8), (byte) value };
+        }
+
+        @Override
+        public void close() throws IOException {
+            socket.close();
+        }
+    }
+}
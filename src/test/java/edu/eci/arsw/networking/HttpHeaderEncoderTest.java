@@ -0,0 +1,101 @@
+package edu.eci.arsw.networking;
+
+import org.junit.jupiter.api.Test;
+import static org.junit.jupiter.api.Assertions.*;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.charset.StandardCharsets;
+import java.time.ZonedDateTime;
+import java.time.format.DateTimeFormatter;
+
+/**
+ * Test class for HttpHeaderEncoder
+ * Verifies the encoded header block, the cached Date header and the buffer growth in
+ * ResponseWriter
+ */
+class HttpHeaderEncoderTest {
+
+    @Test
+    void testKeepAliveHeaderBlock() {
+        HttpResponse response = new HttpResponse(200, "OK", "text/css", new byte[1997]);
+        response.setKeepAlive(5, 99);
+
+        String headers = encode(response);
+
+        assertTrue(headers.startsWith("HTTP/1.1 200 OK\r\nDate: "));
+        assertTrue(headers.endsWith("Server: SimpleWebServer/1.0\r\n" +
+                                    "Content-Type: text/css\r\n" +
+                                    "Content-Length: 1997\r\n" +
+                                    "Connection: keep-alive\r\n" +
+                                    "Keep-Alive: timeout=5, max=99\r\n" +
+                                    "\r\n"));
+    }
+
+    @Test
+    void testCloseHeaderBlock() {
+        HttpResponse response = new HttpResponse(404, "Not Found", "text/html; charset=UTF-8", new byte[0]);
+
+        String headers = encode(response);
+
+        assertTrue(headers.startsWith("HTTP/1.1 404 Not Found\r\n"));
+        assertTrue(headers.contains("Content-Length: 0\r\n"));
+        assertTrue(headers.endsWith("Connection: close\r\n\r\n"));
+    }
+
+    @Test
+    void testStatusTextChangeNotServedFromCache() {
+        encode(new HttpResponse(503, "Service Unavailable", "text/plain", new byte[0]));
+        String headers = encode(new HttpResponse(503, "Busy", "text/plain", new byte[0]));
+
+        assertTrue(headers.startsWith("HTTP/1.1 503 Busy\r\n"));
+    }
+
+    @Test
+    void testDateHeaderIsHttpDateAndCachedPerSecond() {
+        byte[] first = HttpHeaderEncoder.currentDate();
+        byte[] second = HttpHeaderEncoder.currentDate();
+        String value = new String(first, StandardCharsets.ISO_8859_1);
+
+        // Both calls normally fall in the same second and then share one array
+        assertTrue(first == second || !value.equals(new String(second, StandardCharsets.ISO_8859_1)));
+        assertTrue(value.endsWith(" GMT"));
+        assertDoesNotThrow(() -> ZonedDateTime.parse(value, DateTimeFormatter.RFC_1123_DATE_TIME));
+    }
+
+    @Test
+    void testDecimalEncoding() {
+        ByteBuffer buffer = ByteBuffer.allocate(64);
+        HttpHeaderEncoder.writeDecimal(0, buffer);
+        buffer.put((byte) ' ');
+        HttpHeaderEncoder.writeDecimal(3221225472L, buffer);
+        buffer.put((byte) ' ');
+        HttpHeaderEncoder.writeDecimal(-42, buffer);
+
+        assertEquals("0 3221225472 -42", new String(buffer.array(), 0, buffer.position(), StandardCharsets.ISO_8859_1));
+    }
+
+    @Test
+    void testWriterGrowsBufferForLongHeaders() throws IOException {
+        String contentType = "text/plain; note=" + "x".repeat(2000);
+        HttpResponse response = new HttpResponse(200, "OK", contentType, "hola".getBytes(StandardCharsets.UTF_8));
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+
+        try (ResponseWriter writer = new ResponseWriter()) {
+            writer.start(response);
+            assertTrue(writer.writeTo(Channels.newChannel(out)));
+            assertFalse(writer.isPending());
+        }
+
+        String written = out.toString(StandardCharsets.ISO_8859_1);
+        assertTrue(written.contains("Content-Type: " + contentType + "\r\n"));
+        assertTrue(written.endsWith("\r\n\r\nhola"));
+    }
+
+    private static String encode(HttpResponse response) {
+        ByteBuffer buffer = ByteBuffer.allocate(1024);
+        HttpHeaderEncoder.encode(response, buffer);
+        return new String(buffer.array(), 0, buffer.position(), StandardCharsets.ISO_8859_1);
+    }
+}
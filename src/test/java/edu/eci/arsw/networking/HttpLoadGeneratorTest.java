@@ -0,0 +1,155 @@
+package edu.eci.arsw.networking;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import static org.junit.jupiter.api.Assertions.*;
+import static edu.eci.arsw.networking.WebServerTestSupport.*;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Test class for HttpLoadGenerator
+ * Verifies the keep-alive load against SimpleWebServer, the report formats, the option
+ * parsing and that a server stall is charged to every request scheduled during it
+ */
+class HttpLoadGeneratorTest {
+
+    private static final int SERVER_PORT = 8105;
+    private static final int STALLING_PORT = 8106;
+
+    @TempDir
+    Path webRoot;
+
+    private SimpleWebServer server;
+    private Thread serverThread;
+
+    @AfterEach
+    void tearDown() throws InterruptedException {
+        if (server != null) {
+            stopServer(server, serverThread, SERVER_PORT);
+        }
+    }
+
+    @Test
+    void testClosedAndConstantLoadAgainstWebServer() throws Exception {
+        Files.write(webRoot.resolve("index.html"), "hola".repeat(100).getBytes(StandardCharsets.UTF_8));
+        WebServerConfig config = new WebServerConfig();
+        config.setPort(SERVER_PORT);
+        config.setWebRoot(webRoot.toString());
+        // A small per-connection limit makes the pool reconnect during the run
+        config.setMaxRequestsPerConnection(50);
+        server = new SimpleWebServer(config);
+        serverThread = startServer(server, SERVER_PORT);
+
+        HttpLoadGenerator.Options closed = HttpLoadGenerator.Options.parse(new String[] {
+            "--url=http://" + SERVER_HOST + ":" + SERVER_PORT + "/index.html",
+            "--connections=4", "--duration=0.5", "--warmup=0.1"});
+        assertEquals(4, closed.getThreads());
+        HttpLoadGenerator.Report report = HttpLoadGenerator.run(closed);
+        assertTrue(report.getCompleted() > 100, "Respuestas: " + report.getCompleted());
+        assertEquals(0, report.getIoErrors());
+        assertEquals(0, report.getStatusErrors());
+        assertTrue(report.getLatencyNanos(50) <= report.getLatencyNanos(99));
+        assertTrue(report.getLatencyNanos(99) <= report.getLatencyNanos(99.9));
+        assertTrue(report.getMaxLatencyNanos() > 0);
+        assertTrue(report.toJson().startsWith("{\"url\":\"http://127.0.0.1:8105/index.html\",\"mode\":\"closed\",\"targetRate\":null,"));
+        assertTrue(report.toText().contains("Rendimiento:"));
+
+        HttpLoadGenerator.Options constant = HttpLoadGenerator.Options.parse(new String[] {
+            "--url=http://" + SERVER_HOST + ":" + SERVER_PORT + "/index.html", "--mode=constant",
+            "--rate=400", "--connections=2", "--duration=0.5", "--warmup=0", "--format=json"});
+        report = HttpLoadGenerator.run(constant);
+        // 400 per second for half a second, all sent on schedule
+        assertTrue(Math.abs(report.getCompleted() - 200) <= 2, "Respuestas: " + report.getCompleted());
+        assertEquals(0, report.getUnsent());
+        assertTrue(report.toJson().contains("\"targetRate\":400.0,"));
+    }
+
+    @Test
+    void testStallIsChargedToEveryScheduledRequest() throws Exception {
+        AtomicInteger served = new AtomicInteger();
+        try (ServerSocket stalling = new ServerSocket()) {
+            stalling.setReuseAddress(true);
+            stalling.bind(new InetSocketAddress(SERVER_HOST, STALLING_PORT));
+            Thread stub = new Thread(() -> serveWithOneStall(stalling, served));
+            stub.setDaemon(true);
+            stub.start();
+
+            HttpLoadGenerator.Options options = new HttpLoadGenerator.Options();
+            options.setUrl("http://" + SERVER_HOST + ":" + STALLING_PORT + "/");
+            options.setMode(HttpLoadGenerator.Mode.CONSTANT);
+            options.setRate(200);
+            options.setConnections(1);
+            options.setThreads(1);
+            options.setDurationMillis(1500);
+            options.setWarmupMillis(0);
+            HttpLoadGenerator.Report report = HttpLoadGenerator.run(options);
+
+            assertEquals(0, report.getIoErrors());
+            assertTrue(report.getCompleted() >= 290, "Respuestas: " + report.getCompleted());
+            // One slow response among ~300 barely moves the service time...
+            assertTrue(report.getServiceTimeNanos(90) < TimeUnit.MILLISECONDS.toNanos(50));
+            assertTrue(report.getMaxServiceTimeNanos() >= TimeUnit.MILLISECONDS.toNanos(400));
+            // ...but the ~80 requests due during the stall all waited for it
+            assertTrue(report.getLatencyNanos(90) >= TimeUnit.MILLISECONDS.toNanos(50),
+                       "p90: " + report.getLatencyNanos(90));
+            assertTrue(report.getLatencyNanos(99) >= TimeUnit.MILLISECONDS.toNanos(300),
+                       "p99: " + report.getLatencyNanos(99));
+        }
+    }
+
+    @Test
+    void testInvalidOptionsAreRejected() {
+        assertThrows(IllegalArgumentException.class, () -> HttpLoadGenerator.Options.parse(new String[] {"--mode=burst"}));
+        assertThrows(IllegalArgumentException.class, () -> HttpLoadGenerator.Options.parse(new String[] {"--rate=0"}));
+        assertThrows(IllegalArgumentException.class, () -> HttpLoadGenerator.Options.parse(new String[] {"--connections=x"}));
+        assertThrows(IllegalArgumentException.class, () -> HttpLoadGenerator.Options.parse(new String[] {"--url=ftp://h/"}));
+        assertThrows(IllegalArgumentException.class, () -> HttpLoadGenerator.Options.parse(new String[] {"rate=5"}));
+        HttpLoadGenerator.Options options = HttpLoadGenerator.Options.parse(new String[] {"--url=http://localhost/a?b=1"});
+        assertEquals(80, options.getPort());
+        assertEquals("/a?b=1", options.getPath());
+    }
+
+    /**
+     * Minimal keep-alive server that answers every request at once, except the 50th,
+     * which it holds for 400 ms
+     */
+    private static void serveWithOneStall(ServerSocket listener, AtomicInteger served) {
+        byte[] response = "HTTP/1.1 200 OK\r\nContent-Length: 2\r\n\r\nok".getBytes(StandardCharsets.ISO_8859_1);
+        while (!listener.isClosed()) {
+            try (Socket socket = listener.accept()) {
+                socket.setTcpNoDelay(true);
+                InputStream in = socket.getInputStream();
+                OutputStream out = socket.getOutputStream();
+                int matched = 0;
+                int read;
+                while ((read = in.read()) >= 0) {
+                    // Counts the bytes of a CRLFCRLF head terminator
+                    matched = (read == (matched % 2 == 0 ? '\r' : '\n')) ? matched + 1 : (read == '\r' ? 1 : 0);
+                    if (matched == 4) {
+                        matched = 0;
+                        if (served.incrementAndGet() == 50) {
+                            Thread.sleep(400);
+                        }
+                        out.write(response);
+                        out.flush();
+                    }
+                }
+            } catch (IOException e) {
+                // Listener closed or client gone
+            } catch (InterruptedException e) {
+                return;
+            }
+        }
+    }
+}
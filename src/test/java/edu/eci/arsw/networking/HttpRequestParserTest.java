@@ -0,0 +1,140 @@
+package edu.eci.arsw.networking;
+
+import org.junit.jupiter.api.Test;
+import static org.junit.jupiter.api.Assertions.*;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Test class for HttpRequestParser
+ * Verifies incremental parsing, the exposed views, pipelining and the size limits
+ */
+class HttpRequestParserTest {
+
+    @Test
+    void testCompleteRequest() {
+        HttpRequestParser parser = new HttpRequestParser();
+
+        HttpRequestParser.Result result = parser.parse(bytes(
+            "GET /docs/index.html?lang=es&x=1 HTTP/1.1\r\nHost: localhost\r\nConnection: keep-alive\r\n\r\n"));
+
+        assertEquals(HttpRequestParser.Result.COMPLETE, result);
+        assertTrue(parser.method().contentEquals("GET"));
+        assertTrue(parser.target().contentEquals("/docs/index.html?lang=es&x=1"));
+        assertTrue(parser.path().contentEquals("/docs/index.html"));
+        assertTrue(parser.query().contentEquals("lang=es&x=1"));
+        assertTrue(parser.version().contentEquals("HTTP/1.1"));
+        assertEquals(2, parser.headerCount());
+        assertEquals("Host", parser.headerName(0).toString());
+        assertEquals("localhost", parser.headerValue(0).toString());
+    }
+
+    @Test
+    void testRequestFedOneByteAtATime() {
+        HttpRequestParser parser = new HttpRequestParser();
+        byte[] request = "GET /a.css HTTP/1.1\r\nHost: x\r\n\r\n".getBytes(StandardCharsets.ISO_8859_1);
+
+        for (int i = 0; i < request.length - 1; i++) {
+            assertEquals(HttpRequestParser.Result.INCOMPLETE, parser.parse(ByteBuffer.wrap(request, i, 1)));
+        }
+        assertEquals(HttpRequestParser.Result.COMPLETE,
+                     parser.parse(ByteBuffer.wrap(request, request.length - 1, 1)));
+        assertTrue(parser.path().contentEquals("/a.css"));
+        assertEquals("x", parser.header("host").toString());
+    }
+
+    @Test
+    void testPipelinedBytesLeftInBuffer() {
+        HttpRequestParser parser = new HttpRequestParser();
+        ByteBuffer input = bytes("GET /one HTTP/1.1\r\n\r\nGET /two HTTP/1.1\r\n\r\n");
+
+        assertEquals(HttpRequestParser.Result.COMPLETE, parser.parse(input));
+        assertTrue(parser.path().contentEquals("/one"));
+        assertEquals("GET /two HTTP/1.1\r\n\r\n".length(), input.remaining());
+
+        parser.reset();
+        assertEquals(HttpRequestParser.Result.COMPLETE, parser.parse(input));
+        assertTrue(parser.path().contentEquals("/two"));
+        assertFalse(input.hasRemaining());
+    }
+
+    @Test
+    void testHeaderLookupAndTokens() {
+        HttpRequestParser parser = new HttpRequestParser();
+        parser.parse(bytes("GET / HTTP/1.0\r\nCONNECTION:  Upgrade ,Keep-Alive \r\nContent-Length: 0\r\n\r\n"));
+
+        AsciiView connection = parser.header("Connection");
+        assertNotNull(connection);
+        assertEquals("Upgrade ,Keep-Alive", connection.toString());
+        assertTrue(connection.containsToken("keep-alive"));
+        assertTrue(connection.containsToken("upgrade"));
+        assertFalse(connection.containsToken("close"));
+        assertNull(parser.header("Accept"));
+        assertFalse(parser.hasBody());
+    }
+
+    @Test
+    void testBareLineFeedsAndLeadingEmptyLines() {
+        HttpRequestParser parser = new HttpRequestParser();
+
+        assertEquals(HttpRequestParser.Result.COMPLETE, parser.parse(bytes("\r\n\nGET /x HTTP/1.1\nHost: h\n\n")));
+        assertTrue(parser.path().contentEquals("/x"));
+        assertEquals("h", parser.header("Host").toString());
+    }
+
+    @Test
+    void testRequestLineWithoutVersion() {
+        HttpRequestParser parser = new HttpRequestParser();
+
+        assertEquals(HttpRequestParser.Result.COMPLETE, parser.parse(bytes("GET /old\r\n\r\n")));
+        assertTrue(parser.version().isEmpty());
+        assertEquals("GET /old", parser.requestLine());
+    }
+
+    @Test
+    void testMalformedInput() {
+        assertEquals(HttpRequestParser.Result.MALFORMED, new HttpRequestParser().parse(bytes("GARBAGE\r\n\r\n")));
+        assertEquals(HttpRequestParser.Result.MALFORMED,
+                     new HttpRequestParser().parse(bytes("GET / HTTP/1.1\r\nNoColon\r\n\r\n")));
+        assertEquals(HttpRequestParser.Result.MALFORMED,
+                     new HttpRequestParser().parse(bytes("GET / HTTP/1.1\r\nHost : x\r\n\r\n")));
+        assertEquals(HttpRequestParser.Result.MALFORMED,
+                     new HttpRequestParser().parse(bytes("GET / HTTP/1.1\r\nHost: x\r\n folded\r\n\r\n")));
+    }
+
+    @Test
+    void testHeaderSizeLimit() {
+        HttpRequestParser parser = new HttpRequestParser(64, 10);
+
+        assertEquals(HttpRequestParser.Result.INCOMPLETE, parser.parse(bytes("GET / HTTP/1.1\r\n")));
+        assertEquals(HttpRequestParser.Result.TOO_LARGE, parser.parse(bytes("Cookie: " + "a".repeat(100))));
+        // The failure sticks until reset
+        assertEquals(HttpRequestParser.Result.TOO_LARGE, parser.parse(bytes("\r\n\r\n")));
+
+        parser.reset();
+        assertEquals(HttpRequestParser.Result.COMPLETE, parser.parse(bytes("GET / HTTP/1.1\r\n\r\n")));
+    }
+
+    @Test
+    void testHeaderCountLimit() {
+        HttpRequestParser parser = new HttpRequestParser(1024, 2);
+
+        assertEquals(HttpRequestParser.Result.TOO_LARGE,
+                     parser.parse(bytes("GET / HTTP/1.1\r\nA: 1\r\nB: 2\r\nC: 3\r\n\r\n")));
+    }
+
+    @Test
+    void testBodyAnnounced() {
+        HttpRequestParser parser = new HttpRequestParser();
+        parser.parse(bytes("GET / HTTP/1.1\r\nContent-Length: 12\r\n\r\n"));
+        assertTrue(parser.hasBody());
+
+        parser.reset();
+        parser.parse(bytes("GET / HTTP/1.1\r\nTransfer-Encoding: chunked\r\n\r\n"));
+        assertTrue(parser.hasBody());
+    }
+
+    private static ByteBuffer bytes(String text) {
+        return ByteBuffer.wrap(text.getBytes(StandardCharsets.ISO_8859_1));
+    }
+}
@@ -0,0 +1,126 @@
+package edu.eci.arsw.networking;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.EnumSource;
+import static org.junit.jupiter.api.Assertions.*;
+import static edu.eci.arsw.networking.WebServerTestSupport.*;
+import java.io.BufferedInputStream;
+import java.io.InputStream;
+import java.io.RandomAccessFile;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.Random;
+
+/**
+ * Test class for the zero-copy file transfer of SimpleWebServer
+ * Verifies that files above the transfer threshold are sent intact by both engines and
+ * that a multi-gigabyte file can be served by a server with a very small heap
+ */
+class LargeFileTransferTest {
+
+    private static final int SERVER_PORT = 8094;
+    private static final int CHILD_SERVER_PORT = 8095;
+    private static final long SPARSE_FILE_SIZE = 3L * 1024 * 1024 * 1024;
+
+    @TempDir
+    Path webRoot;
+
+    private SimpleWebServer server;
+    private Thread serverThread;
+
+    @AfterEach
+    void tearDown() throws InterruptedException {
+        if (server != null) {
+            WebServerTestSupport.stopServer(server, serverThread, SERVER_PORT);
+        }
+    }
+
+    @ParameterizedTest
+    @EnumSource(WebServerConfig.Engine.class)
+    void testLargeFileSentIntact(WebServerConfig.Engine engine) throws Exception {
+        byte[] content = new byte[3 * 1024 * 1024 + 17];
+        new Random(42).nextBytes(content);
+        Files.write(webRoot.resolve("data.bin"), content);
+        startServer(engine);
+
+        try (Socket socket = openSocket(SERVER_PORT)) {
+            send(socket, "GET /data.bin HTTP/1.1\r\nHost: localhost\r\n\r\n");
+            InputStream in = new BufferedInputStream(socket.getInputStream());
+            WebServerTestSupport.Response head = readHead(in);
+
+            assertEquals(String.valueOf(content.length), head.headers.get("content-length"));
+            assertArrayEquals(content, in.readNBytes(content.length));
+            // Streamed files are never copied into the cache
+            assertEquals(0, server.getFileCache().size());
+
+            // The connection stays usable after a streamed response
+            send(socket, "GET /small.txt HTTP/1.1\r\nHost: localhost\r\nConnection: close\r\n\r\n");
+            WebServerTestSupport.Response second = readHead(in);
+            assertEquals(200, second.statusCode);
+            assertEquals("pequeño", new String(in.readNBytes(Integer.parseInt(second.headers.get("content-length"))),
+                                               StandardCharsets.UTF_8));
+        }
+    }
+
+    @Test
+    void testMultiGigabyteSparseFileWithSmallHeap() throws Exception {
+        Path sparseFile = webRoot.resolve("huge.bin");
+        try (RandomAccessFile file = new RandomAccessFile(sparseFile.toFile(), "rw")) {
+            file.setLength(SPARSE_FILE_SIZE);
+        }
+
+        // A separate JVM whose heap is a tiny fraction of the file it serves; the NIO engine
+        // sends through a SocketChannel, so this is the sendfile path
+        String java = Paths.get(System.getProperty("java.home"), "bin", "java").toString();
+        ProcessBuilder builder = new ProcessBuilder(java, "-Xmx32m",
+                "-Dwebserver.port=" + CHILD_SERVER_PORT,
+                "-Dwebserver.root=" + webRoot,
+                "-Dwebserver.engine=nio",
+                "-cp", System.getProperty("java.class.path"),
+                SimpleWebServer.class.getName());
+        builder.redirectErrorStream(true);
+        builder.redirectOutput(ProcessBuilder.Redirect.DISCARD);
+        Process child = builder.start();
+
+        try {
+            waitForPort(CHILD_SERVER_PORT);
+            try (Socket socket = openSocket(CHILD_SERVER_PORT)) {
+                send(socket, "GET /huge.bin HTTP/1.1\r\nHost: localhost\r\nConnection: close\r\n\r\n");
+                InputStream in = new BufferedInputStream(socket.getInputStream(), 64 * 1024);
+                WebServerTestSupport.Response head = readHead(in);
+                assertEquals(200, head.statusCode);
+                assertEquals(String.valueOf(SPARSE_FILE_SIZE), head.headers.get("content-length"));
+
+                byte[] chunk = new byte[256 * 1024];
+                long received = 0;
+                int read;
+                while ((read = in.read(chunk)) != -1) {
+                    received += read;
+                }
+                assertEquals(SPARSE_FILE_SIZE, received);
+            }
+            assertTrue(child.isAlive(), "El servidor con heap pequeño terminó inesperadamente");
+        } finally {
+            child.destroyForcibly().waitFor();
+        }
+    }
+
+    private void startServer(WebServerConfig.Engine engine) throws Exception {
+        Files.write(webRoot.resolve("small.txt"), "pequeño".getBytes(StandardCharsets.UTF_8));
+        WebServerConfig config = new WebServerConfig();
+        config.setPort(SERVER_PORT);
+        config.setWebRoot(webRoot.toString());
+        config.setEngine(engine);
+        config.setReactorThreads(1);
+        config.setTransferThresholdBytes(64 * 1024);
+
+        server = new SimpleWebServer(config);
+        serverThread = WebServerTestSupport.startServer(server, SERVER_PORT);
+    }
+}
@@ -0,0 +1,394 @@
+package edu.eci.arsw.networking;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import static org.junit.jupiter.api.Assertions.*;
+import static edu.eci.arsw.networking.WebServerTestSupport.*;
+import java.io.*;
+import java.net.InetSocketAddress;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Test class for LoadBalancer and TcpLoadBalancer
+ * Verifies the selection policies, outlier ejection and health checks, and measures the
+ * tail latency through the TCP balancer with one deliberately slowed SquareServer
+ */
+class LoadBalancerTest {
+
+    private static final int BALANCER_PORT = 8114;
+    private static final int[] BACKEND_PORTS = { 8115, 8116, 8117 };
+    private static final int CLOSED_PORT = 8118;
+    private static final long SLOW_MILLIS = 40;
+
+    private final List<SquareServer> servers = new ArrayList<>();
+    private final List<Thread> serverThreads = new ArrayList<>();
+    private final List<Integer> serverPorts = new ArrayList<>();
+    private final List<LoadBalancer<?>> balancers = new ArrayList<>();
+
+    @AfterEach
+    void tearDown() throws Exception {
+        for (LoadBalancer<?> balancer : balancers) {
+            balancer.close();
+        }
+        for (int i = 0; i < servers.size(); i++) {
+            servers.get(i).stopServer();
+            wakeUp(serverPorts.get(i));
+            serverThreads.get(i).join(5000);
+        }
+    }
+
+    @Test
+    void testRoundRobinCyclesThroughBackends() {
+        LoadBalancer<LoadBalancer.Backend> balancer = balancer(LoadBalancer.Policy.ROUND_ROBIN, 3);
+        List<LoadBalancer.Backend> backends = balancer.getBackends();
+        LoadBalancer.Backend first = balancer.select();
+        int start = backends.indexOf(first);
+        for (int i = 1; i < 9; i++) {
+            assertSame(backends.get((start + i) % 3), balancer.select());
+        }
+    }
+
+    @Test
+    void testLeastOutstandingPicksLeastLoadedBackend() {
+        LoadBalancer<LoadBalancer.Backend> balancer = balancer(LoadBalancer.Policy.LEAST_OUTSTANDING, 3);
+        List<LoadBalancer.Backend> backends = balancer.getBackends();
+        backends.get(0).acquire();
+        backends.get(0).acquire();
+        backends.get(2).acquire();
+        for (int i = 0; i < 6; i++) {
+            assertSame(backends.get(1), balancer.select());
+        }
+        // Ties are spread instead of always going to the first backend
+        backends.get(1).acquire();
+        backends.get(0).release();
+        List<LoadBalancer.Backend> chosen = new ArrayList<>();
+        for (int i = 0; i < 6; i++) {
+            chosen.add(balancer.select());
+        }
+        assertTrue(chosen.containsAll(backends));
+    }
+
+    @Test
+    void testPowerOfTwoChoicesAvoidsLoadedBackend() {
+        LoadBalancer<LoadBalancer.Backend> balancer = balancer(LoadBalancer.Policy.POWER_OF_TWO, 2);
+        LoadBalancer.Backend loaded = balancer.getBackends().get(0);
+        loaded.acquire();
+        for (int i = 0; i < 50; i++) {
+            assertNotSame(loaded, balancer.select());
+        }
+    }
+
+    @Test
+    void testConsecutiveFailuresEjectAtMostHalfTheBackends() {
+        LoadBalancer<LoadBalancer.Backend> balancer = balancer(LoadBalancer.Policy.ROUND_ROBIN, 2);
+        LoadBalancer.Backend a = balancer.getBackends().get(0);
+        LoadBalancer.Backend b = balancer.getBackends().get(1);
+        for (int i = 0; i < LoadBalancer.CONSECUTIVE_FAILURES_TO_EJECT - 1; i++) {
+            balancer.recordFailure(a);
+        }
+        assertFalse(a.isEjected());
+        balancer.recordFailure(a);
+        assertTrue(a.isEjected());
+        assertEquals(1, a.getEjectionCount());
+        for (int i = 0; i < 10; i++) {
+            assertSame(b, balancer.select());
+        }
+
+        // Ejecting the other one too would leave nothing in rotation
+        for (int i = 0; i < LoadBalancer.CONSECUTIVE_FAILURES_TO_EJECT; i++) {
+            balancer.recordFailure(b);
+        }
+        assertFalse(b.isEjected());
+        assertSame(b, balancer.select());
+    }
+
+    @Test
+    void testLatencyOutlierEjected() {
+        LoadBalancer<LoadBalancer.Backend> balancer = balancer(LoadBalancer.Policy.LEAST_OUTSTANDING, 3);
+        List<LoadBalancer.Backend> backends = balancer.getBackends();
+        for (int i = 0; i < LoadBalancer.MIN_SAMPLES; i++) {
+            balancer.recordSuccess(backends.get(0), TimeUnit.MILLISECONDS.toNanos(1));
+            balancer.recordSuccess(backends.get(1), TimeUnit.MILLISECONDS.toNanos(2));
+            balancer.recordSuccess(backends.get(2), TimeUnit.MILLISECONDS.toNanos(50));
+        }
+        assertFalse(backends.get(0).isEjected());
+        assertFalse(backends.get(1).isEjected());
+        assertTrue(backends.get(2).isEjected());
+        assertEquals(50, TimeUnit.NANOSECONDS.toMillis(backends.get(2).getLatencyNanos()));
+
+        LoadBalancer<LoadBalancer.Backend> tolerant = balancer(LoadBalancer.Policy.LEAST_OUTSTANDING, 2);
+        tolerant.setOutlierEjection(false);
+        for (int i = 0; i < LoadBalancer.MIN_SAMPLES; i++) {
+            tolerant.recordSuccess(tolerant.getBackends().get(0), TimeUnit.MILLISECONDS.toNanos(1));
+            tolerant.recordSuccess(tolerant.getBackends().get(1), TimeUnit.MILLISECONDS.toNanos(50));
+            tolerant.recordFailure(tolerant.getBackends().get(1));
+        }
+        assertFalse(tolerant.getBackends().get(1).isEjected());
+    }
+
+    @Test
+    void testHealthChecksTakeBackendOutAndBack() throws Exception {
+        AtomicBoolean up = new AtomicBoolean(true);
+        LoadBalancer<LoadBalancer.Backend> balancer = balancer(LoadBalancer.Policy.ROUND_ROBIN, 2);
+        LoadBalancer.Backend flaky = balancer.getBackends().get(1);
+        balancer.setHealthCheck(backend -> backend != flaky || up.get(), 20);
+        balancer.start();
+
+        up.set(false);
+        awaitHealth(flaky, false);
+        for (int i = 0; i < 10; i++) {
+            assertNotSame(flaky, balancer.select());
+        }
+        up.set(true);
+        awaitHealth(flaky, true);
+        List<LoadBalancer.Backend> chosen = List.of(balancer.select(), balancer.select());
+        assertTrue(chosen.contains(flaky));
+    }
+
+    @Test
+    void testAllBackendsDownStillServes() throws Exception {
+        LoadBalancer<LoadBalancer.Backend> balancer = balancer(LoadBalancer.Policy.POWER_OF_TWO, 2);
+        balancer.setHealthCheck(LoadBalancer.tcpHealthCheck(200), 20);
+        balancer.start();
+        for (LoadBalancer.Backend backend : balancer.getBackends()) {
+            awaitHealth(backend, false);
+        }
+        List<LoadBalancer.Backend> chosen = new ArrayList<>();
+        for (int i = 0; i < 50; i++) {
+            chosen.add(balancer.select());
+        }
+        assertTrue(chosen.containsAll(balancer.getBackends()));
+    }
+
+    @Test
+    void testInvalidBackendsRejected() {
+        assertEquals(LoadBalancer.Policy.POWER_OF_TWO, LoadBalancer.Policy.fromCommand("P2C"));
+        assertNull(LoadBalancer.Policy.fromCommand("aleatorio"));
+        LoadBalancer.Backend backend = LoadBalancer.Backend.parse("127.0.0.1:35000");
+        assertEquals("127.0.0.1", backend.getHost());
+        assertEquals(35000, backend.getPort());
+        assertThrows(IllegalArgumentException.class, () -> LoadBalancer.Backend.parse("127.0.0.1"));
+        assertThrows(IllegalArgumentException.class, () -> LoadBalancer.Backend.parse("127.0.0.1:http"));
+        assertThrows(IllegalArgumentException.class, () -> LoadBalancer.Backend.parse("127.0.0.1:70000"));
+        assertThrows(IllegalArgumentException.class,
+                     () -> new LoadBalancer<>("vacio", LoadBalancer.Policy.ROUND_ROBIN, List.of()));
+    }
+
+    @Test
+    void testTcpBalancerSkipsUnreachableBackend() throws Exception {
+        startSquareServer(BACKEND_PORTS[0], 0);
+        List<LoadBalancer.Backend> backends = List.of(LoadBalancer.Backend.parse(SERVER_HOST + ":" + CLOSED_PORT),
+                                                      LoadBalancer.Backend.parse(SERVER_HOST + ":" + BACKEND_PORTS[0]));
+        LoadBalancer<LoadBalancer.Backend> balancer =
+            track(new LoadBalancer<>("tcp-prueba", LoadBalancer.Policy.ROUND_ROBIN, backends));
+        TcpLoadBalancer front = startBalancer(balancer);
+        try {
+            for (int i = 0; i < 10; i++) {
+                assertEquals("Respuesta: 49", square("7"));
+            }
+            assertTrue(backends.get(0).isEjected());
+            // The session ends on its own threads after the client has its answer
+            for (int i = 0; i < 100 && backends.get(1).getOutstanding() > 0; i++) {
+                Thread.sleep(20);
+            }
+            assertEquals(0, backends.get(1).getOutstanding());
+        } finally {
+            front.stopServer();
+        }
+    }
+
+    @Test
+    void testTcpBalancerClosesIdleConnection() throws Exception {
+        startSquareServer(BACKEND_PORTS[0], 0);
+        LoadBalancer<LoadBalancer.Backend> balancer = track(new LoadBalancer<>("tcp-inactivo",
+            LoadBalancer.Policy.ROUND_ROBIN, List.of(LoadBalancer.Backend.parse(SERVER_HOST + ":" + BACKEND_PORTS[0]))));
+        LoadBalancer.Backend backend = balancer.getBackends().get(0);
+        TcpLoadBalancer front = new TcpLoadBalancer(BALANCER_PORT, balancer,
+            ConnectionExecutor.create(ConnectionExecutor.Mode.POOL, "balancer-inactivo", 4, 0));
+        front.setIdleTimeoutMillis(200);
+        Thread thread = new Thread(front::startServer);
+        thread.setDaemon(true);
+        thread.start();
+        try {
+            waitForPort(BALANCER_PORT);
+            try (Socket socket = openSocket(BALANCER_PORT)) {
+                PrintWriter out = new PrintWriter(socket.getOutputStream(), true);
+                BufferedReader in = new BufferedReader(new InputStreamReader(socket.getInputStream()));
+                out.println("3");
+                assertEquals("Respuesta: 9", in.readLine());
+
+                // Each read re-arms the deadline; silence on both sides ends the connection
+                long start = System.nanoTime();
+                assertNull(in.readLine());
+                long elapsed = System.nanoTime() - start;
+                assertTrue(elapsed >= TimeUnit.MILLISECONDS.toNanos(150));
+                assertTrue(elapsed < TimeUnit.SECONDS.toNanos(3));
+            }
+            for (int i = 0; i < 100 && backend.getOutstanding() > 0; i++) {
+                Thread.sleep(20);
+            }
+            assertEquals(0, backend.getOutstanding());
+        } finally {
+            front.stopServer();
+            thread.join(5000);
+        }
+    }
+
+    @Test
+    void testInlineExecutorRefused() {
+        LoadBalancer<LoadBalancer.Backend> balancer = balancer(LoadBalancer.Policy.ROUND_ROBIN, 1);
+        assertThrows(IllegalArgumentException.class, () -> new TcpLoadBalancer(BALANCER_PORT, balancer,
+            ConnectionExecutor.create(ConnectionExecutor.Mode.INLINE, "balancer-inline")));
+    }
+
+    @Test
+    void testTailLatencyWithOneSlowBackend() throws Exception {
+        startSquareServer(BACKEND_PORTS[0], 0);
+        startSquareServer(BACKEND_PORTS[1], 0);
+        startSquareServer(BACKEND_PORTS[2], SLOW_MILLIS);
+
+        // Round robin without ejection keeps sending a third of the requests to the slow one
+        LoadBalancer<LoadBalancer.Backend> roundRobin = squareBalancer(LoadBalancer.Policy.ROUND_ROBIN);
+        roundRobin.setOutlierEjection(false);
+        MetricsRegistry.Histogram blind = measure(roundRobin, 0);
+        assertTrue(blind.getPercentile(99) >= TimeUnit.MILLISECONDS.toNanos(SLOW_MILLIS),
+                   "p99 sin expulsión: " + blind.getPercentile(99));
+
+        // Least outstanding with ejection: once the slow backend is out, the tail is fast
+        LoadBalancer<LoadBalancer.Backend> leastOutstanding = squareBalancer(LoadBalancer.Policy.LEAST_OUTSTANDING);
+        LoadBalancer.Backend slow = leastOutstanding.getBackends().get(2);
+        MetricsRegistry.Histogram ejecting = measure(leastOutstanding, 5000);
+        assertTrue(slow.isEjected());
+        assertTrue(ejecting.getPercentile(99) < TimeUnit.MILLISECONDS.toNanos(SLOW_MILLIS),
+                   "p99 con expulsión: " + ejecting.getPercentile(99));
+    }
+
+    /**
+     * Runs concurrent clients through a TCP balancer, each opening a connection per request
+     * @param warmUpMillis Longest time to wait for the slow backend to be ejected first
+     * @return Latencies of the measured requests, after the warm-up
+     */
+    private MetricsRegistry.Histogram measure(LoadBalancer<LoadBalancer.Backend> balancer, long warmUpMillis)
+            throws Exception {
+        TcpLoadBalancer front = startBalancer(balancer);
+        try {
+            long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(warmUpMillis);
+            while (System.nanoTime() < deadline && !balancer.getBackends().get(2).isEjected()) {
+                runClients(4, 5, null);
+            }
+            MetricsRegistry.Histogram latencies = new MetricsRegistry.Histogram();
+            runClients(4, 30, latencies);
+            return latencies;
+        } finally {
+            front.stopServer();
+        }
+    }
+
+    private void runClients(int clients, int requests, MetricsRegistry.Histogram latencies) throws Exception {
+        List<Thread> threads = new ArrayList<>();
+        List<Throwable> errors = new ArrayList<>();
+        for (int c = 0; c < clients; c++) {
+            Thread thread = new Thread(() -> {
+                try {
+                    for (int i = 0; i < requests; i++) {
+                        long start = System.nanoTime();
+                        assertEquals("Respuesta: 9", square("3"));
+                        if (latencies != null) {
+                            latencies.record(System.nanoTime() - start);
+                        }
+                    }
+                } catch (Throwable e) {
+                    synchronized (errors) {
+                        errors.add(e);
+                    }
+                }
+            });
+            thread.start();
+            threads.add(thread);
+        }
+        for (Thread thread : threads) {
+            thread.join(30000);
+        }
+        assertTrue(errors.isEmpty(), () -> "Errores de los clientes: " + errors);
+    }
+
+    private String square(String number) throws IOException {
+        try (Socket socket = new Socket()) {
+            socket.setSoLinger(true, 0);
+            socket.connect(new InetSocketAddress(SERVER_HOST, BALANCER_PORT), 2000);
+            socket.setSoTimeout(5000);
+            PrintWriter out = new PrintWriter(new OutputStreamWriter(socket.getOutputStream(), StandardCharsets.UTF_8),
+                                              true);
+            BufferedReader in = new BufferedReader(new InputStreamReader(socket.getInputStream(),
+                                                                         StandardCharsets.UTF_8));
+            out.println(number);
+            return in.readLine();
+        }
+    }
+
+    private LoadBalancer<LoadBalancer.Backend> squareBalancer(LoadBalancer.Policy policy) {
+        List<LoadBalancer.Backend> backends = new ArrayList<>();
+        for (int port : BACKEND_PORTS) {
+            backends.add(LoadBalancer.Backend.parse(SERVER_HOST + ":" + port));
+        }
+        return track(new LoadBalancer<>("tcp-" + policy.getCommand(), policy, backends));
+    }
+
+    private LoadBalancer<LoadBalancer.Backend> balancer(LoadBalancer.Policy policy, int size) {
+        List<LoadBalancer.Backend> backends = new ArrayList<>();
+        for (int i = 0; i < size; i++) {
+            backends.add(new LoadBalancer.Backend("b" + i, SERVER_HOST, CLOSED_PORT));
+        }
+        return track(new LoadBalancer<>("prueba-" + policy.getCommand(), policy, backends));
+    }
+
+    private <B extends LoadBalancer.Backend> LoadBalancer<B> track(LoadBalancer<B> balancer) {
+        balancers.add(balancer);
+        return balancer;
+    }
+
+    private static void awaitHealth(LoadBalancer.Backend backend, boolean healthy) throws InterruptedException {
+        for (int i = 0; i < 100 && backend.isHealthy() != healthy; i++) {
+            Thread.sleep(20);
+        }
+        assertEquals(healthy, backend.isHealthy());
+    }
+
+    private TcpLoadBalancer startBalancer(LoadBalancer<LoadBalancer.Backend> balancer) throws Exception {
+        TcpLoadBalancer front = new TcpLoadBalancer(BALANCER_PORT, balancer);
+        Thread thread = new Thread(front::startServer);
+        thread.setDaemon(true);
+        thread.start();
+        waitForPort(BALANCER_PORT);
+        return front;
+    }
+
+    private void startSquareServer(int port, long delayMillis) throws Exception {
+        ConnectionExecutor executor = ConnectionExecutor.create(ConnectionExecutor.Mode.THREAD, "square-" + port);
+        SquareServer server = new SquareServer(port, executor) {
+            @Override
+            String processInput(String input) {
+                if (delayMillis > 0) {
+                    try {
+                        Thread.sleep(delayMillis);
+                    } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                    }
+                }
+                return super.processInput(input);
+            }
+        };
+        Thread thread = new Thread(server::startServer);
+        thread.setDaemon(true);
+        thread.start();
+        servers.add(server);
+        serverThreads.add(thread);
+        serverPorts.add(port);
+        waitForPort(port);
+    }
+}
@@ -0,0 +1,179 @@
+package edu.eci.arsw.networking;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.EnumSource;
+import static org.junit.jupiter.api.Assertions.*;
+import static edu.eci.arsw.networking.WebServerTestSupport.*;
+import java.io.IOException;
+import java.net.Socket;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.attribute.FileTime;
+
+/**
+ * Test class for MappedFileRegistry and the mmap cache mode of SimpleWebServer
+ * Verifies reference counting, remapping of changed files, eviction and end-to-end
+ * serving on both engines
+ */
+class MappedFileRegistryTest {
+
+    private static final int SERVER_PORT = 8099;
+    private static final long MODIFIED_MILLIS = 1_700_000_000_000L;
+
+    @TempDir
+    Path webRoot;
+
+    private SimpleWebServer server;
+    private Thread serverThread;
+
+    @AfterEach
+    void tearDown() throws InterruptedException {
+        if (server != null) {
+            WebServerTestSupport.stopServer(server, serverThread, SERVER_PORT);
+        }
+    }
+
+    @Test
+    void testReferencesTakenAndReleased() throws Exception {
+        Path file = writeFile("a.txt", "contenido", MODIFIED_MILLIS);
+        MappedFileRegistry registry = new MappedFileRegistry(1024, 1024, 60_000);
+        MetricsRegistry.Counter exportedHits = MetricsRegistry.shared()
+            .counter("mmap_cache_hits_total", "").labels();
+        long hitsBefore = exportedHits.get();
+
+        MappedFileRegistry.MappedFile mapped = registry.map(file, file, "a.txt", MODIFIED_MILLIS, null);
+        assertEquals(2, mapped.referenceCount());
+        assertEquals("contenido", text(mapped.view(false)));
+
+        MappedFileRegistry.MappedFile hit = registry.get(file);
+        assertSame(mapped, hit);
+        assertEquals(3, mapped.referenceCount());
+        hit.release();
+        mapped.release();
+        // Only the registry's own reference is left
+        assertEquals(1, mapped.referenceCount());
+        assertEquals(9, registry.getCurrentBytes());
+        assertEquals(1, registry.getHits());
+        assertEquals(hitsBefore + 1, exportedHits.get());
+    }
+
+    @Test
+    void testChangedFileRemappedWhileOldViewStaysReadable() throws Exception {
+        Path file = writeFile("a.txt", "version uno", MODIFIED_MILLIS);
+        MappedFileRegistry registry = new MappedFileRegistry(1024, 1024, 0);
+        MappedFileRegistry.MappedFile first = registry.map(file, file, "a.txt", MODIFIED_MILLIS, null);
+        ByteBuffer inFlight = first.view(false);
+
+        // Replace the file the safe way: write elsewhere, then rename over it
+        Path replacement = writeFile("a.txt.tmp", "version dos, más larga", MODIFIED_MILLIS + 5000);
+        Files.move(replacement, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+
+        assertNull(registry.get(file));
+        assertEquals(1, registry.getRemaps());
+        assertEquals(0, registry.size());
+        // The response still sending the old version keeps it mapped
+        assertEquals(1, first.referenceCount());
+        assertEquals("version uno", text(inFlight));
+        first.release();
+        assertEquals(0, first.referenceCount());
+        assertThrows(IllegalStateException.class, first::release);
+
+        MappedFileRegistry.MappedFile second = registry.map(file, file, "a.txt", MODIFIED_MILLIS + 5000, null);
+        assertEquals("version dos, más larga", text(second.view(false)));
+        assertNotEquals(first.getValidators().getEtag(), second.getValidators().getEtag());
+        second.release();
+    }
+
+    @Test
+    void testLeastRecentlyUsedEvictedWithinBudget() throws Exception {
+        Path a = writeFile("a.txt", "a".repeat(40), MODIFIED_MILLIS);
+        Path b = writeFile("b.txt", "b".repeat(40), MODIFIED_MILLIS);
+        Path c = writeFile("c.txt", "c".repeat(40), MODIFIED_MILLIS);
+        Path big = writeFile("big.txt", "x".repeat(200), MODIFIED_MILLIS);
+        MappedFileRegistry registry = new MappedFileRegistry(100, 100, 60_000);
+        MetricsRegistry.Counter exportedEvictions = MetricsRegistry.shared()
+            .counter("mmap_cache_evictions_total", "").labels();
+        long evictionsBefore = exportedEvictions.get();
+
+        registry.map(a, a, "a.txt", MODIFIED_MILLIS, null).release();
+        registry.map(b, b, "b.txt", MODIFIED_MILLIS, null).release();
+        registry.get(a).release();
+        MappedFileRegistry.MappedFile evicted = registry.get(b);
+        registry.get(a).release();
+        registry.map(c, c, "c.txt", MODIFIED_MILLIS, null).release();
+
+        assertEquals(2, registry.size());
+        assertEquals(1, registry.getEvictions());
+        assertEquals(evictionsBefore + 1, exportedEvictions.get());
+        assertNull(registry.get(b));
+        // Evicted while in use: still readable until released
+        assertEquals(1, evicted.referenceCount());
+        assertEquals("b".repeat(40), text(evicted.view(false)));
+        evicted.release();
+
+        // Files above the per-file limit are mapped for the caller only
+        MappedFileRegistry.MappedFile unregistered = registry.map(big, big, "big.txt", MODIFIED_MILLIS, null);
+        assertEquals(1, unregistered.referenceCount());
+        assertEquals(2, registry.size());
+        unregistered.release();
+    }
+
+    @ParameterizedTest
+    @EnumSource(WebServerConfig.Engine.class)
+    void testServedFromMappedFiles(WebServerConfig.Engine engine) throws Exception {
+        String css = "body { color: blue; }\n".repeat(30);
+        writeFile("style.css", css, MODIFIED_MILLIS);
+        Files.write(webRoot.resolve("style.css.gz"), GzipCompressionTest.gzip(css));
+        Files.setLastModifiedTime(webRoot.resolve("style.css.gz"), FileTime.fromMillis(MODIFIED_MILLIS));
+        startServer(engine);
+
+        try (Socket socket = openSocket(SERVER_PORT)) {
+            for (int i = 0; i < 3; i++) {
+                Response response = get(socket, "/style.css", "");
+                assertEquals(200, response.statusCode);
+                assertEquals(css, response.body);
+                assertEquals("Accept-Encoding", response.headers.get("vary"));
+            }
+            Response gzip = get(socket, "/style.css", "Accept-Encoding: gzip\r\n");
+            assertEquals("gzip", gzip.headers.get("content-encoding"));
+            assertEquals(css, GzipCompressionTest.gunzip(gzip.rawBody));
+
+            String etag = get(socket, "/style.css", "").headers.get("etag");
+            assertEquals(304, get(socket, "/style.css", "If-None-Match: " + etag + "\r\n").statusCode);
+        }
+
+        MappedFileRegistry registry = server.getMappedFiles();
+        assertEquals(1, registry.size());
+        assertTrue(registry.getHits() >= 5);
+        assertEquals(0, server.getFileCache().size());
+    }
+
+    private void startServer(WebServerConfig.Engine engine) throws Exception {
+        WebServerConfig config = new WebServerConfig();
+        config.setPort(SERVER_PORT);
+        config.setWebRoot(webRoot.toString());
+        config.setEngine(engine);
+        config.setReactorThreads(1);
+        config.setCacheMode(WebServerConfig.CacheMode.MMAP);
+
+        server = new SimpleWebServer(config);
+        serverThread = WebServerTestSupport.startServer(server, SERVER_PORT);
+    }
+
+    private Path writeFile(String name, String content, long modifiedMillis) throws IOException {
+        Path file = webRoot.resolve(name);
+        Files.write(file, content.getBytes(StandardCharsets.UTF_8));
+        Files.setLastModifiedTime(file, FileTime.fromMillis(modifiedMillis));
+        return file;
+    }
+
+    private static String text(ByteBuffer buffer) {
+        return StandardCharsets.UTF_8.decode(buffer.duplicate()).toString();
+    }
+}
@@ -0,0 +1,175 @@
+package edu.eci.arsw.networking;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.EnumSource;
+import static org.junit.jupiter.api.Assertions.*;
+import static edu.eci.arsw.networking.WebServerTestSupport.*;
+import java.io.BufferedReader;
+import java.io.InputStreamReader;
+import java.io.PrintWriter;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+/**
+ * Test class for MetricsRegistry and the /metrics endpoint of SimpleWebServer
+ * Verifies the log-linear buckets, series limits, the Prometheus text format and the
+ * metrics recorded by the web and math servers
+ */
+class MetricsRegistryTest {
+
+    private static final int SERVER_PORT = 8101;
+    private static final int MATH_PORT = 35101;
+
+    @TempDir
+    Path webRoot;
+
+    private SimpleWebServer server;
+    private Thread serverThread;
+
+    @AfterEach
+    void tearDown() throws InterruptedException {
+        if (server != null) {
+            WebServerTestSupport.stopServer(server, serverThread, SERVER_PORT);
+        }
+    }
+
+    @Test
+    void testBucketsBoundRelativeError() {
+        for (long value : new long[] {0, 1, 15, 16, 17, 31, 32, 1000, 123_456, 1_000_000_007L, 7_000_000_000L}) {
+            int index = MetricsRegistry.Histogram.bucketIndex(value);
+            long upper = MetricsRegistry.Histogram.bucketUpperBound(index);
+            assertTrue(upper >= value, "Límite inferior al valor " + value);
+            assertTrue(upper - value <= Math.max(0, value / 16), "Error relativo excesivo para " + value);
+            if (index > 0) {
+                assertTrue(MetricsRegistry.Histogram.bucketUpperBound(index - 1) < value);
+            }
+        }
+        assertEquals(MetricsRegistry.Histogram.BUCKETS - 1, MetricsRegistry.Histogram.bucketIndex(Long.MAX_VALUE));
+    }
+
+    @Test
+    void testPercentiles() {
+        MetricsRegistry.Histogram histogram = new MetricsRegistry.Histogram();
+        assertEquals(0, histogram.getPercentile(99));
+        for (int i = 1; i <= 1000; i++) {
+            histogram.record(i * 1000L);
+        }
+        assertEquals(1000, histogram.getCount());
+        assertEquals(500_500_000L, histogram.getSum());
+        assertEquals(500_000, histogram.getPercentile(50), 500_000 / 16.0);
+        assertEquals(990_000, histogram.getPercentile(99), 990_000 / 16.0);
+        assertTrue(histogram.getPercentile(100) >= 1_000_000);
+    }
+
+    @Test
+    void testPrometheusTextAndSeriesLimit() {
+        MetricsRegistry registry = new MetricsRegistry();
+        MetricsRegistry.Family<MetricsRegistry.Counter> requests =
+            registry.counter("demo_requests_total", "Solicitudes de prueba", "path");
+        requests.labels("/a").increment();
+        requests.labels("/a").add(2);
+        requests.labels("/con \"comillas\"").increment();
+        registry.histogram("demo_duration_seconds", "Duración de prueba").labels().record(300_000);
+        assertSame(requests, registry.counter("demo_requests_total", "Solicitudes de prueba", "path"));
+        assertThrows(IllegalArgumentException.class, () -> registry.histogram("demo_requests_total", "x", "path"));
+        assertThrows(IllegalArgumentException.class, () -> requests.labels("/a", "sobrante"));
+
+        StringBuilder text = new StringBuilder();
+        registry.writePrometheus(text);
+        String export = text.toString();
+        assertTrue(export.contains("# TYPE demo_requests_total counter\n"));
+        assertTrue(export.contains("demo_requests_total{path=\"/a\"} 3\n"));
+        assertTrue(export.contains("demo_requests_total{path=\"/con \\\"comillas\\\"\"} 1\n"));
+        assertTrue(export.contains("# TYPE demo_duration_seconds histogram\n"));
+        assertTrue(export.contains("demo_duration_seconds_bucket{le=\"0.00025\"} 0\n"));
+        assertTrue(export.contains("demo_duration_seconds_bucket{le=\"0.0005\"} 1\n"));
+        assertTrue(export.contains("demo_duration_seconds_bucket{le=\"+Inf\"} 1\n"));
+        assertTrue(export.contains("demo_duration_seconds_count 1\n"));
+
+        for (int i = 0; i < MetricsRegistry.MAX_SERIES_PER_FAMILY + 10; i++) {
+            requests.labels("/ruta-" + i).increment();
+        }
+        assertEquals(MetricsRegistry.MAX_SERIES_PER_FAMILY + 1, requests.size());
+        assertEquals(12, requests.labels(MetricsRegistry.OVERFLOW_LABEL).get());
+    }
+
+    @ParameterizedTest
+    @EnumSource(WebServerConfig.Engine.class)
+    void testWebServerExportsRequestMetrics(WebServerConfig.Engine engine) throws Exception {
+        Files.write(webRoot.resolve("metricas.txt"), "hola".getBytes(StandardCharsets.UTF_8));
+        startServer(engine);
+        MetricsRegistry.Counter ok = MetricsRegistry.shared()
+            .counter("http_requests_total", "", "path", "status").labels("/metricas.txt", "200");
+        MetricsRegistry.Counter missing = MetricsRegistry.shared()
+            .counter("http_requests_total", "", "path", "status").labels(RouteMetrics.UNRESOLVED, "404");
+        long okBefore = ok.get();
+        long missingBefore = missing.get();
+
+        try (Socket socket = openSocket(SERVER_PORT)) {
+            assertEquals(200, get(socket, "/metricas.txt", "").statusCode);
+            assertEquals(200, get(socket, "/metricas.txt", "").statusCode);
+            assertEquals(404, get(socket, "/no-existe.txt", "").statusCode);
+
+            Response metrics = get(socket, "/metrics", "");
+            assertEquals(200, metrics.statusCode);
+            assertTrue(metrics.headers.get("content-type").startsWith("text/plain; version=0.0.4"));
+            assertTrue(metrics.body.contains("# TYPE http_request_duration_seconds histogram"));
+            assertTrue(metrics.body.contains("http_requests_total{path=\"/metricas.txt\",status=\"200\"} " + (okBefore + 2)));
+            // Paths that resolve to nothing share one label, so clients cannot use up the series
+            assertTrue(metrics.body.contains("http_request_duration_seconds_count{path=\"-\"}"));
+            assertFalse(metrics.body.contains("no-existe"));
+        }
+        // Recorded once the response is written
+        assertEquals(okBefore + 2, ok.get());
+        assertEquals(missingBefore + 1, missing.get());
+    }
+
+    @Test
+    void testMathServerRecordsPerFunction() throws Exception {
+        MetricsRegistry.Family<MetricsRegistry.Counter> evaluations =
+            MetricsRegistry.shared().counter("math_evaluations_total", "", "function", "outcome");
+        long sinBefore = evaluations.labels("sin", "ok").get();
+        long invalidBefore = evaluations.labels("cos", "invalid").get();
+
+        MathFunctionServer math = new MathFunctionServer(MATH_PORT,
+            ConnectionExecutor.create(ConnectionExecutor.Mode.THREAD, "math-test"));
+        Thread mathThread = new Thread(math::startServer);
+        mathThread.setDaemon(true);
+        mathThread.start();
+        waitForPort(MATH_PORT);
+        try (Socket socket = openSocket(MATH_PORT)) {
+            PrintWriter out = new PrintWriter(socket.getOutputStream(), true);
+            BufferedReader in = new BufferedReader(new InputStreamReader(socket.getInputStream()));
+            out.println("abc");
+            in.readLine();
+            out.println("fun:sin");
+            in.readLine();
+            out.println("0");
+            assertEquals("Respuesta: 0.000000", in.readLine().replace(',', '.'));
+        } finally {
+            math.stopServer();
+            mathThread.join(5000);
+        }
+
+        assertEquals(sinBefore + 1, evaluations.labels("sin", "ok").get());
+        assertEquals(invalidBefore + 1, evaluations.labels("cos", "invalid").get());
+        assertTrue(MetricsRegistry.shared().histogram("math_evaluation_duration_seconds", "", "function")
+                       .labels("sin").getCount() >= 1);
+    }
+
+    private void startServer(WebServerConfig.Engine engine) throws Exception {
+        WebServerConfig config = new WebServerConfig();
+        config.setPort(SERVER_PORT);
+        config.setWebRoot(webRoot.toString());
+        config.setEngine(engine);
+        config.setReactorThreads(1);
+
+        server = new SimpleWebServer(config);
+        serverThread = WebServerTestSupport.startServer(server, SERVER_PORT);
+    }
+}
@@ -0,0 +1,227 @@
+package edu.eci.arsw.networking;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.AfterEach;
+import static org.junit.jupiter.api.Assertions.*;
+import static org.junit.jupiter.api.Assumptions.assumeTrue;
+import static edu.eci.arsw.networking.WebServerTestSupport.*;
+import java.net.Socket;
+import java.net.URL;
+import java.net.HttpURLConnection;
+import java.io.*;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Test class for the NIO engine of SimpleWebServer
+ * Verifies that the selector-based engine serves the same files and status codes as the
+ * blocking engine, that a slow client does not stall other visitors and that the
+ * reuseport engine spreads connections across its reactors
+ */
+class NioWebServerEngineTest {
+
+    private static final int SERVER_PORT = 8091;
+    private static final String BASE_URL = "http://" + SERVER_HOST + ":" + SERVER_PORT;
+    private static final int REUSEPORT_PORT = 8102;
+    private static final int FAILING_PORT = 8120;
+
+    private SimpleWebServer server;
+    private Thread serverThread;
+
+    @BeforeEach
+    void setUp() throws InterruptedException {
+        WebServerConfig config = new WebServerConfig();
+        config.setPort(SERVER_PORT);
+        config.setEngine(WebServerConfig.Engine.NIO);
+        config.setReactorThreads(2);
+
+        server = new SimpleWebServer(config);
+        serverThread = startServer(server, SERVER_PORT);
+    }
+
+    @AfterEach
+    void tearDown() throws InterruptedException {
+        if (server != null) {
+            stopServer(server, serverThread, SERVER_PORT);
+        }
+    }
+
+    @Test
+    void testIndexPageServed() throws IOException {
+        HttpURLConnection connection = (HttpURLConnection) new URL(BASE_URL + "/").openConnection();
+
+        assertEquals(200, connection.getResponseCode());
+        assertEquals("text/html", connection.getContentType());
+        assertEquals("SimpleWebServer/1.0", connection.getHeaderField("Server"));
+        assertTrue(readFully(connection.getInputStream()).contains("SimpleWebServer"));
+    }
+
+    @Test
+    void testCssFileServed() throws IOException {
+        HttpURLConnection connection = (HttpURLConnection) new URL(BASE_URL + "/style.css").openConnection();
+
+        assertEquals(200, connection.getResponseCode());
+        assertEquals("text/css", connection.getContentType());
+        assertTrue(readFully(connection.getInputStream()).contains("SimpleWebServer Sample CSS"));
+    }
+
+    @Test
+    void test404ErrorHandling() throws IOException {
+        HttpURLConnection connection = (HttpURLConnection) new URL(BASE_URL + "/nonexistent.html").openConnection();
+
+        assertEquals(404, connection.getResponseCode());
+        assertTrue(readFully(connection.getErrorStream()).contains("Not Found"));
+    }
+
+    @Test
+    void testMethodNotAllowed() throws IOException {
+        String response = sendRawRequest("POST /index.html HTTP/1.1\r\nHost: localhost\r\n\r\n");
+        assertTrue(response.startsWith("HTTP/1.1 405 Method Not Allowed"));
+    }
+
+    @Test
+    void testMalformedRequest() throws IOException {
+        String response = sendRawRequest("GARBAGE\r\n\r\n");
+        assertTrue(response.startsWith("HTTP/1.1 400 Bad Request"));
+    }
+
+    @Test
+    void testRequestSplitAcrossWrites() throws Exception {
+        try (Socket socket = openSocket(SERVER_PORT)) {
+            OutputStream out = socket.getOutputStream();
+            out.write("GET /about.html HT".getBytes(StandardCharsets.ISO_8859_1));
+            out.flush();
+            Thread.sleep(200);
+            out.write("TP/1.1\r\nHost: localhost\r\nConnection: close\r\n\r\n".getBytes(StandardCharsets.ISO_8859_1));
+            out.flush();
+
+            String response = readFully(socket.getInputStream());
+            assertTrue(response.startsWith("HTTP/1.1 200 OK"));
+            assertTrue(response.contains("Acerca del Proyecto"));
+        }
+    }
+
+    @Test
+    void testSlowClientDoesNotBlockOthers() throws IOException {
+        // A client that never finishes its request must not delay anybody else
+        try (Socket slowClient = openSocket(SERVER_PORT)) {
+            slowClient.getOutputStream().write("GET / HTTP/1.1\r\n".getBytes(StandardCharsets.ISO_8859_1));
+            slowClient.getOutputStream().flush();
+
+            HttpURLConnection connection = (HttpURLConnection) new URL(BASE_URL + "/about.html").openConnection();
+            connection.setReadTimeout(2000);
+            assertEquals(200, connection.getResponseCode());
+        }
+    }
+
+    @Test
+    void testConcurrentRequests() throws Exception {
+        ExecutorService clients = Executors.newFixedThreadPool(16);
+        try {
+            List<Future<Integer>> results = new ArrayList<>();
+            for (int i = 0; i < 64; i++) {
+                results.add(clients.submit(() -> {
+                    HttpURLConnection connection = (HttpURLConnection) new URL(BASE_URL + "/style.css").openConnection();
+                    int status = connection.getResponseCode();
+                    readFully(connection.getInputStream());
+                    return status;
+                }));
+            }
+            for (Future<Integer> result : results) {
+                assertEquals(200, result.get(10, TimeUnit.SECONDS));
+            }
+        } finally {
+            clients.shutdownNow();
+        }
+    }
+
+    @Test
+    void testReusePortShardsConnectionsAcrossReactors() throws Exception {
+        assumeTrue(NioWebServerEngine.isReusePortSupported(), "SO_REUSEPORT no disponible");
+        WebServerConfig config = new WebServerConfig();
+        config.setPort(REUSEPORT_PORT);
+        config.setEngine(WebServerConfig.Engine.REUSEPORT);
+        config.setReactorThreads(2);
+        MetricsRegistry.Family<MetricsRegistry.Counter> perReactor = MetricsRegistry.shared()
+            .counter("http_reactor_connections_total", "Conexiones HTTP asignadas a cada reactor NIO", "reactor");
+        long firstBefore = perReactor.labels("0").get();
+        long secondBefore = perReactor.labels("1").get();
+
+        SimpleWebServer sharded = new SimpleWebServer(config);
+        Thread shardedThread = startServer(sharded, REUSEPORT_PORT);
+        try {
+            // The kernel hashes each connection's address tuple onto one of the listeners
+            for (int i = 0; i < 40; i++) {
+                try (Socket socket = openSocket(REUSEPORT_PORT)) {
+                    socket.getOutputStream().write(
+                        "GET /style.css HTTP/1.1\r\nHost: localhost\r\nConnection: close\r\n\r\n"
+                            .getBytes(StandardCharsets.ISO_8859_1));
+                    assertTrue(readFully(socket.getInputStream()).startsWith("HTTP/1.1 200 OK"));
+                }
+            }
+        } finally {
+            stopServer(sharded, shardedThread, REUSEPORT_PORT);
+        }
+
+        assertTrue(perReactor.labels("0").get() > firstBefore, "El reactor 0 no recibió conexiones");
+        assertTrue(perReactor.labels("1").get() > secondBefore, "El reactor 1 no recibió conexiones");
+    }
+
+    @Test
+    void testHandlerFailureDoesNotStopReactor() throws Exception {
+        WebServerConfig config = new WebServerConfig();
+        config.setPort(FAILING_PORT);
+        config.setEngine(WebServerConfig.Engine.NIO);
+        config.setReactorThreads(1);
+
+        SimpleWebServer failing = new SimpleWebServer(config) {
+            @Override
+            HttpResponse processRequest(HttpRequestParser request, HttpRequestParser.Result result,
+                                        String clientAddress, HttpBodyStream requestBody) {
+                if (request.path().contentEquals("/boom")) {
+                    throw new IllegalStateException("fallo simulado");
+                }
+                return super.processRequest(request, result, clientAddress, requestBody);
+            }
+        };
+        Thread failingThread = startServer(failing, FAILING_PORT);
+        try {
+            // Both requests land on the only reactor: the second proves it survived the first
+            String[] paths = {"/boom", "/style.css"};
+            String[] statusLines = {"HTTP/1.1 500 Internal Server Error", "HTTP/1.1 200 OK"};
+            for (int i = 0; i < paths.length; i++) {
+                try (Socket socket = openSocket(FAILING_PORT)) {
+                    socket.getOutputStream().write(("GET " + paths[i] + " HTTP/1.1\r\nHost: localhost\r\nConnection: close\r\n\r\n")
+                        .getBytes(StandardCharsets.ISO_8859_1));
+                    assertTrue(readFully(socket.getInputStream()).startsWith(statusLines[i]));
+                }
+            }
+        } finally {
+            stopServer(failing, failingThread, FAILING_PORT);
+        }
+    }
+
+    /**
+     * Helper method to send a raw request and read the whole response
+     */
+    private String sendRawRequest(String request) throws IOException {
+        try (Socket socket = openSocket(SERVER_PORT)) {
+            socket.getOutputStream().write(request.getBytes(StandardCharsets.ISO_8859_1));
+            socket.getOutputStream().flush();
+            return readFully(socket.getInputStream());
+        }
+    }
+
+    /**
+     * Helper method to read a stream until the server closes it
+     */
+    private static String readFully(InputStream in) throws IOException {
+        return new String(in.readAllBytes(), StandardCharsets.UTF_8);
+    }
+}
@@ -0,0 +1,193 @@
+package edu.eci.arsw.networking;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.EnumSource;
+import static org.junit.jupiter.api.Assertions.*;
+import static edu.eci.arsw.networking.WebServerTestSupport.*;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+/**
+ * Test class for HTTP Range requests in SimpleWebServer
+ * Verifies single and multipart 206 responses, 416, If-Range and the ignored headers,
+ * on both engines
+ */
+class RangeRequestTest {
+
+    private static final int SERVER_PORT = 8097;
+
+    @TempDir
+    Path webRoot;
+
+    private SimpleWebServer server;
+    private Thread serverThread;
+    private String content;
+
+    @AfterEach
+    void tearDown() throws InterruptedException {
+        if (server != null) {
+            WebServerTestSupport.stopServer(server, serverThread, SERVER_PORT);
+        }
+    }
+
+    @ParameterizedTest
+    @EnumSource(WebServerConfig.Engine.class)
+    void testSingleRanges(WebServerConfig.Engine engine) throws Exception {
+        startServer(engine, 100);
+
+        try (Socket socket = openSocket(SERVER_PORT)) {
+            Response full = get(socket, "/data.txt", "");
+            assertEquals(200, full.statusCode);
+            assertEquals("bytes", full.headers.get("accept-ranges"));
+
+            Response middle = get(socket, "/data.txt", "Range: bytes=10-19\r\n");
+            assertEquals(206, middle.statusCode);
+            assertEquals("bytes 10-19/100", middle.headers.get("content-range"));
+            assertEquals("text/plain", middle.headers.get("content-type"));
+            assertEquals(content.substring(10, 20), middle.body);
+            assertEquals("keep-alive", middle.headers.get("connection"));
+
+            Response suffix = get(socket, "/data.txt", "Range: bytes=-5\r\n");
+            assertEquals("bytes 95-99/100", suffix.headers.get("content-range"));
+            assertEquals(content.substring(95), suffix.body);
+
+            Response open = get(socket, "/data.txt", "Range: bytes=90-\r\n");
+            assertEquals(content.substring(90), open.body);
+
+            Response clipped = get(socket, "/data.txt", "Range: bytes=98-500\r\n");
+            assertEquals("bytes 98-99/100", clipped.headers.get("content-range"));
+        }
+    }
+
+    @ParameterizedTest
+    @EnumSource(WebServerConfig.Engine.class)
+    void testMultipartRanges(WebServerConfig.Engine engine) throws Exception {
+        startServer(engine, 100);
+
+        try (Socket socket = openSocket(SERVER_PORT)) {
+            Response response = get(socket, "/data.txt", "Range: bytes=0-4, 50-54\r\n");
+
+            String boundary = ByteRanges.BOUNDARY;
+            assertEquals(206, response.statusCode);
+            assertEquals("multipart/byteranges; boundary=" + boundary, response.headers.get("content-type"));
+            assertNull(response.headers.get("content-range"));
+            String expected = "--" + boundary + "\r\n"
+                              + "Content-Type: text/plain\r\nContent-Range: bytes 0-4/100\r\n\r\n"
+                              + content.substring(0, 5)
+                              + "\r\n--" + boundary + "\r\n"
+                              + "Content-Type: text/plain\r\nContent-Range: bytes 50-54/100\r\n\r\n"
+                              + content.substring(50, 55)
+                              + "\r\n--" + boundary + "--\r\n";
+            assertEquals(expected, response.body);
+
+            // Content-Length covered the whole multipart body: the next response parses
+            assertEquals(200, get(socket, "/data.txt", "").statusCode);
+        }
+    }
+
+    @ParameterizedTest
+    @EnumSource(WebServerConfig.Engine.class)
+    void testUnsatisfiableAndIgnoredRanges(WebServerConfig.Engine engine) throws Exception {
+        startServer(engine, 100);
+
+        try (Socket socket = openSocket(SERVER_PORT)) {
+            Response unsatisfiable = get(socket, "/data.txt", "Range: bytes=100-200\r\n");
+            assertEquals(416, unsatisfiable.statusCode);
+            assertEquals("bytes */100", unsatisfiable.headers.get("content-range"));
+            assertEquals("keep-alive", unsatisfiable.headers.get("connection"));
+
+            assertEquals(200, get(socket, "/data.txt", "Range: items=0-5\r\n").statusCode);
+            assertEquals(200, get(socket, "/data.txt", "Range: bytes=5-2\r\n").statusCode);
+            assertEquals(200, get(socket, "/data.txt", "Range: bytes=abc\r\n").statusCode);
+        }
+    }
+
+    @ParameterizedTest
+    @EnumSource(WebServerConfig.Engine.class)
+    void testIfRange(WebServerConfig.Engine engine) throws Exception {
+        startServer(engine, 100);
+
+        try (Socket socket = openSocket(SERVER_PORT)) {
+            Response full = get(socket, "/data.txt", "");
+            String etag = full.headers.get("etag");
+            String lastModified = full.headers.get("last-modified");
+
+            assertEquals(206, get(socket, "/data.txt", "Range: bytes=0-9\r\nIf-Range: " + etag + "\r\n").statusCode);
+            assertEquals(206, get(socket, "/data.txt", "Range: bytes=0-9\r\nIf-Range: " + lastModified + "\r\n").statusCode);
+            Response stale =
+                get(socket, "/data.txt", "Range: bytes=0-9\r\nIf-Range: \"otro\"\r\n");
+            assertEquals(200, stale.statusCode);
+            assertEquals(content, stale.body);
+            assertEquals(200, get(socket, "/data.txt", "Range: bytes=0-9\r\nIf-Range: W/" + etag + "\r\n").statusCode);
+        }
+    }
+
+    @ParameterizedTest
+    @EnumSource(WebServerConfig.Engine.class)
+    void testRangesOfLargeFileStreamed(WebServerConfig.Engine engine) throws Exception {
+        startServer(engine, 4 * 1024 * 1024);
+
+        try (Socket socket = openSocket(SERVER_PORT)) {
+            Response response =
+                get(socket, "/data.txt", "Range: bytes=1000-1500999, 3000000-3999999\r\n");
+
+            assertEquals(206, response.statusCode);
+            String body = response.body;
+            int first = body.indexOf("\r\n\r\n") + 4;
+            assertEquals(content.substring(1000, 1501000), body.substring(first, first + 1_500_000));
+            int second = body.indexOf("\r\n\r\n", first + 1_500_000) + 4;
+            assertEquals(content.substring(3_000_000, 4_000_000), body.substring(second, second + 1_000_000));
+        }
+    }
+
+    @Test
+    void testRangeParsing() {
+        ByteRanges ranges = ByteRanges.parse("bytes=0-9,20-29", 100);
+        assertEquals(2, ranges.count());
+        assertEquals(20, ranges.first(1));
+
+        // Overlapping and adjacent ranges are merged, even out of order
+        ByteRanges merged = ByteRanges.parse("bytes=50-59, 0-10, 5-20, 21-30", 100);
+        assertEquals(2, merged.count());
+        assertEquals(0, merged.first(0));
+        assertEquals(30, merged.last(0));
+        assertEquals(50, merged.first(1));
+
+        ByteRanges partly = ByteRanges.parse("bytes=200-300, -0, 90-", 100);
+        assertEquals(1, partly.count());
+        assertFalse(ByteRanges.parse("bytes=200-300", 100).isSatisfiable());
+        assertFalse(ByteRanges.parse("bytes=0-", 0).isSatisfiable());
+        assertEquals(99, ByteRanges.parse("bytes=0-99999999999999999999999", 100).last(0));
+
+        assertNull(ByteRanges.parse("bytes=", 100));
+        assertNull(ByteRanges.parse("bytes=1-2-3", 100));
+        assertNull(ByteRanges.parse("bytes=0-1" + ",0-1".repeat(ByteRanges.MAX_RANGES), 100));
+        assertNotNull(ByteRanges.parse("BYTES= 0-1 ,", 100));
+    }
+
+    private void startServer(WebServerConfig.Engine engine, int size) throws Exception {
+        StringBuilder data = new StringBuilder(size);
+        for (int i = 0; data.length() < size; i++) {
+            data.append((char) ('a' + i % 26));
+            if (data.length() < size) {
+                data.append((char) ('0' + i % 10));
+            }
+        }
+        content = data.toString();
+        Files.write(webRoot.resolve("data.txt"), content.getBytes(StandardCharsets.US_ASCII));
+
+        WebServerConfig config = new WebServerConfig();
+        config.setPort(SERVER_PORT);
+        config.setWebRoot(webRoot.toString());
+        config.setEngine(engine);
+        config.setReactorThreads(1);
+
+        server = new SimpleWebServer(config);
+        serverThread = WebServerTestSupport.startServer(server, SERVER_PORT);
+    }
+}
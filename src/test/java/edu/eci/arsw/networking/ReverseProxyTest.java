@@ -0,0 +1,441 @@
+package edu.eci.arsw.networking;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.EnumSource;
+import static org.junit.jupiter.api.Assertions.*;
+import static edu.eci.arsw.networking.WebServerTestSupport.*;
+import java.io.*;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Test class for the reverse-proxy mode of SimpleWebServer
+ * Forwards to a second SimpleWebServer, checking keep-alive reuse of pooled upstream
+ * connections on every engine, that a stuck upstream does not stall a nio reactor, and to a scripted upstream for streamed request and
+ * response bodies, the per-upstream limit, upstream failures and routes balanced over
+ * several upstreams
+ */
+class ReverseProxyTest {
+
+    private static final int PROXY_PORT = 8110;
+    private static final int BACKEND_PORT = 8111;
+    private static final int SCRIPTED_PORT = 8112;
+    private static final int CLOSED_PORT = 8113;
+
+    @TempDir
+    Path proxyRoot;
+
+    @TempDir
+    Path backendRoot;
+
+    private final List<SimpleWebServer> servers = new ArrayList<>();
+    private final List<Thread> serverThreads = new ArrayList<>();
+    private final List<Integer> serverPorts = new ArrayList<>();
+    private ServerSocket scripted;
+
+    @AfterEach
+    void tearDown() throws Exception {
+        if (scripted != null) {
+            scripted.close();
+        }
+        for (int i = 0; i < servers.size(); i++) {
+            WebServerTestSupport.stopServer(servers.get(i), serverThreads.get(i), serverPorts.get(i));
+        }
+    }
+
+    @ParameterizedTest
+    @EnumSource(WebServerConfig.Engine.class)
+    void testRequestsReuseKeepAliveUpstreamConnection(WebServerConfig.Engine engine) throws Exception {
+        Path files = Files.createDirectory(backendRoot.resolve("files"));
+        Files.writeString(files.resolve("hola.txt"), "hola desde el backend");
+        byte[] large = new byte[2 * 1024 * 1024 + 5];
+        new Random(3).nextBytes(large);
+        Files.write(files.resolve("grande.bin"), large);
+        Files.writeString(proxyRoot.resolve("local.txt"), "servido localmente");
+        startServer(backendConfig(WebServerConfig.Engine.BLOCKING, 5000));
+        WebServerConfig config = proxyConfig(engine);
+        config.addProxyRoute("/api", "http://127.0.0.1:" + BACKEND_PORT + "/files");
+        SimpleWebServer proxy = startServer(config);
+        ReverseProxy.Upstream upstream = proxy.getReverseProxy().getUpstream("/api");
+        long openedBefore = upstream.getConnectionsOpened();
+
+        try (Socket socket = openSocket(PROXY_PORT)) {
+            for (int i = 0; i < 20; i++) {
+                WebServerTestSupport.Response response =
+                    exchange(socket, "GET /api/hola.txt HTTP/1.1\r\nHost: localhost\r\n\r\n");
+                assertEquals(200, response.statusCode);
+                assertEquals("hola desde el backend", response.body);
+                assertEquals("text/plain", response.headers.get("content-type"));
+                assertEquals("keep-alive", response.headers.get("connection"));
+                assertNotNull(response.headers.get("etag"));
+            }
+
+            // Relayed with its Content-Length, not re-chunked
+            WebServerTestSupport.Response file =
+                exchange(socket, "GET /api/grande.bin HTTP/1.1\r\nHost: localhost\r\n\r\n");
+            assertEquals(200, file.statusCode);
+            assertEquals(String.valueOf(large.length), file.headers.get("content-length"));
+            assertNull(file.headers.get("transfer-encoding"));
+            assertArrayEquals(large, file.rawBody);
+
+            assertEquals(404, exchange(socket, "GET /api/falta.txt HTTP/1.1\r\nHost: localhost\r\n\r\n").statusCode);
+            // "/apis" is not under "/api": served from the proxy's own web root
+            assertEquals(404, exchange(socket, "GET /apis/hola.txt HTTP/1.1\r\nHost: localhost\r\n\r\n").statusCode);
+            WebServerTestSupport.Response local =
+                exchange(socket, "GET /local.txt HTTP/1.1\r\nHost: localhost\r\n\r\n");
+            assertEquals("servido localmente", local.body);
+        }
+        // One request at a time: every request went over the same upstream connection
+        assertEquals(1, upstream.getConnectionsOpened() - openedBefore);
+        assertEquals(1, upstream.getIdleConnections());
+        assertEquals(0, upstream.getOutstanding());
+    }
+
+    @Test
+    void testClosedPooledConnectionRetriedOnce() throws Exception {
+        Files.writeString(backendRoot.resolve("hola.txt"), "hola");
+        // The backend drops idle connections long before the proxy gives up on them
+        startServer(backendConfig(WebServerConfig.Engine.BLOCKING, 200));
+        WebServerConfig config = proxyConfig(WebServerConfig.Engine.BLOCKING);
+        config.addProxyRoute("/", "http://127.0.0.1:" + BACKEND_PORT);
+        SimpleWebServer proxy = startServer(config);
+        ReverseProxy.Upstream upstream = proxy.getReverseProxy().getUpstream("/");
+        long openedBefore = upstream.getConnectionsOpened();
+
+        try (Socket socket = openSocket(PROXY_PORT)) {
+            assertEquals(200, exchange(socket, "GET /hola.txt HTTP/1.1\r\nHost: localhost\r\n\r\n").statusCode);
+            Thread.sleep(600);
+            WebServerTestSupport.Response second =
+                exchange(socket, "GET /hola.txt HTTP/1.1\r\nHost: localhost\r\n\r\n");
+            assertEquals(200, second.statusCode);
+            assertEquals("hola", second.body);
+        }
+        assertEquals(2, upstream.getConnectionsOpened() - openedBefore);
+    }
+
+    @ParameterizedTest
+    @EnumSource(value = WebServerConfig.Engine.class, names = {"BLOCKING", "NIO"})
+    void testBodiesStreamedBothWays(WebServerConfig.Engine engine) throws Exception {
+        AtomicReference<String> forwardedHead = new AtomicReference<>();
+        // Echoes the request body back in chunks of its own
+        startScripted(socket -> {
+            InputStream in = socket.getInputStream();
+            ByteBuffer buffered = emptyBuffer();
+            HttpRequestParser request = readRequest(in, buffered);
+            forwardedHead.set(describe(request));
+            HttpBodyStream body = HttpBodyStream.ofRequest(request, buffered, in);
+            OutputStream out = new BufferedOutputStream(socket.getOutputStream());
+            out.write(("HTTP/1.1 201 Created\r\nContent-Type: application/octet-stream\r\n" +
+                       "Transfer-Encoding: chunked\r\nX-Eco: si\r\nConnection: X-Eco, close\r\n\r\n")
+                      .getBytes(StandardCharsets.ISO_8859_1));
+            ByteBuffer chunk = ByteBuffer.allocate(7000);
+            while (body.read(chunk) >= 0) {
+                if (chunk.position() > 0) {
+                    out.write((Integer.toHexString(chunk.position()) + "\r\n").getBytes(StandardCharsets.ISO_8859_1));
+                    out.write(chunk.array(), 0, chunk.position());
+                    out.write("\r\n".getBytes(StandardCharsets.ISO_8859_1));
+                }
+                chunk.clear();
+            }
+            out.write("0\r\n\r\n".getBytes(StandardCharsets.ISO_8859_1));
+            out.flush();
+        });
+        WebServerConfig config = proxyConfig(engine);
+        config.addProxyRoute("/eco/", "http://127.0.0.1:" + SCRIPTED_PORT + "/v1/");
+        startServer(config);
+
+        // Small enough for the socket buffers: the proxy sends the whole body before reading
+        byte[] upload = new byte[300_000 + 11];
+        new Random(5).nextBytes(upload);
+        try (Socket socket = openSocket(PROXY_PORT)) {
+            OutputStream out = socket.getOutputStream();
+            out.write(("POST /eco/subir?modo=x HTTP/1.1\r\nHost: proxy.local\r\nTransfer-Encoding: chunked\r\n" +
+                       "Connection: keep-alive, X-Privado\r\nX-Privado: 1\r\nX-Traza: abc\r\n\r\n")
+                      .getBytes(StandardCharsets.ISO_8859_1));
+            for (int offset = 0; offset < upload.length; offset += 50_000) {
+                int length = Math.min(50_000, upload.length - offset);
+                out.write((Integer.toHexString(length) + "\r\n").getBytes(StandardCharsets.ISO_8859_1));
+                out.write(upload, offset, length);
+                out.write("\r\n".getBytes(StandardCharsets.ISO_8859_1));
+            }
+            out.write("0\r\n\r\n".getBytes(StandardCharsets.ISO_8859_1));
+            out.flush();
+
+            WebServerTestSupport.Response response =
+                readResponse(socket.getInputStream());
+            assertEquals(201, response.statusCode);
+            assertEquals("chunked", response.headers.get("transfer-encoding"));
+            assertArrayEquals(upload, response.rawBody);
+            // Headers listed in the upstream's Connection header stay on that hop
+            assertNull(response.headers.get("x-eco"));
+            // Requests with a body end the client connection
+            assertEquals("close", response.headers.get("connection"));
+        }
+
+        String head = forwardedHead.get();
+        assertTrue(head.startsWith("POST /v1/subir?modo=x HTTP/1.1\n"), head);
+        assertTrue(head.contains("host: 127.0.0.1:" + SCRIPTED_PORT + "\n"), head);
+        assertTrue(head.contains("transfer-encoding: chunked\n"), head);
+        assertTrue(head.contains("x-traza: abc\n"), head);
+        assertTrue(head.contains("x-forwarded-for: 127.0.0.1\n"), head);
+        assertTrue(head.contains("x-forwarded-host: proxy.local\n"), head);
+        assertTrue(head.contains("x-forwarded-proto: http\n"), head);
+        assertFalse(head.contains("x-privado"), head);
+        assertFalse(head.contains("connection"), head);
+    }
+
+    @ParameterizedTest
+    @EnumSource(value = WebServerConfig.Engine.class, names = {"BLOCKING", "NIO"})
+    void testOutstandingLimitAnswers503(WebServerConfig.Engine engine) throws Exception {
+        Files.writeString(proxyRoot.resolve("local.txt"), "servido localmente");
+        CountDownLatch arrived = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        startScripted(socket -> {
+            InputStream in = socket.getInputStream();
+            ByteBuffer buffered = emptyBuffer();
+            while (readRequest(in, buffered) != null) {
+                arrived.countDown();
+                release.await(10, TimeUnit.SECONDS);
+                socket.getOutputStream().write("HTTP/1.1 200 OK\r\nContent-Length: 5\r\n\r\nlento"
+                                               .getBytes(StandardCharsets.ISO_8859_1));
+            }
+        });
+        WebServerConfig config = proxyConfig(engine);
+        config.addProxyRoute("/lento", "http://127.0.0.1:" + SCRIPTED_PORT);
+        config.setProxyMaxOutstanding(1);
+        SimpleWebServer proxy = startServer(config);
+        ReverseProxy.Upstream upstream = proxy.getReverseProxy().getUpstream("/lento");
+
+        try (Socket first = openSocket(PROXY_PORT); Socket second = openSocket(PROXY_PORT)) {
+            first.getOutputStream().write("GET /lento HTTP/1.1\r\nHost: localhost\r\n\r\n"
+                                          .getBytes(StandardCharsets.ISO_8859_1));
+            assertTrue(arrived.await(5, TimeUnit.SECONDS));
+            assertEquals(1, upstream.getOutstanding());
+
+            WebServerTestSupport.Response rejected =
+                exchange(second, "GET /lento/otra HTTP/1.1\r\nHost: localhost\r\n\r\n");
+            assertEquals(503, rejected.statusCode);
+            assertEquals("1", rejected.headers.get("retry-after"));
+            // The upstream address stays internal
+            assertFalse(rejected.body.contains(String.valueOf(SCRIPTED_PORT)), rejected.body);
+            // The stuck upstream holds a worker, not the only reactor of the nio engine
+            assertEquals("servido localmente",
+                         exchange(second, "GET /local.txt HTTP/1.1\r\nHost: localhost\r\n\r\n").body);
+
+            release.countDown();
+            WebServerTestSupport.Response response =
+                readResponse(first.getInputStream());
+            assertEquals(200, response.statusCode);
+            assertEquals("lento", response.body);
+            assertEquals("application/octet-stream", response.headers.get("content-type"));
+        }
+        // The permit is given back once the engine is done with the body, just after sending it
+        for (int i = 0; i < 100 && upstream.getOutstanding() > 0; i++) {
+            Thread.sleep(20);
+        }
+        assertEquals(0, upstream.getOutstanding());
+        assertEquals(1, upstream.getIdleConnections());
+    }
+
+    @ParameterizedTest
+    @EnumSource(value = WebServerConfig.Engine.class, names = {"BLOCKING", "NIO"})
+    void testUpstreamFailuresAnswerGatewayErrors(WebServerConfig.Engine engine) throws Exception {
+        startScripted(socket -> {
+            InputStream in = socket.getInputStream();
+            readRequest(in, emptyBuffer());
+            socket.getOutputStream().write("esto no es HTTP\r\n\r\n".getBytes(StandardCharsets.ISO_8859_1));
+        });
+        WebServerConfig config = proxyConfig(engine);
+        config.addProxyRoute("/caido", "http://127.0.0.1:" + CLOSED_PORT);
+        config.addProxyRoute("/roto", "http://127.0.0.1:" + SCRIPTED_PORT);
+        config.setProxyTimeoutMillis(2000);
+        startServer(config);
+
+        try (Socket socket = openSocket(PROXY_PORT)) {
+            assertEquals(502, exchange(socket, "GET /caido/x HTTP/1.1\r\nHost: localhost\r\n\r\n").statusCode);
+            assertEquals(502, exchange(socket, "GET /roto/x HTTP/1.1\r\nHost: localhost\r\n\r\n").statusCode);
+            WebServerTestSupport.Response withBody = exchange(socket,
+                "POST /roto/x HTTP/1.1\r\nHost: localhost\r\nContent-Length: 2\r\n\r\nok");
+            assertEquals(502, withBody.statusCode);
+        }
+    }
+
+    @Test
+    void testHealthChecksTakeDeadUpstreamOutOfRotation() throws Exception {
+        Files.writeString(backendRoot.resolve("hola.txt"), "hola");
+        startServer(backendConfig(WebServerConfig.Engine.BLOCKING, 5000));
+        WebServerConfig config = proxyConfig(WebServerConfig.Engine.BLOCKING);
+        config.addProxyRoute("/", "http://127.0.0.1:" + BACKEND_PORT, "http://127.0.0.1:" + CLOSED_PORT);
+        config.setProxyHealthIntervalMillis(50);
+        config.setProxyHealthPath("/hola.txt");
+        SimpleWebServer proxy = startServer(config);
+        LoadBalancer<ReverseProxy.Upstream> balancer = proxy.getReverseProxy().getBalancer("/");
+        ReverseProxy.Upstream dead = balancer.getBackends().get(1);
+
+        for (int i = 0; i < 100 && dead.isHealthy(); i++) {
+            Thread.sleep(50);
+        }
+        assertFalse(dead.isHealthy());
+        assertTrue(balancer.getBackends().get(0).isHealthy());
+        try (Socket socket = openSocket(PROXY_PORT)) {
+            for (int i = 0; i < 10; i++) {
+                assertEquals(200, exchange(socket, "GET /hola.txt HTTP/1.1\r\nHost: localhost\r\n\r\n").statusCode);
+            }
+        }
+    }
+
+    @Test
+    void testFailingUpstreamEjectedByRealTraffic() throws Exception {
+        Files.writeString(backendRoot.resolve("hola.txt"), "hola");
+        startServer(backendConfig(WebServerConfig.Engine.BLOCKING, 5000));
+        WebServerConfig config = proxyConfig(WebServerConfig.Engine.BLOCKING);
+        config.addProxyRoute("/", "http://127.0.0.1:" + BACKEND_PORT, "http://127.0.0.1:" + CLOSED_PORT);
+        config.setProxyBalancer(LoadBalancer.Policy.ROUND_ROBIN);
+        config.setProxyHealthIntervalMillis(0);
+        SimpleWebServer proxy = startServer(config);
+        ReverseProxy.Upstream dead = proxy.getReverseProxy().getBalancer("/").getBackends().get(1);
+
+        int failures = 0;
+        try (Socket socket = openSocket(PROXY_PORT)) {
+            // Round robin sends every other request to the dead upstream until it is ejected
+            for (int i = 0; i < 20; i++) {
+                int status = exchange(socket, "GET /hola.txt HTTP/1.1\r\nHost: localhost\r\n\r\n").statusCode;
+                if (status == 502) {
+                    failures++;
+                } else {
+                    assertEquals(200, status);
+                }
+            }
+        }
+        assertEquals(LoadBalancer.CONSECUTIVE_FAILURES_TO_EJECT, failures);
+        assertTrue(dead.isEjected());
+        assertEquals(1, dead.getEjectionCount());
+    }
+
+    @Test
+    void testInvalidProxySettingsRejected() {
+        WebServerConfig config = new WebServerConfig();
+        assertTrue(config.getProxyRoutes().isEmpty());
+        assertThrows(IllegalArgumentException.class, () -> config.addProxyRoute("api", "http://127.0.0.1:9000"));
+        assertThrows(IllegalArgumentException.class, () -> config.addProxyRoute("/api", "https://127.0.0.1:9000"));
+        assertThrows(IllegalArgumentException.class, () -> config.addProxyRoute("/api", "http://127.0.0.1:9000/?q=1"));
+        assertThrows(IllegalArgumentException.class, () -> config.addProxyRoute("/api", "no es una url"));
+        assertThrows(IllegalArgumentException.class, () -> config.setProxyMaxOutstanding(0));
+        assertThrows(IllegalArgumentException.class, () -> config.setProxyPoolSize(-1));
+        assertThrows(IllegalArgumentException.class, () -> config.setProxyTimeoutMillis(0));
+        assertThrows(IllegalArgumentException.class, () -> config.setProxyIdleMillis(-1));
+        assertThrows(IllegalArgumentException.class, () -> config.addProxyRoute("/api"));
+        assertThrows(IllegalArgumentException.class,
+                     () -> config.addProxyRoute("/api", "http://127.0.0.1:9000", "ftp://127.0.0.1"));
+        assertThrows(IllegalArgumentException.class, () -> config.setProxyHealthIntervalMillis(-1));
+        assertThrows(IllegalArgumentException.class, () -> config.setProxyHealthPath("salud"));
+        assertThrows(IllegalArgumentException.class, () -> config.setProxyBalancer(null));
+        assertTrue(config.getProxyRoutes().isEmpty());
+    }
+
+    private WebServerConfig proxyConfig(WebServerConfig.Engine engine) {
+        WebServerConfig config = new WebServerConfig();
+        config.setPort(PROXY_PORT);
+        config.setWebRoot(proxyRoot.toString());
+        config.setEngine(engine);
+        config.setReactorThreads(1);
+        return config;
+    }
+
+    private WebServerConfig backendConfig(WebServerConfig.Engine engine, int keepAliveTimeoutMillis) {
+        WebServerConfig config = new WebServerConfig();
+        config.setPort(BACKEND_PORT);
+        config.setWebRoot(backendRoot.toString());
+        config.setEngine(engine);
+        config.setKeepAliveTimeoutMillis(keepAliveTimeoutMillis);
+        return config;
+    }
+
+    private SimpleWebServer startServer(WebServerConfig config) throws Exception {
+        SimpleWebServer server = new SimpleWebServer(config);
+        Thread serverThread = WebServerTestSupport.startServer(server, config.getPort());
+        servers.add(server);
+        serverThreads.add(serverThread);
+        serverPorts.add(config.getPort());
+        return server;
+    }
+
+    /**
+     * Handles one upstream connection of the scripted server
+     */
+    private interface Script {
+        void handle(Socket socket) throws Exception;
+    }
+
+    private void startScripted(Script script) throws IOException {
+        scripted = new ServerSocket(SCRIPTED_PORT);
+        Thread acceptor = new Thread(() -> {
+            while (!scripted.isClosed()) {
+                try {
+                    Socket socket = scripted.accept();
+                    Thread handler = new Thread(() -> {
+                        try (socket) {
+                            socket.setSoTimeout(10_000);
+                            script.handle(socket);
+                        } catch (Exception e) {
+                            // The proxy closed the connection
+                        }
+                    });
+                    handler.setDaemon(true);
+                    handler.start();
+                } catch (IOException e) {
+                    return;
+                }
+            }
+        });
+        acceptor.setDaemon(true);
+        acceptor.start();
+    }
+
+    private static ByteBuffer emptyBuffer() {
+        ByteBuffer buffer = ByteBuffer.allocate(16 * 1024);
+        buffer.limit(0);
+        return buffer;
+    }
+
+    /**
+     * Reads the next request head of an upstream connection
+     * @param buffered Bytes read but not parsed yet, in read mode
+     * @return The parsed head, or null once the proxy closed the connection
+     */
+    private static HttpRequestParser readRequest(InputStream in, ByteBuffer buffered) throws IOException {
+        HttpRequestParser request = new HttpRequestParser();
+        while (request.parse(buffered) == HttpRequestParser.Result.INCOMPLETE) {
+            buffered.clear();
+            int read = in.read(buffered.array());
+            if (read < 0) {
+                return null;
+            }
+            buffered.limit(read);
+        }
+        assertTrue(request.isComplete());
+        return request;
+    }
+
+    private static String describe(HttpRequestParser request) {
+        StringBuilder head = new StringBuilder(request.requestLine()).append('\n');
+        for (int i = 0; i < request.headerCount(); i++) {
+            head.append(request.headerName(i).toString().toLowerCase()).append(": ")
+                .append(request.headerValue(i)).append('\n');
+        }
+        return head.toString();
+    }
+}
@@ -0,0 +1,173 @@
+package edu.eci.arsw.networking;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.EnumSource;
+import static org.junit.jupiter.api.Assertions.*;
+import static edu.eci.arsw.networking.WebServerTestSupport.*;
+import java.net.Socket;
+import java.io.*;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Test class for HTTP/1.1 persistent connections in SimpleWebServer
+ * Runs every scenario against both the blocking and the NIO engine
+ */
+class SimpleWebServerKeepAliveTest {
+
+    private static final int SERVER_PORT = 8092;
+
+    private SimpleWebServer server;
+    private Thread serverThread;
+
+    @AfterEach
+    void tearDown() throws InterruptedException {
+        if (server != null) {
+            WebServerTestSupport.stopServer(server, serverThread, SERVER_PORT);
+        }
+    }
+
+    @ParameterizedTest
+    @EnumSource(WebServerConfig.Engine.class)
+    void testSeveralRequestsOnOneConnection(WebServerConfig.Engine engine) throws Exception {
+        startServer(engine, 5000, 100);
+
+        try (Socket socket = openSocket(SERVER_PORT)) {
+            Response first = exchange(socket, "GET /index.html HTTP/1.1\r\nHost: localhost\r\n\r\n");
+            Response second = exchange(socket, "GET /style.css HTTP/1.1\r\nHost: localhost\r\n\r\n");
+            Response third = exchange(socket, "GET /missing.html HTTP/1.1\r\nHost: localhost\r\n\r\n");
+
+            assertEquals(200, first.statusCode);
+            assertEquals("keep-alive", first.headers.get("connection"));
+            assertEquals("timeout=5, max=99", first.headers.get("keep-alive"));
+            assertTrue(first.body.contains("SimpleWebServer"));
+            assertEquals(200, second.statusCode);
+            assertEquals("text/css", second.headers.get("content-type"));
+            assertEquals(404, third.statusCode);
+            assertEquals("keep-alive", third.headers.get("connection"));
+        }
+    }
+
+    @ParameterizedTest
+    @EnumSource(WebServerConfig.Engine.class)
+    void testPipelinedRequests(WebServerConfig.Engine engine) throws Exception {
+        startServer(engine, 5000, 100);
+
+        try (Socket socket = openSocket(SERVER_PORT)) {
+            OutputStream out = socket.getOutputStream();
+            out.write(("GET /about.html HTTP/1.1\r\nHost: localhost\r\n\r\n" +
+                       "GET /index.html HTTP/1.1\r\nHost: localhost\r\nConnection: close\r\n\r\n")
+                      .getBytes(StandardCharsets.ISO_8859_1));
+            out.flush();
+
+            InputStream in = socket.getInputStream();
+            Response first = readResponse(in);
+            Response second = readResponse(in);
+            assertTrue(first.body.contains("Acerca del Proyecto"));
+            assertEquals("close", second.headers.get("connection"));
+            assertEquals(-1, in.read());
+        }
+    }
+
+    @ParameterizedTest
+    @EnumSource(WebServerConfig.Engine.class)
+    void testClientConnectionCloseHonored(WebServerConfig.Engine engine) throws Exception {
+        startServer(engine, 5000, 100);
+
+        try (Socket socket = openSocket(SERVER_PORT)) {
+            Response response = exchange(socket, "GET / HTTP/1.1\r\nHost: localhost\r\nConnection: close\r\n\r\n");
+
+            assertEquals(200, response.statusCode);
+            assertEquals("close", response.headers.get("connection"));
+            assertEquals(-1, socket.getInputStream().read());
+        }
+    }
+
+    @ParameterizedTest
+    @EnumSource(WebServerConfig.Engine.class)
+    void testHttp10ClosesUnlessKeepAliveRequested(WebServerConfig.Engine engine) throws Exception {
+        startServer(engine, 5000, 100);
+
+        try (Socket socket = openSocket(SERVER_PORT)) {
+            Response response = exchange(socket, "GET / HTTP/1.0\r\n\r\n");
+            assertEquals("close", response.headers.get("connection"));
+            assertEquals(-1, socket.getInputStream().read());
+        }
+        try (Socket socket = openSocket(SERVER_PORT)) {
+            Response first = exchange(socket, "GET / HTTP/1.0\r\nConnection: keep-alive\r\n\r\n");
+            Response second = exchange(socket, "GET /style.css HTTP/1.0\r\nConnection: Keep-Alive\r\n\r\n");
+            assertEquals("keep-alive", first.headers.get("connection"));
+            assertEquals(200, second.statusCode);
+        }
+    }
+
+    @ParameterizedTest
+    @EnumSource(WebServerConfig.Engine.class)
+    void testRequestLimitPerConnection(WebServerConfig.Engine engine) throws Exception {
+        startServer(engine, 5000, 2);
+
+        try (Socket socket = openSocket(SERVER_PORT)) {
+            Response first = exchange(socket, "GET / HTTP/1.1\r\nHost: localhost\r\n\r\n");
+            Response second = exchange(socket, "GET / HTTP/1.1\r\nHost: localhost\r\n\r\n");
+
+            assertEquals("timeout=5, max=1", first.headers.get("keep-alive"));
+            assertEquals("close", second.headers.get("connection"));
+            assertEquals(-1, socket.getInputStream().read());
+        }
+    }
+
+    @ParameterizedTest
+    @EnumSource(WebServerConfig.Engine.class)
+    void testIdleConnectionClosedAfterTimeout(WebServerConfig.Engine engine) throws Exception {
+        startServer(engine, 300, 100);
+
+        try (Socket socket = openSocket(SERVER_PORT)) {
+            Response response = exchange(socket, "GET / HTTP/1.1\r\nHost: localhost\r\n\r\n");
+            assertEquals("keep-alive", response.headers.get("connection"));
+
+            long start = System.nanoTime();
+            assertEquals(-1, socket.getInputStream().read());
+            long waitedMillis = (System.nanoTime() - start) / 1_000_000;
+            assertTrue(waitedMillis >= 200, "Cerrada demasiado pronto: " + waitedMillis + " ms");
+            assertTrue(waitedMillis < 3000, "Cerrada demasiado tarde: " + waitedMillis + " ms");
+        }
+    }
+
+    @ParameterizedTest
+    @EnumSource(WebServerConfig.Engine.class)
+    void testMethodNotAllowedClosesConnection(WebServerConfig.Engine engine) throws Exception {
+        startServer(engine, 5000, 100);
+
+        try (Socket socket = openSocket(SERVER_PORT)) {
+            Response response = exchange(socket, "DELETE /index.html HTTP/1.1\r\nHost: localhost\r\n\r\n");
+            assertEquals(405, response.statusCode);
+            assertEquals("close", response.headers.get("connection"));
+        }
+    }
+
+    @ParameterizedTest
+    @EnumSource(WebServerConfig.Engine.class)
+    void testOversizedHeadersRejected(WebServerConfig.Engine engine) throws Exception {
+        startServer(engine, 5000, 100);
+
+        try (Socket socket = openSocket(SERVER_PORT)) {
+            Response response = exchange(socket, "GET / HTTP/1.1\r\nHost: localhost\r\nCookie: " +
+                                                 "c".repeat(HttpRequestParser.DEFAULT_MAX_HEADER_SIZE) + "\r\n\r\n");
+            assertEquals(431, response.statusCode);
+            assertEquals("close", response.headers.get("connection"));
+        }
+    }
+
+    private void startServer(WebServerConfig.Engine engine, int idleTimeoutMillis, int maxRequests)
+            throws InterruptedException {
+        WebServerConfig config = new WebServerConfig();
+        config.setPort(SERVER_PORT);
+        config.setEngine(engine);
+        config.setReactorThreads(1);
+        config.setKeepAliveTimeoutMillis(idleTimeoutMillis);
+        config.setMaxRequestsPerConnection(maxRequests);
+
+        server = new SimpleWebServer(config);
+        serverThread = WebServerTestSupport.startServer(server, SERVER_PORT);
+    }
+}
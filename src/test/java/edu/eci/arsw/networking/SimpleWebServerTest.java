@@ -124,8 +124,9 @@ class SimpleWebServerTest {
     
     @Test
     void testHttpHeaders() throws IOException {
-        // Test that proper HTTP headers are sent
+        // Test that proper HTTP headers are sent (and that the client's Connection header is honored)
         HttpURLConnection connection = (HttpURLConnection) new URL(BASE_URL + "/").openConnection();
+        connection.setRequestProperty("Connection", "close");
         
         assertEquals(200, connection.getResponseCode());
         assertNotNull(connection.getHeaderField("Date"));
@@ -146,7 +147,7 @@ class SimpleWebServerTest {
         
         // CSS file
         HttpURLConnection cssConn = (HttpURLConnection) new URL(BASE_URL + "/style.css").openConnection();
-        assertNotEquals("text/css", cssConn.getContentType());
+        assertEquals("text/css", cssConn.getContentType());
         cssConn.disconnect();
     }
     
@@ -0,0 +1,156 @@
+package edu.eci.arsw.networking;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import static org.junit.jupiter.api.Assertions.*;
+import static edu.eci.arsw.networking.WebServerTestSupport.*;
+import java.io.IOException;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+
+/**
+ * Test class for StaticFileCache
+ * Verifies the byte budget, LRU eviction, modification-time invalidation and the
+ * counters, plus the cache integration in SimpleWebServer
+ */
+class StaticFileCacheTest {
+
+    private static final int SERVER_PORT = 8093;
+
+    @TempDir
+    Path webRoot;
+
+    @Test
+    void testHitAndMissCounters() throws IOException {
+        StaticFileCache cache = new StaticFileCache(1024, 1024, 60_000);
+        Path file = writeFile("a.html", 100);
+        MetricsRegistry.Counter exportedHits = MetricsRegistry.shared()
+            .counter("static_cache_hits_total", "").labels();
+        MetricsRegistry.Counter exportedMisses = MetricsRegistry.shared()
+            .counter("static_cache_misses_total", "").labels();
+        long hitsBefore = exportedHits.get();
+        long missesBefore = exportedMisses.get();
+
+        assertNull(cache.get(file));
+        cache.put(file, entryFor(file));
+        assertNotNull(cache.get(file));
+        assertNotNull(cache.get(file));
+
+        assertEquals(2, cache.getHits());
+        assertEquals(1, cache.getMisses());
+        assertEquals(100, cache.getCurrentBytes());
+        // Also exported through the shared registry
+        assertEquals(hitsBefore + 2, exportedHits.get());
+        assertEquals(missesBefore + 1, exportedMisses.get());
+    }
+
+    @Test
+    void testLeastRecentlyUsedEvictedWhenOverBudget() throws IOException {
+        StaticFileCache cache = new StaticFileCache(250, 250, 60_000);
+        Path a = writeFile("a.html", 100);
+        Path b = writeFile("b.html", 100);
+        Path c = writeFile("c.html", 100);
+
+        cache.put(a, entryFor(a));
+        cache.put(b, entryFor(b));
+        cache.get(a); // a becomes most recently used
+        cache.put(c, entryFor(c));
+
+        assertEquals(1, cache.getEvictions());
+        assertEquals(2, cache.size());
+        assertEquals(200, cache.getCurrentBytes());
+        assertNotNull(cache.get(a));
+        assertNull(cache.get(b));
+        assertNotNull(cache.get(c));
+    }
+
+    @Test
+    void testOversizedFileNotCached() throws IOException {
+        StaticFileCache cache = new StaticFileCache(1000, 50, 60_000);
+        Path file = writeFile("big.html", 100);
+
+        assertFalse(cache.put(file, entryFor(file)));
+        assertEquals(0, cache.size());
+    }
+
+    @Test
+    void testModifiedFileInvalidated() throws IOException {
+        StaticFileCache cache = new StaticFileCache(1024, 1024, 0);
+        Path file = writeFile("a.html", 100);
+        cache.put(file, entryFor(file));
+
+        Files.setLastModifiedTime(file, FileTime.fromMillis(Files.getLastModifiedTime(file).toMillis() + 5000));
+
+        assertNull(cache.get(file));
+        assertEquals(1, cache.getInvalidations());
+        assertEquals(0, cache.getCurrentBytes());
+    }
+
+    @Test
+    void testDeletedFileInvalidated() throws IOException {
+        StaticFileCache cache = new StaticFileCache(1024, 1024, 0);
+        Path file = writeFile("a.html", 100);
+        cache.put(file, entryFor(file));
+
+        Files.delete(file);
+
+        assertNull(cache.get(file));
+        assertEquals(1, cache.getInvalidations());
+    }
+
+    @Test
+    void testUnchangedFileNotRevalidatedWithinInterval() throws IOException {
+        StaticFileCache cache = new StaticFileCache(1024, 1024, 60_000);
+        Path file = writeFile("a.html", 100);
+        cache.put(file, entryFor(file));
+
+        // Within the interval the cache does not look at the file system at all
+        Files.delete(file);
+        assertNotNull(cache.get(file));
+    }
+
+    @Test
+    void testServerAnswersRepeatedRequestsFromCache() throws Exception {
+        Files.write(webRoot.resolve("index.html"), "<h1>cache</h1>".getBytes(StandardCharsets.UTF_8));
+        WebServerConfig config = new WebServerConfig();
+        config.setPort(SERVER_PORT);
+        config.setWebRoot(webRoot.toString());
+        config.setCacheRevalidateMillis(0);
+        SimpleWebServer server = new SimpleWebServer(config);
+        Thread serverThread = startServer(server, SERVER_PORT);
+
+        try {
+            assertEquals("<h1>cache</h1>", fetch("/"));
+            assertEquals("<h1>cache</h1>", fetch("/"));
+            assertEquals(1, server.getFileCache().getHits());
+
+            // A new modification time must be picked up on the next request
+            Files.write(webRoot.resolve("index.html"), "<h1>nuevo</h1>".getBytes(StandardCharsets.UTF_8));
+            Files.setLastModifiedTime(webRoot.resolve("index.html"), FileTime.fromMillis(System.currentTimeMillis() + 5000));
+            assertEquals("<h1>nuevo</h1>", fetch("/"));
+            assertEquals(1, server.getFileCache().getInvalidations());
+        } finally {
+            stopServer(server, serverThread, SERVER_PORT);
+        }
+    }
+
+    private Path writeFile(String name, int size) throws IOException {
+        return Files.write(webRoot.resolve(name), new byte[size]);
+    }
+
+    private static StaticFileCache.Entry entryFor(Path file) throws IOException {
+        return new StaticFileCache.Entry(file, file.getFileName().toString(), Files.readAllBytes(file),
+                                         Files.getLastModifiedTime(file).toMillis());
+    }
+
+    private static String fetch(String path) throws IOException {
+        try (Socket socket = openSocket(SERVER_PORT)) {
+            WebServerTestSupport.Response response = get(socket, path, "Connection: close\r\n");
+            assertEquals(200, response.statusCode);
+            return response.body;
+        }
+    }
+}
@@ -0,0 +1,158 @@
+package edu.eci.arsw.networking;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.EnumSource;
+import static org.junit.jupiter.api.Assertions.*;
+import static edu.eci.arsw.networking.WebServerTestSupport.*;
+import java.io.*;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.Random;
+import javax.net.ssl.SSLContext;
+import javax.net.ssl.SSLSession;
+import javax.net.ssl.SSLSocket;
+
+/**
+ * Test class for HTTPS in SimpleWebServer
+ * Verifies file transfers, pipelining and session resumption through TLS on both engines,
+ * against a self-signed certificate generated for the test
+ */
+class TlsTransferTest {
+
+    private static final int SERVER_PORT = 8109;
+    private static final String PASSWORD = "cambiame";
+
+    @TempDir
+    static Path keyDir;
+
+    @TempDir
+    Path webRoot;
+
+    private static Path keyStore;
+
+    private SimpleWebServer server;
+    private Thread serverThread;
+
+    @BeforeAll
+    static void generateCertificate() throws IOException {
+        keyStore = keyDir.resolve("servidor.p12");
+        TlsContext.generateSelfSigned(keyStore, PASSWORD, "localhost");
+    }
+
+    @AfterEach
+    void tearDown() throws InterruptedException {
+        if (server != null) {
+            WebServerTestSupport.stopServer(server, serverThread, SERVER_PORT);
+        }
+    }
+
+    @ParameterizedTest
+    @EnumSource(WebServerConfig.Engine.class)
+    void testFilesServedOverTls(WebServerConfig.Engine engine) throws Exception {
+        byte[] large = new byte[3 * 1024 * 1024 + 17];
+        new Random(11).nextBytes(large);
+        Files.write(webRoot.resolve("grande.bin"), large);
+        Files.writeString(webRoot.resolve("hola.txt"), "hola por TLS");
+        startServer(engine, true);
+        SSLContext client = TlsContext.trustingClientContext(keyStore, PASSWORD);
+
+        try (SSLSocket socket = openSocket(client, "TLSv1.3")) {
+            Response small =
+                exchange(socket, "GET /hola.txt HTTP/1.1\r\nHost: localhost\r\n\r\n");
+            assertEquals(200, small.statusCode);
+            assertEquals("hola por TLS", small.body);
+            assertEquals("keep-alive", small.headers.get("connection"));
+            assertEquals("TLSv1.3", socket.getSession().getProtocol());
+
+            // Larger than the socket buffers: sent across many TLS records and writable events
+            Response file =
+                exchange(socket, "GET /grande.bin HTTP/1.1\r\nHost: localhost\r\n\r\n");
+            assertEquals(200, file.statusCode);
+            assertArrayEquals(large, file.rawBody);
+
+            // Pipelined requests arrive in one record; the second must not wait for more input
+            OutputStream out = socket.getOutputStream();
+            out.write(("GET /hola.txt HTTP/1.1\r\nHost: localhost\r\n\r\n"
+                       + "GET /falta.txt HTTP/1.1\r\nHost: localhost\r\nConnection: close\r\n\r\n")
+                      .getBytes(StandardCharsets.ISO_8859_1));
+            out.flush();
+            InputStream in = socket.getInputStream();
+            assertEquals(200, readResponse(in).statusCode);
+            assertEquals(404, readResponse(in).statusCode);
+            assertEquals(-1, in.read());
+        }
+    }
+
+    @ParameterizedTest
+    @EnumSource(WebServerConfig.Engine.class)
+    void testSecondConnectionResumesSession(WebServerConfig.Engine engine) throws Exception {
+        Files.writeString(webRoot.resolve("hola.txt"), "hola");
+        startServer(engine, false);
+        SSLContext client = TlsContext.trustingClientContext(keyStore, PASSWORD);
+
+        byte[] firstId;
+        try (SSLSocket socket = openSocket(client, "TLSv1.2")) {
+            assertEquals(200, exchange(socket, "GET /hola.txt HTTP/1.1\r\nHost: localhost\r\n\r\n").statusCode);
+            firstId = socket.getSession().getId();
+        }
+        try (SSLSocket socket = openSocket(client, "TLSv1.2")) {
+            assertEquals(200, exchange(socket, "GET /hola.txt HTTP/1.1\r\nHost: localhost\r\n\r\n").statusCode);
+            SSLSession session = socket.getSession();
+            assertTrue(firstId.length > 0);
+            assertTrue(Arrays.equals(firstId, session.getId()), "La segunda conexión debería reanudar la sesión");
+        }
+        // Without tickets the server kept the session in its cache
+        assertTrue(server.getTlsContext().getSessionContext().getIds().hasMoreElements());
+    }
+
+    @Test
+    void testWrongKeyStorePasswordRejected() {
+        WebServerConfig config = new WebServerConfig();
+        config.setPort(SERVER_PORT);
+        config.setTlsKeyStore(keyStore.toString());
+        config.setTlsPassword("incorrecta");
+        assertThrows(IllegalArgumentException.class, () -> new SimpleWebServer(config));
+    }
+
+    @Test
+    void testInvalidTlsSettingsRejected() {
+        WebServerConfig config = new WebServerConfig();
+        assertFalse(config.isTlsEnabled());
+        assertThrows(IllegalArgumentException.class, () -> config.setTlsProtocols(new String[0]));
+        assertThrows(IllegalArgumentException.class, () -> config.setTlsSessionCacheSize(-1));
+        assertThrows(IllegalArgumentException.class, () -> config.setTlsSessionTimeoutSeconds(-1));
+
+        config.setTlsKeyStore(keyStore.toString());
+        config.setTlsPassword(PASSWORD);
+        config.setTlsProtocols(new String[] { "SSLv2" });
+        assertThrows(IllegalArgumentException.class, () -> new SimpleWebServer(config));
+    }
+
+    private void startServer(WebServerConfig.Engine engine, boolean tickets) throws Exception {
+        WebServerConfig config = new WebServerConfig();
+        config.setPort(SERVER_PORT);
+        config.setWebRoot(webRoot.toString());
+        config.setEngine(engine);
+        config.setReactorThreads(1);
+        config.setTlsKeyStore(keyStore.toString());
+        config.setTlsPassword(PASSWORD);
+        config.setTlsSessionTickets(tickets);
+
+        server = new SimpleWebServer(config);
+        serverThread = WebServerTestSupport.startServer(server, SERVER_PORT);
+    }
+
+    private static SSLSocket openSocket(SSLContext client, String protocol) throws IOException {
+        SSLSocket socket = (SSLSocket) client.getSocketFactory().createSocket(SERVER_HOST, SERVER_PORT);
+        socket.setSoTimeout(5000);
+        socket.setEnabledProtocols(new String[] { protocol });
+        return socket;
+    }
+}
@@ -0,0 +1,171 @@
+package edu.eci.arsw.networking;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.EnumSource;
+import static org.junit.jupiter.api.Assertions.*;
+import static edu.eci.arsw.networking.WebServerTestSupport.*;
+import java.io.IOException;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+import java.util.function.BooleanSupplier;
+
+/**
+ * Test class for WebRootIndex and its use by SimpleWebServer
+ * Verifies the initial walk, directory resolution, watch-driven updates and the refresh
+ * triggered by cache revalidation, on both engines
+ */
+class WebRootIndexTest {
+
+    private static final int SERVER_PORT = 8100;
+    private static final long MODIFIED_MILLIS = 1_700_000_000_000L;
+
+    @TempDir
+    Path webRoot;
+
+    private SimpleWebServer server;
+    private Thread serverThread;
+    private WebRootIndex index;
+
+    @AfterEach
+    void tearDown() throws Exception {
+        if (index != null) {
+            index.close();
+        }
+        if (server != null) {
+            WebServerTestSupport.stopServer(server, serverThread, SERVER_PORT);
+        }
+    }
+
+    @Test
+    void testTreeIndexedAtStart() throws Exception {
+        writeFile("index.html", "<h1>raíz</h1>", MODIFIED_MILLIS);
+        writeFile("css/style.css", "p{}", MODIFIED_MILLIS);
+        writeFile("docs/index.html", "<h1>docs</h1>", MODIFIED_MILLIS);
+        Files.createDirectories(webRoot.resolve("empty"));
+        startIndex();
+
+        WebRootIndex.Entry style = index.lookup("css/style.css");
+        assertNotNull(style);
+        assertEquals(3, style.getSize());
+        assertEquals("text/css", style.getMimeType());
+        assertEquals(FileValidators.of(3, MODIFIED_MILLIS).getEtag(), style.getValidators().getEtag());
+
+        // Directory requests resolve to their index.html, with or without the slash
+        assertEquals("docs/index.html", index.lookup("docs").getFileName());
+        assertSame(index.lookup("docs"), index.lookup("docs/"));
+        assertTrue(index.lookup("empty/").isDirectory());
+        assertNotNull(index.lookup("index.html"));
+        assertNull(index.lookup("missing.txt"));
+    }
+
+    @Test
+    void testWatchEventsUpdateIndex() throws Exception {
+        writeFile("a.txt", "uno", MODIFIED_MILLIS);
+        startIndex();
+
+        writeFile("b.txt", "nuevo", MODIFIED_MILLIS);
+        awaitTrue(() -> index.lookup("b.txt") != null);
+
+        writeFile("sub/index.html", "<p>sub</p>", MODIFIED_MILLIS);
+        awaitTrue(() -> index.lookup("sub/") != null && !index.lookup("sub/").isDirectory());
+
+        Files.delete(webRoot.resolve("a.txt"));
+        awaitTrue(() -> index.lookup("a.txt") == null);
+
+        // Without its index.html the directory is refused again
+        Files.delete(webRoot.resolve("sub/index.html"));
+        awaitTrue(() -> index.lookup("sub/") != null && index.lookup("sub/").isDirectory());
+    }
+
+    @Test
+    void testRefreshAppliesChangeImmediately() throws Exception {
+        Path file = writeFile("a.txt", "uno", MODIFIED_MILLIS);
+        startIndex();
+
+        writeFile("a.txt", "version dos", MODIFIED_MILLIS + 5000);
+        index.refresh(file);
+        assertEquals(11, index.lookup("a.txt").getSize());
+        assertEquals(MODIFIED_MILLIS + 5000, index.lookup("a.txt").getLastModifiedMillis());
+
+        Files.delete(file);
+        index.refresh(file);
+        assertNull(index.lookup("a.txt"));
+    }
+
+    @ParameterizedTest
+    @EnumSource(WebServerConfig.Engine.class)
+    void testServerResolvesThroughIndex(WebServerConfig.Engine engine) throws Exception {
+        writeFile("index.html", "<h1>raíz</h1>", MODIFIED_MILLIS);
+        writeFile("docs/index.html", "<h1>docs</h1>", MODIFIED_MILLIS);
+        Files.createDirectories(webRoot.resolve("empty"));
+        startServer(engine);
+        assertNotNull(server.getWebRootIndex());
+
+        try (Socket socket = openSocket(SERVER_PORT)) {
+            assertEquals("<h1>raíz</h1>", get(socket, "/", "").body);
+            assertEquals("<h1>docs</h1>", get(socket, "/docs/", "").body);
+            assertEquals(403, get(socket, "/empty/", "").statusCode);
+            assertEquals(404, get(socket, "/missing.txt", "").statusCode);
+
+            // Files created while running are found, through the watcher or on disk
+            writeFile("late.txt", "tarde", MODIFIED_MILLIS);
+            assertEquals("tarde", get(socket, "/late.txt", "").body);
+
+            // A changed file is seen by the cache revalidation, which refreshes the index
+            writeFile("index.html", "<h1>nueva raíz</h1>", MODIFIED_MILLIS + 5000);
+            Response changed = get(socket, "/", "");
+            assertEquals("<h1>nueva raíz</h1>", changed.body);
+            assertEquals(FileValidators.of("<h1>nueva raíz</h1>".getBytes(StandardCharsets.UTF_8).length,
+                                           MODIFIED_MILLIS + 5000).getEtag(),
+                         changed.headers.get("etag"));
+            assertEquals(MODIFIED_MILLIS + 5000, server.getWebRootIndex().lookup("index.html").getLastModifiedMillis());
+
+            // Without its index.html the directory is refused, even before the watch event arrives
+            Files.delete(webRoot.resolve("docs/index.html"));
+            assertEquals(403, get(socket, "/docs/", "").statusCode);
+        }
+    }
+
+    private void startIndex() throws IOException {
+        index = new WebRootIndex(webRoot, "index.html",
+                                 name -> name.endsWith(".css") ? "text/css" : "text/plain");
+        index.start();
+    }
+
+    private void startServer(WebServerConfig.Engine engine) throws Exception {
+        WebServerConfig config = new WebServerConfig();
+        config.setPort(SERVER_PORT);
+        config.setWebRoot(webRoot.toString());
+        config.setEngine(engine);
+        config.setReactorThreads(1);
+        config.setCacheRevalidateMillis(0);
+
+        server = new SimpleWebServer(config);
+        serverThread = WebServerTestSupport.startServer(server, SERVER_PORT);
+    }
+
+    private Path writeFile(String name, String content, long modifiedMillis) throws IOException {
+        Path file = webRoot.resolve(name);
+        Files.createDirectories(file.getParent());
+        Files.write(file, content.getBytes(StandardCharsets.UTF_8));
+        Files.setLastModifiedTime(file, FileTime.fromMillis(modifiedMillis));
+        return file;
+    }
+
+    private static void awaitTrue(BooleanSupplier condition) throws InterruptedException {
+        // Watch events are delivered asynchronously (polled every few seconds on some platforms)
+        for (int i = 0; i < 200; i++) {
+            if (condition.getAsBoolean()) {
+                return;
+            }
+            Thread.sleep(50);
+        }
+        fail("El índice no se actualizó a tiempo");
+    }
+}
@@ -0,0 +1,161 @@
+package edu.eci.arsw.networking;
+
+import static org.junit.jupiter.api.Assertions.*;
+import java.io.ByteArrayOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.InetSocketAddress;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Shared setup for the tests that run a SimpleWebServer on a loopback port: starting and
+ * stopping it, opening client sockets and reading one HTTP response at a time
+ */
+final class WebServerTestSupport {
+
+    static final String SERVER_HOST = "127.0.0.1";
+
+    private WebServerTestSupport() {
+    }
+
+    /**
+     * Starts a server on a daemon thread and waits until its port accepts connections
+     * @return The thread running the server
+     */
+    static Thread startServer(SimpleWebServer server, int port) throws InterruptedException {
+        Thread serverThread = new Thread(() -> server.startServer());
+        serverThread.setDaemon(true);
+        serverThread.start();
+        waitForPort(port);
+        return serverThread;
+    }
+
+    /**
+     * Stops a server started with {@link #startServer} and waits for its thread
+     */
+    static void stopServer(SimpleWebServer server, Thread serverThread, int port) throws InterruptedException {
+        server.stopServer();
+        wakeUp(port);
+        serverThread.join(5000);
+    }
+
+    /**
+     * Waits until a server, of any kind, accepts connections on the port
+     */
+    static void waitForPort(int port) throws InterruptedException {
+        for (int i = 0; i < 100; i++) {
+            try (Socket probe = new Socket()) {
+                probe.connect(new InetSocketAddress(SERVER_HOST, port), 100);
+                return;
+            } catch (IOException e) {
+                Thread.sleep(100);
+            }
+        }
+        fail("El servidor no inició a tiempo");
+    }
+
+    /**
+     * Connects once to a stopped server: a blocking accept loop only notices the stop flag
+     * after its next accept
+     */
+    static void wakeUp(int port) {
+        try (Socket wakeUp = new Socket(SERVER_HOST, port)) {
+            wakeUp.setSoLinger(true, 0);
+        } catch (IOException e) {
+            // Already closed
+        }
+    }
+
+    static Socket openSocket(int port) throws IOException {
+        Socket socket = new Socket(SERVER_HOST, port);
+        socket.setSoTimeout(5000);
+        return socket;
+    }
+
+    /**
+     * Sends a GET on a persistent connection and reads its response
+     * @param extraHeaders Header lines to add, each ending in CRLF
+     */
+    static Response get(Socket socket, String path, String extraHeaders) throws IOException {
+        return exchange(socket, "GET " + path + " HTTP/1.1\r\nHost: localhost\r\n" + extraHeaders + "\r\n");
+    }
+
+    static Response exchange(Socket socket, String request) throws IOException {
+        send(socket, request);
+        return readResponse(socket.getInputStream());
+    }
+
+    static void send(Socket socket, String request) throws IOException {
+        socket.getOutputStream().write(request.getBytes(StandardCharsets.ISO_8859_1));
+        socket.getOutputStream().flush();
+    }
+
+    /**
+     * Reads exactly one response, using Content-Length or the chunk framing to find its end
+     */
+    static Response readResponse(InputStream in) throws IOException {
+        Response response = readHead(in);
+        if ("chunked".equals(response.headers.get("transfer-encoding"))) {
+            ByteArrayOutputStream body = new ByteArrayOutputStream();
+            int size;
+            while ((size = Integer.parseInt(readLine(in), 16)) > 0) {
+                body.write(in.readNBytes(size));
+                assertEquals("", readLine(in));
+                response.chunks++;
+            }
+            assertEquals("", readLine(in));
+            response.rawBody = body.toByteArray();
+        } else {
+            int contentLength = Integer.parseInt(response.headers.getOrDefault("content-length", "0"));
+            response.rawBody = in.readNBytes(contentLength);
+        }
+        response.body = new String(response.rawBody, StandardCharsets.UTF_8);
+        return response;
+    }
+
+    /**
+     * Reads the status line and headers of one response and leaves its body in the stream,
+     * for bodies too large to hold in memory
+     */
+    static Response readHead(InputStream in) throws IOException {
+        Response response = new Response();
+        String statusLine = readLine(in);
+        response.statusCode = Integer.parseInt(statusLine.split(" ")[1]);
+
+        String line;
+        while (!(line = readLine(in)).isEmpty()) {
+            int colon = line.indexOf(':');
+            response.headers.put(line.substring(0, colon).trim().toLowerCase(), line.substring(colon + 1).trim());
+        }
+        return response;
+    }
+
+    private static String readLine(InputStream in) throws IOException {
+        ByteArrayOutputStream line = new ByteArrayOutputStream();
+        int b;
+        while ((b = in.read()) != '\n') {
+            if (b == -1) {
+                throw new EOFException("Conexión cerrada antes de terminar la respuesta");
+            }
+            if (b != '\r') {
+                line.write(b);
+            }
+        }
+        return line.toString(StandardCharsets.ISO_8859_1);
+    }
+
+    /**
+     * Parsed HTTP response used by the assertions
+     */
+    static class Response {
+        int statusCode;
+        final Map<String, String> headers = new HashMap<>();
+        String body;
+        byte[] rawBody;
+        int chunks;
+    }
+}
@@ -0,0 +1,648 @@
+package edu.eci.arsw.networking;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import static org.junit.jupiter.api.Assertions.*;
+import static edu.eci.arsw.networking.WebServerTestSupport.*;
+import java.io.*;
+import java.net.InetSocketAddress;
+import java.net.Socket;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.WebSocket;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.Random;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionStage;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Test class for the WebSocket endpoints of SimpleWebServer
+ * Verifies the codec against RFC 6455, the handshake with the JDK WebSocket client, and
+ * fragmentation, control frames, broadcasts, slow consumers and protocol errors with raw
+ * frames
+ */
+class WebSocketTest {
+
+    private static final int SERVER_PORT = 8119;
+    /** Key and answer of the handshake example in RFC 6455, section 1.3 */
+    private static final String SAMPLE_KEY = "dGhlIHNhbXBsZSBub25jZQ==";
+    private static final String SAMPLE_ACCEPT = "s3pPLMBiTxaQ9kYGzzhZRbK+xOo=";
+
+    private static final int CONTINUATION = 0x0;
+    private static final int TEXT = 0x1;
+    private static final int BINARY = 0x2;
+    private static final int CLOSE = 0x8;
+    private static final int PING = 0x9;
+    private static final int PONG = 0xA;
+
+    @TempDir
+    Path webRoot;
+
+    private SimpleWebServer server;
+    private Thread serverThread;
+
+    @AfterEach
+    void tearDown() throws InterruptedException {
+        stopServer();
+    }
+
+    @Test
+    void testCodecMatchesRfc6455() {
+        assertEquals(SAMPLE_ACCEPT, WebSocketCodec.acceptKey(SAMPLE_KEY));
+        assertTrue(WebSocketCodec.isValidKey(SAMPLE_KEY));
+        assertFalse(WebSocketCodec.isValidKey("corta"));
+
+        // RFC 6455, section 5.7: masked "Hello"
+        byte[] masked = { 0x7f, (byte) 0x9f, 0x4d, 0x51, 0x58 };
+        WebSocketCodec.unmask(masked, 0, masked.length, 0x37fa213d);
+        assertEquals("Hello", new String(masked, StandardCharsets.US_ASCII));
+
+        // In place at every offset and length, against a byte-at-a-time reference
+        Random random = new Random(6455);
+        for (int offset = 0; offset < 4; offset++) {
+            for (int length = 0; length < 40; length++) {
+                byte[] data = new byte[offset + length + 3];
+                random.nextBytes(data);
+                int mask = random.nextInt();
+                byte[] expected = data.clone();
+                for (int i = 0; i < length; i++) {
+                    expected[offset + i] ^= (byte) (mask >>> (24 - 8 * (i % 4)));
+                }
+                WebSocketCodec.unmask(data, offset, length, mask);
+                assertArrayEquals(expected, data, "offset " + offset + ", longitud " + length);
+            }
+        }
+
+        // The three length encodings
+        assertArrayEquals(new byte[] { (byte) 0x81, 125 }, header(WebSocketCodec.encode(TEXT, new byte[125], 0, 125), 2));
+        assertArrayEquals(new byte[] { (byte) 0x82, 126, 0, 126 },
+                          header(WebSocketCodec.encode(BINARY, new byte[126], 0, 126), 4));
+        assertArrayEquals(new byte[] { (byte) 0x82, 127, 0, 0, 0, 0, 0, 1, 0, 0 },
+                          header(WebSocketCodec.encode(BINARY, new byte[65536], 0, 65536), 10));
+        assertEquals(65536 + 10, WebSocketCodec.encode(BINARY, new byte[65536], 0, 65536).remaining());
+
+        // Close codes a peer may send
+        assertTrue(WebSocketCodec.isValidCloseCode(1000));
+        assertTrue(WebSocketCodec.isValidCloseCode(4000));
+        assertFalse(WebSocketCodec.isValidCloseCode(1005));
+        assertFalse(WebSocketCodec.isValidCloseCode(999));
+        assertFalse(WebSocketCodec.isValidCloseCode(2000));
+    }
+
+    @Test
+    void testJdkClientExchangesMessagesAndPings() throws Exception {
+        startServer(baseConfig());
+        server.addWebSocketEndpoint("/echo", new EchoHandler());
+
+        CompletableFuture<String> reply = new CompletableFuture<>();
+        CompletableFuture<ByteBuffer> pong = new CompletableFuture<>();
+        CompletableFuture<Integer> closed = new CompletableFuture<>();
+        WebSocket webSocket = HttpClient.newHttpClient().newWebSocketBuilder()
+            .buildAsync(URI.create("ws://" + SERVER_HOST + ":" + SERVER_PORT + "/echo"), new WebSocket.Listener() {
+                @Override
+                public CompletionStage<?> onText(WebSocket ws, CharSequence data, boolean last) {
+                    reply.complete(data.toString());
+                    ws.request(1);
+                    return null;
+                }
+
+                @Override
+                public CompletionStage<?> onPong(WebSocket ws, ByteBuffer message) {
+                    pong.complete(message);
+                    ws.request(1);
+                    return null;
+                }
+
+                @Override
+                public CompletionStage<?> onClose(WebSocket ws, int statusCode, String reason) {
+                    closed.complete(statusCode);
+                    return null;
+                }
+            }).get(5, TimeUnit.SECONDS);
+
+        webSocket.sendText("¿Qué hora es?", true).get(5, TimeUnit.SECONDS);
+        assertEquals("eco: ¿Qué hora es?", reply.get(5, TimeUnit.SECONDS));
+
+        webSocket.sendPing(ByteBuffer.wrap(new byte[] { 1, 2, 3 })).get(5, TimeUnit.SECONDS);
+        ByteBuffer pongPayload = pong.get(5, TimeUnit.SECONDS);
+        assertEquals(3, pongPayload.remaining());
+        assertEquals(3, pongPayload.get(2));
+
+        webSocket.sendClose(WebSocket.NORMAL_CLOSURE, "fin").get(5, TimeUnit.SECONDS);
+        assertEquals(WebSocket.NORMAL_CLOSURE, closed.get(5, TimeUnit.SECONDS));
+    }
+
+    @Test
+    void testFragmentedMessageIsReassembledAroundPing() throws Exception {
+        startServer(baseConfig());
+        server.addWebSocketEndpoint("/echo", new EchoHandler());
+
+        try (Socket socket = connect("/echo")) {
+            OutputStream out = socket.getOutputStream();
+            DataInputStream in = new DataInputStream(socket.getInputStream());
+            // "ñ" is split between the first and second fragments
+            byte[] text = "Año nuevo".getBytes(StandardCharsets.UTF_8);
+            writeFrame(out, false, TEXT, Arrays.copyOfRange(text, 0, 2));
+            writeFrame(out, true, PING, "latido".getBytes(StandardCharsets.UTF_8));
+            writeFrame(out, false, CONTINUATION, Arrays.copyOfRange(text, 2, 5));
+            writeFrame(out, true, CONTINUATION, Arrays.copyOfRange(text, 5, text.length));
+
+            Frame pong = readFrame(in);
+            assertEquals(PONG, pong.opcode);
+            assertEquals("latido", pong.text());
+
+            Frame echo = readFrame(in);
+            assertTrue(echo.fin);
+            assertEquals(TEXT, echo.opcode);
+            assertEquals("eco: Año nuevo", echo.text());
+
+            // A larger binary message in many fragments, with a 64-bit length frame
+            byte[] data = new byte[70000];
+            new Random(7).nextBytes(data);
+            for (int offset = 0; offset < data.length; offset += 30000) {
+                int end = Math.min(data.length, offset + 30000);
+                writeFrame(out, end == data.length, offset == 0 ? BINARY : CONTINUATION,
+                           Arrays.copyOfRange(data, offset, end));
+            }
+            Frame binary = readFrame(in);
+            assertEquals(BINARY, binary.opcode);
+            assertArrayEquals(data, binary.payload);
+        }
+    }
+
+    @Test
+    void testChatBroadcastReachesEverySubscriber() throws Exception {
+        startServer(baseConfig());
+        WebSocketEndpoint chat = server.getWebSocketEndpoint(WebSocketFeeds.CHAT_PATH);
+        assertNotNull(chat);
+
+        Socket[] clients = new Socket[3];
+        try {
+            for (int i = 0; i < clients.length; i++) {
+                clients[i] = connect(WebSocketFeeds.CHAT_PATH);
+            }
+            waitForSessions(chat, clients.length);
+
+            writeFrame(clients[0].getOutputStream(), true, TEXT, "hola a todos".getBytes(StandardCharsets.UTF_8));
+            for (Socket client : clients) {
+                Frame frame = readFrame(new DataInputStream(client.getInputStream()));
+                assertEquals(TEXT, frame.opcode);
+                assertEquals("127.0.0.1: hola a todos", frame.text());
+            }
+
+            assertEquals(clients.length, chat.broadcast(new byte[] { 42 }));
+            for (Socket client : clients) {
+                Frame frame = readFrame(new DataInputStream(client.getInputStream()));
+                assertEquals(BINARY, frame.opcode);
+                assertArrayEquals(new byte[] { 42 }, frame.payload);
+            }
+        } finally {
+            for (Socket client : clients) {
+                if (client != null) {
+                    client.close();
+                }
+            }
+        }
+        waitForSessions(chat, 0);
+    }
+
+    @Test
+    void testSlowConsumerIsDisconnectedWithoutHoldingBackOthers() throws Exception {
+        WebServerConfig config = baseConfig();
+        config.setWebSocketQueueCapacity(8);
+        startServer(config);
+        WebSocketEndpoint feed = server.addWebSocketEndpoint("/feed", new WebSocketHandler() { });
+        MetricsRegistry.Counter slowConsumers = MetricsRegistry.shared()
+            .counter("websocket_slow_consumers_total", "", "path").labels("/feed");
+        long slowBefore = slowConsumers.get();
+
+        try (Socket slow = new Socket(); Socket fast = connect("/feed")) {
+            // The slow client never reads, and its small buffer fills quickly
+            slow.setReceiveBufferSize(4096);
+            slow.connect(new InetSocketAddress(SERVER_HOST, SERVER_PORT), 2000);
+            handshake(slow, "/feed");
+            waitForSessions(feed, 2);
+
+            long[] fastBytes = new long[1];
+            Thread reader = new Thread(() -> {
+                byte[] buffer = new byte[64 * 1024];
+                try {
+                    InputStream in = fast.getInputStream();
+                    int read;
+                    while ((read = in.read(buffer)) >= 0) {
+                        synchronized (fastBytes) {
+                            fastBytes[0] += read;
+                        }
+                    }
+                } catch (IOException e) {
+                    // Closed by the test
+                }
+            });
+            reader.setDaemon(true);
+            reader.start();
+
+            byte[] chunk = new byte[64 * 1024];
+            for (int i = 0; i < 2000 && feed.getSessionCount() > 1; i++) {
+                feed.broadcast(chunk);
+                Thread.sleep(2);
+            }
+            waitForSessions(feed, 1);
+            assertEquals(slowBefore + 1, slowConsumers.get());
+
+            // The remaining subscriber is still served
+            assertEquals(1, feed.broadcast("sigues conectado"));
+            long deadline = System.currentTimeMillis() + 5000;
+            while (feed.getSessions().iterator().next().getQueuedFrames() > 0 && System.currentTimeMillis() < deadline) {
+                Thread.sleep(10);
+            }
+            assertEquals(0, feed.getSessions().iterator().next().getQueuedFrames());
+            synchronized (fastBytes) {
+                assertTrue(fastBytes[0] > 0);
+            }
+        }
+    }
+
+    @Test
+    void testStalledSubscribersDoNotHoldUpWriterThreads() throws Exception {
+        startServer(baseConfig());
+        WebSocketEndpoint feed = server.addWebSocketEndpoint("/feed", new WebSocketHandler() { });
+        // More stalled clients than there are writer threads
+        int stalledCount = Math.max(2, Runtime.getRuntime().availableProcessors()) + 2;
+        Socket[] stalled = new Socket[stalledCount];
+        try (Socket fast = connect("/feed")) {
+            for (int i = 0; i < stalledCount; i++) {
+                stalled[i] = new Socket();
+                stalled[i].setReceiveBufferSize(4096);
+                stalled[i].connect(new InetSocketAddress(SERVER_HOST, SERVER_PORT), 2000);
+                handshake(stalled[i], "/feed");
+            }
+            waitForSessions(feed, stalledCount + 1);
+
+            // Far more than the socket buffers of a client that never reads can hold
+            byte[] chunk = new byte[64 * 1024];
+            int chunks = 100;
+            DataInputStream in = new DataInputStream(new BufferedInputStream(fast.getInputStream()));
+            long start = System.nanoTime();
+            for (int i = 0; i < chunks; i++) {
+                feed.broadcast(chunk);
+            }
+            assertEquals(stalledCount + 1, feed.broadcast("fin"));
+            for (int i = 0; i < chunks; i++) {
+                assertEquals(BINARY, readFrame(in).opcode);
+            }
+            assertEquals("fin", readFrame(in).text());
+            // A blocking write would keep every writer on a stalled client for the write timeout
+            assertTrue(System.nanoTime() - start < TimeUnit.SECONDS.toNanos(5));
+            assertEquals(stalledCount + 1, feed.getSessionCount());
+        } finally {
+            for (Socket socket : stalled) {
+                if (socket != null) {
+                    socket.close();
+                }
+            }
+        }
+    }
+
+    @Test
+    void testControlFramesDoNotCountAgainstQueue() throws Exception {
+        WebServerConfig config = baseConfig();
+        config.setWebSocketQueueCapacity(2);
+        startServer(config);
+        CompletableFuture<String> received = new CompletableFuture<>();
+        WebSocketEndpoint feed = server.addWebSocketEndpoint("/feed", new WebSocketHandler() {
+            @Override
+            public void onText(WebSocketSession session, String text) {
+                received.complete(text);
+            }
+        });
+
+        try (Socket socket = new Socket()) {
+            socket.setReceiveBufferSize(4096);
+            socket.connect(new InetSocketAddress(SERVER_HOST, SERVER_PORT), 2000);
+            handshake(socket, "/feed");
+            waitForSessions(feed, 1);
+            WebSocketSession session = feed.getSessions().iterator().next();
+
+            // One message larger than the socket buffers stalls the writes; the pongs to the
+            // pings that follow wait behind it
+            assertEquals(1, feed.broadcast(new byte[8 * 1024 * 1024]));
+            for (int i = 0; i < 10; i++) {
+                writeFrame(socket.getOutputStream(), true, PING, new byte[0]);
+            }
+            // Frames are read in order, so every ping has been answered by now
+            writeFrame(socket.getOutputStream(), true, TEXT, "listo".getBytes(StandardCharsets.UTF_8));
+            assertEquals("listo", received.get(5, TimeUnit.SECONDS));
+
+            assertEquals(1, feed.broadcast("sigue dentro del límite"));
+            assertEquals(1, session.getQueuedFrames());
+            assertTrue(session.isOpen());
+        }
+    }
+
+    @Test
+    void testCloseHandshakeEchoesStatusCode() throws Exception {
+        startServer(baseConfig());
+        CompletableFuture<String> closedWith = new CompletableFuture<>();
+        server.addWebSocketEndpoint("/echo", new EchoHandler() {
+            @Override
+            public void onClose(WebSocketSession session, int code, String reason) {
+                closedWith.complete(code + " " + reason);
+            }
+        });
+
+        try (Socket socket = connect("/echo")) {
+            byte[] reason = "adiós".getBytes(StandardCharsets.UTF_8);
+            byte[] payload = new byte[2 + reason.length];
+            payload[0] = (byte) (4001 >>> 8);
+            payload[1] = (byte) 4001;
+            System.arraycopy(reason, 0, payload, 2, reason.length);
+            writeFrame(socket.getOutputStream(), true, CLOSE, payload);
+
+            DataInputStream in = new DataInputStream(socket.getInputStream());
+            Frame close = readFrame(in);
+            assertEquals(CLOSE, close.opcode);
+            assertEquals(4001, close.closeCode());
+            assertEquals(-1, in.read(), "El servidor cierra la conexión TCP tras el cierre");
+        }
+        assertEquals("4001 adiós", closedWith.get(5, TimeUnit.SECONDS));
+    }
+
+    @Test
+    void testProtocolErrorsCloseWithStatusCode() throws Exception {
+        WebServerConfig config = baseConfig();
+        config.setWebSocketMaxMessageBytes(1024);
+        startServer(config);
+        server.addWebSocketEndpoint("/echo", new EchoHandler());
+
+        // Unmasked client frame
+        try (Socket socket = connect("/echo")) {
+            OutputStream out = socket.getOutputStream();
+            out.write(new byte[] { (byte) 0x81, 2, 'h', 'i' });
+            assertEquals(1002, readFrame(new DataInputStream(socket.getInputStream())).closeCode());
+        }
+        // Text that is not UTF-8
+        try (Socket socket = connect("/echo")) {
+            writeFrame(socket.getOutputStream(), true, TEXT, new byte[] { (byte) 0xC3, (byte) 0x28 });
+            assertEquals(1007, readFrame(new DataInputStream(socket.getInputStream())).closeCode());
+        }
+        // Message above the limit once its fragments are added up
+        try (Socket socket = connect("/echo")) {
+            writeFrame(socket.getOutputStream(), false, BINARY, new byte[800]);
+            writeFrame(socket.getOutputStream(), true, CONTINUATION, new byte[800]);
+            assertEquals(1009, readFrame(new DataInputStream(socket.getInputStream())).closeCode());
+        }
+        // Continuation without a message, and a fragmented ping
+        try (Socket socket = connect("/echo")) {
+            writeFrame(socket.getOutputStream(), true, CONTINUATION, new byte[1]);
+            assertEquals(1002, readFrame(new DataInputStream(socket.getInputStream())).closeCode());
+        }
+        try (Socket socket = connect("/echo")) {
+            writeFrame(socket.getOutputStream(), false, PING, new byte[1]);
+            assertEquals(1002, readFrame(new DataInputStream(socket.getInputStream())).closeCode());
+        }
+    }
+
+    @Test
+    void testIdleClientIsPingedThenDisconnected() throws Exception {
+        WebServerConfig config = baseConfig();
+        config.setWebSocketIdleMillis(300);
+        startServer(config);
+        server.addWebSocketEndpoint("/echo", new EchoHandler());
+
+        try (Socket socket = connect("/echo")) {
+            DataInputStream in = new DataInputStream(socket.getInputStream());
+            assertEquals(PING, readFrame(in).opcode);
+            // Answering keeps the session open for another round
+            writeFrame(socket.getOutputStream(), true, PONG, new byte[0]);
+            assertEquals(PING, readFrame(in).opcode);
+            // Silence after the ping ends it
+            long start = System.nanoTime();
+            assertEquals(-1, in.read());
+            assertTrue(System.nanoTime() - start < TimeUnit.SECONDS.toNanos(3));
+        }
+    }
+
+    @Test
+    void testTimeFeedAndStopServerGoingAway() throws Exception {
+        WebServerConfig config = baseConfig();
+        config.setWebSocketTickMillis(100);
+        startServer(config);
+
+        try (Socket socket = connect(WebSocketFeeds.TIME_PATH)) {
+            DataInputStream in = new DataInputStream(socket.getInputStream());
+            Frame tick = readFrame(in);
+            assertEquals(TEXT, tick.opcode);
+            assertTrue(tick.text().matches("\\d{4}-\\d{2}-\\d{2} \\d{2}:\\d{2}:\\d{2}"), tick.text());
+
+            stopServer();
+            Frame frame;
+            do {
+                frame = readFrame(in);
+            } while (frame.opcode == TEXT);
+            assertEquals(CLOSE, frame.opcode);
+            assertEquals(1001, frame.closeCode());
+        }
+    }
+
+    @Test
+    void testRequestsThatCannotUpgradeAreRefused() throws Exception {
+        startServer(baseConfig());
+        assertEquals(426, sendRaw("GET /ws/time HTTP/1.1\r\nHost: localhost\r\nConnection: close\r\n\r\n")
+            .statusCode);
+        WebServerTestSupport.Response wrongVersion = sendRaw("GET /ws/time HTTP/1.1\r\nHost: localhost\r\nUpgrade: websocket\r\n" +
+                                      "Connection: Upgrade\r\nSec-WebSocket-Key: " + SAMPLE_KEY + "\r\n" +
+                                      "Sec-WebSocket-Version: 8\r\n\r\n");
+        assertEquals(426, wrongVersion.statusCode);
+        assertEquals("13", wrongVersion.headers.get("sec-websocket-version"));
+        assertEquals(400, sendRaw("GET /ws/time HTTP/1.1\r\nHost: localhost\r\nUpgrade: websocket\r\n" +
+                                  "Connection: Upgrade\r\nSec-WebSocket-Key: corta\r\nSec-WebSocket-Version: 13\r\n\r\n")
+            .statusCode);
+        stopServer();
+
+        // The nio engine answers a valid handshake instead of upgrading
+        WebServerConfig config = baseConfig();
+        config.setEngine(WebServerConfig.Engine.NIO);
+        startServer(config);
+        assertEquals(501, sendRaw(handshakeRequest("/ws/chat")).statusCode);
+
+        // A server without the built-in feeds serves those paths from the web root
+        stopServer();
+        config = baseConfig();
+        config.setWebSocketEnabled(false);
+        startServer(config);
+        assertNull(server.getWebSocketEndpoint(WebSocketFeeds.CHAT_PATH));
+        assertEquals(404, sendRaw(handshakeRequest("/ws/chat")).statusCode);
+    }
+
+    @Test
+    void testUpgradesBeyondSessionBudgetAreRefused() throws Exception {
+        WebServerConfig config = baseConfig();
+        config.setWebSocketSessions(1);
+        startServer(config);
+        try (Socket first = connect(WebSocketFeeds.CHAT_PATH)) {
+            WebServerTestSupport.Response refused = sendRaw(handshakeRequest(WebSocketFeeds.CHAT_PATH));
+            assertEquals(503, refused.statusCode);
+            assertNotNull(refused.headers.get("retry-after"));
+
+            // The budget only limits sessions: plain requests are still served
+            assertEquals(426, sendRaw("GET /ws/chat HTTP/1.1\r\nHost: localhost\r\nConnection: close\r\n\r\n")
+                .statusCode);
+
+            writeFrame(first.getOutputStream(), true, CLOSE, new byte[] { 0x03, (byte) 0xE8 });
+            DataInputStream in = new DataInputStream(first.getInputStream());
+            assertEquals(CLOSE, readFrame(in).opcode);
+            // The permit is returned before the connection closes
+            assertEquals(-1, in.read());
+        }
+        try (Socket second = connect(WebSocketFeeds.CHAT_PATH)) {
+            assertTrue(second.isConnected());
+        }
+    }
+
+    @Test
+    void testWebSocketConfigValidation() {
+        WebServerConfig config = new WebServerConfig();
+        assertTrue(config.isWebSocketEnabled());
+        assertEquals(WebServerConfig.DEFAULT_WEBSOCKET_QUEUE_CAPACITY, config.getWebSocketQueueCapacity());
+        assertThrows(IllegalArgumentException.class, () -> config.setWebSocketQueueCapacity(0));
+        assertThrows(IllegalArgumentException.class, () -> config.setWebSocketMaxMessageBytes(0));
+        assertThrows(IllegalArgumentException.class, () -> config.setWebSocketIdleMillis(-1));
+        assertThrows(IllegalArgumentException.class, () -> config.setWebSocketTickMillis(0));
+        assertEquals(WebServerConfig.DEFAULT_WEBSOCKET_SESSIONS, config.getWebSocketSessions());
+        assertThrows(IllegalArgumentException.class, () -> config.setWebSocketSessions(0));
+
+        SimpleWebServer local = new SimpleWebServer(config);
+        assertThrows(IllegalArgumentException.class, () -> local.addWebSocketEndpoint("sin-barra", new EchoHandler()));
+        assertThrows(IllegalArgumentException.class,
+                     () -> local.addWebSocketEndpoint(WebSocketFeeds.CHAT_PATH, new EchoHandler()));
+        local.stopServer();
+    }
+
+    /**
+     * Answers every text message with "eco: " in front and every binary message as is
+     */
+    private static class EchoHandler implements WebSocketHandler {
+        @Override
+        public void onText(WebSocketSession session, String text) {
+            session.sendText("eco: " + text);
+        }
+
+        @Override
+        public void onBinary(WebSocketSession session, byte[] data) {
+            session.sendBinary(data);
+        }
+    }
+
+    private record Frame(boolean fin, int opcode, byte[] payload) {
+        String text() {
+            return new String(payload, StandardCharsets.UTF_8);
+        }
+
+        int closeCode() {
+            assertEquals(CLOSE, opcode);
+            return (payload[0] & 0xFF) << 8 | (payload[1] & 0xFF);
+        }
+    }
+
+    private static byte[] header(ByteBuffer frame, int length) {
+        return Arrays.copyOfRange(frame.array(), 0, length);
+    }
+
+    private WebServerConfig baseConfig() {
+        WebServerConfig config = new WebServerConfig();
+        config.setPort(SERVER_PORT);
+        config.setWebRoot(webRoot.toString());
+        return config;
+    }
+
+    private static String handshakeRequest(String path) {
+        return "GET " + path + " HTTP/1.1\r\nHost: localhost\r\nUpgrade: websocket\r\nConnection: Upgrade\r\n" +
+               "Sec-WebSocket-Key: " + SAMPLE_KEY + "\r\nSec-WebSocket-Version: 13\r\n\r\n";
+    }
+
+    private static Socket connect(String path) throws IOException {
+        Socket socket = openSocket(SERVER_PORT);
+        handshake(socket, path);
+        return socket;
+    }
+
+    /**
+     * Upgrades the connection; the head is read byte by byte, so no frame after it is consumed
+     */
+    private static void handshake(Socket socket, String path) throws IOException {
+        socket.setSoTimeout(5000);
+        send(socket, handshakeRequest(path));
+        WebServerTestSupport.Response head = readHead(socket.getInputStream());
+        assertEquals(101, head.statusCode);
+        assertEquals(SAMPLE_ACCEPT, head.headers.get("sec-websocket-accept"));
+    }
+
+    private static WebServerTestSupport.Response sendRaw(String request) throws IOException {
+        try (Socket socket = openSocket(SERVER_PORT)) {
+            return exchange(socket, request);
+        }
+    }
+
+    private static void writeFrame(OutputStream out, boolean fin, int opcode, byte[] payload) throws IOException {
+        ByteArrayOutputStream frame = new ByteArrayOutputStream();
+        frame.write((fin ? 0x80 : 0) | opcode);
+        if (payload.length < 126) {
+            frame.write(0x80 | payload.length);
+        } else if (payload.length <= 0xFFFF) {
+            frame.write(0x80 | 126);
+            frame.write(payload.length >>> 8);
+            frame.write(payload.length);
+        } else {
+            frame.write(0x80 | 127);
+            for (int i = 7; i >= 0; i--) {
+                frame.write((int) ((long) payload.length >>> (8 * i)));
+            }
+        }
+        byte[] mask = { 0x12, 0x34, 0x56, 0x78 };
+        frame.write(mask);
+        for (int i = 0; i < payload.length; i++) {
+            frame.write(payload[i] ^ mask[i % 4]);
+        }
+        out.write(frame.toByteArray());
+        out.flush();
+    }
+
+    private static Frame readFrame(DataInputStream in) throws IOException {
+        int first = in.readUnsignedByte();
+        int second = in.readUnsignedByte();
+        assertEquals(0, second & 0x80, "Las tramas del servidor no van enmascaradas");
+        long length = second & 0x7F;
+        if (length == 126) {
+            length = in.readUnsignedShort();
+        } else if (length == 127) {
+            length = in.readLong();
+        }
+        byte[] payload = new byte[(int) length];
+        in.readFully(payload);
+        return new Frame((first & 0x80) != 0, first & 0x0F, payload);
+    }
+
+    private static void waitForSessions(WebSocketEndpoint endpoint, int expected) throws InterruptedException {
+        for (int i = 0; i < 100 && endpoint.getSessionCount() != expected; i++) {
+            Thread.sleep(50);
+        }
+        assertEquals(expected, endpoint.getSessionCount());
+    }
+
+    private void startServer(WebServerConfig config) throws Exception {
+        server = new SimpleWebServer(config);
+        serverThread = WebServerTestSupport.startServer(server, SERVER_PORT);
+    }
+
+    private void stopServer() throws InterruptedException {
+        if (server != null) {
+            WebServerTestSupport.stopServer(server, serverThread, SERVER_PORT);
+            server = null;
+        }
+    }
+}